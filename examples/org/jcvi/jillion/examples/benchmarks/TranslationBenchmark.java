@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.examples.benchmarks;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.Codon;
+import org.jcvi.jillion.core.residue.aa.IupacTranslationTables;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Triplet;
+/**
+ * Timing harness for {@link IupacTranslationTables} that compares
+ * the old way of translating each frame, which looked up one {@link Triplet}
+ * at a time in a Map, to the table driven {@code translate()}
+ * and to translating all six frames at once with {@code translateAllFrames()}.
+ * 
+ * Usage: {@code TranslationBenchmark [length] [rounds]}
+ * defaults to a random 1,000,000 base sequence and 25 rounds.
+ * 
+ * @author dkatzel
+ *
+ */
+public class TranslationBenchmark {
+
+	public static void main(String[] args){
+		int length = args.length >0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int rounds = args.length >1 ? Integer.parseInt(args[1]) : 25;
+		
+		NucleotideSequence sequence = randomSequence(new Random(1), length);
+		IupacTranslationTables table = IupacTranslationTables.STANDARD;
+		Map<Triplet, Codon> map = createTripletMap(table);
+		
+		for(int round=0; round< rounds; round++){
+			//sum the lengths so the JIT can't skip the work
+			long sum=0;
+			long start = System.nanoTime();
+			for(Frame frame : Frame.values()){
+				sum += translateByTriplet(map, sequence, frame).getLength();
+			}
+			long tripletTime = System.nanoTime();
+			for(Frame frame : Frame.values()){
+				sum += table.translate(sequence, frame, true).getLength();
+			}
+			long perFrameTime = System.nanoTime();
+			for(ProteinSequence protein : table.translateAllFrames(sequence, true).values()){
+				sum += protein.getLength();
+			}
+			long allFramesTime = System.nanoTime();
+			System.out.printf("by triplet %d ms, translate() per frame %d ms, translateAllFrames() %d ms (%d)%n",
+					(tripletTime - start)/1_000_000,
+					(perFrameTime - tripletTime)/1_000_000,
+					(allFramesTime - perFrameTime)/1_000_000,
+					sum);
+		}
+	}
+	/**
+	 * Build the same kind of Triplet to Codon Map
+	 * the translation tables used before they were packed.
+	 */
+	private static Map<Triplet, Codon> createTripletMap(IupacTranslationTables table){
+		Map<Triplet, Codon> map = new HashMap<>();
+		List<Nucleotide> dnaValues = Nucleotide.getDnaValues();
+		for(Nucleotide first : dnaValues){
+			for(Nucleotide second : dnaValues){
+				for(Nucleotide third : dnaValues){
+					map.put(Triplet.create(first, second, third), table.getCodon(first, second, third));
+				}
+			}
+		}
+		return map;
+	}
+	/**
+	 * The old per frame translation: walk the frame one
+	 * Triplet at a time and look each one up in the Map.
+	 */
+	private static ProteinSequence translateByTriplet(Map<Triplet, Codon> map, NucleotideSequence sequence, Frame frame){
+		ProteinSequenceBuilder builder = new ProteinSequenceBuilder((int)(sequence.getLength()/3));
+		Iterator<Triplet> iter = frame.asTriplets(sequence);
+		boolean seenStart = false;
+		while(iter.hasNext()){
+			Triplet triplet = iter.next();
+			if(triplet !=null){
+				Codon codon = map.get(triplet);
+				if(codon.isStart() && !seenStart){
+					seenStart = true;
+					builder.append(AminoAcid.Methionine);
+				}else{
+					builder.append(codon.getAminoAcid());
+				}
+			}
+		}
+		return builder.build();
+	}
+	
+	private static NucleotideSequence randomSequence(Random random, int length){
+		char[] bases = "ACGT".toCharArray();
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			builder.append(bases[random.nextInt(bases.length)]);
+		}
+		return new NucleotideSequenceBuilder(builder.toString()).build();
+	}
+}
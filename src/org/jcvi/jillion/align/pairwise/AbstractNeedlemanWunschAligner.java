@@ -46,6 +46,26 @@ abstract class AbstractNeedlemanWunschAligner <R extends Residue, S extends Resi
 			float extendGapPenalty,ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy) {
 		super(query, subject, matrix, openGapPenalty, extendGapPenalty, pairwiseStrategy);
 	}
+	
+	protected AbstractNeedlemanWunschAligner(S query,
+			S subject, SubstitutionMatrix<R> matrix, float openGapPenalty,
+			float extendGapPenalty,ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy,
+			AlignmentBand band) {
+		super(query, subject, matrix, openGapPenalty, extendGapPenalty, pairwiseStrategy, null, band);
+	}
+	/**
+	 * A global alignment must start at the beginning
+	 * of both sequences and end at the end of both sequences
+	 * so the band is widened if needed to include both corners
+	 * of the matrix.
+	 * <p/>
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected AlignmentBand adjustBand(AlignmentBand band, int queryLength,
+			int subjectLength) {
+		return band.includeCorners(queryLength, subjectLength);
+	}
 	/**
 	 * The initial gap scores of NeedlemanWunsch are the values
 	 * returned by the affine gap penalty.
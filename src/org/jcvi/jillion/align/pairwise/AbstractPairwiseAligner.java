@@ -51,7 +51,7 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 	 * The matrix which stores all of our traceback
 	 * values. 
 	 */
-	private final TraceBackMatrix traceback;
+	private final TraceBack traceback;
 	/**
 	 * The match scores of the current row computed so far
 	 * and the full previous row.
@@ -87,6 +87,11 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 	
 	
 	private Integer subjectShiftAmount;
+	/**
+	 * The band of diagonals to compute, or null
+	 * if the whole matrix should be computed.
+	 */
+	private final AlignmentBand band;
 	
 	
 	protected AbstractPairwiseAligner(S query, S subject,
@@ -98,6 +103,23 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
                 SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
                 ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy,
                 Integer subjectShiftAmount){
+	    this(query, subject, matrix, openGapPenalty, extendGapPenalty, pairwiseStrategy, subjectShiftAmount, null);
+	}
+	/**
+	 * Align the given sequences only computing the cells
+	 * of the dynamic programming matrix that are inside the given band.
+	 * The traceback memory used is proportional to
+	 * {@code queryLength * bandWidth} instead of {@code queryLength * subjectLength}.
+	 * 
+	 * @param band the {@link AlignmentBand} to restrict the alignment to;
+	 * if null, then the whole matrix is computed.
+	 * 
+	 * @since 5.3
+	 */
+	protected AbstractPairwiseAligner(S query, S subject,
+                SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+                ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy,
+                Integer subjectShiftAmount, AlignmentBand band){
 	    
 		checkNotNull(query,subject,matrix);
 		this.pairwiseStrategy = pairwiseStrategy;
@@ -114,7 +136,12 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 		int ungappedSubjectLength = (int)subject.getUngappedLength();
 		int ungappedQueryLength = (int)query.getUngappedLength();
 		
-		traceback = new TraceBackMatrix(ungappedQueryLength+1,ungappedSubjectLength+1, initialRowDirection, initialColDirection);
+		this.band = band==null? null : adjustBand(band, ungappedQueryLength, ungappedSubjectLength);
+		if(this.band ==null){
+			traceback = new TraceBackMatrix(ungappedQueryLength+1,ungappedSubjectLength+1, initialRowDirection, initialColDirection);
+		}else{
+			traceback = new BandedTraceBackMatrix(ungappedQueryLength+1,ungappedSubjectLength+1, this.band, initialRowDirection, initialColDirection);
+		}
 		
 		scoreCache = new float[2][ungappedSubjectLength+1];
 		inAVerticalGapCache = new BitSet[2];
@@ -150,7 +177,8 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 		int lengthOfSeq1 = seq1Bytes.length;
 		int lengthOfSeq2 = seq2Bytes.length;
 		
-		
+		long lowerDiagonal = band ==null ? -lengthOfSeq1 : band.getLowerDiagonal();
+		long upperDiagonal = band ==null ?  lengthOfSeq2 : band.getUpperDiagonal();
 		
 		//only need to keep array of vertical accumulated gap
 		//penalties since we are populating horizontally  we can just
@@ -158,13 +186,33 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 		float[] verticalGapPenaltiesSoFar = new float[lengthOfSeq2+1];		
 		Arrays.fill(verticalGapPenaltiesSoFar, Float.NEGATIVE_INFINITY);
 		List<R> residuesByOrdinal = pairwiseStrategy.getResidueList();
+		//substitution scores of each query residue against every
+		//residue ordinal, computed once per query residue type
+		//so the inner loop is just an array lookup.
+		float[][] substitutionScoresByOrdinal = new float[residuesByOrdinal.size()][];
 		StartPoint currentStartPoint = new StartPoint();
+		BitSet inAHorizontalGap = new BitSet(lengthOfSeq2+1);
 		for(int i=1; i<=lengthOfSeq1; i++){
-
+			//without a band this is always the whole row
+			int firstColumn = (int) Math.max(1, i + lowerDiagonal);
+			int lastColumn = (int) Math.min(lengthOfSeq2, i + upperDiagonal);
+			if(firstColumn > lastColumn){
+				//row is completely outside of band
+				continue;
+			}
+			//cells just outside the band may have stale
+			//values from earlier rows, they must never be used.
+			if(i + lowerDiagonal > 0){
+				scoreCache[CURRENT_ROW][firstColumn-1] = Float.NEGATIVE_INFINITY;
+			}
+			if(lastColumn > i-1 + upperDiagonal){
+				scoreCache[PREVIOUS_ROW][lastColumn] = Float.NEGATIVE_INFINITY;
+			}
 			
+			float[] substitutionScores = getSubstitutionScores(matrix, residuesByOrdinal, substitutionScoresByOrdinal, seq1Bytes[i-1]);
 			float cumulativeHorizontalGapPenalty=Float.NEGATIVE_INFINITY;
-			BitSet inAHorizontalGap = new BitSet(lengthOfSeq2+1);
-			for(int j=1; j<= lengthOfSeq2; j++){
+			inAHorizontalGap.clear(firstColumn-1, lastColumn+1);
+			for(int j=firstColumn; j<= lastColumn; j++){
 				float diagnol = scoreCache[PREVIOUS_ROW][j-1];
 				float verticalGapExtensionScore = inAVerticalGapCache[PREVIOUS_ROW].get(j) 
 							? scoreCache[PREVIOUS_ROW][j] + extendGapPenalty 
@@ -189,9 +237,7 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 				
 				//need to do -1s because 0 offset in matrix is filled with stops
 				//and actual values start at offset 1
-				float alignmentScore = diagnol + matrix.getValue(
-						residuesByOrdinal.get(seq1Bytes[i-1]),
-						residuesByOrdinal.get(seq2Bytes[j-1]));
+				float alignmentScore = diagnol + substitutionScores[seq2Bytes[j-1]];
 				
 				
 				WalkBack bestWalkBack = computeBestWalkBack(alignmentScore, cumulativeHorizontalGapPenalty, verticalGapPenaltiesSoFar[j]);
@@ -217,14 +263,27 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 						
 				}
 				traceback.set(i,j,bestWalkBack.getTracebackDirection());
-				diagnol = traceback.get(i-1,j).ordinal();
 				
 				//printTraceBack();
 			}
-			updateCaches();
+			updateCaches(firstColumn-1, lastColumn);
 		}
 		return currentStartPoint;
 	}
+	
+	private float[] getSubstitutionScores(SubstitutionMatrix<R> matrix, List<R> residuesByOrdinal,
+			float[][] substitutionScoresByOrdinal, byte queryOrdinal){
+		float[] scores = substitutionScoresByOrdinal[queryOrdinal];
+		if(scores ==null){
+			R queryResidue = residuesByOrdinal.get(queryOrdinal);
+			scores = new float[residuesByOrdinal.size()];
+			for(int i=0; i< scores.length; i++){
+				scores[i] = matrix.getValue(queryResidue, residuesByOrdinal.get(i));
+			}
+			substitutionScoresByOrdinal[queryOrdinal] = scores;
+		}
+		return scores;
+	}
 	/**
 	 * Initialize the values of the initial scorecache and inVerticalGapCache.
 	 * Some of these values are populated using returned values from
@@ -275,15 +334,31 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 	 */
 	protected abstract float[] getInitialGapScores(int length, float openGapPenalty,
 			float extendGapPenalty);
+	/**
+	 * Adjust the given band if needed
+	 * so that it can contain a valid alignment.
+	 * By default the band is not changed.
+	 * @param band the band requested; will never be null.
+	 * @param queryLength the ungapped length of the query.
+	 * @param subjectLength the ungapped length of the subject.
+	 * @return the {@link AlignmentBand} to use; can not be null.
+	 * 
+	 * @since 5.3
+	 */
+	protected AlignmentBand adjustBand(AlignmentBand band, int queryLength, int subjectLength){
+		return band;
+	}
 	/**
 	 * Replace the contents of the previous row
 	 * with the contents of the  current row.  Since 
 	 * we only care about the previous 1 rows
 	 * we can safely forget about anything older than that.
 	 * (and save memory)
+	 * @param from the first column to copy (inclusive).
+	 * @param to the last column to copy (inclusive).
 	 */
-	private void updateCaches() {
-		for(int j=0; j< scoreCache[CURRENT_ROW].length; j++){
+	private void updateCaches(int from, int to) {
+		for(int j=from; j<= to; j++){
 			scoreCache[PREVIOUS_ROW][j] = scoreCache[CURRENT_ROW][j];
 			
 			inAVerticalGapCache[PREVIOUS_ROW].set(j,inAVerticalGapCache[CURRENT_ROW].get(j));
@@ -549,7 +624,18 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 		DIAGNOL;
 	}
 	
-	private static final class TraceBackMatrix{
+	private interface TraceBack{
+		
+		TracebackDirection get(int x, int y);
+		
+		void set(int x, int y, TracebackDirection value);
+		
+		int getXLength();
+		
+		int getYLength();
+	}
+	
+	private static final class TraceBackMatrix implements TraceBack{
 		private final byte[][] matrix;
 		private final int xLength;
 		private final int yLength;
@@ -587,6 +673,7 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 			matrix[0][0]= origin;
 		}
 
+		@Override
 		public TracebackDirection get(int x, int y){
 			byte matrixValue = matrix[x/2][y/2];
 			if((x & 0x01)==0){
@@ -604,6 +691,7 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 			}
 		}
 		
+		@Override
 		public void set(int x, int y, TracebackDirection value){
 			int matrixValue = matrix[x/2][y/2];
 			if((x & 0x01)==0){
@@ -621,10 +709,91 @@ abstract class AbstractPairwiseAligner <R extends Residue, S extends ResidueSequ
 				
 			}
 		}
+		@Override
+		public int getXLength(){
+			return xLength;
+		}
+		@Override
+		public int getYLength(){
+			return yLength;
+		}
+	}
+	/**
+	 * A {@link TraceBack} that only stores the cells
+	 * inside of an {@link AlignmentBand}, each row
+	 * only stores the columns in the band packed
+	 * 4 cells per byte.
+	 */
+	private static final class BandedTraceBackMatrix implements TraceBack{
+		private final byte[][] rows;
+		private final int[] firstColumns;
+		private final int[] widths;
+		private final int xLength;
+		private final int yLength;
+		private static final TracebackDirection[] ORDINALS = TracebackDirection.values();
+		
+		BandedTraceBackMatrix(int x, int y, AlignmentBand band, TracebackDirection initialRowDirection, TracebackDirection initialColDirection){
+			xLength = x;
+			yLength = y;
+			rows = new byte[x][];
+			firstColumns = new int[x];
+			widths = new int[x];
+			for(int i=0; i< x; i++){
+				long first = Math.max(0, i + (long) band.getLowerDiagonal());
+				long last = Math.min(y-1, i + (long) band.getUpperDiagonal());
+				firstColumns[i] = (int) Math.min(first, y);
+				widths[i] = (int) Math.max(0, last - first +1);
+				rows[i] = new byte[(widths[i]+3)/4];
+			}
+			initialize(initialRowDirection, initialColDirection);
+		}
+		
+		private void initialize(TracebackDirection initialRowDirection,
+				TracebackDirection initialColDirection) {
+			for(int j=1; j< yLength; j++){
+				if(isInBand(0, j)){
+					set(0, j, initialRowDirection);
+				}
+			}
+			for(int i=1; i< xLength; i++){
+				if(isInBand(i, 0)){
+					set(i, 0, initialColDirection);
+				}
+			}
+			if(isInBand(0,0)){
+				set(0,0, TracebackDirection.TERMINAL);
+			}
+		}
 		
+		private boolean isInBand(int x, int y){
+			int offset = y - firstColumns[x];
+			return offset >=0 && offset < widths[x];
+		}
+		
+		@Override
+		public TracebackDirection get(int x, int y){
+			if(!isInBand(x, y)){
+				//only happens if there are no cells in the band
+				//so there is no alignment
+				return TracebackDirection.TERMINAL;
+			}
+			int offset = y - firstColumns[x];
+			int shift = 6 - 2*(offset & 0x03);
+			return ORDINALS[(rows[x][offset>>2] >> shift) & 0x03];
+		}
+		
+		@Override
+		public void set(int x, int y, TracebackDirection value){
+			int offset = y - firstColumns[x];
+			int shift = 6 - 2*(offset & 0x03);
+			byte current = rows[x][offset>>2];
+			rows[x][offset>>2] = (byte)((current & ~(0x03 << shift)) | (value.ordinal() << shift));
+		}
+		@Override
 		public int getXLength(){
 			return xLength;
 		}
+		@Override
 		public int getYLength(){
 			return yLength;
 		}
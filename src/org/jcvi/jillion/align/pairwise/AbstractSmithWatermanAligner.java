@@ -57,6 +57,15 @@ abstract class AbstractSmithWatermanAligner<R extends Residue, S extends Residue
         super(query, subject, matrix, openGapPenalty, extendGapPenalty,
                 pairwiseStrategy, subjectShiftAmount);
     }
+	
+	protected AbstractSmithWatermanAligner(S query, S subject,
+            SubstitutionMatrix<R> matrix, float openGapPenalty,
+            float extendGapPenalty,
+            ResiduePairwiseStrategy<R, S, B, A, P> pairwiseStrategy,
+            Integer subjectShiftAmount, AlignmentBand band) {
+        super(query, subject, matrix, openGapPenalty, extendGapPenalty,
+                pairwiseStrategy, subjectShiftAmount, band);
+    }
 
 
     /**
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+/**
+ * A band of diagonals in a dynamic programming matrix
+ * that an alignment is restricted to.  Diagonals are numbered
+ * by {@code subjectOffset - queryOffset} so diagonal 0 aligns the first
+ * residue of the query to the first residue of the subject.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class AlignmentBand {
+
+	private final int lowerDiagonal;
+	private final int upperDiagonal;
+	/**
+	 * Create a new band centered on the given diagonal.
+	 * @param expectedDiagonal the expected offset into the subject
+	 * that the first query residue aligns to; may be negative.
+	 * @param bandWidth the max number of residues the alignment
+	 * may drift from the expected diagonal in either direction; must be &ge; 0.
+	 * @throws IllegalArgumentException if bandWidth is negative.
+	 */
+	AlignmentBand(int expectedDiagonal, int bandWidth){
+		this(expectedDiagonal - (long) checkBandWidth(bandWidth), expectedDiagonal + (long) bandWidth);
+	}
+	
+	private static int checkBandWidth(int bandWidth){
+		if(bandWidth <0){
+			throw new IllegalArgumentException("band width must be >= 0");
+		}
+		return bandWidth;
+	}
+	
+	private AlignmentBand(long lowerDiagonal, long upperDiagonal){
+		this.lowerDiagonal = (int) Math.max(Integer.MIN_VALUE, lowerDiagonal);
+		this.upperDiagonal = (int) Math.min(Integer.MAX_VALUE, upperDiagonal);
+	}
+	
+	int getLowerDiagonal() {
+		return lowerDiagonal;
+	}
+
+	int getUpperDiagonal() {
+		return upperDiagonal;
+	}
+	/**
+	 * Create a new band for the same residues after the first
+	 * {@code subjectShiftAmount} residues have been removed from the subject.
+	 * @param subjectShiftAmount the number of residues removed from the beginning
+	 * of the subject.
+	 * @return a new AlignmentBand.
+	 */
+	AlignmentBand shift(int subjectShiftAmount){
+		return new AlignmentBand((long) lowerDiagonal - subjectShiftAmount, (long) upperDiagonal - subjectShiftAmount);
+	}
+	/**
+	 * Widen this band if needed so that it includes
+	 * both the beginning and end of a global alignment
+	 * otherwise there would be no valid alignment in the band.
+	 * @param queryLength the ungapped length of the query.
+	 * @param subjectLength the ungapped length of the subject.
+	 * @return a new AlignmentBand or this if it already includes both corners.
+	 */
+	AlignmentBand includeCorners(int queryLength, int subjectLength){
+		int endDiagonal = subjectLength - queryLength;
+		int lower = Math.min(lowerDiagonal, Math.min(0, endDiagonal));
+		int upper = Math.max(upperDiagonal, Math.max(0, endDiagonal));
+		if(lower == lowerDiagonal && upper == upperDiagonal){
+			return this;
+		}
+		return new AlignmentBand((long) lower, (long) upper);
+	}
+	
+	@Override
+	public String toString() {
+		return "AlignmentBand [lowerDiagonal=" + lowerDiagonal
+				+ ", upperDiagonal=" + upperDiagonal + "]";
+	}
+	
+}
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.residue.Residue;
+import org.jcvi.jillion.core.residue.ResidueSequence;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.ThrowingStream;
+import org.jcvi.jillion.internal.core.util.BoundedPriorityQueue;
+/**
+ * {@code BatchPairwiseAligner} finds the best local alignments
+ * of a single query against many subject sequences.
+ * <p>
+ * Every subject is first scored in parallel on a {@link ForkJoinPool}
+ * using a {@link LocalAlignmentScorer} so the query profile
+ * is only built once and each thread reuses the same score arrays
+ * for every subject.  Each parallel task only keeps its own top hits
+ * and the full alignments (with traceback) are only computed
+ * for the final top hits.
+ * 
+ * @author dkatzel
+ *
+ * @param <R> the type of {@link Residue} (either {@link Nucleotide} or {@link AminoAcid} ). 
+ * @param <S> the type of {@link org.jcvi.jillion.core.Sequence} (either {@link NucleotideSequence} or {@link ProteinSequence} ).
+ * @param <A> the type of {@link PairwiseSequenceAlignment} built.
+ * 
+ * @since 5.3
+ */
+public final class BatchPairwiseAligner<R extends Residue, S extends ResidueSequence<R, S, ?>, A extends PairwiseSequenceAlignment<R,S>> {
+	
+	/**
+	 * Default number of hits returned if not set.
+	 */
+	public static final int DEFAULT_MAX_NUMBER_OF_HITS = 10;
+	
+	private final LocalAlignmentScorer<R, S, A> scorer;
+	private final int maxNumberOfHits;
+	private final float minScore;
+	private final ForkJoinPool pool;
+	
+	/**
+	 * Create a new Builder to align a {@link NucleotideSequence} query
+	 * against many subjects.
+	 * @param query the query sequence, any gaps
+	 * in the sequence will be ignored by the alignment; may not be null.
+	 * @param matrix the {@link NucleotideSubstitutionMatrix}; can not be null.
+	 * @return a new Builder; will never be null.
+	 * @throws NullPointerException if any parameters are null.
+	 */
+	public static Builder<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> createNucleotideBatchAlignerBuilder(
+			NucleotideSequence query, NucleotideSubstitutionMatrix matrix){
+		Objects.requireNonNull(query);
+		Objects.requireNonNull(matrix);
+		return new Builder<>((open, extension)-> LocalAlignmentScorer.createNucleotideScorer(query, matrix, open, extension));
+	}
+	/**
+	 * Create a new Builder to align a {@link ProteinSequence} query
+	 * against many subjects.
+	 * @param query the query sequence, any gaps
+	 * in the sequence will be ignored by the alignment; may not be null.
+	 * @param matrix the {@link AminoAcidSubstitutionMatrix}; can not be null.
+	 * @return a new Builder; will never be null.
+	 * @throws NullPointerException if any parameters are null.
+	 */
+	public static Builder<AminoAcid, ProteinSequence, ProteinPairwiseSequenceAlignment> createProteinBatchAlignerBuilder(
+			ProteinSequence query, AminoAcidSubstitutionMatrix matrix){
+		Objects.requireNonNull(query);
+		Objects.requireNonNull(matrix);
+		return new Builder<>((open, extension)-> LocalAlignmentScorer.createProteinScorer(query, matrix, open, extension));
+	}
+	
+	/**
+	 * Create a new Builder that reuses an already created {@link LocalAlignmentScorer}
+	 * so the query profile isn't built again.  Any gap penalties set on the returned
+	 * Builder are ignored since the scorer already has its own.
+	 */
+	static <R extends Residue, S extends ResidueSequence<R, S, ?>, A extends PairwiseSequenceAlignment<R,S>> Builder<R,S,A> createBatchAlignerBuilder(
+			LocalAlignmentScorer<R,S,A> scorer){
+		Objects.requireNonNull(scorer);
+		return new Builder<>((open, extension)-> scorer);
+	}
+	
+	private BatchPairwiseAligner(Builder<R,S,A> builder){
+		this.scorer = builder.scorerFactory.create(builder.gapOpen, builder.gapExtension);
+		this.maxNumberOfHits = builder.maxNumberOfHits;
+		this.minScore = builder.minScore;
+		this.pool = builder.pool;
+	}
+	/**
+	 * Align the query against every record in the given {@link DataStore}.
+	 * 
+	 * @param subjects the DataStore of subject sequences; can not be null.
+	 * @return a new List of the best hits sorted by score, best first;
+	 * will never be null but may be empty.
+	 * @throws DataStoreException if there is a problem iterating over the DataStore.
+	 * @throws NullPointerException if subjects is null.
+	 */
+	public List<Hit<A>> align(DataStore<S> subjects) throws DataStoreException{
+		try(ThrowingStream<DataStoreEntry<S>> stream = subjects.entries()){
+			return align(stream);
+		}
+	}
+	/**
+	 * Align the query against every subject in the given Stream.  The stream
+	 * will be processed in parallel.
+	 * 
+	 * @param subjects the Stream of subject sequences keyed by id; can not be null.
+	 * @return a new List of the best hits sorted by score, best first;
+	 * will never be null but may be empty.
+	 * @throws NullPointerException if subjects is null.
+	 */
+	public List<Hit<A>> align(Stream<DataStoreEntry<S>> subjects){
+		Objects.requireNonNull(subjects);
+		BoundedPriorityQueue<Candidate<S>> best = invoke(()-> subjects.parallel()
+									.map(entry -> new Candidate<S>(entry.getKey(), entry.getValue(), scorer.score(entry.getValue())))
+									.filter(candidate -> candidate.score > 0 && candidate.score >= minScore)
+									.collect(this::createQueue, BoundedPriorityQueue::offer, BoundedPriorityQueue::addAll));
+		
+		List<Candidate<S>> candidates = new ArrayList<>(best);
+		List<Hit<A>> hits = invoke(()-> candidates.parallelStream()
+							.map(candidate -> new Hit<>(candidate.id, candidate.score, scorer.align(candidate.subject)))
+							.collect(Collectors.toList()));
+		
+		Collections.sort(hits, Hit.BEST_FIRST);
+		return hits;
+	}
+	
+	private BoundedPriorityQueue<Candidate<S>> createQueue(){
+		return BoundedPriorityQueue.create(maxNumberOfHits, Candidate.WORST_FIRST);
+	}
+	
+	private <T> T invoke(Callable<T> task){
+		try {
+			return pool.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while aligning", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("error aligning", cause);
+		}
+	}
+	
+	private static final class Candidate<S>{
+		/**
+		 * Sort by score, ties go to the smallest id
+		 * so the results are the same no matter how
+		 * the work was split.
+		 */
+		static final Comparator<Candidate<?>> WORST_FIRST = Comparator.<Candidate<?>>comparingDouble(c -> c.score)
+																	.thenComparing(c -> c.id, Comparator.reverseOrder());
+		
+		private final String id;
+		private final S subject;
+		private final float score;
+		
+		Candidate(String id, S subject, float score) {
+			this.id = id;
+			this.subject = subject;
+			this.score = score;
+		}
+	}
+	
+	@FunctionalInterface
+	private interface ScorerFactory<R extends Residue, S extends ResidueSequence<R, S, ?>, A extends PairwiseSequenceAlignment<R,S>>{
+		LocalAlignmentScorer<R, S, A> create(float gapOpen, float gapExtension);
+	}
+	/**
+	 * A single subject hit found by a {@link BatchPairwiseAligner}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @param <A> the type of {@link PairwiseSequenceAlignment}.
+	 */
+	public static final class Hit<A extends PairwiseSequenceAlignment<?,?>>{
+		
+		static final Comparator<Hit<?>> BEST_FIRST = Comparator.<Hit<?>>comparingDouble(h -> -h.score)
+																	.thenComparing(h -> h.id);
+		
+		private final String id;
+		private final float score;
+		private final A alignment;
+		
+		Hit(String id, float score, A alignment) {
+			this.id = id;
+			this.score = score;
+			this.alignment = alignment;
+		}
+		/**
+		 * Get the id of the subject.
+		 * @return the id; will never be null.
+		 */
+		public String getId() {
+			return id;
+		}
+		/**
+		 * Get the best local alignment score computed
+		 * by the {@link LocalAlignmentScorer}.  For affine gap penalties
+		 * this may be higher than the score of {@link #getAlignment()}.
+		 * @return the score.
+		 */
+		public float getScore() {
+			return score;
+		}
+		/**
+		 * Get the full local alignment of the query to this subject.
+		 * @return the alignment; will never be null.
+		 */
+		public A getAlignment() {
+			return alignment;
+		}
+
+		@Override
+		public String toString() {
+			return "Hit [id=" + id + ", score=" + score + "]";
+		}
+	}
+	/**
+	 * Builder for {@link BatchPairwiseAligner}.
+	 * 
+	 * @author dkatzel
+	 *
+	 */
+	public static final class Builder<R extends Residue, S extends ResidueSequence<R, S, ?>, A extends PairwiseSequenceAlignment<R,S>>
+					implements org.jcvi.jillion.core.util.Builder<BatchPairwiseAligner<R,S,A>>{
+		
+		private final ScorerFactory<R, S, A> scorerFactory;
+		private float gapOpen=0;
+		private float gapExtension =0;
+		private int maxNumberOfHits = DEFAULT_MAX_NUMBER_OF_HITS;
+		private float minScore = 0;
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+		
+		private Builder(ScorerFactory<R, S, A> scorerFactory){
+			this.scorerFactory = scorerFactory;
+		}
+		/**
+		 * Set the affine gap penalties to use when scoring the alignments.
+		 * @param open the penalty score for creating a new gap; usually a negative number.
+		 * @param extension the penalty for extending an already open gap;
+		 * usually a negative number.
+		 * @return this
+		 */
+		public Builder<R,S,A> gapPenalty(float open, float extension){
+			this.gapOpen = open;
+			this.gapExtension = extension;
+			return this;
+		}
+		/**
+		 * Set the max number of hits to return.  If not set,
+		 * then {@value BatchPairwiseAligner#DEFAULT_MAX_NUMBER_OF_HITS} is used.
+		 * @param maxNumberOfHits the max number of hits; must be &ge; 1.
+		 * @return this
+		 * @throws IllegalArgumentException if maxNumberOfHits &lt; 1.
+		 */
+		public Builder<R,S,A> maxNumberOfHits(int maxNumberOfHits){
+			if(maxNumberOfHits <1){
+				throw new IllegalArgumentException("max number of hits must be >= 1");
+			}
+			this.maxNumberOfHits = maxNumberOfHits;
+			return this;
+		}
+		/**
+		 * Only report hits with at least this score.  Hits
+		 * must always have a positive score.
+		 * @param minScore the min score of a hit.
+		 * @return this
+		 */
+		public Builder<R,S,A> minScore(float minScore){
+			this.minScore = minScore;
+			return this;
+		}
+		/**
+		 * Use the given {@link ForkJoinPool} to do the alignments.
+		 * If not set, then the {@link ForkJoinPool#commonPool()} is used.
+		 * @param pool the ForkJoinPool to use; can not be null.
+		 * @return this
+		 * @throws NullPointerException if pool is null.
+		 */
+		public Builder<R,S,A> pool(ForkJoinPool pool){
+			this.pool = Objects.requireNonNull(pool);
+			return this;
+		}
+
+		@Override
+		public BatchPairwiseAligner<R, S, A> build() {
+			return new BatchPairwiseAligner<>(this);
+		}
+	}
+}
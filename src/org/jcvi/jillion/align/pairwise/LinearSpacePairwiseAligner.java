@@ -0,0 +1,485 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcvi.jillion.align.SequenceAlignment;
+import org.jcvi.jillion.align.SubstitutionMatrix;
+import org.jcvi.jillion.core.residue.Residue;
+import org.jcvi.jillion.core.residue.ResidueSequence;
+import org.jcvi.jillion.core.residue.ResidueSequenceBuilder;
+import org.jcvi.jillion.internal.align.SequenceAlignmentBuilder;
+/**
+ * {@code LinearSpacePairwiseAligner} computes the same kind of
+ * global (Needleman-Wunsch) or local (Smith-Waterman) alignment
+ * as the other pairwise aligners in this package but without
+ * a traceback matrix, so it only needs memory proportional to
+ * {@code queryLength + subjectLength}.  This makes it possible
+ * to align sequences hundreds of kilobases long at the cost of
+ * roughly twice the CPU time of the traceback matrix implementations.
+ * <p>
+ * Global alignments use the divide and conquer algorithm of Hirschberg
+ * as extended to affine gap penalties by Myers and Miller.
+ * Local alignments first find the end of the best local alignment
+ * with a linear space forward pass, then find its beginning with
+ * a linear space pass backwards from that end and finally
+ * globally align just that region.
+ * <p>
+ * Gap scores are computed exactly using Gotoh's affine
+ * gap model.  When the open and extension penalties
+ * are the same (linear gap penalties) the scores
+ * are identical to the traceback matrix implementations;
+ * with affine penalties the scores returned here are always
+ * at least as good.  If there are several equally good
+ * alignments, the one returned may differ from the
+ * one returned by the traceback matrix implementations.
+ * 
+ * @author dkatzel
+ *
+ * @param <R> the type of {@link Residue} used in this aligner.
+ * @param <S> the {@link ResidueSequence} type input into this aligner.
+ * @param <B> the {@link ResidueSequenceBuilder} for this aligner.
+ * @param <A> the {@link SequenceAlignment} type returned by this aligner.
+ * @param <P> the {@link PairwiseSequenceAlignment} type returned by this aligner.
+ * 
+ * @see <a href="http://dx.doi.org/10.1145/360825.360861">
+ Hirschberg, D.S. 1975. A linear space algorithm for computing maximal common subsequences.
+ Communications of the ACM 18:341-343.</a>
+ * @see <a href="http://dx.doi.org/10.1093/bioinformatics/4.1.11">
+ Myers, E.W. and Miller, W. 1988. Optimal alignments in linear space.
+ Computer Applications in the Biosciences 4:11-17.</a>
+ * 
+ * @since 5.3
+ */
+final class LinearSpacePairwiseAligner<R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> {
+
+	private static final float NEGATIVE_INFINITY = Float.NEGATIVE_INFINITY;
+	
+	private final byte[] query;
+	private final byte[] subject;
+	/**
+	 * Substitution scores indexed by residue ordinal.
+	 */
+	private final float[][] scores;
+	/**
+	 * The score for opening a gap
+	 * in addition to the per residue {@link #gapExtend} score.
+	 */
+	private final float gapStart;
+	private final float gapExtend;
+	/**
+	 * The traceback matrix global aligners
+	 * do not penalize query residues that are placed before
+	 * the first subject residue; we mimic that here so both
+	 * implementations score alignments the same.
+	 */
+	private final boolean freeLeadingQueryGaps;
+	
+	private final List<R> residuesByOrdinal;
+	private final R gap;
+	private SequenceAlignmentBuilder<R, S, B, A> alignmentBuilder;
+	
+	//row caches reused by each divide and conquer step
+	private final float[] forwardScores, forwardVerticalScores;
+	private final float[] reverseScores, reverseVerticalScores;
+	
+	/**
+	 * Align the given sequences using linear memory.
+	 * 
+	 * @param query the query sequence; can not be null.
+	 * @param subject the subject sequence; can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param local {@code true} for a Smith-Waterman local alignment;
+	 * {@code false} for a Needleman-Wunsch global alignment.
+	 * @param pairwiseStrategy the {@link ResiduePairwiseStrategy} for this residue type.
+	 * @param subjectShiftAmount the amount to shift the subject range; may be null.
+	 * @return a new {@link PairwiseSequenceAlignment}; will never be null.
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 */
+	static <R extends Residue, S extends ResidueSequence<R, S, B>, B extends ResidueSequenceBuilder<R, S>, A extends SequenceAlignment<R, S>, P extends PairwiseSequenceAlignment<R, S>> 
+	P align(S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean local, ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount){
+		
+		if(query ==null){
+			throw new NullPointerException("query sequence can not be null");
+		}
+		if(subject ==null){
+			throw new NullPointerException("subject sequence can not be null");
+		}
+		if(matrix ==null){
+			throw new NullPointerException("scoring matrix can not be null");
+		}
+		LinearSpacePairwiseAligner<R,S,B,A,P> aligner = new LinearSpacePairwiseAligner<>(query, subject, matrix, openGapPenalty, extendGapPenalty, !local, pairwiseStrategy);
+		
+		final float score;
+		if(local){
+			score = aligner.alignLocal(pairwiseStrategy, subjectShiftAmount);
+		}else{
+			aligner.alignmentBuilder = pairwiseStrategy.createSequenceAlignmentBuilder(false, subjectShiftAmount);
+			score = aligner.alignGlobal(0, aligner.query.length, 0, aligner.subject.length, aligner.gapStart, aligner.gapStart);
+		}
+		return pairwiseStrategy.wrapPairwiseAlignment(PairwiseSequenceAlignmentWrapper.wrap(aligner.alignmentBuilder.build(), score));
+	}
+	
+	private LinearSpacePairwiseAligner(S query, S subject, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			boolean freeLeadingQueryGaps, ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy){
+		this.query = convertToUngappedByteArray(query);
+		this.subject = convertToUngappedByteArray(subject);
+		this.gapExtend = extendGapPenalty;
+		this.gapStart = openGapPenalty - extendGapPenalty;
+		this.freeLeadingQueryGaps = freeLeadingQueryGaps;
+		this.residuesByOrdinal = pairwiseStrategy.getResidueList();
+		this.gap = pairwiseStrategy.getGap();
+		this.scores = computeSubstitutionScores(matrix);
+		
+		int rowLength = this.subject.length +1;
+		forwardScores = new float[rowLength];
+		forwardVerticalScores = new float[rowLength];
+		reverseScores = new float[rowLength];
+		reverseVerticalScores = new float[rowLength];
+	}
+	/**
+	 * Only look up the substitution scores of residues actually
+	 * used by our sequences since some matrices don't have
+	 * values for every residue.
+	 */
+	private float[][] computeSubstitutionScores(SubstitutionMatrix<R> matrix){
+		int numberOfResidues = residuesByOrdinal.size();
+		boolean[] used = new boolean[numberOfResidues];
+		for(byte b : query){
+			used[b] = true;
+		}
+		for(byte b : subject){
+			used[b] = true;
+		}
+		float[][] table = new float[numberOfResidues][numberOfResidues];
+		for(int i=0; i< numberOfResidues; i++){
+			if(!used[i]){
+				continue;
+			}
+			for(int j=0; j< numberOfResidues; j++){
+				if(used[j]){
+					table[i][j] = matrix.getValue(residuesByOrdinal.get(i), residuesByOrdinal.get(j));
+				}
+			}
+		}
+		return table;
+	}
+	
+	private byte[] convertToUngappedByteArray(S sequence) {
+		ByteBuffer buf = ByteBuffer.allocate((int)sequence.getUngappedLength());
+		for(R residue : sequence){
+			//only include non-gaps
+			if(!residue.isGap()){
+				buf.put(residue.getOrdinalAsByte());
+			}
+		}
+		buf.flip();
+		return buf.array();
+	}
+	
+	private float gapScore(int length){
+		return length==0? 0 : gapStart + gapExtend * length;
+	}
+	
+	private float substitutionScore(int queryOffset, int subjectOffset){
+		return scores[query[queryOffset]][subject[subjectOffset]];
+	}
+	/**
+	 * Find the best local alignment.  The first pass finds where
+	 * the best scoring local alignment ends, the second
+	 * pass goes backwards from that end to find where it begins.
+	 * The region in between is then globally aligned.
+	 * @return the score of the alignment.
+	 */
+	private float alignLocal(ResiduePairwiseStrategy<R,S,B,A,P> pairwiseStrategy, Integer subjectShiftAmount){
+		int n = query.length;
+		int m = subject.length;
+		float[] h = forwardScores;
+		float[] f = forwardVerticalScores;
+		Arrays.fill(h, 0);
+		Arrays.fill(f, NEGATIVE_INFINITY);
+		
+		float bestScore = NEGATIVE_INFINITY;
+		int endI=0, endJ=0;
+		for(int i=1; i<=n; i++){
+			float diagonal = h[0];
+			float e = NEGATIVE_INFINITY;
+			for(int j=1; j<=m; j++){
+				e = Math.max(e, h[j-1] + gapStart) + gapExtend;
+				f[j] = Math.max(f[j], h[j] + gapStart) + gapExtend;
+				float score = Math.max(Math.max(0, diagonal + substitutionScore(i-1, j-1)), Math.max(e, f[j]));
+				diagonal = h[j];
+				h[j] = score;
+				//same as traceback matrix implementation
+				//first best score wins
+				if(score > bestScore){
+					bestScore = score;
+					endI = i;
+					endJ = j;
+				}
+			}
+		}
+		if(bestScore <= 0){
+			//no positive scoring alignment
+			//build an empty alignment the same way a traceback would
+			alignmentBuilder = pairwiseStrategy.createSequenceAlignmentBuilder(true, subjectShiftAmount);
+			alignmentBuilder.setAlignmentOffsets(endI-1, endJ-1);
+			return bestScore;
+		}
+		//go backwards from the end to find the start
+		//this is a global alignment anchored at the end
+		//that may start anywhere.
+		Arrays.fill(h, 0, endJ+1, 0);
+		Arrays.fill(f, 0, endJ+1, NEGATIVE_INFINITY);
+		for(int c=1; c<=endJ; c++){
+			h[c] = gapScore(c);
+		}
+		float bestStartScore = NEGATIVE_INFINITY;
+		int startI=endI, startJ=endJ;
+		for(int r=1; r<= endI; r++){
+			float diagonal = h[0];
+			h[0] = gapScore(r);
+			float e = NEGATIVE_INFINITY;
+			for(int c=1; c<=endJ; c++){
+				e = Math.max(e, h[c-1] + gapStart) + gapExtend;
+				f[c] = Math.max(f[c], h[c] + gapStart) + gapExtend;
+				float score = Math.max(diagonal + substitutionScore(endI-r, endJ-c), Math.max(e, f[c]));
+				diagonal = h[c];
+				h[c] = score;
+				if(score > bestStartScore){
+					bestStartScore = score;
+					startI = endI - r;
+					startJ = endJ - c;
+				}
+			}
+		}
+		alignmentBuilder = pairwiseStrategy.createSequenceAlignmentBuilder(false, subjectShiftAmount);
+		alignmentBuilder.setAlignmentOffsets(startI, startJ);
+		alignGlobal(startI, endI, startJ, endJ, gapStart, gapStart);
+		return bestScore;
+	}
+	/**
+	 * Globally align the query region {@code [queryStart, queryEnd)}
+	 * to the subject region {@code [subjectStart, subjectEnd)}
+	 * and add the result to our alignment builder.
+	 * 
+	 * @param startGapScore the gap start score of a vertical gap at the beginning
+	 * of this region; either {@link #gapStart} or 0 if the gap continues
+	 * one that has already been scored.
+	 * @param endGapScore the gap start score of a vertical gap at the end
+	 * of this region; either {@link #gapStart} or 0 if the gap continues
+	 * one that has already been scored.
+	 * @return the score of the alignment of this region.
+	 */
+	private float alignGlobal(int queryStart, int queryEnd, int subjectStart, int subjectEnd, float startGapScore, float endGapScore){
+		int numberOfRows = queryEnd - queryStart;
+		int numberOfColumns = subjectEnd - subjectStart;
+		boolean freeFirstColumn = freeLeadingQueryGaps && subjectStart ==0;
+		if(numberOfColumns ==0){
+			addVerticalGaps(queryStart, queryEnd);
+			if(numberOfRows ==0 || freeFirstColumn){
+				return 0;
+			}
+			return Math.max(startGapScore, endGapScore) + gapExtend * numberOfRows;
+		}
+		if(numberOfRows ==0){
+			addHorizontalGaps(subjectStart, subjectEnd);
+			return gapScore(numberOfColumns);
+		}
+		if(numberOfRows ==1){
+			return alignSingleQueryResidue(queryStart, subjectStart, subjectEnd, startGapScore, endGapScore, freeFirstColumn);
+		}
+		int midRow = numberOfRows/2;
+		computeForwardRow(queryStart, queryStart + midRow, subjectStart, subjectEnd, startGapScore, freeFirstColumn);
+		computeReverseRow(queryStart + midRow, queryEnd, subjectStart, subjectEnd, endGapScore, freeFirstColumn);
+		
+		float bestScore = NEGATIVE_INFINITY;
+		int bestColumn = 0;
+		boolean splitsVerticalGap = false;
+		for(int j=0; j<= numberOfColumns; j++){
+			float score = forwardScores[j] + reverseScores[j];
+			if(score > bestScore){
+				bestScore = score;
+				bestColumn = j;
+				splitsVerticalGap = false;
+			}
+			//a vertical gap that crosses the mid row
+			//would be charged the gap start score twice
+			float gapScore = forwardVerticalScores[j] + reverseVerticalScores[j] - gapStart;
+			if(gapScore > bestScore){
+				bestScore = gapScore;
+				bestColumn = j;
+				splitsVerticalGap = true;
+			}
+		}
+		int midColumn = subjectStart + bestColumn;
+		int midQuery = queryStart + midRow;
+		if(splitsVerticalGap){
+			alignGlobal(queryStart, midQuery -1, subjectStart, midColumn, startGapScore, 0);
+			addVerticalGaps(midQuery -1, midQuery +1);
+			alignGlobal(midQuery+1, queryEnd, midColumn, subjectEnd, 0, endGapScore);
+		}else{
+			alignGlobal(queryStart, midQuery, subjectStart, midColumn, startGapScore, gapStart);
+			alignGlobal(midQuery, queryEnd, midColumn, subjectEnd, gapStart, endGapScore);
+		}
+		return bestScore;
+	}
+	/**
+	 * Compute the scores of aligning the query region {@code [queryStart, queryEnd)}
+	 * to every prefix of the subject region and store them in
+	 * {@link #forwardScores} and, for alignments ending in a vertical gap,
+	 * {@link #forwardVerticalScores}.
+	 */
+	private void computeForwardRow(int queryStart, int queryEnd, int subjectStart, int subjectEnd, float startGapScore, boolean freeFirstColumn){
+		int numberOfColumns = subjectEnd - subjectStart;
+		float[] h = forwardScores;
+		float[] f = forwardVerticalScores;
+		h[0] = 0;
+		f[0] = NEGATIVE_INFINITY;
+		for(int j=1; j<= numberOfColumns; j++){
+			h[j] = gapScore(j);
+			f[j] = NEGATIVE_INFINITY;
+		}
+		for(int i=1; i<= queryEnd - queryStart; i++){
+			int queryOffset = queryStart + i -1;
+			float diagonal = h[0];
+			if(freeFirstColumn){
+				h[0] = 0;
+				f[0] = NEGATIVE_INFINITY;
+			}else{
+				h[0] = startGapScore + gapExtend * i;
+				f[0] = h[0];
+			}
+			float e = NEGATIVE_INFINITY;
+			for(int j=1; j<= numberOfColumns; j++){
+				e = Math.max(e, h[j-1] + gapStart) + gapExtend;
+				f[j] = Math.max(f[j], h[j] + gapStart) + gapExtend;
+				float score = Math.max(diagonal + substitutionScore(queryOffset, subjectStart + j -1), Math.max(e, f[j]));
+				diagonal = h[j];
+				h[j] = score;
+			}
+		}
+	}
+	/**
+	 * Compute the scores of aligning the query region {@code [queryStart, queryEnd)}
+	 * to every suffix of the subject region and store them in
+	 * {@link #reverseScores} and, for alignments starting with a vertical gap,
+	 * {@link #reverseVerticalScores}; index j is the suffix
+	 * starting at {@code subjectStart + j}.
+	 */
+	private void computeReverseRow(int queryStart, int queryEnd, int subjectStart, int subjectEnd, float endGapScore, boolean freeFirstColumn){
+		int numberOfColumns = subjectEnd - subjectStart;
+		float[] h = reverseScores;
+		float[] f = reverseVerticalScores;
+		h[numberOfColumns] = 0;
+		f[numberOfColumns] = NEGATIVE_INFINITY;
+		for(int j=numberOfColumns-1; j>=0; j--){
+			h[j] = gapScore(numberOfColumns - j);
+			f[j] = NEGATIVE_INFINITY;
+		}
+		int numberOfRows = queryEnd - queryStart;
+		for(int r=1; r<= numberOfRows; r++){
+			int queryOffset = queryEnd - r;
+			float diagonal = h[numberOfColumns];
+			h[numberOfColumns] = endGapScore + gapExtend * r;
+			f[numberOfColumns] = h[numberOfColumns];
+			float e = NEGATIVE_INFINITY;
+			for(int j=numberOfColumns-1; j>=0; j--){
+				e = Math.max(e, h[j+1] + gapStart) + gapExtend;
+				if(freeFirstColumn && j==0){
+					f[j] = h[j];
+				}else{
+					f[j] = Math.max(f[j], h[j] + gapStart) + gapExtend;
+				}
+				float score = Math.max(diagonal + substitutionScore(queryOffset, subjectStart + j), Math.max(e, f[j]));
+				diagonal = h[j];
+				h[j] = score;
+			}
+		}
+		if(freeFirstColumn){
+			//free gaps don't need to be merged across the mid row
+			f[0] = NEGATIVE_INFINITY;
+		}
+	}
+	/**
+	 * Base case of the divide and conquer, a single query
+	 * residue either aligns to one of the subject residues
+	 * or is put in a gap.
+	 */
+	private float alignSingleQueryResidue(int queryOffset, int subjectStart, int subjectEnd, float startGapScore, float endGapScore, boolean freeFirstColumn){
+		int numberOfColumns = subjectEnd - subjectStart;
+		
+		float gapFirstScore = freeFirstColumn ? 0 : startGapScore + gapExtend;
+		float gapLastScore = endGapScore + gapExtend;
+		float bestScore = Math.max(gapFirstScore, gapLastScore) + gapScore(numberOfColumns);
+		int bestColumn = -1;
+		for(int j=0; j< numberOfColumns; j++){
+			float score = gapScore(j) + substitutionScore(queryOffset, subjectStart + j) + gapScore(numberOfColumns - j -1);
+			if(score >= bestScore){
+				bestScore = score;
+				bestColumn = j;
+			}
+		}
+		if(bestColumn <0){
+			if(gapFirstScore >= gapLastScore){
+				addVerticalGaps(queryOffset, queryOffset+1);
+				addHorizontalGaps(subjectStart, subjectEnd);
+			}else{
+				addHorizontalGaps(subjectStart, subjectEnd);
+				addVerticalGaps(queryOffset, queryOffset+1);
+			}
+		}else{
+			int matchedOffset = subjectStart + bestColumn;
+			addHorizontalGaps(subjectStart, matchedOffset);
+			addDiagonal(queryOffset, matchedOffset);
+			addHorizontalGaps(matchedOffset+1, subjectEnd);
+		}
+		return bestScore;
+	}
+	
+	private void addDiagonal(int queryOffset, int subjectOffset){
+		byte queryOrdinal = query[queryOffset];
+		byte subjectOrdinal = subject[subjectOffset];
+		if(queryOrdinal == subjectOrdinal){
+			alignmentBuilder.addMatch(residuesByOrdinal.get(queryOrdinal));
+		}else{
+			alignmentBuilder.addMismatch(residuesByOrdinal.get(queryOrdinal), residuesByOrdinal.get(subjectOrdinal));
+		}
+	}
+	
+	private void addVerticalGaps(int queryStart, int queryEnd){
+		for(int i= queryStart; i< queryEnd; i++){
+			alignmentBuilder.addGap(residuesByOrdinal.get(query[i]), gap);
+		}
+	}
+	
+	private void addHorizontalGaps(int subjectStart, int subjectEnd){
+		for(int j= subjectStart; j< subjectEnd; j++){
+			alignmentBuilder.addGap(gap, residuesByOrdinal.get(subject[j]));
+		}
+	}
+}
@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.align.SubstitutionMatrix;
+import org.jcvi.jillion.core.residue.Residue;
+import org.jcvi.jillion.core.residue.ResidueSequence;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+/**
+ * {@code LocalAlignmentScorer} computes just the score
+ * of the best Smith-Waterman local alignment of a query
+ * against many subject sequences without computing
+ * the alignment itself.  This is much faster and uses much less memory than
+ * building the full alignment with a {@link PairwiseAlignmentBuilder}
+ * so it should be used to screen subjects first
+ * and only compute the full alignment of the subjects that score well
+ * (see {@link #alignIfScoreAtLeast(ResidueSequence, float)}).
+ * <p>
+ * The query is converted into a "query profile" once
+ * when the scorer is created which is then reused for every subject.
+ * If all the substitution scores and gap penalties are whole numbers,
+ * scores are computed with the striped algorithm of Farrar
+ * which processes several query positions at once in 16 bit lanes laid out
+ * so the inner loops can be vectorized by the JIT.  Otherwise, or if the
+ * score gets too large to fit in 16 bits, a simple scalar loop is used instead.
+ * <p>
+ * Gaps are scored using Gotoh's affine gap model so for affine gap
+ * penalties the score may be higher than the score of the
+ * alignment built by {@link PairwiseAlignmentBuilder}; it is never lower.
+ * For linear gap penalties the scores are the same.
+ * <p>
+ * Instances are thread safe and each thread reuses
+ * its own score arrays across subjects.
+ * 
+ * @author dkatzel
+ *
+ * @param <R> the type of {@link Residue} (either {@link Nucleotide} or {@link AminoAcid} ). 
+ * @param <S> the type of {@link org.jcvi.jillion.core.Sequence} (either {@link NucleotideSequence} or {@link ProteinSequence} ).
+ * @param <A> the type of {@link PairwiseSequenceAlignment} built.
+ * 
+ * @see <a href="http://dx.doi.org/10.1093/bioinformatics/btl582">
+ Farrar, M. 2007. Striped Smith-Waterman speeds database searches six times over other SIMD implementations.
+ Bioinformatics 23:156-161.</a>
+ * 
+ * @since 5.3
+ */
+public final class LocalAlignmentScorer<R extends Residue, S extends ResidueSequence<R, S, ?>, A extends PairwiseSequenceAlignment<R,S>> {
+	/**
+	 * Number of query positions computed together.
+	 */
+	private static final int LANES = 16;
+	
+	private static final int NEGATIVE_INFINITY = Short.MIN_VALUE;
+	/**
+	 * Largest absolute score or penalty value
+	 * we allow in the striped implementation
+	 * so intermediate values never overflow.
+	 */
+	private static final int MAX_STRIPED_VALUE = 1000;
+	
+	private final S query;
+	private final byte[] queryOrdinals;
+	private final SubstitutionMatrix<R> matrix;
+	private final List<R> residuesByOrdinal;
+	private final float openGapPenalty, extendGapPenalty;
+	
+	private final Function<S, A> aligner;
+	
+	private final int segmentLength;
+	/**
+	 * Striped query profile indexed by subject residue ordinal;
+	 * null if the striped implementation can't be used.
+	 */
+	private final short[][] stripedProfile;
+	private final int maxStripedScore;
+	/**
+	 * Striped score arrays only depend on the query length
+	 * so each thread reuses the same arrays for every subject.
+	 */
+	private final ThreadLocal<StripedBuffers> stripedBuffers;
+	
+	/**
+	 * Create a new LocalAlignmentScorer for the given nucleotide query.
+	 * 
+	 * @param query the query sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @param matrix the {@link NucleotideSubstitutionMatrix}; can not be null.
+	 * @param openGapPenalty the penalty score for creating a new gap; usually a negative number.
+	 * @param extendGapPenalty the penalty for extending an already open gap;
+	 * usually a negative number.
+	 * @return a new LocalAlignmentScorer; will never be null.
+	 * @throws NullPointerException if query or matrix are null.
+	 */
+	public static LocalAlignmentScorer<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> createNucleotideScorer(
+			NucleotideSequence query, NucleotideSubstitutionMatrix matrix, float openGapPenalty, float extendGapPenalty){
+		return new LocalAlignmentScorer<>(query, matrix, openGapPenalty, extendGapPenalty,
+				Nucleotide.getAllValues(),
+				subject -> PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+										.gapPenalty(openGapPenalty, extendGapPenalty)
+										.useLocalAlignment()
+										.build());
+	}
+	/**
+	 * Create a new LocalAlignmentScorer for the given protein query.
+	 * 
+	 * @param query the query sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @param matrix the {@link AminoAcidSubstitutionMatrix}; can not be null.
+	 * @param openGapPenalty the penalty score for creating a new gap; usually a negative number.
+	 * @param extendGapPenalty the penalty for extending an already open gap;
+	 * usually a negative number.
+	 * @return a new LocalAlignmentScorer; will never be null.
+	 * @throws NullPointerException if query or matrix are null.
+	 */
+	public static LocalAlignmentScorer<AminoAcid, ProteinSequence, ProteinPairwiseSequenceAlignment> createProteinScorer(
+			ProteinSequence query, AminoAcidSubstitutionMatrix matrix, float openGapPenalty, float extendGapPenalty){
+		return new LocalAlignmentScorer<>(query, matrix, openGapPenalty, extendGapPenalty,
+				Arrays.asList(AminoAcid.values()),
+				subject -> PairwiseAlignmentBuilder.createProtienAlignmentBuilder(query, subject, matrix)
+										.gapPenalty(openGapPenalty, extendGapPenalty)
+										.useLocalAlignment()
+										.build());
+	}
+	
+	private LocalAlignmentScorer(S query, SubstitutionMatrix<R> matrix, float openGapPenalty, float extendGapPenalty,
+			List<R> residuesByOrdinal, Function<S, A> aligner){
+		if(query==null){
+			throw new NullPointerException("query can not be null");
+		}
+		if(matrix==null){
+			throw new NullPointerException("matrix can not be null");
+		}
+		this.query = query;
+		this.matrix = matrix;
+		this.openGapPenalty = openGapPenalty;
+		this.extendGapPenalty = extendGapPenalty;
+		this.residuesByOrdinal = residuesByOrdinal;
+		this.aligner = aligner;
+		this.queryOrdinals = toUngappedOrdinals(query);
+		
+		this.segmentLength = Math.max(1, (queryOrdinals.length + LANES -1)/LANES);
+		this.stripedProfile = createStripedProfile();
+		int maxSubstitutionScore = 0;
+		if(stripedProfile !=null){
+			for(short[] profile : stripedProfile){
+				for(short value : profile){
+					maxSubstitutionScore = Math.max(maxSubstitutionScore, value);
+				}
+			}
+		}
+		maxStripedScore = Short.MAX_VALUE - maxSubstitutionScore;
+		int width = segmentLength * LANES;
+		stripedBuffers = ThreadLocal.withInitial(()-> new StripedBuffers(width));
+	}
+	
+	private byte[] toUngappedOrdinals(S sequence){
+		ByteBuffer buf = ByteBuffer.allocate((int)sequence.getUngappedLength());
+		for(R residue : sequence){
+			if(!residue.isGap()){
+				buf.put(residue.getOrdinalAsByte());
+			}
+		}
+		return buf.array();
+	}
+	
+	private static boolean canBeStriped(float value){
+		return value == (int) value && Math.abs(value) <= MAX_STRIPED_VALUE;
+	}
+	/**
+	 * Create the striped query profile: for each possible
+	 * subject residue, the substitution scores against each query
+	 * position in striped order so query offset {@code lane * segmentLength + segment}
+	 * is stored at index {@code segment * LANES + lane}.
+	 * 
+	 * @return the profile or null if the scores can't be represented
+	 * as small integers.
+	 */
+	private short[][] createStripedProfile(){
+		if(!canBeStriped(openGapPenalty) || !canBeStriped(extendGapPenalty)
+				|| openGapPenalty >0 || extendGapPenalty >0){
+			return null;
+		}
+		int numberOfResidues = residuesByOrdinal.size();
+		short[][] profile = new short[numberOfResidues][segmentLength * LANES];
+		for(int c=0; c< numberOfResidues; c++){
+			R subjectResidue = residuesByOrdinal.get(c);
+			for(int i=0; i< queryOrdinals.length; i++){
+				float value = matrix.getValue(residuesByOrdinal.get(queryOrdinals[i]), subjectResidue);
+				if(!canBeStriped(value)){
+					return null;
+				}
+				int lane = i / segmentLength;
+				int segment = i % segmentLength;
+				profile[c][segment * LANES + lane] = (short) value;
+			}
+		}
+		return profile;
+	}
+	/**
+	 * Get the query sequence.
+	 * @return the query; will never be null.
+	 */
+	public S getQuery() {
+		return query;
+	}
+	/**
+	 * Compute the score of the best local alignment
+	 * of the query against the given subject.
+	 * 
+	 * @param subject the subject sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @return the best local alignment score; will be 0
+	 * if there is no positive scoring alignment.
+	 * @throws NullPointerException if subject is null.
+	 */
+	public float score(S subject){
+		byte[] subjectOrdinals = toUngappedOrdinals(subject);
+		if(queryOrdinals.length ==0 || subjectOrdinals.length ==0){
+			return 0;
+		}
+		if(stripedProfile !=null){
+			int score = stripedScore(subjectOrdinals);
+			if(score >=0){
+				return score;
+			}
+			//overflowed 16 bits fall through to scalar
+		}
+		return scalarScore(subjectOrdinals);
+	}
+	/**
+	 * Compute the full local alignment of the query against the given subject
+	 * but only if the alignment {@link #score(ResidueSequence) score} is at least the given
+	 * threshold.  Since most of the time is spent computing the alignment
+	 * traceback, this is much faster than always building the alignment
+	 * and then checking the score when most subjects don't align well.
+	 * 
+	 * @param subject the subject sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @param minScore the minimum score an alignment must have to be built.
+	 * @return an Optional wrapping the alignment if the score is at least
+	 * minScore; or empty if not.
+	 * @throws NullPointerException if subject is null.
+	 */
+	public Optional<A> alignIfScoreAtLeast(S subject, float minScore){
+		if(score(subject) < minScore){
+			return Optional.empty();
+		}
+		return Optional.of(align(subject));
+	}
+	/**
+	 * Compute the full local alignment of the query against the given subject.
+	 */
+	A align(S subject){
+		return aligner.apply(subject);
+	}
+	/**
+	 * Get the number of non-gap residues in the query.
+	 */
+	int getQueryLength(){
+		return queryOrdinals.length;
+	}
+	/**
+	 * Get the substitution score of the given ungapped query offset
+	 * against the given subject residue ordinal from the query profile
+	 * so other algorithms that only look at part of the matrix
+	 * can share the same profile.
+	 */
+	float getSubstitutionScore(int queryOffset, int subjectOrdinal){
+		if(stripedProfile !=null){
+			return stripedProfile[subjectOrdinal][(queryOffset % segmentLength) * LANES + queryOffset / segmentLength];
+		}
+		return matrix.getValue(residuesByOrdinal.get(queryOrdinals[queryOffset]), residuesByOrdinal.get(subjectOrdinal));
+	}
+	/**
+	 * Striped Smith-Waterman score.
+	 * @return the score or -1 if the score doesn't fit in 16 bits.
+	 */
+	private int stripedScore(byte[] subjectOrdinals){
+		int open = (int) openGapPenalty;
+		int extend = (int) extendGapPenalty;
+		int lastSegment = (segmentLength -1) * LANES;
+		
+		StripedBuffers buffers = stripedBuffers.get();
+		short[] hLoad = buffers.hLoad;
+		short[] hStore = buffers.hStore;
+		short[] e = buffers.e;
+		int[] h = buffers.h;
+		int[] f = buffers.f;
+		Arrays.fill(hStore, (short) 0);
+		Arrays.fill(e, (short) NEGATIVE_INFINITY);
+		int best = 0;
+		
+		for(int j=0; j< subjectOrdinals.length; j++){
+			short[] profile = stripedProfile[subjectOrdinals[j]];
+			//diagonal values of the first segment come from
+			//the last segment of the previous lane (lane 0 is the top row)
+			h[0] = 0;
+			for(int lane=1; lane< LANES; lane++){
+				h[lane] = hStore[lastSegment + lane -1];
+			}
+			Arrays.fill(f, NEGATIVE_INFINITY);
+			short[] tmp = hLoad;
+			hLoad = hStore;
+			hStore = tmp;
+			
+			for(int segment=0; segment< segmentLength; segment++){
+				int offset = segment * LANES;
+				for(int lane=0; lane< LANES; lane++){
+					int i = offset + lane;
+					int score = Math.max(Math.max(h[lane] + profile[i], 0), Math.max(e[i], f[lane]));
+					hStore[i] = (short) score;
+					best = Math.max(best, score);
+					int openScore = score + open;
+					e[i] = (short) Math.max(e[i] + extend, openScore);
+					f[lane] = Math.max(f[lane] + extend, openScore);
+					h[lane] = hLoad[i];
+				}
+			}
+			//lazy-F loop: vertical gaps that cross from one lane to the next
+			shiftLanes(f);
+			int segment =0;
+			while(anyVerticalGapImproves(f, hStore, segment * LANES, open)){
+				int offset = segment * LANES;
+				for(int lane=0; lane< LANES; lane++){
+					int i = offset + lane;
+					int score = Math.max(hStore[i], f[lane]);
+					hStore[i] = (short) score;
+					e[i] = (short) Math.max(e[i], score + open);
+					f[lane] = Math.max(NEGATIVE_INFINITY, f[lane] + extend);
+				}
+				if(++segment == segmentLength){
+					segment =0;
+					shiftLanes(f);
+				}
+			}
+			if(best > maxStripedScore){
+				//next column might overflow
+				return -1;
+			}
+		}
+		return best;
+	}
+	
+	private static final class StripedBuffers{
+		private final short[] hLoad, hStore, e;
+		private final int[] h = new int[LANES];
+		private final int[] f = new int[LANES];
+		
+		StripedBuffers(int width){
+			hLoad = new short[width];
+			hStore = new short[width];
+			e = new short[width];
+		}
+	}
+	
+	private static void shiftLanes(int[] f){
+		System.arraycopy(f, 0, f, 1, LANES -1);
+		f[0] = NEGATIVE_INFINITY;
+	}
+	
+	private static boolean anyVerticalGapImproves(int[] f, short[] h, int offset, int open){
+		for(int lane=0; lane< LANES; lane++){
+			if(f[lane] > h[offset + lane] + open){
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Simple row by row Smith-Waterman with affine gaps
+	 * used when the scores aren't small integers.
+	 */
+	private float scalarScore(byte[] subjectOrdinals){
+		int numberOfResidues = residuesByOrdinal.size();
+		float[][] scores = new float[numberOfResidues][];
+		
+		int m = subjectOrdinals.length;
+		float[] h = new float[m+1];
+		float[] f = new float[m+1];
+		Arrays.fill(f, Float.NEGATIVE_INFINITY);
+		float best = 0;
+		for(int i=0; i< queryOrdinals.length; i++){
+			float[] row = scores[queryOrdinals[i]];
+			if(row ==null){
+				row = new float[numberOfResidues];
+				R queryResidue = residuesByOrdinal.get(queryOrdinals[i]);
+				for(int c=0; c< numberOfResidues; c++){
+					row[c] = matrix.getValue(queryResidue, residuesByOrdinal.get(c));
+				}
+				scores[queryOrdinals[i]] = row;
+			}
+			float diagonal = 0;
+			float e = Float.NEGATIVE_INFINITY;
+			for(int j=1; j<= m; j++){
+				e = Math.max(e + extendGapPenalty, h[j-1] + openGapPenalty);
+				f[j] = Math.max(f[j] + extendGapPenalty, h[j] + openGapPenalty);
+				float score = Math.max(Math.max(diagonal + row[subjectOrdinals[j-1]], 0), Math.max(e, f[j]));
+				diagonal = h[j];
+				h[j] = score;
+				best = Math.max(best, score);
+			}
+		}
+		return best;
+	}
+}
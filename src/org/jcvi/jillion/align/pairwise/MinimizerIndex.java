@@ -0,0 +1,809 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import org.jcvi.jillion.align.SubstitutionMatrix;
+import org.jcvi.jillion.core.DirectedRange;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.util.GrowableLongArray;
+
+/**
+ * A (w,k)-minimizer index of all the sequences in a {@link NucleotideSequenceDataStore}
+ * that can quickly find which reference sequences (and where in them)
+ * a query sequence probably aligns to so the expensive
+ * Smith-Waterman alignment only has to be computed over
+ * a small window of the reference instead of every reference in full.
+ * <p>
+ * The index stores each distinct minimizer in a sorted primitive array
+ * with the positions of all its occurrences in a parallel array,
+ * so lookups are a binary search and no objects are kept per k-mer.
+ * An index can be written to a file using {@link #write(File)} and
+ * later memory mapped using {@link #map(File)} so the index of a large
+ * reference doesn't have to be rebuilt or even loaded onto the heap.
+ * </p>
+ * <p>
+ * All offsets are 0-based ungapped offsets into the subject sequences.
+ * Example usage:
+ * <pre>
+ * MinimizerIndex index = new MinimizerIndex.Builder(references)
+ *                                  .kmerSize(15)
+ *                                  .windowSize(10)
+ *                                  .build();
+ *
+ * for(MinimizerIndex.CandidateRegion region : index.findCandidates(query, 3)){
+ *      NucleotidePairwiseSequenceAlignment alignment = index.align(query, region, references, matrix, -8, -2);
+ *      ...
+ * }
+ * </pre>
+ * </p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class MinimizerIndex {
+
+    private static final int MAGIC_NUMBER = 0x4A4D4958; //JMIX
+    private static final byte VERSION = 1;
+    /**
+     * Default number of bases a seed's diagonal may drift
+     * from the rest of its chain to account for indels.
+     */
+    public static final int DEFAULT_BANDWIDTH = 50;
+    /**
+     * Max number of earlier seeds to consider as the
+     * predecessor of each seed when chaining, so repeats
+     * can't make chaining quadratic.
+     */
+    private static final int MAX_CHAIN_PREDECESSORS = 64;
+
+    private final int k;
+    private final int w;
+    private final int maxOccurrences;
+
+    private final String[] subjectIds;
+    private final long[] subjectLengths;
+    /**
+     * Sorted distinct minimizer values.
+     */
+    private final LongBuffer keys;
+    /**
+     * offsets into the hits buffer, key i's hits are
+     * from {@code offsets[i]} inclusive to {@code offsets[i+1]} exclusive.
+     */
+    private final IntBuffer offsets;
+    /**
+     * packed hits {@code subjectIndex << 33 | position << 1 | strand}.
+     */
+    private final LongBuffer hits;
+
+    private MinimizerIndex(int k, int w, int maxOccurrences,
+            String[] subjectIds, long[] subjectLengths,
+            LongBuffer keys, IntBuffer offsets, LongBuffer hits){
+        this.k = k;
+        this.w = w;
+        this.maxOccurrences = maxOccurrences;
+        this.subjectIds = subjectIds;
+        this.subjectLengths = subjectLengths;
+        this.keys = keys;
+        this.offsets = offsets;
+        this.hits = hits;
+    }
+    /**
+     * Get the k-mer size used by this index.
+     * @return k.
+     */
+    public int getKmerSize(){
+        return k;
+    }
+    /**
+     * Get the number of consecutive k-mers in each minimizer window.
+     * @return w.
+     */
+    public int getWindowSize(){
+        return w;
+    }
+    /**
+     * Get the number of subject sequences in this index.
+     * @return the number of subjects.
+     */
+    public int getNumberOfSubjects(){
+        return subjectIds.length;
+    }
+    /**
+     * Get the number of distinct minimizers in this index.
+     * @return the number of distinct minimizers.
+     */
+    public int getNumberOfMinimizers(){
+        return keys.limit();
+    }
+    /**
+     * Find all the seed hits shared by the query and the subjects.
+     * Minimizers that occur more than the max number of occurrences
+     * the index was built with are considered repeats and are ignored.
+     *
+     * @param query the query sequence; can not be null.
+     *
+     * @return a new list of {@link SeedHit}s which may be empty.
+     *
+     * @throws NullPointerException if query is null.
+     */
+    public List<SeedHit> findSeeds(NucleotideSequence query){
+        Objects.requireNonNull(query);
+        List<SeedHit> seeds = new ArrayList<>();
+        NucleotideSequence ungapped = ungap(query);
+        new MinimizerScanner(k, w).scan(ungapped, (kmer, queryOffset, queryReverse) ->{
+            int keyIndex = binarySearch(kmer);
+            if(keyIndex <0){
+                return;
+            }
+            int begin = offsets.get(keyIndex);
+            int end = offsets.get(keyIndex +1);
+            if(end - begin > maxOccurrences){
+                return;
+            }
+            for(int i= begin; i< end; i++){
+                long hit = hits.get(i);
+                int subjectIndex = (int)(hit >>> 33);
+                long subjectOffset = (hit >>> 1) & 0xFFFFFFFFL;
+                boolean subjectReverse = (hit & 1) ==1;
+                seeds.add(new SeedHit(subjectIndex, subjectIds[subjectIndex],
+                        subjectOffset, queryOffset, queryReverse != subjectReverse));
+            }
+        });
+        return seeds;
+    }
+    /**
+     * Find the regions of the subjects that the query probably aligns to
+     * using the {@link #DEFAULT_BANDWIDTH}.
+     *
+     * @param query the query sequence; can not be null.
+     * @param minNumberOfSeeds the minimum number of co-linear seeds a region
+     * must have to be returned; must be &ge; 1.
+     * @return a new list of {@link CandidateRegion}s sorted by number of seeds
+     * (best first), may be empty.
+     *
+     * @throws NullPointerException if query is null.
+     * @throws IllegalArgumentException if minNumberOfSeeds &lt; 1.
+     *
+     * @see #findCandidates(NucleotideSequence, int, int)
+     */
+    public List<CandidateRegion> findCandidates(NucleotideSequence query, int minNumberOfSeeds){
+        return findCandidates(query, minNumberOfSeeds, DEFAULT_BANDWIDTH);
+    }
+    /**
+     * Find the regions of the subjects that the query probably aligns to.
+     * Seed hits on the same subject and strand are chained together
+     * if both their subject and query offsets strictly increase
+     * and their diagonals (subject offset - query offset) are within
+     * the given bandwidth of each other.  Chains are scored by
+     * number of seeds and extracted best first so each seed
+     * is only counted towards one region.
+     *
+     * @param query the query sequence; can not be null.
+     * @param minNumberOfSeeds the minimum number of co-linear seeds a region
+     * must have to be returned; must be &ge; 1.
+     * @param bandwidth the max number of bases the diagonals of consecutive
+     * seeds in the same chain may differ by; also used to pad the returned
+     * subject range; must be &ge; 0.
+     * @return a new list of {@link CandidateRegion}s sorted by number of seeds
+     * (best first), may be empty.
+     *
+     * @throws NullPointerException if query is null.
+     * @throws IllegalArgumentException if minNumberOfSeeds &lt; 1 or bandwidth is negative.
+     */
+    public List<CandidateRegion> findCandidates(NucleotideSequence query, int minNumberOfSeeds, int bandwidth){
+        if(minNumberOfSeeds < 1){
+            throw new IllegalArgumentException("min number of seeds must be >= 1");
+        }
+        if(bandwidth < 0){
+            throw new IllegalArgumentException("bandwidth can not be negative");
+        }
+        List<SeedHit> seeds = findSeeds(query);
+        if(seeds.isEmpty()){
+            return Collections.emptyList();
+        }
+        return chain(seeds, query.getUngappedLength(), minNumberOfSeeds, bandwidth);
+    }
+    /**
+     * Chain the given seeds into {@link CandidateRegion}s.
+     * 
+     * @param seeds the seeds to chain; can not be empty.
+     * @param queryLength the ungapped length of the query.
+     * @param minNumberOfSeeds the minimum number of seeds per chain.
+     * @param bandwidth the max diagonal difference between chained seeds.
+     * @return a new list of {@link CandidateRegion}s sorted by number of seeds.
+     */
+    List<CandidateRegion> chain(List<SeedHit> seeds, long queryLength, int minNumberOfSeeds, int bandwidth){
+        int numberOfSeeds = seeds.size();
+        long[] queryOffsets = new long[numberOfSeeds];
+        long[] diagonals = new long[numberOfSeeds];
+        Integer[] order = new Integer[numberOfSeeds];
+        for(int i=0; i< numberOfSeeds; i++){
+            SeedHit seed = seeds.get(i);
+            order[i] =i;
+            queryOffsets[i] = seed.getOrientedQueryOffset(queryLength, k);
+            diagonals[i] = seed.getDiagonal(queryLength, k);
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i-> seeds.get(i).subjectIndex)
+                                .thenComparing(i-> seeds.get(i).isReverseComplement())
+                                .thenComparingLong(i-> seeds.get(i).subjectOffset)
+                                .thenComparingLong(i-> queryOffsets[i]));
+        //scores and predecessors are indexed by sorted position
+        int[] scores = new int[numberOfSeeds];
+        int[] predecessors = new int[numberOfSeeds];
+        int groupStart =0;
+        for(int i=0; i< numberOfSeeds; i++){
+            SeedHit current = seeds.get(order[i]);
+            if(i>0){
+                SeedHit previous = seeds.get(order[i-1]);
+                if(previous.subjectIndex != current.subjectIndex
+                        || previous.isReverseComplement() != current.isReverseComplement()){
+                    groupStart = i;
+                }
+            }
+            scores[i] =1;
+            predecessors[i] =-1;
+            int lowest = Math.max(groupStart, i - MAX_CHAIN_PREDECESSORS);
+            for(int j= i-1; j>= lowest; j--){
+                SeedHit candidate = seeds.get(order[j]);
+                if(current.subjectOffset - candidate.subjectOffset > queryLength + bandwidth){
+                    //sorted by subject offset so everything further back is too far away
+                    break;
+                }
+                if(candidate.subjectOffset < current.subjectOffset
+                        && queryOffsets[order[j]] < queryOffsets[order[i]]
+                        && Math.abs(diagonals[order[i]] - diagonals[order[j]]) <= bandwidth
+                        && scores[j] +1 > scores[i]){
+                    scores[i] = scores[j] +1;
+                    predecessors[i] = j;
+                }
+            }
+        }
+        Integer[] byScore = new Integer[numberOfSeeds];
+        for(int i=0; i< numberOfSeeds; i++){
+            byScore[i] =i;
+        }
+        Arrays.sort(byScore, Comparator.<Integer>comparingInt(i-> scores[i]).reversed());
+
+        List<CandidateRegion> candidates = new ArrayList<>();
+        boolean[] used = new boolean[numberOfSeeds];
+        for(Integer end : byScore){
+            if(used[end]){
+                continue;
+            }
+            int chainLength =0;
+            long minDiagonal = Long.MAX_VALUE;
+            long maxDiagonal = Long.MIN_VALUE;
+            for(int i= end; i>=0 && !used[i]; i= predecessors[i]){
+                used[i] = true;
+                chainLength++;
+                minDiagonal = Math.min(minDiagonal, diagonals[order[i]]);
+                maxDiagonal = Math.max(maxDiagonal, diagonals[order[i]]);
+            }
+            if(chainLength >= minNumberOfSeeds){
+                SeedHit last = seeds.get(order[end]);
+                long subjectLength = subjectLengths[last.subjectIndex];
+
+                long begin = Math.max(0, minDiagonal - bandwidth);
+                long regionEnd = Math.min(subjectLength -1, maxDiagonal + queryLength -1 + bandwidth);
+                candidates.add(new CandidateRegion(last.subjectIndex, last.getSubjectId(),
+                        Range.of(begin, regionEnd), last.isReverseComplement(), chainLength));
+            }
+        }
+        candidates.sort(Comparator.comparingInt(CandidateRegion::getNumberOfSeeds).reversed());
+        return candidates;
+    }
+    /**
+     * Align the query to just the subject window described by the given
+     * {@link CandidateRegion} using the Smith-Waterman local alignment algorithm.
+     * If the region is on the reverse strand, the reverse complement of the query
+     * is aligned.  The subject coordinates of the returned alignment
+     * are relative to the full subject sequence.
+     *
+     * @param query the query sequence; can not be null.
+     * @param region the candidate region to align to, usually from {@link #findCandidates(NucleotideSequence, int)};
+     * can not be null.
+     * @param subjects the {@link NucleotideSequenceDataStore} this index was built from; can not be null.
+     * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+     * @param openGapPenalty the penalty value for opening a gap.
+     * @param extendGapPenalty the penalty for extending an already open gap.
+     * @return a new {@link NucleotidePairwiseSequenceAlignment}; will never be null.
+     *
+     * @throws DataStoreException if there is a problem getting the subject from the datastore.
+     * @throws NullPointerException if any parameter is null.
+     * @throws IllegalArgumentException if the subject is not in the datastore.
+     */
+    public NucleotidePairwiseSequenceAlignment align(NucleotideSequence query, CandidateRegion region,
+            NucleotideSequenceDataStore subjects, SubstitutionMatrix<Nucleotide> matrix,
+            float openGapPenalty, float extendGapPenalty) throws DataStoreException{
+        Objects.requireNonNull(query);
+        Objects.requireNonNull(region);
+        Objects.requireNonNull(matrix);
+
+        NucleotideSequence subject = subjects.get(region.getSubjectId());
+        if(subject ==null){
+            throw new IllegalArgumentException("subject " + region.getSubjectId() + " not in datastore");
+        }
+        NucleotideSequence window = new NucleotideSequenceBuilder(subject)
+                                            .ungap()
+                                            .trim(region.getSubjectRange())
+                                            .build();
+        NucleotideSequence alignedQuery = region.isReverseComplement() ? query.toBuilder().reverseComplement().build() : query;
+
+        return NucleotideSmithWatermanAligner.align(alignedQuery, window, matrix,
+                openGapPenalty, extendGapPenalty, (int) region.getSubjectRange().getBegin());
+    }
+    /**
+     * Write this index out to the given file so it can later
+     * be memory mapped using {@link #map(File)}.
+     * If the file already exists, it will be overwritten.
+     *
+     * @param out the file to write to; can not be null.
+     *
+     * @throws IOException if there is a problem writing the file.
+     * @throws NullPointerException if out is null.
+     */
+    public void write(File out) throws IOException{
+        Objects.requireNonNull(out);
+        File parent = out.getParentFile();
+        if(parent !=null){
+            IOUtil.mkdirs(parent);
+        }
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        try(DataOutputStream header = new DataOutputStream(headerBytes)){
+            header.writeInt(k);
+            header.writeInt(w);
+            header.writeInt(maxOccurrences);
+            header.writeInt(subjectIds.length);
+            for(int i=0; i< subjectIds.length; i++){
+                header.writeUTF(subjectIds[i]);
+                header.writeLong(subjectLengths[i]);
+            }
+            header.writeInt(keys.limit());
+            header.writeInt(hits.limit());
+        }
+        try(RandomAccessFile file = new RandomAccessFile(out, "rw");
+            FileChannel channel = file.getChannel()){
+            file.setLength(0);
+            byte[] headerArray = headerBytes.toByteArray();
+            ByteBuffer prefix = ByteBuffer.allocate(9 + headerArray.length);
+            prefix.putInt(MAGIC_NUMBER);
+            prefix.put(VERSION);
+            prefix.putInt(headerArray.length);
+            prefix.put(headerArray);
+            prefix.flip();
+            writeFully(channel, prefix);
+
+            ByteBuffer buf = ByteBuffer.allocate(8192);
+            for(int i=0; i< keys.limit(); i++){
+                flushIfNeeded(channel, buf, 8);
+                buf.putLong(keys.get(i));
+            }
+            for(int i=0; i< offsets.limit(); i++){
+                flushIfNeeded(channel, buf, 4);
+                buf.putInt(offsets.get(i));
+            }
+            for(int i=0; i< hits.limit(); i++){
+                flushIfNeeded(channel, buf, 8);
+                buf.putLong(hits.get(i));
+            }
+            buf.flip();
+            writeFully(channel, buf);
+        }
+    }
+
+    private static void flushIfNeeded(FileChannel channel, ByteBuffer buf, int bytesNeeded) throws IOException{
+        if(buf.remaining() < bytesNeeded){
+            buf.flip();
+            writeFully(channel, buf);
+            buf.clear();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException{
+        while(buf.hasRemaining()){
+            channel.write(buf);
+        }
+    }
+    /**
+     * Memory map an index file previously written by {@link #write(File)}.
+     * The minimizer tables are mapped read only and are never copied
+     * onto the heap.
+     *
+     * @param indexFile the index file to map; can not be null and must exist.
+     * @return a new {@link MinimizerIndex}; will never be null.
+     *
+     * @throws IOException if there is a problem reading the file or the file
+     * is not a minimizer index file.
+     * @throws NullPointerException if indexFile is null.
+     */
+    public static MinimizerIndex map(File indexFile) throws IOException{
+        Objects.requireNonNull(indexFile);
+        try(RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+            FileChannel channel = file.getChannel()){
+            //don't close this stream, it would close the channel
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if(in.readInt() != MAGIC_NUMBER){
+                throw new IOException("not a minimizer index file");
+            }
+            byte version = in.readByte();
+            if(version != VERSION){
+                throw new IOException("unsupported minimizer index version " + version);
+            }
+            int headerLength = in.readInt();
+            int k = in.readInt();
+            int w = in.readInt();
+            int maxOccurrences = in.readInt();
+            int numberOfSubjects = in.readInt();
+            String[] ids = new String[numberOfSubjects];
+            long[] lengths = new long[numberOfSubjects];
+            for(int i=0; i< numberOfSubjects; i++){
+                ids[i] = in.readUTF();
+                lengths[i] = in.readLong();
+            }
+            int numberOfKeys = in.readInt();
+            int numberOfHits = in.readInt();
+
+            long position = 9L + headerLength;
+            long keysSize = numberOfKeys * 8L;
+            long offsetsSize = (numberOfKeys +1) * 4L;
+            long hitsSize = numberOfHits * 8L;
+            if(position + keysSize + offsetsSize + hitsSize > channel.size()){
+                throw new IOException("minimizer index file is truncated");
+            }
+            //mapped buffers stay valid after the channel is closed
+            LongBuffer keys = channel.map(MapMode.READ_ONLY, position, keysSize).asLongBuffer();
+            position += keysSize;
+            IntBuffer offsets = channel.map(MapMode.READ_ONLY, position, offsetsSize).asIntBuffer();
+            position += offsetsSize;
+            LongBuffer hits = channel.map(MapMode.READ_ONLY, position, hitsSize).asLongBuffer();
+
+            return new MinimizerIndex(k, w, maxOccurrences, ids, lengths, keys, offsets, hits);
+        }
+    }
+
+    private int binarySearch(long kmer){
+        int low =0;
+        int high = keys.limit() -1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            long midValue = keys.get(mid);
+            if(midValue < kmer){
+                low = mid +1;
+            }else if(midValue > kmer){
+                high = mid -1;
+            }else{
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static NucleotideSequence ungap(NucleotideSequence seq){
+        if(seq.getNumberOfGaps() ==0){
+            return seq;
+        }
+        return new NucleotideSequenceBuilder(seq).ungap().build();
+    }
+    /**
+     * A single minimizer shared by the query and a subject.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class SeedHit{
+        private final int subjectIndex;
+        private final String subjectId;
+        private final long subjectOffset;
+        private final int queryOffset;
+        private final boolean reverseComplement;
+
+        SeedHit(int subjectIndex, String subjectId, long subjectOffset,
+                int queryOffset, boolean reverseComplement) {
+            this.subjectIndex = subjectIndex;
+            this.subjectId = subjectId;
+            this.subjectOffset = subjectOffset;
+            this.queryOffset = queryOffset;
+            this.reverseComplement = reverseComplement;
+        }
+        /**
+         * Get the id of the subject sequence.
+         * @return the subject id; will never be null.
+         */
+        public String getSubjectId() {
+            return subjectId;
+        }
+        /**
+         * Get the ungapped start offset of the k-mer in the subject.
+         * @return the subject offset.
+         */
+        public long getSubjectOffset() {
+            return subjectOffset;
+        }
+        /**
+         * Get the ungapped start offset of the k-mer in the query
+         * (always relative to the forward strand of the query).
+         * @return the query offset.
+         */
+        public int getQueryOffset() {
+            return queryOffset;
+        }
+        /**
+         * Does the reverse complement of the query match the subject.
+         * @return {@code true} if the hit is on the reverse strand.
+         */
+        public boolean isReverseComplement() {
+            return reverseComplement;
+        }
+        /**
+         * Get the diagonal of this hit which is where in the subject the
+         * (possibly reverse complemented) query would start if there were no indels.
+         */
+        long getDiagonal(long queryLength, int k){
+            return subjectOffset - getOrientedQueryOffset(queryLength, k);
+        }
+        /**
+         * Get the start offset of the k-mer in the (possibly reverse
+         * complemented) query that aligns to the subject.
+         */
+        long getOrientedQueryOffset(long queryLength, int k){
+            if(reverseComplement){
+                return queryLength - queryOffset - k;
+            }
+            return queryOffset;
+        }
+
+        @Override
+        public String toString() {
+            return "SeedHit [subjectId=" + subjectId + ", subjectOffset="
+                    + subjectOffset + ", queryOffset=" + queryOffset
+                    + ", reverseComplement=" + reverseComplement + "]";
+        }
+    }
+    /**
+     * A window of a subject sequence that a query
+     * probably aligns to, found by chaining co-linear {@link SeedHit}s.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class CandidateRegion{
+        private final int subjectIndex;
+        private final String subjectId;
+        private final Range subjectRange;
+        private final boolean reverseComplement;
+        private final int numberOfSeeds;
+
+        CandidateRegion(int subjectIndex, String subjectId, Range subjectRange,
+                boolean reverseComplement, int numberOfSeeds) {
+            this.subjectIndex = subjectIndex;
+            this.subjectId = subjectId;
+            this.subjectRange = subjectRange;
+            this.reverseComplement = reverseComplement;
+            this.numberOfSeeds = numberOfSeeds;
+        }
+        /**
+         * Get the id of the subject sequence.
+         * @return the subject id; will never be null.
+         */
+        public String getSubjectId() {
+            return subjectId;
+        }
+        /**
+         * Get the ungapped range of the subject the query probably aligns to,
+         * padded by the bandwidth.
+         * @return the {@link Range}; will never be null.
+         */
+        public Range getSubjectRange() {
+            return subjectRange;
+        }
+        /**
+         * Get the subject range as a {@link DirectedRange}
+         * where the direction is the strand of the query.
+         * @return the {@link DirectedRange}; will never be null.
+         */
+        public DirectedRange getDirectedSubjectRange(){
+            return DirectedRange.create(subjectRange, reverseComplement ? Direction.REVERSE : Direction.FORWARD);
+        }
+        /**
+         * Does the reverse complement of the query align here.
+         * @return {@code true} if on the reverse strand.
+         */
+        public boolean isReverseComplement() {
+            return reverseComplement;
+        }
+        /**
+         * Get the number of seeds chained together in this region.
+         * @return the number of seeds; will always be &ge; 1.
+         */
+        public int getNumberOfSeeds() {
+            return numberOfSeeds;
+        }
+
+        int getSubjectIndex(){
+            return subjectIndex;
+        }
+
+        @Override
+        public String toString() {
+            return "CandidateRegion [subjectId=" + subjectId
+                    + ", subjectRange=" + subjectRange
+                    + ", reverseComplement=" + reverseComplement
+                    + ", numberOfSeeds=" + numberOfSeeds + "]";
+        }
+    }
+    /**
+     * Builds a {@link MinimizerIndex} from all the sequences
+     * in a {@link NucleotideSequenceDataStore}.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class Builder{
+        private final NucleotideSequenceDataStore datastore;
+        private int k = 15;
+        private int w = 10;
+        private int maxOccurrences = Integer.MAX_VALUE;
+        /**
+         * Create a new Builder that will index the given datastore.
+         * @param datastore the datastore of subject sequences; can not be null.
+         *
+         * @throws NullPointerException if datastore is null.
+         */
+        public Builder(NucleotideSequenceDataStore datastore){
+            this.datastore = Objects.requireNonNull(datastore);
+        }
+        /**
+         * Set the k-mer size. Defaults to 15.
+         * @param k the k-mer size; must be between 1 and 32 inclusive.
+         * @return this.
+         * @throws IllegalArgumentException if k is out of range.
+         */
+        public Builder kmerSize(int k){
+            if(k < 1 || k > 32){
+                throw new IllegalArgumentException("k must be between 1 and 32");
+            }
+            this.k = k;
+            return this;
+        }
+        /**
+         * Set the number of consecutive k-mers in each minimizer window.
+         * Larger windows make a smaller index but fewer seeds.  Defaults to 10.
+         * @param w the window size; must be &ge; 1.
+         * @return this.
+         * @throws IllegalArgumentException if w &lt; 1.
+         */
+        public Builder windowSize(int w){
+            if(w < 1){
+                throw new IllegalArgumentException("window size must be >= 1");
+            }
+            this.w = w;
+            return this;
+        }
+        /**
+         * Ignore minimizers that occur more than the given number of
+         * times across all subjects when looking up seeds.  This masks
+         * highly repetitive sequence that would otherwise produce
+         * lots of uninformative hits.  Defaults to no limit.
+         * @param maxOccurrences the max number of occurrences; must be &ge; 1.
+         * @return this.
+         * @throws IllegalArgumentException if maxOccurrences &lt; 1.
+         */
+        public Builder maxOccurrences(int maxOccurrences){
+            if(maxOccurrences < 1){
+                throw new IllegalArgumentException("max occurrences must be >= 1");
+            }
+            this.maxOccurrences = maxOccurrences;
+            return this;
+        }
+        /**
+         * Create a new {@link MinimizerIndex} of the current datastore contents.
+         * @return a new {@link MinimizerIndex}; will never be null.
+         * @throws DataStoreException if there is a problem iterating over the datastore.
+         */
+        public MinimizerIndex build() throws DataStoreException{
+            MinimizerScanner scanner = new MinimizerScanner(k, w);
+            List<String> ids = new ArrayList<>();
+            GrowableLongArray lengths = new GrowableLongArray(1024);
+            GrowableLongArray rawKeys = new GrowableLongArray(1024);
+            GrowableLongArray rawHits = new GrowableLongArray(1024);
+
+            try(StreamingIterator<DataStoreEntry<NucleotideSequence>> iter = datastore.entryIterator()){
+                while(iter.hasNext()){
+                    DataStoreEntry<NucleotideSequence> entry = iter.next();
+                    NucleotideSequence seq = ungap(entry.getValue());
+                    long subjectIndex = ids.size();
+                    ids.add(entry.getKey());
+                    lengths.append(seq.getLength());
+                    scanner.scan(seq, (kmer, offset, reverse) ->{
+                        rawKeys.append(kmer);
+                        rawHits.append(subjectIndex << 33 | ((long) offset) << 1 | (reverse ? 1 : 0));
+                    });
+                }
+            }
+            return createIndex(ids.toArray(new String[ids.size()]), lengths.toArray(),
+                    rawKeys.toArray(), rawHits.toArray());
+        }
+
+        private MinimizerIndex createIndex(String[] ids, long[] lengths, long[] rawKeys, long[] rawHits){
+            long[] sortedKeys = Arrays.copyOf(rawKeys, rawKeys.length);
+            Arrays.sort(sortedKeys);
+            int numberOfKeys =0;
+            for(int i=0; i< sortedKeys.length; i++){
+                if(i==0 || sortedKeys[i] != sortedKeys[numberOfKeys-1]){
+                    sortedKeys[numberOfKeys++] = sortedKeys[i];
+                }
+            }
+            long[] keys = Arrays.copyOf(sortedKeys, numberOfKeys);
+            //counting sort of hits by key
+            int[] keyIndexes = new int[rawKeys.length];
+            int[] offsets = new int[numberOfKeys +1];
+            for(int i=0; i< rawKeys.length; i++){
+                int keyIndex = Arrays.binarySearch(keys, rawKeys[i]);
+                keyIndexes[i] = keyIndex;
+                offsets[keyIndex+1]++;
+            }
+            for(int i=1; i< offsets.length; i++){
+                offsets[i] += offsets[i-1];
+            }
+            int[] nextSlot = Arrays.copyOf(offsets, numberOfKeys);
+            long[] hits = new long[rawHits.length];
+            for(int i=0; i< rawHits.length; i++){
+                hits[nextSlot[keyIndexes[i]]++] = rawHits[i];
+            }
+            return new MinimizerIndex(k, w, maxOccurrences, ids, lengths,
+                    LongBuffer.wrap(keys), IntBuffer.wrap(offsets), LongBuffer.wrap(hits));
+        }
+    }
+}
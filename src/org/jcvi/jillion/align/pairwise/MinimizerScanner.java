@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import org.jcvi.jillion.core.residue.nt.NucleotideKmers;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+
+/**
+ * Computes the (w,k)-minimizers of a {@link NucleotideSequence}.
+ * A minimizer is the canonical k-mer with the smallest hash value
+ * in each window of w consecutive k-mers. Consecutive windows usually share
+ * the same minimizer so only about 2/(w+1) of the k-mers are reported.
+ * Runs of valid k-mers shorter than a full window (short primers or
+ * bases between Ns) report their single smallest k-mer so
+ * even very short sequences get at least one minimizer.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class MinimizerScanner {
+
+    /**
+     * Callback for each minimizer found.
+     */
+    @FunctionalInterface
+    interface MinimizerConsumer{
+        /**
+         * @param kmer the canonical 2 bit packed k-mer.
+         * @param offset the start offset of the k-mer in the sequence.
+         * @param reverse {@code true} if the canonical k-mer is
+         * the reverse complement of the k-mer in the sequence.
+         */
+        void accept(long kmer, int offset, boolean reverse);
+    }
+
+    private final int k;
+    private final int w;
+
+    private final long[] kmers;
+    private final long[] hashes;
+    private final int[] offsets;
+    private final boolean[] reverses;
+    //state of the current scan
+    private int validKmers;
+    private int minSlot;
+    private int lastReportedOffset;
+    private int previousOffset;
+
+    MinimizerScanner(int k, int w){
+        if(k < 1 || k > NucleotideKmers.MAX_PACKED_KMER_SIZE){
+            throw new IllegalArgumentException("k must be between 1 and " + NucleotideKmers.MAX_PACKED_KMER_SIZE);
+        }
+        if(w < 1){
+            throw new IllegalArgumentException("window size must be >= 1");
+        }
+        this.k = k;
+        this.w = w;
+        kmers = new long[w];
+        hashes = new long[w];
+        offsets = new int[w];
+        reverses = new boolean[w];
+    }
+
+    int getKmerSize(){
+        return k;
+    }
+
+    int getWindowSize(){
+        return w;
+    }
+    /**
+     * Murmur3 64 bit finalizer, used to order k-mers
+     * so low complexity k-mers like poly-A aren't always chosen.
+     */
+    static long hash(long kmer){
+        long h = kmer;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Scan the given sequence and report each distinct minimizer.
+     * The k-mers are generated by {@link NucleotideKmers#forEachPackedKmer}
+     * so a gap in the k-mer offsets means the bases in between
+     * weren't all A,C,G or T and the window starts over.
+     * This method is not thread safe since it reuses internal buffers.
+     *
+     * @param seq the sequence to scan.
+     * @param consumer the consumer of each minimizer.
+     */
+    void scan(NucleotideSequence seq, MinimizerConsumer consumer){
+        validKmers=0;
+        minSlot=-1;
+        lastReportedOffset=-1;
+        previousOffset=-1;
+        NucleotideKmers.forEachPackedKmer(seq, k, (offset, forward) -> {
+            if(offset != previousOffset +1){
+                reportPartialWindow(consumer);
+                validKmers=0;
+                minSlot=-1;
+                lastReportedOffset=-1;
+            }
+            previousOffset = offset;
+            long reverse = NucleotideKmers.reverseComplement(forward, k);
+            boolean isReverse = Long.compareUnsigned(reverse, forward) <0;
+            addKmer(isReverse ? reverse : forward, offset, isReverse, consumer);
+        });
+        reportPartialWindow(consumer);
+    }
+
+    private void addKmer(long canonical, int offset, boolean isReverse, MinimizerConsumer consumer){
+        int slot = validKmers % w;
+        kmers[slot] = canonical;
+        hashes[slot] = hash(canonical);
+        offsets[slot] = offset;
+        reverses[slot] = isReverse;
+        validKmers++;
+
+        if(minSlot <0 || minSlot == slot){
+            //either first kmer or the old min
+            //just fell out of the window
+            minSlot = findMinSlot(Math.min(validKmers, w));
+        }else if(Long.compareUnsigned(hashes[slot], hashes[minSlot]) <0){
+            minSlot = slot;
+        }
+        if(validKmers >= w && offsets[minSlot] != lastReportedOffset){
+            lastReportedOffset = offsets[minSlot];
+            consumer.accept(kmers[minSlot], offsets[minSlot], reverses[minSlot]);
+        }
+    }
+
+    private void reportPartialWindow(MinimizerConsumer consumer){
+        if(validKmers ==0 || validKmers >= w){
+            return;
+        }
+        int minSlot = findMinSlot(validKmers);
+        if(offsets[minSlot] != lastReportedOffset){
+            consumer.accept(kmers[minSlot], offsets[minSlot], reverses[minSlot]);
+        }
+    }
+    /**
+     * Find the slot with the smallest hash; ties go to the
+     * leftmost k-mer.
+     */
+    private int findMinSlot(int numberOfSlots){
+        int best =-1;
+        for(int i=0; i< numberOfSlots; i++){
+            if(best <0){
+                best = i;
+                continue;
+            }
+            int cmp = Long.compareUnsigned(hashes[i], hashes[best]);
+            if(cmp <0 || (cmp ==0 && offsets[i] < offsets[best])){
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -66,10 +66,34 @@ final class NucleotideSmithWatermanAligner extends AbstractSmithWatermanAligner<
 	public static NucleotidePairwiseSequenceAlignment align(NucleotideSequence query,
 			NucleotideSequence subject, SubstitutionMatrix<Nucleotide> matrix,
 			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount){
-		NucleotideSmithWatermanAligner aligner = new NucleotideSmithWatermanAligner(query, subject, matrix, openGapPenalty, extendGapPenalty, subjectShiftAmount);
+		return align(query, subject, matrix, openGapPenalty, extendGapPenalty, subjectShiftAmount, null);
+	}
+	/**
+	 * Align the given two {@link NucleotideSequence}s
+	 * using the given {@link SubstitutionMatrix} by the Smith-Waterman
+	 * local alignment algorithm only computing the cells in the given band.
+	 * @param query the query {@link NucleotideSequence} to align;
+	 * can not be null.
+	 * @param subject the subject {@link NucleotideSequence} to align;
+	 * can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param subjectShiftAmount the amount to shift the subject range; may be null.
+	 * @param band the {@link AlignmentBand} to restrict the alignment to;
+	 * if null, the whole matrix is computed.
+	 * @return a new {@link NucleotidePairwiseSequenceAlignment} instance;
+	 * representing the local alignment, will never be null.
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 * 
+	 * @since 5.3
+	 */
+	static NucleotidePairwiseSequenceAlignment align(NucleotideSequence query,
+			NucleotideSequence subject, SubstitutionMatrix<Nucleotide> matrix,
+			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount, AlignmentBand band){
+		NucleotideSmithWatermanAligner aligner = new NucleotideSmithWatermanAligner(query, subject, matrix, openGapPenalty, extendGapPenalty, subjectShiftAmount, band);
 		return aligner.getPairwiseSequenceAlignment();
-				
-		}
+	}
 	
 	
 
@@ -77,9 +101,9 @@ final class NucleotideSmithWatermanAligner extends AbstractSmithWatermanAligner<
 
     private NucleotideSmithWatermanAligner(NucleotideSequence seq1,
 			NucleotideSequence seq2, SubstitutionMatrix<Nucleotide> matrix,
-			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount) {
+			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount, AlignmentBand band) {
 		super(seq1, seq2, matrix, openGapPenalty, extendGapPenalty,
-				ResiduePairwiseStrategy.getNucleotideStrategy(), subjectShiftAmount);
+				ResiduePairwiseStrategy.getNucleotideStrategy(), subjectShiftAmount, band);
 	}
 	
 
@@ -55,6 +55,9 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 	private float gapExtension =0;
 	
 	private boolean local=true;
+	
+	private AlignmentBand band;
+	private boolean linearMemory=false;
 	/**
 	 * Create a new PairwiseAlignmentBuilder to align
 	 * 2 {@link NucleotideSequence}s.
@@ -146,6 +149,84 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 		local=true;
 		return this;
 	}
+	/**
+	 * Only compute the cells of the alignment matrix
+	 * that are within {@code bandWidth} residues of the expected
+	 * diagonal.  This is much faster and uses much less memory
+	 * than computing the whole matrix
+	 * (memory and time proportional to {@code queryLength * bandWidth}
+	 * instead of {@code queryLength * subjectLength})
+	 * and should be used when where the query aligns
+	 * to the subject is already known, for example from a previous alignment,
+	 * a seed match or a primer location.  Alignments that would
+	 * drift outside of the band are not considered.
+	 * <p>
+	 * Global alignments must start and end at the beginning and end
+	 * of both sequences, so for global alignments the band
+	 * is widened if needed to include those positions.
+	 * 
+	 * @param expectedDiagonal the expected offset into the subject
+	 * (ignoring gaps) that the first residue of the query aligns to;
+	 * may be negative if the query starts before the subject.
+	 * @param bandWidth the max number of residues the alignment may drift
+	 * from the expected diagonal in either direction; must be &ge; 0.
+	 * @return this
+	 * @throws IllegalArgumentException if bandWidth is negative.
+	 * 
+	 * @since 5.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> band(int expectedDiagonal, int bandWidth){
+		this.band = new AlignmentBand(expectedDiagonal, bandWidth);
+		return this;
+	}
+	/**
+	 * Compute the whole alignment matrix; this
+	 * undoes any previous call to {@link #band(int, int)}.
+	 * If not set, this is the default.
+	 * @return this
+	 * 
+	 * @since 5.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> noBand(){
+		this.band = null;
+		return this;
+	}
+	/**
+	 * Compute the alignment using memory proportional to
+	 * {@code queryLength + subjectLength} by using Hirschberg's
+	 * divide and conquer algorithm instead of storing
+	 * a traceback matrix of size {@code queryLength * subjectLength}.
+	 * This takes about twice as long but allows aligning sequences
+	 * that are hundreds of kilobases long that would otherwise not fit in memory.
+	 * <p>
+	 * Gaps are scored with the full affine gap model so if the
+	 * gap open and extension penalties differ, the alignment score
+	 * may be better than the default implementation's.  When there
+	 * are several equally good alignments, the one returned may be different.
+	 * <p>
+	 * If a {@link #band(int, int)} is also set, the banded alignment
+	 * is used instead since it already uses less memory.
+	 * 
+	 * @return this
+	 * 
+	 * @since 5.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> useLinearMemory(){
+		return useLinearMemory(true);
+	}
+	/**
+	 * Helper method to programmatically turn on or off
+	 * linear memory alignments.
+	 * @param useLinearMemory {@code true} is the same as calling {@link #useLinearMemory()};
+	 * {@code false} computes a full traceback matrix which is the default.
+	 * @return this
+	 * 
+	 * @since 5.3
+	 */
+	public PairwiseAlignmentBuilder<R,S,A> useLinearMemory(boolean useLinearMemory){
+		this.linearMemory = useLinearMemory;
+		return this;
+	}
 	/**
 	 * Compute the actual pairwise alignment.
 	 * This method may be computationally expensive
@@ -162,16 +243,50 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 		
 		if(query instanceof NucleotideSequence){
 			if(local){
-				 return (A)NucleotideSmithWatermanAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension);
+				 return (A) alignLocal((NucleotideSequence)subject, null);
+			}
+			if(isLinearMemoryAlignment()){
+				return (A) LinearSpacePairwiseAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, false, ResiduePairwiseStrategy.getNucleotideStrategy(), null);
 			}
-			return (A) NucleotideNeedlemanWunschAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension);
+			return (A) NucleotideNeedlemanWunschAligner.align((NucleotideSequence)query, (NucleotideSequence)subject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, band);
 		}
 		if(local){
-			 return (A) ProteinSmithWatermanAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension);
+			 return (A) alignLocal((ProteinSequence)subject, null);
+		}
+		if(isLinearMemoryAlignment()){
+			return (A) LinearSpacePairwiseAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, false, ResiduePairwiseStrategy.getAminoAcidStrategy(), null);
 		}
-		return (A) ProteinNeedlemanWunschAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension);
+		return (A) ProteinNeedlemanWunschAligner.align((ProteinSequence)query, (ProteinSequence)subject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, band);
 
 	}
+	
+	private boolean isLinearMemoryAlignment(){
+		return linearMemory && band ==null;
+	}
+	
+	private NucleotidePairwiseSequenceAlignment alignLocal(NucleotideSequence currentSubject, Integer currentShift){
+		if(isLinearMemoryAlignment()){
+			return LinearSpacePairwiseAligner.align((NucleotideSequence)query, currentSubject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, true, ResiduePairwiseStrategy.getNucleotideStrategy(), currentShift);
+		}
+		return NucleotideSmithWatermanAligner.align((NucleotideSequence)query, currentSubject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, currentShift, shiftBand(currentShift));
+	}
+	
+	private ProteinPairwiseSequenceAlignment alignLocal(ProteinSequence currentSubject, Integer currentShift){
+		if(isLinearMemoryAlignment()){
+			return LinearSpacePairwiseAligner.align((ProteinSequence)query, currentSubject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, true, ResiduePairwiseStrategy.getAminoAcidStrategy(), currentShift);
+		}
+		return ProteinSmithWatermanAligner.align((ProteinSequence)query, currentSubject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, currentShift, shiftBand(currentShift));
+	}
+	/**
+	 * The band diagonals are relative to the original subject
+	 * so they have to be shifted when only part of the subject is aligned.
+	 */
+	private AlignmentBand shiftBand(Integer currentShift){
+		if(band ==null || currentShift ==null){
+			return band;
+		}
+		return band.shift(currentShift);
+	}
 	/**
          * Find several alignments.  If this Builder is configured to
          * use local alignments then this method will try to find several alignments by
@@ -204,8 +319,12 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
 	        return;
 	    }
 	    @SuppressWarnings("unchecked")
-            A alignment = (A) NucleotideSmithWatermanAligner.align((NucleotideSequence)query, currentSubject, (NucleotideSubstitutionMatrix)matrix, gapOpen, gapExtension, currentShift);
-	   
+            A alignment = (A) alignLocal(currentSubject, currentShift);
+	    if(alignment.getSubjectRange().getLength() ==0){
+	        //nothing aligned in this part of the subject
+	        //so there is nothing left to split
+	        return;
+	    }
 	    consumer.accept(alignment);
 	    long endOfAlignment = alignment.getSubjectRange().getEnd()+1 - currentShift;
 	    long startOfAlignment = alignment.getSubjectRange().getBegin() - currentShift;
@@ -228,8 +347,12 @@ public final class PairwiseAlignmentBuilder<R extends Residue, S extends Residue
                 return;
             }
             @SuppressWarnings("unchecked")
-            A alignment = (A) ProteinSmithWatermanAligner.align((ProteinSequence)query, currentSubject, (AminoAcidSubstitutionMatrix)matrix, gapOpen, gapExtension, currentShift);
-           
+            A alignment = (A) alignLocal(currentSubject, currentShift);
+            if(alignment.getSubjectRange().getLength() ==0){
+                //nothing aligned in this part of the subject
+                //so there is nothing left to split
+                return;
+            }
             consumer.accept(alignment);
             long endOfAlignment = alignment.getSubjectRange().getEnd()+1 - currentShift;
             long startOfAlignment = alignment.getSubjectRange().getBegin() - currentShift;
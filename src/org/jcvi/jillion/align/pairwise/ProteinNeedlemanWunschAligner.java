@@ -62,15 +62,40 @@ final class ProteinNeedlemanWunschAligner extends AbstractNeedlemanWunschAligner
 	public static ProteinPairwiseSequenceAlignment align(ProteinSequence query,
 			ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
 			float openGapPenalty, float extendGapPenalty){
-		ProteinNeedlemanWunschAligner aligner = new ProteinNeedlemanWunschAligner(query, subject, matrix, openGapPenalty, extendGapPenalty);
+		return align(query, subject, matrix, openGapPenalty, extendGapPenalty, null);
+	}
+	/**
+	 * Align the given two {@link ProteinSequence}s
+	 * using the given {@link SubstitutionMatrix} by the Needleman-Wunsch
+	 * global alignment algorithm only computing the cells in the given band.
+	 * @param query the query {@link ProteinSequence} to align;
+	 * can not be null.
+	 * @param subject the subject {@link ProteinSequence} to align;
+	 * can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param band the {@link AlignmentBand} to restrict the alignment to;
+	 * will be widened to include the beginning and end of both sequences.
+	 * If null, the whole matrix is computed.
+	 * @return a new {@link ProteinPairwiseSequenceAlignment} instance;
+	 * representing the global alignment, will never be null.
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 * 
+	 * @since 5.3
+	 */
+	static ProteinPairwiseSequenceAlignment align(ProteinSequence query,
+			ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
+			float openGapPenalty, float extendGapPenalty, AlignmentBand band){
+		ProteinNeedlemanWunschAligner aligner = new ProteinNeedlemanWunschAligner(query, subject, matrix, openGapPenalty, extendGapPenalty, band);
 		return aligner.getPairwiseSequenceAlignment();
 	}
 	
 	private ProteinNeedlemanWunschAligner(ProteinSequence query,
 	        ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
-			float openGapPenalty, float extendGapPenalty) {
+			float openGapPenalty, float extendGapPenalty, AlignmentBand band) {
 		super(query, subject, matrix, openGapPenalty, extendGapPenalty,
-				ResiduePairwiseStrategy.getAminoAcidStrategy());
+				ResiduePairwiseStrategy.getAminoAcidStrategy(), band);
 	}
 	
 
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+/**
+ * {@code ProteinQueryAligner} aligns a single protein query
+ * against many subjects, for example translated ORFs
+ * against a panel of reference proteins.
+ * <p>
+ * The query profile is built once by a {@link LocalAlignmentScorer}
+ * which is used to score subjects, and the X-drop extension
+ * reads its substitution scores from that same profile.
+ * Scanning many subjects is done by a {@link BatchPairwiseAligner}
+ * that shares the same scorer.
+ * <p>
+ * Gaps are scored using the same affine model as {@link LocalAlignmentScorer}:
+ * a gap of length k costs {@code open + (k-1) * extend}.
+ * <p>
+ * Instances are thread safe.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class ProteinQueryAligner {
+
+	private static final int NEGATIVE_INFINITY = Integer.MIN_VALUE /2;
+	
+	private static final int NUMBER_OF_AMINO_ACIDS = AminoAcid.values().length;
+	
+	private final ProteinSequence query;
+	private final LocalAlignmentScorer<AminoAcid, ProteinSequence, ProteinPairwiseSequenceAlignment> scorer;
+	private final int queryLength;
+	private final int openGapPenalty, extendGapPenalty;
+	
+	/**
+	 * Create a new ProteinQueryAligner.
+	 * 
+	 * @param query the query sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @param matrix the {@link AminoAcidSubstitutionMatrix}; can not be null.
+	 * Every score must be a whole number that fits in a short.
+	 * @param openGapPenalty the penalty score for creating a new gap; usually a negative number.
+	 * @param extendGapPenalty the penalty for extending an already open gap;
+	 * usually a negative number.
+	 * @return a new ProteinQueryAligner; will never be null.
+	 * @throws NullPointerException if query or matrix are null.
+	 * @throws IllegalArgumentException if any score in the matrix
+	 * is not a whole number that fits in a short.
+	 */
+	public static ProteinQueryAligner create(ProteinSequence query, AminoAcidSubstitutionMatrix matrix, int openGapPenalty, int extendGapPenalty){
+		return new ProteinQueryAligner(query, matrix, openGapPenalty, extendGapPenalty);
+	}
+	
+	private ProteinQueryAligner(ProteinSequence query, AminoAcidSubstitutionMatrix matrix, int openGapPenalty, int extendGapPenalty){
+		Objects.requireNonNull(query, "query can not be null");
+		Objects.requireNonNull(matrix, "matrix can not be null");
+		this.query = query;
+		this.openGapPenalty = openGapPenalty;
+		this.extendGapPenalty = extendGapPenalty;
+		this.scorer = LocalAlignmentScorer.createProteinScorer(query, matrix, openGapPenalty, extendGapPenalty);
+		this.queryLength = scorer.getQueryLength();
+		//the X-drop extension does integer arithmetic on the profile
+		for(int c=0; c< NUMBER_OF_AMINO_ACIDS; c++){
+			for(int i=0; i< queryLength; i++){
+				float value = scorer.getSubstitutionScore(i, c);
+				if(value != (short) value){
+					throw new IllegalArgumentException("substitution score must be a whole number that fits in a short : " + value);
+				}
+			}
+		}
+	}
+	
+	private static byte[] encode(ProteinSequence sequence){
+		byte[] ordinals = new byte[(int) sequence.getUngappedLength()];
+		int i=0;
+		for(AminoAcid aa : sequence){
+			if(aa != AminoAcid.Gap){
+				ordinals[i++] = aa.getOrdinalAsByte();
+			}
+		}
+		return ordinals;
+	}
+	/**
+	 * Get the query sequence.
+	 * @return the query; will never be null.
+	 */
+	public ProteinSequence getQuery() {
+		return query;
+	}
+	/**
+	 * Compute the score of the best local alignment
+	 * of the query against the given subject without computing
+	 * the alignment itself.
+	 * 
+	 * @param subject the subject sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @return the best local alignment score; will be 0
+	 * if there is no positive scoring alignment.
+	 * @throws NullPointerException if subject is null.
+	 */
+	public int score(ProteinSequence subject){
+		Objects.requireNonNull(subject, "subject can not be null");
+		//all scores and penalties are whole numbers
+		return (int) scorer.score(subject);
+	}
+	/**
+	 * Compute the full local alignment of the query against the given subject.
+	 * 
+	 * @param subject the subject sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @return a new {@link ProteinPairwiseSequenceAlignment}; will never be null.
+	 * @throws NullPointerException if subject is null.
+	 */
+	public ProteinPairwiseSequenceAlignment align(ProteinSequence subject){
+		Objects.requireNonNull(subject, "subject can not be null");
+		return scorer.align(subject);
+	}
+	/**
+	 * Extend a seed hit in both directions using X-drop:
+	 * the gapped extension stops once every alignment path scores more than
+	 * xDrop below the best score seen so far.  This only looks at the
+	 * part of the dynamic programming matrix near the seed so it is much
+	 * faster than a full alignment when the query and subject are long.
+	 * <p>
+	 * The extension always includes the seed residues
+	 * and is anchored at the seed, so residues to the
+	 * right of the seed are extended starting with the seed
+	 * residues themselves and residues to the left are
+	 * extended starting with the residues just before the seed.
+	 * 
+	 * @param subject the subject sequence, any gaps
+	 * in the sequence will be ignored; can not be null.
+	 * @param queryOffset the ungapped offset into the query of the seed.
+	 * @param subjectOffset the ungapped offset into the subject of the seed.
+	 * @param xDrop how far below the best score the extension is allowed to drop;
+	 * must be &ge; 0.
+	 * @return a new {@link XDropExtension}; will never be null.
+	 * @throws NullPointerException if subject is null.
+	 * @throws IllegalArgumentException if xDrop is negative or either
+	 * offset is outside of its sequence.
+	 */
+	public XDropExtension extend(ProteinSequence subject, int queryOffset, int subjectOffset, int xDrop){
+		if(xDrop <0){
+			throw new IllegalArgumentException("xDrop must be >= 0");
+		}
+		byte[] subjectOrdinals = encode(subject);
+		if(queryOffset <0 || queryOffset >= queryLength){
+			throw new IllegalArgumentException("query offset out of range : " + queryOffset);
+		}
+		if(subjectOffset <0 || subjectOffset >= subjectOrdinals.length){
+			throw new IllegalArgumentException("subject offset out of range : " + subjectOffset);
+		}
+		int m = queryLength;
+		int[] right = xDropExtend(false, queryOffset, m - queryOffset,
+				subjectOrdinals, subjectOffset, subjectOrdinals.length - subjectOffset, xDrop);
+		
+		byte[] reversedSubject = new byte[subjectOrdinals.length];
+		for(int i=0; i< subjectOrdinals.length; i++){
+			reversedSubject[reversedSubject.length -1 -i] = subjectOrdinals[i];
+		}
+		int[] left = xDropExtend(true, m - queryOffset, queryOffset,
+				reversedSubject, reversedSubject.length - subjectOffset, subjectOffset, xDrop);
+		
+		return new XDropExtension(left[0] + right[0],
+				Range.of(queryOffset - left[1], queryOffset + right[1] -1),
+				Range.of(subjectOffset - left[2], subjectOffset + right[2] -1));
+	}
+	/**
+	 * Gapped X-drop extension anchored at the start of the given regions.
+	 * If reverse is true then query offsets are counted from the end of the query.
+	 * 
+	 * @return an array of the best score, the number of query residues
+	 * and the number of subject residues in the best extension.
+	 */
+	private int[] xDropExtend(boolean reverse, int queryStart, int queryLength,
+			byte[] subjectOrdinals, int subjectStart, int subjectLength, int xDrop){
+		int lastQueryOffset = this.queryLength -1;
+		//rows are subject residues, columns query residues
+		int[] h = new int[queryLength +1];
+		int[] e = new int[queryLength +1];
+		Arrays.fill(h, NEGATIVE_INFINITY);
+		Arrays.fill(e, NEGATIVE_INFINITY);
+		int best = 0, bestQuery =0, bestSubject =0;
+		//first row, only gaps in the subject
+		h[0] =0;
+		int lo =0, hi =0;
+		for(int i=1; i<= queryLength; i++){
+			int gapScore = openGapPenalty + (i-1) * extendGapPenalty;
+			if(gapScore < -xDrop){
+				break;
+			}
+			h[i] = gapScore;
+			hi = i;
+		}
+		for(int j=1; j<= subjectLength && lo <= hi; j++){
+			int subjectOrdinal = subjectOrdinals[subjectStart + j -1];
+			int newLo = -1, newHi = -1;
+			int diagonal = NEGATIVE_INFINITY;
+			int f = NEGATIVE_INFINITY;
+			int above = NEGATIVE_INFINITY;
+			for(int i=lo; i<= queryLength; i++){
+				boolean inPreviousRow = i <= hi;
+				int previous = inPreviousRow ? h[i] : NEGATIVE_INFINITY;
+				e[i] = inPreviousRow ? Math.max(e[i] + extendGapPenalty, previous + openGapPenalty) : NEGATIVE_INFINITY;
+				if(i >0){
+					f = Math.max(f + extendGapPenalty, above + openGapPenalty);
+				}
+				int score = Math.max(e[i], f);
+				if(i >0){
+					int queryOffset = queryStart + i -1;
+					if(reverse){
+						queryOffset = lastQueryOffset - queryOffset;
+					}
+					score = Math.max(score, diagonal + (int) scorer.getSubstitutionScore(queryOffset, subjectOrdinal));
+				}
+				diagonal = previous;
+				if(score < best - xDrop){
+					score = NEGATIVE_INFINITY;
+					e[i] = NEGATIVE_INFINITY;
+					f = NEGATIVE_INFINITY;
+				}else{
+					if(newLo <0){
+						newLo = i;
+					}
+					newHi = i;
+					if(score > best){
+						best = score;
+						bestQuery = i;
+						bestSubject = j;
+					}
+				}
+				h[i] = score;
+				above = score;
+				if(!inPreviousRow && score == NEGATIVE_INFINITY){
+					//nothing to the right can be reached
+					break;
+				}
+			}
+			if(newLo <0){
+				break;
+			}
+			//stale values past the new end must not be reused
+			for(int i= newHi +1; i<= Math.min(queryLength, hi); i++){
+				h[i] = NEGATIVE_INFINITY;
+				e[i] = NEGATIVE_INFINITY;
+			}
+			lo = newLo;
+			hi = newHi;
+		}
+		return new int[]{best, bestQuery, bestSubject};
+	}
+	/**
+	 * Score every subject in the given Stream in parallel on the
+	 * {@link ForkJoinPool#commonPool()} and
+	 * compute the full alignment of only the subjects whose score is at least
+	 * the given min score.  This is the same as
+	 * {@link #scan(Stream, int, ForkJoinPool) scan(subjects, minScore, ForkJoinPool.commonPool())}.
+	 * 
+	 * @param subjects the Stream of subject sequences keyed by id; can not be null.
+	 * @param minScore the min score of a hit.
+	 * @return a new List of hits sorted by score, best first;
+	 * will never be null but may be empty.
+	 * @throws NullPointerException if subjects is null.
+	 */
+	public List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> scan(Stream<DataStoreEntry<ProteinSequence>> subjects, int minScore){
+		return scan(subjects, minScore, ForkJoinPool.commonPool());
+	}
+	/**
+	 * Score every subject in the given Stream in parallel on the given
+	 * {@link ForkJoinPool} and
+	 * compute the full alignment of only the subjects whose score is at least
+	 * the given min score.
+	 * 
+	 * @param subjects the Stream of subject sequences keyed by id; can not be null.
+	 * @param minScore the min score of a hit.
+	 * @param pool the ForkJoinPool to do the alignments in; can not be null.
+	 * @return a new List of hits sorted by score, best first;
+	 * will never be null but may be empty.
+	 * @throws NullPointerException if subjects or pool are null.
+	 */
+	public List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> scan(Stream<DataStoreEntry<ProteinSequence>> subjects, int minScore, ForkJoinPool pool){
+		return BatchPairwiseAligner.createBatchAlignerBuilder(scorer)
+									.minScore(minScore)
+									.maxNumberOfHits(Integer.MAX_VALUE)
+									.pool(pool)
+									.build()
+									.align(subjects);
+	}
+	/**
+	 * The result of an X-drop extension of a seed hit.
+	 * 
+	 * @author dkatzel
+	 *
+	 */
+	public static final class XDropExtension{
+		private final int score;
+		private final Range queryRange, subjectRange;
+		
+		XDropExtension(int score, Range queryRange, Range subjectRange) {
+			this.score = score;
+			this.queryRange = queryRange;
+			this.subjectRange = subjectRange;
+		}
+		/**
+		 * Get the score of the extended alignment.
+		 * @return the score.
+		 */
+		public int getScore() {
+			return score;
+		}
+		/**
+		 * Get the ungapped range of the query covered by the extension.
+		 * @return the Range; will never be null but may be empty.
+		 */
+		public Range getQueryRange() {
+			return queryRange;
+		}
+		/**
+		 * Get the ungapped range of the subject covered by the extension.
+		 * @return the Range; will never be null but may be empty.
+		 */
+		public Range getSubjectRange() {
+			return subjectRange;
+		}
+
+		@Override
+		public String toString() {
+			return "XDropExtension [score=" + score + ", queryRange="
+					+ queryRange + ", subjectRange=" + subjectRange + "]";
+		}
+	}
+}
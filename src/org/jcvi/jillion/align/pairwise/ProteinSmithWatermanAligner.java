@@ -67,14 +67,39 @@ final class ProteinSmithWatermanAligner  extends AbstractSmithWatermanAligner<Am
 	public static ProteinPairwiseSequenceAlignment align(ProteinSequence query,
 			ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
 			float openGapPenalty, float extendGapPenalty , Integer subjectShiftAmount){
-		ProteinSmithWatermanAligner aligner = new ProteinSmithWatermanAligner(query, subject, matrix, openGapPenalty, extendGapPenalty,subjectShiftAmount);
+		return align(query, subject, matrix, openGapPenalty, extendGapPenalty, subjectShiftAmount, null);
+	}
+	/**
+	 * Align the given two {@link ProteinSequence}s
+	 * using the given {@link SubstitutionMatrix} by the Smith-Waterman
+	 * local alignment algorithm only computing the cells in the given band.
+	 * @param query the query {@link ProteinSequence} to align;
+	 * can not be null.
+	 * @param subject the subject {@link ProteinSequence} to align;
+	 * can not be null.
+	 * @param matrix the {@link SubstitutionMatrix} to use; can not be null.
+	 * @param openGapPenalty the penalty value for opening a gap.
+	 * @param extendGapPenalty the penalty for extending an already open gap.
+	 * @param subjectShiftAmount the amount to shift the subject range; may be null.
+	 * @param band the {@link AlignmentBand} to restrict the alignment to;
+	 * if null, the whole matrix is computed.
+	 * @return a new {@link ProteinPairwiseSequenceAlignment} instance;
+	 * representing the local alignment, will never be null.
+	 * @throws NullPointerException if query, subject or matrix are null.
+	 * 
+	 * @since 5.3
+	 */
+	static ProteinPairwiseSequenceAlignment align(ProteinSequence query,
+			ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
+			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount, AlignmentBand band){
+		ProteinSmithWatermanAligner aligner = new ProteinSmithWatermanAligner(query, subject, matrix, openGapPenalty, extendGapPenalty, subjectShiftAmount, band);
 		return aligner.getPairwiseSequenceAlignment();
 	}
 	private ProteinSmithWatermanAligner(ProteinSequence query,
 			ProteinSequence subject, SubstitutionMatrix<AminoAcid> matrix,
-			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount) {
+			float openGapPenalty, float extendGapPenalty, Integer subjectShiftAmount, AlignmentBand band) {
 		super(query, subject, matrix, openGapPenalty, extendGapPenalty,
-				ResiduePairwiseStrategy.getAminoAcidStrategy(), subjectShiftAmount);
+				ResiduePairwiseStrategy.getAminoAcidStrategy(), subjectShiftAmount, band);
 	}
 
 }
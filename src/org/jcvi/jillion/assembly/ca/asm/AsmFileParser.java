@@ -56,6 +56,7 @@ import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
 import org.jcvi.jillion.internal.core.io.RandomAccessFileInputStream;
 import org.jcvi.jillion.internal.core.io.TextLineParser;
 import org.jcvi.jillion.internal.core.util.JillionUtil;
@@ -1575,7 +1576,7 @@ public abstract class AsmFileParser implements AsmParser{
     }
     
     
-    private static class OffsetMemento implements AsmVisitorMemento{
+    private static class OffsetMemento implements AsmVisitorMemento, FileOffsetMemento{
     	private final long offset;
 
 		public OffsetMemento(long offset) {
@@ -1585,6 +1586,11 @@ public abstract class AsmFileParser implements AsmParser{
 		protected final long getOffset() {
 			return offset;
 		}
+		
+		@Override
+		public long getFileOffset() {
+			return offset;
+		}
     	
     }
     private static class FileBasedAsmFileParser extends AsmFileParser{
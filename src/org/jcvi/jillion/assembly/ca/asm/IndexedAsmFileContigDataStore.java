@@ -22,11 +22,13 @@ package org.jcvi.jillion.assembly.ca.asm;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -42,6 +44,7 @@ import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.util.MapUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.BatchedLookups;
 import org.jcvi.jillion.internal.core.datastore.DataStoreIterator;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
 /**
@@ -115,6 +118,47 @@ final class IndexedAsmFileContigDataStore  implements AsmContigDataStore{
 			throw new DataStoreException("error parsing asm file", e);
 		}		
 	}
+	/**
+	 * Builds all the requested contigs
+	 * with only a single parse of the beginning of the file
+	 * to get the read valid ranges for all of the contigs at once
+	 * instead of once per contig.  Contigs are parsed in file order.
+	 */
+	@Override
+	public Map<String, AsmContig> getAll(Collection<String> ids) throws DataStoreException {
+		checkNotClosed();
+		List<Entry<String, AsmVisitorMemento>> sorted = BatchedLookups.sortByFileOffset(ids, contigMementos);
+		Map<String, AsmContig> found = new HashMap<>(MapUtil.computeMinHashMapSizeWithoutRehashing(sorted.size()));
+		if(sorted.isEmpty()){
+			return found;
+		}
+		try {
+			Set<String> reads = new HashSet<String>();
+			for(Entry<String, AsmVisitorMemento> entry : sorted){
+				ContigReadIdCollector visitor = new ContigReadIdCollector(entry.getKey());
+				parser.parse(visitor, entry.getValue());
+				reads.addAll(visitor.getReadsInContig());
+			}
+			ValidRangeVisitor validRangeVisitor = new ValidRangeVisitor(reads);
+			parser.parse(validRangeVisitor);
+			Map<String, Range> validRanges = validRangeVisitor.getValidRanges();
+			for(Entry<String, AsmVisitorMemento> entry : sorted){
+				SingleContigVisitorBuilder contigBuilder = new SingleContigVisitorBuilder(validRanges);
+				parser.parse(contigBuilder, entry.getValue());
+				found.put(entry.getKey(), contigBuilder.build());
+			}
+		} catch (IOException e) {
+			throw new DataStoreException("error parsing asm file", e);
+		}
+		Map<String, AsmContig> result = new LinkedHashMap<>(MapUtil.computeMinHashMapSizeWithoutRehashing(found.size()));
+		for(String id : ids){
+			AsmContig contig = found.get(id);
+			if(contig !=null){
+				result.put(id, contig);
+			}
+		}
+		return result;
+	}
 
 
 	@Override
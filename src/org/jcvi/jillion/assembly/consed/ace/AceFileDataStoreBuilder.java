@@ -55,6 +55,11 @@ public final class AceFileDataStoreBuilder {
 	 * will be null if we use an file instead. 
 	 */
 	private final InputStream aceStream;
+	/**
+	 * Optional sidecar index file of contig offsets,
+	 * null if not used.
+	 */
+	private File indexFile;
 	/**
 	 * Create a new instance of {@code AceFileDataStoreBuilder}
 	 * which will build a {@link AceFileDataStore} for the given
@@ -137,6 +142,35 @@ public final class AceFileDataStoreBuilder {
 	}
 	
 	
+	/**
+	 * Use the given sidecar index file of contig offsets
+	 * to provide random access to the contigs without storing them in memory.
+	 * If the index file exists and is up to date with the ace file,
+	 * then {@link #build()} reads the index instead of parsing the ace file, which
+	 * for very large ace files is much faster.  Otherwise the ace file is parsed
+	 * once and the index file is created (or overwritten if it is out of date).
+	 * <p/>
+	 * Setting an index file means any {@link DataStoreProviderHint} is ignored
+	 * and the built {@link AceFileDataStore} will seek directly to each
+	 * contig in {@link AceFileDataStore#get(String)}.  The index
+	 * contains all the contigs in the ace file so the same index file may
+	 * be used with different {@link #filter(DataStoreFilter)}s.
+	 * This option is ignored if this builder uses an {@link InputStream}.
+	 * 
+	 * @param indexFile the index file to read or write; can not be null.
+	 * @return this.
+	 * @throws NullPointerException if indexFile is null.
+	 * 
+	 * @since 5.3
+	 */
+	public AceFileDataStoreBuilder indexFile(File indexFile){
+		if(indexFile==null){
+			throw new NullPointerException("index file can not be null");
+		}
+		this.indexFile = indexFile;
+		return this;
+	}
+	
 	/**
 	 * Parse the given ace file and return
 	 * a new instance of a {@link AceFileDataStore}
@@ -157,6 +191,10 @@ public final class AceFileDataStoreBuilder {
 	 * requirements in memory.  This may cause out of memory errors
 	 * if there is not enough memory available.
 	 * </li>
+	 * <li>
+	 * If an index file has been specified by {@link #indexFile(File)},
+	 * then the hint is ignored and the index is used.
+	 * </li>
 	 * </ul>
 	 * @return a new {@link AceFileDataStore} instance;
 	 * never null.
@@ -176,6 +214,9 @@ public final class AceFileDataStoreBuilder {
 
 	private AceFileDataStore buildFromFile() throws IOException,
 			FileNotFoundException {
+		if(indexFile !=null){
+			return IndexedAceFileDataStore.create(aceFile, indexFile, filter);
+		}
 		switch(hint){
 			case RANDOM_ACCESS_OPTIMIZE_SPEED: return DefaultAceFileDataStore.create(aceFile,filter);
 			case RANDOM_ACCESS_OPTIMIZE_MEMORY: return IndexedAceFileDataStore.create(aceFile,filter);
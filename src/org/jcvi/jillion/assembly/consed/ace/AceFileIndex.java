@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.consed.ace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jcvi.jillion.core.io.IOUtil;
+/**
+ * {@code AceFileIndex} is the byte offset of every contig
+ * in an ace file (and the offset where the tags start)
+ * that can be written to and read from a sidecar index file
+ * so large ace files only have to be completely parsed once.
+ * <p>
+ * The index always contains every contig in the ace file
+ * so the same index file can be used with any {@link org.jcvi.jillion.core.datastore.DataStoreFilter}.
+ * The length and last modified time of the ace file are stored
+ * in the index so stale indexes can be detected.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class AceFileIndex {
+	/**
+	 * "JACX" in ASCII.
+	 */
+	private static final int MAGIC_NUMBER = 0x4A414358;
+	private static final int VERSION = 1;
+	
+	private final long aceFileLength;
+	private final long aceFileLastModified;
+	private final long tagSectionOffset;
+	private final List<ContigEntry> contigs;
+	/**
+	 * The location of a single contig in the ace file.
+	 */
+	static final class ContigEntry{
+		private final String id;
+		private final long offset;
+		private final int numberOfReads;
+		
+		ContigEntry(String id, long offset, int numberOfReads) {
+			this.id = id;
+			this.offset = offset;
+			this.numberOfReads = numberOfReads;
+		}
+
+		String getId() {
+			return id;
+		}
+
+		long getOffset() {
+			return offset;
+		}
+
+		int getNumberOfReads() {
+			return numberOfReads;
+		}
+	}
+	/**
+	 * Create a new AceFileIndex.
+	 * @param aceFile the ace file that was indexed.
+	 * @param contigs the contigs in file order.
+	 * @param tagSectionOffset the offset to start parsing to find all
+	 * the tags or -1 if there are no tags.
+	 */
+	AceFileIndex(File aceFile, List<ContigEntry> contigs, long tagSectionOffset){
+		this(aceFile.length(), aceFile.lastModified(), contigs, tagSectionOffset);
+	}
+	
+	private AceFileIndex(long aceFileLength, long aceFileLastModified, List<ContigEntry> contigs, long tagSectionOffset){
+		this.aceFileLength = aceFileLength;
+		this.aceFileLastModified = aceFileLastModified;
+		this.contigs = Collections.unmodifiableList(contigs);
+		this.tagSectionOffset = tagSectionOffset;
+	}
+	
+	List<ContigEntry> getContigs() {
+		return contigs;
+	}
+	/**
+	 * Get the offset in the ace file to start parsing
+	 * to see all the tags.  Any contigs
+	 * after this offset should be skipped.
+	 * @return the offset or -1 if the ace file has no tags.
+	 */
+	long getTagSectionOffset() {
+		return tagSectionOffset;
+	}
+	/**
+	 * Is this index for the current version of the given ace file.
+	 * @param aceFile the ace file to check.
+	 * @return {@code true} if the ace file has the same length
+	 * and last modified time as when it was indexed.
+	 */
+	boolean isUpToDate(File aceFile){
+		return aceFile.length() == aceFileLength && aceFile.lastModified() == aceFileLastModified;
+	}
+	/**
+	 * Write this index to the given file, overwriting
+	 * it if it already exists.
+	 * @param indexFile the file to write to.
+	 * @throws IOException if there is a problem writing the file.
+	 */
+	void write(File indexFile) throws IOException{
+		IOUtil.mkdirs(indexFile.getAbsoluteFile().getParentFile());
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))){
+			out.writeInt(MAGIC_NUMBER);
+			out.writeInt(VERSION);
+			out.writeLong(aceFileLength);
+			out.writeLong(aceFileLastModified);
+			out.writeLong(tagSectionOffset);
+			out.writeInt(contigs.size());
+			for(ContigEntry contig : contigs){
+				out.writeUTF(contig.getId());
+				out.writeLong(contig.getOffset());
+				out.writeInt(contig.getNumberOfReads());
+			}
+		}
+	}
+	/**
+	 * Read an index previously written by {@link #write(File)}.
+	 * @param indexFile the index file to read.
+	 * @return a new AceFileIndex; will never be null.
+	 * @throws IOException if there is a problem reading the file
+	 * or the file is not a valid index file.
+	 */
+	static AceFileIndex read(File indexFile) throws IOException{
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))){
+			if(in.readInt() != MAGIC_NUMBER){
+				throw new IOException("not an ace index file : " + indexFile.getAbsolutePath());
+			}
+			int version = in.readInt();
+			if(version != VERSION){
+				throw new IOException("unsupported ace index version " + version);
+			}
+			long length = in.readLong();
+			long lastModified = in.readLong();
+			long tagSectionOffset = in.readLong();
+			int numberOfContigs = in.readInt();
+			if(numberOfContigs < 0){
+				throw new IOException("invalid number of contigs " + numberOfContigs);
+			}
+			List<ContigEntry> contigs = new ArrayList<>(numberOfContigs);
+			for(int i=0; i< numberOfContigs; i++){
+				contigs.add(new ContigEntry(in.readUTF(), in.readLong(), in.readInt()));
+			}
+			return new AceFileIndex(length, lastModified, contigs, tagSectionOffset);
+		}
+	}
+}
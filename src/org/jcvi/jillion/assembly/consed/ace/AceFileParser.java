@@ -44,6 +44,7 @@ import org.jcvi.jillion.assembly.consed.ace.AceFileVisitorCallback.AceFileVisito
 import org.jcvi.jillion.core.Direction;
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
 import org.jcvi.jillion.internal.core.io.OpenAwareInputStream;
 import org.jcvi.jillion.internal.core.io.RandomAccessFileInputStream;
 import org.jcvi.jillion.internal.core.io.TextLineParser;
@@ -71,6 +72,22 @@ public abstract class AceFileParser implements AceParser {
 	public static AceParser create(File aceFile) throws IOException{
 		return new FileBasedParser(aceFile);
 	}
+	/**
+	 * Create a new {@link FileBasedParser}
+	 * instance that will parse the given ace file.
+	 * Unlike {@link #create(File)}, the returned type
+	 * can also create mementos from previously saved
+	 * file offsets.
+	 * @param aceFile the ace file to parse/visit;
+	 * can not be null.
+	 * @return a new {@link FileBasedParser}; will never be null.
+	 * @throws IOException if ace file does not exist.
+	 * 
+	 * @since 5.3
+	 */
+	static FileBasedParser createFileBasedParser(File aceFile) throws IOException{
+		return new FileBasedParser(aceFile);
+	}
 	/**
 	 * Create a new Parser object that will parse
 	 * the given inputStream.
@@ -763,7 +780,7 @@ public abstract class AceFileParser implements AceParser {
     }
     
     
-    private static final class FileBasedParser extends AceFileParser {
+    static final class FileBasedParser extends AceFileParser {
 
     	private final File aceFile;
     	
@@ -828,6 +845,23 @@ public abstract class AceFileParser implements AceParser {
 	        }
 	        
 	    }
+		/**
+		 * Create a new {@link AceFileVisitorMemento} that will start
+		 * parsing at the given offset into the ace file, for example
+		 * an offset of a contig that was previously saved to an index file.
+		 * @param fileOffset the offset in the file of the start of a section.
+		 * @return a new {@link AceFileVisitorMemento}; will never be null.
+		 * @throws IllegalArgumentException if fileOffset is negative.
+		 * 
+		 * @since 5.3
+		 */
+		AceFileVisitorMemento createMemento(long fileOffset) {
+			if(fileOffset < 0){
+				throw new IllegalArgumentException("file offset can not be negative");
+			}
+			return new AceFileMemento(fileOffset);
+		}
+		
 		private final class MementoCallbackFactory implements AceFileVisitorCallbackFactory{
 
 			@Override
@@ -852,7 +886,7 @@ public abstract class AceFileParser implements AceParser {
 			}    	
 	    }
 	    
-	    private class AceFileMemento implements AceFileVisitorMemento{
+	    private class AceFileMemento implements AceFileVisitorMemento, FileOffsetMemento{
 	    	private final long startOffset;
 	    	
 			public AceFileMemento(long startOffset) {
@@ -862,6 +896,11 @@ public abstract class AceFileParser implements AceParser {
 			public final long getStartOffset() {
 				return startOffset;
 			}
+			
+			@Override
+			public long getFileOffset() {
+				return startOffset;
+			}
 
 			AceParser getParentParser(){
 				return FileBasedParser.this;
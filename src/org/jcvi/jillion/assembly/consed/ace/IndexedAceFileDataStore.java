@@ -38,6 +38,7 @@ import org.jcvi.jillion.core.datastore.DataStoreFilter;
 import org.jcvi.jillion.core.util.MapUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
 /**
  * {@code IndexedAceFileDataStore} is an implementation of 
  * {@link AceFileDataStore} that only stores an {@link AceFileVisitorMemento}s
@@ -50,16 +51,24 @@ import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
  * access without taking up much memory.  The down side is each contig
  * must be re-parsed each time and the ace file must exist and not
  * get altered during the entire lifetime of this object.
+ * <p/>
+ * The contig offsets can optionally be saved to a sidecar index file
+ * so later instances can skip parsing the ace file entirely.
+ * Lookups do not lock the datastore so several threads
+ * may call {@link #get(String)} at the same time.
  * @author dkatzel
  */
 final class IndexedAceFileDataStore implements AceFileDataStore{
 	
 	private final Map<String, AceFileVisitorMemento> mementos;
-	private final List<WholeAssemblyAceTag> wholeAssemblyTags;
-    private final List<ConsensusAceTag> consensusTags;
-    private final List<ReadAceTag> readTags;
+	/**
+	 * Lazily parsed from {@link #tagSectionOffset}
+	 * if this datastore was created from an index file.
+	 */
+	private volatile AceTags tags;
+	private final long tagSectionOffset;
    
-    private final AceParser parser;
+    private final AceFileParser.FileBasedParser parser;
     private final long totalNumberOfReads;
     
     private volatile boolean closed=false;
@@ -70,21 +79,71 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
     	if(filter==null){
     		throw new NullPointerException("filter can not be null");
     	}
-    	AceParser parser = AceFileParser.create(aceFile);
-    	VisitorBuilder visitorBuilder = new VisitorBuilder(filter);
-    	parser.parse(visitorBuilder);
-    	return new IndexedAceFileDataStore(visitorBuilder, parser, aceFile);
+    	AceFileParser.FileBasedParser parser = AceFileParser.createFileBasedParser(aceFile);
+    	IndexingVisitor visitor = new IndexingVisitor(filter);
+    	parser.parse(visitor);
+    	return new IndexedAceFileDataStore(parser, aceFile, filter, visitor.createIndex(aceFile), visitor.getTags());
+    }
+    /**
+     * Create a new {@link AceFileDataStore} using the given sidecar index file.
+     * If the index file exists and is up to date with the ace file,
+     * then the ace file is not parsed at all.  Otherwise, the ace file
+     * is parsed and the index file is (re)written.
+     * 
+     * @param aceFile the ace file; can not be null and must exist.
+     * @param indexFile the index file to read or write; can not be null.
+     * @param filter the {@link DataStoreFilter} of contig ids to include; can not be null.
+     * @return a new {@link AceFileDataStore}; will never be null.
+     * @throws IOException if there is a problem parsing the ace file or
+     * writing the index file.
+     * @throws NullPointerException if any parameter is null.
+     * 
+     * @since 5.3
+     */
+    public static AceFileDataStore create(File aceFile, File indexFile, DataStoreFilter filter) throws IOException{
+    	if(filter==null){
+    		throw new NullPointerException("filter can not be null");
+    	}
+    	if(indexFile==null){
+    		throw new NullPointerException("index file can not be null");
+    	}
+    	AceFileParser.FileBasedParser parser = AceFileParser.createFileBasedParser(aceFile);
+    	if(indexFile.exists()){
+    		try{
+    			AceFileIndex index = AceFileIndex.read(indexFile);
+    			if(index.isUpToDate(aceFile)){
+    				return new IndexedAceFileDataStore(parser, aceFile, filter, index, null);
+    			}
+    		}catch(IOException e){
+    			//invalid or older index file format
+    			//so re-index the ace file below
+    		}
+    	}
+    	IndexingVisitor visitor = new IndexingVisitor(filter);
+    	parser.parse(visitor);
+    	AceFileIndex index = visitor.createIndex(aceFile);
+    	index.write(indexFile);
+    	return new IndexedAceFileDataStore(parser, aceFile, filter, index, visitor.getTags());
     }
     
-    private IndexedAceFileDataStore(VisitorBuilder builder, AceParser parser, File aceFile){    	
+    private IndexedAceFileDataStore(AceFileParser.FileBasedParser parser, File aceFile, DataStoreFilter filter, AceFileIndex index, AceTags tags){    	
     	this.parser = parser;
-    	this.mementos = builder.mementos;
-    	this.wholeAssemblyTags = builder.wholeAssemblyTags;
-    	this.consensusTags = builder.consensusTags;
-    	this.readTags = builder.readTags;
-    	this.totalNumberOfReads = builder.totalNumberOfReads;
-    	this.filter = builder.filter;
     	this.aceFile = aceFile;
+    	this.filter = filter;
+    	this.tags = tags;
+    	this.tagSectionOffset = index.getTagSectionOffset();
+    	
+    	List<AceFileIndex.ContigEntry> contigs = index.getContigs();
+    	int capacity = MapUtil.computeMinHashMapSizeWithoutRehashing(contigs.size());
+    	mementos = new LinkedHashMap<String, AceFileVisitorMemento>(capacity);
+    	long numberOfReads=0;
+    	for(AceFileIndex.ContigEntry contig : contigs){
+    		if(filter.accept(contig.getId())){
+    			mementos.put(contig.getId(), parser.createMemento(contig.getOffset()));
+    			numberOfReads += contig.getNumberOfReads();
+    		}
+    	}
+    	this.totalNumberOfReads = numberOfReads;
     }
 	
     
@@ -94,6 +153,31 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
     	}
     }
     
+    private AceTags getTags() throws DataStoreException{
+    	AceTags result = tags;
+    	if(result ==null){
+    		synchronized(this){
+    			result = tags;
+    			if(result ==null){
+    				result = parseTags();
+    				tags = result;
+    			}
+    		}
+    	}
+    	return result;
+    }
+    
+    private AceTags parseTags() throws DataStoreException{
+    	TagVisitor visitor = new TagVisitor(filter);
+    	if(tagSectionOffset >=0){
+    		try{
+    			parser.parse(visitor, parser.createMemento(tagSectionOffset));
+    		}catch(IOException e){
+    			throw new DataStoreException("error parsing ace tags from ace file", e);
+    		}
+    	}
+    	return visitor.getTags();
+    }
     
 	@Override
 	public void close() throws IOException {
@@ -175,21 +259,21 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 	public StreamingIterator<WholeAssemblyAceTag> getWholeAssemblyTagIterator()
 			throws DataStoreException {
 		checkNotYetClosed();
-		return DataStoreStreamingIterator.create(this, wholeAssemblyTags.iterator());
+		return DataStoreStreamingIterator.create(this, getTags().wholeAssemblyTags.iterator());
 	}
 
 	@Override
 	public StreamingIterator<ReadAceTag> getReadTagIterator()
 			throws DataStoreException {
 		checkNotYetClosed();
-		return DataStoreStreamingIterator.create(this, readTags.iterator());
+		return DataStoreStreamingIterator.create(this, getTags().readTags.iterator());
 	}
 
 	@Override
 	public StreamingIterator<ConsensusAceTag> getConsensusTagIterator()
 			throws DataStoreException {
 		checkNotYetClosed();
-		return DataStoreStreamingIterator.create(this, consensusTags.iterator());
+		return DataStoreStreamingIterator.create(this, getTags().consensusTags.iterator());
 	}
 
 
@@ -197,35 +281,42 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 
 
 
-	private static class VisitorBuilder implements AceFileVisitor{
+	private static final class AceTags{
 		private final List<WholeAssemblyAceTag> wholeAssemblyTags = new ArrayList<WholeAssemblyAceTag>();
         private final List<ConsensusAceTag> consensusTags = new ArrayList<ConsensusAceTag>();
         private final List<ReadAceTag> readTags = new ArrayList<ReadAceTag>();
+	}
+	/**
+	 * Collects all the tags and skips all the contigs.
+	 */
+	private static class TagVisitor implements AceFileVisitor{
+		private final AceTags tags = new AceTags();
         
         private final DataStoreFilter filter;
 
-        private long totalNumberOfReads;
-        
-        Map<String, AceFileVisitorMemento> mementos;
-        
-		public VisitorBuilder(DataStoreFilter filter) {
+		public TagVisitor(DataStoreFilter filter) {
 			this.filter = filter;
 		}
+		
+		AceTags getTags(){
+			return tags;
+		}
+		/**
+		 * Called before each tag is visited.
+		 */
+		protected void visitTag(){
+			//no-op
+		}
 
 		@Override
 		public void visitHeader(int numberOfContigs, long totalNumberOfReads) {
-			int capacity = MapUtil.computeMinHashMapSizeWithoutRehashing(numberOfContigs);
-			mementos = new LinkedHashMap<String, AceFileVisitorCallback.AceFileVisitorMemento>(capacity);
+			//no-op
 		}
 
 		@Override
 		public AceContigVisitor visitContig(AceFileVisitorCallback callback,
 				String contigId, int numberOfBases, int numberOfReads,
 				int numberOfBaseSegments, boolean reverseComplemented) {
-			if(filter.accept(contigId)){
-				mementos.put(contigId, callback.createMemento());
-				totalNumberOfReads +=numberOfReads;
-			}
 			//always skip
 			return null;
 		}
@@ -234,7 +325,8 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 		public void visitReadTag(String id, String type, String creator,
 				long gappedStart, long gappedEnd, Date creationDate,
 				boolean isTransient) {
-			 readTags.add(new ReadAceTag(id, type, creator, creationDate, 
+			visitTag();
+			tags.readTags.add(new ReadAceTag(id, type, creator, creationDate, 
 	                    Range.of(gappedStart,gappedEnd), isTransient));			
 		}
 
@@ -242,6 +334,7 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 		public AceConsensusTagVisitor visitConsensusTag(String id, String type,
 				String creator, long gappedStart, long gappedEnd,
 				Date creationDate, boolean isTransient) {
+			visitTag();
 			//only visit tags for contigs we care about
 			if(filter.accept(id)){
 				return new AbstractAceConsensusTagVisitor(id, type, creator, 
@@ -250,7 +343,7 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 					
 					@Override
 					protected void visitConsensusTag(ConsensusAceTag consensusTag) {
-						consensusTags.add(consensusTag);						
+						tags.consensusTags.add(consensusTag);						
 					}
 				};
 			}
@@ -261,7 +354,8 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 		@Override
 		public void visitWholeAssemblyTag(String type, String creator,
 				Date creationDate, String data) {
-			 wholeAssemblyTags.add(new WholeAssemblyAceTag(type, creator, creationDate, data.trim()));
+			visitTag();
+			tags.wholeAssemblyTags.add(new WholeAssemblyAceTag(type, creator, creationDate, data.trim()));
 	    }
 
 		@Override
@@ -273,7 +367,44 @@ final class IndexedAceFileDataStore implements AceFileDataStore{
 		public void halted() {
 			//no-op		
 		}        
-        
+	}
+	/**
+	 * Records the offset of every contig (even ones that don't pass the filter
+	 * so the index can be reused with other filters) and collects the tags.
+	 */
+	private static final class IndexingVisitor extends TagVisitor{
+		private final List<AceFileIndex.ContigEntry> contigs = new ArrayList<>();
+		private long lastContigOffset =0;
+		private long tagSectionOffset = -1;
+		
+		public IndexingVisitor(DataStoreFilter filter) {
+			super(filter);
+		}
+		
+		AceFileIndex createIndex(File aceFile){
+			return new AceFileIndex(aceFile, contigs, tagSectionOffset);
+		}
+
+		@Override
+		public AceContigVisitor visitContig(AceFileVisitorCallback callback,
+				String contigId, int numberOfBases, int numberOfReads,
+				int numberOfBaseSegments, boolean reverseComplemented) {
+			lastContigOffset = ((FileOffsetMemento) callback.createMemento()).getFileOffset();
+			contigs.add(new AceFileIndex.ContigEntry(contigId, lastContigOffset, numberOfReads));
+			//always skip
+			return null;
+		}
+		/**
+		 * Tags are usually all at the end of the file
+		 * but to be safe, re-parse the tags starting from the contig
+		 * before the first tag.
+		 */
+		@Override
+		protected void visitTag() {
+			if(tagSectionOffset < 0){
+				tagSectionOffset = lastContigOffset;
+			}
+		}
 	}
 	
 	public static final class SingleAceFileVisitor implements AceFileVisitor {
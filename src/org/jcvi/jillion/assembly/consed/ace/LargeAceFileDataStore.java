@@ -63,12 +63,13 @@ import org.jcvi.jillion.internal.core.util.iter.AbstractBlockingStreamingIterato
 final class LargeAceFileDataStore implements AceFileDataStore{
 
     private final File aceFile;
-    private Long numberOfContigs = null;
-    private Long totalNumberOfReads = null;
-
-    private List<WholeAssemblyAceTag> wholeAssemblyTags = null;
-    private List<ConsensusAceTag> consensusTags = null;
-    private List<ReadAceTag> readTags = null;
+    /**
+     * The sizes and tags are lazy-loaded the first time they are asked for.
+     * They are volatile so once they are loaded they can be read
+     * by several threads without locking.
+     */
+    private volatile Sizes sizes = null;
+    private volatile AceTagsVisitor tags = null;
 
     private final DataStoreFilter contigIdFilter;
     private volatile boolean isClosed;
@@ -147,7 +148,7 @@ final class LargeAceFileDataStore implements AceFileDataStore{
         return isClosed;
     }
 	@Override
-	public synchronized StreamingIterator<String> idIterator() throws DataStoreException {
+	public StreamingIterator<String> idIterator() throws DataStoreException {
 		throwExceptionIfClosed();
 		IdIteratorImpl ids = new IdIteratorImpl();
 		ids.start();
@@ -198,63 +199,72 @@ final class LargeAceFileDataStore implements AceFileDataStore{
 	
 	
 	@Override
-	public synchronized StreamingIterator<WholeAssemblyAceTag> getWholeAssemblyTagIterator()
+	public StreamingIterator<WholeAssemblyAceTag> getWholeAssemblyTagIterator()
 			throws DataStoreException {
 		throwExceptionIfClosed();
-		if( wholeAssemblyTags==null){
-			setTagLists();
-		}
-		return IteratorUtil.createStreamingIterator(wholeAssemblyTags.iterator());
+		return IteratorUtil.createStreamingIterator(getTags().getWholeAssemblyTags().iterator());
 	}
 	@Override
-	public synchronized StreamingIterator<ReadAceTag> getReadTagIterator()
+	public StreamingIterator<ReadAceTag> getReadTagIterator()
 			throws DataStoreException {
 		throwExceptionIfClosed();
-		if( readTags==null){
-			setTagLists();
-		}
-		return IteratorUtil.createStreamingIterator(readTags.iterator());
+		return IteratorUtil.createStreamingIterator(getTags().getReadTags().iterator());
 	}
 	@Override
-	public synchronized StreamingIterator<ConsensusAceTag> getConsensusTagIterator()
+	public StreamingIterator<ConsensusAceTag> getConsensusTagIterator()
 			throws DataStoreException {
 		throwExceptionIfClosed();
-		if( consensusTags==null){
-			setTagLists();
+		return IteratorUtil.createStreamingIterator(getTags().getConsensusTags().iterator());
+	}
+	private AceTagsVisitor getTags() throws DataStoreException {
+		AceTagsVisitor result = tags;
+		if(result ==null){
+			synchronized(this){
+				result = tags;
+				if(result ==null){
+					result = parseTags();
+					tags = result;
+				}
+			}
 		}
-		return IteratorUtil.createStreamingIterator(consensusTags.iterator());
+		return result;
 	}
-	private void setTagLists() throws DataStoreException {
+	private AceTagsVisitor parseTags() throws DataStoreException {
 		try {
 			AceTagsVisitor visitor = new AceTagsVisitor();
 			AceFileParser.create(aceFile).parse(visitor);
 			if(!visitor.isCompletlyParsed()){
 				throw new DataStoreException("could not completely parse tags from ace file");
 			}
-			wholeAssemblyTags = visitor.getWholeAssemblyTags();
-			consensusTags = visitor.getConsensusTags();
-			readTags = visitor.getReadTags();
+			return visitor;
 		} catch (IOException e) {
 			throw new DataStoreException("error parsing ace tags from ace file", e);
 		}
 	}
 	@Override
-	public synchronized long getNumberOfTotalReads() throws DataStoreException {
+	public long getNumberOfTotalReads() throws DataStoreException {
 		throwExceptionIfClosed();
-		if( totalNumberOfReads==null){
-			setNumContigsAndTotalReads();
-		}
-		return totalNumberOfReads;
+		return getSizes().totalNumberOfReads;
 	}
 	@Override
-	public synchronized long getNumberOfRecords() throws DataStoreException {
+	public long getNumberOfRecords() throws DataStoreException {
 		throwExceptionIfClosed();
-		if(numberOfContigs ==null){
-			setNumContigsAndTotalReads();
+		return getSizes().numberOfContigs;
+	}
+	private Sizes getSizes() throws DataStoreException {
+		Sizes result = sizes;
+		if(result ==null){
+			synchronized(this){
+				result = sizes;
+				if(result ==null){
+					result = parseSizes();
+					sizes = result;
+				}
+			}
 		}
-		return numberOfContigs;
+		return result;
 	}
-	private synchronized void setNumContigsAndTotalReads() throws DataStoreException {
+	private Sizes parseSizes() throws DataStoreException {
 		//haven't parsed num contigs yet 
 		SizeVisitor visitor = new SizeVisitor();
 		try {
@@ -262,8 +272,17 @@ final class LargeAceFileDataStore implements AceFileDataStore{
 		} catch (IOException e) {
 			throw new DataStoreException("error parsing number of contigs",e);
 		}
-		totalNumberOfReads= visitor.getTotalNumberOfReads();
-		numberOfContigs= visitor.getNumberOfContigs();
+		return new Sizes(visitor.getNumberOfContigs(), visitor.getTotalNumberOfReads());
+	}
+	
+	private static final class Sizes{
+		private final long numberOfContigs;
+		private final long totalNumberOfReads;
+		
+		Sizes(long numberOfContigs, long totalNumberOfReads) {
+			this.numberOfContigs = numberOfContigs;
+			this.totalNumberOfReads = totalNumberOfReads;
+		}
 	}
 	
 	@Override
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.Rangeable;
+import org.jcvi.jillion.sam.AbstractSamVisitor;
+import org.jcvi.jillion.sam.SamParser;
+import org.jcvi.jillion.sam.SamRecord;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+/**
+ * {@code CoverageDepthArray} is a compact alternative
+ * to a {@link CoverageMap} that only stores the coverage depth
+ * of each position in a region as a primitive int array.
+ * Unlike a {@link CoverageMap}, which keeps a list of every element
+ * in every {@link CoverageRegion}, the memory used only depends on the
+ * length of the region and not on the number of elements so it should be used
+ * when only depth statistics are needed for very deep coverage.
+ * <p>
+ * Depths are computed using a difference array: each element
+ * only increments the count at its start and decrements
+ * the count just past its end so adding an element is constant time
+ * no matter how long it is.  Builders of the same region
+ * can be merged so the depth of a region can be computed from
+ * a parallel stream (see {@link #collector(Range)}).
+ * <p>
+ * Note that positions in the region that are not covered by any elements
+ * are included in the computations with a depth of 0.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class CoverageDepthArray {
+
+	private final Range region;
+	private final int[] depths;
+	
+	private CoverageDepthArray(Range region, int[] depths){
+		this.region = region;
+		this.depths = depths;
+	}
+	/**
+	 * Compute the coverage depth of the given region
+	 * from the given Stream of elements.  If the stream is parallel,
+	 * then each thread will compute the depths of its elements
+	 * and the results merged.
+	 * 
+	 * @param elements the Stream of elements; can not be null.
+	 * Elements or parts of elements that are outside of the region are ignored.
+	 * @param region the region to compute; can not be null.
+	 * @return a new CoverageDepthArray; will never be null.
+	 * @throws NullPointerException if either parameter is null.
+	 */
+	public static CoverageDepthArray create(Stream<? extends Rangeable> elements, Range region){
+		return elements.collect(collector(region));
+	}
+	/**
+	 * Compute the coverage depth of the given region
+	 * of the given reference using the aligned reference
+	 * range of each mapped {@link SamRecord}.
+	 * 
+	 * @param parser the {@link SamParser} to parse; can not be null.
+	 * @param referenceName the name of the reference; can not be null.
+	 * @param region the region of the reference to compute in 0-based reference coordinates; can not be null.
+	 * @return a new CoverageDepthArray; will never be null.
+	 * @throws IOException if there is a problem parsing the SAM or BAM file.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public static CoverageDepthArray create(SamParser parser, String referenceName, Range region) throws IOException{
+		Objects.requireNonNull(referenceName);
+		Builder builder = new Builder(region);
+		parser.parse(referenceName, new AbstractSamVisitor() {
+			@Override
+			public void visitRecord(SamVisitorCallback callback, SamRecord record,
+					VirtualFileOffset start, VirtualFileOffset end) {
+				if(record.mapped()){
+					builder.add(record.getAlignmentRange());
+				}
+			}
+		});
+		return builder.build();
+	}
+	/**
+	 * Create a new {@link Collector} that computes
+	 * the {@link CoverageDepthArray} of the given region.
+	 * This Collector can be used on parallel streams.
+	 * 
+	 * @param region the region to compute; can not be null.
+	 * @return a new Collector; will never be null.
+	 * @throws NullPointerException if region is null.
+	 */
+	public static Collector<Rangeable, Builder, CoverageDepthArray> collector(Range region){
+		Objects.requireNonNull(region);
+		return Collector.of(()-> new Builder(region),
+						Builder::add, 
+						Builder::merge, 
+						Builder::build,
+						Collector.Characteristics.UNORDERED);
+	}
+	/**
+	 * Get the region whose coverage is stored.
+	 * @return the Range; will never be null.
+	 */
+	public Range getRegion(){
+		return region;
+	}
+	/**
+	 * Get the coverage depth at the given offset.
+	 * @param offset the offset which must be in the region.
+	 * @return the depth.
+	 * @throws IndexOutOfBoundsException if offset is not in the region.
+	 */
+	public int getDepth(long offset){
+		if(offset < region.getBegin() || offset > region.getEnd()){
+			throw new IndexOutOfBoundsException("offset " + offset + " is not in region " + region);
+		}
+		return depths[(int)(offset - region.getBegin())];
+	}
+	/**
+	 * Get a copy of the depths of every position in the region.
+	 * @return a new int array where index 0 is the depth
+	 * of the first position of the region.
+	 */
+	public int[] toArray(){
+		return depths.clone();
+	}
+	/**
+	 * Compute the {@link CoverageMapStats} of the whole region.
+	 * @return a new CoverageMapStats; will never be null.
+	 */
+	public CoverageMapStats getStats(){
+		if(depths.length ==0){
+			return new CoverageMapStats(0, 0, 0D);
+		}
+		int min = Integer.MAX_VALUE;
+		int max = 0;
+		long total =0;
+		for(int depth : depths){
+			min = Math.min(min, depth);
+			max = Math.max(max, depth);
+			total += depth;
+		}
+		return new CoverageMapStats(min, max, total / (double) depths.length);
+	}
+	/**
+	 * Compute a histogram of coverage depths.
+	 * @return a new array where the element at index i is the number of
+	 * positions with depth i; the length is the max depth +1.
+	 */
+	public long[] getHistogram(){
+		int max = 0;
+		for(int depth : depths){
+			max = Math.max(max, depth);
+		}
+		long[] histogram = new long[max+1];
+		for(int depth : depths){
+			histogram[depth]++;
+		}
+		return histogram;
+	}
+	/**
+	 * Get the maximal Ranges of the region whose
+	 * depths are all less than the given min depth.
+	 * 
+	 * @param minDepth the min depth a position needs to not be low coverage.
+	 * @return a new List of Ranges in region coordinates sorted by position;
+	 * will never be null but may be empty.
+	 */
+	public List<Range> getLowCoverageRanges(int minDepth){
+		List<Range> ranges = new ArrayList<>();
+		long offset = region.getBegin();
+		int runStart = -1;
+		for(int i=0; i< depths.length; i++){
+			if(depths[i] < minDepth){
+				if(runStart <0){
+					runStart = i;
+				}
+			}else if(runStart >=0){
+				ranges.add(Range.of(offset + runStart, offset + i -1));
+				runStart = -1;
+			}
+		}
+		if(runStart >=0){
+			ranges.add(Range.of(offset + runStart, offset + depths.length -1));
+		}
+		return ranges;
+	}
+	
+	@Override
+	public String toString() {
+		return "CoverageDepthArray [region=" + region + ", stats=" + getStats() + "]";
+	}
+	/**
+	 * Builds a {@link CoverageDepthArray} one element at a time.
+	 * This class is not thread safe but builders of the same region
+	 * can be {@link #merge(Builder) merged}.
+	 * 
+	 * @author dkatzel
+	 *
+	 */
+	public static final class Builder implements org.jcvi.jillion.core.util.Builder<CoverageDepthArray>{
+		private final Range region;
+		private final int[] differences;
+		
+		/**
+		 * Create a new Builder for the given region.
+		 * @param region the region to compute; can not be null.
+		 * @throws NullPointerException if region is null.
+		 * @throws IllegalArgumentException if the region is too long to fit in an array.
+		 */
+		public Builder(Range region){
+			this.region = Objects.requireNonNull(region);
+			if(region.getLength() >= Integer.MAX_VALUE){
+				throw new IllegalArgumentException("region is too long " + region);
+			}
+			differences = new int[(int) region.getLength() +1];
+		}
+		/**
+		 * Add the given element.  Parts of the element outside
+		 * of the region are ignored.
+		 * @param element the element to add; can not be null.
+		 * @return this.
+		 * @throws NullPointerException if element is null.
+		 */
+		public Builder add(Rangeable element){
+			Range range = element.asRange();
+			long begin = Math.max(range.getBegin(), region.getBegin());
+			long end = Math.min(range.getEnd(), region.getEnd());
+			if(begin <= end){
+				differences[(int)(begin - region.getBegin())]++;
+				differences[(int)(end - region.getBegin()) +1]--;
+			}
+			return this;
+		}
+		/**
+		 * Add all the elements added to the other builder to this builder.
+		 * @param other the other builder which must be for the same region; can not be null.
+		 * @return this.
+		 * @throws NullPointerException if other is null.
+		 * @throws IllegalArgumentException if the other builder is for a different region.
+		 */
+		public Builder merge(Builder other){
+			if(!region.equals(other.region)){
+				throw new IllegalArgumentException("can not merge different regions");
+			}
+			for(int i=0; i< differences.length; i++){
+				differences[i] += other.differences[i];
+			}
+			return this;
+		}
+		
+		@Override
+		public CoverageDepthArray build() {
+			int[] depths = new int[differences.length -1];
+			int depth =0;
+			for(int i=0; i< depths.length; i++){
+				depth += differences[i];
+				depths[i] = depth;
+			}
+			return new CoverageDepthArray(region, depths);
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.stream.Collector;
 import java.util.stream.Collector.Characteristics;
 
+import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.Rangeable;
 /**
  * Utility class that contains helpful {@link Collector}s
@@ -156,4 +157,22 @@ public final class CoverageMapCollectors {
                 );
 	}
 	
+	/**
+	 * Returns a {@code Collector} that computes the coverage depth of every
+	 * position in the given region into a new {@link CoverageDepthArray}
+	 * without keeping a reference to any of the input elements.  This uses much less
+	 * memory than {@link #toCoverageMap()} for very deep coverage and can
+	 * be used on parallel streams.
+	 * 
+	 * @param region the region to compute; can not be null.
+	 * @return a {@code Collector} which collects all the input elements into a
+	 * {@code CoverageDepthArray}.
+	 * @throws NullPointerException if region is null.
+	 * 
+	 * @since 5.3
+	 */
+	public static Collector<Rangeable, CoverageDepthArray.Builder, CoverageDepthArray> toCoverageDepthArray(Range region){
+		return CoverageDepthArray.collector(region);
+	}
+	
 }
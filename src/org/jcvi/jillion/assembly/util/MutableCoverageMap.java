@@ -0,0 +1,650 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.Rangeable;
+/**
+ * {@code MutableCoverageMap} is a {@link CoverageMap}
+ * that elements can be added to and removed from
+ * without rebuilding the whole map, for example
+ * in an interactive assembly editor.
+ * <p>
+ * Elements are stored in an interval tree (a treap
+ * ordered by start coordinate where each node also knows the max
+ * end coordinate of its subtree) and the coverage depth
+ * is stored as a second treap of depth changes at every coordinate
+ * where an element begins or ends, which are also the region boundaries.
+ * Adding or removing an element takes O(log n) time and
+ * {@link #getDepth(long)}, {@link #getMaxDepth(Range)} and {@link #getMinDepth(Range)}
+ * take O(log n) time without creating any objects.
+ * <p>
+ * {@link #getRegionWhichCovers(long)}, {@link #getRegionsWhichIntersect(Range)}
+ * and {@link #regions(Range)} only build the {@link CoverageRegion}s that
+ * intersect the query from the two treaps.  The other
+ * methods from the {@link CoverageMap} interface that need every region
+ * use a {@link #snapshot()} which is cached until the next modification.
+ * The regions are exactly the same as a {@link CoverageMapBuilder} would build
+ * from the same elements.  Iterators and Streams of regions are of
+ * the regions at the time they were created and are not affected
+ * by later modifications.
+ * <p>
+ * The {@link Range} of an element must not change while it is
+ * in this map.  Elements with empty ranges are ignored.
+ * This class is not thread safe.
+ * 
+ * @author dkatzel
+ *
+ * @param <T> the type of element in the coverage map.
+ * 
+ * @since 5.3
+ */
+public final class MutableCoverageMap<T extends Rangeable> implements CoverageMap<T>{
+
+	private IntervalNode<T> intervalRoot;
+	private DepthNode depthRoot;
+	
+	private final Map<T, Deque<Long>> sequenceNumbers = new HashMap<>();
+	private long nextSequenceNumber;
+	private int size;
+	/**
+	 * Random treap priorities; the seed is fixed
+	 * so the tree shape is reproducible.
+	 */
+	private long priorityState = 0x9E3779B97F4A7C15L;
+	
+	private CoverageMap<T> regions;
+	
+	/**
+	 * Create a new empty MutableCoverageMap.
+	 */
+	public MutableCoverageMap(){
+		//empty
+	}
+	/**
+	 * Create a new MutableCoverageMap containing the given elements.
+	 * @param elements the elements to add; can not be null or contain nulls.
+	 * @throws NullPointerException if elements is null or contains a null.
+	 */
+	public MutableCoverageMap(Iterable<? extends T> elements){
+		for(T element : elements){
+			add(element);
+		}
+	}
+	
+	private int nextPriority(){
+		//xorshift64
+		long x = priorityState;
+		x ^= x << 13;
+		x ^= x >>> 7;
+		x ^= x << 17;
+		priorityState = x;
+		return (int) x;
+	}
+	/**
+	 * Add the given element to this map.
+	 * @param element the element to add; can not be null.
+	 * @return {@code true} if the element was added; {@code false}
+	 * if the element has an empty range and was ignored.
+	 * @throws NullPointerException if element is null.
+	 */
+	public boolean add(T element){
+		Range range = element.asRange();
+		if(range.isEmpty()){
+			return false;
+		}
+		long sequenceNumber = nextSequenceNumber++;
+		sequenceNumbers.computeIfAbsent(element, k-> new ArrayDeque<>()).push(sequenceNumber);
+		intervalRoot = insert(intervalRoot, new IntervalNode<>(element, range.getBegin(), range.getEnd(), sequenceNumber, nextPriority()));
+		addDepthChange(range.getBegin(), 1, 1);
+		addDepthChange(range.getEnd()+1, -1, 1);
+		size++;
+		regions = null;
+		return true;
+	}
+	/**
+	 * Remove one element equal to the given element from this map.
+	 * @param element the element to remove; can not be null.
+	 * @return {@code true} if an element was removed; {@code false} otherwise.
+	 * @throws NullPointerException if element is null.
+	 */
+	public boolean remove(T element){
+		Deque<Long> deque = sequenceNumbers.get(Objects.requireNonNull(element));
+		if(deque ==null){
+			return false;
+		}
+		long sequenceNumber = deque.pop();
+		if(deque.isEmpty()){
+			sequenceNumbers.remove(element);
+		}
+		Range range = element.asRange();
+		intervalRoot = delete(intervalRoot, range.getBegin(), range.getEnd(), sequenceNumber);
+		addDepthChange(range.getBegin(), -1, -1);
+		addDepthChange(range.getEnd()+1, 1, -1);
+		size--;
+		regions = null;
+		return true;
+	}
+	/**
+	 * Get the number of elements in this map.
+	 * @return the number of elements; will always be &ge; 0.
+	 */
+	public int getNumberOfElements(){
+		return size;
+	}
+	/**
+	 * Get the coverage depth at the given offset.
+	 * @param offset the offset to check.
+	 * @return the number of elements that cover the offset.
+	 */
+	public int getDepth(long offset){
+		int depth =0;
+		DepthNode node = depthRoot;
+		while(node !=null){
+			if(offset < node.coordinate){
+				node = node.left;
+			}else{
+				depth += sum(node.left) + node.change;
+				node = node.right;
+			}
+		}
+		return depth;
+	}
+	/**
+	 * Get the max coverage depth of any offset in the given range.
+	 * @param range the range to check; can not be null.
+	 * @return the max depth or 0 if the range is empty.
+	 * @throws NullPointerException if range is null.
+	 */
+	public int getMaxDepth(Range range){
+		if(range.isEmpty()){
+			return 0;
+		}
+		//depth only changes at a coordinate in the tree
+		//so the max is either at the begin or one of those coordinates
+		return Math.max(getDepth(range.getBegin()),
+				maxPrefix(depthRoot, range.getBegin()+1, range.getEnd(), 0));
+	}
+	/**
+	 * Get the min coverage depth of any offset in the given range.
+	 * @param range the range to check; can not be null.
+	 * @return the min depth or 0 if the range is empty.
+	 * @throws NullPointerException if range is null.
+	 */
+	public int getMinDepth(Range range){
+		if(range.isEmpty()){
+			return 0;
+		}
+		return Math.min(getDepth(range.getBegin()),
+				minPrefix(depthRoot, range.getBegin()+1, range.getEnd(), 0));
+	}
+	/**
+	 * Call the given consumer with every element that intersects the given range.
+	 * Elements are visited in start coordinate order.
+	 * @param range the range to check; can not be null.
+	 * @param consumer the consumer to call; can not be null.
+	 * @throws NullPointerException if either parameter is null.
+	 */
+	public void forEachElementWhichIntersects(Range range, Consumer<? super T> consumer){
+		Objects.requireNonNull(consumer);
+		if(!range.isEmpty()){
+			forEachIntersecting(intervalRoot, range.getBegin(), range.getEnd(), consumer);
+		}
+	}
+	/**
+	 * Get all the elements that intersect the given range.
+	 * @param range the range to check; can not be null.
+	 * @return a new List of elements in start coordinate order; will never be null.
+	 * @throws NullPointerException if range is null.
+	 */
+	public List<T> getElementsWhichIntersect(Range range){
+		List<T> list = new ArrayList<>();
+		forEachElementWhichIntersects(range, list::add);
+		return list;
+	}
+	/**
+	 * Get an immutable {@link CoverageMap} of the current elements.
+	 * @return a CoverageMap; will never be null.
+	 */
+	public CoverageMap<T> snapshot(){
+		if(regions ==null){
+			List<T> elements = new ArrayList<>(size);
+			forEach(intervalRoot, elements::add);
+			regions = new CoverageMapBuilder<T>(elements).build();
+		}
+		return regions;
+	}
+	
+	@Override
+	public int getNumberOfRegions() {
+		return snapshot().getNumberOfRegions();
+	}
+	@Override
+	public CoverageRegion<T> getRegion(int i) {
+		return snapshot().getRegion(i);
+	}
+	@Override
+	public boolean isEmpty() {
+		return size ==0;
+	}
+	@Override
+	public CoverageMapStats getStats() {
+		return snapshot().getStats();
+	}
+	@Override
+	public double getAverageCoverage() {
+		return snapshot().getAverageCoverage();
+	}
+	@Override
+	public int getMinCoverage() {
+		return snapshot().getMinCoverage();
+	}
+	@Override
+	public int getMaxCoverage() {
+		return snapshot().getMaxCoverage();
+	}
+	@Override
+	public List<CoverageRegion<T>> getRegionsWhichIntersect(Range range) {
+		Objects.requireNonNull(range, "range can not be null");
+		if(depthRoot ==null || range.isEmpty()){
+			return Collections.emptyList();
+		}
+		//the last boundary is one past the end of the last region
+		long lastOffset = depthRoot.maxCoordinate -1;
+		long end = Math.min(range.getEnd(), lastOffset);
+		long regionBegin = Math.max(floorCoordinate(depthRoot, range.getBegin()), depthRoot.minCoordinate);
+		List<CoverageRegion<T>> list = new ArrayList<>();
+		while(regionBegin <= end){
+			long next = higherCoordinate(depthRoot, regionBegin);
+			list.add(createRegion(regionBegin, next -1));
+			regionBegin = next;
+		}
+		return list;
+	}
+	@Override
+	public CoverageRegion<T> getRegionWhichCovers(long offset) {
+		if(depthRoot ==null || offset < depthRoot.minCoordinate || offset >= depthRoot.maxCoordinate){
+			return null;
+		}
+		return createRegion(floorCoordinate(depthRoot, offset), higherCoordinate(depthRoot, offset) -1);
+	}
+	/**
+	 * Build the region between 2 adjacent boundaries; every
+	 * element that covers the begin covers the whole region.
+	 */
+	private CoverageRegion<T> createRegion(long begin, long end){
+		List<T> covering = new ArrayList<>();
+		forEachIntersecting(intervalRoot, begin, begin, covering::add);
+		return new DefaultCoverageRegion.Builder<T>(begin, covering)
+										.end(end)
+										.build();
+	}
+	@Override
+	public Stream<CoverageRegion<T>> regions() {
+		return snapshot().regions();
+	}
+	@Override
+	public Stream<CoverageRegion<T>> regions(Range range) {
+		return getRegionsWhichIntersect(range).stream();
+	}
+	@Override
+	public Iterator<CoverageRegion<T>> iterator() {
+		return snapshot().iterator();
+	}
+	
+	@Override
+	public String toString() {
+		return "MutableCoverageMap [numberOfElements=" + size + "]";
+	}
+	
+	////////////////////////////////////////////////////////
+	// interval treap ordered by (begin, end, sequenceNumber)
+	////////////////////////////////////////////////////////
+	
+	private static final class IntervalNode<T>{
+		private final T element;
+		private final long begin, end, sequenceNumber;
+		private final int priority;
+		private long maxEnd;
+		private IntervalNode<T> left, right;
+		
+		IntervalNode(T element, long begin, long end, long sequenceNumber, int priority) {
+			this.element = element;
+			this.begin = begin;
+			this.end = end;
+			this.sequenceNumber = sequenceNumber;
+			this.priority = priority;
+			this.maxEnd = end;
+		}
+		
+		int compareTo(long begin, long end, long sequenceNumber){
+			int cmp = Long.compare(this.begin, begin);
+			if(cmp !=0){
+				return cmp;
+			}
+			cmp = Long.compare(this.end, end);
+			if(cmp !=0){
+				return cmp;
+			}
+			return Long.compare(this.sequenceNumber, sequenceNumber);
+		}
+		
+		void update(){
+			long max = end;
+			if(left !=null){
+				max = Math.max(max, left.maxEnd);
+			}
+			if(right !=null){
+				max = Math.max(max, right.maxEnd);
+			}
+			maxEnd = max;
+		}
+	}
+	
+	private static <T> IntervalNode<T> insert(IntervalNode<T> root, IntervalNode<T> node){
+		if(root ==null){
+			return node;
+		}
+		if(root.compareTo(node.begin, node.end, node.sequenceNumber) > 0){
+			root.left = insert(root.left, node);
+			if(root.left.priority > root.priority){
+				IntervalNode<T> newRoot = root.left;
+				root.left = newRoot.right;
+				root.update();
+				newRoot.right = root;
+				newRoot.update();
+				return newRoot;
+			}
+		}else{
+			root.right = insert(root.right, node);
+			if(root.right.priority > root.priority){
+				IntervalNode<T> newRoot = root.right;
+				root.right = newRoot.left;
+				root.update();
+				newRoot.left = root;
+				newRoot.update();
+				return newRoot;
+			}
+		}
+		root.update();
+		return root;
+	}
+	
+	private static <T> IntervalNode<T> delete(IntervalNode<T> root, long begin, long end, long sequenceNumber){
+		if(root ==null){
+			return null;
+		}
+		int cmp = root.compareTo(begin, end, sequenceNumber);
+		if(cmp ==0){
+			return merge(root.left, root.right);
+		}
+		if(cmp > 0){
+			root.left = delete(root.left, begin, end, sequenceNumber);
+		}else{
+			root.right = delete(root.right, begin, end, sequenceNumber);
+		}
+		root.update();
+		return root;
+	}
+	/**
+	 * Merge 2 treaps where every node in left is less than every node in right.
+	 */
+	private static <T> IntervalNode<T> merge(IntervalNode<T> left, IntervalNode<T> right){
+		if(left ==null){
+			return right;
+		}
+		if(right ==null){
+			return left;
+		}
+		if(left.priority > right.priority){
+			left.right = merge(left.right, right);
+			left.update();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.update();
+		return right;
+	}
+	
+	private static <T> void forEachIntersecting(IntervalNode<T> node, long begin, long end, Consumer<? super T> consumer){
+		if(node ==null || node.maxEnd < begin){
+			//nothing in this subtree reaches the range
+			return;
+		}
+		forEachIntersecting(node.left, begin, end, consumer);
+		if(node.begin > end){
+			//everything to the right starts even later
+			return;
+		}
+		if(node.end >= begin){
+			consumer.accept(node.element);
+		}
+		forEachIntersecting(node.right, begin, end, consumer);
+	}
+	
+	private static <T> void forEach(IntervalNode<T> node, Consumer<? super T> consumer){
+		if(node ==null){
+			return;
+		}
+		forEach(node.left, consumer);
+		consumer.accept(node.element);
+		forEach(node.right, consumer);
+	}
+	
+	////////////////////////////////////////////////////////
+	// depth change treap ordered by coordinate
+	////////////////////////////////////////////////////////
+	
+	private static final class DepthNode{
+		private final long coordinate;
+		private final int priority;
+		private int change;
+		/**
+		 * Number of element begins and ends at this coordinate;
+		 * the node is kept even if the changes cancel out
+		 * since it is still a region boundary.
+		 */
+		private int boundaries;
+		
+		private long minCoordinate, maxCoordinate;
+		private int sum, maxPrefix, minPrefix;
+		private DepthNode left, right;
+		
+		DepthNode(long coordinate, int change, int priority) {
+			this.coordinate = coordinate;
+			this.change = change;
+			this.priority = priority;
+			update();
+		}
+		/**
+		 * Recompute the aggregate values of this subtree:
+		 * the sum of all the changes and the max and min
+		 * running sum at any coordinate in the subtree.
+		 */
+		void update(){
+			int leftSum = sum(left);
+			int prefix = leftSum + change;
+			int max = prefix;
+			int min = prefix;
+			minCoordinate = coordinate;
+			maxCoordinate = coordinate;
+			if(left !=null){
+				max = Math.max(max, left.maxPrefix);
+				min = Math.min(min, left.minPrefix);
+				minCoordinate = left.minCoordinate;
+			}
+			if(right !=null){
+				max = Math.max(max, prefix + right.maxPrefix);
+				min = Math.min(min, prefix + right.minPrefix);
+				maxCoordinate = right.maxCoordinate;
+			}
+			sum = prefix + sum(right);
+			maxPrefix = max;
+			minPrefix = min;
+		}
+	}
+	
+	private static int sum(DepthNode node){
+		return node ==null ? 0 : node.sum;
+	}
+	
+	private void addDepthChange(long coordinate, int change, int boundaries){
+		depthRoot = addDepthChange(depthRoot, coordinate, change, boundaries);
+	}
+	
+	private DepthNode addDepthChange(DepthNode root, long coordinate, int change, int boundaries){
+		if(root ==null){
+			DepthNode node = new DepthNode(coordinate, change, nextPriority());
+			node.boundaries = boundaries;
+			return node;
+		}
+		if(coordinate == root.coordinate){
+			root.change += change;
+			root.boundaries += boundaries;
+			if(root.boundaries ==0){
+				//no longer a boundary
+				return merge(root.left, root.right);
+			}
+		}else if(coordinate < root.coordinate){
+			root.left = addDepthChange(root.left, coordinate, change, boundaries);
+			if(root.left !=null && root.left.priority > root.priority){
+				DepthNode newRoot = root.left;
+				root.left = newRoot.right;
+				root.update();
+				newRoot.right = root;
+				newRoot.update();
+				return newRoot;
+			}
+		}else{
+			root.right = addDepthChange(root.right, coordinate, change, boundaries);
+			if(root.right !=null && root.right.priority > root.priority){
+				DepthNode newRoot = root.right;
+				root.right = newRoot.left;
+				root.update();
+				newRoot.left = root;
+				newRoot.update();
+				return newRoot;
+			}
+		}
+		root.update();
+		return root;
+	}
+	
+	/**
+	 * Get the largest coordinate &le; the given value.
+	 * @return the coordinate or {@link Long#MIN_VALUE} if there isn't one.
+	 */
+	private static long floorCoordinate(DepthNode node, long value){
+		long floor = Long.MIN_VALUE;
+		while(node !=null){
+			if(node.coordinate > value){
+				node = node.left;
+			}else{
+				floor = node.coordinate;
+				node = node.right;
+			}
+		}
+		return floor;
+	}
+	/**
+	 * Get the smallest coordinate &gt; the given value.
+	 * @return the coordinate or {@link Long#MAX_VALUE} if there isn't one.
+	 */
+	private static long higherCoordinate(DepthNode node, long value){
+		long higher = Long.MAX_VALUE;
+		while(node !=null){
+			if(node.coordinate <= value){
+				node = node.right;
+			}else{
+				higher = node.coordinate;
+				node = node.left;
+			}
+		}
+		return higher;
+	}
+	
+	private static DepthNode merge(DepthNode left, DepthNode right){
+		if(left ==null){
+			return right;
+		}
+		if(right ==null){
+			return left;
+		}
+		if(left.priority > right.priority){
+			left.right = merge(left.right, right);
+			left.update();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.update();
+		return right;
+	}
+	/**
+	 * Max running sum at any coordinate in [begin, end] of this subtree.
+	 * @param base the sum of all changes before this subtree.
+	 * @return the max or {@link Integer#MIN_VALUE} if no coordinates are in range.
+	 */
+	private static int maxPrefix(DepthNode node, long begin, long end, int base){
+		if(node ==null || begin > end || node.maxCoordinate < begin || node.minCoordinate > end){
+			return Integer.MIN_VALUE;
+		}
+		if(node.minCoordinate >= begin && node.maxCoordinate <= end){
+			return base + node.maxPrefix;
+		}
+		int max = maxPrefix(node.left, begin, end, base);
+		int prefix = base + sum(node.left) + node.change;
+		if(node.coordinate >= begin && node.coordinate <= end){
+			max = Math.max(max, prefix);
+		}
+		return Math.max(max, maxPrefix(node.right, begin, end, prefix));
+	}
+	/**
+	 * Min running sum at any coordinate in [begin, end] of this subtree.
+	 * @param base the sum of all changes before this subtree.
+	 * @return the min or {@link Integer#MAX_VALUE} if no coordinates are in range.
+	 */
+	private static int minPrefix(DepthNode node, long begin, long end, int base){
+		if(node ==null || begin > end || node.maxCoordinate < begin || node.minCoordinate > end){
+			return Integer.MAX_VALUE;
+		}
+		if(node.minCoordinate >= begin && node.maxCoordinate <= end){
+			return base + node.minPrefix;
+		}
+		int min = minPrefix(node.left, begin, end, base);
+		int prefix = base + sum(node.left) + node.change;
+		if(node.coordinate >= begin && node.coordinate <= end){
+			min = Math.min(min, prefix);
+		}
+		return Math.min(min, minPrefix(node.right, begin, end, prefix));
+	}
+}
@@ -32,7 +32,7 @@ import org.jcvi.jillion.core.qual.PhredQuality;
 import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
 import org.jcvi.jillion.core.util.Builder;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
-import org.jcvi.jillion.internal.assembly.util.CompactedSliceMap;
+import org.jcvi.jillion.internal.assembly.util.ReadIndexedSliceMap;
 
 public final class SliceMapBuilder<R extends AssembledRead> implements Builder<SliceMap>{
 
@@ -110,9 +110,9 @@ public final class SliceMapBuilder<R extends AssembledRead> implements Builder<S
 			}					
 			if(qualities == null){
 				//no quality datastore set use default quality
-				return CompactedSliceMap.create(iter, contig.getConsensusSequence(), defaultQuality, qualityValueStrategy );			
+				return ReadIndexedSliceMap.create(iter, contig.getConsensusSequence(), defaultQuality);
 			}
-			return CompactedSliceMap.create(contig,contig.getConsensusSequence(), qualities, qualityValueStrategy );
+			return ReadIndexedSliceMap.create(iter, contig.getConsensusSequence(), qualities, qualityValueStrategy );
 		} catch (DataStoreException e) {
 			throw new IllegalStateException("error building SliceMap",e);
 		}finally{
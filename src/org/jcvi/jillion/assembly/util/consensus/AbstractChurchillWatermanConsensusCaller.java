@@ -56,6 +56,35 @@ import org.jcvi.jillion.core.util.SingleThreadAdder;
 abstract class AbstractChurchillWatermanConsensusCaller implements ConsensusCaller{
     
    
+	private static final int NUMBER_OF_NUCLEOTIDES = Nucleotide.values().length;
+	
+	private static final double ONE_TENTH = 0.1D;
+
+	private static final double ONE_QUARTER = 0.25D;
+	
+	private static final int[] BASES_TO_CONSIDER_ORDINALS = new int[BASES_TO_CONSIDER.size()];
+	/**
+	 * {@link Nucleotide#getAmbiguityFor(java.util.Collection)} of every
+	 * subset of {@link ConsensusUtil#BASES_TO_CONSIDER} indexed by a bit mask
+	 * where bit i is set if {@code BASES_TO_CONSIDER.get(i)} is in the subset.
+	 */
+	private static final Nucleotide[] AMBIGUITY_BY_MASK = new Nucleotide[1 << BASES_TO_CONSIDER.size()];
+	
+	static{
+		for(int i=0; i< BASES_TO_CONSIDER_ORDINALS.length; i++){
+			BASES_TO_CONSIDER_ORDINALS[i] = BASES_TO_CONSIDER.get(i).ordinal();
+		}
+		for(int mask=0; mask< AMBIGUITY_BY_MASK.length; mask++){
+			Set<Nucleotide> bases = EnumSet.noneOf(Nucleotide.class);
+			for(int i=0; i< BASES_TO_CONSIDER_ORDINALS.length; i++){
+				if((mask & (1<<i)) !=0){
+					bases.add(BASES_TO_CONSIDER.get(i));
+				}
+			}
+			AMBIGUITY_BY_MASK[mask] = Nucleotide.getAmbiguityFor(bases);
+		}
+	}
+	
 	 private final PhredQuality highQualityThreshold;
 	  
 	    
@@ -223,6 +252,192 @@ abstract class AbstractChurchillWatermanConsensusCaller implements ConsensusCall
         return basesUsed;
     }
     
+    /**
+     * Compute the consensus of a column using only
+     * primitive arrays of per {@link Nucleotide} counts and cumulative quality values
+     * (indexed by {@link Nucleotide#ordinal()}) instead of a {@link Slice}.
+     * This computes the same result as {@link #callConsensus(Slice)}
+     * for a Slice with the same counts and qualities but does not allocate
+     * any Maps so it can be used to call consensus on very large assemblies.
+     * Only call this if {@link #canCallConsensusFromCounts()} returns {@code true}.
+     * 
+     * @param counts the number of times each base is seen in each column.
+     * @param qualitySums the sum of the quality values of each base in each column.
+     * @param offset the offset into both arrays of the column's ordinal 0 value.
+     * @return a new ConsensusResult; will never be null.
+     */
+    final ConsensusResult callConsensus(int[] counts, int[] qualitySums, int offset){
+        int depth=0;
+        int totalQuality=0;
+        for(int i=0; i< NUMBER_OF_NUCLEOTIDES; i++){
+            depth += counts[offset +i];
+            totalQuality += qualitySums[offset +i];
+        }
+        if(depth ==0){
+            return new DefaultConsensusResult(Nucleotide.Gap,0);
+        }
+        double[] normalizedErrorProbabilities = computeNormalizedErrorProbabilities(qualitySums, offset);
+        Nucleotide consensus = getConsensus(normalizedErrorProbabilities, counts, qualitySums, offset);
+        if(consensus ==null){
+            throw new IllegalStateException(getClass().getName() + " can only call consensus from a Slice");
+        }
+        
+        double lowest = Double.MAX_VALUE;
+        for(double probability : normalizedErrorProbabilities){
+            if(probability < lowest){
+                lowest = probability;
+            }
+        }
+        if(lowest == Double.MAX_VALUE || lowest == 0.0D){
+            //special case if we only have matches, then sum slice qualities
+            return new DefaultConsensusResult(consensus, totalQuality);
+        }
+        return new DefaultConsensusResult(consensus, PhredQuality.computeQualityScore(lowest));
+    }
+    /**
+     * Get the consensus of a column which is guaranteed to have coverage
+     * from only the per {@link Nucleotide} counts and cumulative quality values
+     * of the column.  Implementations that override this method
+     * must return the same result as {@link #getConsensus(ConsensusProbabilities, Slice)}
+     * for a Slice with the same counts and qualities.  Callers that need
+     * more information than that (for example the individual quality values of each element)
+     * should not override this method.
+     * 
+     * @param normalizedErrorProbabilities the normalized probabilities in the same
+     * order as {@link ConsensusUtil#BASES_TO_CONSIDER}.
+     * @param counts the number of times each base is seen in each column
+     * indexed by {@link Nucleotide#ordinal()}.
+     * @param qualitySums the sum of the quality values of each base in each column
+     * indexed by {@link Nucleotide#ordinal()}.
+     * @param offset the offset into both arrays of the column's ordinal 0 value.
+     * @return a {@link Nucleotide} that may be ambiguous; or {@code null}
+     * if this implementation can only compute consensus from a Slice.
+     * This implementation always returns {@code null}.
+     * 
+     * @see #canCallConsensusFromCounts()
+     * 
+     * @since 5.3
+     */
+    protected Nucleotide getConsensus(double[] normalizedErrorProbabilities, int[] counts, int[] qualitySums, int offset){
+        return null;
+    }
+    /**
+     * Can this caller compute consensus from just
+     * the counts and quality sums of each column using
+     * {@link #getConsensus(double[], int[], int[], int)}.  That is only
+     * true if that method is overridden by the same class
+     * (or a subclass of the class) that implements
+     * {@link #getConsensus(ConsensusProbabilities, Slice)} so a
+     * subclass that only changes how a Slice is called is always given Slices.
+     * 
+     * @return {@code true} if counts and quality sums are enough;
+     * {@code false} if this caller needs a Slice.
+     */
+    final boolean canCallConsensusFromCounts(){
+        Class<?> sliceImplementation = getDeclaringClass(getClass(), ConsensusProbabilities.class, Slice.class);
+        Class<?> countsImplementation = getDeclaringClass(getClass(), double[].class, int[].class, int[].class, int.class);
+        return countsImplementation != AbstractChurchillWatermanConsensusCaller.class
+                && sliceImplementation.isAssignableFrom(countsImplementation);
+    }
+    
+    private static Class<?> getDeclaringClass(Class<?> type, Class<?>... parameterTypes){
+        for(Class<?> current = type; current !=null; current = current.getSuperclass()){
+            try {
+                current.getDeclaredMethod("getConsensus", parameterTypes);
+                return current;
+            } catch (NoSuchMethodException e) {
+                //keep looking in the super class
+            }
+        }
+        throw new IllegalStateException("no getConsensus method found in " + type);
+    }
+    /**
+     * Same math in the same order as 
+     * {@link #generateNormalizedProbabilityStruct(Map)}
+     * so the values are identical.
+     */
+    private static double[] computeNormalizedErrorProbabilities(int[] qualitySums, int offset){
+        int numberOfBases = BASES_TO_CONSIDER_ORDINALS.length;
+        double[] errorProbabilities = new double[numberOfBases];
+        for(int j=0; j< numberOfBases; j++){
+            errorProbabilities[j] = Math.pow(ONE_TENTH, qualitySums[offset + BASES_TO_CONSIDER_ORDINALS[j]]*ONE_TENTH);
+        }
+        double[] raw = new double[numberOfBases];
+        double sumOfRawProbabilities=0D;
+        for(int x=0; x< numberOfBases; x++){
+            double result = 1D;
+            for(int j=0; j< numberOfBases; j++){
+                result *= x==j ? 1 - errorProbabilities[j] : errorProbabilities[j] * ONE_QUARTER;
+            }
+            raw[x] = result;
+            sumOfRawProbabilities += result;
+        }
+        double[] normalized = new double[numberOfBases];
+        for(int x=0; x< numberOfBases; x++){
+            double result = 0D;
+            for(int y=0; y< numberOfBases; y++){
+                if(y !=x){
+                    result += raw[y];
+                }
+            }
+            normalized[x] = result/sumOfRawProbabilities;
+        }
+        return normalized;
+    }
+    /**
+     * Primitive version of {@link #getBasesUsedTowardsAmbiguity(ConsensusProbabilities, int)}
+     * that does not create any objects.
+     * 
+     * @param normalizedErrorProbabilities the normalized probabilities in the same
+     * order as {@link ConsensusUtil#BASES_TO_CONSIDER}.
+     * @param baseCount the max number of bases to use.
+     * @return a bit mask where bit i is set if {@code BASES_TO_CONSIDER.get(i)}
+     * is used towards the ambiguity.
+     * 
+     * @see #getAmbiguityFor(int)
+     * 
+     * @since 5.3
+     */
+    protected final int getBasesUsedTowardsAmbiguity(
+            double[] normalizedErrorProbabilities, int baseCount) {
+        double errorProbabilityOfAmbiguity;
+        double sumOfProbabilitySuccess=0D;
+        int basesUsed = 0;
+        do
+        {
+            //next lowest probability, ties go to the earliest base
+            //the same as the stable sort done by Collections.sort
+            int index = -1;
+            for(int i=0; i< normalizedErrorProbabilities.length; i++){
+                if((basesUsed & (1<<i)) ==0 
+                        && (index <0 || Double.compare(normalizedErrorProbabilities[i], normalizedErrorProbabilities[index]) <0)){
+                    index = i;
+                }
+            }
+            sumOfProbabilitySuccess += (1 - normalizedErrorProbabilities[index]);
+            basesUsed |= 1<<index;
+            errorProbabilityOfAmbiguity = 1-sumOfProbabilitySuccess;
+        }while( sumOfProbabilitySuccess <1D && underThreshold(errorProbabilityOfAmbiguity)
+                && Integer.bitCount(basesUsed)< baseCount );
+        
+        return basesUsed;
+    }
+    /**
+     * Get the ambiguity {@link Nucleotide} of the given bases
+     * without creating any objects.  This is the same as
+     * {@link Nucleotide#getAmbiguityFor(java.util.Collection)}
+     * of a collection of the bases in the mask.
+     * 
+     * @param basesMask a bit mask where bit i is set if
+     * {@code ConsensusUtil.BASES_TO_CONSIDER.get(i)} is included.
+     * @return the ambiguity {@link Nucleotide}; will never be null.
+     * 
+     * @since 5.3
+     */
+    protected static Nucleotide getAmbiguityFor(int basesMask){
+        return AMBIGUITY_BY_MASK[basesMask];
+    }
+    
     private boolean underThreshold(double errorProbability){
         return PhredQuality.computeQualityScore(errorProbability) < getHighQualityThreshold().getQualityScore();
      }
@@ -48,4 +48,13 @@ public class AcgtnConsensusCaller extends NoAmbiguityConsensusCaller{
       return Nucleotide.Unknown;
     }
 
+    @Override
+    protected Nucleotide getConsensus(double[] normalizedErrorProbabilities,
+            int[] counts, int[] qualitySums, int offset) {
+        Nucleotide acgt = super.getConsensus(normalizedErrorProbabilities, counts, qualitySums, offset);
+        if(counts[offset + acgt.ordinal()] >0){
+            return acgt;
+        }
+        return Nucleotide.Unknown;
+    }
 }
@@ -65,6 +65,13 @@ public final class ChurchillWatermanConsensusCaller extends AbstractChurchillWat
         
     }
     
+    @Override
+    protected Nucleotide getConsensus(double[] normalizedErrorProbabilities,
+            int[] counts, int[] qualitySums, int offset) {
+        return getAmbiguityFor(getBasesUsedTowardsAmbiguity(normalizedErrorProbabilities,
+                MAX_NUMBER_OF_BASES_TOWARDS_AMBIGUITY));
+    }
+    
     
 
     
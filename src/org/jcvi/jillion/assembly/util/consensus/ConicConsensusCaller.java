@@ -172,4 +172,31 @@ public class ConicConsensusCaller extends AbstractChurchillWatermanConsensusCall
     }
 
     
+    @Override
+    protected Nucleotide getConsensus(double[] normalizedErrorProbabilities,
+            int[] counts, int[] qualitySums, int offset) {
+        //same logic as above using primitive quality sums
+        //and a bit mask of the bases to consider
+        int numberOfBases = ConsensusUtil.BASES_TO_CONSIDER.size();
+        int maxQualitySum=0;
+        //gap is the last base to consider
+        int maxQualityIndex= numberOfBases -1;
+        for(int i=0; i< numberOfBases; i++){
+            int qualitySum = qualitySums[offset + ConsensusUtil.BASES_TO_CONSIDER.get(i).ordinal()];
+            if(qualitySum > maxQualitySum){
+                maxQualitySum = qualitySum;
+                maxQualityIndex = i;
+            }
+        }
+        int basesTowardsAmbiguity = 1<< maxQualityIndex;
+        for(int i=0; i< numberOfBases; i++){
+            if(i !=maxQualityIndex ){
+                double tangent = ((double) qualitySums[offset + ConsensusUtil.BASES_TO_CONSIDER.get(i).ordinal()])/maxQualitySum;
+                if(tangent < upperlimit && tangent > lowerlimit){
+                    basesTowardsAmbiguity |= 1<<i;
+                }
+            }
+        }
+        return getAmbiguityFor(basesTowardsAmbiguity);
+    }
 }
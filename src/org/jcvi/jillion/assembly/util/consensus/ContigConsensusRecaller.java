@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util.consensus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.assembly.AssembledRead;
+import org.jcvi.jillion.assembly.Contig;
+import org.jcvi.jillion.assembly.util.GapQualityValueStrategy;
+import org.jcvi.jillion.assembly.util.SliceMap;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.assembly.util.ReadIndexedSliceMap;
+/**
+ * {@code ContigConsensusRecaller} recomputes the consensus
+ * of {@link Contig}s using a {@link ConsensusCaller}.
+ * <p>
+ * Instead of building a {@link org.jcvi.jillion.assembly.util.Slice} for every column,
+ * the reads are sorted by start offset and each contig is split into chunks
+ * of consecutive columns which are called in parallel on a {@link ForkJoinPool}.
+ * Each chunk only keeps primitive arrays of the number of times each base is seen
+ * in each of its columns and the sum of their quality values; 
+ * these are all that the {@link ChurchillWatermanConsensusCaller}, {@link NoAmbiguityConsensusCaller},
+ * {@link AcgtnConsensusCaller}, {@link ConicConsensusCaller} and 
+ * {@link MostFrequentBasecallConsensusCaller} implementations need, so no Maps or
+ * slice elements are created per column.
+ * </p>
+ * <p>
+ * Subclasses of those callers are also called from the arrays if they override
+ * {@code getConsensus(double[], int[], int[], int)} wherever they override
+ * how a Slice is called.
+ * </p>
+ * <p>
+ * Any other {@link ConsensusCaller} is given a Slice for each column
+ * from a read indexed {@link SliceMap}, which is slower but still done in parallel.
+ * </p>
+ * <p>
+ * The consensus of a column without any coverage is whatever the ConsensusCaller
+ * returns for an empty Slice.
+ * </p>
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class ContigConsensusRecaller {
+	/**
+	 * The default number of consecutive columns called by each task.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 10_000;
+	
+	private static final PhredQuality DEFAULT_QUALITY = PhredQuality.valueOf(25);
+	
+	private static final int NUMBER_OF_NUCLEOTIDES = Nucleotide.values().length;
+	
+	private final ConsensusCaller caller;
+	/**
+	 * Null if the caller needs Slices.
+	 */
+	private final ColumnConsensusCaller columnCaller;
+	private final byte defaultQuality;
+	private final QualitySequenceDataStore qualities;
+	private final GapQualityValueStrategy qualityValueStrategy;
+	private final int chunkSize;
+	private final ForkJoinPool pool;
+	
+	@FunctionalInterface
+	private interface ColumnConsensusCaller{
+		ConsensusResult callConsensus(int[] counts, int[] qualitySums, int offset);
+	}
+	
+	private ContigConsensusRecaller(Builder builder){
+		this.caller = builder.caller;
+		this.columnCaller = createColumnCallerFor(caller);
+		this.defaultQuality = builder.defaultQuality.getQualityScore();
+		this.qualities = builder.qualities;
+		this.qualityValueStrategy = builder.qualityValueStrategy;
+		this.chunkSize = builder.chunkSize;
+		this.pool = builder.pool;
+	}
+	
+	private static ColumnConsensusCaller createColumnCallerFor(ConsensusCaller caller){
+		if(caller instanceof MostFrequentBasecallConsensusCaller){
+			return ((MostFrequentBasecallConsensusCaller) caller)::callConsensus;
+		}
+		if(caller instanceof AbstractChurchillWatermanConsensusCaller){
+			AbstractChurchillWatermanConsensusCaller churchillWatermanCaller = (AbstractChurchillWatermanConsensusCaller) caller;
+			if(churchillWatermanCaller.canCallConsensusFromCounts()){
+				return churchillWatermanCaller::callConsensus;
+			}
+		}
+		return null;
+	}
+	/**
+	 * Compute the consensus of the given contig.
+	 * The returned consensus will be the same length as the
+	 * contig's current consensus; any read bases beyond the current consensus
+	 * are ignored.
+	 * 
+	 * @param contig the contig to recall; can not be null.
+	 * @return a new {@link NucleotideSequence}; will never be null.
+	 * 
+	 * @throws NullPointerException if contig is null or if a read
+	 * does not have any qualities in the quality datastore.
+	 * @throws IllegalStateException if there is a problem getting the quality values.
+	 */
+	public NucleotideSequence recallConsensus(Contig<? extends AssembledRead> contig){
+		Objects.requireNonNull(contig);
+		return invoke(()-> computeConsensus(contig));
+	}
+	/**
+	 * Compute the consensus of each of the given contigs.
+	 * Contigs are computed in parallel and long contigs are
+	 * also split into chunks that are called in parallel.
+	 * 
+	 * @param contigs the contigs to recall; can not be null
+	 * and each contig must have a unique id.
+	 * 
+	 * @return a new Map of contig id to new consensus; will never be null.
+	 * 
+	 * @throws NullPointerException if contigs is null or if a read
+	 * does not have any qualities in the quality datastore.
+	 * @throws IllegalStateException if there is a problem getting the quality values
+	 * or if there are duplicate contig ids.
+	 */
+	public Map<String, NucleotideSequence> recallConsensus(Stream<? extends Contig<? extends AssembledRead>> contigs){
+		Objects.requireNonNull(contigs);
+		return invoke(()-> contigs.parallel()
+								.collect(Collectors.toMap(Contig::getId, this::computeConsensus)));
+	}
+	
+	private NucleotideSequence computeConsensus(Contig<? extends AssembledRead> contig){
+		int length = (int) contig.getConsensusSequence().getLength();
+		Nucleotide[] calls = new Nucleotide[length];
+		if(columnCaller ==null){
+			callEachSlice(contig, calls);
+		}else{
+			SortedReads reads = new SortedReads(contig.getReadIterator());
+			int numberOfChunks = (length + chunkSize -1)/chunkSize;
+			IntStream.range(0, numberOfChunks).parallel()
+					.forEach(i-> callChunk(reads, i*chunkSize, Math.min(length, (i+1)*chunkSize), calls));
+		}
+		return new NucleotideSequenceBuilder(length)
+						.append(calls)
+						.build();
+	}
+	
+	private void callEachSlice(Contig<? extends AssembledRead> contig, Nucleotide[] calls){
+		SliceMap sliceMap;
+		try{
+			if(qualities ==null){
+				sliceMap = ReadIndexedSliceMap.create(contig.getReadIterator(), contig.getConsensusSequence(),
+											PhredQuality.valueOf(defaultQuality));
+			}else{
+				sliceMap = ReadIndexedSliceMap.create(contig.getReadIterator(), contig.getConsensusSequence(),
+											qualities, qualityValueStrategy);
+			}
+		} catch (DataStoreException e) {
+			throw new IllegalStateException("error getting quality values for contig " + contig.getId(), e);
+		}
+		IntStream.range(0, calls.length).parallel()
+				.forEach(i-> calls[i] = caller.callConsensus(sliceMap.getSlice(i)).getConsensus());
+	}
+	
+	private void callChunk(SortedReads reads, int chunkStart, int chunkEnd, Nucleotide[] calls){
+		int[] counts = new int[(chunkEnd - chunkStart) * NUMBER_OF_NUCLEOTIDES];
+		int[] qualitySums = new int[counts.length];
+		
+		long minStart = (long) chunkStart - reads.maxLength;
+		for(int i = reads.firstIndexStartingAtOrAfter(chunkEnd) -1; i>=0 && reads.starts[i] > minStart; i--){
+			AssembledRead read = reads.reads[i];
+			int readStart = reads.starts[i];
+			int from = Math.max(chunkStart, readStart);
+			int to = Math.min(chunkEnd, readStart + reads.lengths[i]);
+			if(from >= to){
+				continue;
+			}
+			byte[] readQualities = getGappedQualities(read);
+			Iterator<Nucleotide> bases = read.getNucleotideSequence().iterator(Range.of(from - readStart, to - readStart -1));
+			for(int column = from; column < to; column++){
+				int index = (column - chunkStart) * NUMBER_OF_NUCLEOTIDES + bases.next().ordinal();
+				counts[index]++;
+				qualitySums[index] += readQualities ==null ? defaultQuality : readQualities[column - readStart];
+			}
+		}
+		for(int column = chunkStart; column < chunkEnd; column++){
+			calls[column] = columnCaller.callConsensus(counts, qualitySums, (column - chunkStart)* NUMBER_OF_NUCLEOTIDES)
+										.getConsensus();
+		}
+	}
+	/**
+	 * Get the gapped valid range qualities of the read.
+	 * @return the qualities or {@code null} if using a default quality.
+	 */
+	private byte[] getGappedQualities(AssembledRead read){
+		if(qualities ==null){
+			return null;
+		}
+		String id = read.getId();
+		QualitySequence fullQualities;
+		try {
+			fullQualities = qualities.get(id);
+		} catch (DataStoreException e) {
+			throw new IllegalStateException("error getting quality values for read " + id, e);
+		}
+		if(fullQualities ==null){
+			throw new NullPointerException("could not get qualities for "+id);
+		}
+		return qualityValueStrategy.getGappedValidRangeQualitySequenceFor(read, fullQualities).toArray();
+	}
+	
+	private <T> T invoke(Callable<T> task){
+		try {
+			return pool.submit(task).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while calling consensus", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("error calling consensus", cause);
+		}
+	}
+	/**
+	 * The reads of a contig sorted by gapped start offset.
+	 */
+	private static final class SortedReads{
+		private final AssembledRead[] reads;
+		private final int[] starts;
+		private final int[] lengths;
+		private final int maxLength;
+		
+		SortedReads(StreamingIterator<? extends AssembledRead> iter){
+			List<AssembledRead> list = new ArrayList<>();
+			try{
+				while(iter.hasNext()){
+					list.add(iter.next());
+				}
+			}finally{
+				IOUtil.closeAndIgnoreErrors(iter);
+			}
+			list.sort(Comparator.comparingLong(AssembledRead::getGappedStartOffset));
+			reads = list.toArray(new AssembledRead[list.size()]);
+			starts = new int[reads.length];
+			lengths = new int[reads.length];
+			int max=0;
+			for(int i=0; i< reads.length; i++){
+				starts[i] = (int) reads[i].getGappedStartOffset();
+				lengths[i] = (int) reads[i].getGappedLength();
+				max = Math.max(max, lengths[i]);
+			}
+			maxLength = max;
+		}
+		
+		int firstIndexStartingAtOrAfter(int offset){
+			int index = Arrays.binarySearch(starts, offset);
+			if(index <0){
+				return -index -1;
+			}
+			//binary search could have found any of the reads that start here
+			while(index >0 && starts[index-1] == offset){
+				index--;
+			}
+			return index;
+		}
+	}
+	/**
+	 * Builder for {@link ContigConsensusRecaller}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 5.3
+	 */
+	public static final class Builder implements org.jcvi.jillion.core.util.Builder<ContigConsensusRecaller>{
+		private final ConsensusCaller caller;
+		private PhredQuality defaultQuality = DEFAULT_QUALITY;
+		private QualitySequenceDataStore qualities;
+		private GapQualityValueStrategy qualityValueStrategy;
+		private int chunkSize = DEFAULT_CHUNK_SIZE;
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+		/**
+		 * Create a new Builder.
+		 * @param caller the {@link ConsensusCaller} to use; can not be null.
+		 * @throws NullPointerException if caller is null.
+		 */
+		public Builder(ConsensusCaller caller){
+			this.caller = Objects.requireNonNull(caller);
+		}
+		/**
+		 * Give every read base the same quality value.
+		 * If neither this method nor {@link #qualities(QualitySequenceDataStore, GapQualityValueStrategy)}
+		 * is called, then every base gets a quality of 25.
+		 * @param defaultQuality the quality value to use; can not be null.
+		 * @return this
+		 * @throws NullPointerException if defaultQuality is null.
+		 */
+		public Builder defaultQuality(PhredQuality defaultQuality){
+			this.defaultQuality = Objects.requireNonNull(defaultQuality);
+			this.qualities = null;
+			this.qualityValueStrategy = null;
+			return this;
+		}
+		/**
+		 * Use the quality values of each read.
+		 * @param rawQualities the full length ungapped qualities of each read; can not be null.
+		 * @param qualityValueStrategy the {@link GapQualityValueStrategy} to use to compute
+		 * the quality values of gaps; can not be null.
+		 * @return this
+		 * @throws NullPointerException if either parameter is null.
+		 */
+		public Builder qualities(QualitySequenceDataStore rawQualities, GapQualityValueStrategy qualityValueStrategy){
+			this.qualities = Objects.requireNonNull(rawQualities);
+			this.qualityValueStrategy = Objects.requireNonNull(qualityValueStrategy);
+			return this;
+		}
+		/**
+		 * Set the number of consecutive columns called by each task.
+		 * If not set, then {@value ContigConsensusRecaller#DEFAULT_CHUNK_SIZE} is used.
+		 * @param chunkSize the number of columns; must be &ge; 1.
+		 * @return this
+		 * @throws IllegalArgumentException if chunkSize &lt; 1.
+		 */
+		public Builder chunkSize(int chunkSize){
+			if(chunkSize <1){
+				throw new IllegalArgumentException("chunk size must be >= 1");
+			}
+			this.chunkSize = chunkSize;
+			return this;
+		}
+		/**
+		 * Use the given {@link ForkJoinPool} to call the consensus.
+		 * If not set, then the {@link ForkJoinPool#commonPool()} is used.
+		 * @param pool the ForkJoinPool to use; can not be null.
+		 * @return this
+		 * @throws NullPointerException if pool is null.
+		 */
+		public Builder pool(ForkJoinPool pool){
+			this.pool = Objects.requireNonNull(pool);
+			return this;
+		}
+		
+		@Override
+		public ContigConsensusRecaller build() {
+			return new ContigConsensusRecaller(this);
+		}
+	}
+}
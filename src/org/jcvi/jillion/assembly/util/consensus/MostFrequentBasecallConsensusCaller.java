@@ -132,4 +132,49 @@ public enum MostFrequentBasecallConsensusCaller implements ConsensusCaller{
         return consensus;
        
     }
+    
+    /**
+     * Compute the consensus of a column using only
+     * primitive arrays of per {@link Nucleotide} counts and cumulative quality values
+     * (indexed by {@link Nucleotide#ordinal()}) instead of a {@link Slice}.
+     * This computes the same result as {@link #callConsensus(Slice)}
+     * for a Slice with the same counts and qualities without allocating any Maps.
+     * 
+     * @param counts the number of times each base is seen in each column.
+     * @param qualitySums the sum of the quality values of each base in each column.
+     * @param offset the offset into both arrays of the column's ordinal 0 value.
+     * @return a new ConsensusResult; will never be null.
+     */
+    ConsensusResult callConsensus(int[] counts, int[] qualitySums, int offset){
+        Nucleotide[] values = Nucleotide.values();
+        //sortDescending orders ties by the base in descending order
+        //so iterate backwards and only replace on strictly better
+        int bestOrdinal = -1;
+        int bestCount =0;
+        int bestQv =0;
+        for(int ordinal = values.length -1; ordinal >=0; ordinal--){
+            int count = counts[offset + ordinal];
+            if(count ==0){
+                continue;
+            }
+            int qv = qualitySums[offset + ordinal];
+            if(bestOrdinal <0 || count > bestCount || (count == bestCount && qv > bestQv)){
+                bestOrdinal = ordinal;
+                bestCount = count;
+                bestQv = qv;
+            }
+        }
+        if(bestOrdinal <0){
+            return new DefaultConsensusResult(Nucleotide.Unknown, 0);
+        }
+        int sum=0;
+        for(int ordinal =0; ordinal < values.length; ordinal++){
+            if(ordinal == bestOrdinal){
+                sum += qualitySums[offset + ordinal];
+            }else{
+                sum -= qualitySums[offset + ordinal];
+            }
+        }
+        return new DefaultConsensusResult(values[bestOrdinal], sum);
+    }
 }
@@ -73,4 +73,18 @@ public class NoAmbiguityConsensusCaller extends AbstractChurchillWatermanConsens
         }
         return result;
     }
+    
+    @Override
+    protected Nucleotide getConsensus(double[] normalizedErrorProbabilities,
+            int[] counts, int[] qualitySums, int offset) {
+        //normalized probabilities are in A,C,G,T,- order
+        //same as the checks above
+        int result =0;
+        for(int i=1; i< normalizedErrorProbabilities.length; i++){
+            if(Double.compare(normalizedErrorProbabilities[i], normalizedErrorProbabilities[result]) <0){
+                result = i;
+            }
+        }
+        return ConsensusUtil.BASES_TO_CONSIDER.get(result);
+    }
 }
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import java.lang.reflect.Proxy;
+import java.util.function.ToLongFunction;
+
+import org.jcvi.jillion.core.util.Builder;
+/**
+ * Builds a thread safe caching proxy around a {@link DataStore}
+ * that is designed for many threads concurrently calling {@link DataStore#get(String)}.
+ * <p>
+ * Unlike {@link DataStore#cache(Class, DataStore, int)}, which funnels every
+ * call through a single lock and holds records in {@link java.lang.ref.SoftReference}s,
+ * cache hits from this cache do not lock at all and records are strongly referenced
+ * and evicted using the CLOCK policy once the cache reaches its max size
+ * (or max total weight if a weigher is given).
+ * </p>
+ * <p>
+ * If load coalescing is turned on, concurrent misses for the same id
+ * only call the wrapped datastore's {@code get()} once and the other threads wait for
+ * that result.
+ * </p>
+ * The returned {@link DataStore} also implements {@link DataStoreUtil.ConcurrentCacheableDataStore}
+ * so the cache can be cleared and its hit, miss, load and eviction statistics can be queried.
+ * <pre>
+ * FastqFileDataStore cached = new ConcurrentCachedDataStoreBuilder&lt;&gt;(FastqFileDataStore.class, datastore)
+ *                                          .maxSize(10_000)
+ *                                          .coalesceLoads(true)
+ *                                          .build();
+ * </pre>
+ * 
+ * @author dkatzel
+ *
+ * @param <T> the type of record in the datastore.
+ * @param <D> the {@link DataStore} interface to proxy.
+ * 
+ * @since 5.3
+ */
+public final class ConcurrentCachedDataStoreBuilder<T, D extends DataStore<T>> implements Builder<D>{
+	/**
+	 * The default max number of records to cache.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 1_000;
+	
+	private final Class<D> datastoreInterface;
+	private final D delegate;
+	
+	private long maxWeight = DEFAULT_MAX_SIZE;
+	private ToLongFunction<? super T> weigher = record -> 1L;
+	private int concurrencyLevel = Runtime.getRuntime().availableProcessors();
+	private boolean coalesceLoads = false;
+	/**
+	 * Create a new Builder.
+	 * @param datastoreInterface the {@link DataStore} interface the returned proxy
+	 * should implement; can not be null.
+	 * @param delegate the {@link DataStore} to wrap; can not be null.
+	 * @throws NullPointerException if either parameter is null.
+	 */
+	public ConcurrentCachedDataStoreBuilder(Class<D> datastoreInterface, D delegate){
+		if(datastoreInterface ==null){
+			throw new NullPointerException("datastore interface can not be null");
+		}
+		if(delegate ==null){
+			throw new NullPointerException("delegate datastore can not be null");
+		}
+		this.datastoreInterface = datastoreInterface;
+		this.delegate = delegate;
+	}
+	/**
+	 * Bound the cache by number of records.
+	 * This replaces any weight bound previously set.
+	 * @param maxSize the max number of records to cache; must be &ge; 1.
+	 * @return this.
+	 * @throws IllegalArgumentException if maxSize &lt; 1.
+	 */
+	public ConcurrentCachedDataStoreBuilder<T, D> maxSize(long maxSize){
+		return maxWeight(maxSize, record -> 1L);
+	}
+	/**
+	 * Bound the cache by the total weight of the cached records,
+	 * for example an estimate of the number of bytes each record takes up.
+	 * This replaces any size bound previously set.
+	 * @param maxWeight the max total weight to cache; must be &ge; 1.
+	 * @param weigher function to compute the weight of a record; can not be null
+	 * and must not return negative values.
+	 * @return this.
+	 * @throws IllegalArgumentException if maxWeight &lt; 1.
+	 * @throws NullPointerException if weigher is null.
+	 */
+	public ConcurrentCachedDataStoreBuilder<T, D> maxWeight(long maxWeight, ToLongFunction<? super T> weigher){
+		if(maxWeight < 1){
+			throw new IllegalArgumentException("max must be >= 1");
+		}
+		if(weigher ==null){
+			throw new NullPointerException("weigher can not be null");
+		}
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		return this;
+	}
+	/**
+	 * Set the estimated number of threads that will be
+	 * concurrently adding records to the cache; this is used
+	 * to decide how many locks to stripe the cache across.
+	 * Defaults to the number of available processors.
+	 * @param concurrencyLevel the concurrency level; must be &ge; 1.
+	 * @return this.
+	 * @throws IllegalArgumentException if concurrencyLevel &lt; 1.
+	 */
+	public ConcurrentCachedDataStoreBuilder<T, D> concurrencyLevel(int concurrencyLevel){
+		if(concurrencyLevel < 1){
+			throw new IllegalArgumentException("concurrency level must be >= 1");
+		}
+		this.concurrencyLevel = concurrencyLevel;
+		return this;
+	}
+	/**
+	 * Should concurrent misses for the same id be coalesced
+	 * so the wrapped datastore is only asked for that record once.
+	 * Defaults to {@code false}.
+	 * @param coalesceLoads {@code true} to coalesce loads.
+	 * @return this.
+	 */
+	public ConcurrentCachedDataStoreBuilder<T, D> coalesceLoads(boolean coalesceLoads){
+		this.coalesceLoads = coalesceLoads;
+		return this;
+	}
+	/**
+	 * Create a new caching proxy using the current settings.
+	 * @return a new proxy instance of type D which also implements
+	 * {@link DataStoreUtil.ConcurrentCacheableDataStore}; will never be null.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public D build(){
+		return (D) Proxy.newProxyInstance(datastoreInterface.getClassLoader(), 
+				new Class<?>[]{datastoreInterface, DataStoreUtil.ConcurrentCacheableDataStore.class}, 
+				new DataStoreUtil.ConcurrentCachedDataStoreInvocationHandler<T>(delegate, maxWeight, weigher, concurrencyLevel, coalesceLoads));
+	}
+}
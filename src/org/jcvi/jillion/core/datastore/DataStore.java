@@ -29,12 +29,17 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
+import org.jcvi.jillion.internal.core.datastore.BatchedLookups;
 /**
  * A {@code DataStore} is an interface which represents a 
  * repository of entity records which can be  fetched by
@@ -117,6 +122,104 @@ public interface DataStore<T> extends Closeable{
      * @throws NullPointerException if id is null.
      */
     T get(String id) throws DataStoreException;
+    /**
+     * Get all the records in this {@link DataStore} with the given ids.
+     * 
+     * @implNote The default implementation calls {@link #get(String)}
+     * for each id.  Indexed implementations may override this
+     * to read the records in file order, which can be much faster for large lists of ids.
+     * 
+     * @param ids the ids of the records to fetch; can not be null or contain nulls.
+     * @return a new Map of id to record in the iteration order of the given ids;
+     * will never be null.  Ids that are not in this {@link DataStore}
+     * are not included in the map.
+     * @throws DataStoreException if there is a problem fetching the
+     * data from this {@link DataStore}.
+     * @throws DataStoreClosedException if this {@link DataStore} is closed.
+     * @throws NullPointerException if ids is null or contains null.
+     * 
+     * @since 5.3
+     */
+    default Map<String, T> getAll(Collection<String> ids) throws DataStoreException{
+        Map<String, T> map = new LinkedHashMap<>(Math.max(16, (int)(ids.size()/.75F) +1));
+        for(String id : ids){
+            if(!map.containsKey(id)){
+                T record = get(id);
+                if(record !=null){
+                    map.put(id, record);
+                }
+            }
+        }
+        return map;
+    }
+    /**
+     * Asynchronously get the record in this {@link DataStore} with the given id
+     * using a shared pool of daemon threads.
+     * @param id the id of the object to fetch; may not be null.
+     * @return a {@link CompletableFuture} that will complete with the
+     * same value that {@link #get(String)} would return, or complete
+     * exceptionally with the same exception {@link #get(String)} would throw.
+     * 
+     * @see #getAsync(String, Executor)
+     * @since 5.3
+     */
+    default CompletableFuture<T> getAsync(String id){
+        return getAsync(id, BatchedLookups.getDefaultAsyncExecutor());
+    }
+    /**
+     * Asynchronously get the record in this {@link DataStore} with the given id
+     * using the given {@link Executor}.
+     * @param id the id of the object to fetch; may not be null.
+     * @param executor the {@link Executor} to run the lookup on; can not be null.
+     * @return a {@link CompletableFuture} that will complete with the
+     * same value that {@link #get(String)} would return, or complete
+     * exceptionally with the same exception {@link #get(String)} would throw.
+     * 
+     * @since 5.3
+     */
+    default CompletableFuture<T> getAsync(String id, Executor executor){
+        return CompletableFuture.supplyAsync(()->{
+            try{
+                return get(id);
+            }catch(DataStoreException e){
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+    /**
+     * Asynchronously get all the records in this {@link DataStore} with the given ids
+     * using a shared pool of daemon threads.
+     * @param ids the ids of the records to fetch; can not be null or contain nulls.
+     * @return a {@link CompletableFuture} that will complete with the
+     * same Map that {@link #getAll(Collection)} would return, or complete
+     * exceptionally with the same exception {@link #getAll(Collection)} would throw.
+     * 
+     * @see #getAllAsync(Collection, Executor)
+     * @since 5.3
+     */
+    default CompletableFuture<Map<String, T>> getAllAsync(Collection<String> ids){
+        return getAllAsync(ids, BatchedLookups.getDefaultAsyncExecutor());
+    }
+    /**
+     * Asynchronously get all the records in this {@link DataStore} with the given ids
+     * using the given {@link Executor}.
+     * @param ids the ids of the records to fetch; can not be null or contain nulls.
+     * @param executor the {@link Executor} to run the lookup on; can not be null.
+     * @return a {@link CompletableFuture} that will complete with the
+     * same Map that {@link #getAll(Collection)} would return, or complete
+     * exceptionally with the same exception {@link #getAll(Collection)} would throw.
+     * 
+     * @since 5.3
+     */
+    default CompletableFuture<Map<String, T>> getAllAsync(Collection<String> ids, Executor executor){
+        return CompletableFuture.supplyAsync(()->{
+            try{
+                return getAll(ids);
+            }catch(DataStoreException e){
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
     /**
      * Does this DataStore contain an object with the given id.
      * @param id the id of the object to check for containment; may not be null.
@@ -344,6 +447,32 @@ public interface DataStore<T> extends Closeable{
     public static <D extends DataStore<?>> D cache(Class<D> c,D delegate, int cacheSize){
         return DataStoreUtil.createNewCachedDataStore(c, delegate, cacheSize);
     }
+    /**
+     * Create a new thread safe caching proxy around the given DataStore
+     * that does not lock on cache hits and keeps up to {@code maxSize} records.
+     * This is the same as 
+     * {@code new ConcurrentCachedDataStoreBuilder<>(c, delegate).maxSize(maxSize).build()}.
+     * Use a {@link ConcurrentCachedDataStoreBuilder} directly to bound the cache by weight
+     * or to coalesce concurrent loads.
+     * 
+     * @param <T> the type of record in the datastore.
+     * @param <D> interface of DataStore to proxy.
+     * @param c class object of D.
+     * @param delegate instance of DataStore.
+     * @param maxSize the max number of records to cache; must be &ge; 1.
+     * @return a proxy instance of type D which wraps the given delegate.
+     * 
+     * @throws NullPointerException if c or delegate are null.
+     * @throws IllegalArgumentException if maxSize &lt; 1.
+     * 
+     * @see DataStoreUtil#getCacheStatisticsFrom(DataStore)
+     * @since 5.3
+     */
+    public static <T, D extends DataStore<T>> D concurrentCache(Class<D> c, D delegate, long maxSize){
+        return new ConcurrentCachedDataStoreBuilder<T, D>(c, delegate)
+        				.maxSize(maxSize)
+        				.build();
+    }
     
     /**
      * Create a new DataStore instance of the given
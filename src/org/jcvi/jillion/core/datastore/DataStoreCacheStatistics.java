@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+/**
+ * An immutable snapshot of the statistics
+ * of a concurrent cached {@link DataStore}.
+ * 
+ * @author dkatzel
+ * 
+ * @see ConcurrentCachedDataStoreBuilder
+ * @see DataStoreUtil#getCacheStatisticsFrom(DataStore)
+ * 
+ * @since 5.3
+ */
+public final class DataStoreCacheStatistics {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadCount;
+	private final long evictionCount;
+	private final long size;
+	private final long weight;
+	private final long maxWeight;
+	
+	DataStoreCacheStatistics(long hitCount, long missCount, long loadCount,
+			long evictionCount, long size, long weight, long maxWeight) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+		this.weight = weight;
+		this.maxWeight = maxWeight;
+	}
+	/**
+	 * Get the number of calls to {@link DataStore#get(String)}
+	 * that were returned from the cache.
+	 * @return the number of hits.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+	/**
+	 * Get the number of calls to {@link DataStore#get(String)}
+	 * that were not in the cache.
+	 * @return the number of misses.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+	/**
+	 * Get the number of times the wrapped {@link DataStore}
+	 * was actually asked for a record.  If loads are coalesced
+	 * this can be less than the number of misses.
+	 * @return the number of loads.
+	 */
+	public long getLoadCount() {
+		return loadCount;
+	}
+	/**
+	 * Get the number of records evicted from the cache
+	 * to keep it under its max size or weight.
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+	/**
+	 * Get the number of records in the cache when this snapshot was taken.
+	 * @return the number of cached records.
+	 */
+	public long getSize() {
+		return size;
+	}
+	/**
+	 * Get the total weight of the records in the cache when this snapshot was taken.
+	 * If no weigher was used, this is the same as {@link #getSize()}.
+	 * @return the weight of the cached records.
+	 */
+	public long getWeight() {
+		return weight;
+	}
+	/**
+	 * Get the max weight of the cache.
+	 * @return the max weight.
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+	/**
+	 * Get the ratio of hits to total lookups.
+	 * @return the hit rate as a number between 0 and 1;
+	 * or 0 if there haven't been any lookups.
+	 */
+	public double getHitRate(){
+		long total = hitCount + missCount;
+		return total ==0 ? 0D : hitCount / (double) total;
+	}
+	
+	@Override
+	public String toString() {
+		return "DataStoreCacheStatistics [hitCount=" + hitCount
+				+ ", missCount=" + missCount + ", loadCount=" + loadCount
+				+ ", evictionCount=" + evictionCount + ", size=" + size
+				+ ", weight=" + weight + ", maxWeight=" + maxWeight + "]";
+	}
+	
+}
@@ -32,7 +32,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.util.ThrowingStream;
@@ -41,7 +43,9 @@ import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
 import org.jcvi.jillion.internal.core.util.Caches;
+import org.jcvi.jillion.internal.core.util.ConcurrentClockCache;
 import org.jcvi.jillion.internal.core.util.Sneak;
+import org.jcvi.jillion.internal.core.util.iter.BatchingSpliterator;
 /**
  * Utility class containing static
  * factory methods to  adapt {@link DataStore}s
@@ -315,6 +319,7 @@ public final class DataStoreUtil {
      * and caches all results returned by get in an LRU cache.
      * @see #clearCacheFrom(DataStore)
      * @see #isACachedDataStore(DataStore)
+     * @see ConcurrentCachedDataStoreBuilder
      */
     @SuppressWarnings("unchecked")
     public static <D extends DataStore<?>> D createNewCachedDataStore(Class<D> c,D delegate, int cacheSize){
@@ -348,6 +353,22 @@ public final class DataStoreUtil {
     public static boolean isACachedDataStore(DataStore<?> cachedDataStore){
         return cachedDataStore instanceof CacheableDataStore;
     }
+    /**
+     * Get the current cache statistics from a DataStore created by
+     * a {@link ConcurrentCachedDataStoreBuilder}.
+     * @param cachedDataStore a DataStore that may or may not have
+     * been created by a {@link ConcurrentCachedDataStoreBuilder}.
+     * @return an Optional wrapping a snapshot of the statistics;
+     * or empty if the given datastore does not keep cache statistics.
+     * 
+     * @since 5.3
+     */
+    public static Optional<DataStoreCacheStatistics> getCacheStatisticsFrom(DataStore<?> cachedDataStore){
+        if(cachedDataStore instanceof ConcurrentCacheableDataStore){
+            return Optional.of(((ConcurrentCacheableDataStore<?>)cachedDataStore).getCacheStatistics());
+        }
+        return Optional.empty();
+    }
     private static class AdaptedDataStore<F, T> implements DataStore<T>{
     	private final DataStore<F> delegate;
     	private final Function<F,T> callback;
@@ -420,6 +441,16 @@ public final class DataStoreUtil {
 			
 		}
 
+		@Override
+		public Map<String, T> getAll(Collection<String> ids) throws DataStoreException {
+			Map<String, F> originals = delegate.getAll(ids);
+			Map<String, T> map = new LinkedHashMap<>(Math.max(16, (int)(originals.size()/.75F) +1));
+			for(Entry<String, F> entry : originals.entrySet()){
+				map.put(entry.getKey(), getResultFromCallback(entry.getValue()));
+			}
+			return map;
+		}
+
 		@Override
 		public boolean contains(String id) throws DataStoreException {
 			return delegate.contains(id);
@@ -539,8 +570,13 @@ public final class DataStoreUtil {
 
         @Override
 		public ThrowingStream<T> records() throws DataStoreException {
-			return ThrowingStream.asThrowingStream(map.values().stream());
+			return ThrowingStream.asThrowingStream(BatchingSpliterator.stream(iterator(), map.size()));
 		}
+        
+        @Override
+        public ThrowingStream<DataStoreEntry<T>> entries() throws DataStoreException {
+            return ThrowingStream.asThrowingStream(BatchingSpliterator.stream(entryIterator(), map.size()));
+        }
 
 
 		@Override
@@ -773,6 +809,59 @@ public final class DataStoreUtil {
 	    
 	}
 	/**
+	 * {@code ConcurrentCachedDataStoreInvocationHandler} is the 
+	 * Proxy handler used by {@link ConcurrentCachedDataStoreBuilder}.
+	 * Unlike {@link CachedDataStoreInvocationHandler}, invocations are not synchronized;
+	 * all the thread safety is handled by the {@link ConcurrentClockCache}.
+	 * @author dkatzel
+	 *
+	 * @since 5.3
+	 */
+	static final class ConcurrentCachedDataStoreInvocationHandler<T> implements InvocationHandler{
+
+	    private final DataStore<T> delegate;
+	    private final ConcurrentClockCache<String, T> cache;
+	   
+	    ConcurrentCachedDataStoreInvocationHandler(DataStore<T> delegate, long maxWeight, ToLongFunction<? super T> weigher,
+	    		int concurrencyLevel, boolean coalesceLoads){
+	        this.delegate = delegate;
+	        cache= new ConcurrentClockCache<>(maxWeight, weigher, concurrencyLevel, coalesceLoads);
+	    }
+	   
+	    @Override
+	    public Object invoke(Object proxy, Method method, Object[] args)
+	            throws Throwable {
+	        final String methodName = method.getName();
+	        if(args ==null){
+	        	if("clearCache".equals(methodName)){
+	        		cache.invalidateAll();
+	        		return null;
+	        	}
+	        	if("getCacheStatistics".equals(methodName)){
+	        		return new DataStoreCacheStatistics(cache.getHitCount(), cache.getMissCount(),
+	        				cache.getLoadCount(), cache.getEvictionCount(), 
+	        				cache.size(), cache.weight(), cache.getMaxWeight());
+	        	}
+	        	if("close".equals(methodName)){
+	        		cache.invalidateAll();
+	        	}
+	        }else if(args.length ==1 && "get".equals(methodName) && args[0] instanceof String){
+	        	//null results (not in the delegate) are not cached
+	        	return cache.get((String) args[0], delegate::get);
+	        }else if(args.length ==1 && "getAll".equals(methodName) && args[0] instanceof Collection){
+	        	@SuppressWarnings("unchecked")
+	        	Collection<String> ids = (Collection<String>) args[0];
+	        	return cache.getAll(ids, delegate::getAll);
+	        }
+	        try{
+	        	return method.invoke(delegate, args);
+	        }catch(InvocationTargetException e){
+	    		throw e.getCause();
+	    	}
+	    }   
+	    
+	}
+	/**
      * {@code CacheableDataStore} is an interface that is used
      * for Cached objects created by {@link DataStoreUtil#createNewCachedDataStore(Class, DataStore, int)}.
      * This way it is possible to determine
@@ -786,4 +875,19 @@ public final class DataStoreUtil {
          */
         void clearCache();
     }
+    /**
+     * {@code ConcurrentCacheableDataStore} is an interface that is used
+     * for Cached objects created by {@link ConcurrentCachedDataStoreBuilder}
+     * which also keep statistics about the cache.
+     * @author dkatzel
+     * 
+     * @since 5.3
+     */
+    public interface ConcurrentCacheableDataStore<T> extends CacheableDataStore<T>{
+        /**
+         * Get a snapshot of the current cache statistics.
+         * @return a new {@link DataStoreCacheStatistics}; will never be null.
+         */
+        DataStoreCacheStatistics getCacheStatistics();
+    }
 }
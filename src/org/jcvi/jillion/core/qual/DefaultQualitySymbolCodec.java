@@ -75,11 +75,7 @@ enum DefaultQualitySymbolCodec implements QualitySymbolCodec{
 		if(encodedData.length==0){
 			return OptionalDouble.empty();
 		}
-		long sum = 0;
-		for(int i=0; i<encodedData.length; i++){
-			sum +=encodedData[i];
-		}
-		return OptionalDouble.of(sum/ (double) encodedData.length);
+		return OptionalDouble.of(QualityArrays.mean(encodedData));
 	}
 
 	@Override
@@ -87,15 +83,7 @@ enum DefaultQualitySymbolCodec implements QualitySymbolCodec{
 		if(encodedData.length ==0){
 			return Optional.empty();
 		}
-		byte min = PhredQuality.MAX_VALUE;
-		
-		for(int i=0; i<encodedData.length; i++){
-			byte current = encodedData[i];
-			if(current < min){
-				min = current;
-			}
-		}
-		return Optional.of(PhredQuality.valueOf(min));
+		return Optional.of(PhredQuality.valueOf(QualityArrays.min(encodedData)));
 	}
 
 	@Override
@@ -103,15 +91,28 @@ enum DefaultQualitySymbolCodec implements QualitySymbolCodec{
 		if(encodedData.length ==0){
 			return Optional.empty();
 		}
-		byte max = PhredQuality.MIN_VALUE;
-		
-		for(int i=0; i<encodedData.length; i++){
-			byte current = encodedData[i];
-			if(current > max){
-				max = current;
-			}
-		}
-		return Optional.of(PhredQuality.valueOf(max));
+		return Optional.of(PhredQuality.valueOf(QualityArrays.max(encodedData)));
+	}
+	//the encoded data is already the quality values
+	//so don't make a copy
+	@Override
+	public long getQualitySum(byte[] encodedData) {
+		return QualityArrays.sum(encodedData);
+	}
+
+	@Override
+	public int getMinQualityValue(byte[] encodedData) {
+		return QualityArrays.min(encodedData);
+	}
+
+	@Override
+	public int getMaxQualityValue(byte[] encodedData) {
+		return QualityArrays.max(encodedData);
+	}
+
+	@Override
+	public long[] getQualityHistogram(byte[] encodedData) {
+		return QualityArrays.histogram(encodedData);
 	}
     
     
@@ -22,6 +22,7 @@ package org.jcvi.jillion.core.qual;
 
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.OptionalInt;
 
 import org.jcvi.jillion.internal.core.EncodedSequence;
 
@@ -101,32 +102,50 @@ final class EncodedQualitySequence extends EncodedSequence<PhredQuality> impleme
             return Optional.of(PhredQuality.valueOf(value));
 	}
 
+	@Override
+	public long getQualitySum() {
+	    return getQualityCodec().getQualitySum(data);
+	}
+
+
+	@Override
+	public OptionalInt getMinQualityValue() {
+	    computeStatsIfNeeded();
+	    return stats.min < 0 ? OptionalInt.empty() : OptionalInt.of(stats.min);
+	}
+
+
+	@Override
+	public OptionalInt getMaxQualityValue() {
+	    computeStatsIfNeeded();
+	    return stats.max < 0 ? OptionalInt.empty() : OptionalInt.of(stats.max);
+	}
+
+
+	@Override
+	public long[] getQualityHistogram() {
+	    return getQualityCodec().getQualityHistogram(data);
+	}
+
+	private QualitySymbolCodec getQualityCodec(){
+	    return (QualitySymbolCodec)getCodec();
+	}
+
 	private void computeStatsIfNeeded(){
 	    if(stats !=null){
 	        return;
 	    }
-	   
-	    byte[] array = toArray();
-	    if(array.length==0){
+	    //use the codec's primitive operations
+	    //which may not need to decode the data
+	    QualitySymbolCodec codec = getQualityCodec();
+	    int length = codec.decodedLengthOf(data);
+	    if(length==0){
 	        stats= new Stats((byte)-1, (byte)-1, -1);
 	        return;
 	    }
-	    byte min = Byte.MAX_VALUE;
-	    byte max = Byte.MIN_VALUE;
-	    long total = 0L;
-	    
-	    for(int i=0; i< array.length; i++){
-	        byte v = array[i];
-	        if( v < min){
-	            min = v;
-	        }
-	        if(v > max){
-	            max = v;
-	        }
-	        total +=v;
-	    }
-	    
-	    stats = new Stats(min, max, total/ (double)array.length);
+	    stats = new Stats((byte) codec.getMinQualityValue(data),
+	                      (byte) codec.getMaxQualityValue(data),
+	                      codec.getQualitySum(data)/ (double)length);
 	}
 
     @Override
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.qual;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility class of bulk operations on primitive quality value arrays
+ * (one quality score per byte, as returned by {@link QualitySequence#toArray()}).
+ * <p>
+ * None of these methods create a {@link PhredQuality} object per value,
+ * and the inner loops are simple counted loops over a byte array
+ * with no branches or method calls so that the JIT can unroll and
+ * auto-vectorize them.  This makes per read quality control on very large
+ * data sets much cheaper than iterating over {@link PhredQuality} objects.
+ * </p>
+ * Methods that take a {@code from} and {@code to} parameter
+ * operate on the values from {@code from} inclusive to {@code to} exclusive
+ * the same as {@link java.util.Arrays#copyOfRange(byte[], int, int)}.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class QualityArrays {
+    /**
+     * Number of bins in a histogram returned by {@link #histogram(byte[])},
+     * one for each possible quality value.
+     */
+    public static final int HISTOGRAM_LENGTH = PhredQuality.MAX_VALUE +1;
+    /**
+     * Largest number of values that can be summed into an int
+     * without overflowing since each value is at most 127.
+     */
+    private static final int MAX_INT_SUM_BLOCK = Integer.MAX_VALUE / PhredQuality.MAX_VALUE;
+
+    private QualityArrays(){
+        //can not instantiate
+    }
+    /**
+     * Decode the given ASCII encoded qualities (for example from a FASTQ file)
+     * into quality values by subtracting the encoding offset from each character.
+     *
+     * @param encodedQualities the encoded qualities, each char must be an ASCII character; can not be null.
+     * @param encodingOffset the encoding offset, for example 33 for Sanger encoding.
+     * @return a new byte array of the same length as the encoded String; never null.
+     *
+     * @throws NullPointerException if encodedQualities is null.
+     */
+    public static byte[] decode(String encodedQualities, int encodingOffset){
+        //getBytes into a single byte charset is an intrinsic
+        //so this is much faster than charAt() per char
+        byte[] values = encodedQualities.getBytes(StandardCharsets.ISO_8859_1);
+        decode(values, 0, values.length, encodingOffset, values, 0);
+        return values;
+    }
+    /**
+     * Decode a region of a buffer of ASCII encoded qualities
+     * into quality values.  The source and destination
+     * may be the same array to decode in place.
+     *
+     * @param encodedQualities the buffer of ASCII encoded qualities; can not be null.
+     * @param from the offset of the first encoded quality to decode.
+     * @param length the number of qualities to decode.
+     * @param encodingOffset the encoding offset, for example 33 for Sanger encoding.
+     * @param dest the array to write the decoded qualities to; can not be null.
+     * @param destOffset the offset in dest to write the first decoded quality.
+     *
+     * @throws NullPointerException if either array is null.
+     * @throws ArrayIndexOutOfBoundsException if the regions go beyond either array.
+     */
+    public static void decode(byte[] encodedQualities, int from, int length, int encodingOffset, byte[] dest, int destOffset){
+        checkRange(encodedQualities, from, from + length);
+        checkRange(dest, destOffset, destOffset + length);
+        for(int i=0; i< length; i++){
+            dest[destOffset + i] = (byte)(encodedQualities[from + i] - encodingOffset);
+        }
+    }
+    /**
+     * Encode the given quality values into ASCII by adding the encoding offset.
+     *
+     * @param qualities the quality values; can not be null.
+     * @param encodingOffset the encoding offset, for example 33 for Sanger encoding.
+     * @return a new byte array of ASCII characters; never null.
+     *
+     * @throws NullPointerException if qualities is null.
+     */
+    public static byte[] encode(byte[] qualities, int encodingOffset){
+        byte[] encoded = new byte[qualities.length];
+        for(int i=0; i< encoded.length; i++){
+            encoded[i] = (byte)(qualities[i] + encodingOffset);
+        }
+        return encoded;
+    }
+    /**
+     * Sum all the quality values in the array.
+     * @param qualities the quality values; can not be null.
+     * @return the sum.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static long sum(byte[] qualities){
+        return sum(qualities, 0, qualities.length);
+    }
+    /**
+     * Sum the quality values in the given region of the array.
+     * @param qualities the quality values; can not be null.
+     * @param from the first offset (inclusive).
+     * @param to the last offset (exclusive).
+     * @return the sum.
+     * @throws NullPointerException if qualities is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public static long sum(byte[] qualities, int from, int to){
+        checkRange(qualities, from, to);
+        long total =0;
+        int blockStart = from;
+        while(blockStart < to){
+            int blockEnd = (int) Math.min(to, (long) blockStart + MAX_INT_SUM_BLOCK);
+            //int accumulator vectorizes much better than a long one
+            int blockSum =0;
+            for(int i= blockStart; i< blockEnd; i++){
+                blockSum += qualities[i];
+            }
+            total += blockSum;
+            blockStart = blockEnd;
+        }
+        return total;
+    }
+    /**
+     * Get the mean quality value in the array.
+     * @param qualities the quality values; can not be null.
+     * @return the mean or {@link Double#NaN} if the array is empty.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static double mean(byte[] qualities){
+        return mean(qualities, 0, qualities.length);
+    }
+    /**
+     * Get the mean quality value in the given region of the array.
+     * @param qualities the quality values; can not be null.
+     * @param from the first offset (inclusive).
+     * @param to the last offset (exclusive).
+     * @return the mean or {@link Double#NaN} if the region is empty.
+     * @throws NullPointerException if qualities is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public static double mean(byte[] qualities, int from, int to){
+        if(from == to){
+            return Double.NaN;
+        }
+        return sum(qualities, from, to) / (double)(to - from);
+    }
+    /**
+     * Get the min quality value in the array.
+     * @param qualities the quality values; can not be null.
+     * @return the min value or -1 if the array is empty.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static int min(byte[] qualities){
+        return min(qualities, 0, qualities.length);
+    }
+    /**
+     * Get the min quality value in the given region of the array.
+     * @param qualities the quality values; can not be null.
+     * @param from the first offset (inclusive).
+     * @param to the last offset (exclusive).
+     * @return the min value or -1 if the region is empty.
+     * @throws NullPointerException if qualities is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public static int min(byte[] qualities, int from, int to){
+        checkRange(qualities, from, to);
+        if(from == to){
+            return -1;
+        }
+        int min = Integer.MAX_VALUE;
+        for(int i= from; i< to; i++){
+            min = Math.min(min, qualities[i]);
+        }
+        return min;
+    }
+    /**
+     * Get the max quality value in the array.
+     * @param qualities the quality values; can not be null.
+     * @return the max value or -1 if the array is empty.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static int max(byte[] qualities){
+        return max(qualities, 0, qualities.length);
+    }
+    /**
+     * Get the max quality value in the given region of the array.
+     * @param qualities the quality values; can not be null.
+     * @param from the first offset (inclusive).
+     * @param to the last offset (exclusive).
+     * @return the max value or -1 if the region is empty.
+     * @throws NullPointerException if qualities is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public static int max(byte[] qualities, int from, int to){
+        checkRange(qualities, from, to);
+        int max = -1;
+        for(int i= from; i< to; i++){
+            max = Math.max(max, qualities[i]);
+        }
+        return max;
+    }
+    /**
+     * Count the number of quality values that are greater than or equal
+     * to the given threshold, for example to compute the percentage of Q30 bases.
+     * @param qualities the quality values; can not be null.
+     * @param threshold the min quality value to count.
+     * @return the number of values &ge; threshold.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static int countAtLeast(byte[] qualities, int threshold){
+        int count =0;
+        for(int i=0; i< qualities.length; i++){
+            count += qualities[i] >= threshold ? 1 : 0;
+        }
+        return count;
+    }
+    /**
+     * Compute a histogram of the quality values in the array.
+     * @param qualities the quality values; can not be null.
+     * @return a new array of length {@link #HISTOGRAM_LENGTH} where the element
+     * at index i is the number of values equal to i.
+     * @throws NullPointerException if qualities is null.
+     */
+    public static long[] histogram(byte[] qualities){
+        long[] counts = new long[HISTOGRAM_LENGTH];
+        addToHistogram(qualities, 0, qualities.length, counts);
+        return counts;
+    }
+    /**
+     * Add the quality values in the given region of the array to an existing histogram
+     * so a single histogram can be accumulated over many reads without any allocation.
+     * @param qualities the quality values; can not be null.
+     * @param from the first offset (inclusive).
+     * @param to the last offset (exclusive).
+     * @param counts the histogram to add to; must have a length &gt; the max value in the region,
+     * an array of length {@link #HISTOGRAM_LENGTH} will always be big enough.
+     * @throws NullPointerException if either array is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array
+     * or counts is too small.
+     */
+    public static void addToHistogram(byte[] qualities, int from, int to, long[] counts){
+        checkRange(qualities, from, to);
+        for(int i= from; i< to; i++){
+            counts[qualities[i]]++;
+        }
+    }
+    /**
+     * Compute the mean quality of every window of the given size.
+     * @param qualities the quality values; can not be null.
+     * @param windowSize the number of values in each window; must be &ge; 1.
+     * @return a new array of length {@code qualities.length - windowSize +1}
+     * where the element at index i is the mean of the window starting at offset i;
+     * will be empty if there are fewer than windowSize values.
+     * @throws NullPointerException if qualities is null.
+     * @throws IllegalArgumentException if windowSize &lt; 1.
+     */
+    public static double[] windowedMeans(byte[] qualities, int windowSize){
+        if(windowSize < 1){
+            throw new IllegalArgumentException("window size must be >= 1");
+        }
+        if(qualities.length < windowSize){
+            return new double[0];
+        }
+        double[] means = new double[qualities.length - windowSize +1];
+        long windowSum = sum(qualities, 0, windowSize);
+        double divisor = windowSize;
+        means[0] = windowSum / divisor;
+        for(int i=1; i< means.length; i++){
+            windowSum += qualities[i + windowSize -1] - qualities[i-1];
+            means[i] = windowSum / divisor;
+        }
+        return means;
+    }
+
+    private static void checkRange(byte[] array, int from, int to){
+        if(from < 0 || to > array.length || from > to){
+            throw new ArrayIndexOutOfBoundsException(
+                    String.format("invalid range [%d, %d) for array of length %d", from, to, array.length));
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.util.DoubleSummaryStatistics;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.OptionalInt;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.Collectors;
@@ -107,6 +108,57 @@ public interface QualitySequence extends Sequence<PhredQuality>{
      * if the sequence is empty.
      */
     Optional<PhredQuality> getMaxQuality();
+    /**
+     * Get the sum of all the quality values in this sequence
+     * without creating any {@link PhredQuality} objects.
+     * @return the sum; will be 0 if the sequence is empty.
+     * @since 5.3
+     */
+    default long getQualitySum(){
+        return QualityArrays.sum(toArray());
+    }
+    /**
+     * Get the min quality value in this sequence as a primitive
+     * without creating any {@link PhredQuality} objects.
+     * @return an OptionalInt that is empty if the sequence is empty.
+     * @since 5.3
+     */
+    default OptionalInt getMinQualityValue(){
+        int min = QualityArrays.min(toArray());
+        return min < 0 ? OptionalInt.empty() : OptionalInt.of(min);
+    }
+    /**
+     * Get the max quality value in this sequence as a primitive
+     * without creating any {@link PhredQuality} objects.
+     * @return an OptionalInt that is empty if the sequence is empty.
+     * @since 5.3
+     */
+    default OptionalInt getMaxQualityValue(){
+        int max = QualityArrays.max(toArray());
+        return max < 0 ? OptionalInt.empty() : OptionalInt.of(max);
+    }
+    /**
+     * Get a histogram of the quality values in this sequence.
+     * @return a new array of length {@link QualityArrays#HISTOGRAM_LENGTH} where the element
+     * at index i is the number of quality values equal to i.
+     * @since 5.3
+     */
+    default long[] getQualityHistogram(){
+        return QualityArrays.histogram(toArray());
+    }
+    /**
+     * Compute the mean quality value of every window of the given size,
+     * for example to find where a read's quality drops off.
+     * @param windowSize the number of values in each window; must be &ge; 1.
+     * @return a new array of length {@code getLength() - windowSize +1}
+     * where the element at index i is the mean of the window starting at offset i;
+     * will be empty if the sequence is shorter than the window.
+     * @throws IllegalArgumentException if windowSize &lt; 1.
+     * @since 5.3
+     */
+    default double[] getWindowedMeanQualities(int windowSize){
+        return QualityArrays.windowedMeans(toArray(), windowSize);
+    }
     /**
      * Create a new Builder object that is initialized
      * to the current sequence.  Any changes made to the returned Builder
@@ -42,4 +42,40 @@ interface QualitySymbolCodec extends GlyphCodec<PhredQuality>{
     Optional<PhredQuality> getMinQuality(byte[] encodedData);
     
     Optional<PhredQuality> getMaxQuality(byte[] encodedData);
+    /**
+     * Get the sum of all the quality values.
+     * @param encodedData the encoded data.
+     * @return the sum; will be 0 if empty.
+     * @since 5.3
+     */
+    default long getQualitySum(byte[] encodedData){
+        return QualityArrays.sum(toQualityValueArray(encodedData));
+    }
+    /**
+     * Get the min quality value as a primitive.
+     * @param encodedData the encoded data.
+     * @return the min value or -1 if empty.
+     * @since 5.3
+     */
+    default int getMinQualityValue(byte[] encodedData){
+        return QualityArrays.min(toQualityValueArray(encodedData));
+    }
+    /**
+     * Get the max quality value as a primitive.
+     * @param encodedData the encoded data.
+     * @return the max value or -1 if empty.
+     * @since 5.3
+     */
+    default int getMaxQualityValue(byte[] encodedData){
+        return QualityArrays.max(toQualityValueArray(encodedData));
+    }
+    /**
+     * Get the histogram of the quality values.
+     * @param encodedData the encoded data.
+     * @return a new array of length {@link QualityArrays#HISTOGRAM_LENGTH}.
+     * @since 5.3
+     */
+    default long[] getQualityHistogram(byte[] encodedData){
+        return QualityArrays.histogram(toQualityValueArray(encodedData));
+    }
 }
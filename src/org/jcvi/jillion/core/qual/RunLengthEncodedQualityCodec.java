@@ -246,22 +246,28 @@ final class RunLengthEncodedQualityCodec implements QualitySymbolCodec{
     }
    
    
-    @Override
-	public OptionalDouble getAvgQuality(byte[] encodedData) {
+    /**
+     * Callback for each run of identical quality values.
+     */
+    @FunctionalInterface
+    private interface RunConsumer{
+        void accept(byte value, int runLength);
+    }
+    /**
+     * Walk over each run in the encoded data without decoding
+     * the runs into individual values.
+     * @return the decoded length.
+     */
+    private static int forEachRun(byte[] encodedData, RunConsumer consumer){
     	ByteBuffer buf = ByteBuffer.wrap(encodedData);
         int length=buf.getInt();  
         //short circuit if empty
         if(length ==0){
-        	return OptionalDouble.empty();
+        	return 0;
         }
-       
         byte guard = buf.get();
         ValueSizeStrategy valueSizeStrategy = ValueSizeStrategy.values()[buf.get()];
-		
-        long sum=0;
-        
         int currentOffset=0;
-        
         byte currentValue;
         int runLength;
         while(currentOffset<length){
@@ -280,145 +286,78 @@ final class RunLengthEncodedQualityCodec implements QualitySymbolCodec{
 	        	runLength=1;
 	        	currentValue = runLengthCode;
 	        }
-	        sum += currentValue *runLength;
-	        
-	        int endOffset = currentOffset+runLength;
-	       
-	        currentOffset=endOffset;
+	        consumer.accept(currentValue, runLength);
+	        currentOffset+=runLength;
         }
-        return OptionalDouble.of(sum/ (double)length);
+        return length;
+    }
+   
+    @Override
+	public OptionalDouble getAvgQuality(byte[] encodedData) {
+    	int length = decodedLengthOf(encodedData);
+    	if(length ==0){
+        	return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(getQualitySum(encodedData)/ (double)length);
 	}
 
+    @Override
+	public long getQualitySum(byte[] encodedData) {
+    	long[] sum = new long[1];
+    	forEachRun(encodedData, (value, runLength) -> sum[0] += value * (long) runLength);
+    	return sum[0];
+	}
+
+    @Override
+	public int getMinQualityValue(byte[] encodedData) {
+    	int[] min = new int[]{Integer.MAX_VALUE};
+    	int length = forEachRun(encodedData, (value, runLength) -> min[0] = Math.min(min[0], value));
+    	return length ==0 ? -1 : min[0];
+	}
+
+    @Override
+	public int getMaxQualityValue(byte[] encodedData) {
+    	int[] max = new int[]{-1};
+    	forEachRun(encodedData, (value, runLength) -> max[0] = Math.max(max[0], value));
+    	return max[0];
+	}
+
+    @Override
+	public long[] getQualityHistogram(byte[] encodedData) {
+    	long[] counts = new long[QualityArrays.HISTOGRAM_LENGTH];
+    	forEachRun(encodedData, (value, runLength) -> counts[value] += runLength);
+    	return counts;
+	}
 
 	@Override
 	public Optional<PhredQuality> getMinQuality(byte[] encodedData) {
-		ByteBuffer buf = ByteBuffer.wrap(encodedData);
-        int length=buf.getInt();  
-        //short circuit if empty
-        if(length ==0){
-        	return Optional.empty();
-        }
-       
-        byte guard = buf.get();
-        ValueSizeStrategy valueSizeStrategy = ValueSizeStrategy.values()[buf.get()];
-		
-        byte min = PhredQuality.MAX_VALUE;
-        
-        int currentOffset=0;
-        
-        byte currentValue;
-        int runLength;
-        while(currentOffset<length){
-        	byte runLengthCode = buf.get();
-	        if( runLengthCode == guard){                                  
-	        	int count = valueSizeStrategy.getNext(buf);          	 
-	        	if(count==0){
-	        		runLength=1;
-	        		currentValue = guard;
-	        	}else{
-	        		currentValue = buf.get();  
-	        		runLength=count;
-	        	}
-	        }
-	        else{
-	        	runLength=1;
-	        	currentValue = runLengthCode;
-	        }
-	        
-	        if(currentValue < min){
-	        	min = currentValue;
-	        }
-	        int endOffset = currentOffset+runLength;
-	       
-	        currentOffset=endOffset;
-        }
+		int min = getMinQualityValue(encodedData);
+		if(min < 0){
+			return Optional.empty();
+		}
         return Optional.of(PhredQuality.valueOf(min));
 	}
 
 
 	@Override
 	public Optional<PhredQuality> getMaxQuality(byte[] encodedData) {
-		ByteBuffer buf = ByteBuffer.wrap(encodedData);
-        int length=buf.getInt();  
-        //short circuit if empty
-        if(length ==0){
-        	return Optional.empty();
-        }
-       
-        byte guard = buf.get();
-        ValueSizeStrategy valueSizeStrategy = ValueSizeStrategy.values()[buf.get()];
-		
-        byte max = PhredQuality.MIN_VALUE;
-        
-        int currentOffset=0;
-        
-        byte currentValue;
-        int runLength;
-        while(currentOffset<length){
-        	byte runLengthCode = buf.get();
-	        if( runLengthCode == guard){                                  
-	        	int count = valueSizeStrategy.getNext(buf);          	 
-	        	if(count==0){
-	        		runLength=1;
-	        		currentValue = guard;
-	        	}else{
-	        		currentValue = buf.get();  
-	        		runLength=count;
-	        	}
-	        }
-	        else{
-	        	runLength=1;
-	        	currentValue = runLengthCode;
-	        }
-	        
-	        if(currentValue > max){
-	        	max = currentValue;
-	        }
-	        int endOffset = currentOffset+runLength;
-	       
-	        currentOffset=endOffset;
-        }
+		int max = getMaxQualityValue(encodedData);
+		if(max < 0){
+			return Optional.empty();
+		}
         return Optional.of(PhredQuality.valueOf(max));
 	}
 
 
 	@Override
 	public byte[] toQualityValueArray(byte[] encodedData) {
-    	ByteBuffer buf = ByteBuffer.wrap(encodedData);
-        int length=buf.getInt();  
-        //short circuit if empty
-        if(length ==0){
-        	return new byte[0];
-        }
-        byte[] result = new byte[length];
-        byte guard = buf.get();
-        ValueSizeStrategy valueSizeStrategy = ValueSizeStrategy.values()[buf.get()];
-        int currentOffset=0;
-        
-        
-         
-        byte currentValue;
-        int runLength;
-        while(currentOffset<length){
-        	byte runLengthCode = buf.get();
-	        if( runLengthCode == guard){                                  
-	        	int count = valueSizeStrategy.getNext(buf);          	 
-	        	if(count==0){
-	        		runLength=1;
-	        		currentValue = guard;
-	        	}else{
-	        		currentValue = buf.get();  
-	        		runLength=count;
-	        	}
-	        }
-	        else{
-	        	runLength=1;
-	        	currentValue = runLengthCode;
-	        }
-	        int endOffset = currentOffset+runLength;
-	        Arrays.fill(result, currentOffset, endOffset, currentValue);
-	        currentOffset=endOffset;
-        }
+        byte[] result = new byte[decodedLengthOf(encodedData)];
+        int[] currentOffset = new int[1];
+        forEachRun(encodedData, (value, runLength) ->{
+        	int endOffset = currentOffset[0]+runLength;
+        	Arrays.fill(result, currentOffset[0], endOffset, value);
+        	currentOffset[0]=endOffset;
+        });
 		return result;
 	}
 
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.OptionalInt;
 
 import org.jcvi.jillion.core.Range;
 
@@ -118,4 +119,26 @@ class RunLengthEncodedQualitySequence implements QualitySequence{
 	public Optional<PhredQuality> getMaxQuality() {
 		return RunLengthEncodedQualityCodec.INSTANCE.getMaxQuality(encodedData);
 	}
+
+	@Override
+	public long getQualitySum() {
+		return RunLengthEncodedQualityCodec.INSTANCE.getQualitySum(encodedData);
+	}
+
+	@Override
+	public OptionalInt getMinQualityValue() {
+		int min = RunLengthEncodedQualityCodec.INSTANCE.getMinQualityValue(encodedData);
+		return min < 0 ? OptionalInt.empty() : OptionalInt.of(min);
+	}
+
+	@Override
+	public OptionalInt getMaxQualityValue() {
+		int max = RunLengthEncodedQualityCodec.INSTANCE.getMaxQualityValue(encodedData);
+		return max < 0 ? OptionalInt.empty() : OptionalInt.of(max);
+	}
+
+	@Override
+	public long[] getQualityHistogram() {
+		return RunLengthEncodedQualityCodec.INSTANCE.getQualityHistogram(encodedData);
+	}
 }
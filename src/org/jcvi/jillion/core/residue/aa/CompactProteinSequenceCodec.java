@@ -50,23 +50,26 @@ enum CompactProteinSequenceCodec implements AminoAcidCodec {
 	public byte[] encode(AminoAcid[] aas) {
 		int numberOfAminoAcids = aas.length;
 		int numBits = numberOfAminoAcids * BITS_PER_AA;
-		BitSet bits = new BitSet(numBits);
-		int offset=0;
+		//same layout as packing the bits into a BitSet
+		//and calling IOUtil.toByteArray(bits, numBits)
+		//which puts bit 0 in the low bit of the last byte
+		//but without setting each bit one at a time
+		ByteBuffer buf = ByteBuffer.allocate(4 + (numBits + 7)/8);
+		buf.putInt(numberOfAminoAcids);
+		byte[] encoded = buf.array();
+		int lastByte = encoded.length -1;
+		int bitOffset=0;
 		for(AminoAcid aa : aas){
-			byte ordinal = aa.getOrdinalAsByte();
-			
-			for(int i=0; i<BITS_PER_AA; i++){
-				if((ordinal & (1<< i))!=0){
-					bits.set(offset);
-				}
-				offset++;
+			int ordinal = aa.getOrdinalAsByte();
+			int byteOffset = lastByte - (bitOffset >>> 3);
+			int shift = bitOffset & 7;
+			encoded[byteOffset] |= ordinal << shift;
+			if(shift + BITS_PER_AA > 8){
+				encoded[byteOffset -1] |= ordinal >>> (8 - shift);
 			}
+			bitOffset += BITS_PER_AA;
 		}
-		byte[] encodedData = IOUtil.toByteArray(bits,numBits);
-		ByteBuffer buf = ByteBuffer.allocate(4 + encodedData.length);
-		buf.putInt(numberOfAminoAcids);
-		buf.put(encodedData);
-		return buf.array();
+		return encoded;
 	}
 	
 
@@ -21,6 +21,7 @@
 package org.jcvi.jillion.core.residue.aa;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -29,9 +30,11 @@ import java.util.Map;
 import org.jcvi.jillion.core.residue.Frame;
 import org.jcvi.jillion.core.residue.aa.TranslationVisitor.FoundStartResult;
 import org.jcvi.jillion.core.residue.aa.TranslationVisitor.FoundStopResult;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.Triplet;
 import org.jcvi.jillion.core.util.MapUtil;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
 
 public enum IupacTranslationTables implements TranslationTable{
 	
@@ -164,8 +167,22 @@ public enum IupacTranslationTables implements TranslationTable{
 		}
 	}
 	
+	/**
+	 * The number of possible packed triplet values
+	 * returned by {@link #packTriplet(int, int, int)}.
+	 * 
+	 * @since 5.3
+	 */
+	public static final int NUMBER_OF_PACKED_TRIPLETS = 1 << 12;
+	
+	private static final byte GAP_ORDINAL = AminoAcid.Gap.getOrdinalAsByte();
+	
 	private final Map<Triplet, Codon> map = new HashMap<Triplet, Codon>(MapUtil.computeMinHashMapSizeWithoutRehashing(200));
 	private final byte tableNumber;
+	/**
+	 * Lazily built lookup tables indexed by packed triplet.
+	 */
+	private volatile PackedTable packedTable;
 	
 	private IupacTranslationTables(int tableNumber){
 		initialzeTable();
@@ -258,32 +275,120 @@ public enum IupacTranslationTables implements TranslationTable{
 		//don't correctly handle the 'not first starts'
 		//so if translation table says codon is a start
 		//and we've already seen a start, then make it not the start?
-
-		ProteinSequenceBuilder builder = new ProteinSequenceBuilder(length/3);
-		
-		Iterator<Triplet> iter = frame.asTriplets(sequence);
-		
-		boolean seenStart=!substituteStart;
-		long currentOffset=0;
+		PackedTable table = getPackedTable();
+		byte[] bases = encode(sequence);
+		int frameOffset = frame.ordinal() %3;
+		int numberOfCodons = Math.max(0, (bases.length - frameOffset)/3);
+		if(length < 1){
+			numberOfCodons =0;
+		}else{
+			numberOfCodons = Math.min(numberOfCodons, (int)((length + 2L)/3));
+		}
+		boolean reverse = frame.onReverseStrand();
+		byte[] aminoAcids = new byte[numberOfCodons];
+		int firstStart = -1;
+		for(int i=0; i< numberOfCodons; i++){
+			int offset = frameOffset + 3*i;
+			int packed = reverse ? packReverseTriplet(bases, bases.length -3 - offset) 
+								 : packTriplet(bases[offset], bases[offset+1], bases[offset+2]);
+			aminoAcids[i] = table.aminoAcids[packed];
+			if(firstStart <0 && table.starts[packed]){
+				firstStart = i;
+			}
+		}
+		return toProteinSequence(aminoAcids, substituteStart ? firstStart : -1);
+	}
+	/**
+	 * Translate all six frames of the given sequence.
+	 * All six frames are translated at once in a single traversal of the sequence
+	 * using lookup tables indexed by packed triplets
+	 * instead of creating a {@link Triplet} and doing a Map lookup per codon.
+	 * 
+	 * @since 5.3
+	 */
+	@Override
+	public Map<Frame, ProteinSequence> translateAllFrames(NucleotideSequence sequence, boolean substituteStart) {
+		if(sequence ==null){
+			throw new NullPointerException("sequence can not be null");
+		}
+		PackedTable table = getPackedTable();
+		byte[] bases = encode(sequence);
+		int length = bases.length;
 		
-		while(iter.hasNext() && currentOffset <length){
-			Triplet triplet =iter.next();
-			currentOffset+=3;
-			if(triplet !=null){
-				Codon codon =translate(triplet);
-				if(codon.isStart() && !seenStart){
-					seenStart=true;
-					//hardcode an M if this is our first start
-					//which may 
-					//not be the amino acid returned by 
-					//#getAminoAcid() depending on the translation table
-					builder.append(AminoAcid.Methionine);
-				}else{
-					builder.append(codon.getAminoAcid());
-				}
+		byte[][] aminoAcids = new byte[6][];
+		int[] firstStarts = new int[6];
+		for(int i=0; i< 3; i++){
+			int numberOfCodons = Math.max(0, (length - i)/3);
+			aminoAcids[i] = new byte[numberOfCodons];
+			aminoAcids[i+3] = new byte[numberOfCodons];
+			firstStarts[i] = -1;
+			firstStarts[i+3] = -1;
+		}
+		for(int p=0; p+2 < length; p++){
+			int forwardPacked = packTriplet(bases[p], bases[p+1], bases[p+2]);
+			int frame = p%3;
+			int codonIndex = p/3;
+			aminoAcids[frame][codonIndex] = table.aminoAcids[forwardPacked];
+			if(firstStarts[frame] <0 && table.starts[forwardPacked]){
+				firstStarts[frame] = codonIndex;
 			}
+			//reverse complement coordinate of the same 3 bases
+			//which are walked backwards so each later start
+			//is before the previous one in the reverse frame
+			int reverseOffset = length -3 - p;
+			int reversePacked = packReverseTriplet(bases, p);
+			int reverseFrame = 3 + reverseOffset%3;
+			int reverseCodonIndex = reverseOffset/3;
+			aminoAcids[reverseFrame][reverseCodonIndex] = table.aminoAcids[reversePacked];
+			if(table.starts[reversePacked]){
+				firstStarts[reverseFrame] = reverseCodonIndex;
+			}
+		}
+		Map<Frame, ProteinSequence> map = new EnumMap<>(Frame.class);
+		for(Frame frame : Frame.values()){
+			int i = frame.ordinal();
+			map.put(frame, toProteinSequence(aminoAcids[i], substituteStart ? firstStarts[i] : -1));
 		}
-		return builder.build();
+		return map;
+	}
+	
+	private static ProteinSequence toProteinSequence(byte[] aminoAcids, int startToSubstitute){
+		if(startToSubstitute >=0){
+			//hardcode an M if this is our first start
+			//which may 
+			//not be the amino acid returned by 
+			//#getAminoAcid() depending on the translation table
+			aminoAcids[startToSubstitute] = AminoAcid.Methionine.getOrdinalAsByte();
+		}
+		int numberOfGaps=0;
+		for(int i=0; i< aminoAcids.length; i++){
+			if(aminoAcids[i] == GAP_ORDINAL){
+				numberOfGaps++;
+			}
+		}
+		return new ProteinSequenceBuilder(aminoAcids.length)
+						.appendOrdinals(aminoAcids, numberOfGaps)
+						.build();
+	}
+	/**
+	 * Encode the sequence as an array of DNA ordinals
+	 * with Uracil encoded as Thymine.
+	 */
+	private static byte[] encode(NucleotideSequence sequence){
+		long length = sequence.getLength();
+		if(length > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("sequence too long to translate : " + length);
+		}
+		return NucleotideCodes.toDnaOrdinals(sequence, (int) length);
+	}
+	/**
+	 * Pack the reverse complement of the 3 bases
+	 * starting at the given offset.
+	 */
+	private static int packReverseTriplet(byte[] bases, int offset){
+		return packTriplet(NucleotideCodes.complementDnaOrdinal(bases[offset+2]), 
+							NucleotideCodes.complementDnaOrdinal(bases[offset+1]), 
+							NucleotideCodes.complementDnaOrdinal(bases[offset]));
 	}
 	
 	
@@ -345,12 +450,109 @@ public enum IupacTranslationTables implements TranslationTable{
 	protected void updateTable(Map<Triplet, Codon> map){
 		//no-op
 	}
-	private Codon translate(Triplet triplet){
+	/**
+	 * Translate a single {@link Triplet} using the
+	 * Map this table was built from instead of the packed table.
+	 * This is package private so tests can use it as a reference
+	 * to check the packed table against.
+	 * @param triplet the triplet to translate; can not be null.
+	 * @return the Codon; will never be null.
+	 */
+	Codon translate(Triplet triplet){
 	    return  map.computeIfAbsent(triplet, 
 		        t -> new Codon.Builder(t, AminoAcid.Unknown_Amino_Acid).build());
 		
 	}
 
+	/**
+	 * Pack the given 3 {@link Nucleotide} ordinals into a single 12 bit int
+	 * that can be passed to {@link #getCodon(int)}.
+	 * This lets callers that have already encoded a sequence
+	 * as an array of ordinals translate it without creating
+	 * any {@link Triplet}s or doing any Map lookups.
+	 * Only the 16 {@link Nucleotide#getDnaValues()} can be packed;
+	 * {@link Nucleotide#Uracil} should be packed as {@link Nucleotide#Thymine}.
+	 * 
+	 * @param firstOrdinal the {@link Nucleotide#ordinal()} of the first base.
+	 * @param secondOrdinal the {@link Nucleotide#ordinal()} of the second base.
+	 * @param thirdOrdinal the {@link Nucleotide#ordinal()} of the third base.
+	 * @return an int between 0 (inclusive) and {@link #NUMBER_OF_PACKED_TRIPLETS} (exclusive).
+	 * 
+	 * @since 5.3
+	 */
+	public static int packTriplet(int firstOrdinal, int secondOrdinal, int thirdOrdinal){
+		return firstOrdinal << 8 | secondOrdinal << 4 | thirdOrdinal;
+	}
+	/**
+	 * Get the {@link Codon} for the given packed triplet.
+	 * This returns the same Codon that translating
+	 * the unpacked triplet would use.
+	 * 
+	 * @param packedTriplet the triplet as packed by {@link #packTriplet(int, int, int)}.
+	 * @return the Codon; will never be null.
+	 * @throws ArrayIndexOutOfBoundsException if packedTriplet is not a valid packed triplet.
+	 * 
+	 * @since 5.3
+	 */
+	public Codon getCodon(int packedTriplet){
+		return getPackedTable().codons[packedTriplet];
+	}
+	/**
+	 * Get the {@link Codon} for the given bases.
+	 * {@link Nucleotide#Uracil} is treated as {@link Nucleotide#Thymine}.
+	 * 
+	 * @param first the first base; can not be null.
+	 * @param second the second base; can not be null.
+	 * @param third the third base; can not be null.
+	 * @return the Codon; will never be null.
+	 * @throws NullPointerException if any parameter is null.
+	 * 
+	 * @since 5.3
+	 */
+	public Codon getCodon(Nucleotide first, Nucleotide second, Nucleotide third){
+		return getCodon(packTriplet(NucleotideCodes.toDnaOrdinal(first), NucleotideCodes.toDnaOrdinal(second), NucleotideCodes.toDnaOrdinal(third)));
+	}
+	
+	private PackedTable getPackedTable(){
+		PackedTable table = packedTable;
+		if(table ==null){
+			//benign race, every thread builds the same table
+			table = new PackedTable(map);
+			packedTable = table;
+		}
+		return table;
+	}
+	/**
+	 * The Codon, amino acid ordinal and if it is a start
+	 * of every possible triplet (including ambiguities)
+	 * indexed by packed triplet.
+	 */
+	private static final class PackedTable{
+		private final Codon[] codons = new Codon[NUMBER_OF_PACKED_TRIPLETS];
+		private final byte[] aminoAcids = new byte[NUMBER_OF_PACKED_TRIPLETS];
+		private final boolean[] starts = new boolean[NUMBER_OF_PACKED_TRIPLETS];
+		
+		PackedTable(Map<Triplet, Codon> map){
+			List<Nucleotide> dnaValues = Nucleotide.getDnaValues();
+			for(Nucleotide first : dnaValues){
+				for(Nucleotide second : dnaValues){
+					for(Nucleotide third : dnaValues){
+						Triplet triplet = Triplet.create(first, second, third);
+						//don't use translate(Triplet) so the map isn't modified
+						Codon codon = map.get(triplet);
+						if(codon ==null){
+							codon = new Codon.Builder(triplet, AminoAcid.Unknown_Amino_Acid).build();
+						}
+						int packed = packTriplet(first.ordinal(), second.ordinal(), third.ordinal());
+						codons[packed] = codon;
+						aminoAcids[packed] = codon.getAminoAcid().getOrdinalAsByte();
+						starts[packed] = codon.isStart();
+					}
+				}
+			}
+		}
+	}
+	
 	public int getTableNumber(){
 		return tableNumber;
 	}
@@ -138,6 +138,20 @@ public final class ProteinSequenceBuilder implements ResidueSequenceBuilder<Amin
 		return this;
 	}
 
+	/**
+	 * Append the given amino acid ordinals
+	 * directly to the backing array without
+	 * creating any {@link AminoAcid} objects.
+	 * @param ordinals the {@link AminoAcid#getOrdinalAsByte()} values to append.
+	 * @param numberOfGaps the number of those ordinals that are gaps.
+	 * @return this
+	 * @since 5.3
+	 */
+	ProteinSequenceBuilder appendOrdinals(byte[] ordinals, int numberOfGaps){
+		this.numberOfGaps += numberOfGaps;
+		builder.append(ordinals);
+		return this;
+	}
 	
 	@Override
 	public ProteinSequenceBuilder clear() {
@@ -20,6 +20,7 @@
  ******************************************************************************/
 package org.jcvi.jillion.core.residue.aa;
 
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -127,6 +128,32 @@ public interface TranslationTable {
 	 * @throws IllegalArgumentException if the sequence contains gaps.
 	 */
 	ProteinSequence translate(NucleotideSequence sequence, Frame frame, int length, boolean substituteStarts);
+	/**
+	 * Translate the given {@link NucleotideSequence} in all six {@link Frame}s.
+	 * Each frame is translated the same as {@link #translate(NucleotideSequence, Frame, boolean)}.
+	 * 
+	 * @param sequence the sequence to translate; can not be null.
+	 * @param substituteStart should the start codons be substituted with the translated amino acid.
+	 * 
+	 * @return a new Map of each Frame to its ProteinSequence in the same order as
+	 * {@link Frame#values()}; will never be null.
+	 * @throws NullPointerException if sequence is null.
+	 * 
+	 * @implNote The default implementation calls {@link #translate(NucleotideSequence, Frame, boolean)}
+	 * for each frame.
+	 * 
+	 * @since 5.3
+	 */
+	default Map<Frame, ProteinSequence> translateAllFrames(NucleotideSequence sequence, boolean substituteStart){
+		if(sequence ==null){
+			throw new NullPointerException("sequence can not be null");
+		}
+		Map<Frame, ProteinSequence> map = new EnumMap<>(Frame.class);
+		for(Frame frame : Frame.values()){
+			map.put(frame, translate(sequence, frame, substituteStart));
+		}
+		return map;
+	}
 	
 	Map<Frame,List<Long>> findStops(NucleotideSequence sequence);
 }
@@ -117,6 +117,10 @@ final class DefaultNucleotideSequence extends AbstractResidueSequence<Nucleotide
 
     @Override
     public Stream<Range> findMatches(Pattern pattern) {
+        Stream<Range> literalMatches = NucleotideMotif.findLiteralMatches(this, pattern, Range.ofLength(getLength()));
+        if(literalMatches !=null){
+            return literalMatches;
+        }
         return codec.matches(data, pattern);
     }
 
@@ -125,6 +129,10 @@ final class DefaultNucleotideSequence extends AbstractResidueSequence<Nucleotide
 
     @Override
     public Stream<Range> findMatches(Pattern pattern, Range subSequenceRange) {
+        Stream<Range> literalMatches = NucleotideMotif.findLiteralMatches(this, pattern, subSequenceRange);
+        if(literalMatches !=null){
+            return literalMatches;
+        }
         return codec.matches(data, pattern, subSequenceRange);
     }
 
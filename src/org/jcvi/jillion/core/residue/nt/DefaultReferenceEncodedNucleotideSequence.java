@@ -209,6 +209,10 @@ final class DefaultReferenceEncodedNucleotideSequence extends AbstractResidueSeq
 
 	@Override
 	public Stream<Range> findMatches(Pattern pattern) {
+		Stream<Range> literalMatches = NucleotideMotif.findLiteralMatches(this, pattern, Range.ofLength(getLength()));
+		if(literalMatches !=null){
+			return literalMatches;
+		}
 		//override if something better!
 		Matcher matcher = pattern.matcher(toString());
 
@@ -222,6 +226,10 @@ final class DefaultReferenceEncodedNucleotideSequence extends AbstractResidueSeq
 
 	@Override
 	public Stream<Range> findMatches(Pattern pattern, Range subSequenceRange) {
+		Stream<Range> literalMatches = NucleotideMotif.findLiteralMatches(this, pattern, subSequenceRange);
+		if(literalMatches !=null){
+			return literalMatches;
+		}
 		//override if something better!
 		Matcher matcher = pattern.matcher(toString(subSequenceRange));
 
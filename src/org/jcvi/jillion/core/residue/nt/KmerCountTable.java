@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+
+/**
+ * A thread-safe table of canonical k-mer counts that stores
+ * its keys and counts off-heap in direct {@link ByteBuffer}s
+ * so counting the k-mers of a whole genome or read set
+ * does not create any objects per k-mer.
+ * <p>
+ * If {@code k <= 32}, the keys are the canonical 2 bit packed k-mers
+ * from {@link NucleotideKmers#canonicalPackedKmers(NucleotideSequence, int)};
+ * for larger k, the keys are the canonical rolling hash values which
+ * means that very rarely 2 different k-mers may share the same count.
+ * </p>
+ * <p>
+ * The table is split into independently locked segments so
+ * multiple threads can add sequences at the same time, for example:
+ * <pre>
+ * KmerCountTable table = new KmerCountTable(21, 10_000_000);
+ * try(ThrowingStream&lt;FastqRecord&gt; stream = fastqDataStore.records()){
+ *     table.addAll(stream.parallel().map(FastqRecord::getNucleotideSequence));
+ * }
+ * table.addAll(nucleotideFastaDataStore.asSequenceDataStore());
+ * long[] spectrum = table.getSpectrum(255);
+ * </pre>
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class KmerCountTable {
+    /**
+     * Consumer of each distinct k-mer and its count.
+     */
+    @FunctionalInterface
+    public interface KmerCountConsumer{
+        void accept(long kmer, int count);
+    }
+
+    private static final int NUMBER_OF_SEGMENTS = 64;
+    private static final int SEGMENT_SHIFT = 58;
+    private static final int BYTES_PER_ENTRY = 12;
+    private static final int MIN_SEGMENT_CAPACITY = 1024;
+    /**
+     * Largest power of 2 capacity whose buffer size still fits in an int.
+     */
+    private static final int MAX_SEGMENT_CAPACITY = 1 <<27;
+
+    private final int k;
+    private final Segment[] segments;
+    /**
+     * Create a new empty table.
+     *
+     * @param k the size of the k-mers to count; must be &ge; 1.
+     * @param expectedNumberOfDistinctKmers the expected number of distinct
+     * k-mers, used to size the initial tables; the table will grow as needed.
+     *
+     * @throws IllegalArgumentException if k &lt; 1 or expectedNumberOfDistinctKmers is negative.
+     */
+    public KmerCountTable(int k, long expectedNumberOfDistinctKmers){
+        if(k < 1){
+            throw new IllegalArgumentException("k must be >= 1");
+        }
+        if(expectedNumberOfDistinctKmers < 0){
+            throw new IllegalArgumentException("expected number of kmers can not be negative");
+        }
+        this.k = k;
+        long perSegment = Math.min(MAX_SEGMENT_CAPACITY, expectedNumberOfDistinctKmers / NUMBER_OF_SEGMENTS *4/3 +1);
+        int capacity = Math.min(MAX_SEGMENT_CAPACITY, Math.max(MIN_SEGMENT_CAPACITY, Integer.highestOneBit((int) perSegment -1) <<1));
+        segments = new Segment[NUMBER_OF_SEGMENTS];
+        for(int i=0; i< NUMBER_OF_SEGMENTS; i++){
+            segments[i] = new Segment(capacity);
+        }
+    }
+    /**
+     * Get the size of the k-mers counted by this table.
+     * @return k.
+     */
+    public int getKmerSize(){
+        return k;
+    }
+    /**
+     * Count all the canonical k-mers in the given sequence.
+     * @param seq the sequence to count; can not be null.
+     *
+     * @throws NullPointerException if seq is null.
+     */
+    public void add(NucleotideSequence seq){
+        NucleotideKmers.forEachCanonicalKmer(seq, k, (i, kmer) -> increment(kmer));
+    }
+    /**
+     * Count all the canonical k-mers in all the sequences in the given stream.
+     * If the stream is parallel, the sequences will be counted in parallel.
+     *
+     * @param sequences the sequences to count; can not be null.
+     *
+     * @throws NullPointerException if sequences is null.
+     */
+    public void addAll(Stream<? extends NucleotideSequence> sequences){
+        sequences.forEach(this::add);
+    }
+    /**
+     * Count all the canonical k-mers in all the sequences in the given {@link NucleotideSequenceDataStore}.
+     *
+     * @param datastore the datastore of sequences to count; can not be null.
+     *
+     * @throws DataStoreException if there is a problem iterating over the datastore.
+     * @throws NullPointerException if datastore is null.
+     */
+    public void addAll(NucleotideSequenceDataStore datastore) throws DataStoreException{
+        try(StreamingIterator<NucleotideSequence> iter = datastore.iterator()){
+            while(iter.hasNext()){
+                add(iter.next());
+            }
+        }
+    }
+    /**
+     * Increment the count of the given canonical k-mer value by 1.
+     * @param kmer the canonical k-mer value.
+     */
+    public void increment(long kmer){
+        long hash = mix(kmer);
+        segments[(int)(hash >>> SEGMENT_SHIFT)].increment(kmer, hash);
+    }
+    /**
+     * Get the count of the given canonical k-mer value.
+     * @param kmer the canonical k-mer value.
+     * @return the count, will be 0 if never seen.
+     */
+    public int getCount(long kmer){
+        long hash = mix(kmer);
+        return segments[(int)(hash >>> SEGMENT_SHIFT)].getCount(kmer, hash);
+    }
+    /**
+     * Get the count of the given k-mer sequence or its reverse complement.
+     * @param kmer the k-mer sequence; can not be null and must be length k.
+     * @return the count, will be 0 if never seen.
+     *
+     * @throws NullPointerException if kmer is null.
+     * @throws IllegalArgumentException if kmer is not the same length as k.
+     */
+    public int getCount(NucleotideSequence kmer){
+        if(kmer.getLength() != k){
+            throw new IllegalArgumentException("kmer must be length " + k);
+        }
+        return getCount(NucleotideKmers.canonicalValueOf(kmer));
+    }
+    /**
+     * Get the number of distinct k-mers counted.
+     * @return the number of distinct k-mers.
+     */
+    public long getNumberOfDistinctKmers(){
+        long total=0;
+        for(Segment segment : segments){
+            total += segment.getSize();
+        }
+        return total;
+    }
+    /**
+     * Get the total number of k-mers counted.
+     * @return the sum of all counts.
+     */
+    public long getTotalNumberOfKmers(){
+        long[] total = new long[1];
+        forEach((kmer, count) -> total[0] += count);
+        return total[0];
+    }
+    /**
+     * Compute the k-mer spectrum which is a histogram
+     * of how many distinct k-mers have each count.
+     *
+     * @param maxCount the largest count to track; any
+     * k-mer with a count &ge; maxCount is put in the last bin.
+     * @return an array of length {@code maxCount +1} where
+     * the element at index i is the number of distinct k-mers seen exactly i times
+     * (except the last element as noted above).  Element 0 will always be 0.
+     *
+     * @throws IllegalArgumentException if maxCount &lt; 1.
+     */
+    public long[] getSpectrum(int maxCount){
+        if(maxCount < 1){
+            throw new IllegalArgumentException("max count must be >= 1");
+        }
+        long[] spectrum = new long[maxCount +1];
+        forEach((kmer, count) -> spectrum[Math.min(count, maxCount)]++);
+        return spectrum;
+    }
+    /**
+     * Call the given consumer for each distinct k-mer and its count.
+     * The order of iteration is undefined.
+     *
+     * @param consumer the consumer; can not be null.
+     *
+     * @throws NullPointerException if consumer is null.
+     */
+    public void forEach(KmerCountConsumer consumer){
+        Objects.requireNonNull(consumer);
+        for(Segment segment : segments){
+            segment.forEach(consumer);
+        }
+    }
+    /**
+     * Murmur3 64 bit finalizer so nearly identical
+     * k-mers spread out across the table.
+     */
+    private static long mix(long value){
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    /**
+     * Open addressing hash table stored in a direct
+     * buffer; each entry is an 8 byte key followed by a 4 byte count
+     * where a count of 0 means the slot is empty.
+     */
+    private static final class Segment{
+        private ByteBuffer table;
+        private int capacity;
+        private int size;
+
+        Segment(int capacity){
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity){
+            this.capacity = capacity;
+            this.table = ByteBuffer.allocateDirect(capacity * BYTES_PER_ENTRY);
+        }
+
+        synchronized int getSize(){
+            return size;
+        }
+
+        synchronized void increment(long kmer, long hash){
+            int slot = findSlot(kmer, hash);
+            int position = slot * BYTES_PER_ENTRY;
+            int count = table.getInt(position + 8);
+            if(count ==0){
+                table.putLong(position, kmer);
+                table.putInt(position +8, 1);
+                size++;
+                if(size *4L > capacity *3L){
+                    grow();
+                }
+            }else if(count != Integer.MAX_VALUE){
+                table.putInt(position +8, count +1);
+            }
+        }
+
+        synchronized int getCount(long kmer, long hash){
+            int position = findSlot(kmer, hash) * BYTES_PER_ENTRY;
+            return table.getInt(position +8);
+        }
+
+        synchronized void forEach(KmerCountConsumer consumer){
+            for(int i=0; i< capacity; i++){
+                int position = i * BYTES_PER_ENTRY;
+                int count = table.getInt(position +8);
+                if(count !=0){
+                    consumer.accept(table.getLong(position), count);
+                }
+            }
+        }
+        /**
+         * Find the slot that either contains the kmer
+         * or the empty slot it should be put in.
+         */
+        private int findSlot(long kmer, long hash){
+            int mask = capacity -1;
+            int slot = (int) hash & mask;
+            while(true){
+                int position = slot * BYTES_PER_ENTRY;
+                if(table.getInt(position +8) ==0 || table.getLong(position) == kmer){
+                    return slot;
+                }
+                slot = (slot +1) & mask;
+            }
+        }
+
+        private void grow(){
+            if(capacity >= MAX_SEGMENT_CAPACITY){
+                throw new IllegalStateException("too many distinct kmers to count");
+            }
+            ByteBuffer oldTable = table;
+            int oldCapacity = capacity;
+            allocate(oldCapacity <<1);
+            for(int i=0; i< oldCapacity; i++){
+                int oldPosition = i * BYTES_PER_ENTRY;
+                int count = oldTable.getInt(oldPosition +8);
+                if(count !=0){
+                    long kmer = oldTable.getLong(oldPosition);
+                    int position = findSlot(kmer, mix(kmer)) * BYTES_PER_ENTRY;
+                    table.putLong(position, kmer);
+                    table.putInt(position +8, count);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import org.jcvi.jillion.core.residue.Kmer;
+import org.jcvi.jillion.core.util.streams.ThrowingIntIndexedLongConsumer;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+
+/**
+ * Utility class for computing primitive k-mer values
+ * of {@link NucleotideSequence}s.  Unlike {@link NucleotideSequence#kmers(int)}
+ * which creates a new {@link Kmer} object (and sub sequence)
+ * for every position, the methods in this class
+ * compute each k-mer as a single {@code long} using a rolling
+ * update so no objects are created per k-mer.
+ * <p>
+ * For {@code k <= 32}, k-mers are 2 bit packed with A=0, C=1, G=2 and T=3
+ * where the first base of the k-mer is in the most significant bits.
+ * For larger k, a rolling ntHash style hash value is computed instead.
+ * </p>
+ * <p>
+ * Any window that contains a base that isn't an A,C,G or T (U is treated as T)
+ * is skipped; this includes gaps so callers who want k-mers that span
+ * gaps should use the ungapped sequence.
+ * </p>
+ * <p>
+ * All the returned {@link LongStream}s are backed by spliterators
+ * that can split so calling {@code parallel()} will process
+ * a long sequence across multiple cores.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class NucleotideKmers {
+    /**
+     * The largest k that can be packed into a single long.
+     */
+    public static final int MAX_PACKED_KMER_SIZE = 32;
+
+    private NucleotideKmers(){
+        //can not instantiate
+    }
+    /**
+     * Create a {@link LongStream} of all the 2 bit packed k-mers
+     * in the order they appear in the sequence.
+     *
+     * @param seq the sequence to get the k-mers of; can not be null.
+     * @param k the size of each k-mer; must be between 1 and 32 inclusive.
+     * @return a new {@link LongStream} which may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     * @throws IllegalArgumentException if k is out of range.
+     */
+    public static LongStream packedKmers(NucleotideSequence seq, int k){
+        checkPackedKmerSize(k);
+        return stream(seq, k, PackedKmerSpliterator.Mode.FORWARD);
+    }
+    /**
+     * Create a {@link LongStream} of all the canonical 2 bit packed k-mers
+     * in the order they appear in the sequence.  The canonical
+     * k-mer is the smaller of the k-mer and its reverse complement
+     * so a k-mer and its reverse complement will have the same value.
+     *
+     * @param seq the sequence to get the k-mers of; can not be null.
+     * @param k the size of each k-mer; must be between 1 and 32 inclusive.
+     * @return a new {@link LongStream} which may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     * @throws IllegalArgumentException if k is out of range.
+     */
+    public static LongStream canonicalPackedKmers(NucleotideSequence seq, int k){
+        checkPackedKmerSize(k);
+        return stream(seq, k, PackedKmerSpliterator.Mode.CANONICAL);
+    }
+    /**
+     * Create a {@link LongStream} of canonical rolling hash values for
+     * each k-mer in the sequence.  Since the hash is updated as the window moves
+     * the cost per k-mer is constant no matter how large k is.  A k-mer
+     * and its reverse complement will have the same hash value.
+     *
+     * @param seq the sequence to get the k-mers of; can not be null.
+     * @param k the size of each k-mer; must be &ge; 1.
+     * @return a new {@link LongStream} which may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     * @throws IllegalArgumentException if k is less than 1.
+     */
+    public static LongStream canonicalKmerHashes(NucleotideSequence seq, int k){
+        checkKmerSize(k);
+        return stream(seq, k, PackedKmerSpliterator.Mode.HASH);
+    }
+    /**
+     * Call the given consumer with the start offset and canonical k-mer value
+     * for every valid k-mer in the sequence.  If {@code k <= 32}
+     * the value is the canonical 2 bit packed k-mer, otherwise it is the canonical
+     * rolling hash.
+     *
+     * @param seq the sequence to get the k-mers of; can not be null.
+     * @param k the size of each k-mer; must be &ge; 1.
+     * @param consumer the consumer of each offset and k-mer value; can not be null.
+     *
+     * @throws E the exception the consumer may throw.
+     * @throws NullPointerException if any parameter is null.
+     * @throws IllegalArgumentException if k is less than 1.
+     */
+    public static <E extends Throwable> void forEachCanonicalKmer(NucleotideSequence seq, int k, ThrowingIntIndexedLongConsumer<E> consumer) throws E{
+        Objects.requireNonNull(seq);
+        Objects.requireNonNull(consumer);
+        checkKmerSize(k);
+        PackedKmerSpliterator spliterator = new PackedKmerSpliterator(seq, k,
+                k > MAX_PACKED_KMER_SIZE ? PackedKmerSpliterator.Mode.HASH : PackedKmerSpliterator.Mode.CANONICAL);
+        while(spliterator.advance(consumer)){
+            //keep going
+        }
+    }
+    /**
+     * Call the given consumer with the start offset and 2 bit packed k-mer
+     * as it appears in the sequence for every valid k-mer in the sequence.
+     * Offsets of consecutive k-mers are only more than 1 apart
+     * when the k-mers in between contain a base that isn't an A,C,G or T.
+     *
+     * @param seq the sequence to get the k-mers of; can not be null.
+     * @param k the size of each k-mer; must be between 1 and 32 inclusive.
+     * @param consumer the consumer of each offset and packed k-mer; can not be null.
+     *
+     * @throws E the exception the consumer may throw.
+     * @throws NullPointerException if any parameter is null.
+     * @throws IllegalArgumentException if k is out of range.
+     */
+    public static <E extends Throwable> void forEachPackedKmer(NucleotideSequence seq, int k, ThrowingIntIndexedLongConsumer<E> consumer) throws E{
+        Objects.requireNonNull(seq);
+        Objects.requireNonNull(consumer);
+        checkPackedKmerSize(k);
+        PackedKmerSpliterator spliterator = new PackedKmerSpliterator(seq, k, PackedKmerSpliterator.Mode.FORWARD);
+        while(spliterator.advance(consumer)){
+            //keep going
+        }
+    }
+    /**
+     * Compute the canonical value of the given k-mer sequence
+     * that would be returned by {@link #forEachCanonicalKmer(NucleotideSequence, int, ThrowingIntIndexedLongConsumer)}.
+     *
+     * @param kmer the k-mer; can not be null and must only contain A,C,G and Ts.
+     * @return the canonical value.
+     *
+     * @throws NullPointerException if kmer is null.
+     * @throws IllegalArgumentException if kmer is empty or contains an invalid base.
+     */
+    public static long canonicalValueOf(NucleotideSequence kmer){
+        int k = (int) kmer.getLength();
+        checkKmerSize(k);
+        long[] result = new long[1];
+        boolean[] found = new boolean[1];
+        forEachCanonicalKmer(kmer, k, (i, value) -> {
+            result[0] = value;
+            found[0] = true;
+        });
+        if(!found[0]){
+            throw new IllegalArgumentException("kmer can only contain A,C,G and Ts: " + kmer);
+        }
+        return result[0];
+    }
+    /**
+     * Pack the given sequence of A,C,G and Ts into a long.
+     *
+     * @param kmer the k-mer to pack; can not be null and must be between 1
+     * and 32 bases long.
+     * @return the 2 bit packed value.
+     *
+     * @throws NullPointerException if kmer is null.
+     * @throws IllegalArgumentException if kmer is the wrong length or contains an invalid base.
+     */
+    public static long pack(NucleotideSequence kmer){
+        int k = (int) kmer.getLength();
+        checkPackedKmerSize(k);
+        long packed =0;
+        Iterator<Nucleotide> iter = kmer.iterator();
+        while(iter.hasNext()){
+            Nucleotide n = iter.next();
+            int value = NucleotideCodes.toTwoBitValue(n);
+            if(value <0){
+                throw new IllegalArgumentException("can not pack " + n);
+            }
+            packed = (packed <<2) | value;
+        }
+        return packed;
+    }
+    /**
+     * Unpack the given 2 bit packed k-mer back into a {@link NucleotideSequence}.
+     *
+     * @param packedKmer the packed value.
+     * @param k the size of the k-mer; must be between 1 and 32 inclusive.
+     * @return a new {@link NucleotideSequence}; will never be null.
+     *
+     * @throws IllegalArgumentException if k is out of range.
+     */
+    public static NucleotideSequence unpack(long packedKmer, int k){
+        checkPackedKmerSize(k);
+        NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder(k);
+        for(int i= k-1; i>=0; i--){
+            builder.append(NucleotideCodes.fromTwoBitValue((int)(packedKmer >>> (2*i))));
+        }
+        return builder.build();
+    }
+    /**
+     * Compute the reverse complement of a 2 bit packed k-mer.
+     *
+     * @param packedKmer the packed value.
+     * @param k the size of the k-mer; must be between 1 and 32 inclusive.
+     * @return the packed reverse complement.
+     *
+     * @throws IllegalArgumentException if k is out of range.
+     */
+    public static long reverseComplement(long packedKmer, int k){
+        checkPackedKmerSize(k);
+        //complement every base then reverse the order of the 2 bit
+        //groups: Long.reverse also flips the 2 bits within each
+        //group so swap them back
+        long reversed = Long.reverse(~packedKmer);
+        reversed = ((reversed >>> 1) & 0x5555555555555555L) | ((reversed & 0x5555555555555555L) << 1);
+        return reversed >>> (64 - 2*k);
+    }
+
+    private static LongStream stream(NucleotideSequence seq, int k, PackedKmerSpliterator.Mode mode){
+        Objects.requireNonNull(seq);
+        return StreamSupport.longStream(new PackedKmerSpliterator(seq, k, mode), false);
+    }
+
+    private static void checkKmerSize(int k){
+        if(k < 1){
+            throw new IllegalArgumentException("k must be >= 1: " + k);
+        }
+    }
+
+    private static void checkPackedKmerSize(int k){
+        if(k < 1 || k > MAX_PACKED_KMER_SIZE){
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_PACKED_KMER_SIZE + ": " + k);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.DirectedRange;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.internal.core.io.StreamUtil;
+
+/**
+ * A compiled fixed length nucleotide motif that may contain IUPAC
+ * ambiguity codes and can be searched for allowing up to a given number
+ * of mismatches, optionally on both strands.
+ * <p>
+ * Unlike {@link NucleotideSequence#findMatches(String)}, which decodes the sequence
+ * into a String and runs a regular expression over it, a motif is
+ * compiled into bit masks and matched using the bit-parallel Shift-And algorithm
+ * in a single pass over the bases; the sequence is never decoded into a String.
+ * </p>
+ * <p>
+ * A sequence base matches a motif position if the base is an A,C,G or T
+ * (U is treated as T) that is one of the bases the IUPAC code of the motif position
+ * represents.  So the motif position N matches any of A,C,G or T, but ambiguous bases and gaps
+ * in the sequence never match and always count as a mismatch.  Callers who want
+ * to match across gaps should search the ungapped sequence.
+ * </p>
+ * <p>
+ * Since every possible occurrence is reported, matches may overlap.
+ * All returned Ranges are in gapped coordinates relative to the full sequence.
+ * <pre>
+ * NucleotideMotif ecoRI = NucleotideMotif.compile("GAATTC");
+ * ecoRI.findMatches(seq).forEach(...);
+ *
+ * NucleotideMotif primer = new NucleotideMotif.Builder("ACGTRYNNAAC")
+ *                                      .maxMismatches(2)
+ *                                      .searchBothStrands(true)
+ *                                      .build();
+ * primer.findDirectedMatches(seq).forEach(...);
+ * </pre>
+ * </p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ *
+ * @see NucleotideMotifSet
+ */
+public final class NucleotideMotif {
+    /**
+     * Longest motif that is matched using a single
+     * 64 bit word per state; longer motifs are checked base by base.
+     */
+    private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    private static final int NUMBER_OF_ORDINALS = Nucleotide.getAllValues().size();
+
+    private final NucleotideSequence motif;
+    private final int length;
+    private final int maxMismatches;
+    private final boolean searchBothStrands;
+    /**
+     * Indexed by Nucleotide ordinal, bit i is set
+     * if that base matches motif position i.
+     */
+    private final long[] forwardMasks;
+    private final long[] reverseMasks;
+    /**
+     * Indexed by motif position then nucleotide ordinal;
+     * only used for motifs that are too long for the masks.
+     */
+    private final boolean[][] forwardMatrix;
+    private final boolean[][] reverseMatrix;
+
+    private NucleotideMotif(Builder builder){
+        this.motif = builder.motif;
+        this.length = (int) motif.getLength();
+        this.maxMismatches = builder.maxMismatches;
+        this.searchBothStrands = builder.searchBothStrands;
+
+        boolean[][] forward = createMatchMatrix(motif);
+        boolean[][] reverse = searchBothStrands ? createMatchMatrix(motif.toBuilder().reverseComplement().build()) : null;
+        if(length <= MAX_BIT_PARALLEL_LENGTH){
+            forwardMasks = toMasks(forward);
+            reverseMasks = reverse ==null ? null : toMasks(reverse);
+            forwardMatrix = null;
+            reverseMatrix = null;
+        }else{
+            forwardMasks = null;
+            reverseMasks = null;
+            forwardMatrix = forward;
+            reverseMatrix = reverse;
+        }
+    }
+    /**
+     * Compile the given IUPAC motif for exact matching on the forward strand only.
+     *
+     * @param motif the motif to compile, may contain any IUPAC ambiguity codes;
+     * can not be null, empty or contain gaps.
+     * @return a new {@link NucleotideMotif}; will never be null.
+     *
+     * @throws NullPointerException if motif is null.
+     * @throws IllegalArgumentException if motif is empty, contains a gap or is not a valid nucleotide sequence.
+     */
+    public static NucleotideMotif compile(String motif){
+        return new Builder(motif).build();
+    }
+    /**
+     * Compile the given IUPAC motif allowing the given number of mismatches
+     * on the forward strand only.
+     *
+     * @param motif the motif to compile, may contain any IUPAC ambiguity codes;
+     * can not be null, empty or contain gaps.
+     * @param maxMismatches the maximum number of mismatches; can not be negative.
+     * @return a new {@link NucleotideMotif}; will never be null.
+     *
+     * @throws NullPointerException if motif is null.
+     * @throws IllegalArgumentException if motif is empty, contains a gap or is not a valid nucleotide sequence
+     * or if maxMismatches is negative.
+     */
+    public static NucleotideMotif compile(String motif, int maxMismatches){
+        return new Builder(motif).maxMismatches(maxMismatches).build();
+    }
+    /**
+     * Is the given regular expression just a plain literal
+     * of uppercase A,C,G and Ts with no regular expression meta characters.
+     * Such expressions can be matched by a {@link NucleotideMotif} instead.
+     */
+    static boolean isAcgtLiteral(String regex){
+        int length = regex.length();
+        if(length ==0){
+            return false;
+        }
+        for(int i=0; i< length; i++){
+            switch(regex.charAt(i)){
+                case 'A':
+                case 'C':
+                case 'G':
+                case 'T': break;
+                default: return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean[][] createMatchMatrix(NucleotideSequence motif){
+        boolean[][] matrix = new boolean[(int) motif.getLength()][NUMBER_OF_ORDINALS];
+        int i=0;
+        for(Nucleotide n : motif){
+            for(Nucleotide basis : n.getBasesFor()){
+                if(basis == Nucleotide.Thymine || basis == Nucleotide.Uracil){
+                    matrix[i][Nucleotide.Thymine.ordinal()] = true;
+                    matrix[i][Nucleotide.Uracil.ordinal()] = true;
+                }else{
+                    matrix[i][basis.ordinal()] = true;
+                }
+            }
+            i++;
+        }
+        return matrix;
+    }
+
+    private static long[] toMasks(boolean[][] matrix){
+        long[] masks = new long[NUMBER_OF_ORDINALS];
+        for(int i=0; i< matrix.length; i++){
+            for(int ordinal=0; ordinal< NUMBER_OF_ORDINALS; ordinal++){
+                if(matrix[i][ordinal]){
+                    masks[ordinal] |= 1L << i;
+                }
+            }
+        }
+        return masks;
+    }
+    /**
+     * Get the motif as a {@link NucleotideSequence}.
+     * @return the motif; will never be null.
+     */
+    public NucleotideSequence getMotif(){
+        return motif;
+    }
+    /**
+     * Get the length of this motif which is also the length of every match.
+     * @return the length.
+     */
+    public int getLength(){
+        return length;
+    }
+    /**
+     * Get the maximum number of mismatches allowed.
+     * @return the max number of mismatches.
+     */
+    public int getMaxMismatches(){
+        return maxMismatches;
+    }
+    /**
+     * Does this motif also search for its reverse complement.
+     * @return {@code true} if both strands are searched.
+     */
+    public boolean isSearchingBothStrands(){
+        return searchBothStrands;
+    }
+    /**
+     * Find all the Ranges in the given sequence that match this motif.
+     * If this motif searches both strands, Ranges that match
+     * on either strand are included; a Range that matches on both strands
+     * is only included once.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @return a {@link Stream} of {@link Range}s sorted by begin coordinate; may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     */
+    public Stream<Range> findMatches(NucleotideSequence seq){
+        return findMatches(seq, Range.ofLength(seq.getLength()));
+    }
+    /**
+     * Find the Ranges within the given sub sequence range of the given sequence
+     * that match this motif.  All the returned Ranges are relative to the entire sequence.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @param subSequenceRange the Range in the sequence to look for matches in; can not be null.
+     * @return a {@link Stream} of {@link Range}s sorted by begin coordinate; may be empty.
+     *
+     * @throws NullPointerException if any parameter is null.
+     *
+     * @see #findMatches(NucleotideSequence)
+     */
+    public Stream<Range> findMatches(NucleotideSequence seq, Range subSequenceRange){
+        Objects.requireNonNull(subSequenceRange);
+        return findDirectedMatches(seq, subSequenceRange)
+                .map(DirectedRange::asRange)
+                .filter(new DuplicateRangeFilter());
+    }
+    /**
+     * Find all the matches of this motif on either strand as {@link DirectedRange}s
+     * where the direction is the strand the motif matched.
+     * A palindromic match will be included twice, once for each direction.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @return a {@link Stream} of {@link DirectedRange}s sorted by begin coordinate; may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     */
+    public Stream<DirectedRange> findDirectedMatches(NucleotideSequence seq){
+        return findDirectedMatches(seq, Range.ofLength(seq.getLength()));
+    }
+    /**
+     * Find all the matches of this motif on either strand within the given sub sequence range
+     * as {@link DirectedRange}s.  All the returned Ranges are relative to the entire sequence.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @param subSequenceRange the Range in the sequence to look for matches in; can not be null.
+     * @return a {@link Stream} of {@link DirectedRange}s sorted by begin coordinate; may be empty.
+     *
+     * @throws NullPointerException if any parameter is null.
+     */
+    public Stream<DirectedRange> findDirectedMatches(NucleotideSequence seq, Range subSequenceRange){
+        Objects.requireNonNull(seq);
+        Objects.requireNonNull(subSequenceRange);
+        if(subSequenceRange.getLength() < length){
+            return Stream.empty();
+        }
+        Scanner scanner = length <= MAX_BIT_PARALLEL_LENGTH ? new ShiftAndScanner() : new NaiveScanner();
+        MatchGenerator generator = new MatchGenerator(seq.iterator(subSequenceRange), subSequenceRange.getBegin(), scanner);
+        return StreamUtil.newGeneratedStream(generator::next);
+    }
+    /**
+     * Find the matches of the given regular expression without
+     * the regular expression engine if the pattern is just a plain
+     * literal of A,C,G and Ts with no flags and the sequence is DNA
+     * (so there are no Us that a T could be confused with).
+     * 
+     * @param seq the sequence to search.
+     * @param pattern the pattern to look for.
+     * @param subSequenceRange the Range in the sequence to look for matches in.
+     * @return the same matches {@link java.util.regex.Matcher#find()} would find
+     * or {@code null} if the pattern has to be run by the regular expression engine.
+     */
+    static Stream<Range> findLiteralMatches(NucleotideSequence seq, Pattern pattern, Range subSequenceRange){
+        if(!seq.isDna() || pattern.flags() !=0 || !isAcgtLiteral(pattern.pattern())){
+            return null;
+        }
+        return compile(pattern.pattern()).findNonOverlappingMatches(seq, subSequenceRange);
+    }
+    /**
+     * Find the leftmost non-overlapping matches the same way
+     * {@link java.util.regex.Matcher#find()} would.
+     */
+    Stream<Range> findNonOverlappingMatches(NucleotideSequence seq, Range subSequenceRange){
+        long[] nextAllowedBegin = new long[]{Long.MIN_VALUE};
+        return findMatches(seq, subSequenceRange)
+                    .filter(r ->{
+                        if(r.getBegin() < nextAllowedBegin[0]){
+                            return false;
+                        }
+                        nextAllowedBegin[0] = r.getEnd() +1;
+                        return true;
+                    });
+    }
+    /**
+     * Since all matches are the same length, the stream is sorted
+     * by begin coordinate so duplicates are always consecutive.
+     */
+    private static final class DuplicateRangeFilter implements Predicate<Range>{
+        private Range previous;
+        @Override
+        public boolean test(Range r) {
+            if(r.equals(previous)){
+                return false;
+            }
+            previous = r;
+            return true;
+        }
+    }
+    /**
+     * Updates the match state for each base and reports
+     * which strands (if any) match ending at that base.
+     */
+    private interface Scanner{
+        int FORWARD_MATCH = 1;
+        int REVERSE_MATCH = 2;
+        /**
+         * @param ordinal the ordinal of the next base.
+         * @return bit flags of {@link #FORWARD_MATCH} and {@link #REVERSE_MATCH}
+         * for the motif ending at this base.
+         */
+        int next(int ordinal);
+    }
+    /**
+     * Shift-And with up to k substitutions (Wu-Manber);
+     * state word j has bit i set if motif[0..i] matches the text ending at the current
+     * base with at most j mismatches.
+     */
+    private final class ShiftAndScanner implements Scanner{
+        private final long[] forwardStates = new long[maxMismatches +1];
+        private final long[] reverseStates = searchBothStrands ? new long[maxMismatches +1] : null;
+        private final long matchBit = 1L << (length -1);
+
+        @Override
+        public int next(int ordinal) {
+            int result = update(forwardStates, forwardMasks[ordinal]) ? FORWARD_MATCH : 0;
+            if(reverseStates !=null && update(reverseStates, reverseMasks[ordinal])){
+                result |= REVERSE_MATCH;
+            }
+            return result;
+        }
+
+        private boolean update(long[] states, long mask){
+            for(int j= states.length -1; j>0; j--){
+                states[j] = (((states[j] <<1) | 1L) & mask) | ((states[j-1] <<1) | 1L);
+            }
+            states[0] = ((states[0] <<1) | 1L) & mask;
+            return (states[states.length -1] & matchBit) !=0;
+        }
+    }
+    /**
+     * Checks the last length bases against the motif
+     * one base at a time; only used for motifs
+     * longer than {@value NucleotideMotif#MAX_BIT_PARALLEL_LENGTH}.
+     */
+    private final class NaiveScanner implements Scanner{
+        private final int[] window = new int[length];
+        private long seen;
+
+        @Override
+        public int next(int ordinal) {
+            window[(int)(seen % length)] = ordinal;
+            seen++;
+            if(seen < length){
+                return 0;
+            }
+            int result = matches(forwardMatrix) ? FORWARD_MATCH : 0;
+            if(reverseMatrix !=null && matches(reverseMatrix)){
+                result |= REVERSE_MATCH;
+            }
+            return result;
+        }
+
+        private boolean matches(boolean[][] matrix){
+            int start = (int)(seen % length);
+            int mismatches=0;
+            for(int i=0; i< length; i++){
+                if(!matrix[i][window[(start + i) % length]] && ++mismatches > maxMismatches){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final class MatchGenerator{
+        private final Iterator<Nucleotide> iter;
+        private final Scanner scanner;
+        private final ArrayDeque<DirectedRange> pending = new ArrayDeque<>(2);
+        private long offset;
+
+        MatchGenerator(Iterator<Nucleotide> iter, long startOffset, Scanner scanner){
+            this.iter = iter;
+            this.offset = startOffset;
+            this.scanner = scanner;
+        }
+
+        Optional<DirectedRange> next(){
+            while(pending.isEmpty() && iter.hasNext()){
+                int result = scanner.next(iter.next().ordinal());
+                if(result !=0){
+                    Range range = Range.of(offset - length +1, offset);
+                    if((result & Scanner.FORWARD_MATCH) !=0){
+                        pending.add(DirectedRange.create(range, Direction.FORWARD));
+                    }
+                    if((result & Scanner.REVERSE_MATCH) !=0){
+                        pending.add(DirectedRange.create(range, Direction.REVERSE));
+                    }
+                }
+                offset++;
+            }
+            return Optional.ofNullable(pending.poll());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NucleotideMotif [motif=" + motif + ", maxMismatches="
+                + maxMismatches + ", searchBothStrands=" + searchBothStrands
+                + "]";
+    }
+    /**
+     * Builder to create a new {@link NucleotideMotif}.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class Builder implements org.jcvi.jillion.core.util.Builder<NucleotideMotif>{
+        private final NucleotideSequence motif;
+        private int maxMismatches;
+        private boolean searchBothStrands;
+        /**
+         * Create a new Builder for the given IUPAC motif.
+         *
+         * @param motif the motif to compile, may contain any IUPAC ambiguity codes;
+         * can not be null, empty or contain gaps.
+         *
+         * @throws NullPointerException if motif is null.
+         * @throws IllegalArgumentException if motif is empty, contains a gap or is not a valid nucleotide sequence.
+         */
+        public Builder(String motif){
+            this(new NucleotideSequenceBuilder(Objects.requireNonNull(motif)).build());
+        }
+        /**
+         * Create a new Builder for the given IUPAC motif.
+         *
+         * @param motif the motif to compile, may contain any IUPAC ambiguity codes;
+         * can not be null, empty or contain gaps.
+         *
+         * @throws NullPointerException if motif is null.
+         * @throws IllegalArgumentException if motif is empty or contains a gap.
+         */
+        public Builder(NucleotideSequence motif){
+            Objects.requireNonNull(motif);
+            if(motif.getLength() ==0){
+                throw new IllegalArgumentException("motif can not be empty");
+            }
+            if(motif.getNumberOfGaps() >0){
+                throw new IllegalArgumentException("motif can not contain gaps");
+            }
+            this.motif = motif;
+        }
+        /**
+         * Set the maximum number of mismatches a match may have.
+         * Defaults to 0.
+         *
+         * @param maxMismatches the max number of mismatches; can not be negative.
+         * @return this.
+         *
+         * @throws IllegalArgumentException if maxMismatches is negative.
+         */
+        public Builder maxMismatches(int maxMismatches){
+            if(maxMismatches <0){
+                throw new IllegalArgumentException("max mismatches can not be negative");
+            }
+            this.maxMismatches = maxMismatches;
+            return this;
+        }
+        /**
+         * Should the reverse complement of the motif also be searched for.
+         * Defaults to {@code false}.
+         *
+         * @param searchBothStrands {@code true} to also search the reverse strand.
+         * @return this.
+         */
+        public Builder searchBothStrands(boolean searchBothStrands){
+            this.searchBothStrands = searchBothStrands;
+            return this;
+        }
+
+        @Override
+        public NucleotideMotif build() {
+            return new NucleotideMotif(this);
+        }
+    }
+}
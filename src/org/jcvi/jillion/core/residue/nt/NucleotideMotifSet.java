@@ -0,0 +1,425 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.internal.core.io.StreamUtil;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+
+/**
+ * A set of exact IUPAC nucleotide motifs (for example a panel of primers,
+ * adapters or restriction sites) compiled into a single Aho-Corasick automaton
+ * so all the motifs can be found in a single pass over a sequence no matter
+ * how many motifs there are.
+ * <p>
+ * Ambiguity codes in the motifs are expanded into all the unambiguous
+ * motifs they represent when the set is built.  The same matching rules
+ * as {@link NucleotideMotif} apply: ambiguous bases and gaps in the searched sequence
+ * never match anything.
+ * </p>
+ * <pre>
+ * NucleotideMotifSet sites = new NucleotideMotifSet.Builder()
+ *                                  .add("EcoRI", "GAATTC")
+ *                                  .add("HincII", "GTYRAC")
+ *                                  .searchBothStrands(true)
+ *                                  .build();
+ * sites.findMatches(seq).forEach(m -&gt; System.out.println(m.getMotifName() + " " + m.getRange()));
+ * </pre>
+ * Instances are immutable and thread-safe.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ *
+ * @see NucleotideMotif
+ */
+public final class NucleotideMotifSet {
+    /**
+     * Max number of unambiguous motifs a single
+     * ambiguous motif may expand into.
+     */
+    public static final int MAX_EXPANSIONS_PER_MOTIF = 1 <<12;
+
+    private static final int ALPHABET_SIZE = 4;
+
+    private final String[] names;
+    private final int[] lengths;
+    /**
+     * Transition table of {@code numberOfStates * 4} where
+     * failure transitions have already been followed.
+     */
+    private final int[] transitions;
+    /**
+     * For each state, the outputs are from {@code outputOffsets[state]}
+     * to {@code outputOffsets[state+1]} in {@code outputs}; each output
+     * is {@code motifIndex << 1 | isReverse}.
+     */
+    private final int[] outputOffsets;
+    private final int[] outputs;
+
+    private NucleotideMotifSet(String[] names, int[] lengths, int[] transitions, int[] outputOffsets, int[] outputs){
+        this.names = names;
+        this.lengths = lengths;
+        this.transitions = transitions;
+        this.outputOffsets = outputOffsets;
+        this.outputs = outputs;
+    }
+    /**
+     * Get the number of motifs in this set.
+     * @return the number of motifs.
+     */
+    public int getNumberOfMotifs(){
+        return names.length;
+    }
+    /**
+     * Get the number of states in the compiled automaton.
+     * @return the number of states.
+     */
+    public int getNumberOfStates(){
+        return transitions.length / ALPHABET_SIZE;
+    }
+    /**
+     * Find all the matches of all the motifs in the given sequence.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @return a {@link Stream} of {@link Match}es sorted by end coordinate; may be empty.
+     *
+     * @throws NullPointerException if seq is null.
+     */
+    public Stream<Match> findMatches(NucleotideSequence seq){
+        return findMatches(seq, Range.ofLength(seq.getLength()));
+    }
+    /**
+     * Find all the matches of all the motifs within the given sub sequence range of the
+     * given sequence.  All returned Ranges are relative to the entire sequence.
+     *
+     * @param seq the sequence to search; can not be null.
+     * @param subSequenceRange the Range in the sequence to look for matches in; can not be null.
+     * @return a {@link Stream} of {@link Match}es sorted by end coordinate; may be empty.
+     *
+     * @throws NullPointerException if any parameter is null.
+     */
+    public Stream<Match> findMatches(NucleotideSequence seq, Range subSequenceRange){
+        Objects.requireNonNull(seq);
+        Objects.requireNonNull(subSequenceRange);
+        MatchGenerator generator = new MatchGenerator(seq.iterator(subSequenceRange), subSequenceRange.getBegin());
+        return StreamUtil.newGeneratedStream(generator::next);
+    }
+
+    private final class MatchGenerator{
+        private final Iterator<Nucleotide> iter;
+        private final ArrayDeque<Match> pending = new ArrayDeque<>();
+        private long offset;
+        private int state;
+
+        MatchGenerator(Iterator<Nucleotide> iter, long startOffset){
+            this.iter = iter;
+            this.offset = startOffset;
+        }
+
+        Optional<Match> next(){
+            while(pending.isEmpty() && iter.hasNext()){
+                int value = NucleotideCodes.toTwoBitValue(iter.next());
+                if(value <0){
+                    state =0;
+                }else{
+                    state = transitions[state * ALPHABET_SIZE + value];
+                    for(int i= outputOffsets[state]; i< outputOffsets[state+1]; i++){
+                        int motifIndex = outputs[i] >>>1;
+                        Direction dir = (outputs[i] & 1) ==0 ? Direction.FORWARD : Direction.REVERSE;
+                        pending.add(new Match(names[motifIndex],
+                                Range.of(offset - lengths[motifIndex] +1, offset), dir));
+                    }
+                }
+                offset++;
+            }
+            return Optional.ofNullable(pending.poll());
+        }
+    }
+    /**
+     * A single match of one of the motifs in a {@link NucleotideMotifSet}.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class Match{
+        private final String motifName;
+        private final Range range;
+        private final Direction direction;
+
+        Match(String motifName, Range range, Direction direction) {
+            this.motifName = motifName;
+            this.range = range;
+            this.direction = direction;
+        }
+        /**
+         * Get the name of the motif that matched.
+         * @return the motif name; will never be null.
+         */
+        public String getMotifName() {
+            return motifName;
+        }
+        /**
+         * Get the Range of the sequence that matched.
+         * @return the Range; will never be null.
+         */
+        public Range getRange() {
+            return range;
+        }
+        /**
+         * Get the strand the motif matched on;
+         * {@link Direction#REVERSE} means the reverse complement of the motif matched.
+         * @return the Direction; will never be null.
+         */
+        public Direction getDirection() {
+            return direction;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + direction.hashCode();
+            result = prime * result + motifName.hashCode();
+            result = prime * result + range.hashCode();
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Match)) {
+                return false;
+            }
+            Match other = (Match) obj;
+            return direction == other.direction
+                    && motifName.equals(other.motifName)
+                    && range.equals(other.range);
+        }
+
+        @Override
+        public String toString() {
+            return "Match [motifName=" + motifName + ", range=" + range
+                    + ", direction=" + direction + "]";
+        }
+    }
+    /**
+     * Builder to create a new {@link NucleotideMotifSet}.
+     *
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class Builder implements org.jcvi.jillion.core.util.Builder<NucleotideMotifSet>{
+        private final Map<String, NucleotideSequence> motifs = new LinkedHashMap<>();
+        private boolean searchBothStrands;
+        /**
+         * Add the given IUPAC motif to the set.
+         *
+         * @param name the name of the motif which will be reported in each match; can not be null
+         * and must be unique.
+         * @param motif the motif, may contain any IUPAC ambiguity codes; can not be null, empty
+         * or contain gaps.
+         * @return this.
+         *
+         * @throws NullPointerException if either parameter is null.
+         * @throws IllegalArgumentException if the name has already been added or the motif is
+         * empty, contains gaps, is not a valid nucleotide sequence or expands into more than
+         * {@link #MAX_EXPANSIONS_PER_MOTIF} unambiguous motifs.
+         */
+        public Builder add(String name, String motif){
+            Objects.requireNonNull(motif);
+            return add(name, new NucleotideSequenceBuilder(motif).build());
+        }
+        /**
+         * Add the given IUPAC motif to the set.
+         *
+         * @param name the name of the motif which will be reported in each match; can not be null
+         * and must be unique.
+         * @param motif the motif, may contain any IUPAC ambiguity codes; can not be null, empty
+         * or contain gaps.
+         * @return this.
+         *
+         * @throws NullPointerException if either parameter is null.
+         * @throws IllegalArgumentException if the name has already been added or the motif is
+         * empty, contains gaps or expands into more than
+         * {@link #MAX_EXPANSIONS_PER_MOTIF} unambiguous motifs.
+         */
+        public Builder add(String name, NucleotideSequence motif){
+            Objects.requireNonNull(name);
+            Objects.requireNonNull(motif);
+            if(motif.getLength() ==0){
+                throw new IllegalArgumentException("motif can not be empty");
+            }
+            if(motif.getNumberOfGaps() >0){
+                throw new IllegalArgumentException("motif can not contain gaps");
+            }
+            long expansions =1;
+            for(Nucleotide n : motif){
+                expansions *= n.getBasesFor().size();
+                if(expansions > MAX_EXPANSIONS_PER_MOTIF){
+                    throw new IllegalArgumentException("motif " + name + " is too ambiguous");
+                }
+            }
+            if(motifs.containsKey(name)){
+                throw new IllegalArgumentException("motif name already added: " + name);
+            }
+            motifs.put(name, motif);
+            return this;
+        }
+        /**
+         * Should the reverse complement of each motif also be searched for.
+         * Defaults to {@code false}.
+         *
+         * @param searchBothStrands {@code true} to also search the reverse strand.
+         * @return this.
+         */
+        public Builder searchBothStrands(boolean searchBothStrands){
+            this.searchBothStrands = searchBothStrands;
+            return this;
+        }
+
+        @Override
+        public NucleotideMotifSet build() {
+            String[] names = new String[motifs.size()];
+            int[] lengths = new int[motifs.size()];
+
+            GrowableIntArray gotos = new GrowableIntArray(1024);
+            List<GrowableIntArray> stateOutputs = new ArrayList<>();
+            newState(gotos, stateOutputs);
+
+            int motifIndex=0;
+            for(Map.Entry<String, NucleotideSequence> entry : motifs.entrySet()){
+                names[motifIndex] = entry.getKey();
+                NucleotideSequence motif = entry.getValue();
+                lengths[motifIndex] = (int) motif.getLength();
+
+                addExpansions(motif, motifIndex <<1, gotos, stateOutputs);
+                if(searchBothStrands){
+                    addExpansions(motif.toBuilder().reverseComplement().build(), motifIndex <<1 | 1, gotos, stateOutputs);
+                }
+                motifIndex++;
+            }
+            int[] transitions = gotos.toArray();
+            int numberOfStates = stateOutputs.size();
+            int[] failures = new int[numberOfStates];
+            //breadth first to compute failure links and
+            //turn the trie into a full transition table
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for(int c=0; c< ALPHABET_SIZE; c++){
+                int child = transitions[c];
+                if(child <0){
+                    transitions[c] =0;
+                }else{
+                    failures[child] =0;
+                    queue.add(child);
+                }
+            }
+            while(!queue.isEmpty()){
+                int state = queue.poll();
+                for(int c=0; c< ALPHABET_SIZE; c++){
+                    int index = state * ALPHABET_SIZE + c;
+                    int child = transitions[index];
+                    int fallback = transitions[failures[state] * ALPHABET_SIZE + c];
+                    if(child <0){
+                        transitions[index] = fallback;
+                    }else{
+                        failures[child] = fallback;
+                        //inherit outputs of the longest proper suffix
+                        stateOutputs.get(child).append(stateOutputs.get(fallback));
+                        queue.add(child);
+                    }
+                }
+            }
+            int[] outputOffsets = new int[numberOfStates +1];
+            GrowableIntArray outputs = new GrowableIntArray(numberOfStates);
+            for(int i=0; i< numberOfStates; i++){
+                outputs.append(stateOutputs.get(i));
+                outputOffsets[i+1] = outputs.getCurrentLength();
+            }
+            return new NucleotideMotifSet(names, lengths, transitions, outputOffsets, outputs.toArray());
+        }
+
+        private static int newState(GrowableIntArray gotos, List<GrowableIntArray> stateOutputs){
+            int state = stateOutputs.size();
+            for(int c=0; c< ALPHABET_SIZE; c++){
+                gotos.append(-1);
+            }
+            stateOutputs.add(new GrowableIntArray(2));
+            return state;
+        }
+        /**
+         * Add every unambiguous version of the motif to the trie
+         * by walking it depth first.
+         */
+        private static void addExpansions(NucleotideSequence motif, int output,
+                GrowableIntArray gotos, List<GrowableIntArray> stateOutputs){
+            int length = (int) motif.getLength();
+            int[][] choices = new int[length][];
+            int i=0;
+            for(Nucleotide n : motif){
+                choices[i++] = n.getBasesFor().stream()
+                                    .mapToInt(NucleotideCodes::toTwoBitValue)
+                                    .distinct()
+                                    .toArray();
+            }
+            addExpansions(choices, 0, 0, output, gotos, stateOutputs);
+        }
+
+        private static void addExpansions(int[][] choices, int depth, int state, int output,
+                GrowableIntArray gotos, List<GrowableIntArray> stateOutputs){
+            if(depth == choices.length){
+                GrowableIntArray stateOutput = stateOutputs.get(state);
+                for(int i=0; i< stateOutput.getCurrentLength(); i++){
+                    if(stateOutput.get(i) == output){
+                        return;
+                    }
+                }
+                stateOutput.append(output);
+                return;
+            }
+            for(int c : choices[depth]){
+                int index = state * ALPHABET_SIZE + c;
+                int next = gotos.get(index);
+                if(next <0){
+                    next = newState(gotos, stateOutputs);
+                    gotos.replace(index, next);
+                }
+                addExpansions(choices, depth+1, next, output, gotos, stateOutputs);
+            }
+        }
+    }
+}
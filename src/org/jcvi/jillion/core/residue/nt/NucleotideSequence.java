@@ -31,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.jcvi.jillion.core.Range;
@@ -143,6 +144,9 @@ public interface NucleotideSequence extends ResidueSequence<Nucleotide, Nucleoti
     }
     /**
      * Find all the Ranges in this sequence that match the given regular expression {@link Pattern}.
+     * Patterns that are just plain A,C,G and Ts searched against a DNA sequence
+     * may be matched without the regular expression engine but will
+     * return the same Ranges.
      * @param pattern the pattern to look for.  All bases must be in uppercase.
      * @return a {@link Stream} of {@link Range} objects of the matches on this sequence.
      * 
@@ -170,6 +174,36 @@ public interface NucleotideSequence extends ResidueSequence<Nucleotide, Nucleoti
      */
     Stream<Range> findMatches(Pattern pattern, Range subSequenceRange);
 
+    /**
+     * Find all the Ranges in this sequence that match the given {@link NucleotideMotif}.
+     * @param motif the compiled motif to look for; can not be null.
+     * @return a {@link Stream} of {@link Range} objects of the matches on this sequence.
+     *
+     * @apiNote this is the same as {@code  motif.findMatches(this); }
+     *
+     * @since 5.3
+     *
+     * @see NucleotideMotif#findMatches(NucleotideSequence)
+     */
+    default Stream<Range> findMatches(NucleotideMotif motif){
+        return motif.findMatches(this);
+    }
+    /**
+     * Find the Ranges in this sequence within the specified sub sequence range
+     * that match the given {@link NucleotideMotif}.
+     * All the Range coordinates returned in the Stream will be relative to the entire sequence.
+     * @param motif the compiled motif to look for; can not be null.
+     * @param subSequenceRange the Range in the sequence to look for matches in.
+     * @return a {@link Stream} of {@link Range} objects of the matches on this sequence.
+     *
+     * @since 5.3
+     *
+     * @see NucleotideMotif#findMatches(NucleotideSequence, Range)
+     */
+    default Stream<Range> findMatches(NucleotideMotif motif, Range subSequenceRange){
+        return motif.findMatches(this, subSequenceRange);
+    }
+
     default Stream<Range> findMatches(Pattern pattern, boolean nested) {
 
         return findMatches(pattern, Range.ofLength(getLength()), nested);
@@ -205,6 +239,40 @@ public interface NucleotideSequence extends ResidueSequence<Nucleotide, Nucleoti
         }
         return nestedOutput;
     }
+    /**
+     * Create a {@link LongStream} of the canonical 2 bit packed k-mers
+     * of this sequence without creating any {@link org.jcvi.jillion.core.residue.Kmer} objects.
+     * Windows that contain a base that is not an A,C,G or T are skipped.
+     *
+     * @param k the size of each k-mer; must be between 1 and 32 inclusive.
+     * @return a new {@link LongStream} which may be empty.
+     *
+     * @throws IllegalArgumentException if k is out of range.
+     *
+     * @since 5.3
+     *
+     * @see NucleotideKmers#canonicalPackedKmers(NucleotideSequence, int)
+     */
+    default LongStream canonicalPackedKmers(int k){
+        return NucleotideKmers.canonicalPackedKmers(this, k);
+    }
+    /**
+     * Create a {@link LongStream} of the canonical rolling hash values
+     * of each k-mer of this sequence which works for any size k.
+     * Windows that contain a base that is not an A,C,G or T are skipped.
+     *
+     * @param k the size of each k-mer; must be &ge; 1.
+     * @return a new {@link LongStream} which may be empty.
+     *
+     * @throws IllegalArgumentException if k is less than 1.
+     *
+     * @since 5.3
+     *
+     * @see NucleotideKmers#canonicalKmerHashes(NucleotideSequence, int)
+     */
+    default LongStream canonicalKmerHashes(int k){
+        return NucleotideKmers.canonicalKmerHashes(this, k);
+    }
     /**
      * Get the list of contiguous spans of Ns; the returned list
      * will be in sorted order.
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.util.streams.ThrowingIntIndexedLongConsumer;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+
+/**
+ * Internal {@link Spliterator.OfLong} that rolls over a {@link NucleotideSequence}
+ * computing primitive k-mer values without creating any per k-mer objects.
+ * Windows containing any base that isn't an A,C,G or T (including gaps)
+ * are skipped.
+ * <p>
+ * The spliterator can split itself by k-mer start offset
+ * so parallel streams will actually run in parallel; each half
+ * re-reads the k-1 bases it needs to prime its first window.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class PackedKmerSpliterator implements Spliterator.OfLong{
+    /**
+     * The type of value to compute for each k-mer.
+     */
+    enum Mode{
+        /**
+         * 2 bit packed k-mer as it appears in the sequence.
+         */
+        FORWARD,
+        /**
+         * 2 bit packed k-mer which is the smaller of the forward
+         * and reverse complement values.
+         */
+        CANONICAL,
+        /**
+         * Canonical ntHash style rolling hash of the k-mer, supports
+         * any value of k.
+         */
+        HASH
+    }
+    /**
+     * Don't split smaller than this many windows
+     * since each split has to re-read k-1 bases.
+     */
+    private static final long MIN_SPLIT_SIZE = 1 <<14;
+
+    private static final long[] SEEDS = new long[]{
+        0x3c8bfbb395c60474L, //A
+        0x3193c18562a02b4cL, //C
+        0x20323ed082572324L, //G
+        0x295549f54be24456L  //T
+    };
+
+    private final NucleotideSequence seq;
+    private final int k;
+    private final Mode mode;
+    private final long mask;
+    private final int reverseShift;
+
+    private long nextWindow;
+    private final long endWindow;
+
+    private Iterator<Nucleotide> iter;
+    private long nextBaseOffset;
+    private int validBases;
+    private long forward;
+    private long reverse;
+    private byte[] ring;
+
+    PackedKmerSpliterator(NucleotideSequence seq, int k, Mode mode){
+        this(seq, k, mode, 0, Math.max(0, seq.getLength() - k +1));
+    }
+
+    private PackedKmerSpliterator(NucleotideSequence seq, int k, Mode mode, long beginWindow, long endWindow){
+        this.seq = seq;
+        this.k = k;
+        this.mode = mode;
+        this.mask = k >=32 ? -1L : (1L << (2*k)) -1;
+        this.reverseShift = 2*(k-1);
+        this.nextWindow = beginWindow;
+        this.endWindow = endWindow;
+    }
+
+    private void start(){
+        nextBaseOffset = nextWindow;
+        iter = seq.iterator(Range.of(nextWindow, endWindow + k -2));
+        if(mode == Mode.HASH){
+            ring = new byte[k];
+        }
+    }
+    /**
+     * Advance to the next valid k-mer and pass it to the consumer.
+     * @param consumer the consumer to accept the (start offset, value) pair.
+     * @return {@code true} if a k-mer was found; {@code false} if there are no
+     * more.
+     */
+    <E extends Throwable> boolean advance(ThrowingIntIndexedLongConsumer<E> consumer) throws E{
+        if(nextWindow >= endWindow){
+            return false;
+        }
+        if(iter ==null){
+            start();
+        }
+        while(iter.hasNext()){
+            int offset = (int) nextBaseOffset++;
+            int value = NucleotideCodes.toTwoBitValue(iter.next());
+            if(value <0){
+                validBases=0;
+                forward=0;
+                reverse=0;
+                continue;
+            }
+            long kmer = mode == Mode.HASH ? rollHash(offset, value) : rollPacked(value);
+            validBases++;
+            if(validBases >= k){
+                int windowStart = offset - k +1;
+                nextWindow = windowStart +1;
+                consumer.accept(windowStart, kmer);
+                return true;
+            }
+        }
+        nextWindow = endWindow;
+        return false;
+    }
+
+    private long rollPacked(int value){
+        forward = ((forward <<2) | value) & mask;
+        reverse = (reverse >>>2) | ((long)(3-value) << reverseShift);
+        if(mode == Mode.FORWARD || Long.compareUnsigned(forward, reverse) <=0){
+            return forward;
+        }
+        return reverse;
+    }
+
+    private long rollHash(int offset, int value){
+        int ringIndex = offset % k;
+        if(validBases < k){
+            forward = Long.rotateLeft(forward, 1) ^ SEEDS[value];
+            reverse ^= Long.rotateLeft(SEEDS[3-value], validBases);
+        }else{
+            int out = ring[ringIndex];
+            forward = Long.rotateLeft(forward, 1) ^ Long.rotateLeft(SEEDS[out], k) ^ SEEDS[value];
+            reverse = Long.rotateRight(reverse, 1) ^ Long.rotateRight(SEEDS[3-out], 1) ^ Long.rotateLeft(SEEDS[3-value], k-1);
+        }
+        ring[ringIndex] = (byte) value;
+        return Long.compareUnsigned(forward, reverse) <=0 ? forward : reverse;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        return advance((i, kmer) -> action.accept(kmer));
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        ThrowingIntIndexedLongConsumer<RuntimeException> adapter = (i, kmer) -> action.accept(kmer);
+        while(advance(adapter)){
+            //keep going
+        }
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+        long remaining = endWindow - nextWindow;
+        if(iter !=null || remaining < 2* MIN_SPLIT_SIZE){
+            return null;
+        }
+        long mid = nextWindow + remaining/2;
+        PackedKmerSpliterator prefix = new PackedKmerSpliterator(seq, k, mode, nextWindow, mid);
+        nextWindow = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return endWindow - nextWindow;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+}
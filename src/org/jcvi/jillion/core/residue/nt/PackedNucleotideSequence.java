@@ -0,0 +1,630 @@
+/*******************************************************************************
+ * Jillion development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ *
+ *          http://www.gnu.org/copyleft/lesser.html
+ *
+ *
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ *
+ * Information about Jillion can be found on its homepage
+ *
+ *         http://jillion.sourceforge.net
+ *
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.internal.core.io.StreamUtil;
+import org.jcvi.jillion.internal.core.residue.AbstractResidueSequence;
+import org.jcvi.jillion.internal.core.util.GrowableByteArray;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+
+/**
+ * {@link NucleotideSequence} implementation whose
+ * bases are stored 2 bits per base in a {@link ByteBuffer}
+ * with a small on-heap exception table for runs of non-ACGT bases.
+ * Instances are only created by {@link PackedNucleotideSequences}.
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class PackedNucleotideSequence extends AbstractResidueSequence<Nucleotide, NucleotideSequence, NucleotideSequenceBuilder> implements NucleotideSequence{
+
+    private static final long serialVersionUID = -6087553217357785739L;
+    /*
+     * File format (all values Big Endian):
+     *
+     * int   : magic number
+     * byte  : version
+     * byte  : flags (bit 0 set if RNA)
+     * int   : length
+     * int   : number of non-ACGT runs
+     * int   : number of gaps
+     * runs  : int begin, int length, byte nucleotide ordinal
+     * gaps  : int gapped offset for each gap
+     * bases : 2 bit packed bases 4 per byte, first base in the lowest bits
+     *         (same as AbstractTwoBitEncodedNucleotideCodec).
+     */
+    private static final int MAGIC_NUMBER = 0x4A504E53; //JPNS
+    private static final byte VERSION = 1;
+    private static final int FLAG_RNA = 0x1;
+    private static final int HEADER_SIZE = 18;
+    private static final int BYTES_PER_RUN = 9;
+
+    private final transient ByteBuffer bases;
+    private final transient int length;
+    private final transient boolean isDna;
+
+    private final transient int[] runBegins;
+    private final transient int[] runLengths;
+    private final transient byte[] runOrdinals;
+
+    private final transient int[] gapOffsets;
+
+    private transient int hash;
+
+    private PackedNucleotideSequence(ByteBuffer buffer) throws IOException{
+        ByteBuffer buf = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if(buf.remaining() < HEADER_SIZE || buf.getInt() != MAGIC_NUMBER){
+            throw new IOException("not a packed nucleotide sequence");
+        }
+        byte version = buf.get();
+        if(version != VERSION){
+            throw new IOException("unsupported packed nucleotide sequence version " + version);
+        }
+        isDna = (buf.get() & FLAG_RNA) ==0;
+        length = buf.getInt();
+        int numberOfRuns = buf.getInt();
+        int numberOfGaps = buf.getInt();
+
+        runBegins = new int[numberOfRuns];
+        runLengths = new int[numberOfRuns];
+        runOrdinals = new byte[numberOfRuns];
+        for(int i=0; i< numberOfRuns; i++){
+            runBegins[i] = buf.getInt();
+            runLengths[i] = buf.getInt();
+            runOrdinals[i] = buf.get();
+        }
+        gapOffsets = new int[numberOfGaps];
+        for(int i=0; i< numberOfGaps; i++){
+            gapOffsets[i] = buf.getInt();
+        }
+        int numberOfBytes = computeNumberOfPackedBytes(length);
+        if(buf.remaining() < numberOfBytes){
+            throw new IOException("packed nucleotide sequence is truncated");
+        }
+        buf.limit(buf.position() + numberOfBytes);
+        bases = buf.slice();
+    }
+
+    private static int computeNumberOfPackedBytes(int length){
+        return (length +3)/4;
+    }
+    /**
+     * @see PackedNucleotideSequences#of(NucleotideSequence)
+     */
+    static PackedNucleotideSequence of(NucleotideSequence seq){
+        Objects.requireNonNull(seq);
+        Encoder encoder = new Encoder(seq);
+        ByteBuffer buf = ByteBuffer.allocateDirect(encoder.getEncodedSize());
+        try {
+            encoder.writeTo(buf);
+            buf.flip();
+            return new PackedNucleotideSequence(buf);
+        } catch (IOException e) {
+            //can't happen we are writing to memory
+            throw new IllegalStateException(e);
+        }
+    }
+    /**
+     * @see PackedNucleotideSequences#wrap(ByteBuffer)
+     */
+    static PackedNucleotideSequence wrap(ByteBuffer buffer) throws IOException{
+        Objects.requireNonNull(buffer);
+        return new PackedNucleotideSequence(buffer);
+    }
+    /**
+     * @see PackedNucleotideSequences#write(NucleotideSequence, File)
+     */
+    static void write(NucleotideSequence seq, File out) throws IOException{
+        Objects.requireNonNull(seq);
+        Objects.requireNonNull(out);
+        File parent = out.getParentFile();
+        if(parent !=null){
+            IOUtil.mkdirs(parent);
+        }
+        Encoder encoder = new Encoder(seq);
+        try(RandomAccessFile file = new RandomAccessFile(out, "rw");
+            FileChannel channel = file.getChannel()){
+
+            file.setLength(0);
+            encoder.writeTo(channel);
+        }
+    }
+    /**
+     * @see PackedNucleotideSequences#map(File)
+     */
+    static PackedNucleotideSequence map(File packedFile) throws IOException{
+        Objects.requireNonNull(packedFile);
+        try(RandomAccessFile file = new RandomAccessFile(packedFile, "r");
+            FileChannel channel = file.getChannel()){
+            //mapped buffer stays valid after the channel is closed
+            return new PackedNucleotideSequence(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Override
+    public boolean isDna() {
+        return isDna;
+    }
+
+    @Override
+    public Nucleotide get(long offset) {
+        if(offset <0){
+            throw new IndexOutOfBoundsException(String.format("offset %d can not be negative ", offset));
+        }
+        if(offset >= length){
+            throw new IndexOutOfBoundsException(String.format("offset %d is >= length (%d)", offset,length));
+        }
+        int i = (int) offset;
+        int runIndex = findRunIndex(i);
+        if(runIndex >=0 && i < runBegins[runIndex] + runLengths[runIndex]){
+            return Nucleotide.getByOrdinal(runOrdinals[runIndex]);
+        }
+        return decodeTwoBitBase(i);
+    }
+
+    private Nucleotide decodeTwoBitBase(int offset){
+        int value = (bases.get(offset >>>2) >> ((offset & 0x3) <<1)) & 0x3;
+        Nucleotide n = NucleotideCodes.fromTwoBitValue(value);
+        if(!isDna && n == Nucleotide.Thymine){
+            return Nucleotide.Uracil;
+        }
+        return n;
+    }
+    /**
+     * Find the index of the last run whose begin is
+     * &le; the given offset.
+     * @param offset the offset to look for.
+     * @return the run index or -1 if all runs start after the offset.
+     */
+    private int findRunIndex(int offset){
+        int index = Arrays.binarySearch(runBegins, offset);
+        if(index >=0){
+            return index;
+        }
+        return -index -2;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public List<Integer> getGapOffsets() {
+        return new GrowableIntArray(gapOffsets).toBoxedList();
+    }
+
+    @Override
+    public int getNumberOfGaps() {
+        return gapOffsets.length;
+    }
+
+    @Override
+    public boolean isGap(int gappedOffset) {
+        return Arrays.binarySearch(gapOffsets, gappedOffset) >=0;
+    }
+
+    @Override
+    public int getNumberOfGapsUntil(int gappedOffset) {
+        int index = Arrays.binarySearch(gapOffsets, gappedOffset);
+        return index >=0 ? index +1 : -index -1;
+    }
+
+    @Override
+    public int getGappedOffsetFor(int ungappedOffset) {
+        if(ungappedOffset <0){
+            throw new IndexOutOfBoundsException("offset can not be negative");
+        }
+        //the number of ungapped bases before gap i is gapOffsets[i] -i
+        //which is non-decreasing so we can binary search for
+        //the number of gaps before our ungapped base
+        int low =0;
+        int high = gapOffsets.length;
+        while(low < high){
+            int mid = (low + high) >>>1;
+            if(gapOffsets[mid] - mid <= ungappedOffset){
+                low = mid+1;
+            }else{
+                high = mid;
+            }
+        }
+        int gappedOffset = ungappedOffset + low;
+        if(gappedOffset> length-1){
+            throw new IndexOutOfBoundsException(
+                    String.format("ungapped offset %d (gapped offset %d extends beyond sequence length %d", ungappedOffset, gappedOffset, length));
+        }
+        return gappedOffset;
+    }
+
+    @Override
+    public List<Range> getRangesOfNs() {
+        byte nOrdinal = Nucleotide.Unknown.getOrdinalAsByte();
+        GrowableIntArray begins = new GrowableIntArray();
+        GrowableIntArray ends = new GrowableIntArray();
+        for(int i=0; i< runBegins.length; i++){
+            if(runOrdinals[i] == nOrdinal){
+                begins.append(runBegins[i]);
+                ends.append(runBegins[i] + runLengths[i] -1);
+            }
+        }
+        Range[] ranges = new Range[begins.getCurrentLength()];
+        for(int i=0; i< ranges.length; i++){
+            ranges[i] = Range.of(begins.get(i), ends.get(i));
+        }
+        return Arrays.asList(ranges);
+    }
+
+    @Override
+    public Iterator<Nucleotide> iterator() {
+        return new PackedIterator(0, length);
+    }
+
+    @Override
+    public Iterator<Nucleotide> iterator(Range range) {
+        Objects.requireNonNull(range);
+        if(range.getBegin() <0 || range.getEnd() >= length){
+            throw new IndexOutOfBoundsException("range "+range +" is out of range of sequence which is only "+ Range.ofLength(length));
+        }
+        if(range.isEmpty()){
+            return new PackedIterator(0, 0);
+        }
+        return new PackedIterator((int) range.getBegin(), (int) range.getEnd()+1);
+    }
+
+    @Override
+    public Stream<Range> findMatches(Pattern pattern) {
+        return findMatches(pattern, Range.ofLength(length));
+    }
+
+    @Override
+    public Stream<Range> findMatches(Pattern pattern, Range subSequenceRange) {
+        Objects.requireNonNull(pattern);
+        Objects.requireNonNull(subSequenceRange);
+        Stream<Range> literalMatches = NucleotideMotif.findLiteralMatches(this, pattern, subSequenceRange);
+        if(literalMatches !=null){
+            return literalMatches;
+        }
+        long shift = subSequenceRange.getBegin();
+        //use a lazily decoded char view so we never
+        //have to decode the entire sequence into a String
+        Matcher matcher = pattern.matcher(new PackedCharSequence((int) shift, (int) subSequenceRange.getLength()));
+        return StreamUtil.newGeneratedStream(() -> matcher.find()
+                ? Optional.of(Range.of(matcher.start() + shift, matcher.end() - 1 + shift))
+                : Optional.empty());
+    }
+
+    @Override
+    public NucleotideSequenceBuilder toBuilder() {
+        return new NucleotideSequenceBuilder(this);
+    }
+
+    @Override
+    public NucleotideSequenceBuilder toBuilder(Range range) {
+        return new NucleotideSequenceBuilder(this, range);
+    }
+
+    @Override
+    public NucleotideSequence asSubtype() {
+        return this;
+    }
+
+    @Override
+    public int hashCode() {
+        if(hash==0 && length >0){
+            final int prime = 31;
+            int result = 1;
+            Iterator<Nucleotide> iter = iterator();
+            while(iter.hasNext()){
+                result = prime * result + iter.next().hashCode();
+            }
+            hash= result;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj){
+            return true;
+        }
+        if (!(obj instanceof NucleotideSequence)){
+            return false;
+        }
+        NucleotideSequence other = (NucleotideSequence) obj;
+        if(getLength() != other.getLength()){
+            return false;
+        }
+        Iterator<Nucleotide> iter = iterator();
+        Iterator<Nucleotide> otherIter = other.iterator();
+        while(iter.hasNext()){
+            if(!iter.next().equals(otherIter.next())){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder(length);
+        Iterator<Nucleotide> iter = iterator();
+        while(iter.hasNext()){
+            builder.append(iter.next());
+        }
+        return builder.toString();
+    }
+
+    private Object writeReplace(){
+        return new PackedNucleotideSequenceProxy(this);
+    }
+
+    private void readObject(ObjectInputStream stream) throws InvalidObjectException{
+        throw new InvalidObjectException("Proxy required");
+    }
+
+    private static final class PackedNucleotideSequenceProxy implements Serializable{
+
+        private static final long serialVersionUID = -2300744839839591460L;
+        private final String bases;
+
+        PackedNucleotideSequenceProxy(PackedNucleotideSequence seq){
+            this.bases = seq.toString();
+        }
+
+        private Object readResolve(){
+            return PackedNucleotideSequence.of(new NucleotideSequenceBuilder(bases).build());
+        }
+    }
+    /**
+     * Iterates over the bases walking the exception
+     * runs in parallel so each base is O(1).
+     */
+    private final class PackedIterator implements Iterator<Nucleotide>{
+        private int currentOffset;
+        private final int endExclusive;
+        private int runIndex;
+
+        PackedIterator(int begin, int endExclusive){
+            this.currentOffset = begin;
+            this.endExclusive = endExclusive;
+            int index = findRunIndex(begin);
+            if(index <0){
+                runIndex =0;
+            }else if(begin < runBegins[index] + runLengths[index]){
+                runIndex = index;
+            }else{
+                runIndex = index+1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentOffset < endExclusive;
+        }
+
+        @Override
+        public Nucleotide next() {
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            int offset = currentOffset++;
+            if(runIndex < runBegins.length && offset >= runBegins[runIndex]){
+                Nucleotide n = Nucleotide.getByOrdinal(runOrdinals[runIndex]);
+                if(offset == runBegins[runIndex] + runLengths[runIndex] -1){
+                    runIndex++;
+                }
+                return n;
+            }
+            return decodeTwoBitBase(offset);
+        }
+    }
+    /**
+     * {@link CharSequence} view of a region of our
+     * sequence so regular expressions can be run without
+     * decoding the whole sequence.
+     */
+    private final class PackedCharSequence implements CharSequence{
+        private final int begin;
+        private final int length;
+
+        PackedCharSequence(int begin, int length){
+            this.begin = begin;
+            this.length = length;
+        }
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if(index <0 || index >= length){
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            }
+            return get(begin + index).getCharacter().charValue();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if(start <0 || end > length || start > end){
+                throw new IndexOutOfBoundsException(start + " - "+ end);
+            }
+            return new PackedCharSequence(begin + start, end - start);
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder builder = new StringBuilder(length);
+            for(int i=0; i< length; i++){
+                builder.append(charAt(i));
+            }
+            return builder.toString();
+        }
+    }
+    /**
+     * Computes the exception runs and gaps
+     * of a sequence and then writes out
+     * the packed format.
+     */
+    private static final class Encoder{
+        private static final int BUFFER_SIZE = 8192;
+
+        private final NucleotideSequence seq;
+        private final int length;
+        private final GrowableIntArray runBegins = new GrowableIntArray();
+        private final GrowableIntArray runLengths = new GrowableIntArray();
+        private final GrowableByteArray runOrdinals = new GrowableByteArray();
+        private final GrowableIntArray gaps = new GrowableIntArray();
+
+        Encoder(NucleotideSequence seq){
+            long longLength = seq.getLength();
+            if(longLength > Integer.MAX_VALUE){
+                throw new IllegalArgumentException("sequence too long to pack " + longLength);
+            }
+            this.seq = seq;
+            this.length = (int) longLength;
+            int offset=0;
+            Iterator<Nucleotide> iter = seq.iterator();
+            while(iter.hasNext()){
+                Nucleotide n = iter.next();
+                if(NucleotideCodes.toTwoBitValue(n) <0){
+                    int lastRun = runBegins.getCurrentLength() -1;
+                    if(lastRun >=0 && runOrdinals.get(lastRun) == n.getOrdinalAsByte()
+                            && runBegins.get(lastRun) + runLengths.get(lastRun) == offset){
+                        runLengths.replace(lastRun, runLengths.get(lastRun)+1);
+                    }else{
+                        runBegins.append(offset);
+                        runLengths.append(1);
+                        runOrdinals.append(n.getOrdinalAsByte());
+                    }
+                    if(n.isGap()){
+                        gaps.append(offset);
+                    }
+                }
+                offset++;
+            }
+        }
+
+        int getEncodedSize(){
+            return HEADER_SIZE + BYTES_PER_RUN * runBegins.getCurrentLength()
+                    + 4 * gaps.getCurrentLength() + computeNumberOfPackedBytes(length);
+        }
+
+        private void writeHeader(ByteBuffer buf){
+            buf.putInt(MAGIC_NUMBER);
+            buf.put(VERSION);
+            buf.put((byte)(seq.isDna() ? 0 : FLAG_RNA));
+            buf.putInt(length);
+            int numberOfRuns = runBegins.getCurrentLength();
+            buf.putInt(numberOfRuns);
+            buf.putInt(gaps.getCurrentLength());
+            for(int i=0; i< numberOfRuns; i++){
+                buf.putInt(runBegins.get(i));
+                buf.putInt(runLengths.get(i));
+                buf.put(runOrdinals.get(i));
+            }
+            for(int i=0; i< gaps.getCurrentLength(); i++){
+                buf.putInt(gaps.get(i));
+            }
+        }
+
+        void writeTo(ByteBuffer out) throws IOException{
+            writeHeader(out);
+            writeBases(out, null);
+        }
+
+        void writeTo(FileChannel channel) throws IOException{
+            ByteBuffer header = ByteBuffer.allocate(getEncodedSize() - computeNumberOfPackedBytes(length));
+            writeHeader(header);
+            header.flip();
+            writeFully(channel, header);
+            writeBases(ByteBuffer.allocate(BUFFER_SIZE), channel);
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException{
+            while(buf.hasRemaining()){
+                channel.write(buf);
+            }
+        }
+        /**
+         * Pack the bases into the given buffer; if a channel is given
+         * then the buffer is flushed to the channel whenever it fills up.
+         */
+        private void writeBases(ByteBuffer buf, FileChannel channel) throws IOException{
+            Iterator<Nucleotide> iter = seq.iterator();
+            int packed=0;
+            int numberInByte=0;
+            while(iter.hasNext()){
+                int value = NucleotideCodes.toTwoBitValue(iter.next());
+                if(value >0){
+                    packed |= value << (numberInByte <<1);
+                }
+                numberInByte++;
+                if(numberInByte ==4){
+                    flushIfNeeded(buf, channel);
+                    buf.put((byte) packed);
+                    packed=0;
+                    numberInByte=0;
+                }
+            }
+            if(numberInByte >0){
+                flushIfNeeded(buf, channel);
+                buf.put((byte) packed);
+            }
+            if(channel !=null){
+                buf.flip();
+                writeFully(channel, buf);
+            }
+        }
+
+        private void flushIfNeeded(ByteBuffer buf, FileChannel channel) throws IOException{
+            if(channel !=null && !buf.hasRemaining()){
+                buf.flip();
+                writeFully(channel, buf);
+                buf.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+/**
+ * Factory methods for {@link NucleotideSequence}s whose
+ * bases are stored 2 bits per base in a {@link ByteBuffer}
+ * instead of on the Java heap.  The buffer may either be
+ * a direct buffer allocated off-heap or a read-only memory mapped file
+ * so that chromosome sized references put almost no pressure
+ * on the garbage collector.
+ * <p>
+ * Any base that is not an A,C,G or T (gaps, Ns and other ambiguities)
+ * is stored as a run in a small on-heap exception table
+ * which is usually tiny even for large eukaryotic genomes since
+ * Ns tend to be clustered together.
+ * </p>
+ * <p>
+ * The on disk format written by {@link #write(NucleotideSequence, File)}
+ * is exactly the same as the in memory format so
+ * a packed reference can be written once and then
+ * {@link #map(File) mapped} almost instantly in later JVMs.
+ * </p>
+ *
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class PackedNucleotideSequences {
+
+    private PackedNucleotideSequences(){
+        //can not instantiate
+    }
+    /**
+     * Create a new {@link NucleotideSequence} with the same bases as the given
+     * sequence whose packed bases are stored in an off-heap direct {@link ByteBuffer}.
+     *
+     * @param seq the sequence to copy; can not be null.
+     * @return a new packed {@link NucleotideSequence}; will never be null.
+     *
+     * @throws NullPointerException if seq is null.
+     */
+    public static NucleotideSequence of(NucleotideSequence seq){
+        return PackedNucleotideSequence.of(seq);
+    }
+    /**
+     * Create a new {@link NucleotideSequence} that wraps the given
+     * {@link ByteBuffer} which must contain a packed sequence
+     * starting at the buffer's current position.  The buffer
+     * is not copied so any changes to the buffer will be reflected in
+     * the returned sequence.
+     *
+     * @param buffer the buffer to wrap; can not be null.
+     * @return a new packed {@link NucleotideSequence}; will never be null.
+     *
+     * @throws IOException if the buffer does not contain a valid packed sequence.
+     * @throws NullPointerException if buffer is null.
+     */
+    public static NucleotideSequence wrap(ByteBuffer buffer) throws IOException{
+        return PackedNucleotideSequence.wrap(buffer);
+    }
+    /**
+     * Write the given sequence out to the given file in the packed
+     * format so that it can later be read back using {@link #map(File)}.
+     * If the file already exists, it will be overwritten.
+     *
+     * @param seq the sequence to write; can not be null.
+     * @param out the output file to write to; can not be null.
+     *
+     * @throws IOException if there is a problem writing to the file.
+     * @throws NullPointerException if any parameter is null.
+     */
+    public static void write(NucleotideSequence seq, File out) throws IOException{
+        PackedNucleotideSequence.write(seq, out);
+    }
+    /**
+     * Memory map the given packed sequence file
+     * that was previously written by {@link #write(NucleotideSequence, File)}.
+     * The file is mapped read only so
+     * the packed bases are never copied onto the heap.
+     *
+     * @param packedFile the file to map; can not be null and must exist.
+     * @return a new packed {@link NucleotideSequence}; will never be null.
+     *
+     * @throws IOException if there is a problem mapping the file or the file
+     * is not a packed sequence file.
+     * @throws NullPointerException if packedFile is null.
+     */
+    public static NucleotideSequence map(File packedFile) throws IOException{
+        return PackedNucleotideSequence.map(packedFile);
+    }
+}
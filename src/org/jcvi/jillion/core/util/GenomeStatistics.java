@@ -30,11 +30,11 @@ import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
-
-import org.jcvi.jillion.internal.core.util.GrowableIntArray;
 /**
  * {@code GenomeStatistics} is a utility class for computing 
  * different statistical measurements about genomes (for example N50).
+ * The lengths are counted in a {@link LengthHistogram}
+ * so memory does not grow with the number of lengths added.
  * @author dkatzel
  *
  */
@@ -783,7 +783,7 @@ public final class GenomeStatistics {
 	
 	private abstract static class AbstractStatBuilder implements GenomeStatisticsBuilder{
 
-		private final GrowableIntArray array = new GrowableIntArray();
+		private final LengthHistogram histogram = new LengthHistogram();
 		
 		private final double percentage;
 		
@@ -794,10 +794,7 @@ public final class GenomeStatistics {
 
 		@Override
 		public GenomeStatisticsBuilder add(int length) {
-			if(length < 1){
-				throw new IllegalArgumentException("length can not be less than 1");
-			}
-			array.append(length);
+			histogram.add(length);
 			return this;
 		}
 
@@ -809,7 +806,7 @@ public final class GenomeStatistics {
 			if( !(other instanceof AbstractStatBuilder)){
 				throw new IllegalStateException("can not merge builders of different types");
 			}
-			array.append( ((AbstractStatBuilder)other).array);
+			histogram.merge( ((AbstractStatBuilder)other).histogram);
 			
 			return this;
 		}
@@ -826,28 +823,10 @@ public final class GenomeStatistics {
 
 		@Override
 		public OptionalInt build() {
-			if(array.getCurrentLength() ==0){
-				return OptionalInt.empty();
-			}
-			array.sort();
-			
-			int[] sorted = array.toArray();
-			
-			double divisor = computeDivisor(sorted);
-			
-			long valueSoFar=0;
-			for(int i= sorted.length-1; i>=0; i--){
-				int value = sorted[i];
-				valueSoFar +=value;
-				if( (valueSoFar/divisor) >= percentage){
-					return OptionalInt.of(value);
-				}
-			}
-			
-			return OptionalInt.empty();
+			return histogram.computeX(computeDivisor(histogram), percentage);
 		}
 
-		protected abstract double computeDivisor(int[] sorted);
+		protected abstract double computeDivisor(LengthHistogram histogram);
 	}
 	
 	private static final class NStatBuilder extends AbstractStatBuilder{
@@ -858,13 +837,8 @@ public final class GenomeStatistics {
 		}
 
 		@Override
-		protected double computeDivisor(int[] sorted) {
-			long sum = 0;
-			for(int i=0; i< sorted.length; i++){
-				sum +=sorted[i];
-			}
-			
-			return sum;
+		protected double computeDivisor(LengthHistogram histogram) {
+			return histogram.getTotalLength();
 		}
 
 		
@@ -886,7 +860,7 @@ public final class GenomeStatistics {
 		}
 
 		@Override
-		protected double computeDivisor(int[] sorted) {
+		protected double computeDivisor(LengthHistogram histogram) {
 			return genomeLength;
 		}
 
@@ -0,0 +1,487 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+/**
+ * {@code LengthHistogram} counts how many times each length is seen
+ * so that exact length statistics (N50, NG50, mean, median, total bases etc)
+ * can be computed over billions of reads or contigs without keeping
+ * every length in memory or sorting them.
+ * <p>
+ * Lengths less than the exact threshold are counted in a dense array of counts
+ * indexed by length (which only grows as large as the largest length seen so far).
+ * Lengths &ge; the threshold are buffered and periodically sorted and
+ * merged into a run-length encoded list of (length, count) pairs.  Memory is therefore
+ * bounded by the threshold plus a small multiple of the number of <em>distinct</em> long lengths,
+ * not by the number of lengths added.
+ * </p>
+ * <p>
+ * Histograms can be merged, so different partitions of a data set
+ * can be counted in parallel; see {@link #collector()}.
+ * This class is not thread safe.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class LengthHistogram {
+	/**
+	 * The default exact threshold used if one is not specified.
+	 */
+	public static final int DEFAULT_EXACT_THRESHOLD = 1 << 16;
+	
+	private static final int INITIAL_COUNTS_SIZE = 1024;
+	private static final int OVERFLOW_BUFFER_SIZE = 4096;
+	
+	private final int exactThreshold;
+	
+	private long[] counts = new long[0];
+	
+	private int[] overflowBuffer = new int[OVERFLOW_BUFFER_SIZE];
+	private int overflowBufferSize;
+	/**
+	 * Sorted distinct lengths &ge; exactThreshold
+	 * and the number of times each was seen.
+	 */
+	private int[] overflowLengths = new int[0];
+	private long[] overflowCounts = new long[0];
+	
+	private long numberOfLengths;
+	private long totalLength;
+	private int min = Integer.MAX_VALUE;
+	private int max;
+	/**
+	 * Create a new empty histogram using {@link #DEFAULT_EXACT_THRESHOLD}.
+	 */
+	public LengthHistogram(){
+		this(DEFAULT_EXACT_THRESHOLD);
+	}
+	/**
+	 * Create a new empty histogram.
+	 * 
+	 * @param exactThreshold lengths less than this value are counted in a dense array;
+	 * lengths &ge; this value are stored in a sorted list.  Must be &ge; 1.
+	 * 
+	 * @throws IllegalArgumentException if exactThreshold &lt; 1.
+	 */
+	public LengthHistogram(int exactThreshold){
+		if(exactThreshold <1){
+			throw new IllegalArgumentException("exact threshold must be >= 1");
+		}
+		this.exactThreshold = exactThreshold;
+	}
+	/**
+	 * Create a new {@link Collector} that counts a Stream of lengths
+	 * into a {@link LengthHistogram} using {@link #DEFAULT_EXACT_THRESHOLD}.
+	 * Parallel streams count each partition into its own histogram
+	 * and then merge them.
+	 * 
+	 * @param <T> the type of Number in the stream; each value
+	 * must be between 1 and {@link Integer#MAX_VALUE}.
+	 * 
+	 * @return a new Collector; will never be null.
+	 */
+	public static <T extends Number> Collector<T, ?, LengthHistogram> collector(){
+		return collector(DEFAULT_EXACT_THRESHOLD);
+	}
+	/**
+	 * Create a new {@link Collector} that counts a Stream of lengths
+	 * into a {@link LengthHistogram} using the given exact threshold.
+	 * Parallel streams count each partition into its own histogram
+	 * and then merge them.
+	 * 
+	 * @param <T> the type of Number in the stream; each value
+	 * must be between 1 and {@link Integer#MAX_VALUE}.
+	 * 
+	 * @param exactThreshold the exact threshold of each histogram; must be &ge; 1.
+	 * 
+	 * @return a new Collector; will never be null.
+	 * 
+	 * @throws IllegalArgumentException if exactThreshold &lt; 1.
+	 */
+	public static <T extends Number> Collector<T, ?, LengthHistogram> collector(int exactThreshold){
+		if(exactThreshold <1){
+			throw new IllegalArgumentException("exact threshold must be >= 1");
+		}
+		return Collector.of(() -> new LengthHistogram(exactThreshold), 
+				(h, v) -> h.add(v.longValue()), 
+				LengthHistogram::merge,
+				Collector.Characteristics.UNORDERED,
+				Collector.Characteristics.IDENTITY_FINISH);
+	}
+	/**
+	 * Count all the lengths in the given {@link IntStream}.
+	 * 
+	 * @param lengths the lengths to count; can not be null and each value
+	 * must be &ge; 1.
+	 * 
+	 * @return a new LengthHistogram; will never be null.
+	 * 
+	 * @throws NullPointerException if lengths is null.
+	 * @throws IllegalArgumentException if any length is &lt; 1.
+	 */
+	public static LengthHistogram of(IntStream lengths){
+		return lengths.collect(LengthHistogram::new, LengthHistogram::add, LengthHistogram::merge);
+	}
+	/**
+	 * Count all the lengths in the given {@link LongStream}.
+	 * 
+	 * @param lengths the lengths to count; can not be null and each value
+	 * must be between 1 and {@link Integer#MAX_VALUE}.
+	 * 
+	 * @return a new LengthHistogram; will never be null.
+	 * 
+	 * @throws NullPointerException if lengths is null.
+	 * @throws IllegalArgumentException if any length is &lt; 1 or &gt; {@link Integer#MAX_VALUE}.
+	 */
+	public static LengthHistogram of(LongStream lengths){
+		return lengths.collect(LengthHistogram::new, LengthHistogram::add, LengthHistogram::merge);
+	}
+	/**
+	 * Add a single length.
+	 * 
+	 * @param length the length to add; must be &ge; 1.
+	 * 
+	 * @return this
+	 * 
+	 * @throws IllegalArgumentException if length &lt; 1.
+	 */
+	public LengthHistogram add(int length){
+		if(length < 1){
+			throw new IllegalArgumentException("length can not be less than 1");
+		}
+		addCount(length, 1);
+		return this;
+	}
+	/**
+	 * Convenience method for adding a length that is of type long.
+	 * 
+	 * @param length the length to add; must be between 1 and {@link Integer#MAX_VALUE}.
+	 * 
+	 * @return this
+	 * 
+	 * @throws IllegalArgumentException if length &lt; 1 or &gt; {@link Integer#MAX_VALUE}.
+	 */
+	public LengthHistogram add(long length){
+		if(length > Integer.MAX_VALUE || length < Integer.MIN_VALUE){
+			throw new IllegalArgumentException("value must fit into an int : " + length);
+		}
+		return add((int) length);
+	}
+	
+	private void addCount(int length, long count){
+		numberOfLengths += count;
+		totalLength += length * count;
+		min = Math.min(min, length);
+		max = Math.max(max, length);
+		
+		if(length < exactThreshold){
+			addExactCount(length, count);
+		}else{
+			if(overflowBufferSize == overflowBuffer.length){
+				if(overflowBuffer.length < overflowLengths.length){
+					//keep the buffer about as big as the overflow
+					//so each flush costs O(1) amortized per length
+					overflowBuffer = Arrays.copyOf(overflowBuffer, overflowLengths.length);
+				}else{
+					flushOverflowBuffer();
+				}
+			}
+			overflowBuffer[overflowBufferSize++] = length;
+		}
+	}
+	
+	private void addExactCount(int length, long count){
+		if(length >= counts.length){
+			counts = Arrays.copyOf(counts, Math.min(exactThreshold, 
+												Math.max(INITIAL_COUNTS_SIZE, Math.max(length +1, counts.length *2))));
+		}
+		counts[length] += count;
+	}
+	/**
+	 * Sort the buffered long lengths and merge them into
+	 * the run-length encoded overflow.
+	 */
+	private void flushOverflowBuffer(){
+		if(overflowBufferSize ==0){
+			return;
+		}
+		Arrays.sort(overflowBuffer, 0, overflowBufferSize);
+		int[] lengths = new int[overflowBufferSize];
+		long[] lengthCounts = new long[overflowBufferSize];
+		int distinct=0;
+		for(int i=0; i< overflowBufferSize; i++){
+			int length = overflowBuffer[i];
+			if(distinct >0 && lengths[distinct -1] == length){
+				lengthCounts[distinct -1]++;
+			}else{
+				lengths[distinct] = length;
+				lengthCounts[distinct] = 1;
+				distinct++;
+			}
+		}
+		overflowBufferSize=0;
+		mergeIntoOverflow(lengths, lengthCounts, distinct);
+	}
+	
+	private void mergeIntoOverflow(int[] lengths, long[] lengthCounts, int size){
+		int[] mergedLengths = new int[overflowLengths.length + size];
+		long[] mergedCounts = new long[mergedLengths.length];
+		int i=0, j=0, k=0;
+		while(i < overflowLengths.length || j < size){
+			if(j == size || (i < overflowLengths.length && overflowLengths[i] < lengths[j])){
+				mergedLengths[k] = overflowLengths[i];
+				mergedCounts[k++] = overflowCounts[i++];
+			}else if(i == overflowLengths.length || lengths[j] < overflowLengths[i]){
+				mergedLengths[k] = lengths[j];
+				mergedCounts[k++] = lengthCounts[j++];
+			}else{
+				mergedLengths[k] = lengths[j];
+				mergedCounts[k++] = overflowCounts[i++] + lengthCounts[j++];
+			}
+		}
+		overflowLengths = Arrays.copyOf(mergedLengths, k);
+		overflowCounts = Arrays.copyOf(mergedCounts, k);
+	}
+	/**
+	 * Add all the counts from the other histogram into this histogram.
+	 * The counts in the other histogram are not modified.
+	 * The two histograms may have different exact thresholds.
+	 * 
+	 * @param other the other histogram; can not be null.
+	 * 
+	 * @return this
+	 * 
+	 * @throws NullPointerException if other is null.
+	 * @throws IllegalArgumentException if other is this histogram.
+	 */
+	public LengthHistogram merge(LengthHistogram other){
+		if(other.numberOfLengths ==0){
+			return this;
+		}
+		if(other == this){
+			throw new IllegalArgumentException("can not merge a histogram with itself");
+		}
+		//only changes how other stores its counts, not the counts themselves
+		other.flushOverflowBuffer();
+		
+		numberOfLengths += other.numberOfLengths;
+		totalLength += other.totalLength;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		//other's exact counts are all shorter than its overflow lengths
+		//so long lengths are collected in ascending order
+		int maxLongLengths = other.overflowLengths.length + Math.max(0, other.counts.length - exactThreshold);
+		int[] longLengths = new int[maxLongLengths];
+		long[] longCounts = new long[maxLongLengths];
+		int numberOfLongLengths=0;
+		for(int length=1; length< other.counts.length; length++){
+			long count = other.counts[length];
+			if(count >0){
+				if(length < exactThreshold){
+					addExactCount(length, count);
+				}else{
+					longLengths[numberOfLongLengths] = length;
+					longCounts[numberOfLongLengths++] = count;
+				}
+			}
+		}
+		for(int i=0; i< other.overflowLengths.length; i++){
+			int length = other.overflowLengths[i];
+			if(length < exactThreshold){
+				addExactCount(length, other.overflowCounts[i]);
+			}else{
+				longLengths[numberOfLongLengths] = length;
+				longCounts[numberOfLongLengths++] = other.overflowCounts[i];
+			}
+		}
+		if(numberOfLongLengths >0){
+			mergeIntoOverflow(longLengths, longCounts, numberOfLongLengths);
+		}
+		return this;
+	}
+	/**
+	 * Get the number of lengths that have been added.
+	 * 
+	 * @return the number of lengths; will always be &ge; 0.
+	 */
+	public long getNumberOfLengths(){
+		return numberOfLengths;
+	}
+	/**
+	 * Get the sum of all the lengths that have been added
+	 * (for example the total number of bases).
+	 * 
+	 * @return the sum; will always be &ge; 0.
+	 */
+	public long getTotalLength(){
+		return totalLength;
+	}
+	/**
+	 * Get the smallest length added.
+	 * 
+	 * @return an {@link OptionalInt} which is empty if no lengths have been added.
+	 */
+	public OptionalInt getMin(){
+		return numberOfLengths ==0 ? OptionalInt.empty() : OptionalInt.of(min);
+	}
+	/**
+	 * Get the largest length added.
+	 * 
+	 * @return an {@link OptionalInt} which is empty if no lengths have been added.
+	 */
+	public OptionalInt getMax(){
+		return numberOfLengths ==0 ? OptionalInt.empty() : OptionalInt.of(max);
+	}
+	/**
+	 * Get the mean length.
+	 * 
+	 * @return the mean or {@link Double#NaN} if no lengths have been added.
+	 */
+	public double getMean(){
+		if(numberOfLengths ==0){
+			return Double.NaN;
+		}
+		return totalLength / (double) numberOfLengths;
+	}
+	/**
+	 * Get the median length.  If an even number of lengths have been added,
+	 * then the median is the mean of the 2 middle lengths.
+	 * 
+	 * @return the median or {@link Double#NaN} if no lengths have been added.
+	 */
+	public double getMedian(){
+		if(numberOfLengths ==0){
+			return Double.NaN;
+		}
+		long middle = (numberOfLengths -1)/2;
+		int lower = getLengthAtRank(middle);
+		if(numberOfLengths %2 ==1){
+			return lower;
+		}
+		return (lower + (double) getLengthAtRank(middle +1))/2;
+	}
+	/**
+	 * Get the length at the given 0-based rank in ascending order.
+	 */
+	private int getLengthAtRank(long rank){
+		long seen=0;
+		for(int length=1; length< counts.length; length++){
+			seen += counts[length];
+			if(seen > rank){
+				return length;
+			}
+		}
+		flushOverflowBuffer();
+		for(int i=0; i< overflowLengths.length; i++){
+			seen += overflowCounts[i];
+			if(seen > rank){
+				return overflowLengths[i];
+			}
+		}
+		throw new IllegalStateException("rank " + rank + " out of range");
+	}
+	/**
+	 * Compute the Nx value of the lengths added so far.
+	 * This is the same value that {@link GenomeStatistics#nXBuilder(double)}
+	 * would compute for the same lengths.
+	 * 
+	 * @param percentage the percentage value to compute; must be between
+	 * 0 and 1 <em>exclusive</em>.  For example
+	 * to compute N50, the percentage value is {@code 0.5}.
+	 * 
+	 * @return an {@link OptionalInt} which is empty if no lengths have been added.
+	 * 
+	 * @throws IllegalArgumentException if percentage &ge; 1 or &le; 0.
+	 */
+	public OptionalInt nX(double percentage){
+		checkPercentage(percentage);
+		return computeX(totalLength, percentage);
+	}
+	/**
+	 * Compute the NGx value of the lengths added so far.
+	 * This is the same value that {@link GenomeStatistics#ngXBuilder(long, double)}
+	 * would compute for the same lengths.
+	 * 
+	 * @param genomeLength the (expected) genome length which is used to determine
+	 * when we have X% covered; must be &ge; 1.
+	 * 
+	 * @param percentage the percentage value to compute; must be between
+	 * 0 and 1 <em>exclusive</em>.  For example
+	 * to compute NG50, the percentage value is {@code 0.5}.
+	 * 
+	 * @return an {@link OptionalInt} which is empty if no lengths have been added
+	 * or the total length is not enough to cover the percentage of the genome.
+	 * 
+	 * @throws IllegalArgumentException if genomeLength &lt; 1 or percentage &ge; 1 or &le; 0.
+	 */
+	public OptionalInt ngX(long genomeLength, double percentage){
+		if(genomeLength <= 0){
+			throw new IllegalArgumentException("genome length must be > 0");
+		}
+		checkPercentage(percentage);
+		return computeX(genomeLength, percentage);
+	}
+	
+	private static void checkPercentage(double percentage){
+		if(percentage <= 0){
+			throw new IllegalArgumentException("percentage must be > 0");
+		}
+		if(percentage >=1){
+			throw new IllegalArgumentException("percentage must be < 1");
+		}
+	}
+	/**
+	 * Walk the lengths from longest to shortest
+	 * until the running total covers the percentage of the divisor.
+	 * Checking once per distinct length gives the same answer
+	 * as checking after each individual length since
+	 * every copy of that length would return the same value.
+	 */
+	OptionalInt computeX(double divisor, double percentage){
+		if(numberOfLengths ==0){
+			return OptionalInt.empty();
+		}
+		flushOverflowBuffer();
+		long valueSoFar=0;
+		for(int i= overflowLengths.length -1; i>=0; i--){
+			valueSoFar += overflowLengths[i] * overflowCounts[i];
+			if( (valueSoFar/divisor) >= percentage){
+				return OptionalInt.of(overflowLengths[i]);
+			}
+		}
+		for(int length= counts.length -1; length >0; length--){
+			long count = counts[length];
+			if(count >0){
+				valueSoFar += length * count;
+				if( (valueSoFar/divisor) >= percentage){
+					return OptionalInt.of(length);
+				}
+			}
+		}
+		return OptionalInt.empty();
+	}
+}
@@ -22,13 +22,10 @@ package org.jcvi.jillion.core.util.iter;
 
 import java.io.Closeable;
 import java.util.Iterator;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.jcvi.jillion.core.util.ThrowingStream;
-import org.jcvi.jillion.internal.core.io.StreamUtil;
+import org.jcvi.jillion.internal.core.util.iter.BatchingSpliterator;
 
 /**
  * {@code StreamingIterator} is an
@@ -139,13 +136,15 @@ public interface StreamingIterator<T> extends Closeable, Iterator<T>{
      * @return a new Stream,
      *  will never be null.
      *  
+     * @implNote the returned Stream's spliterator copies small but growing
+     * batches of elements from this iterator when split so
+     * calling {@link Stream#parallel()} on it will
+     * process elements on multiple threads.
+     *  
      * @since 5.0
      */
     default Stream<T> toStream(){
-    	return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
-                	this, Spliterator.IMMUTABLE| Spliterator.ORDERED | Spliterator.NONNULL), false)
-                .onClose(
-                		StreamUtil.newOnCloseRunnableThatThrowsUncheckedIOExceptionIfNecessary(this));
+    	return BatchingSpliterator.stream(this, -1);
     }
     
     /**
@@ -26,6 +26,7 @@ import java.util.List;
 
 import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
 import org.jcvi.jillion.align.NucleotideSubstitutionMatrixBuilder;
+import org.jcvi.jillion.align.pairwise.LocalAlignmentScorer;
 import org.jcvi.jillion.align.pairwise.NucleotidePairwiseSequenceAlignment;
 import org.jcvi.jillion.align.pairwise.PairwiseAlignmentBuilder;
 import org.jcvi.jillion.core.DirectedRange;
@@ -33,6 +34,7 @@ import org.jcvi.jillion.core.Direction;
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
@@ -112,18 +114,14 @@ public class PrimerDetector {
         	NucleotideSequence primer = iter.next();
             if(primer.getLength()>=minLength){
                
-            	NucleotidePairwiseSequenceAlignment forwardAlignment =PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(primer, sequence, MATRIX)
-																					.gapPenalty(gapOpenPenalty, gapExtendPenalty)
-																					.build();
+            	NucleotidePairwiseSequenceAlignment forwardAlignment =align(primer, sequence);
             	
                 final NucleotidePairwiseSequenceAlignment reverseAlignment;
                 if(alsoCheckReverseCompliment){
                 	NucleotideSequence reversePrimer = new NucleotideSequenceBuilder(primer)
 												.reverseComplement()
 												.build();
-					reverseAlignment =  PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(reversePrimer, sequence, MATRIX)
-																.gapPenalty(gapOpenPenalty, gapExtendPenalty)
-																.build();
+					reverseAlignment =  align(reversePrimer, sequence);
                 }else{
                     reverseAlignment = NullAlignment.INSTANCE;
                 }
@@ -194,6 +192,58 @@ public class PrimerDetector {
         }
     }
     
+    /**
+     * Align the given primer to the sequence.  If we are only looking
+     * for hits with a min percent identity, the much cheaper
+     * {@link LocalAlignmentScorer} score is computed first and the full alignment
+     * is only built if the score is high enough that the alignment could be valid.
+     * 
+     * @return the alignment or {@link NullAlignment#INSTANCE} if the alignment
+     * can not possibly be a valid hit.
+     */
+    private NucleotidePairwiseSequenceAlignment align(NucleotideSequence primer, NucleotideSequence sequence){
+    	if(maxNumMismatches ==null){
+    		double minScore = computeMinScoreOfValidHit(primer);
+    		if(minScore >0){
+    			return LocalAlignmentScorer.createNucleotideScorer(primer, MATRIX, gapOpenPenalty, gapExtendPenalty)
+    										.alignIfScoreAtLeast(sequence, (float) minScore)
+    										.orElse(NullAlignment.INSTANCE);
+    		}
+    	}
+    	return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(primer, sequence, MATRIX)
+				.gapPenalty(gapOpenPenalty, gapExtendPenalty)
+				.build();
+    }
+    /**
+     * Compute a lower bound of the score of any alignment of the primer
+     * with a percent identity greater than {@link #minPercentIdentity}
+     * and at least {@link #minLength} long.  Every match in the alignment
+     * scores at least as much as the worst primer base matching itself
+     * and every other column scores at least as much as the worst mismatch
+     * or gap penalty.
+     * 
+     * @return the lower bound; will be &le; 0 if any alignment could be valid.
+     */
+    private double computeMinScoreOfValidHit(NucleotideSequence primer){
+    	float minMatch = Float.MAX_VALUE;
+    	for(Nucleotide n : primer){
+    		if(!n.isGap()){
+    			minMatch = Math.min(minMatch, MATRIX.getValue(n, n));
+    		}
+    	}
+    	float worstColumn = Math.min(gapOpenPenalty, gapExtendPenalty);
+    	for(Nucleotide a : Nucleotide.getAllValues()){
+    		for(Nucleotide b : Nucleotide.getAllValues()){
+    			if(a !=b){
+    				worstColumn = Math.min(worstColumn, MATRIX.getValue(a, b));
+    			}
+    		}
+    	}
+    	double minScorePerColumn = minPercentIdentity * minMatch + (1 - minPercentIdentity) * worstColumn;
+    	//small margin in case of floating point rounding
+    	return minLength * minScorePerColumn - 0.001D;
+    }
+    
     public List<PrimerHit> detect(NucleotideSequence sequence,
             NucleotideFastaDataStore primersDataStore) {
         List<PrimerHit> hits = new ArrayList<PrimerHit>();
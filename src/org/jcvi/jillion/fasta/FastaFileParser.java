@@ -34,6 +34,7 @@ import java.util.regex.Pattern;
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.io.InputStreamSupplier;
 import org.jcvi.jillion.fasta.FastaVisitorCallback.FastaVisitorMemento;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
 import org.jcvi.jillion.internal.core.io.LineParser;
 import org.jcvi.jillion.internal.core.io.OpenAwareInputStream;
 import org.jcvi.jillion.internal.core.io.TextLineParser;
@@ -357,7 +358,7 @@ public abstract class FastaFileParser implements FastaParser{
 		
 	}
 	
-	private static class OffsetMemento implements FastaVisitorMemento{
+	private static class OffsetMemento implements FastaVisitorMemento, FileOffsetMemento{
 		private final long offset;
 
 		public OffsetMemento(long offset) {
@@ -368,6 +369,11 @@ public abstract class FastaFileParser implements FastaParser{
 			return offset;
 		}
 		
+		@Override
+		public long getFileOffset() {
+			return offset;
+		}
+		
 	}
 	
 	private static class RedundantOffsetMemento extends OffsetMemento{
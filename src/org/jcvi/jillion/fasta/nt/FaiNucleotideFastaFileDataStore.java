@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -36,6 +38,7 @@ import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.io.InputStreamSupplier;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
 import org.jcvi.jillion.internal.fasta.DefaultFastaIndex;
@@ -145,6 +148,11 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 		return delegate.get(id);
 	}
 
+	@Override
+	public Map<String, NucleotideFastaRecord> getAll(Collection<String> ids) throws DataStoreException {
+		return delegate.getAll(ids);
+	}
+
 	@Override
 	public boolean contains(String id) throws DataStoreException {
 		return delegate.contains(id);
@@ -170,6 +178,16 @@ class FaiNucleotideFastaFileDataStore implements NucleotideFastaFileDataStore{
 		return delegate.entryIterator();
 	}
 
+	@Override
+	public ThrowingStream<NucleotideFastaRecord> records() throws DataStoreException {
+		return delegate.records();
+	}
+	
+	@Override
+	public ThrowingStream<DataStoreEntry<NucleotideFastaRecord>> entries() throws DataStoreException {
+		return delegate.entries();
+	}
+	
 	@Override
 	public void close() throws IOException {
 		delegate.close();
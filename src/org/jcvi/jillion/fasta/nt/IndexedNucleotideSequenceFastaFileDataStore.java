@@ -22,8 +22,13 @@ package org.jcvi.jillion.fasta.nt;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -32,6 +37,7 @@ import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.datastore.DataStoreFilters;
 import org.jcvi.jillion.core.util.Builder;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.fasta.FastaFileParser;
 import org.jcvi.jillion.fasta.FastaParser;
@@ -39,7 +45,10 @@ import org.jcvi.jillion.fasta.FastaRecordVisitor;
 import org.jcvi.jillion.fasta.FastaVisitor;
 import org.jcvi.jillion.fasta.FastaVisitorCallback;
 import org.jcvi.jillion.fasta.FastaVisitorCallback.FastaVisitorMemento;
+import org.jcvi.jillion.internal.core.datastore.BatchedLookups;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
+import org.jcvi.jillion.internal.core.datastore.IndexedDataStoreSpliterator;
 /**
  * {@code IndexedNucleotideFastaFileDataStore} is an implementation of 
  * {@link NucleotideSequenceFastaDataStore} that only stores an index containing
@@ -110,6 +119,33 @@ final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFas
 		}
 	}
 
+	/**
+	 * Reads the requested records in file order,
+	 * parsing records that are close together in a single
+	 * sequential pass instead of seeking to each one.
+	 */
+	@Override
+	public Map<String, NucleotideFastaRecord> getAll(Collection<String> ids) throws DataStoreException {
+		throwExceptionIfClosed();
+		List<Entry<String, FastaVisitorMemento>> sorted = BatchedLookups.sortByFileOffset(ids, mementos);
+		Map<String, NucleotideFastaRecord> found = new HashMap<>(sorted.size() *2);
+		try {
+			for(List<Entry<String, FastaVisitorMemento>> group : BatchedLookups.groupBySequentialReads(sorted, BatchedLookups.DEFAULT_MAX_SEQUENTIAL_GAP)){
+				parser.parse(new MultipleRecordVisitor(group, found), group.get(0).getValue());
+			}
+		} catch (IOException e) {
+			throw new DataStoreException("error reading fasta file",e);
+		}
+		Map<String, NucleotideFastaRecord> result = new LinkedHashMap<>(found.size() *2);
+		for(String id : ids){
+			NucleotideFastaRecord record = found.get(id);
+			if(record !=null){
+				result.put(id, record);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public StreamingIterator<NucleotideFastaRecord> iterator() throws DataStoreException {
 		throwExceptionIfClosed();
@@ -121,6 +157,22 @@ final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFas
 		}
 	}
 	
+	/**
+	 * Splits on the index so each part of a parallel stream
+	 * parses a different region of the file.
+	 */
+	@Override
+	public ThrowingStream<NucleotideFastaRecord> records() throws DataStoreException {
+		throwExceptionIfClosed();
+		return IndexedDataStoreSpliterator.records(this, new ArrayList<>(mementos.keySet()));
+	}
+	
+	@Override
+	public ThrowingStream<DataStoreEntry<NucleotideFastaRecord>> entries() throws DataStoreException {
+		throwExceptionIfClosed();
+		return IndexedDataStoreSpliterator.entries(this, new ArrayList<>(mementos.keySet()));
+	}
+	
 	@Override
 	public StreamingIterator<DataStoreEntry<NucleotideFastaRecord>> entryIterator()
 			throws DataStoreException {
@@ -372,6 +424,66 @@ final class IndexedNucleotideSequenceFastaFileDataStore implements NucleotideFas
 	
 	
 
+	/**
+	 * Visits records in file order collecting
+	 * the expected records and halts once all of them have been found.
+	 */
+	private static class MultipleRecordVisitor implements FastaVisitor{
+		private final List<Entry<String, FastaVisitorMemento>> expected;
+		private final Map<String, NucleotideFastaRecord> found;
+		private int nextIndex=0;
+		
+		MultipleRecordVisitor(List<Entry<String, FastaVisitorMemento>> expected, Map<String, NucleotideFastaRecord> found){
+			this.expected = expected;
+			this.found = found;
+		}
+		
+		@Override
+		public FastaRecordVisitor visitDefline(final FastaVisitorCallback callback,
+				String id, String optionalComment) {
+			if(nextIndex >= expected.size()){
+				callback.haltParsing();
+				return null;
+			}
+			Entry<String, FastaVisitorMemento> next = expected.get(nextIndex);
+			if(!id.equals(next.getKey()) || !isExpectedOffset(callback, next.getValue())){
+				return null;
+			}
+			return new AbstractNucleotideFastaRecordVisitor(id, optionalComment) {
+				
+				@Override
+				protected void visitRecord(NucleotideFastaRecord fastaRecord) {
+					found.put(fastaRecord.getId(), fastaRecord);
+					nextIndex++;
+					if(nextIndex == expected.size()){
+						callback.haltParsing();
+					}
+				}
+			};
+		}
+		/**
+		 * Files can have duplicate ids, make sure
+		 * this is the record the memento points to.
+		 */
+		private boolean isExpectedOffset(FastaVisitorCallback callback, FastaVisitorMemento memento){
+			if(!(memento instanceof FileOffsetMemento) || !callback.canCreateMemento()){
+				return true;
+			}
+			FastaVisitorMemento current = callback.createMemento();
+			return !(current instanceof FileOffsetMemento) 
+					|| ((FileOffsetMemento) current).getFileOffset() == ((FileOffsetMemento) memento).getFileOffset();
+		}
+
+		@Override
+		public void visitEnd() {
+			//no-op
+		}
+		@Override
+		public void halted() {
+			//no-op			
+		}
+	}
+	
 	private static class SingleRecordVisitor implements FastaVisitor{
 		private NucleotideFastaRecord fastaRecord=null;
 		@Override
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.assembly.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jcvi.jillion.assembly.AssembledRead;
+import org.jcvi.jillion.assembly.util.GapQualityValueStrategy;
+import org.jcvi.jillion.assembly.util.Slice;
+import org.jcvi.jillion.assembly.util.SliceBuilder;
+import org.jcvi.jillion.assembly.util.SliceMap;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+/**
+ * A {@link SliceMap} that only stores each read once
+ * (its id, gapped start offset, gapped sequence, gapped qualities and direction)
+ * and computes each {@link Slice} on demand from the reads that cover it.
+ * <p>
+ * {@link CompactedSliceMap} stores a separate element and read id reference
+ * for every base of every read and needs a {@link SliceBuilder} per consensus
+ * column while it is being built, so deep contigs need many times more memory
+ * than the reads themselves.  This implementation only needs a few
+ * primitive arrays indexed by read, so building it is cheap
+ * and the memory used is proportional to the number of reads
+ * not the number of read bases.
+ * </p>
+ * The reads are sorted by start offset and indexed with an implicit
+ * interval tree (each node of a balanced binary tree over the sorted
+ * reads also knows the max end offset of its subtree) so finding the reads
+ * that cover a column only visits the reads that are near it
+ * even if some reads are very long.
+ * <p>
+ * The Slices returned are equal to (and have the same hashcodes as)
+ * the Slices that {@link CompactedSliceMap} would create from the same reads.
+ * 
+ * @author dkatzel
+ * 
+ * @since 5.3
+ */
+public final class ReadIndexedSliceMap implements SliceMap {
+
+	private final NucleotideSequence consensus;
+	/**
+	 * Read ids, each id is only stored once.
+	 * All the read arrays are in the order the reads were given.
+	 */
+	private final String[] ids;
+	private final int[] starts;
+	private final int[] lengths;
+	private final NucleotideSequence[] sequences;
+	/**
+	 * Gapped valid range qualities or null
+	 * if using a default quality.
+	 */
+	private final QualitySequence[] qualities;
+	private final boolean[] reverse;
+	private final byte defaultQuality;
+	/**
+	 * read indexes sorted by start offset.
+	 */
+	private final int[] readsByStart;
+	/**
+	 * start offsets in the same order as {@link #readsByStart}.
+	 */
+	private final int[] sortedStarts;
+	/**
+	 * Exclusive end offsets in the same order as {@link #readsByStart}.
+	 */
+	private final int[] sortedEnds;
+	/**
+	 * Max exclusive end offset of the subtree of the implicit interval tree
+	 * rooted at each position of {@link #readsByStart}; the subtree
+	 * rooted at the middle of [lo, hi) covers every read in [lo, hi).
+	 */
+	private final int[] subtreeMaxEnds;
+	/**
+	 * Duplicate ids are rare, but a later read
+	 * must replace an earlier read with the same id
+	 * the same as {@link SliceBuilder}.
+	 */
+	private final boolean hasDuplicateIds;
+	/**
+	 * Slices are computed on demand so the hashcode
+	 * is only computed once.
+	 */
+	private int hash;
+	
+	/**
+	 * Create a new SliceMap where every read has the same quality.
+	 * 
+	 * @param iter the reads to use; will be closed when this method returns.
+	 * @param consensusSequence the gapped consensus; can not be null.
+	 * @param defaultQuality the quality value to give to every base; can not be null.
+	 * @return a new ReadIndexedSliceMap; will never be null.
+	 */
+	public static <PR extends AssembledRead> ReadIndexedSliceMap create(
+			StreamingIterator<PR> iter, NucleotideSequence consensusSequence,
+			PhredQuality defaultQuality) {
+		try {
+			return new ReadIndexedSliceMap(iter, consensusSequence, null, null, defaultQuality);
+		} catch (DataStoreException e) {
+			//can't happen without a datastore
+			throw new IllegalStateException(e);
+		}
+	}
+	/**
+	 * Create a new SliceMap using the gapped valid range qualities
+	 * of each read.
+	 * 
+	 * @param iter the reads to use; will be closed when this method returns.
+	 * @param consensusSequence the gapped consensus; can not be null.
+	 * @param qualityDataStore the full length qualities of every read; can not be null.
+	 * @param qualityValueStrategy the {@link GapQualityValueStrategy} to use
+	 * to compute the quality of gaps; can not be null.
+	 * @return a new ReadIndexedSliceMap; will never be null.
+	 * @throws DataStoreException if there is a problem getting the qualities.
+	 * @throws NullPointerException if a read has no qualities in the datastore.
+	 */
+	public static <PR extends AssembledRead> ReadIndexedSliceMap create(
+			StreamingIterator<PR> iter, NucleotideSequence consensusSequence,
+			QualitySequenceDataStore qualityDataStore, GapQualityValueStrategy qualityValueStrategy) throws DataStoreException {
+		if(qualityDataStore ==null || qualityValueStrategy ==null){
+			throw new NullPointerException("quality datastore and strategy can not be null");
+		}
+		return new ReadIndexedSliceMap(iter, consensusSequence, qualityDataStore, qualityValueStrategy, null);
+	}
+	
+	private <PR extends AssembledRead> ReadIndexedSliceMap(StreamingIterator<PR> readIter,
+			NucleotideSequence consensusSequence, QualitySequenceDataStore qualityDataStore,
+			GapQualityValueStrategy qualityValueStrategy, PhredQuality defaultQuality) throws DataStoreException{
+		if(consensusSequence ==null){
+			throw new NullPointerException("consensus can not be null");
+		}
+		this.consensus = consensusSequence;
+		this.defaultQuality = defaultQuality ==null ? 0 : defaultQuality.getQualityScore();
+		
+		List<PR> reads = new ArrayList<>();
+		try{
+			while(readIter.hasNext()){
+				reads.add(readIter.next());
+			}
+		}finally{
+			IOUtil.closeAndIgnoreErrors(readIter);
+		}
+		int numberOfReads = reads.size();
+		ids = new String[numberOfReads];
+		starts = new int[numberOfReads];
+		lengths = new int[numberOfReads];
+		sequences = new NucleotideSequence[numberOfReads];
+		qualities = qualityDataStore ==null ? null : new QualitySequence[numberOfReads];
+		reverse = new boolean[numberOfReads];
+		
+		Set<String> seenIds = new HashSet<>(numberOfReads *4/3 +1);
+		boolean duplicates = false;
+		long[] startAndIndex = new long[numberOfReads];
+		
+		for(int i=0; i< numberOfReads; i++){
+			PR read = reads.get(i);
+			//let the read be garbage collected once we have what we need
+			reads.set(i, null);
+			String id = read.getId();
+			ids[i] = id;
+			duplicates |= !seenIds.add(id);
+			starts[i] = (int) read.getGappedStartOffset();
+			sequences[i] = read.getNucleotideSequence();
+			lengths[i] = (int) sequences[i].getLength();
+			reverse[i] = read.getDirection() == Direction.REVERSE;
+			if(qualities !=null){
+				QualitySequence fullQualities = qualityDataStore.get(id);
+				if(fullQualities ==null){
+					throw new NullPointerException("could not get qualities for "+id);
+				}
+				qualities[i] = qualityValueStrategy.getGappedValidRangeQualitySequenceFor(read, fullQualities);
+			}
+			//start offsets are non-negative so packing 
+			//start then index sorts by start with ties in read order
+			startAndIndex[i] = ((long) starts[i] <<32) | i;
+		}
+		hasDuplicateIds = duplicates;
+		
+		Arrays.sort(startAndIndex);
+		readsByStart = new int[numberOfReads];
+		sortedStarts = new int[numberOfReads];
+		sortedEnds = new int[numberOfReads];
+		for(int i=0; i< numberOfReads; i++){
+			int readIndex = (int) startAndIndex[i];
+			readsByStart[i] = readIndex;
+			sortedStarts[i] = starts[readIndex];
+			sortedEnds[i] = starts[readIndex] + lengths[readIndex];
+		}
+		subtreeMaxEnds = new int[numberOfReads];
+		computeSubtreeMaxEnds(0, numberOfReads);
+	}
+	
+	private int computeSubtreeMaxEnds(int lo, int hi){
+		if(lo >= hi){
+			return Integer.MIN_VALUE;
+		}
+		int mid = (lo + hi) >>>1;
+		int max = Math.max(sortedEnds[mid], 
+				Math.max(computeSubtreeMaxEnds(lo, mid), computeSubtreeMaxEnds(mid+1, hi)));
+		subtreeMaxEnds[mid] = max;
+		return max;
+	}
+	/**
+	 * Get the indexes of all the reads that provide coverage
+	 * to the given offset, in the order the reads were given.
+	 */
+	private int[] getReadsCovering(int offset){
+		Covering covering = new Covering();
+		addReadsCovering(0, readsByStart.length, offset, covering);
+		int[] result = Arrays.copyOf(covering.readIndexes, covering.count);
+		Arrays.sort(result);
+		return result;
+	}
+	
+	private void addReadsCovering(int lo, int hi, int offset, Covering covering){
+		if(lo >= hi){
+			return;
+		}
+		int mid = (lo + hi) >>>1;
+		if(subtreeMaxEnds[mid] <= offset){
+			//nothing in this subtree reaches the offset
+			return;
+		}
+		addReadsCovering(lo, mid, offset, covering);
+		if(sortedStarts[mid] > offset){
+			//everything to the right starts even later
+			return;
+		}
+		if(sortedEnds[mid] > offset){
+			covering.add(readsByStart[mid]);
+		}
+		addReadsCovering(mid+1, hi, offset, covering);
+	}
+	
+	private static final class Covering{
+		private int[] readIndexes = new int[8];
+		private int count;
+		
+		void add(int readIndex){
+			if(count == readIndexes.length){
+				readIndexes = Arrays.copyOf(readIndexes, count*2);
+			}
+			readIndexes[count++] = readIndex;
+		}
+	}
+	
+	private byte getQuality(int readIndex, int readOffset){
+		if(qualities ==null){
+			return defaultQuality;
+		}
+		return qualities[readIndex].get(readOffset).getQualityScore();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Slice getSlice(long offset) {
+		if(offset <0 || offset >= getSize()){
+			throw new IndexOutOfBoundsException("offset " + offset + " is beyond SliceMap size " + getSize());
+		}
+		int columnOffset = (int) offset;
+		Nucleotide consensusCall = consensus.get(columnOffset);
+		int[] covering = getReadsCovering(columnOffset);
+		if(hasDuplicateIds){
+			SliceBuilder builder = new SliceBuilder(consensusCall);
+			for(int readIndex : covering){
+				int readOffset = columnOffset - starts[readIndex];
+				builder.add(ids[readIndex], sequences[readIndex].get(readOffset), 
+						PhredQuality.valueOf(getQuality(readIndex, readOffset)),
+						reverse[readIndex]? Direction.REVERSE : Direction.FORWARD);
+			}
+			return builder.build();
+		}
+		short[] elements = new short[covering.length];
+		String[] elementIds = new String[covering.length];
+		for(int i=0; i< covering.length; i++){
+			int readIndex = covering[i];
+			int readOffset = columnOffset - starts[readIndex];
+			//same encoding as CompactedSliceElement
+			int dirAndBase = sequences[readIndex].get(readOffset).getOrdinalAsByte();
+			if(reverse[readIndex]){
+				dirAndBase |= 0x80;
+			}
+			elements[i] = (short)((dirAndBase <<8) | (getQuality(readIndex, readOffset) & 0xFF));
+			elementIds[i] = ids[readIndex];
+		}
+		return new ConsensusCompactedSlice(elements, Arrays.asList(elementIds), consensusCall);
+	}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return consensus.getLength();
+	}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Iterator<Slice> iterator() {
+		return new Iterator<Slice>(){
+			private long current=0;
+			
+			@Override
+			public boolean hasNext() {
+				return current < getSize();
+			}
+
+			@Override
+			public Slice next() {
+				if(!hasNext()){
+					throw new NoSuchElementException();
+				}
+				return getSlice(current++);
+			}
+		};
+	}
+	
+	@Override
+	public int hashCode() {
+		if(hash ==0){
+			//same as CompactedSliceMap which
+			//uses Arrays.hashCode(slices)
+			int slicesHash = 1;
+			for(Slice slice : this){
+				slicesHash = 31 * slicesHash + slice.hashCode();
+			}
+			hash = 31 + slicesHash;
+		}
+		return hash;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof SliceMap)) {
+			return false;
+		}
+		SliceMap other = (SliceMap) obj;
+		if(getSize() != other.getSize()){
+			return false;
+		}
+		if(obj instanceof ReadIndexedSliceMap){
+			ReadIndexedSliceMap otherMap = (ReadIndexedSliceMap) obj;
+			if(hashCode() != otherMap.hashCode()){
+				return false;
+			}
+			if(hasSameReadsAs(otherMap)){
+				return true;
+			}
+		}
+		Iterator<Slice> iter = iterator();
+		Iterator<Slice> otherIter = other.iterator();
+		while(iter.hasNext()){
+			if(!otherIter.hasNext()){
+				return false;
+			}
+			if(!iter.next().equals(otherIter.next())){
+				return false;
+			}
+		}
+		return !otherIter.hasNext();
+	}
+	/**
+	 * Two maps built from the same consensus and
+	 * the same reads in the same order always have equal slices.
+	 */
+	private boolean hasSameReadsAs(ReadIndexedSliceMap other){
+		return defaultQuality == other.defaultQuality
+				&& consensus.equals(other.consensus)
+				&& Arrays.equals(ids, other.ids)
+				&& Arrays.equals(starts, other.starts)
+				&& Arrays.equals(reverse, other.reverse)
+				&& Arrays.equals(sequences, other.sequences)
+				&& Arrays.equals(qualities, other.qualities);
+	}
+}
@@ -6,10 +6,12 @@ import java.util.Objects;
 
 import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.IteratorUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
 import org.jcvi.jillion.internal.core.util.Sneak;
+import org.jcvi.jillion.internal.core.util.iter.BatchingSpliterator;
 
 public class AbstractMapBackedDataStore<T> extends AbstractDataStore<T>{
 
@@ -56,6 +58,14 @@ public class AbstractMapBackedDataStore<T> extends AbstractDataStore<T>{
                 IteratorUtil.map(map.entrySet().iterator(), e -> new DataStoreEntry<>(e.getKey(), e.getValue())));
     }
     @Override
+    public ThrowingStream<T> records() throws DataStoreException {
+        return ThrowingStream.asThrowingStream(BatchingSpliterator.stream(iterator(), map.size()));
+    }
+    @Override
+    public ThrowingStream<DataStoreEntry<T>> entries() throws DataStoreException {
+        return ThrowingStream.asThrowingStream(BatchingSpliterator.stream(entryIterator(), map.size()));
+    }
+    @Override
     public <E extends Throwable> void forEach(
             ThrowingBiConsumer<String, T, E> consumer) throws IOException, E {
         map.forEach((id, t) -> {
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jcvi.jillion.internal.core.util.DaemonThreadFactory;
+
+/**
+ * Utility methods to help indexed DataStores
+ * look up many records at once by reading the file
+ * in offset order.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class BatchedLookups {
+	/**
+	 * Default max number of bytes between two consecutive requested
+	 * records for them to be read in the same sequential pass
+	 * instead of seeking to the second record.
+	 */
+	public static final long DEFAULT_MAX_SEQUENTIAL_GAP = 128 * 1024;
+	
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory("jillion-datastore-async-"));
+	
+	private BatchedLookups(){
+		//can not instantiate
+	}
+	/**
+	 * Get the default {@link Executor} used by asynchronous DataStore lookups
+	 * when no Executor is given.  This is a shared pool of daemon threads
+	 * which is better suited for blocking I/O than the common ForkJoinPool.
+	 * 
+	 * @return the shared Executor; will never be null.
+	 */
+	public static Executor getDefaultAsyncExecutor(){
+		return DEFAULT_EXECUTOR;
+	}
+	/**
+	 * Get the mementos for the given ids sorted into file order.
+	 * Duplicate ids and ids that aren't in the map are skipped.  If any memento
+	 * does not implement {@link FileOffsetMemento}, then the entries
+	 * are returned in the iteration order of the given ids.
+	 * 
+	 * @param ids the ids to look up; can not be null.
+	 * @param mementos the map of id to memento of all the records in the datastore.
+	 * @return a new mutable List; will never be null but may be empty.
+	 */
+	public static <M> List<Entry<String, M>> sortByFileOffset(Collection<String> ids, Map<String, M> mementos){
+		List<Entry<String, M>> list = new ArrayList<>(ids.size());
+		boolean allHaveOffsets = true;
+		for(String id : new LinkedHashSet<>(ids)){
+			M memento = mementos.get(id);
+			if(memento !=null){
+				list.add(new SimpleImmutableEntry<>(id, memento));
+				allHaveOffsets &= memento instanceof FileOffsetMemento;
+			}
+		}
+		if(allHaveOffsets){
+			Collections.sort(list, Comparator.comparingLong(e-> ((FileOffsetMemento) e.getValue()).getFileOffset()));
+		}
+		return list;
+	}
+	/**
+	 * Split the sorted entries into groups of records
+	 * that are close enough together in the file to be read in
+	 * a single sequential pass.
+	 * 
+	 * @param sorted the entries sorted by {@link #sortByFileOffset(Collection, Map)}.
+	 * @param maxGap the max number of bytes between the starts of
+	 * two consecutive records in the same group.
+	 * @return a List of groups, each group is in file order; will never be null.
+	 * Mementos that aren't {@link FileOffsetMemento}s are always in their own group.
+	 */
+	public static <M> List<List<Entry<String, M>>> groupBySequentialReads(List<Entry<String, M>> sorted, long maxGap){
+		List<List<Entry<String, M>>> groups = new ArrayList<>();
+		List<Entry<String, M>> currentGroup = null;
+		long previousOffset = -1;
+		for(Entry<String, M> entry : sorted){
+			M memento = entry.getValue();
+			long offset = memento instanceof FileOffsetMemento ? ((FileOffsetMemento) memento).getFileOffset() : -1;
+			if(currentGroup ==null || offset < 0 || previousOffset < 0 || offset - previousOffset > maxGap){
+				currentGroup = new ArrayList<>();
+				groups.add(currentGroup);
+			}
+			currentGroup.add(entry);
+			previousOffset = offset;
+		}
+		return groups;
+	}
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+/**
+ * Interface for parser mementos that
+ * know the file offset they will seek to,
+ * so indexed datastores can sort many lookups
+ * into file order.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public interface FileOffsetMemento {
+	/**
+	 * Get the offset into the file this memento will start parsing from.
+	 * @return the offset; will always be &ge; 0.
+	 */
+	long getFileOffset();
+}
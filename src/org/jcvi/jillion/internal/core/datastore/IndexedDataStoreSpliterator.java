@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.datastore;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.ThrowingStream;
+/**
+ * A {@link Spliterator} over the records of an indexed {@link DataStore}
+ * that splits on the list of record ids in file order.
+ * Each half of a split only knows the range of ids it covers,
+ * so the halves can be parsed at the same time by different threads
+ * each seeking to its own part of the file.  Records are
+ * fetched a chunk at a time using {@link DataStore#getAll(java.util.Collection)}
+ * so indexed datastores that read nearby records in a single pass only
+ * seek once per chunk.
+ * <p>
+ * Since the spliterator reports its exact size, every id must have
+ * a record in the datastore; if {@link DataStore#getAll(java.util.Collection)}
+ * doesn't return a record for an id, an {@link UncheckedIOException}
+ * wrapping a {@link DataStoreException} is thrown instead of silently
+ * returning fewer elements than reported.
+ * </p>
+ * 
+ * @author dkatzel
+ *
+ * @param <T> the type of record in the DataStore.
+ * @param <R> the type of element returned by this spliterator.
+ * @since 5.3
+ */
+public final class IndexedDataStoreSpliterator<T, R> implements Spliterator<R>{
+	/**
+	 * Default number of records fetched from the datastore at a time.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+	
+	private static final int CHARACTERISTICS = ORDERED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+	
+	private final DataStore<T> datastore;
+	private final List<String> ids;
+	private final BiFunction<String, T, R> mapper;
+	private final int chunkSize;
+	
+	private int index;
+	private final int fence;
+	
+	private Iterator<R> currentChunk = Collections.emptyIterator();
+	private int currentChunkRemaining;
+	/**
+	 * Create a {@link ThrowingStream} of all the records in the given datastore.
+	 * @param datastore the datastore to get the records from; can not be null.
+	 * @param idsInFileOrder the ids of every record in the datastore, in file order;
+	 * can not be null and should be random access.
+	 * @return a new ThrowingStream; will never be null.
+	 */
+	public static <T> ThrowingStream<T> records(DataStore<T> datastore, List<String> idsInFileOrder){
+		return ThrowingStream.asThrowingStream(StreamSupport.stream(
+				new IndexedDataStoreSpliterator<T, T>(datastore, idsInFileOrder, (id, record)-> record, DEFAULT_CHUNK_SIZE), false));
+	}
+	/**
+	 * Create a {@link ThrowingStream} of all the {@link DataStoreEntry}s in the given datastore.
+	 * @param datastore the datastore to get the records from; can not be null.
+	 * @param idsInFileOrder the ids of every record in the datastore, in file order;
+	 * can not be null and should be random access.
+	 * @return a new ThrowingStream; will never be null.
+	 */
+	public static <T> ThrowingStream<DataStoreEntry<T>> entries(DataStore<T> datastore, List<String> idsInFileOrder){
+		return ThrowingStream.asThrowingStream(StreamSupport.stream(
+				new IndexedDataStoreSpliterator<T, DataStoreEntry<T>>(datastore, idsInFileOrder, DataStoreEntry::new, DEFAULT_CHUNK_SIZE), false));
+	}
+	/**
+	 * Create a new IndexedDataStoreSpliterator.
+	 * @param datastore the datastore to get the records from; can not be null.
+	 * @param idsInFileOrder the ids of the records to iterate over in file order;
+	 * can not be null and should be random access.
+	 * @param mapper function to convert the id and record into the element to return; can not be null.
+	 * @param chunkSize the number of records to fetch from the datastore at a time; must be &ge; 1.
+	 * 
+	 * @throws NullPointerException if any parameter is null.
+	 * @throws IllegalArgumentException if chunkSize &lt; 1.
+	 */
+	public IndexedDataStoreSpliterator(DataStore<T> datastore, List<String> idsInFileOrder, BiFunction<String, T, R> mapper, int chunkSize){
+		this(datastore, idsInFileOrder, mapper, chunkSize, 0, idsInFileOrder.size());
+	}
+	
+	private IndexedDataStoreSpliterator(DataStore<T> datastore, List<String> ids, BiFunction<String, T, R> mapper, int chunkSize, int index, int fence){
+		if(chunkSize < 1){
+			throw new IllegalArgumentException("chunk size must be >= 1");
+		}
+		this.datastore = Objects.requireNonNull(datastore);
+		this.ids = ids;
+		this.mapper = Objects.requireNonNull(mapper);
+		this.chunkSize = chunkSize;
+		this.index = index;
+		this.fence = fence;
+	}
+	
+	@Override
+	public boolean tryAdvance(Consumer<? super R> action) {
+		Objects.requireNonNull(action);
+		while(!currentChunk.hasNext()){
+			if(index >= fence){
+				return false;
+			}
+			fetchNextChunk();
+		}
+		currentChunkRemaining--;
+		action.accept(currentChunk.next());
+		return true;
+	}
+	
+	private void fetchNextChunk(){
+		int end = Math.min(fence, index + chunkSize);
+		List<String> chunkIds = ids.subList(index, end);
+		index = end;
+		Map<String, T> records;
+		try {
+			records = datastore.getAll(chunkIds);
+		} catch (DataStoreException e) {
+			throw new UncheckedIOException(e);
+		}
+		List<R> list = new ArrayList<>(chunkIds.size());
+		for(String id : chunkIds){
+			T record = records.get(id);
+			if(record ==null){
+				throw new UncheckedIOException(new DataStoreException("no record found for id " + id));
+			}
+			list.add(mapper.apply(id, record));
+		}
+		currentChunk = list.iterator();
+		currentChunkRemaining = list.size();
+	}
+	/**
+	 * Split off the first half of the remaining ids.
+	 * Only ids that haven't been fetched yet can be split off
+	 * so a spliterator that is in the middle of a chunk won't split.
+	 */
+	@Override
+	public Spliterator<R> trySplit() {
+		if(currentChunk.hasNext()){
+			return null;
+		}
+		int lo = index;
+		int mid = (lo + fence) >>> 1;
+		if(mid - lo < chunkSize){
+			return null;
+		}
+		index = mid;
+		return new IndexedDataStoreSpliterator<>(datastore, ids, mapper, chunkSize, lo, mid);
+	}
+	
+	@Override
+	public long estimateSize() {
+		return (long) (fence - index) + currentChunkRemaining;
+	}
+	
+	@Override
+	public int characteristics() {
+		return CHARACTERISTICS;
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.residue;
+
+import java.util.Iterator;
+
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+/**
+ * Shared lookup tables for encoding {@link Nucleotide}s
+ * into the small integer codes used by packed sequences,
+ * k-mer scanners and translation tables.
+ * <p>
+ * Two encodings are supported:
+ * <ul>
+ * <li>2-bit values where A=0, C=1, G=2 and T (or U)=3 so
+ * the complement of a value {@code v} is {@code 3-v}.</li>
+ * <li>DNA ordinals, which are {@link Nucleotide#ordinal()}
+ * except {@link Nucleotide#Uracil} is encoded as {@link Nucleotide#Thymine}
+ * so every value fits in 4 bits.</li>
+ * </ul>
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class NucleotideCodes {
+	/**
+	 * The value returned by {@link #toTwoBitValue(Nucleotide)}
+	 * for bases that aren't A, C, G, T or U.
+	 */
+	public static final int NOT_TWO_BIT = -1;
+	/**
+	 * The number of possible DNA ordinals.
+	 */
+	public static final int NUMBER_OF_DNA_ORDINALS = 16;
+	
+	private static final Nucleotide[] VALUES = Nucleotide.values();
+	
+	private static final Nucleotide[] TWO_BIT_VALUES = new Nucleotide[]{
+		Nucleotide.Adenine, Nucleotide.Cytosine, Nucleotide.Guanine, Nucleotide.Thymine
+	};
+	
+	private static final byte[] TWO_BIT_CODES = new byte[VALUES.length];
+	private static final byte[] DNA_ORDINALS = new byte[VALUES.length];
+	private static final byte[] COMPLEMENT_DNA_ORDINALS = new byte[NUMBER_OF_DNA_ORDINALS];
+	
+	static{
+		for(Nucleotide n : VALUES){
+			TWO_BIT_CODES[n.ordinal()] = NOT_TWO_BIT;
+			DNA_ORDINALS[n.ordinal()] = (byte) (n == Nucleotide.Uracil ? Nucleotide.Thymine : n).ordinal();
+		}
+		for(int i=0; i< TWO_BIT_VALUES.length; i++){
+			TWO_BIT_CODES[TWO_BIT_VALUES[i].ordinal()] = (byte) i;
+		}
+		TWO_BIT_CODES[Nucleotide.Uracil.ordinal()] = 3;
+		
+		for(Nucleotide n : Nucleotide.getDnaValues()){
+			COMPLEMENT_DNA_ORDINALS[n.ordinal()] = DNA_ORDINALS[n.complement().ordinal()];
+		}
+	}
+	
+	private NucleotideCodes(){
+		//can not instantiate
+	}
+	/**
+	 * Get the 2-bit value of the given base.
+	 * @param n the base; can not be null.
+	 * @return 0-3 for A,C,G and T/U; or {@link #NOT_TWO_BIT}
+	 * for gaps and ambiguities.
+	 * @throws NullPointerException if n is null.
+	 */
+	public static int toTwoBitValue(Nucleotide n){
+		return TWO_BIT_CODES[n.ordinal()];
+	}
+	/**
+	 * Get the DNA base for the given 2-bit value.
+	 * @param value the 2-bit value; only the lowest 2 bits are used.
+	 * @return A, C, G or T; never null.
+	 */
+	public static Nucleotide fromTwoBitValue(int value){
+		return TWO_BIT_VALUES[value & 0x3];
+	}
+	/**
+	 * Get the DNA ordinal of the given base.
+	 * @param n the base; can not be null.
+	 * @return the ordinal of n, or of Thymine if n is Uracil.
+	 * @throws NullPointerException if n is null.
+	 */
+	public static int toDnaOrdinal(Nucleotide n){
+		return DNA_ORDINALS[n.ordinal()];
+	}
+	/**
+	 * Get the DNA ordinal of the complement of the base
+	 * with the given DNA ordinal.
+	 * @param dnaOrdinal the DNA ordinal; must be between 0 and 15.
+	 * @return the DNA ordinal of the complement.
+	 */
+	public static int complementDnaOrdinal(int dnaOrdinal){
+		return COMPLEMENT_DNA_ORDINALS[dnaOrdinal];
+	}
+	/**
+	 * Encode the first {@code length} bases of the given sequence
+	 * as DNA ordinals.
+	 * @param seq the sequence to encode; can not be null.
+	 * @param length the number of bases to encode; must be &le; the sequence length.
+	 * @return a new array of DNA ordinals.
+	 */
+	public static byte[] toDnaOrdinals(NucleotideSequence seq, int length){
+		byte[] bases = new byte[length];
+		Iterator<Nucleotide> iter = seq.iterator();
+		for(int i=0; i< length; i++){
+			bases[i] = DNA_ORDINALS[iter.next().ordinal()];
+		}
+		return bases;
+	}
+}
@@ -0,0 +1,554 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe, weight bounded cache that uses the CLOCK
+ * (second chance) eviction policy.
+ * <p>
+ * Reads are lock-free: a cache hit is a single {@link ConcurrentHashMap}
+ * lookup plus setting the entry's referenced bit.  Inserts and evictions
+ * are guarded by one of several striped locks so writers of different keys
+ * rarely contend.  Each stripe gets an equal share of the max weight
+ * and sweeps its own clock: entries that have been read since the last
+ * sweep get a second chance, the rest are evicted.  Entries are inserted
+ * unreferenced so a scan of one-hit wonders can't flush frequently
+ * used entries.
+ * </p>
+ * <p>
+ * Optionally, concurrent misses for the same key can be coalesced so only
+ * one thread calls the {@link Loader} while the others wait for its result.
+ * </p>
+ * Besides the max weight, the number of entries is also bounded
+ * so values that weigh nothing can't grow the cache forever.
+ * <p>
+ * Hit, miss, load and eviction counts are kept in {@link LongAdder}s.
+ * Null keys and values are not allowed.
+ * 
+ * @author dkatzel
+ *
+ * @param <K> the type of key.
+ * @param <V> the type of value.
+ * 
+ * @since 5.3
+ */
+public final class ConcurrentClockCache<K,V> {
+	/**
+	 * Computes a value for a key not in the cache.
+	 *
+	 * @param <K> the type of key.
+	 * @param <V> the type of value.
+	 * @param <E> the type of Throwable that can be thrown.
+	 */
+	@FunctionalInterface
+	public interface Loader<K,V, E extends Throwable>{
+		/**
+		 * Load the value for the given key.
+		 * @param key the key to load.
+		 * @return the value, may be null if there is no value
+		 * in which case nothing is cached.
+		 * @throws E if there is a problem loading the value.
+		 */
+		V load(K key) throws E;
+	}
+	/**
+	 * Computes the values for several keys not in the cache at once.
+	 *
+	 * @param <K> the type of key.
+	 * @param <V> the type of value.
+	 * @param <E> the type of Throwable that can be thrown.
+	 */
+	@FunctionalInterface
+	public interface BulkLoader<K,V, E extends Throwable>{
+		/**
+		 * Load the values for the given keys.
+		 * @param keys the keys to load; will never be empty.
+		 * @return a Map of the loaded values; keys without a value
+		 * should not be included.
+		 * @throws E if there is a problem loading the values.
+		 */
+		Map<K, V> loadAll(List<K> keys) throws E;
+	}
+	/**
+	 * Smallest weight budget a stripe is allowed to have;
+	 * small caches use fewer stripes.
+	 */
+	private static final long MIN_STRIPE_WEIGHT = 32;
+	/**
+	 * Don't bother compacting a stripe's clock until
+	 * it has at least this many replaced or removed nodes.
+	 */
+	private static final int MIN_DEAD_NODES_TO_COMPACT = 16;
+	
+	private final ConcurrentHashMap<K, Node<K,V>> map;
+	private final Stripe<K,V>[] stripes;
+	private final int stripeMask;
+	private final ToLongFunction<? super V> weigher;
+	private final long maxWeight;
+	private final long maxSize;
+	/**
+	 * In-flight loads; null if loads are not coalesced.
+	 */
+	private final ConcurrentHashMap<K, CompletableFuture<V>> loading;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	/**
+	 * Create a new cache that holds at most
+	 * {@code maxWeight} entries no matter what they weigh.
+	 * 
+	 * @param maxWeight the max total weight of all the cached values; must be &ge; 1.
+	 * @param weigher function to compute the weight of each value; can not be null.
+	 * Each weight must be &ge; 0.  Values heavier than a stripe's share of the max weight
+	 * are never cached.
+	 * @param concurrencyLevel the estimated number of threads that will insert concurrently;
+	 * must be &ge; 1.
+	 * @param coalesceLoads if {@code true} then concurrent calls to 
+	 * {@link #get(Object, Loader)} for the same missing key only load the value once.
+	 * 
+	 * @throws NullPointerException if weigher is null.
+	 * @throws IllegalArgumentException if maxWeight or concurrencyLevel are &lt; 1.
+	 * 
+	 * @see #ConcurrentClockCache(long, long, ToLongFunction, int, boolean)
+	 */
+	public ConcurrentClockCache(long maxWeight, ToLongFunction<? super V> weigher, int concurrencyLevel, boolean coalesceLoads){
+		this(maxWeight, maxWeight, weigher, concurrencyLevel, coalesceLoads);
+	}
+	/**
+	 * Create a new cache.
+	 * 
+	 * @param maxWeight the max total weight of all the cached values; must be &ge; 1.
+	 * @param maxSize the max number of cached entries; must be &ge; 1.
+	 * @param weigher function to compute the weight of each value; can not be null.
+	 * Each weight must be &ge; 0.  Values heavier than a stripe's share of the max weight
+	 * are never cached.
+	 * @param concurrencyLevel the estimated number of threads that will insert concurrently;
+	 * must be &ge; 1.
+	 * @param coalesceLoads if {@code true} then concurrent calls to 
+	 * {@link #get(Object, Loader)} for the same missing key only load the value once.
+	 * 
+	 * @throws NullPointerException if weigher is null.
+	 * @throws IllegalArgumentException if maxWeight, maxSize or concurrencyLevel are &lt; 1.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ConcurrentClockCache(long maxWeight, long maxSize, ToLongFunction<? super V> weigher, int concurrencyLevel, boolean coalesceLoads){
+		if(maxWeight < 1){
+			throw new IllegalArgumentException("max weight must be >= 1");
+		}
+		if(maxSize < 1){
+			throw new IllegalArgumentException("max size must be >= 1");
+		}
+		if(concurrencyLevel < 1){
+			throw new IllegalArgumentException("concurrency level must be >= 1");
+		}
+		if(weigher ==null){
+			throw new NullPointerException("weigher can not be null");
+		}
+		this.maxWeight = maxWeight;
+		this.maxSize = maxSize;
+		this.weigher = weigher;
+		long smallestBudget = Math.min(maxWeight, maxSize);
+		int numberOfStripes =1;
+		while(numberOfStripes < concurrencyLevel && smallestBudget / (numberOfStripes *2) >= MIN_STRIPE_WEIGHT){
+			numberOfStripes *=2;
+		}
+		stripes = new Stripe[numberOfStripes];
+		for(int i=0; i< numberOfStripes; i++){
+			stripes[i] = new Stripe<>(shareOf(maxWeight, numberOfStripes, i), shareOf(maxSize, numberOfStripes, i));
+		}
+		stripeMask = numberOfStripes -1;
+		map = new ConcurrentHashMap<>(16, .75F, concurrencyLevel);
+		loading = coalesceLoads ? new ConcurrentHashMap<>() : null;
+	}
+	
+	private static long shareOf(long total, int numberOfStripes, int stripeIndex){
+		long share = total / numberOfStripes;
+		return stripeIndex < total % numberOfStripes ? share +1 : share;
+	}
+	
+	private Stripe<K,V> stripeFor(K key){
+		int h = key.hashCode();
+		//spread the bits since ConcurrentHashMap uses the low bits too
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return stripes[h & stripeMask];
+	}
+	/**
+	 * Get the cached value for the given key.
+	 * @param key the key; can not be null.
+	 * @return the value or {@code null} if not cached.
+	 */
+	public V getIfPresent(K key){
+		Node<K,V> node = map.get(key);
+		if(node ==null){
+			misses.increment();
+			return null;
+		}
+		//avoid the volatile write if already set
+		if(!node.referenced){
+			node.referenced = true;
+		}
+		hits.increment();
+		return node.value;
+	}
+	/**
+	 * Get the cached value for the given key, loading and caching it
+	 * if it is not present.
+	 * @param key the key; can not be null.
+	 * @param loader the {@link Loader} to use if the key is not cached; can not be null.
+	 * @return the value; may be null if the loader returns null.
+	 * @throws E if the loader throws an exception.  If loads are coalesced, threads
+	 * waiting on another thread's load will throw the same exception.
+	 */
+	public <E extends Throwable> V get(K key, Loader<? super K, ? extends V, E> loader) throws E{
+		V value = getIfPresent(key);
+		if(value !=null){
+			return value;
+		}
+		if(loading ==null){
+			return loadAndCache(key, loader);
+		}
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+		if(inFlight !=null){
+			return waitFor(inFlight);
+		}
+		try{
+			//another thread may have finished loading
+			//between our miss and registering our future
+			Node<K,V> node = map.get(key);
+			V loaded = node ==null ? loadAndCache(key, loader) : node.value;
+			future.complete(loaded);
+			return loaded;
+		}catch(Throwable t){
+			future.completeExceptionally(t);
+			throw t;
+		}finally{
+			loading.remove(key, future);
+		}
+	}
+	
+	/**
+	 * Get the values for all the given keys, loading all the missing
+	 * keys in a single call to the given {@link BulkLoader}.
+	 * Bulk loads are not coalesced with other loads.
+	 * @param keys the keys; can not be null or contain nulls.
+	 * @param loader the {@link BulkLoader} to use if any of the keys are not cached; can not be null.
+	 * @return a new Map of the values in the iteration order of the keys;
+	 * keys without values are not included.
+	 * @throws E if the loader throws an exception.
+	 */
+	public <E extends Throwable> Map<K,V> getAll(Collection<? extends K> keys, BulkLoader<K, ? extends V, E> loader) throws E{
+		Map<K,V> cached = new LinkedHashMap<>();
+		//a set so duplicate keys are only loaded once
+		Set<K> missing = new LinkedHashSet<>();
+		for(K key : keys){
+			if(cached.containsKey(key) || missing.contains(key)){
+				continue;
+			}
+			V value = getIfPresent(key);
+			if(value ==null){
+				missing.add(key);
+			}else{
+				cached.put(key, value);
+			}
+		}
+		if(missing.isEmpty()){
+			return cached;
+		}
+		loads.add(missing.size());
+		Map<K, ? extends V> loaded = loader.loadAll(new ArrayList<>(missing));
+		loaded.forEach(this::put);
+		
+		Map<K,V> result = new LinkedHashMap<>();
+		for(K key : keys){
+			V value = cached.get(key);
+			if(value ==null){
+				value = loaded.get(key);
+			}
+			if(value !=null){
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+	
+	private V waitFor(CompletableFuture<V> future){
+		try{
+			return future.join();
+		}catch(CompletionException e){
+			throw Sneak.sneakyThrow(e.getCause());
+		}
+	}
+	
+	private <E extends Throwable> V loadAndCache(K key, Loader<? super K, ? extends V, E> loader) throws E{
+		loads.increment();
+		V value = loader.load(key);
+		if(value !=null){
+			put(key, value);
+		}
+		return value;
+	}
+	/**
+	 * Add the given key-value pair to the cache, replacing
+	 * any value already cached for that key.  This may cause other
+	 * entries to be evicted.  If the value is too heavy to cache,
+	 * any value already cached for that key is removed so the cache
+	 * never returns a stale value.
+	 * @param key the key; can not be null.
+	 * @param value the value; can not be null.
+	 * @throws NullPointerException if key or value are null.
+	 * @throws IllegalArgumentException if the weight of the value is negative.
+	 */
+	public void put(K key, V value){
+		if(key ==null || value ==null){
+			throw new NullPointerException("key and value can not be null");
+		}
+		long weight = weigher.applyAsLong(value);
+		if(weight <0){
+			throw new IllegalArgumentException("weight can not be negative: " + weight);
+		}
+		Stripe<K,V> stripe = stripeFor(key);
+		stripe.lock.lock();
+		try{
+			if(weight > stripe.maxWeight){
+				Node<K,V> old = map.remove(key);
+				if(old !=null){
+					markRemoved(stripe, old);
+				}
+				return;
+			}
+			Node<K,V> node = new Node<>(key, value, weight);
+			Node<K,V> old = map.put(key, node);
+			if(old !=null){
+				markRemoved(stripe, old);
+			}
+			stripe.clock.addLast(node);
+			stripe.weight += weight;
+			stripe.size++;
+			evictIfNeeded(stripe);
+		}finally{
+			stripe.lock.unlock();
+		}
+	}
+	/**
+	 * Mark a node that is no longer in the map as removed.
+	 * Removed nodes are skipped by the next sweep, but if 
+	 * keys keep getting replaced without evicting anything
+	 * they would pile up so compact the clock once more than half of it is dead.
+	 * Must be called while holding the stripe lock.
+	 */
+	private void markRemoved(Stripe<K,V> stripe, Node<K,V> node){
+		node.removed = true;
+		stripe.weight -= node.weight;
+		stripe.size--;
+		stripe.deadNodes++;
+		if(stripe.deadNodes >= MIN_DEAD_NODES_TO_COMPACT && stripe.deadNodes *2 > stripe.clock.size()){
+			stripe.clock.removeIf(n -> n.removed);
+			stripe.deadNodes =0;
+		}
+	}
+	/**
+	 * Sweep the clock evicting unreferenced entries
+	 * until the stripe is under its max weight and max size.
+	 * Must be called while holding the stripe lock.
+	 */
+	private void evictIfNeeded(Stripe<K,V> stripe){
+		while(stripe.weight > stripe.maxWeight || stripe.size > stripe.maxSize){
+			Node<K,V> candidate = stripe.clock.pollFirst();
+			if(candidate.removed){
+				stripe.deadNodes--;
+				continue;
+			}
+			if(candidate.referenced){
+				candidate.referenced = false;
+				stripe.clock.addLast(candidate);
+				continue;
+			}
+			candidate.removed = true;
+			map.remove(candidate.key, candidate);
+			stripe.weight -= candidate.weight;
+			stripe.size--;
+			evictions.increment();
+		}
+	}
+	/**
+	 * Remove all entries from the cache.
+	 * Statistics are not reset.
+	 */
+	public void invalidateAll(){
+		for(Stripe<K,V> stripe : stripes){
+			stripe.lock.lock();
+			try{
+				for(Node<K,V> node : stripe.clock){
+					if(!node.removed){
+						node.removed = true;
+						map.remove(node.key, node);
+					}
+				}
+				stripe.clock.clear();
+				stripe.weight =0;
+				stripe.size =0;
+				stripe.deadNodes =0;
+			}finally{
+				stripe.lock.unlock();
+			}
+		}
+	}
+	/**
+	 * Get the number of entries currently cached.
+	 * @return the number of entries.
+	 */
+	public long size(){
+		return map.size();
+	}
+	/**
+	 * Get the total weight of all the entries currently cached.
+	 * @return the weight.
+	 */
+	public long weight(){
+		long total =0;
+		for(Stripe<K,V> stripe : stripes){
+			stripe.lock.lock();
+			try{
+				total += stripe.weight;
+			}finally{
+				stripe.lock.unlock();
+			}
+		}
+		return total;
+	}
+	/**
+	 * Get the max weight this cache can hold.
+	 * @return the max weight.
+	 */
+	public long getMaxWeight(){
+		return maxWeight;
+	}
+	/**
+	 * Get the max number of entries this cache can hold.
+	 * @return the max size.
+	 */
+	public long getMaxSize(){
+		return maxSize;
+	}
+	/**
+	 * Get the number of nodes in all the clocks including
+	 * replaced nodes that haven't been swept yet.
+	 * Only used for testing.
+	 * @return the number of nodes.
+	 */
+	int getNumberOfClockNodes(){
+		int total =0;
+		for(Stripe<K,V> stripe : stripes){
+			stripe.lock.lock();
+			try{
+				total += stripe.clock.size();
+			}finally{
+				stripe.lock.unlock();
+			}
+		}
+		return total;
+	}
+	/**
+	 * Get the number of lookups that found a cached value.
+	 * @return the number of hits.
+	 */
+	public long getHitCount(){
+		return hits.sum();
+	}
+	/**
+	 * Get the number of lookups that did not find a cached value.
+	 * @return the number of misses.
+	 */
+	public long getMissCount(){
+		return misses.sum();
+	}
+	/**
+	 * Get the number of times a {@link Loader} was called.
+	 * If loads are coalesced, this may be less than the number
+	 * of misses.
+	 * @return the number of loads.
+	 */
+	public long getLoadCount(){
+		return loads.sum();
+	}
+	/**
+	 * Get the number of entries evicted to stay under the max weight.
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount(){
+		return evictions.sum();
+	}
+	
+	private static final class Node<K,V>{
+		private final K key;
+		private final V value;
+		private final long weight;
+		private volatile boolean referenced;
+		/**
+		 * Guarded by the stripe lock.
+		 */
+		private boolean removed;
+		
+		Node(K key, V value, long weight){
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+	
+	private static final class Stripe<K,V>{
+		private final ReentrantLock lock = new ReentrantLock();
+		private final ArrayDeque<Node<K,V>> clock = new ArrayDeque<>();
+		private final long maxWeight;
+		private final long maxSize;
+		private long weight;
+		private long size;
+		/**
+		 * Number of removed nodes still in the clock.
+		 */
+		private int deadNodes;
+		
+		Stripe(long maxWeight, long maxSize){
+			this.maxWeight = maxWeight;
+			this.maxSize = maxSize;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+/**
+ * {@link ThreadFactory} that creates named daemon threads
+ * so pools of background threads never prevent the JVM
+ * from exiting.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class DaemonThreadFactory implements ThreadFactory{
+	private final AtomicInteger count = new AtomicInteger();
+	private final String namePrefix;
+	/**
+	 * Create a new ThreadFactory.
+	 * @param namePrefix the prefix of each thread name, a counter
+	 * will be appended to make each name unique; can not be null.
+	 * @throws NullPointerException if namePrefix is null.
+	 */
+	public DaemonThreadFactory(String namePrefix){
+		if(namePrefix ==null){
+			throw new NullPointerException("name prefix can not be null");
+		}
+		this.namePrefix = namePrefix;
+	}
+	
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, namePrefix + count.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	}
+}
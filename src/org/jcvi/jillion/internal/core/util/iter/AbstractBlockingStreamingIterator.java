@@ -21,24 +21,36 @@
 package org.jcvi.jillion.internal.core.util.iter;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.util.DaemonThreadFactory;
 
 /**
  * {@code AbstractBlockingStreamingIterator}
  * is a {@link StreamingIterator} that is
  * meant be used to iterate over a large computationally intensive
- * or memory intensive process.  Only 1 record (the next record
- * to be returned by {@link Iterator#next()}) will be referenced by this class.
- * This class will perform the intensive computation in a background Thread
- * and will block that Thread until the next item to be iterated 
- * is required.  Elements to be iterated over are placed onto the blocking
+ * or memory intensive process.  This class will perform the intensive
+ * computation in a background Thread which hands off elements to be iterated
+ * over in small batches through a bounded buffer, blocking the background
+ * Thread whenever the buffer is full.  Only a few batches of records
+ * (see {@link #DEFAULT_BATCH_SIZE} and {@link #DEFAULT_MAX_PENDING_BATCHES})
+ * will be referenced by this class at any time.  If the iterating
+ * thread runs out of records while a batch is only partially filled,
+ * that partial batch is handed off right away so a slow background
+ * Thread never delays a record waiting for its batch to fill up.
+ * Elements to be iterated over are placed onto the blocking
  * iterator by {@link #blockingPut(Object)}.
+ * <p/>
+ * Background Threads are daemon Threads taken from a shared pool
+ * so they are reused across iterators and will never prevent the JVM
+ * from exiting.
  * <strong>WARNING:</strong> Client code must be very careful
  * to always make sure that this iterator is closed when finished.
  * If the iterator does not reach the end or
@@ -106,43 +118,178 @@ import org.jcvi.jillion.core.util.iter.StreamingIterator;
  * @param <T> the type of elements being iterated over.
  */
 public abstract class AbstractBlockingStreamingIterator<T> implements StreamingIterator<T>{
-
+	/**
+	 * The default number of records handed off
+	 * to the iterating thread at a time.
+	 * 
+	 * @since 5.3
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+	/**
+	 * The default number of full batches the background
+	 * thread may get ahead of the iterating thread
+	 * before it blocks.
+	 * 
+	 * @since 5.3
+	 */
+	public static final int DEFAULT_MAX_PENDING_BATCHES = 4;
+	/**
+	 * Shared pool of daemon threads used by all instances
+	 * so threads are reused and don't need shutdown hooks
+	 * to let the JVM exit.
+	 */
+	private static final ExecutorService BACKGROUND_THREADS = Executors.newCachedThreadPool(new DaemonThreadFactory("jillion-streaming-iterator-"));
+	
 	private final Object endOfFileToken = new Object();
-    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>(1);
+	
+	private final int batchSize;
+	private final BlockingQueue<Batch> pendingBatches;
+	private final BlockingQueue<Batch> freeBatches;
+	/**
+	 * Guards {@link #putBatch} and {@link #consumerWaiting}
+	 * so the iterating thread can take a partially
+	 * filled batch if it has nothing else to iterate over.
+	 */
+	private final Object putLock = new Object();
+	/**
+	 * Batch currently being filled by the background thread;
+	 * only accessed while holding {@link #putLock}.
+	 */
+	private Batch putBatch;
+	/**
+	 * Set by the iterating thread while it is blocked
+	 * waiting for a batch so the background thread hands
+	 * off each record immediately instead of filling a batch.
+	 */
+	private boolean consumerWaiting;
+	/**
+	 * Batch currently being iterated over; only accessed
+	 * by the iterating thread.
+	 */
+	private Batch takeBatch;
+	private int takeOffset;
+	private boolean reachedLastBatch;
+	
     private volatile Object nextRecord=null;
     private volatile boolean isClosed=false;
     
     private volatile RuntimeException uncaughtException;
-
     /**
-     * @throws InterruptedException 
+     * Create a new instance using the default
+     * batch size and number of pending batches.
+     */
+    protected AbstractBlockingStreamingIterator(){
+    	this(DEFAULT_BATCH_SIZE, DEFAULT_MAX_PENDING_BATCHES);
+    }
+    /**
+     * Create a new instance using the given
+     * batch size and number of pending batches.
+     * 
+     * @param batchSize the number of records to hand off 
+     * to the iterating thread at a time; must be &ge; 1.
+     * @param maxPendingBatches the number of full batches the background thread
+     * may get ahead of the iterating thread before it blocks; must be &ge; 1.
+     * 
+     * @throws IllegalArgumentException if either parameter is &lt; 1.
      * 
+     * @since 5.3
      */
+    protected AbstractBlockingStreamingIterator(int batchSize, int maxPendingBatches){
+    	if(batchSize < 1){
+    		throw new IllegalArgumentException("batch size must be >= 1");
+    	}
+    	if(maxPendingBatches < 1){
+    		throw new IllegalArgumentException("max pending batches must be >= 1");
+    	}
+    	this.batchSize = batchSize;
+    	pendingBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+    	//pending plus the one being filled and the one being iterated
+    	freeBatches = new ArrayBlockingQueue<>(maxPendingBatches +2);
+    }
+    
     private void blockingGetNextRecord(){
-        if(!isClosed){
-            try {
-            	Object obj =null;
-            	while(obj ==null){
-            		//to avoid a deadlock we will 
-            		//stop blocking after 1 second
-            		//to check if an exception was thrown
-            		obj = queue.poll(1, TimeUnit.SECONDS);
-            		if(obj ==null){
-            			//check exception
-            			if(uncaughtException !=null){
-            				nextRecord = null;
-            				break;
-            			}
-            		}else{
-            			nextRecord = obj;
-            		}
-            	}
-				
-			} catch (InterruptedException e) {
-				//assume interrupted is closed?
-				IOUtil.closeAndIgnoreErrors(this);
-			}     
+        if(isClosed){
+        	return;
         }
+        while(takeBatch ==null || takeOffset >= takeBatch.size){
+        	if(takeBatch !=null){
+        		if(takeBatch.isLast){
+        			reachedLastBatch(takeBatch);
+        			return;
+        		}
+        		recycle(takeBatch);
+        		takeBatch = null;
+        	}
+        	if(reachedLastBatch){
+        		return;
+        	}
+        	try {
+        		takeBatch = takeNextBatch();
+        		takeOffset=0;
+        	} catch (InterruptedException e) {
+        		//assume interrupted is closed?
+        		IOUtil.closeAndIgnoreErrors(this);
+        		return;
+        	}
+        }
+        nextRecord = takeBatch.records[takeOffset];
+        //don't hold on to records we've handed out
+        takeBatch.records[takeOffset] = null;
+        takeOffset++;
+    }
+    
+    /**
+     * Get the next batch to iterate over.  If no full batches
+     * are pending, take whatever the background thread has
+     * partially filled, or if it hasn't put anything yet, 
+     * block until it hands off its next record.
+     * 
+     * @return the next batch; never null.
+     * 
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private Batch takeNextBatch() throws InterruptedException{
+    	Batch batch = pendingBatches.poll();
+    	if(batch !=null){
+    		return batch;
+    	}
+    	synchronized(putLock){
+    		//check again while holding the lock: any batch
+    		//handed off before the current partial batch
+    		//was started is already on the queue.
+    		batch = pendingBatches.poll();
+    		if(batch !=null){
+    			return batch;
+    		}
+    		if(putBatch !=null && putBatch.size >0){
+    			batch = putBatch;
+    			putBatch = null;
+    			return batch;
+    		}
+    		consumerWaiting = true;
+    	}
+    	try{
+    		return pendingBatches.take();
+    	}finally{
+    		synchronized(putLock){
+    			consumerWaiting = false;
+    		}
+    	}
+    }
+    
+    private void reachedLastBatch(Batch lastBatch){
+    	reachedLastBatch = true;
+    	takeBatch = null;
+    	if(lastBatch.error !=null){
+    		uncaughtException = lastBatch.error;
+    	}
+    	nextRecord = endOfFileToken;
+    }
+    
+    private void recycle(Batch batch){
+    	Arrays.fill(batch.records, 0, batch.size, null);
+    	batch.size=0;
+    	freeBatches.offer(batch);
     }
     /**
      * This starts the visiting in a separate thread.
@@ -150,29 +297,34 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
      * {@link #hasNext()} or {@link #next()}.
      */
     public void start(){
-      final IteratorThread iteratorThread =new IteratorThread();
-        iteratorThread.start();
-        //if the vm exits while we are still blocking
-        //we will run forever...
-        //add shutdown hook to try to kill ourselves
-        Runtime.getRuntime().addShutdownHook(new Thread(){
-            @Override
-            public void run() {
-                iteratorThread.kill();
-            }
-        });
+    	BACKGROUND_THREADS.execute(this::runInBackground);
         blockingGetNextRecord();
 		
     }
+    
+    private void runInBackground(){
+    	RuntimeException error = null;
+    	try{
+    		backgroundThreadRunMethod();
+    	}catch(RuntimeException e){
+    		error = e;
+    	}catch(Error e){
+    		error = new IllegalStateException("error in background iterator thread", e);
+    		throw e;
+    	}finally{
+    		finishedIterating(error);
+    	}
+    }
     /**
-     * This is the method that is called by the {@link Thread#run()}
-     * instance in the background thread created and started 
-     * in {@link #start()}.  Please set up and start the items
+     * This is the method that is called by the background thread 
+     * started in {@link #start()}.  Please set up and start the items
      * being iterated over.  Make sure
      * to call
      * {@link #blockingPut(Object)} when appropriate. 
      * Any uncaught exceptions will be thrown by the 
-     * thread using the iterator the next time
+     * thread using the iterator after all the records
+     * put before the exception was thrown have been iterated over
+     * the next time
      * {@link #next()} or {@link #hasNext()}
      * is used.
      * @throws RuntimeException - any exception not caught or handled by this background
@@ -182,27 +334,67 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
      */
     protected abstract void backgroundThreadRunMethod() throws RuntimeException;
 	/**
-	 * This method must be called when the visitor has finished
-	 * visiting in order to let the iterator know that there
+	 * This method is called when the background thread has finished
+	 * in order to let the iterator know that there
 	 * are no more records left to block for.
+	 * 
+	 * @param error the uncaught exception thrown by the background thread;
+	 * or {@code null} if it finished normally.
 	 */
-    private void finishedIterating(){
-    	blockingPut(endOfFileToken);
+    private void finishedIterating(RuntimeException error){
+    	Batch lastBatch;
+    	synchronized(putLock){
+    		lastBatch = putBatch ==null ? newBatch() : putBatch;
+    		putBatch = null;
+    	}
+    	lastBatch.isLast = true;
+    	lastBatch.error = error;
+    	if(!isClosed){
+    		try {
+				pendingBatches.put(lastBatch);
+			} catch (InterruptedException e) {
+				//the pool is shutting down
+				IOUtil.closeAndIgnoreErrors(this);
+			}
+    	}
     }
     /**
      * Put the given object onto the queue to be iterated over
      * and block until there is room for it in the queue.
+     * Objects are handed off to the iterating thread in batches
+     * so this method only blocks when a batch fills up;
+     * if the iterating thread is already waiting for records,
+     * the current batch is handed off immediately even if it isn't full.
      * @param obj the object to put.
      */
     public final void blockingPut(Object obj){
-        if(!isClosed){
+        if(isClosed){
+        	return;
+        }
+        Batch handOff = null;
+        synchronized(putLock){
+	        if(putBatch ==null){
+	        	putBatch = newBatch();
+	        }
+	        putBatch.records[putBatch.size++] = obj;
+	        if(putBatch.size == batchSize || consumerWaiting){
+	        	handOff = putBatch;
+	        	putBatch = null;
+	        }
+        }
+        if(handOff !=null){
 	        try {
-	            queue.put(obj);
+	            pendingBatches.put(handOff);
 	        } catch (InterruptedException e) {
 	            throw new IllegalStateException(e);
 	        }
 	    }
     }
+    
+    private Batch newBatch(){
+    	Batch batch = freeBatches.poll();
+    	return batch ==null ? new Batch(batchSize) : batch;
+    }
     /**
      * 
     * {@inheritDoc}
@@ -225,14 +417,10 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
     	}
         isClosed=true;
         nextRecord=endOfFileToken;
-        queue.clear();	        
-    }
-	
-    private void setErroredOut(RuntimeException uncaughtException){
-		AbstractBlockingStreamingIterator.this.uncaughtException = uncaughtException;
-		nextRecord=endOfFileToken;
-		
-		queue.clear();
+        //frees up room for a background thread
+        //blocked on a full queue, which will then see
+        //we are closed and stop putting
+        pendingBatches.clear();	        
     }
 	/**
 	 * Safety-net to close the iterator
@@ -285,29 +473,19 @@ public abstract class AbstractBlockingStreamingIterator<T> implements StreamingI
 	     public final boolean isClosed() {
 	 		return isClosed;
 	 	}
-
 	     /**
-	      * Background thread that runs this iterator
-	      * and can be killed
-	      * @author dkatzel
-	      *
-	      *
+	      * A chunk of records handed off from the
+	      * background thread to the iterating thread.
+	      * Batches are reused once they have been iterated over.
 	      */
-	     private class IteratorThread extends Thread{
-	         /**
-	          * closes the blocked iterator.
-	          */
-	         public void kill(){
-	             IOUtil.closeAndIgnoreErrors(AbstractBlockingStreamingIterator.this);                
-	         }
-	         @Override
-	         public void run() {
-	             try{
-	                 backgroundThreadRunMethod();
-	                 finishedIterating();
-	             }catch(RuntimeException e){
-	            	 setErroredOut(e);                
-	             }
-	         }
+	     private static final class Batch{
+	    	 private final Object[] records;
+	    	 private int size;
+	    	 private boolean isLast;
+	    	 private RuntimeException error;
+	    	 
+	    	 Batch(int capacity){
+	    		 records = new Object[capacity];
+	    	 }
 	     }
 }
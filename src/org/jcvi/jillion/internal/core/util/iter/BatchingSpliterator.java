@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util.iter;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.io.StreamUtil;
+/**
+ * A {@link Spliterator} that wraps an {@link Iterator}
+ * that can not be split itself, such as a {@link org.jcvi.jillion.core.util.iter.StreamingIterator}
+ * that is parsing a file.  Each call to {@link #trySplit()} copies the next batch
+ * of elements from the iterator into an array that can be worked on by another thread.
+ * <p>
+ * This is similar to {@link Spliterators#spliterator(Iterator, long, int)}
+ * except the first batches are much smaller and grow geometrically,
+ * so even small datastores where each record is expensive to process
+ * get split across all the worker threads.
+ * </p>
+ * @author dkatzel
+ *
+ * @param <T> the type of element.
+ * @since 5.3
+ */
+public final class BatchingSpliterator<T> implements Spliterator<T>{
+	/**
+	 * Number of elements in the first split.
+	 */
+	public static final int DEFAULT_INITIAL_BATCH_SIZE = 16;
+	/**
+	 * Max number of elements in a split.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+	
+	private final Iterator<? extends T> iterator;
+	private final int characteristics;
+	private final int maxBatchSize;
+	private long estimatedSize;
+	private int batchSize;
+	/**
+	 * Create a new sequential {@link Stream} of the elements of the given {@link StreamingIterator}
+	 * that can be efficiently split if it is made parallel.  Closing the returned
+	 * Stream will close the iterator.
+	 * @param iter the iterator to wrap; can not be null.
+	 * @param size the exact number of elements the iterator will return, or a negative
+	 * number if not known.
+	 * @return a new Stream; will never be null.
+	 * @throws NullPointerException if iter is null.
+	 */
+	public static <T> Stream<T> stream(StreamingIterator<T> iter, long size){
+		return StreamSupport.stream(new BatchingSpliterator<T>(iter, size, IMMUTABLE | ORDERED | NONNULL), false)
+				.onClose(StreamUtil.newOnCloseRunnableThatThrowsUncheckedIOExceptionIfNecessary(iter));
+	}
+	/**
+	 * Create a new BatchingSpliterator where the number of elements
+	 * is not known.
+	 * @param iterator the iterator to wrap; can not be null.
+	 * @param characteristics the characteristics of the iterated elements,
+	 * for example {@link Spliterator#ORDERED} or {@link Spliterator#NONNULL}.
+	 * @throws NullPointerException if iterator is null.
+	 */
+	public BatchingSpliterator(Iterator<? extends T> iterator, int characteristics){
+		this(iterator, -1, characteristics);
+	}
+	/**
+	 * Create a new BatchingSpliterator.
+	 * @param iterator the iterator to wrap; can not be null.
+	 * @param size the exact number of elements the iterator will return, or a negative
+	 * number if not known.  If the size is known then this spliterator
+	 * will report {@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED}.
+	 * @param characteristics the characteristics of the iterated elements,
+	 * for example {@link Spliterator#ORDERED} or {@link Spliterator#NONNULL}.
+	 * @throws NullPointerException if iterator is null.
+	 */
+	public BatchingSpliterator(Iterator<? extends T> iterator, long size, int characteristics){
+		this(iterator, size, characteristics, DEFAULT_INITIAL_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+	}
+	/**
+	 * Create a new BatchingSpliterator with the given batch sizes.
+	 * @param iterator the iterator to wrap; can not be null.
+	 * @param size the exact number of elements the iterator will return, or a negative
+	 * number if not known.
+	 * @param characteristics the characteristics of the iterated elements.
+	 * @param initialBatchSize the number of elements in the first split; must be &ge; 1.
+	 * @param maxBatchSize the max number of elements in a split; must be &ge; initialBatchSize.
+	 * @throws NullPointerException if iterator is null.
+	 * @throws IllegalArgumentException if the batch sizes are invalid.
+	 */
+	public BatchingSpliterator(Iterator<? extends T> iterator, long size, int characteristics, int initialBatchSize, int maxBatchSize){
+		this.iterator = Objects.requireNonNull(iterator);
+		if(initialBatchSize < 1){
+			throw new IllegalArgumentException("initial batch size must be >= 1");
+		}
+		if(maxBatchSize < initialBatchSize){
+			throw new IllegalArgumentException("max batch size must be >= initial batch size");
+		}
+		this.batchSize = initialBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		if(size < 0){
+			this.estimatedSize = Long.MAX_VALUE;
+			this.characteristics = characteristics & ~(SIZED | SUBSIZED);
+		}else{
+			this.estimatedSize = size;
+			this.characteristics = characteristics | SIZED | SUBSIZED;
+		}
+	}
+	
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		Objects.requireNonNull(action);
+		if(!iterator.hasNext()){
+			return false;
+		}
+		decrementSize(1);
+		action.accept(iterator.next());
+		return true;
+	}
+	
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		Objects.requireNonNull(action);
+		iterator.forEachRemaining(action);
+		if(estimatedSize != Long.MAX_VALUE){
+			estimatedSize = 0;
+		}
+	}
+	
+	@Override
+	public Spliterator<T> trySplit() {
+		if(estimatedSize <= 1 || !iterator.hasNext()){
+			return null;
+		}
+		int n = (int) Math.min(batchSize, estimatedSize);
+		Object[] batch = new Object[n];
+		int count=0;
+		while(count < n && iterator.hasNext()){
+			batch[count++] = iterator.next();
+		}
+		decrementSize(count);
+		batchSize = Math.min(maxBatchSize, batchSize *2);
+		//array spliterators are always SIZED and SUBSIZED
+		return Spliterators.spliterator(batch, 0, count, characteristics);
+	}
+	
+	private void decrementSize(int n){
+		if(estimatedSize != Long.MAX_VALUE){
+			estimatedSize = Math.max(0, estimatedSize - n);
+		}
+	}
+	
+	@Override
+	public long estimateSize() {
+		return estimatedSize;
+	}
+	
+	@Override
+	public int characteristics() {
+		return characteristics;
+	}
+}
@@ -21,13 +21,14 @@
 package org.jcvi.jillion.internal.trace.fastq;
 
 import java.util.Arrays;
-import java.util.DoubleSummaryStatistics;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.OptionalDouble;
+import java.util.OptionalInt;
 
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualityArrays;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
 import org.jcvi.jillion.trace.fastq.FastqQualityCodec;
@@ -50,7 +51,7 @@ class ParsedQualitySequence implements QualitySequence{
 
     private final FastqQualityCodec codec;
     private final String encodedQualities;
-    private DoubleSummaryStatistics stats;
+    private Stats stats;
     /**
      * cached hashcode.
      */
@@ -91,28 +92,14 @@ class ParsedQualitySequence implements QualitySequence{
 
     @Override
     public byte[] toArray() {
-        char[] chars = encodedQualities.toCharArray();
-        byte[] ret = new byte[chars.length];
-        int offset = codec.getOffset();
-        for(int i=0; i< chars.length; i++){
-            ret[i] = (byte)(chars[i] - offset);
-        }
-        return ret;
+        return codec.toQualityValueArray(encodedQualities);
     }
     
     
 
     @Override
     public byte[] toArray(Range range) {
-        char[] chars = encodedQualities.toCharArray();
-        byte[] ret = new byte[chars.length];
-        int offset = codec.getOffset();
-        int end = (int)range.getEnd();
-        int shift = (int)range.getBegin();
-        for(int i=shift; i<=end; i++){
-            ret[i-shift] = (byte)(chars[i] - offset);
-        }
-        return ret;
+        return codec.toQualityValueArray(encodedQualities.substring((int)range.getBegin(), (int)range.getEnd()+1));
     }
 
     private void computeSummaryStatsIfNeeded(){
@@ -123,45 +110,52 @@ class ParsedQualitySequence implements QualitySequence{
         if(stats !=null){
             return;
         }
-        if(encodedQualities.isEmpty()){
-            stats = new DoubleSummaryStatistics();
-            return;
-        }
-        DoubleSummaryStatistics stats2 = new DoubleSummaryStatistics();
-        char[] chars = encodedQualities.toCharArray();
-        for(int i=0; i< chars.length; i++){
-            stats2.accept(chars[i]);
-        }
-        
-        stats = stats2;
+        byte[] values = toArray();
+        stats = new Stats(QualityArrays.min(values), QualityArrays.max(values), QualityArrays.sum(values));
     }
     @Override
     public OptionalDouble getAvgQuality() throws ArithmeticException {
-        computeSummaryStatsIfNeeded();
-        if(stats.getCount() ==0){
+        if(encodedQualities.isEmpty()){
             return OptionalDouble.empty();
         }
-        return OptionalDouble.of(stats.getAverage() - codec.getOffset());
+        computeSummaryStatsIfNeeded();
+        return OptionalDouble.of(stats.sum / (double) encodedQualities.length());
     }
 
     @Override
     public Optional<PhredQuality> getMinQuality() {
         computeSummaryStatsIfNeeded();
-        double value = stats.getMin();
-        if(Double.POSITIVE_INFINITY == value){
+        if(stats.min < 0){
             return Optional.empty();
         }
-        return Optional.of(codec.decode((char)value));
+        return Optional.of(PhredQuality.valueOf(stats.min));
     }
 
     @Override
     public Optional<PhredQuality> getMaxQuality() {
         computeSummaryStatsIfNeeded();
-        double value = stats.getMax();
-        if(Double.NEGATIVE_INFINITY == value){
+        if(stats.max < 0){
             return Optional.empty();
         }
-        return Optional.of(codec.decode((char)value));
+        return Optional.of(PhredQuality.valueOf(stats.max));
+    }
+
+    @Override
+    public long getQualitySum() {
+        computeSummaryStatsIfNeeded();
+        return stats.sum;
+    }
+
+    @Override
+    public OptionalInt getMinQualityValue() {
+        computeSummaryStatsIfNeeded();
+        return stats.min < 0 ? OptionalInt.empty() : OptionalInt.of(stats.min);
+    }
+
+    @Override
+    public OptionalInt getMaxQualityValue() {
+        computeSummaryStatsIfNeeded();
+        return stats.max < 0 ? OptionalInt.empty() : OptionalInt.of(stats.max);
     }
 
     @Override
@@ -195,4 +189,14 @@ class ParsedQualitySequence implements QualitySequence{
         return false;
     }
 
+    private static final class Stats{
+        private final int min, max;
+        private final long sum;
+
+        Stats(int min, int max, long sum) {
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+        }
+    }
 }
@@ -35,6 +35,34 @@ public class Orf {
         this.seq = seq;
         this.range = range;
     }
+    /**
+     * Get the {@link Frame} this ORF is in.
+     * @return the Frame.
+     * @since 5.3
+     */
+    public Frame getFrame() {
+        return frame;
+    }
+    /**
+     * Get the translated protein sequence of this ORF
+     * including the stop.
+     * @return the ProteinSequence.
+     * @since 5.3
+     */
+    public ProteinSequence getSequence() {
+        return seq;
+    }
+    /**
+     * Get the nucleotide range of this ORF from the first base
+     * of the start codon to the last base of the stop codon.
+     * Ranges of ORFs in reverse frames are in reverse complement
+     * coordinates.
+     * @return the Range.
+     * @since 5.3
+     */
+    public Range getRange() {
+        return range;
+    }
 
     @Override
     public int hashCode() {
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.orf;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.Codon;
+import org.jcvi.jillion.core.residue.aa.IupacTranslationTables;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.ThrowingStream;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.internal.core.util.GrowableIntArray;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+/**
+ * {@code OrfScanner} finds every open reading frame
+ * in all six frames of a {@link NucleotideSequence}.
+ * <p>
+ * Unlike {@link OrfFinder}, which only reports the first ORF
+ * in each frame, every stop codon that has a start codon upstream of it
+ * (and after the previous stop in the same frame) ends an ORF that
+ * starts at the first such start codon.  The first ORF reported for each
+ * frame is the same ORF that {@link OrfFinder} finds.
+ * </p>
+ * <p>
+ * The sequence is encoded once as an array of {@link Nucleotide} ordinals 
+ * (with Uracil encoded as Thymine) and
+ * all six frames are scanned together in a single pass over that array;
+ * codons are looked up by packed triplet using {@link IupacTranslationTables#getCodon(int)}
+ * and the reverse frames read the complemented bases backwards
+ * instead of building the reverse complement sequence.
+ * Only the start and end coordinates of each ORF are recorded during the scan,
+ * ORFs are translated lazily as the returned Stream is consumed.
+ * </p>
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class OrfScanner {
+
+    private final IupacTranslationTables translationTable;
+    private final int minLength;
+    private final boolean searchForward, searchReverse;
+    private final ForkJoinPool pool;
+    
+    private OrfScanner(Builder builder){
+        this.translationTable = builder.translationTable;
+        this.minLength = builder.minLength;
+        this.searchForward = builder.options.contains(OrfFinder.FinderOptions.SEARCH_FORWARD);
+        this.searchReverse = builder.options.contains(OrfFinder.FinderOptions.SEARCH_REVERSE);
+        this.pool = builder.pool;
+    }
+    /**
+     * Find all the ORFs in the given sequence.
+     * The ORFs are ordered by {@link Frame} (in the same order
+     * as {@link Frame#values()}) and then by start coordinate.
+     * 
+     * @param seq the sequence to scan; can not be null.
+     * 
+     * @return a new Stream of {@link Orf}s; will never be null
+     * but may be empty.
+     * 
+     * @throws NullPointerException if seq is null.
+     * @throws IllegalArgumentException if the sequence is longer than {@link Integer#MAX_VALUE}.
+     */
+    public Stream<Orf> scan(NucleotideSequence seq){
+        Objects.requireNonNull(seq);
+        long length = seq.getLength();
+        if(length > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("sequence too long to scan : " + length);
+        }
+        byte[] bases = NucleotideCodes.toDnaOrdinals(seq, (int) length);
+        GrowableIntArray[] coordinates = findOrfCoordinates(bases);
+        
+        return Stream.of(Frame.values())
+                    .flatMap(frame -> {
+                        GrowableIntArray coords = coordinates[frame.ordinal()];
+                        return IntStream.range(0, coords.getCurrentLength()/2)
+                                        .mapToObj(i -> createOrf(bases, frame, coords.get(2*i), coords.get(2*i+1)));
+                    });
+    }
+    /**
+     * Find all the ORFs in every record in the given {@link NucleotideFastaDataStore}
+     * and pass each record's ORFs to the given consumer as soon as that record
+     * has been scanned.  Only the ORFs of the records currently being scanned
+     * are held in memory, so this can be used on datastores with more ORFs
+     * than would fit in memory at once.
+     * <p>
+     * Records are scanned in parallel using this scanner's {@link ForkJoinPool},
+     * so the consumer may be called concurrently from different threads
+     * and not in datastore order; it must be thread safe.
+     * This method blocks until every record has been scanned and consumed.
+     * </p>
+     * 
+     * @param datastore the datastore of sequences to scan; can not be null.
+     * @param consumer the consumer of the record id and the list of ORFs found in that
+     * record in the same order as {@link #scan(NucleotideSequence)};
+     * records without any ORFs are passed an empty list.  Can not be null.
+     * 
+     * @throws DataStoreException if there is a problem reading the datastore.
+     * @throws NullPointerException if either parameter is null.
+     */
+    public void scan(NucleotideFastaDataStore datastore, BiConsumer<String, List<Orf>> consumer) throws DataStoreException{
+        Objects.requireNonNull(datastore);
+        Objects.requireNonNull(consumer);
+        try(ThrowingStream<NucleotideFastaRecord> records = datastore.records()){
+            //the terminal operation of a parallel stream forks its subtasks
+            //into the ForkJoinPool of the thread that calls it,
+            //so running forEach as a task in our pool keeps the scan
+            //out of the common pool.
+            invoke(() -> records.parallel()
+                                .forEach(r -> consumer.accept(r.getId(), 
+                                                scan(r.getSequence()).collect(Collectors.toList()))));
+        }
+    }
+    
+    private void invoke(Runnable task) throws DataStoreException{
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataStoreException("interrupted while scanning for orfs", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw new DataStoreException("error scanning for orfs", cause);
+        }
+    }
+    
+    /**
+     * Scan all six frames at once.  Forward frames
+     * are read left to right like normal; the reverse frames
+     * are read right to left in reverse complement coordinates
+     * so each reverse frame sees its stop before the starts upstream of it.
+     * 
+     * @return an array indexed by Frame ordinal of the inclusive
+     * start and end coordinates of each ORF (as consecutive pairs)
+     * sorted by start coordinate.
+     */
+    private GrowableIntArray[] findOrfCoordinates(byte[] bases){
+        GrowableIntArray[] coordinates = new GrowableIntArray[6];
+        for(int i=0; i< coordinates.length; i++){
+            coordinates[i] = new GrowableIntArray(16);
+        }
+        int length = bases.length;
+        //forward frames: start of the currently open ORF
+        int[] openStarts = {-1, -1, -1};
+        //reverse frames: the last stop seen and the
+        //left most start seen since then
+        int[] lastStops = {-1, -1, -1};
+        int[] leftMostStarts = {-1, -1, -1};
+        
+        for(int p=0; p+2 < length; p++){
+            int b1 = bases[p];
+            int b2 = bases[p+1];
+            int b3 = bases[p+2];
+            if(searchForward){
+                Codon codon = translationTable.getCodon(IupacTranslationTables.packTriplet(b1, b2, b3));
+                int frame = p %3;
+                //check start first to match TranslationTable#translate(seq, frame, visitor)
+                if(codon.isStart()){
+                    if(openStarts[frame] <0){
+                        openStarts[frame] = p;
+                    }
+                }else if(codon.isStop() && openStarts[frame] >=0){
+                    addIfLongEnough(coordinates[frame], openStarts[frame], p+2);
+                    openStarts[frame] = -1;
+                }
+            }
+            if(searchReverse){
+                Codon codon = translationTable.getCodon(IupacTranslationTables.packTriplet(
+                                                            NucleotideCodes.complementDnaOrdinal(b3), 
+                                                            NucleotideCodes.complementDnaOrdinal(b2), 
+                                                            NucleotideCodes.complementDnaOrdinal(b1)));
+                int j = length -3 -p;
+                int frame = j %3;
+                if(codon.isStart()){
+                    if(lastStops[frame] >=0){
+                        leftMostStarts[frame] = j;
+                    }
+                }else if(codon.isStop()){
+                    addReverseOrf(coordinates[frame +3], leftMostStarts[frame], lastStops[frame]);
+                    lastStops[frame] = j;
+                    leftMostStarts[frame] = -1;
+                }
+            }
+        }
+        if(searchReverse){
+            for(int frame=0; frame< 3; frame++){
+                addReverseOrf(coordinates[frame +3], leftMostStarts[frame], lastStops[frame]);
+                reversePairs(coordinates[frame +3]);
+            }
+        }
+        return coordinates;
+    }
+    
+    private void addReverseOrf(GrowableIntArray coords, int start, int stop){
+        if(start >=0 && stop >=0){
+            addIfLongEnough(coords, start, stop +2);
+        }
+    }
+    
+    private void addIfLongEnough(GrowableIntArray coords, int start, int end){
+        if(end - start +1 >= minLength){
+            coords.append(start);
+            coords.append(end);
+        }
+    }
+    
+    private static void reversePairs(GrowableIntArray coords){
+        //reverse ORFs are found right to left
+        //flip the pairs so they are sorted by start
+        int numberOfOrfs = coords.getCurrentLength()/2;
+        for(int i=0, k= numberOfOrfs -1; i< k; i++, k--){
+            int start = coords.get(2*i);
+            int end = coords.get(2*i+1);
+            coords.replace(2*i, coords.get(2*k));
+            coords.replace(2*i+1, coords.get(2*k+1));
+            coords.replace(2*k, start);
+            coords.replace(2*k+1, end);
+        }
+    }
+    
+    private Orf createOrf(byte[] bases, Frame frame, int start, int end){
+        ProteinSequenceBuilder builder = new ProteinSequenceBuilder((end - start +1)/3);
+        //hardcode an M for the first start
+        //which may not be the amino acid returned
+        //by the Codon depending on the translation table
+        builder.append(AminoAcid.Methionine);
+        boolean reverse = frame.onReverseStrand();
+        int lastIndex = bases.length -1;
+        for(int i= start+3; i< end; i+=3){
+            int packed;
+            if(reverse){
+                int p = lastIndex - i;
+                packed = IupacTranslationTables.packTriplet(
+                                    NucleotideCodes.complementDnaOrdinal(bases[p]), 
+                                    NucleotideCodes.complementDnaOrdinal(bases[p-1]), 
+                                    NucleotideCodes.complementDnaOrdinal(bases[p-2]));
+            }else{
+                packed = IupacTranslationTables.packTriplet(bases[i], bases[i+1], bases[i+2]);
+            }
+            builder.append(translationTable.getCodon(packed).getAminoAcid());
+        }
+        return new Orf(frame, builder.build(), Range.of(start, end));
+    }
+    /**
+     * Builder to create new {@link OrfScanner} instances.
+     * 
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class Builder implements org.jcvi.jillion.core.util.Builder<OrfScanner>{
+        private IupacTranslationTables translationTable = IupacTranslationTables.STANDARD;
+        private int minLength = 0;
+        private Set<OrfFinder.FinderOptions> options = EnumSet.allOf(OrfFinder.FinderOptions.class);
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        /**
+         * Use the given translation table to find
+         * start and stop codons and to translate the ORFs.
+         * If not set, then {@link IupacTranslationTables#STANDARD} is used.
+         * 
+         * @param translationTable the table to use; can not be null.
+         * @return this
+         * @throws NullPointerException if translationTable is null.
+         */
+        public Builder translationTable(IupacTranslationTables translationTable){
+            this.translationTable = Objects.requireNonNull(translationTable);
+            return this;
+        }
+        /**
+         * Only report ORFs whose length in nucleotides, from
+         * the first base of the start codon to the last base of the stop codon,
+         * is at least the given value.
+         * If not set, then every ORF is reported.
+         * 
+         * @param minLength the min length in nucleotides; must be &ge; 0.
+         * @return this
+         * @throws IllegalArgumentException if minLength &lt; 0.
+         */
+        public Builder minLength(int minLength){
+            if(minLength <0){
+                throw new IllegalArgumentException("min length must be >= 0");
+            }
+            this.minLength = minLength;
+            return this;
+        }
+        /**
+         * Only search the strands given by the options.
+         * If not set, then both strands are searched.
+         * 
+         * @param options the {@link OrfFinder.FinderOptions}; can not be null or empty.
+         * @return this
+         * @throws NullPointerException if options is null or contains null.
+         * @throws IllegalArgumentException if options is empty.
+         */
+        public Builder options(OrfFinder.FinderOptions... options){
+            if(options.length ==0){
+                throw new IllegalArgumentException("must search at least one strand");
+            }
+            Set<OrfFinder.FinderOptions> set = EnumSet.noneOf(OrfFinder.FinderOptions.class);
+            for(OrfFinder.FinderOptions o : options){
+                set.add(Objects.requireNonNull(o));
+            }
+            this.options = set;
+            return this;
+        }
+        /**
+         * Use the given {@link ForkJoinPool} to scan datastores.
+         * If not set, then the {@link ForkJoinPool#commonPool()} is used.
+         * 
+         * @param pool the ForkJoinPool to use; can not be null.
+         * @return this
+         * @throws NullPointerException if pool is null.
+         */
+        public Builder pool(ForkJoinPool pool){
+            this.pool = Objects.requireNonNull(pool);
+            return this;
+        }
+        
+        @Override
+        public OrfScanner build() {
+            return new OrfScanner(this);
+        }
+    }
+}
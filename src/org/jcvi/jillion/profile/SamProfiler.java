@@ -0,0 +1,481 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.profile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.jcvi.jillion.sam.AbstractSamVisitor;
+import org.jcvi.jillion.sam.SamParser;
+import org.jcvi.jillion.sam.SamRecord;
+import org.jcvi.jillion.sam.VirtualFileOffset;
+import org.jcvi.jillion.sam.cigar.Cigar;
+import org.jcvi.jillion.sam.cigar.CigarElement;
+import org.jcvi.jillion.sam.header.SamReferenceSequence;
+/**
+ * {@code SamProfiler} writes profiles of the reads
+ * in a coordinate sorted SAM or BAM file directly, without
+ * having to build gapped reads or contigs first.
+ * <p>
+ * Each primary mapped {@link SamRecord} is added by walking its {@link Cigar},
+ * so the profile positions are the positions of the ungapped reference:
+ * insertions relative to the reference are not counted, deletions are counted
+ * as gaps and skipped reference regions (N) are not counted.
+ * Only the positions covered by reads that haven't been written yet are kept in memory,
+ * as a window of packed int columns, and each position is written out as soon as
+ * the records have moved past it. Memory is proportional to the read length
+ * not the reference length or coverage depth.
+ * </p>
+ * Each reference is profiled independently so several references
+ * can be written in parallel by {@link #writeProfiles(File)}.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class SamProfiler {
+	/**
+	 * Ambiguous bases add 1/n to each of its n constituent bases
+	 * so store counts multiplied by the least common multiple
+	 * of 1,2,3 and 4 to keep them as exact ints.
+	 */
+	private static final int SCALE = 12;
+	private static final int A=0, C=1, G=2, T=3, GAP=4;
+	private static final int COLUMN_SIZE = 5;
+	/**
+	 * Scaled increments to the A,C,G,T,- counts for each Nucleotide ordinal
+	 * or null if the base can not be profiled.
+	 */
+	private static final int[][] INCREMENTS;
+	
+	private static final int INITIAL_WINDOW_SIZE = 1024;
+	
+	static{
+		Nucleotide[] values = Nucleotide.values();
+		INCREMENTS = new int[values.length][];
+		for(Nucleotide n : values){
+			Set<Nucleotide> bases = n.getBasesFor();
+			int[] increments = new int[COLUMN_SIZE];
+			boolean valid = true;
+			for(Nucleotide base : bases){
+				int index = indexOf(base);
+				if(index <0){
+					valid = false;
+				}else{
+					increments[index] += SCALE / bases.size();
+				}
+			}
+			INCREMENTS[n.ordinal()] = valid ? increments : null;
+		}
+	}
+	
+	private static int indexOf(Nucleotide base){
+		switch(base){
+			case Adenine : return A;
+			case Cytosine : return C;
+			case Guanine : return G;
+			case Thymine : return T;
+			case Gap : return GAP;
+			default : return -1;
+		}
+	}
+	
+	private final SamParser parser;
+	private final NucleotideSequenceDataStore references;
+	private final DisplayCountStrategy displayStrategy;
+	private final MostFrequentTieBreakerRule tieBreakerRule;
+	private final boolean include0xEdges;
+	private final ForkJoinPool pool;
+	
+	private SamProfiler(Builder builder){
+		this.parser = builder.parser;
+		this.references = builder.references;
+		this.displayStrategy = builder.displayStrategy;
+		this.tieBreakerRule = builder.tieBreakerRule;
+		this.include0xEdges = builder.include0xEdges;
+		this.pool = builder.pool;
+	}
+	/**
+	 * Write the profile of a single reference to the given {@link OutputStream}.
+	 * The profile will be written in the same format as {@link ProfileWriter}.
+	 * The OutputStream is flushed but not closed.
+	 * 
+	 * @param referenceName the name of the reference to profile; can not be null.
+	 * @param out the OutputStream to write the profile to; can not be null.
+	 * @throws IOException if there is a problem parsing the SAM or BAM file
+	 * or writing the profile.
+	 * @throws NullPointerException if any parameter is null.
+	 * @throws IllegalStateException if the reference is not in the reference datastore
+	 * or the records are not sorted by coordinate.
+	 */
+	public void writeProfile(String referenceName, OutputStream out) throws IOException{
+		Objects.requireNonNull(referenceName);
+		Objects.requireNonNull(out);
+		NucleotideSequence reference = references.get(referenceName);
+		if(reference ==null){
+			throw new IllegalStateException("could not find reference sequence " + referenceName);
+		}
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, IOUtil.UTF_8));
+		try{
+			ReferenceProfile profile = new ReferenceProfile(reference, writer);
+			parser.parse(referenceName, new AbstractSamVisitor() {
+				@Override
+				public void visitRecord(SamVisitorCallback callback, SamRecord record,
+						VirtualFileOffset start, VirtualFileOffset end) {
+					if(record.isPrimary() && record.mapped() && referenceName.equals(record.getReferenceName())){
+						profile.add(record);
+					}
+				}
+			});
+			profile.finish();
+		}finally{
+			//don't close since we don't own the stream
+			writer.flush();
+		}
+		if(writer.checkError()){
+			throw new IOException("error writing profile for " + referenceName);
+		}
+	}
+	/**
+	 * Write the profile of every reference in the SAM header
+	 * to a separate file in the given directory named {@code $referenceName.profile}.
+	 * The references are profiled in parallel.
+	 * 
+	 * @param outputDir the directory to write the profiles to; can not be null,
+	 * will be created if it does not exist.
+	 * @throws IOException if there is a problem parsing the SAM or BAM file
+	 * or writing any of the profiles.
+	 * @throws NullPointerException if outputDir is null.
+	 * @throws IllegalStateException if a reference is not in the reference datastore
+	 * or the records are not sorted by coordinate.
+	 */
+	public void writeProfiles(File outputDir) throws IOException{
+		IOUtil.mkdirs(Objects.requireNonNull(outputDir));
+		List<String> referenceNames = new ArrayList<>();
+		for(SamReferenceSequence ref : parser.getHeader().getReferenceSequences()){
+			referenceNames.add(ref.getName());
+		}
+		try {
+			pool.submit(()-> referenceNames.parallelStream().forEach(name ->{
+				try(OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(outputDir, name + ".profile")))){
+					writeProfile(name, out);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			})).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while writing profiles", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof UncheckedIOException){
+				throw ((UncheckedIOException) cause).getCause();
+			}
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new IOException("error writing profiles", cause);
+		}
+	}
+	/**
+	 * The profile of a single reference.  The counts of the unwritten positions
+	 * are stored in a circular buffer of packed A,C,G,T,- int columns
+	 * that grows if a read is longer than the current window.
+	 */
+	private final class ReferenceProfile{
+		private final NucleotideSequence reference;
+		private final int length;
+		private final PrintWriter writer;
+		
+		private int[] window = new int[INITIAL_WINDOW_SIZE * COLUMN_SIZE];
+		private int mask = INITIAL_WINDOW_SIZE -1;
+		/**
+		 * First reference position that hasn't been written yet.
+		 */
+		private int nextPositionToWrite =0;
+		/**
+		 * Start of the current run of 0x positions
+		 * which are only written if a covered position comes after them
+		 * (or if 0x edges are included); -1 if not in a run.
+		 */
+		private int zeroCoverageStart = -1;
+		private boolean wroteCoveredPosition = false;
+		
+		ReferenceProfile(NucleotideSequence reference, PrintWriter writer){
+			this.reference = reference;
+			this.length = (int) reference.getLength();
+			this.writer = writer;
+			writer.printf("#Major\t-\tA\tC\tG\tT%n");
+		}
+		
+		void add(SamRecord record){
+			int referenceStart = record.getStartPosition() -1;
+			if(referenceStart < nextPositionToWrite){
+				throw new IllegalStateException("SAM records must be sorted by coordinate : " + record.getQueryName());
+			}
+			writeUpTo(Math.min(referenceStart, length));
+			
+			NucleotideSequence sequence = record.getSequence();
+			if(sequence ==null){
+				//no bases to add
+				return;
+			}
+			Cigar cigar = record.getCigar();
+			ensureCapacity(referenceStart + getNumberOfReferenceBasesSpanned(cigar));
+			
+			Iterator<Nucleotide> bases = sequence.iterator();
+			int referenceOffset = referenceStart;
+			for(CigarElement element : cigar){
+				int elementLength = element.getLength();
+				switch(element.getOp()){
+					case ALIGNMENT_MATCH:
+					case SEQUENCE_MATCH:
+					case SEQUENCE_MISMATCH:
+						for(int i=0; i< elementLength; i++){
+							addBase(referenceOffset++, bases.next());
+						}
+						break;
+					case DELETION:
+						for(int i=0; i< elementLength; i++){
+							addBase(referenceOffset++, Nucleotide.Gap);
+						}
+						break;
+					case SKIPPED:
+						referenceOffset += elementLength;
+						break;
+					case INSERTION:
+					case SOFT_CLIP:
+						for(int i=0; i< elementLength; i++){
+							bases.next();
+						}
+						break;
+					default:
+						//hard clips and padding don't consume read or reference bases
+						break;
+				}
+			}
+		}
+		
+		private int getNumberOfReferenceBasesSpanned(Cigar cigar){
+			int spanned=0;
+			for(CigarElement element : cigar){
+				switch(element.getOp()){
+					case ALIGNMENT_MATCH:
+					case SEQUENCE_MATCH:
+					case SEQUENCE_MISMATCH:
+					case DELETION:
+					case SKIPPED:
+						spanned += element.getLength();
+						break;
+					default:
+						break;
+				}
+			}
+			return spanned;
+		}
+		
+		private void addBase(int referenceOffset, Nucleotide base){
+			if(referenceOffset >= length){
+				return;
+			}
+			int[] increments = INCREMENTS[base.ordinal()];
+			if(increments ==null){
+				throw new IllegalStateException("not ACGT- : " + base);
+			}
+			int index = (referenceOffset & mask) * COLUMN_SIZE;
+			for(int i=0; i< COLUMN_SIZE; i++){
+				window[index +i] += increments[i];
+			}
+		}
+		
+		private void ensureCapacity(int endExclusive){
+			int needed = Math.min(endExclusive, length) - nextPositionToWrite;
+			int capacity = mask +1;
+			if(needed <= capacity){
+				return;
+			}
+			int newCapacity = Integer.highestOneBit(needed -1) <<1;
+			int newMask = newCapacity -1;
+			int[] newWindow = new int[newCapacity * COLUMN_SIZE];
+			//only the unwritten positions can have counts
+			int end = Math.min(length, nextPositionToWrite + capacity);
+			for(int position = nextPositionToWrite; position < end; position++){
+				System.arraycopy(window, (position & mask)*COLUMN_SIZE, newWindow, (position & newMask)*COLUMN_SIZE, COLUMN_SIZE);
+			}
+			window = newWindow;
+			mask = newMask;
+		}
+		
+		private void writeUpTo(int endExclusive){
+			for(int position = nextPositionToWrite; position < endExclusive; position++){
+				int index = (position & mask) * COLUMN_SIZE;
+				int a = window[index + A];
+				int c = window[index + C];
+				int g = window[index + G];
+				int t = window[index + T];
+				int gap = window[index + GAP];
+				for(int i=0; i< COLUMN_SIZE; i++){
+					window[index +i]=0;
+				}
+				if(a==0 && c==0 && g==0 && t==0 && gap==0){
+					if(zeroCoverageStart <0){
+						zeroCoverageStart = position;
+					}
+					continue;
+				}
+				if(zeroCoverageStart >=0){
+					if(include0xEdges || wroteCoveredPosition){
+						writeZeroCoverage(zeroCoverageStart, position);
+					}
+					zeroCoverageStart = -1;
+				}
+				double scale = SCALE;
+				writePosition(SimpleProfileWriter.getMostFrequentNonGapBase(tieBreakerRule, a/scale, c/scale, g/scale, t/scale),
+						gap/scale, a/scale, c/scale, g/scale, t/scale);
+				wroteCoveredPosition = true;
+			}
+			nextPositionToWrite = Math.max(nextPositionToWrite, endExclusive);
+		}
+		
+		private void writeZeroCoverage(int start, int endExclusive){
+			for(int position = start; position < endExclusive; position++){
+				//0x use reference
+				writePosition(reference.get(position), 0, 0, 0, 0, 0);
+			}
+		}
+		
+		private void writePosition(Nucleotide mostFrequent, double gap, double a, double c, double g, double t){
+			try {
+				displayStrategy.write(writer, mostFrequent, gap, a, c, g, t);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		void finish(){
+			writeUpTo(length);
+			if(zeroCoverageStart >=0 && include0xEdges){
+				writeZeroCoverage(zeroCoverageStart, length);
+			}
+			writer.flush();
+		}
+	}
+	/**
+	 * Builder for {@link SamProfiler}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 5.3
+	 */
+	public static final class Builder implements org.jcvi.jillion.core.util.Builder<SamProfiler>{
+		private final SamParser parser;
+		private final NucleotideSequenceDataStore references;
+		
+		private DisplayCountStrategy displayStrategy = DisplayCountStrategy.COUNTS;
+		private MostFrequentTieBreakerRule tieBreakerRule = MostFrequentTieBreakerRule.LOWEST_ASCII;
+		private boolean include0xEdges = true;
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+		/**
+		 * Create a new Builder.
+		 * @param parser the {@link SamParser} of a coordinate sorted SAM or BAM file; can not be null.
+		 * @param ungappedReferences the ungapped reference sequences, the ids must
+		 * match the reference names in the SAM header; can not be null.
+		 * @throws NullPointerException if either parameter is null.
+		 */
+		public Builder(SamParser parser, NucleotideSequenceDataStore ungappedReferences){
+			this.parser = Objects.requireNonNull(parser);
+			this.references = Objects.requireNonNull(ungappedReferences);
+		}
+		/**
+		 * Sets the {@link MostFrequentTieBreakerRule} instance to use
+		 * to govern the "most frequent" column of the profile. If this
+		 * method is not called, then by default {@link MostFrequentTieBreakerRule#LOWEST_ASCII}
+		 * is used.
+		 * @param tieBreakerRule the {@link MostFrequentTieBreakerRule} instance to use;
+		 * can not be null.
+		 * @return this.
+		 * @throws NullPointerException if tieBreakerRule is null.
+		 */
+		public Builder setMostFrequentTieBreakerRule(MostFrequentTieBreakerRule tieBreakerRule){
+			this.tieBreakerRule = Objects.requireNonNull(tieBreakerRule);
+			return this;
+		}
+		/**
+		 * Should 0x regions at the edge of the profile be included in the output.
+		 * If not called, by default this value is set to {@code true}.
+		 * @param include0xEdges {@code true} if should be included;
+		 * {@code false} otherwise.
+		 * @return this.
+		 */
+		public Builder include0xEdges(boolean include0xEdges){
+			this.include0xEdges = include0xEdges;
+			return this;
+		}
+		/**
+		 * Set the {@link DisplayCountStrategy} to use in the profile.
+		 * If this method is not called, then by default {@link DisplayCountStrategy#COUNTS}
+		 * is used.
+		 * @param displayPercentages the {@link DisplayCountStrategy} to use; can not be null.
+		 * @return this.
+		 * @throws NullPointerException if parameter is null.
+		 */
+		public Builder displayPercentages(DisplayCountStrategy displayPercentages){
+			this.displayStrategy = Objects.requireNonNull(displayPercentages);
+			return this;
+		}
+		/**
+		 * Use the given {@link ForkJoinPool} to write multiple profiles.
+		 * If not set, then the {@link ForkJoinPool#commonPool()} is used.
+		 * @param pool the ForkJoinPool to use; can not be null.
+		 * @return this
+		 * @throws NullPointerException if pool is null.
+		 */
+		public Builder pool(ForkJoinPool pool){
+			this.pool = Objects.requireNonNull(pool);
+			return this;
+		}
+		
+		@Override
+		public SamProfiler build() {
+			return new SamProfiler(this);
+		}
+	}
+}
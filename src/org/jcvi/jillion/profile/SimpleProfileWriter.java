@@ -184,7 +184,7 @@ class SimpleProfileWriter implements ProfileWriter {
 			//0x use reference ?
 			return reference.get(i);
 		}
-		return getMostFrequentNonGapBase(a,c,g,t);
+		return getMostFrequentNonGapBase(tieBreakerRule, a,c,g,t);
 	}
 
 	@Override
@@ -220,7 +220,7 @@ class SimpleProfileWriter implements ProfileWriter {
 	}
 	
 	
-	private Nucleotide getMostFrequentNonGapBase(double a, double c, double g, double t){
+	static Nucleotide getMostFrequentNonGapBase(MostFrequentTieBreakerRule tieBreakerRule, double a, double c, double g, double t){
 		List<BaseCount> list = new ArrayList<BaseCount>(4);
 		list.add(new BaseCount(Nucleotide.Adenine, a));
 		list.add( new BaseCount(Nucleotide.Cytosine, c));
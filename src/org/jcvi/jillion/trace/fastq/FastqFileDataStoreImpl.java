@@ -27,6 +27,7 @@ import java.util.Optional;
 
 import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 /**
  * Simple implementation of {@link FastqFileDataStore}.
@@ -94,6 +95,16 @@ final class FastqFileDataStoreImpl implements FastqFileDataStore{
         return datastore.entryIterator();
     }
 
+    @Override
+    public ThrowingStream<FastqRecord> records() throws DataStoreException {
+        return datastore.records();
+    }
+
+    @Override
+    public ThrowingStream<DataStoreEntry<FastqRecord>> entries() throws DataStoreException {
+        return datastore.entries();
+    }
+
     @Override
     public void close() throws IOException {
         datastore.close();
@@ -31,6 +31,7 @@ import java.util.regex.Pattern;
 
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.core.io.InputStreamSupplier;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
 import org.jcvi.jillion.internal.core.io.LineParser;
 import org.jcvi.jillion.internal.core.io.OpenAwareInputStream;
 import org.jcvi.jillion.internal.core.io.PositionlessLineParser;
@@ -69,9 +70,6 @@ public abstract class FastqFileParser implements FastqParser{
 
 	private static final Pattern CASAVA_1_8_DEFLINE_PATTERN = Pattern.compile("^@(\\S+\\s+\\d:[N|Y]:\\d+:(\\S+)?)\\s*$");
 	
-	private final StringBuilder sequenceBuilder = new StringBuilder(2000);
-	private final StringBuilder qualityBuilder = new StringBuilder(2000);
-	
 	private final boolean hasComments;
 	
 	private final  boolean multiLine;
@@ -164,8 +162,14 @@ public abstract class FastqFileParser implements FastqParser{
 	
 	void parseFastqFile(FastqVisitor visitor, LineParser parser) throws IOException{
 		ParserState parserState = parser.tracksPosition() ? new ParserState(parser.getPosition()) : new ParserState(0);
+		//builders are per parse, not per parser instance,
+		//since the same parser may be parsing on several threads at once
+		//default to 2000 bp since most sequences are only that much anyway
+		//builders will grow if we get too big
+		StringBuilder sequenceBuilder = new StringBuilder(2000);
+		StringBuilder qualityBuilder = new StringBuilder(2000);
 		while(parserState.keepParsing() && parser.hasNextLine()){
-			parserState=parseNextRecord(visitor, parser, parserState);
+			parserState=parseNextRecord(visitor, parser, parserState, sequenceBuilder, qualityBuilder);
 		}
 		if(parserState.keepParsing()){
 			visitor.visitEnd();
@@ -174,7 +178,8 @@ public abstract class FastqFileParser implements FastqParser{
 		}
 	}
 	
-	private ParserState parseNextRecord(FastqVisitor visitor, LineParser parser, ParserState parserState) throws IOException{
+	private ParserState parseNextRecord(FastqVisitor visitor, LineParser parser, ParserState parserState,
+			StringBuilder sequenceBuilder, StringBuilder qualityBuilder) throws IOException{
 		String deflineText = parser.nextLine();
 		 AbstractFastqVisitorCallback callback = createCallback(parserState);
 		 FastqRecordVisitor recordVisitor;
@@ -195,13 +200,14 @@ public abstract class FastqFileParser implements FastqParser{
             if(!parserState.keepParsing()){
             	return parserState;
             }
-            return parseRecordBody(parser,recordVisitor,parserState, id);		
+            return parseRecordBody(parser,recordVisitor,parserState, id, sequenceBuilder, qualityBuilder);		
         
 	}
 
 	
 	private ParserState parseRecordBody(LineParser parser,
-			FastqRecordVisitor recordVisitor, ParserState parserState, String currentId) throws IOException {
+			FastqRecordVisitor recordVisitor, ParserState parserState, String currentId,
+			StringBuilder sequenceBuilder, StringBuilder qualityBuilder) throws IOException {
 		//if we aren't visiting this read
 		//we shouldn't spend any time parsing the
 		//bases or qualities	
@@ -211,9 +217,6 @@ public abstract class FastqFileParser implements FastqParser{
 			return parserState.updatePosition(parser);
 		}
 		
-		//default to 2000 bp since most sequences are only that much anyway
-        //builder will grow if we get too big
-        
         String line = parser.nextLine();
         if(line ==null){
         	//end of file before we got enough sequence
@@ -654,6 +657,15 @@ public abstract class FastqFileParser implements FastqParser{
 		 * @return the value; may be negative.
 		 */
 		public abstract long getValue();
+		/**
+		 * Get the offset into the file this memento will start parsing from.
+		 * @return the offset; will always be &ge; 0.
+		 * 
+		 * @since 5.3
+		 */
+		public long getFileOffset(){
+			return getValue();
+		}
 		
 		@Override
 		public String toString() {
@@ -680,7 +692,7 @@ public abstract class FastqFileParser implements FastqParser{
 		
 	}
 	
-	private static class ByteWidthOffsetMemento extends OffsetMemento{
+	private static class ByteWidthOffsetMemento extends OffsetMemento implements FileOffsetMemento{
 		
 		private final byte value;
 
@@ -695,7 +707,7 @@ public abstract class FastqFileParser implements FastqParser{
 		
 	}
 	
-	private static class ShortWidthOffsetMemento extends OffsetMemento{
+	private static class ShortWidthOffsetMemento extends OffsetMemento implements FileOffsetMemento{
 		
 		private final short value;
 
@@ -710,7 +722,7 @@ public abstract class FastqFileParser implements FastqParser{
 		
 	}
 	
-	private static class IntWidthOffsetMemento extends OffsetMemento{
+	private static class IntWidthOffsetMemento extends OffsetMemento implements FileOffsetMemento{
 		
 		private final int value;
 
@@ -724,7 +736,7 @@ public abstract class FastqFileParser implements FastqParser{
 		}
 		
 	}
-	private static class LongWidthOffsetMemento extends OffsetMemento{
+	private static class LongWidthOffsetMemento extends OffsetMemento implements FileOffsetMemento{
 		
 		private final long value;
 
@@ -25,8 +25,11 @@
  */
 package org.jcvi.jillion.trace.fastq;
 
+import java.nio.charset.StandardCharsets;
+
 import org.jcvi.jillion.core.Sequence;
 import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualityArrays;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
 /**
@@ -69,13 +72,31 @@ public enum FastqQualityCodec {
 		        return (char)(solexaQuality +64);
 		    }
 		    
-		    public QualitySequence decode(String fastqQualities) {
-		    	QualitySequenceBuilder builder = new QualitySequenceBuilder(fastqQualities.length());
-		      
-		        for(int i=0; i<fastqQualities.length(); i++){        	;
-		            builder.append(SolexaUtil.convertSolexaQualityToPhredQuality(fastqQualities.charAt(i) - 64));
+		    /**
+		     * Phred value for each ASCII character; -1 if the character
+		     * is not a valid solexa encoded quality.
+		     */
+		    private final byte[] phredLookup = createPhredLookup();
+
+		    private byte[] createPhredLookup(){
+		        byte[] lookup = new byte[128];
+		        for(int c=0; c< lookup.length; c++){
+		            PhredQuality qual = SolexaUtil.convertSolexaQualityToPhredQuality(c - 64);
+		            lookup[c] = qual==null ? -1 : qual.getQualityScore();
+		        }
+		        return lookup;
+		    }
+		    
+		    @Override
+		    public void toQualityValueArray(byte[] asciiQualities, int from, int length, byte[] dest, int destOffset) {
+		        for(int i=0; i< length; i++){
+		            int c = asciiQualities[from +i] & 0xFF;
+		            byte value = c < phredLookup.length ? phredLookup[c] : -1;
+		            if(value <0){
+		                throw new IllegalArgumentException("invalid solexa encoded quality " + (char)c);
+		            }
+		            dest[destOffset +i] = value;
 		        }
-		        return builder.build();
 		    }
 	}
 	;
@@ -113,15 +134,46 @@ public enum FastqQualityCodec {
      * the decoded FASTQ quality values.
      */
     public QualitySequence decode(String fastqQualities, boolean turnOffCompression) {
-    	byte[] buffer = new byte[fastqQualities.length()];
-      
-        for(int i=0; i<fastqQualities.length(); i++){
-            buffer[i] =(byte)(fastqQualities.charAt(i) - offset);
-        }
-        return new QualitySequenceBuilder(buffer)
+        return new QualitySequenceBuilder(toQualityValueArray(fastqQualities))
         		.turnOffDataCompression(turnOffCompression)
         		.build();
     }
+    /**
+     * Decode the given FASTQ quality encoded String
+     * directly into an array of quality values
+     * without creating any {@link PhredQuality} objects.
+     * @param fastqQualities the encoded qualities; can not be null.
+     * 
+     * @return a new byte array of the quality values;
+     * will never be null.
+     * 
+     * @throws NullPointerException if fastqQualities is null.
+     * @since 5.3
+     */
+    public byte[] toQualityValueArray(String fastqQualities){
+        byte[] buffer = fastqQualities.getBytes(StandardCharsets.ISO_8859_1);
+        toQualityValueArray(buffer, 0, buffer.length, buffer, 0);
+        return buffer;
+    }
+    /**
+     * Decode a region of a buffer of FASTQ quality encoded ASCII bytes
+     * (for example straight from a file buffer) into quality values.
+     * The source and destination may be the same array to decode in place
+     * so a parser can reuse the same buffer for every read.
+     * 
+     * @param asciiQualities the buffer of encoded qualities; can not be null.
+     * @param from the offset into asciiQualities of the first quality to decode.
+     * @param length the number of qualities to decode.
+     * @param dest the array to write the quality values to; can not be null.
+     * @param destOffset the offset into dest to write the first quality value.
+     * 
+     * @throws NullPointerException if either array is null.
+     * @throws ArrayIndexOutOfBoundsException if either region goes beyond its array.
+     * @since 5.3
+     */
+    public void toQualityValueArray(byte[] asciiQualities, int from, int length, byte[] dest, int destOffset){
+        QualityArrays.decode(asciiQualities, from, length, offset, dest, destOffset);
+    }
 
     private final int offset;
     
@@ -22,17 +22,26 @@ package org.jcvi.jillion.trace.fastq;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.Predicate;
 
 import org.jcvi.jillion.core.datastore.DataStoreClosedException;
 import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.core.util.streams.ThrowingBiConsumer;
+import org.jcvi.jillion.internal.core.datastore.BatchedLookups;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
+import org.jcvi.jillion.internal.core.datastore.IndexedDataStoreSpliterator;
 import org.jcvi.jillion.trace.fastq.FastqVisitor.FastqVisitorCallback.FastqVisitorMemento;
 
 /**
@@ -174,6 +183,32 @@ final class IndexedFastqFileDataStore{
 			}
            return visitor.getRecord();            
         }
+        /**
+         * Reads the requested records in file order,
+         * parsing records that are close together in a single
+         * sequential pass instead of seeking to each one.
+         */
+        @Override
+        public Map<String, FastqRecord> getAll(Collection<String> ids) throws DataStoreException {
+        	throwExceptionIfClosed();
+        	List<Entry<String, FastqVisitorMemento>> sorted = BatchedLookups.sortByFileOffset(ids, mementos);
+        	Map<String, FastqRecord> found = new HashMap<>(sorted.size() *2);
+        	try {
+	        	for(List<Entry<String, FastqVisitorMemento>> group : BatchedLookups.groupBySequentialReads(sorted, BatchedLookups.DEFAULT_MAX_SEQUENTIAL_GAP)){
+	        		parser.parse(new MultipleFastqRecordVisitor(group, found), group.get(0).getValue());
+	        	}
+        	} catch (IOException e) {
+        		throw new DataStoreException("error reading fastq file",e);
+        	}
+        	Map<String, FastqRecord> result = new LinkedHashMap<>(found.size() *2);
+        	for(String id : ids){
+        		FastqRecord record = found.get(id);
+        		if(record !=null){
+        			result.put(id, record);
+        		}
+        	}
+        	return result;
+        }
         @Override
         public boolean contains(String id) throws DataStoreException {
         	throwExceptionIfClosed();
@@ -221,6 +256,22 @@ final class IndexedFastqFileDataStore{
     		}
         }
         
+        /**
+         * Splits on the index so each part of a parallel stream
+         * parses a different region of the file.
+         */
+        @Override
+        public ThrowingStream<FastqRecord> records() throws DataStoreException {
+        	throwExceptionIfClosed();
+        	return IndexedDataStoreSpliterator.records(this, new ArrayList<>(mementos.keySet()));
+        }
+        
+        @Override
+        public ThrowingStream<DataStoreEntry<FastqRecord>> entries() throws DataStoreException {
+        	throwExceptionIfClosed();
+        	return IndexedDataStoreSpliterator.entries(this, new ArrayList<>(mementos.keySet()));
+        }
+        
         @Override
     	public StreamingIterator<DataStoreEntry<FastqRecord>> entryIterator()
     			throws DataStoreException {
@@ -266,6 +317,57 @@ final class IndexedFastqFileDataStore{
             return closed;
         }
         
+        /**
+         * Visits records in file order collecting
+         * the expected records and halts once all of them have been found.
+         */
+        private class MultipleFastqRecordVisitor extends AbstractFastqVisitor{
+        	private final List<Entry<String, FastqVisitorMemento>> expected;
+        	private final Map<String, FastqRecord> found;
+        	private int nextIndex=0;
+        	
+        	MultipleFastqRecordVisitor(List<Entry<String, FastqVisitorMemento>> expected, Map<String, FastqRecord> found){
+        		this.expected = expected;
+        		this.found = found;
+        	}
+        	
+			@Override
+			public FastqRecordVisitor visitDefline(final FastqVisitorCallback callback,
+					String id, String optionalComment) {
+				if(nextIndex >= expected.size()){
+					callback.haltParsing();
+					return null;
+				}
+				Entry<String, FastqVisitorMemento> next = expected.get(nextIndex);
+				if(!id.equals(next.getKey()) || !isExpectedOffset(callback, next.getValue())){
+					return null;
+				}
+				return new AbstractFastqRecordVisitor(id,optionalComment,qualityCodec) {
+    				
+    				@Override
+    				protected void visitRecord(FastqRecord record) {
+    					found.put(record.getId(), record);
+    					nextIndex++;
+    					if(nextIndex == expected.size()){
+    						callback.haltParsing();
+    					}
+    				}
+    			};
+			}
+			/**
+			 * Files can have duplicate ids, make sure
+			 * this is the record the memento points to.
+			 */
+			private boolean isExpectedOffset(FastqVisitorCallback callback, FastqVisitorMemento memento){
+				if(!(memento instanceof FileOffsetMemento) || !callback.canCreateMemento()){
+					return true;
+				}
+				FastqVisitorMemento current = callback.createMemento();
+				return !(current instanceof FileOffsetMemento) 
+						|| ((FileOffsetMemento) current).getFileOffset() == ((FileOffsetMemento) memento).getFileOffset();
+			}
+        }
+        
         private class SingleFastqRecordVistior extends AbstractFastqVisitor{
         	private FastqRecord record;
     		@Override
@@ -22,6 +22,7 @@ package org.jcvi.jillion.trace.sff;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -31,9 +32,11 @@ import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.datastore.DataStoreFilter;
 import org.jcvi.jillion.core.datastore.DataStoreFilters;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.IteratorUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.core.datastore.DataStoreStreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.IndexedDataStoreSpliterator;
 import org.jcvi.jillion.trace.sff.SffVisitorCallback.SffVisitorMemento;
 
 
@@ -213,6 +216,22 @@ final class CompletelyParsedIndexedSffFileDataStore {
 		
 		
 
+		/**
+		 * Splits on the index so each part of a parallel stream
+		 * parses a different region of the file.
+		 */
+		@Override
+		public ThrowingStream<SffFlowgram> records() throws DataStoreException {
+			checkNotYetClosed();
+			return IndexedDataStoreSpliterator.records(this, new ArrayList<>(mementos.keySet()));
+		}
+		
+		@Override
+		public ThrowingStream<DataStoreEntry<SffFlowgram>> entries() throws DataStoreException {
+			checkNotYetClosed();
+			return IndexedDataStoreSpliterator.entries(this, new ArrayList<>(mementos.keySet()));
+		}
+
 		@Override
 		public StreamingIterator<DataStoreEntry<SffFlowgram>> entryIterator()
 				throws DataStoreException {
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.util.Arrays;
+/**
+ * Primitive open addressing hash table that maps 2 bit packed k-mers
+ * to every (adaptor, offset) where that k-mer occurs.  Entries with the same
+ * k-mer are chained through an int array so lookups never allocate.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class AdaptorKmerIndex {
+
+    private static final int EMPTY = -1;
+    
+    private final long[] keys;
+    private final int[] heads;
+    private final int mask;
+    
+    private int[] entryAdaptors;
+    private int[] entryOffsets;
+    private int[] entryNext;
+    private int size;
+    
+    AdaptorKmerIndex(int maxNumberOfKmers){
+        //keep load factor <= 0.5
+        int capacity = Integer.highestOneBit(Math.max(4, maxNumberOfKmers) *2 -1) <<1;
+        keys = new long[capacity];
+        heads = new int[capacity];
+        Arrays.fill(heads, EMPTY);
+        mask = capacity -1;
+        
+        int initialEntries = Math.max(4, maxNumberOfKmers);
+        entryAdaptors = new int[initialEntries];
+        entryOffsets = new int[initialEntries];
+        entryNext = new int[initialEntries];
+    }
+    
+    /**
+     * Murmur3 64 bit finalizer so similar k-mers
+     * don't cluster in the table.
+     */
+    private static long hash(long kmer){
+        long h = kmer;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+    private int slotFor(long kmer){
+        int slot = (int) hash(kmer) & mask;
+        while(heads[slot] != EMPTY && keys[slot] != kmer){
+            slot = (slot +1) & mask;
+        }
+        return slot;
+    }
+    
+    void add(long kmer, int adaptorIndex, int offset){
+        if(size == entryAdaptors.length){
+            int newLength = size *2;
+            entryAdaptors = Arrays.copyOf(entryAdaptors, newLength);
+            entryOffsets = Arrays.copyOf(entryOffsets, newLength);
+            entryNext = Arrays.copyOf(entryNext, newLength);
+        }
+        int slot = slotFor(kmer);
+        keys[slot] = kmer;
+        entryAdaptors[size] = adaptorIndex;
+        entryOffsets[size] = offset;
+        entryNext[size] = heads[slot];
+        heads[slot] = size;
+        size++;
+    }
+    /**
+     * Get the first entry for the given k-mer.
+     * @return the entry index or -1 if the k-mer isn't in any adaptor.
+     */
+    int first(long kmer){
+        return heads[slotFor(kmer)];
+    }
+    /**
+     * Get the next entry with the same k-mer.
+     * @return the entry index or -1 if there are no more.
+     */
+    int next(int entry){
+        return entryNext[entry];
+    }
+    
+    int adaptor(int entry){
+        return entryAdaptors[entry];
+    }
+    
+    int offset(int entry){
+        return entryOffsets[entry];
+    }
+}
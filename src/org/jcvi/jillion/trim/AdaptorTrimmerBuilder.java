@@ -0,0 +1,639 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrices;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.align.pairwise.NucleotidePairwiseSequenceAlignment;
+import org.jcvi.jillion.align.pairwise.PairwiseAlignmentBuilder;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.util.Builder;
+import org.jcvi.jillion.internal.core.residue.NucleotideCodes;
+/**
+ * {@code AdaptorTrimmerBuilder} builds a {@link NucleotideTrimmer}
+ * that screens reads for a set of adaptor and vector splice sequences
+ * and trims them off, fast enough to screen hundreds of millions of
+ * short reads.
+ * <p>
+ * Instead of aligning every adaptor to every read,
+ * the adaptors are precompiled into a k-mer index.  Each read is scanned
+ * once and every shared k-mer gives a candidate adaptor position which is verified
+ * by counting mismatches allowing up to {@link #maxErrorRate(double)} mismatches
+ * per overlapping base.  The k-mer size is chosen so that by the pigeonhole principle
+ * a hit with the max number of mismatches always shares at least one k-mer;
+ * short partial adaptors at the ends of reads that are too short to guarantee
+ * a shared k-mer are checked directly.  Only reads with at least 2 nearby k-mer hits
+ * that fail the mismatch check (which usually means an indel) 
+ * are aligned to the adaptor using a banded local alignment.
+ * </p>
+ * <p>
+ * There are 2 kinds of adaptors:
+ * <dl>
+ * <dt>3' adaptors</dt>
+ * <dd>Adaptors (or downstream vector splice sites) that are read through after the insert.
+ * The adaptor and everything after it is trimmed.  The adaptor may be only partially
+ * present at the 3' end of the read.</dd>
+ * <dt>5' adaptors</dt>
+ * <dd>Adaptors (or upstream vector splice sites) that come before the insert.
+ * The adaptor and everything before it is trimmed.  The end of the adaptor may be only partially
+ * present at the 5' end of the read.</dd>
+ * </dl>
+ * 3' adaptors are only searched for after any 5' adaptor hit.
+ * If several adaptors match, the one that trims off the most is used.
+ * </p>
+ * <p>
+ * The trimmer returned by {@link #build()} is thread safe and can be added
+ * to a {@link TrimmerPipelineBuilder}.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ * 
+ * @see org.jcvi.jillion.trim.lucy.LucyVectorSpliceTrimmerBuilder
+ */
+public final class AdaptorTrimmerBuilder implements Builder<NucleotideTrimmer>{
+	/**
+	 * The default max number of mismatches per overlapping base.
+	 */
+	public static final double DEFAULT_MAX_ERROR_RATE = 0.1D;
+	/**
+	 * The default min number of bases a partial adaptor
+	 * must overlap the end of a read to be trimmed.
+	 */
+	public static final int DEFAULT_MIN_OVERLAP = 3;
+	/**
+	 * The default k-mer size of the index.
+	 */
+	public static final int DEFAULT_KMER_SIZE = 8;
+	
+	private static final int DEFAULT_GAP_OPEN = -8;
+	private static final int DEFAULT_GAP_EXTENSION = -2;
+	
+	private final List<NucleotideSequence> threePrimeAdaptors = new ArrayList<>();
+	private final List<NucleotideSequence> fivePrimeAdaptors = new ArrayList<>();
+	
+	private double maxErrorRate = DEFAULT_MAX_ERROR_RATE;
+	private int minOverlap = DEFAULT_MIN_OVERLAP;
+	private int kmerSize = DEFAULT_KMER_SIZE;
+	private boolean includeReverseComplements = false;
+	private boolean useAlignmentFallback = true;
+	
+	private NucleotideSubstitutionMatrix matrix = NucleotideSubstitutionMatrices.getNuc44();
+	private int gapOpen = DEFAULT_GAP_OPEN;
+	private int gapExtension = DEFAULT_GAP_EXTENSION;
+	/**
+	 * Add an adaptor that is found after the insert; the adaptor
+	 * and everything after it will be trimmed off.
+	 * 
+	 * @param adaptor the adaptor sequence; can not be null or empty.
+	 * @return this
+	 * @throws NullPointerException if adaptor is null.
+	 * @throws IllegalArgumentException if adaptor is empty.
+	 */
+	public AdaptorTrimmerBuilder addThreePrimeAdaptor(NucleotideSequence adaptor){
+		threePrimeAdaptors.add(checkAdaptor(adaptor));
+		return this;
+	}
+	/**
+	 * Add an adaptor that is found before the insert; the adaptor
+	 * and everything before it will be trimmed off.
+	 * 
+	 * @param adaptor the adaptor sequence; can not be null or empty.
+	 * @return this
+	 * @throws NullPointerException if adaptor is null.
+	 * @throws IllegalArgumentException if adaptor is empty.
+	 */
+	public AdaptorTrimmerBuilder addFivePrimeAdaptor(NucleotideSequence adaptor){
+		fivePrimeAdaptors.add(checkAdaptor(adaptor));
+		return this;
+	}
+	/**
+	 * Add the vector splice sites that flank the insert, this
+	 * is the same as
+	 * <pre>
+	 * addFivePrimeAdaptor(upstreamSpliceSeq);
+	 * addThreePrimeAdaptor(downstreamSpliceSeq);
+	 * </pre>
+	 * 
+	 * @param upstreamSpliceSeq the vector splice site upstream of the desired sequence;
+	 * can not be null or empty.
+	 * @param downstreamSpliceSeq the vector splice site downstream of the desired sequence;
+	 * can not be null or empty.
+	 * @return this
+	 * @throws NullPointerException if either splice sequence is null.
+	 * @throws IllegalArgumentException if either splice sequence is empty.
+	 */
+	public AdaptorTrimmerBuilder addVectorSplice(NucleotideSequence upstreamSpliceSeq, NucleotideSequence downstreamSpliceSeq){
+		addFivePrimeAdaptor(upstreamSpliceSeq);
+		return addThreePrimeAdaptor(downstreamSpliceSeq);
+	}
+	
+	private static NucleotideSequence checkAdaptor(NucleotideSequence adaptor){
+		Objects.requireNonNull(adaptor);
+		if(adaptor.getUngappedLength() ==0){
+			throw new IllegalArgumentException("adaptor can not be empty");
+		}
+		return adaptor.getNumberOfGaps() > 0 ? adaptor.toBuilder().ungap().build() : adaptor;
+	}
+	/**
+	 * Also search for the reverse complement of each adaptor
+	 * so reads in either orientation are trimmed.  
+	 * The reverse complement of a 3' adaptor is searched for as a 5' adaptor
+	 * and vice versa.
+	 * 
+	 * @return this
+	 */
+	public AdaptorTrimmerBuilder includeReverseComplements(){
+		this.includeReverseComplements = true;
+		return this;
+	}
+	/**
+	 * Set the max number of mismatches allowed per overlapping base;
+	 * a hit with an overlap of {@code n} bases may have up to
+	 * {@code floor(n * maxErrorRate)} mismatches.
+	 * 
+	 * @param maxErrorRate the max error rate; must be &ge; 0 and &lt; 0.5.
+	 * If not set, defaults to {@value #DEFAULT_MAX_ERROR_RATE}.
+	 * @return this
+	 * @throws IllegalArgumentException if maxErrorRate is out of range.
+	 */
+	public AdaptorTrimmerBuilder maxErrorRate(double maxErrorRate){
+		if(maxErrorRate < 0 || maxErrorRate >= 0.5){
+			throw new IllegalArgumentException("max error rate must be >= 0 and < 0.5");
+		}
+		this.maxErrorRate = maxErrorRate;
+		return this;
+	}
+	/**
+	 * Set the min number of bases a partial adaptor must
+	 * overlap the end of a read to be trimmed.
+	 * 
+	 * @param minOverlap the min overlap; must be &ge; 1.
+	 * If not set, defaults to {@value #DEFAULT_MIN_OVERLAP}.
+	 * @return this
+	 * @throws IllegalArgumentException if minOverlap &lt; 1.
+	 */
+	public AdaptorTrimmerBuilder minOverlap(int minOverlap){
+		if(minOverlap < 1){
+			throw new IllegalArgumentException("min overlap must be >= 1");
+		}
+		this.minOverlap = minOverlap;
+		return this;
+	}
+	/**
+	 * Set the k-mer size of the index.  Smaller k-mers
+	 * find more candidate hits to verify, larger k-mers
+	 * require more bases to be checked directly at the ends of reads.
+	 * 
+	 * @param kmerSize the k-mer size; must be between 4 and 31.
+	 * If not set, defaults to {@value #DEFAULT_KMER_SIZE}.
+	 * @return this
+	 * @throws IllegalArgumentException if kmerSize is out of range.
+	 */
+	public AdaptorTrimmerBuilder kmerSize(int kmerSize){
+		if(kmerSize < 4 || kmerSize > 31){
+			throw new IllegalArgumentException("kmer size must be between 4 and 31");
+		}
+		this.kmerSize = kmerSize;
+		return this;
+	}
+	/**
+	 * Do not align candidate hits that fail the mismatch check.
+	 * This is faster but adaptors with indels will not be found.
+	 * 
+	 * @return this
+	 */
+	public AdaptorTrimmerBuilder noAlignmentFallback(){
+		this.useAlignmentFallback = false;
+		return this;
+	}
+	/**
+	 * Change the parameters used when aligning candidate hits
+	 * that fail the mismatch check.  By default, the NUC.4.4
+	 * matrix is used with a gap open penalty of {@value #DEFAULT_GAP_OPEN}
+	 * and a gap extension penalty of {@value #DEFAULT_GAP_EXTENSION}.
+	 * 
+	 * @param matrix the {@link NucleotideSubstitutionMatrix} to use instead of the default; can not be null.
+	 * @param gapOpen the gap open penalty to use instead of the default; usually a negative number.
+	 * @param gapExtension the gap extension penalty to use instead of default; usually a negative number.
+	 * @return this
+	 * @throws NullPointerException if matrix is null.
+	 */
+	public AdaptorTrimmerBuilder alignmentMatrix(NucleotideSubstitutionMatrix matrix, int gapOpen, int gapExtension){
+		this.matrix = Objects.requireNonNull(matrix);
+		this.gapOpen = gapOpen;
+		this.gapExtension = gapExtension;
+		return this;
+	}
+	/**
+	 * Create a new {@link NucleotideTrimmer} instance
+	 * that trims off the adaptors using the current configuration.
+	 * 
+	 * @return a new {@link NucleotideTrimmer}; will never be null.
+	 * @throws IllegalStateException if no adaptors were added.
+	 */
+	@Override
+	public NucleotideTrimmer build() {
+		if(threePrimeAdaptors.isEmpty() && fivePrimeAdaptors.isEmpty()){
+			throw new IllegalStateException("must add at least one adaptor");
+		}
+		return new AdaptorTrimmer(this);
+	}
+	
+	private static final class Adaptor{
+		private final NucleotideSequence sequence;
+		private final byte[] codes;
+		private final boolean threePrime;
+		/**
+		 * Overlaps shorter than this aren't guaranteed to share a k-mer
+		 * so they have to be checked directly.
+		 */
+		private final int minIndexedOverlap;
+		
+		Adaptor(NucleotideSequence sequence, boolean threePrime, int minIndexedOverlap){
+			this.sequence = sequence;
+			this.codes = encode(sequence, new byte[(int) sequence.getLength()]);
+			this.threePrime = threePrime;
+			this.minIndexedOverlap = minIndexedOverlap;
+		}
+		
+		int length(){
+			return codes.length;
+		}
+	}
+	/**
+	 * Reusable per thread buffer of the encoded read.
+	 */
+	private static final class ReadBuffer{
+		private byte[] codes = new byte[0];
+		
+		byte[] encode(NucleotideSequence seq){
+			int length = (int) seq.getLength();
+			if(codes.length < length){
+				codes = new byte[Math.max(length, codes.length *2)];
+			}
+			return AdaptorTrimmerBuilder.encode(seq, codes);
+		}
+	}
+	/**
+	 * Code used for anything that isn't A,C,G or T;
+	 * in an adaptor it matches anything, in a read it is a mismatch.
+	 */
+	private static final byte OTHER = 4;
+	
+	private static byte encode(Nucleotide n){
+		int value = NucleotideCodes.toTwoBitValue(n);
+		return value == NucleotideCodes.NOT_TWO_BIT ? OTHER : (byte) value;
+	}
+	
+	private static byte[] encode(NucleotideSequence seq, byte[] codes){
+		int i=0;
+		for(Nucleotide n : seq){
+			codes[i++] = encode(n);
+		}
+		return codes;
+	}
+	
+	private static final class AdaptorTrimmer implements NucleotideTrimmer{
+		private static final ThreadLocal<ReadBuffer> BUFFERS = ThreadLocal.withInitial(ReadBuffer::new);
+		
+		private final Adaptor[] adaptors;
+		private final AdaptorKmerIndex index;
+		private final int kmerSize;
+		private final long kmerMask;
+		private final double maxErrorRate;
+		private final int minOverlap;
+		private final boolean hasThreePrimeAdaptors, hasFivePrimeAdaptors;
+		
+		private final boolean useAlignmentFallback;
+		private final NucleotideSubstitutionMatrix matrix;
+		private final int gapOpen;
+		private final int gapExtension;
+		
+		AdaptorTrimmer(AdaptorTrimmerBuilder builder){
+			this.kmerSize = builder.kmerSize;
+			this.kmerMask = (1L << (2*kmerSize)) -1;
+			this.maxErrorRate = builder.maxErrorRate;
+			this.minOverlap = builder.minOverlap;
+			this.useAlignmentFallback = builder.useAlignmentFallback;
+			this.matrix = builder.matrix;
+			this.gapOpen = builder.gapOpen;
+			this.gapExtension = builder.gapExtension;
+			
+			List<Adaptor> list = new ArrayList<>();
+			for(NucleotideSequence seq : builder.threePrimeAdaptors){
+				list.add(createAdaptor(seq, true));
+				if(builder.includeReverseComplements){
+					list.add(createAdaptor(seq.toBuilder().reverseComplement().build(), false));
+				}
+			}
+			for(NucleotideSequence seq : builder.fivePrimeAdaptors){
+				list.add(createAdaptor(seq, false));
+				if(builder.includeReverseComplements){
+					list.add(createAdaptor(seq.toBuilder().reverseComplement().build(), true));
+				}
+			}
+			adaptors = list.toArray(new Adaptor[list.size()]);
+			
+			boolean anyThreePrime = false, anyFivePrime = false;
+			int numberOfKmers=0;
+			for(Adaptor adaptor : adaptors){
+				anyThreePrime |= adaptor.threePrime;
+				anyFivePrime |= !adaptor.threePrime;
+				numberOfKmers += Math.max(0, adaptor.length() - kmerSize +1);
+			}
+			hasThreePrimeAdaptors = anyThreePrime;
+			hasFivePrimeAdaptors = anyFivePrime;
+			
+			index = new AdaptorKmerIndex(numberOfKmers);
+			for(int i=0; i< adaptors.length; i++){
+				byte[] codes = adaptors[i].codes;
+				long kmer=0;
+				int validBases=0;
+				for(int j=0; j< codes.length; j++){
+					if(codes[j] == OTHER){
+						validBases=0;
+						continue;
+					}
+					kmer = ((kmer <<2) | codes[j]) & kmerMask;
+					validBases++;
+					if(validBases >= kmerSize){
+						index.add(kmer, i, j - kmerSize +1);
+					}
+				}
+			}
+		}
+		
+		private Adaptor createAdaptor(NucleotideSequence seq, boolean threePrime){
+			int length = (int) seq.getLength();
+			int minIndexedOverlap = length +1;
+			boolean hasAmbiguities = false;
+			for(Nucleotide n : seq){
+				hasAmbiguities |= encode(n) == OTHER;
+			}
+			if(!hasAmbiguities){
+				//find the smallest overlap where every overlap at least that long
+				//can be split into (mismatches +1) pieces of at least k bases
+				//so one piece must match exactly
+				for(int overlap = length; overlap >=1; overlap--){
+					if(overlap / (allowedMismatches(overlap) +1) < kmerSize){
+						break;
+					}
+					minIndexedOverlap = overlap;
+				}
+			}
+			return new Adaptor(seq, threePrime, minIndexedOverlap);
+		}
+		
+		private int allowedMismatches(int overlap){
+			return (int) (overlap * maxErrorRate);
+		}
+		
+		@Override
+		public Range trim(NucleotideSequence seq) {
+			int readLength = (int) seq.getLength();
+			byte[] read = BUFFERS.get().encode(seq);
+			
+			int begin = hasFivePrimeAdaptors ? findFivePrimeEnd(seq, read, readLength) : 0;
+			int end = hasThreePrimeAdaptors ? findThreePrimeStart(seq, read, readLength, begin) : readLength;
+			if(end <= begin){
+				return Range.ofLength(0);
+			}
+			return Range.of(begin, end -1);
+		}
+		
+		private boolean matches(byte[] read, int readStart, Adaptor adaptor, int adaptorStart, int overlap){
+			int maxMismatches = allowedMismatches(overlap);
+			int mismatches=0;
+			byte[] codes = adaptor.codes;
+			for(int i=0; i< overlap; i++){
+				byte a = codes[adaptorStart +i];
+				if(a != OTHER && a != read[readStart +i]){
+					mismatches++;
+					if(mismatches > maxMismatches){
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+		
+		private int bandWidth(Adaptor adaptor){
+			return Math.max(1, allowedMismatches(adaptor.length()));
+		}
+		/**
+		 * Find the start of the leftmost 3' adaptor at or after minStart.
+		 * @return the start offset or readLength if no adaptor is found.
+		 */
+		private int findThreePrimeStart(NucleotideSequence seq, byte[] read, int readLength, int minStart){
+			int best = readLength;
+			int lastStart = readLength - minOverlap;
+			
+			int fallbackAdaptor = -1;
+			int fallbackStart = 0;
+			boolean fallbackConfirmed = false;
+			
+			long kmer=0;
+			int validBases=0;
+			for(int i=0; i< readLength; i++){
+				byte code = read[i];
+				if(code == OTHER){
+					validBases=0;
+					continue;
+				}
+				kmer = ((kmer <<2) | code) & kmerMask;
+				validBases++;
+				if(validBases < kmerSize){
+					continue;
+				}
+				int kmerStart = i - kmerSize +1;
+				for(int entry = index.first(kmer); entry >=0; entry = index.next(entry)){
+					Adaptor adaptor = adaptors[index.adaptor(entry)];
+					if(!adaptor.threePrime){
+						continue;
+					}
+					int start = kmerStart - index.offset(entry);
+					if(start < minStart || start >= best || start > lastStart){
+						continue;
+					}
+					int overlap = Math.min(adaptor.length(), readLength - start);
+					if(matches(read, start, adaptor, 0, overlap)){
+						best = start;
+					}else if(fallbackAdaptor < 0){
+						fallbackAdaptor = index.adaptor(entry);
+						fallbackStart = start;
+					}else if(fallbackAdaptor == index.adaptor(entry) 
+							&& Math.abs(start - fallbackStart) <= bandWidth(adaptor)){
+						fallbackConfirmed = true;
+					}
+				}
+			}
+			//partial adaptors too short to be guaranteed a k-mer hit
+			for(Adaptor adaptor : adaptors){
+				if(!adaptor.threePrime){
+					continue;
+				}
+				int firstUnindexedStart = adaptor.length() < adaptor.minIndexedOverlap ? 0 : readLength - adaptor.minIndexedOverlap +1;
+				int end = Math.min(best -1, lastStart);
+				for(int start = Math.max(minStart, firstUnindexedStart); start <= end; start++){
+					if(matches(read, start, adaptor, 0, Math.min(adaptor.length(), readLength - start))){
+						best = start;
+						break;
+					}
+				}
+			}
+			if(best == readLength && fallbackConfirmed && useAlignmentFallback){
+				best = alignThreePrime(seq, readLength, adaptors[fallbackAdaptor], fallbackStart, minStart);
+			}
+			return best;
+		}
+		/**
+		 * Find the end (exclusive) of the rightmost 5' adaptor.
+		 * @return the end offset or 0 if no adaptor is found.
+		 */
+		private int findFivePrimeEnd(NucleotideSequence seq, byte[] read, int readLength){
+			int best = 0;
+			
+			int fallbackAdaptor = -1;
+			int fallbackEnd = 0;
+			boolean fallbackConfirmed = false;
+			
+			long kmer=0;
+			int validBases=0;
+			for(int i=0; i< readLength; i++){
+				byte code = read[i];
+				if(code == OTHER){
+					validBases=0;
+					continue;
+				}
+				kmer = ((kmer <<2) | code) & kmerMask;
+				validBases++;
+				if(validBases < kmerSize){
+					continue;
+				}
+				int kmerStart = i - kmerSize +1;
+				for(int entry = index.first(kmer); entry >=0; entry = index.next(entry)){
+					Adaptor adaptor = adaptors[index.adaptor(entry)];
+					if(adaptor.threePrime){
+						continue;
+					}
+					int end = kmerStart - index.offset(entry) + adaptor.length();
+					if(end <= best || end > readLength || end < minOverlap){
+						continue;
+					}
+					int overlap = Math.min(adaptor.length(), end);
+					if(matches(read, end - overlap, adaptor, adaptor.length() - overlap, overlap)){
+						best = end;
+					}else if(fallbackAdaptor < 0){
+						fallbackAdaptor = index.adaptor(entry);
+						fallbackEnd = end;
+					}else if(fallbackAdaptor == index.adaptor(entry) 
+							&& Math.abs(end - fallbackEnd) <= bandWidth(adaptor)){
+						fallbackConfirmed = true;
+					}
+				}
+			}
+			//partial adaptors too short to be guaranteed a k-mer hit
+			for(Adaptor adaptor : adaptors){
+				if(adaptor.threePrime){
+					continue;
+				}
+				int lastUnindexedEnd = adaptor.length() < adaptor.minIndexedOverlap ? readLength : adaptor.minIndexedOverlap -1;
+				int start = Math.max(best +1, minOverlap);
+				for(int end = Math.min(readLength, lastUnindexedEnd); end >= start; end--){
+					int overlap = Math.min(adaptor.length(), end);
+					if(matches(read, end - overlap, adaptor, adaptor.length() - overlap, overlap)){
+						best = end;
+						break;
+					}
+				}
+			}
+			if(best == 0 && fallbackConfirmed && useAlignmentFallback){
+				best = alignFivePrime(seq, readLength, adaptors[fallbackAdaptor], fallbackEnd);
+			}
+			return best;
+		}
+		
+		private NucleotidePairwiseSequenceAlignment align(Adaptor adaptor, NucleotideSequence seq, int expectedStart){
+			return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(adaptor.sequence, seq, matrix)
+							.gapPenalty(gapOpen, gapExtension)
+							.useLocalAlignment()
+							.band(expectedStart, bandWidth(adaptor))
+							.build();
+		}
+		
+		private static int countErrors(NucleotidePairwiseSequenceAlignment alignment){
+			return (int) Math.round(alignment.getAlignmentLength() * (1 - alignment.getPercentIdentity()));
+		}
+		/**
+		 * Align the adaptor to the read near the candidate start.
+		 * @return the start of the adaptor or readLength if the alignment
+		 * doesn't pass.
+		 */
+		private int alignThreePrime(NucleotideSequence seq, int readLength, Adaptor adaptor, int expectedStart, int minStart){
+			NucleotidePairwiseSequenceAlignment alignment = align(adaptor, seq, expectedStart);
+			if(alignment.getAlignmentLength() < minOverlap){
+				return readLength;
+			}
+			Range query = alignment.getQueryRange().getRange();
+			Range subject = alignment.getSubjectRange().getRange();
+			//unaligned bases at the start of the adaptor count as errors
+			//and so do unaligned bases at the end unless the read ends first
+			int unalignedStart = (int) query.getBegin();
+			int unalignedEnd = (int) Math.min(adaptor.length() -1 - query.getEnd(), readLength -1 - subject.getEnd());
+			int errors = countErrors(alignment) + unalignedStart + unalignedEnd;
+			int overlap = alignment.getAlignmentLength() + unalignedStart + unalignedEnd;
+			if(errors > allowedMismatches(overlap)){
+				return readLength;
+			}
+			return (int) Math.max(minStart, subject.getBegin() - unalignedStart);
+		}
+		/**
+		 * Align the adaptor to the read near the candidate end.
+		 * @return the end of the adaptor or 0 if the alignment
+		 * doesn't pass.
+		 */
+		private int alignFivePrime(NucleotideSequence seq, int readLength, Adaptor adaptor, int expectedEnd){
+			NucleotidePairwiseSequenceAlignment alignment = align(adaptor, seq, expectedEnd - adaptor.length());
+			if(alignment.getAlignmentLength() < minOverlap){
+				return 0;
+			}
+			Range query = alignment.getQueryRange().getRange();
+			Range subject = alignment.getSubjectRange().getRange();
+			//unaligned bases at the end of the adaptor count as errors
+			//and so do unaligned bases at the start unless the read starts first
+			int unalignedEnd = (int) (adaptor.length() -1 - query.getEnd());
+			int unalignedStart = (int) Math.min(query.getBegin(), subject.getBegin());
+			int errors = countErrors(alignment) + unalignedStart + unalignedEnd;
+			int overlap = alignment.getAlignmentLength() + unalignedStart + unalignedEnd;
+			if(errors > allowedMismatches(overlap)){
+				return 0;
+			}
+			return (int) Math.min(readLength, subject.getEnd() +1 + unalignedEnd);
+		}
+	}
+}
@@ -20,7 +20,6 @@
  ******************************************************************************/
 package org.jcvi.jillion.trim;
 
-import java.util.Iterator;
 import java.util.Objects;
 import java.util.function.Function;
 
@@ -116,24 +115,43 @@ public class BwaQualityTrimmer implements QualityTrimmer {
 
 	@Override
 	public Range trim(QualitySequence qualities) {
-		int goodQualityWindowLength= (int)qualities.getLength();
+		return new Range.Builder(trim(qualities.toArray())).build();
+	}
+	
+	@Override
+	public Range trim(QualitySequenceBuilder builder) {
+		return new Range.Builder(trim(builder.toArray())).build();
+	}
+	
+	@Override
+	public void trim(byte[] qualities, int offset, int length, QualityTrimContext context) {
+		QualityTrimContext.checkRegion(qualities, offset, length);
+		context.setTrimRange(0, trim(qualities, offset, length));
+	}
+	
+	private int trim(byte[] qualities){
+		return trim(qualities, 0, qualities.length);
+	}
+	/**
+	 * 
+	 * @return the number of bases from offset to keep.
+	 */
+	private int trim(byte[] qualities, int offset, int length) {
+		int goodQualityWindowLength= length;
 		//since BWA trimming is used on
 		//fastq data, fastq quality profile
 		//is starts off good then gets worse
 		//so we only really have to look at the 5' end
 		//since the beginning of the read should 
 		//be the best quality.
-		QualitySequenceBuilder reversedQualities = new QualitySequenceBuilder(qualities)
-													.reverse();
-		
-		Iterator<PhredQuality> iter =reversedQualities.iterator();
+		//walk backwards from the end instead of building a reversed copy
 		int currentLength=goodQualityWindowLength;
 		int badnessFactor=0;
 		int worstScore=0;
 		//as soon as we have a negative "badness factor"
 		//we have good enough quality
-		while(iter.hasNext() && badnessFactor >=0){			
-			byte qualityScore = iter.next().getQualityScore();
+		while(currentLength > 0 && badnessFactor >=0){			
+			byte qualityScore = qualities[offset + currentLength -1];
 			badnessFactor +=threshold - qualityScore;
 			
 			
@@ -151,9 +169,9 @@ public class BwaQualityTrimmer implements QualityTrimmer {
 		//change code to match 
 		if(currentLength==0){
 			//never found a good window
-			return new Range.Builder().build();
+			return 0;
 		}
-		return new Range.Builder(goodQualityWindowLength).build();
+		return goodQualityWindowLength;
 	}
 
 	
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.util.Objects;
+
+import org.jcvi.jillion.core.Range;
+/**
+ * Reusable, mutable state for trimming primitive quality value arrays
+ * with {@link QualityTrimmer#trim(byte[], int, int, QualityTrimContext)}.
+ * The context holds the trim range of the last trim operation as primitive
+ * begin and end offsets as well as a reusable quality buffer so that trimming
+ * millions of reads does not allocate any objects per read.
+ * <p>
+ * A context is not thread safe.  Each thread should use its own
+ * instance, either by creating one or using {@link #get()}.
+ * </p>
+ * <pre>
+ * QualityTrimContext context = QualityTrimContext.get();
+ * byte[] quals = context.getBuffer(length);
+ * QualityArrays.decode(encodedQuals, from, length, 33, quals, 0);
+ * trimmer.trim(quals, 0, length, context);
+ * if(!context.isEmpty()){
+ *    //keep offsets context.getBegin() to context.getEnd()
+ * }
+ * </pre>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class QualityTrimContext {
+
+    private static final ThreadLocal<QualityTrimContext> THREAD_CONTEXTS = ThreadLocal.withInitial(QualityTrimContext::new);
+    
+    private byte[] buffer = new byte[0];
+    
+    private int begin;
+    private int end;
+    /**
+     * Get the context for the current thread.
+     * @return the context; will never be null and will always
+     * be the same instance for a given thread.
+     */
+    public static QualityTrimContext get(){
+        return THREAD_CONTEXTS.get();
+    }
+    /**
+     * Get a buffer with a length at least the given capacity
+     * to use to hold quality values.  The same buffer is returned
+     * each time unless a larger capacity is requested.  The contents
+     * are not cleared between calls.
+     * 
+     * @param minCapacity the min number of quality values the buffer must hold; must be &ge; 0.
+     * @return the buffer; will never be null.
+     * @throws IllegalArgumentException if minCapacity is negative.
+     */
+    public byte[] getBuffer(int minCapacity){
+        if(minCapacity < 0){
+            throw new IllegalArgumentException("capacity can not be negative");
+        }
+        if(buffer.length < minCapacity){
+            //grow by 50% so a few long reads don't cause lots of copies
+            buffer = new byte[Math.max(minCapacity, buffer.length + (buffer.length >> 1))];
+        }
+        return buffer;
+    }
+    /**
+     * Set the trim range. This is normally only called by 
+     * {@link QualityTrimmer} implementations.
+     * 
+     * @param begin the first offset to keep (inclusive).
+     * @param end the last offset to keep (exclusive); if end &le; begin
+     * then the trim range is empty.
+     */
+    public void setTrimRange(int begin, int end){
+        if(end <= begin){
+            this.begin =0;
+            this.end=0;
+        }else{
+            this.begin = begin;
+            this.end = end;
+        }
+    }
+    /**
+     * Set the trim range from a {@link Range}.
+     * 
+     * @param range the Range to keep; can not be null.
+     * @throws NullPointerException if range is null.
+     */
+    public void setTrimRange(Range range){
+        Objects.requireNonNull(range);
+        if(range.getLength() ==0){
+            setTrimRange(0,0);
+        }else{
+            setTrimRange((int) range.getBegin(), (int) range.getEnd() +1);
+        }
+    }
+    /**
+     * Get the first offset to keep.
+     * @return the begin offset (inclusive); will be 0 if empty.
+     */
+    public int getBegin() {
+        return begin;
+    }
+    /**
+     * Get the end offset to keep.
+     * @return the end offset (exclusive); will be 0 if empty.
+     */
+    public int getEnd() {
+        return end;
+    }
+    /**
+     * Get the number of quality values to keep.
+     * @return the length of the trim range.
+     */
+    public int getLength(){
+        return end - begin;
+    }
+    /**
+     * Is the trim range empty; meaning nothing should be kept.
+     * @return {@code true} if the length is 0; {@code false} otherwise.
+     */
+    public boolean isEmpty(){
+        return end == begin;
+    }
+    /**
+     * Create a new {@link Range} of the current trim range.
+     * @return a new Range; will never be null.
+     */
+    public Range toRange(){
+        return new Range.Builder(getLength()).shift(begin).build();
+    }
+    /**
+     * Trim the given region with each trimmer in order, each trimmer only looks
+     * at the region left by the previous trimmers the same as a {@link TrimmerPipeline}
+     * does with quality trimmers.  Unlike the pipeline, no intermediate
+     * objects are created.
+     * 
+     * @param qualities the quality values; can not be null.
+     * @param offset the offset of the first quality value to examine.
+     * @param length the number of quality values to examine.
+     * @param trimmers the trimmers to use in order; can not be null or contain nulls.
+     * 
+     * @throws NullPointerException if any parameter is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public void trim(byte[] qualities, int offset, int length, Iterable<? extends QualityTrimmer> trimmers){
+        checkRegion(qualities, offset, length);
+        int currentBegin = 0;
+        int currentEnd = length;
+        for(QualityTrimmer trimmer : trimmers){
+            trimmer.trim(qualities, offset + currentBegin, currentEnd - currentBegin, this);
+            if(isEmpty()){
+                return;
+            }
+            currentEnd = currentBegin + end;
+            currentBegin += begin;
+        }
+        setTrimRange(currentBegin, currentEnd);
+    }
+    
+    /**
+     * Check that the given region is inside the array.  This is normally only called by 
+     * {@link QualityTrimmer} implementations before they start to trim.
+     * 
+     * @param array the array to check; can not be null.
+     * @param offset the offset of the start of the region.
+     * @param length the length of the region.
+     * 
+     * @throws NullPointerException if array is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     */
+    public static void checkRegion(byte[] array, int offset, int length){
+        if(offset < 0 || length < 0 || offset + length > array.length){
+            throw new ArrayIndexOutOfBoundsException(
+                    String.format("invalid region offset %d length %d for array of length %d", offset, length, array.length));
+        }
+    }
+}
@@ -20,6 +20,8 @@
  ******************************************************************************/
 package org.jcvi.jillion.trim;
 
+import java.util.Arrays;
+
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
@@ -65,4 +67,38 @@ public interface QualityTrimmer extends Trimmer<QualitySequence>{
     default Range trim(QualitySequenceBuilder builder){
         return trim(builder.build());
     }
+    /**
+     * Find the Good Range to keep for the given region 
+     * of a primitive quality value array (one quality score per byte)
+     * and store it in the given {@link QualityTrimContext}.
+     * Neither the array nor the context are modified except for the context's
+     * trim range which will be relative to {@code offset}.
+     * <p>
+     * This lets callers trim qualities straight from a reusable buffer, 
+     * for example one filled by {@link org.jcvi.jillion.core.qual.QualityArrays#decode(byte[], int, int, int, byte[], int)},
+     * without creating any {@link QualitySequence} or {@link Range} objects.
+     * </p>
+     * 
+     * @implSpec the default implementation copies the region into a new QualitySequence
+     * and performs the trim operation on that.
+     * <pre>
+     * {@code context.setTrimRange(trim(new QualitySequenceBuilder(Arrays.copyOfRange(qualities, offset, offset+length)).build()));}
+     * </pre>
+     * But this method should be overridden to use an allocation free implementation.
+     * 
+     * @param qualities the quality values; can not be null.
+     * @param offset the offset of the first quality value to examine.
+     * @param length the number of quality values to examine.
+     * @param context the {@link QualityTrimContext} to store the result in; can not be null.
+     * 
+     * @throws NullPointerException if either qualities or context is null.
+     * @throws ArrayIndexOutOfBoundsException if the region goes beyond the array.
+     * 
+     * @since 5.3
+     */
+    default void trim(byte[] qualities, int offset, int length, QualityTrimContext context){
+        QualityTrimContext.checkRegion(qualities, offset, length);
+        context.setTrimRange(trim(new QualitySequenceBuilder(Arrays.copyOfRange(qualities, offset, offset + length))
+                                        .build()));
+    }
 }
@@ -32,6 +32,7 @@ import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.jcvi.jillion.trace.Trace;
+import org.jcvi.jillion.trim.TrimmerPipelineReport.DropReason;
 
 public class TrimmerPipeline {
 
@@ -59,29 +60,60 @@ public class TrimmerPipeline {
         this.minLength = builder.minLength;
         
     }
-
-
+    /**
+     * Get all the trimmers in this pipeline, the nucleotide trimmers
+     * first followed by the quality trimmers which is the same
+     * order as the trimmer indexes given to {@link TrimmerPipelineStatistics}.
+     * 
+     * @return a new List.
+     */
+    List<Trimmer<?>> getTrimmers(){
+        List<Trimmer<?>> list = new ArrayList<>(nucleotideTrimmers.size() + qualityTrimmers.size());
+        list.addAll(nucleotideTrimmers);
+        list.addAll(qualityTrimmers);
+        return list;
+    }
 
     public Range trim(Trace trace){
+        return trim(trace, null);
+    }
+    /**
+     * Trim the given trace and record the time spent
+     * in each trimmer and why the trace was dropped (if it was)
+     * to the given statistics.
+     * 
+     * @param trace the trace to trim.
+     * @param stats the statistics to update; may be null
+     * in which case nothing is recorded.
+     * @return the trimmed Range, will be empty if dropped.
+     */
+    Range trim(Trace trace, TrimmerPipelineStatistics stats){
         Range.Builder range;
         if(nucleotideTrimmers.isEmpty()){
-           return trim(trace.getQualitySequence());
+           return trim(trace.getQualitySequence(), stats);
         }else{           
-            range = nucTrim(trace.getNucleotideSequence());  
+            range = nucTrim(trace.getNucleotideSequence(), stats);  
+            if(range == EMPTY_BUILDER){
+                return EMPTY;
+            }
         }
         
-        if(!qualityTrimmers.isEmpty()){                     
-            range.intersect(qualTrim(trace.getQualitySequence()));  
+        if(!qualityTrimmers.isEmpty()){
+            Range.Builder qualRange = qualTrim(trace.getQualitySequence(), stats);
+            if(qualRange == EMPTY_BUILDER){
+                return EMPTY;
+            }
+            range.intersect(qualRange);  
         }
         
        
         if(minLength !=NOT_SET && range.getLength() < minLength){
-            return EMPTY;
+            return dropped(stats, DropReason.MIN_LENGTH);
         }
         
         if(rangePredicate !=null && rangePredicate.test(range)){
             //short circuit
-            return EMPTY;
+            return dropped(stats, DropReason.RANGE_FILTER);
         }
         Range builtRange = range.build();
         
@@ -89,30 +121,34 @@ public class TrimmerPipeline {
                 new NucleotideSequenceBuilder(trace.getNucleotideSequence(), builtRange)
                 .turnOffDataCompression(true)
                 .build())){
-            return EMPTY;
+            return dropped(stats, DropReason.SEQUENCE_FILTER);
         }
         if(qualityPredicate !=null && qualityPredicate.test(
                 new QualitySequenceBuilder(trace.getQualitySequence(), builtRange)
                 .turnOffDataCompression(true)
                 .build())){
-            return EMPTY;
+            return dropped(stats, DropReason.QUALITY_FILTER);
         }
-        return builtRange;
+        return kept(stats, builtRange);
     }
     
     public Range trim(NucleotideSequence seq){
-        Builder builder = nucTrim(seq);
+        return trim(seq, null);
+    }
+    
+    Range trim(NucleotideSequence seq, TrimmerPipelineStatistics stats){
+        Builder builder = nucTrim(seq, stats);
         if(builder == EMPTY_BUILDER){
             return EMPTY;
         }
         
         if(minLength !=NOT_SET && builder.getLength() < minLength){
-            return EMPTY;
+            return dropped(stats, DropReason.MIN_LENGTH);
         }
         
         if(rangePredicate !=null && rangePredicate.test(builder)){
             //short circuit
-            return EMPTY;
+            return dropped(stats, DropReason.RANGE_FILTER);
         }
         Range builtRange = builder.build();
         
@@ -120,27 +156,31 @@ public class TrimmerPipeline {
                 new NucleotideSequenceBuilder(seq, builtRange)
                 .turnOffDataCompression(true)
                 .build())){
-            return EMPTY;
+            return dropped(stats, DropReason.SEQUENCE_FILTER);
         }
        
         
-        return builder.build();
+        return kept(stats, builder.build());
     }
     
-    private Range.Builder nucTrim(NucleotideSequence seq){
+    private Range.Builder nucTrim(NucleotideSequence seq, TrimmerPipelineStatistics stats){
         long length = seq.getLength();
         if(minLength !=NOT_SET && length < minLength){
-            return EMPTY_BUILDER;
+            return droppedBuilder(stats, DropReason.MIN_LENGTH);
         }
         
         NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder(seq).turnOffDataCompression(true);
        
         Range.Builder fullTrimRange = new Range.Builder(length);
-
+        int trimmerIndex=0;
          for(NucleotideTrimmer trimmer : nucleotideTrimmers){
+             long start = stats==null ? 0 : System.nanoTime();
              Range currentRange = trimmer.trim(builder);
+             if(stats !=null){
+                 stats.recordTrimmer(trimmerIndex++, System.nanoTime() - start);
+             }
              if(minLength !=NOT_SET && currentRange.getLength() < minLength){
-                 return EMPTY_BUILDER;
+                 return droppedBuilder(stats, DropReason.MIN_LENGTH);
              }
              fullTrimRange.contractBegin(currentRange.getBegin());
              fullTrimRange.setEnd(fullTrimRange.getBegin() + currentRange.getLength()-1);
@@ -152,17 +192,21 @@ public class TrimmerPipeline {
          return fullTrimRange;
     }
     public Range trim(QualitySequence seq){
-        Range.Builder builder = qualTrim(seq);
+        return trim(seq, null);
+    }
+    
+    Range trim(QualitySequence seq, TrimmerPipelineStatistics stats){
+        Range.Builder builder = qualTrim(seq, stats);
         if(builder == EMPTY_BUILDER){
             return EMPTY;
         }
         if(minLength !=NOT_SET && builder.getLength() < minLength){
-            return EMPTY;
+            return dropped(stats, DropReason.MIN_LENGTH);
         }
         
         if(rangePredicate !=null && rangePredicate.test(builder)){
             //short circuit
-            return EMPTY;
+            return dropped(stats, DropReason.RANGE_FILTER);
         }
         Range builtRange = builder.build();
        
@@ -170,19 +214,19 @@ public class TrimmerPipeline {
                 new QualitySequenceBuilder(seq, builtRange)
                 .turnOffDataCompression(true)
                 .build())){
-            return EMPTY;
+            return dropped(stats, DropReason.QUALITY_FILTER);
         }
         
-        return builder.build();
+        return kept(stats, builder.build());
     }
-    private Range.Builder qualTrim(QualitySequence seq){
+    private Range.Builder qualTrim(QualitySequence seq, TrimmerPipelineStatistics stats){
         long length = seq.getLength();
         
         if(minLength !=NOT_SET && length < minLength){
-            return EMPTY_BUILDER;
+            return droppedBuilder(stats, DropReason.MIN_LENGTH);
         }
         if(qualityPredicate !=null && qualityPredicate.test(seq)){
-            return EMPTY_BUILDER;
+            return droppedBuilder(stats, DropReason.QUALITY_FILTER);
         }
         
         QualitySequenceBuilder builder = new QualitySequenceBuilder(seq).turnOffDataCompression(true);
@@ -191,27 +235,55 @@ public class TrimmerPipeline {
         
         if(rangePredicate !=null && rangePredicate.test(fullTrimRange)){
             //short circuit
-            return EMPTY_BUILDER;
+            return droppedBuilder(stats, DropReason.RANGE_FILTER);
         }
+        //quality trimmers come after the nucleotide trimmers in the stats
+        int trimmerIndex = nucleotideTrimmers.size();
          for(QualityTrimmer trimmer : qualityTrimmers){
+             long start = stats==null ? 0 : System.nanoTime();
              Range currentRange = trimmer.trim(builder);
+             if(stats !=null){
+                 stats.recordTrimmer(trimmerIndex++, System.nanoTime() - start);
+             }
              if(minLength !=NOT_SET && currentRange.getLength() < minLength){
-                 return EMPTY_BUILDER;
+                 return droppedBuilder(stats, DropReason.MIN_LENGTH);
              }
              fullTrimRange.contractBegin(currentRange.getBegin());
              fullTrimRange.setEnd(fullTrimRange.getBegin() + currentRange.getLength()-1);
             
              if(rangePredicate !=null && rangePredicate.test(fullTrimRange)){
                  //short circuit
-                 return EMPTY_BUILDER;
+                 return droppedBuilder(stats, DropReason.RANGE_FILTER);
              }
              builder.trim(currentRange);
              
              if(qualityPredicate !=null && qualityPredicate.test(builder.build())){
-                 return EMPTY_BUILDER;
+                 return droppedBuilder(stats, DropReason.QUALITY_FILTER);
              }
          }
          
          return fullTrimRange;
     }
+    
+    private static Range dropped(TrimmerPipelineStatistics stats, DropReason reason){
+        if(stats !=null){
+            stats.recordDropped(reason);
+        }
+        return EMPTY;
+    }
+    
+    private static Range.Builder droppedBuilder(TrimmerPipelineStatistics stats, DropReason reason){
+        if(stats !=null){
+            stats.recordDropped(reason);
+        }
+        return EMPTY_BUILDER;
+    }
+    
+    private static Range kept(TrimmerPipelineStatistics stats, Range range){
+        if(stats !=null && range.getLength() ==0){
+            //trimmers removed everything but no min length was set
+            stats.recordDropped(DropReason.TRIMMED_TO_EMPTY);
+        }
+        return range;
+    }
 }
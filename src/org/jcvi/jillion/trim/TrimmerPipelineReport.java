@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+/**
+ * Summary of a {@link TrimmerPipelineRunner} run:
+ * how many records were read and written, how many
+ * were dropped for each {@link DropReason} and how much
+ * time was spent in each trimmer of the pipeline.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class TrimmerPipelineReport {
+    /**
+     * The reasons a record might be dropped
+     * from the output.
+     * 
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public enum DropReason{
+        /**
+         * The record, or what was left of it after a trimmer,
+         * was shorter than the pipeline's min length.
+         */
+        MIN_LENGTH,
+        /**
+         * The range filter predicate rejected the trim range.
+         */
+        RANGE_FILTER,
+        /**
+         * The sequence filter predicate rejected the trimmed sequence.
+         */
+        SEQUENCE_FILTER,
+        /**
+         * The quality filter predicate rejected the qualities.
+         */
+        QUALITY_FILTER,
+        /**
+         * The trimmers trimmed off the entire record
+         * but no min length was set.
+         */
+        TRIMMED_TO_EMPTY,
+        /**
+         * The record passed but its mate did not 
+         * so the pair was dropped to keep the mate files in sync.
+         */
+        MATE_DROPPED
+    }
+    /**
+     * The time spent in a single trimmer of the pipeline.
+     * 
+     * @author dkatzel
+     *
+     * @since 5.3
+     */
+    public static final class TrimmerTiming{
+        private final Trimmer<?> trimmer;
+        private final long numberOfCalls;
+        private final long totalNanos;
+        
+        TrimmerTiming(Trimmer<?> trimmer, long numberOfCalls, long totalNanos) {
+            this.trimmer = trimmer;
+            this.numberOfCalls = numberOfCalls;
+            this.totalNanos = totalNanos;
+        }
+        /**
+         * Get the trimmer this timing is for.
+         * @return the trimmer; will never be null.
+         */
+        public Trimmer<?> getTrimmer() {
+            return trimmer;
+        }
+        /**
+         * Get the number of records this trimmer
+         * was called on; this may be less than the number of records
+         * read if earlier trimmers caused records to be dropped.
+         * @return the number of calls; will always be &ge; 0.
+         */
+        public long getNumberOfCalls() {
+            return numberOfCalls;
+        }
+        /**
+         * Get the total time spent in this trimmer summed 
+         * across all threads.
+         * @return the total time in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return "TrimmerTiming [trimmer=" + trimmer + ", numberOfCalls="
+                    + numberOfCalls + ", totalNanos=" + totalNanos + "]";
+        }
+        
+    }
+    
+    private final long numberOfRecordsRead;
+    private final long numberOfRecordsWritten;
+    private final Map<DropReason, Long> dropCounts;
+    private final List<TrimmerTiming> trimmerTimings;
+    private final long elapsedNanos;
+    
+    TrimmerPipelineReport(long numberOfRecordsRead, long numberOfRecordsWritten,
+            Map<DropReason, Long> dropCounts, List<TrimmerTiming> trimmerTimings,
+            long elapsedNanos) {
+        this.numberOfRecordsRead = numberOfRecordsRead;
+        this.numberOfRecordsWritten = numberOfRecordsWritten;
+        this.dropCounts = Collections.unmodifiableMap(new EnumMap<>(dropCounts));
+        this.trimmerTimings = Collections.unmodifiableList(trimmerTimings);
+        this.elapsedNanos = elapsedNanos;
+    }
+    /**
+     * Get the number of records read from the input(s).
+     * For paired data, both mates are counted.
+     * @return the number of records read.
+     */
+    public long getNumberOfRecordsRead() {
+        return numberOfRecordsRead;
+    }
+    /**
+     * Get the number of records written to the output(s).
+     * For paired data, both mates are counted.
+     * @return the number of records written.
+     */
+    public long getNumberOfRecordsWritten() {
+        return numberOfRecordsWritten;
+    }
+    /**
+     * Get the number of records dropped for the given reason.
+     * @param reason the {@link DropReason}; can not be null.
+     * @return the number of records dropped.
+     * @throws NullPointerException if reason is null.
+     */
+    public long getNumberDropped(DropReason reason){
+        return dropCounts.get(reason);
+    }
+    /**
+     * Get the total number of records dropped for any reason.
+     * @return the number of dropped records.
+     */
+    public long getTotalNumberDropped(){
+        return numberOfRecordsRead - numberOfRecordsWritten;
+    }
+    /**
+     * Get the number of records dropped for each reason.
+     * @return an unmodifiable Map containing every {@link DropReason};
+     * will never be null.
+     */
+    public Map<DropReason, Long> getDropCounts() {
+        return dropCounts;
+    }
+    /**
+     * Get the time spent in each trimmer in the order
+     * the pipeline runs them.
+     * @return an unmodifiable List; will never be null
+     * but may be empty if the pipeline has no trimmers.
+     */
+    public List<TrimmerTiming> getTrimmerTimings() {
+        return trimmerTimings;
+    }
+    /**
+     * Get the wall clock time of the whole run
+     * including reading and writing.
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    @Override
+    public String toString() {
+        return "TrimmerPipelineReport [numberOfRecordsRead="
+                + numberOfRecordsRead + ", numberOfRecordsWritten="
+                + numberOfRecordsWritten + ", dropCounts=" + dropCounts
+                + ", trimmerTimings=" + trimmerTimings + ", elapsedNanos="
+                + elapsedNanos + "]";
+    }
+    
+}
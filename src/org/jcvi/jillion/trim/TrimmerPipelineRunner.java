@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreProviderHint;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.core.util.streams.ThrowingConsumer;
+import org.jcvi.jillion.trace.fastq.FastqFileDataStore;
+import org.jcvi.jillion.trace.fastq.FastqFileDataStoreBuilder;
+import org.jcvi.jillion.trace.fastq.FastqParser;
+import org.jcvi.jillion.trace.fastq.FastqQualityCodec;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.jcvi.jillion.trace.fastq.FastqRecordBuilder;
+import org.jcvi.jillion.trace.fastq.FastqWriter;
+import org.jcvi.jillion.trace.sff.SffCommonHeader;
+import org.jcvi.jillion.trace.sff.SffFileReadVisitor;
+import org.jcvi.jillion.trace.sff.SffParser;
+import org.jcvi.jillion.trace.sff.SffReadData;
+import org.jcvi.jillion.trace.sff.SffReadHeader;
+import org.jcvi.jillion.trace.sff.SffUtil;
+import org.jcvi.jillion.trace.sff.SffVisitor;
+import org.jcvi.jillion.trace.sff.SffVisitorCallback;
+import org.jcvi.jillion.trim.TrimmerPipelineReport.DropReason;
+/**
+ * Runs a {@link TrimmerPipeline} over every record of 
+ * a FASTQ or SFF input and writes the trimmed records
+ * to a {@link FastqWriter}.
+ * <p>
+ * Records are read in batches and each batch is trimmed in parallel
+ * while the next batch is being read.  The trimmed records are always written
+ * in the same order as the input and records that are dropped
+ * by the pipeline are not written.  For paired data, a pair is only
+ * written if both mates pass so the output mate files stay in sync.
+ * </p>
+ * <p>
+ * The writers are not closed by this class since the caller owns them.
+ * Each run returns a {@link TrimmerPipelineReport} of the
+ * time spent in each trimmer and how many records were dropped and why.
+ * </p>
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+public final class TrimmerPipelineRunner {
+	/**
+	 * The default number of records (or pairs) per batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 10_000;
+	
+	private final TrimmerPipeline pipeline;
+	private final int batchSize;
+	private final ForkJoinPool pool;
+	private final FastqQualityCodec qualityCodec;
+	
+	private TrimmerPipelineRunner(Builder builder){
+		this.pipeline = builder.pipeline;
+		this.batchSize = builder.batchSize;
+		this.pool = builder.pool;
+		this.qualityCodec = builder.qualityCodec;
+	}
+	/**
+	 * Trim every record in the given FASTQ data and write the records that pass.
+	 * 
+	 * @param in the {@link FastqParser} of the input; can not be null.
+	 * @param out the {@link FastqWriter} to write the trimmed records to; can not be null.
+	 * @return a {@link TrimmerPipelineReport} of this run; will never be null.
+	 * @throws IOException if there is a problem reading or writing.
+	 * @throws NullPointerException if any parameter is null.
+	 * @throws IllegalStateException if the input can only be read once and no quality codec was set.
+	 */
+	public TrimmerPipelineReport run(FastqParser in, FastqWriter out) throws IOException{
+		Objects.requireNonNull(out);
+		long start = System.nanoTime();
+		TrimmerPipelineStatistics stats = new TrimmerPipelineStatistics(pipeline);
+		
+		OrderedBatches<FastqRecord, FastqRecord> batches = new OrderedBatches<>(
+				record -> trim(record, stats), 
+				record -> write(out, record, stats));
+		
+		try(FastqFileDataStore datastore = createDataStore(in);
+			StreamingIterator<FastqRecord> iter = datastore.iterator()){
+			while(iter.hasNext()){
+				stats.recordRead();
+				batches.add(iter.next());
+			}
+		}
+		batches.finish();
+		return stats.toReport(System.nanoTime() - start);
+	}
+	/**
+	 * Trim every read in the given SFF data and write the reads that pass
+	 * as FASTQ records.  Each read is first trimmed to
+	 * its SFF quality and adapter clip points using {@link SffUtil#computeTrimRangeFor(SffReadHeader)}
+	 * before going through the pipeline.
+	 * 
+	 * @param in the {@link SffParser} of the input; can not be null.
+	 * @param out the {@link FastqWriter} to write the trimmed reads to; can not be null.
+	 * @return a {@link TrimmerPipelineReport} of this run; will never be null.
+	 * @throws IOException if there is a problem reading or writing.
+	 * @throws NullPointerException if any parameter is null.
+	 */
+	public TrimmerPipelineReport run(SffParser in, FastqWriter out) throws IOException{
+		Objects.requireNonNull(out);
+		long start = System.nanoTime();
+		TrimmerPipelineStatistics stats = new TrimmerPipelineStatistics(pipeline);
+		
+		OrderedBatches<FastqRecord, FastqRecord> batches = new OrderedBatches<>(
+				record -> trim(record, stats), 
+				record -> write(out, record, stats));
+		try{
+			in.parse(new SffVisitor() {
+				
+				@Override
+				public void visitHeader(SffVisitorCallback callback, SffCommonHeader header) {
+					//no-op
+				}
+				
+				@Override
+				public SffFileReadVisitor visitRead(SffVisitorCallback callback, SffReadHeader readHeader) {
+					return new SffFileReadVisitor() {
+						
+						@Override
+						public void visitReadData(SffReadData readData) {
+							stats.recordRead();
+							FastqRecord record = FastqRecordBuilder.create(readHeader.getId(), 
+																	readData.getNucleotideSequence(), 
+																	readData.getQualitySequence())
+														.trim(SffUtil.computeTrimRangeFor(readHeader))
+														.build();
+							try {
+								batches.add(record);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						}
+						
+						@Override
+						public void visitEnd() {
+							//no-op
+						}
+					};
+				}
+				
+				@Override
+				public void end() {
+					//no-op
+				}
+			});
+		}catch(UncheckedIOException e){
+			throw e.getCause();
+		}
+		batches.finish();
+		return stats.toReport(System.nanoTime() - start);
+	}
+	/**
+	 * Trim every pair of records in the given mate FASTQ data
+	 * and write both mates of the pairs where both mates pass.
+	 * The nth record of each input are assumed to be mates.
+	 * 
+	 * @param mate1 the {@link FastqParser} of the first mates; can not be null.
+	 * @param mate2 the {@link FastqParser} of the second mates; can not be null.
+	 * @param out1 the {@link FastqWriter} to write the trimmed first mates to; can not be null.
+	 * @param out2 the {@link FastqWriter} to write the trimmed second mates to; can not be null.
+	 * @return a {@link TrimmerPipelineReport} of this run, records are counted individually so each
+	 * pair counts as 2 records; will never be null.
+	 * @throws IOException if there is a problem reading or writing or if the inputs
+	 * have a different number of records.
+	 * @throws NullPointerException if any parameter is null.
+	 * @throws IllegalStateException if an input can only be read once and no quality codec was set.
+	 */
+	public TrimmerPipelineReport runPaired(FastqParser mate1, FastqParser mate2, FastqWriter out1, FastqWriter out2) throws IOException{
+		Objects.requireNonNull(out1);
+		Objects.requireNonNull(out2);
+		long start = System.nanoTime();
+		TrimmerPipelineStatistics stats = new TrimmerPipelineStatistics(pipeline);
+		
+		OrderedBatches<FastqRecord[], FastqRecord[]> batches = new OrderedBatches<>(
+				pair -> trimPair(pair, stats), 
+				pair -> {
+					write(out1, pair[0], stats);
+					write(out2, pair[1], stats);
+				});
+		try(FastqFileDataStore datastore1 = createDataStore(mate1);
+			FastqFileDataStore datastore2 = createDataStore(mate2);
+			StreamingIterator<FastqRecord> iter1 = datastore1.iterator();
+			StreamingIterator<FastqRecord> iter2 = datastore2.iterator();
+			){
+			while(iter1.hasNext() && iter2.hasNext()){
+				stats.recordRead();
+				stats.recordRead();
+				batches.add(new FastqRecord[]{iter1.next(), iter2.next()});
+			}
+			if(iter1.hasNext() || iter2.hasNext()){
+				throw new IOException("mate inputs have a different number of records");
+			}
+		}
+		batches.finish();
+		return stats.toReport(System.nanoTime() - start);
+	}
+	
+	private FastqFileDataStore createDataStore(FastqParser parser) throws IOException{
+		FastqFileDataStoreBuilder builder = new FastqFileDataStoreBuilder(parser)
+													.hint(DataStoreProviderHint.ITERATION_ONLY);
+		if(qualityCodec !=null){
+			builder.qualityCodec(qualityCodec);
+		}
+		return builder.build();
+	}
+	
+	private static void write(FastqWriter out, FastqRecord record, TrimmerPipelineStatistics stats) throws IOException{
+		out.write(record);
+		stats.recordWritten();
+	}
+	/**
+	 * Trim the given record.
+	 * @return the trimmed record or {@code null} if it was dropped.
+	 */
+	private FastqRecord trim(FastqRecord record, TrimmerPipelineStatistics stats){
+		Range range = pipeline.trim(record, stats);
+		if(range.getLength() ==0){
+			return null;
+		}
+		if(range.getLength() == record.getLength()){
+			return record;
+		}
+		return record.toBuilder().trim(range).build();
+	}
+	
+	private FastqRecord[] trimPair(FastqRecord[] pair, TrimmerPipelineStatistics stats){
+		FastqRecord trimmed1 = trim(pair[0], stats);
+		FastqRecord trimmed2 = trim(pair[1], stats);
+		if(trimmed1 ==null || trimmed2 ==null){
+			if(trimmed1 !=null || trimmed2 !=null){
+				stats.recordDropped(DropReason.MATE_DROPPED);
+			}
+			return null;
+		}
+		return new FastqRecord[]{trimmed1, trimmed2};
+	}
+	/**
+	 * Collects input into batches, trims each batch
+	 * in the pool while the next batch is collected
+	 * and writes the results of each batch in order.
+	 *
+	 * @param <T> the input type.
+	 * @param <R> the trimmed type, a {@code null} result is not written.
+	 */
+	private final class OrderedBatches<T, R>{
+		private final Function<T, R> trimFunction;
+		private final ThrowingConsumer<R, IOException> writer;
+		
+		private List<T> batch = new ArrayList<>(batchSize);
+		private Future<List<R>> pending;
+		
+		OrderedBatches(Function<T, R> trimFunction, ThrowingConsumer<R, IOException> writer){
+			this.trimFunction = trimFunction;
+			this.writer = writer;
+		}
+		
+		void add(T t) throws IOException{
+			batch.add(t);
+			if(batch.size() >= batchSize){
+				submitBatch();
+			}
+		}
+		
+		private void submitBatch() throws IOException{
+			writePending();
+			List<T> toTrim = batch;
+			batch = new ArrayList<>(batchSize);
+			pending = pool.submit(()-> toTrim.parallelStream()
+											.map(trimFunction)
+											.collect(Collectors.toList()));
+		}
+		
+		private void writePending() throws IOException{
+			if(pending ==null){
+				return;
+			}
+			List<R> results = await(pending);
+			pending = null;
+			for(R result : results){
+				if(result !=null){
+					writer.accept(result);
+				}
+			}
+		}
+		
+		void finish() throws IOException{
+			if(!batch.isEmpty()){
+				submitBatch();
+			}
+			writePending();
+		}
+	}
+	
+	private static <R> List<R> await(Future<List<R>> future) throws IOException{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while trimming", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException){
+				throw (RuntimeException) cause;
+			}
+			if(cause instanceof Error){
+				throw (Error) cause;
+			}
+			throw new IOException("error trimming records", cause);
+		}
+	}
+	/**
+	 * Builder to create a new {@link TrimmerPipelineRunner}.
+	 * 
+	 * @author dkatzel
+	 *
+	 * @since 5.3
+	 */
+	public static final class Builder implements org.jcvi.jillion.core.util.Builder<TrimmerPipelineRunner>{
+		private final TrimmerPipeline pipeline;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private ForkJoinPool pool = ForkJoinPool.commonPool();
+		private FastqQualityCodec qualityCodec;
+		/**
+		 * Create a new Builder.
+		 * @param pipeline the {@link TrimmerPipeline} to run; can not be null.
+		 * @throws NullPointerException if pipeline is null.
+		 */
+		public Builder(TrimmerPipeline pipeline){
+			this.pipeline = Objects.requireNonNull(pipeline);
+		}
+		/**
+		 * Set the number of records (or pairs) to trim per batch.
+		 * Larger batches use more memory but have less overhead.
+		 * @param batchSize the batch size; must be &ge; 1.
+		 * Defaults to {@value TrimmerPipelineRunner#DEFAULT_BATCH_SIZE}.
+		 * @return this.
+		 * @throws IllegalArgumentException if batchSize &lt; 1.
+		 */
+		public Builder batchSize(int batchSize){
+			if(batchSize < 1){
+				throw new IllegalArgumentException("batch size must be >= 1");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+		/**
+		 * Set the {@link ForkJoinPool} to trim in.
+		 * @param pool the pool to use; can not be null.
+		 * Defaults to {@link ForkJoinPool#commonPool()}.
+		 * @return this.
+		 * @throws NullPointerException if pool is null.
+		 */
+		public Builder pool(ForkJoinPool pool){
+			this.pool = Objects.requireNonNull(pool);
+			return this;
+		}
+		/**
+		 * Set the {@link FastqQualityCodec} of the FASTQ inputs.
+		 * If not set, the codec is auto-detected which requires
+		 * reading each input twice and is not possible for inputs
+		 * that can only be read once.
+		 * @param qualityCodec the codec to use; can not be null.
+		 * @return this.
+		 * @throws NullPointerException if qualityCodec is null.
+		 */
+		public Builder qualityCodec(FastqQualityCodec qualityCodec){
+			this.qualityCodec = Objects.requireNonNull(qualityCodec);
+			return this;
+		}
+		/**
+		 * Create a new {@link TrimmerPipelineRunner}
+		 * using the current configuration.
+		 * @return a new {@link TrimmerPipelineRunner}; will never be null.
+		 */
+		@Override
+		public TrimmerPipelineRunner build(){
+			return new TrimmerPipelineRunner(this);
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jcvi.jillion.trim.TrimmerPipelineReport.DropReason;
+import org.jcvi.jillion.trim.TrimmerPipelineReport.TrimmerTiming;
+/**
+ * Thread safe counters of how long each trimmer
+ * in a {@link TrimmerPipeline} took and how many records
+ * were dropped and why.  Many threads can update the same instance
+ * at the same time.
+ * 
+ * @author dkatzel
+ *
+ * @since 5.3
+ */
+final class TrimmerPipelineStatistics {
+
+    private final List<Trimmer<?>> trimmers;
+    private final LongAdder[] trimmerNanos;
+    private final LongAdder[] trimmerCalls;
+    private final LongAdder[] drops;
+    
+    private final LongAdder recordsRead = new LongAdder();
+    private final LongAdder recordsWritten = new LongAdder();
+    
+    TrimmerPipelineStatistics(TrimmerPipeline pipeline){
+        trimmers = pipeline.getTrimmers();
+        trimmerNanos = createAdders(trimmers.size());
+        trimmerCalls = createAdders(trimmers.size());
+        drops = createAdders(DropReason.values().length);
+    }
+    
+    private static LongAdder[] createAdders(int size){
+        LongAdder[] array = new LongAdder[size];
+        for(int i=0; i< size; i++){
+            array[i] = new LongAdder();
+        }
+        return array;
+    }
+    
+    void recordTrimmer(int trimmerIndex, long nanos){
+        trimmerNanos[trimmerIndex].add(nanos);
+        trimmerCalls[trimmerIndex].increment();
+    }
+    
+    void recordDropped(DropReason reason){
+        drops[reason.ordinal()].increment();
+    }
+    
+    void recordRead(){
+        recordsRead.increment();
+    }
+    
+    void recordWritten(){
+        recordsWritten.increment();
+    }
+    
+    TrimmerPipelineReport toReport(long elapsedNanos){
+        List<TrimmerTiming> timings = new ArrayList<>(trimmers.size());
+        for(int i=0; i< trimmers.size(); i++){
+            timings.add(new TrimmerTiming(trimmers.get(i), trimmerCalls[i].sum(), trimmerNanos[i].sum()));
+        }
+        Map<DropReason, Long> dropCounts = new EnumMap<>(DropReason.class);
+        for(DropReason reason : DropReason.values()){
+            dropCounts.put(reason, drops[reason.ordinal()].sum());
+        }
+        return new TrimmerPipelineReport(recordsRead.sum(), recordsWritten.sum(), 
+                dropCounts, timings, elapsedNanos);
+    }
+}
@@ -26,6 +26,7 @@ import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.qual.PhredQuality;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.trim.QualityTrimContext;
 import org.jcvi.jillion.trim.QualityTrimmer;
 
 abstract class AbstractEdgeQualityTrimmer implements QualityTrimmer {
@@ -53,21 +54,53 @@ abstract class AbstractEdgeQualityTrimmer implements QualityTrimmer {
         return trim(qualities.toArray());
     }
     
+    @Override
+    public void trim(byte[] qualities, int offset, int length, QualityTrimContext context) {
+        QualityTrimContext.checkRegion(qualities, offset, length);
+        if(trimFromLeading){
+            context.setTrimRange(findFirstGoodOffset(qualities, offset, length), length);
+        }else{
+            context.setTrimRange(0, findLastGoodOffset(qualities, offset, length) +1);
+        }
+    }
+    
     private Range trim(byte[] quals){
         if(trimFromLeading){
-            for(int i=0; i< quals.length; i++){
-                if(threshold <= quals[i]){
-                    return Range.of(i, quals.length -1);
-                }
+            int first = findFirstGoodOffset(quals, 0, quals.length);
+            if(first < quals.length){
+                return Range.of(first, quals.length -1);
             }
         }else{
-            for(int i=quals.length -1; i>=0; i--){
-                if(threshold <= quals[i]){
-                    return Range.ofLength(i+1);
-                }
+            int last = findLastGoodOffset(quals, 0, quals.length);
+            if(last >=0){
+                return Range.ofLength(last+1);
             }
         }
         return EMPTY;
     }
+    /**
+     * @return the offset relative to {@code offset} of the first
+     * good quality or {@code length} if there isn't one.
+     */
+    private int findFirstGoodOffset(byte[] quals, int offset, int length){
+        for(int i=0; i< length; i++){
+            if(threshold <= quals[offset + i]){
+                return i;
+            }
+        }
+        return length;
+    }
+    /**
+     * @return the offset relative to {@code offset} of the last
+     * good quality or {@code -1} if there isn't one.
+     */
+    private int findLastGoodOffset(byte[] quals, int offset, int length){
+        for(int i=length -1; i>=0; i--){
+            if(threshold <= quals[offset + i]){
+                return i;
+            }
+        }
+        return -1;
+    }
 
 }
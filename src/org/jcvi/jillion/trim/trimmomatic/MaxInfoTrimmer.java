@@ -24,6 +24,7 @@ import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.qual.PhredQuality;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.trim.QualityTrimContext;
 import org.jcvi.jillion.trim.QualityTrimmer;
 
 /**
@@ -136,22 +137,35 @@ sequence, but a typical target length would be in the order of 40 bases. must be
     }
     @Override
     public Range trim(QualitySequence qualities) {
-        return trim(qualities.toArray());
+        return Range.ofLength(trim(qualities.toArray()));
 
     }
     
     @Override
     public Range trim(QualitySequenceBuilder builder) {
-        return trim(builder.toArray());
+        return Range.ofLength(trim(builder.toArray()));
     }
     
-    private Range trim(byte[] quals){
+    @Override
+    public void trim(byte[] qualities, int offset, int length, QualityTrimContext context) {
+        QualityTrimContext.checkRegion(qualities, offset, length);
+        context.setTrimRange(0, trim(qualities, offset, length));
+    }
+    
+    private int trim(byte[] quals){
+        return trim(quals, 0, quals.length);
+    }
+    /**
+     * 
+     * @return the number of bases from offset to keep.
+     */
+    private int trim(byte[] quals, int offset, int length){
         int bestOffset = -1;
         double maxScore = -Double.MAX_VALUE;
         
         long acumulativeQual=0;
-        for(int i=0; i< quals.length; i++){
-            acumulativeQual +=qualLookup[quals[i]];
+        for(int i=0; i< length; i++){
+            acumulativeQual +=qualLookup[quals[offset + i]];
            long score= acumulativeQual + factorLookup[i];
            
            if(score >= maxScore){
@@ -161,8 +175,8 @@ sequence, but a typical target length would be in the order of 40 bases. must be
         }
 
         if(bestOffset < 0 || maxScore ==0){
-            return Range.ofLength(0);
+            return 0;
         }
-        return Range.ofLength(bestOffset +1);
+        return bestOffset +1;
     }
 }
@@ -26,6 +26,7 @@ import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.qual.PhredQuality;
 import org.jcvi.jillion.core.qual.QualitySequence;
 import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.trim.QualityTrimContext;
 import org.jcvi.jillion.trim.QualityTrimmer;
 /**
  * A {@link QualityTrimmer} implementation that uses a sliding
@@ -62,34 +63,40 @@ public class SlidingWindowQualityTrimmer implements QualityTrimmer {
     }
     @Override
     public Range trim(QualitySequence qualities) {
-        byte[] quals = qualities.toArray();
-        //match trimmomatic and always trim off everything
-        //when the read is too short
-        if(quals.length < windowSize){
-            return EMPTY;
-        }
-        return trim(quals);
+        return toRange(trim(qualities.toArray()));
     }
     
     @Override
     public Range trim(QualitySequenceBuilder builder) {
-        byte[] quals = builder.toArray();
-        //match trimmomatic and always trim off everything
-        //when the read is too short
-        if(quals.length < windowSize){
-            return EMPTY;
-        }
-       
-        return trim(quals);
+        return toRange(trim(builder.toArray()));
     }
     
+    @Override
+    public void trim(byte[] qualities, int offset, int length, QualityTrimContext context) {
+        QualityTrimContext.checkRegion(qualities, offset, length);
+        context.setTrimRange(0, trim(qualities, offset, length));
+    }
     
+    private static Range toRange(int goodLength){
+        return goodLength ==0 ? EMPTY : Range.ofLength(goodLength);
+    }
     
-    private Range trim(byte[] quals) {
-        
+    private int trim(byte[] quals){
+        return trim(quals, 0, quals.length);
+    }
+    /**
+     * 
+     * @return the number of bases from offset to keep.
+     */
+    private int trim(byte[] quals, int offset, int length) {
+        //match trimmomatic and always trim off everything
+        //when the read is too short
+        if(length < windowSize){
+            return 0;
+        }
         int currentWindowStart=0;
-        while(currentWindowStart < quals.length){
-        double avgQual = computeAvgQualFor(quals, currentWindowStart);
+        while(currentWindowStart < length){
+        double avgQual = computeAvgQualFor(quals, offset, length, currentWindowStart);
             if(avgQual < requiredQuality){
                 //entered bad range
                 break;
@@ -108,20 +115,20 @@ public class SlidingWindowQualityTrimmer implements QualityTrimmer {
         //it's off the end or into a bad window
         currentWindowStart--;
         //now look for bad quality bases from the end of our last good window
-        for(int i= Math.min(quals.length-1, currentWindowStart+windowSize-1); i>=0; i--){
-                if(quals[i] >= requiredQuality){
+        for(int i= Math.min(length-1, currentWindowStart+windowSize-1); i>=0; i--){
+                if(quals[offset + i] >= requiredQuality){
                 //found good qual base
-                return Range.ofLength(i+1);
+                return i+1;
             }
         }
-        return EMPTY;
+        return 0;
     }
-    private double computeAvgQualFor(byte[] quals, int currentWindowStart) {
+    private double computeAvgQualFor(byte[] quals, int offset, int length, int currentWindowStart) {
         long total=0;
-        int end = Math.min(currentWindowStart+ windowSize, quals.length);
+        int end = Math.min(currentWindowStart+ windowSize, length);
         
        for(int i=currentWindowStart; i< end; i++){
-           total+=quals[i];
+           total+=quals[offset + i];
        }
         return total/(double)(end - currentWindowStart);
     }
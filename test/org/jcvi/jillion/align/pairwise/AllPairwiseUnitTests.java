@@ -35,7 +35,13 @@ import org.junit.runners.Suite.SuiteClasses;
     	TestNucleotideNeedlemanWunschAligner.class,
     	TestProteinNeedlemanWunschAligner.class,
     	
-    	TestMultipleLocalAlignment.class
+    	TestMultipleLocalAlignment.class,
+    	TestMinimizerIndex.class,
+    	TestBandedPairwiseAlignment.class,
+    	TestLinearMemoryPairwiseAlignment.class,
+    	TestLocalAlignmentScorer.class,
+    	TestBatchPairwiseAligner.class,
+    	TestProteinQueryAligner.class
     }
     )
 public class AllPairwiseUnitTests {
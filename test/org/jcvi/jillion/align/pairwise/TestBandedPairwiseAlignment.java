@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestBandedPairwiseAlignment extends AbstractTestNucleotideAligner{
+
+	private final Random random = new Random(4321);
+	
+	private NucleotideSequence randomSequence(int length){
+		char[] bases = new char[length];
+		for(int i=0; i< length; i++){
+			bases[i] = "ACGT".charAt(random.nextInt(4));
+		}
+		return new NucleotideSequenceBuilder(new String(bases)).build();
+	}
+	
+	private PairwiseAlignmentBuilder<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> builder(NucleotideSequence query, NucleotideSequence subject){
+		return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+							.gapPenalty(-3, -1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeBandWidthShouldThrowIllegalArgumentException(){
+		NucleotideSequence seq = new NucleotideSequenceBuilder("ACGT").build();
+		builder(seq, seq).band(0, -1);
+	}
+	
+	@Test
+	public void bandCoveringWholeMatrixSameAsNoBand(){
+		NucleotideSequence subject = randomSequence(100);
+		NucleotideSequence query = subject.toBuilder()
+											.delete(Range.of(20,22))
+											.insert(60, "TTT")
+											.build();
+		
+		assertEquals(builder(query, subject).useGlobalAlignment().build(),
+				builder(query, subject).useGlobalAlignment().band(0, 200).build());
+		assertEquals(builder(query, subject).useLocalAlignment().build(),
+				builder(query, subject).useLocalAlignment().band(0, 200).build());
+	}
+	
+	@Test
+	public void localAlignmentNearExpectedDiagonal(){
+		NucleotideSequence subject = randomSequence(2_000);
+		NucleotideSequence query = subject.toBuilder()
+											.trim(Range.of(1_000, 1_199))
+											.delete(Range.of(50,51))
+											.insert(120, "GG")
+											.build();
+		
+		NucleotidePairwiseSequenceAlignment expected = builder(query, subject).useLocalAlignment().build();
+		NucleotidePairwiseSequenceAlignment actual = builder(query, subject).useLocalAlignment().band(1_000, 10).build();
+		
+		assertEquals(expected, actual);
+		assertEquals(Range.of(1_000, 1_199), actual.getSubjectRange().asRange());
+	}
+	
+	@Test
+	public void globalAlignmentWithIndels(){
+		NucleotideSequence subject = randomSequence(500);
+		NucleotideSequence query = subject.toBuilder()
+											.delete(Range.of(100,102))
+											.insert(300, "AC")
+											.build();
+		
+		assertEquals(builder(query, subject).useGlobalAlignment().build(),
+				builder(query, subject).useGlobalAlignment().band(0, 8).build());
+	}
+	
+	@Test
+	public void globalBandWidenedToIncludeEndOfBothSequences(){
+		NucleotideSequence subject = randomSequence(300);
+		NucleotideSequence query = subject.toBuilder()
+											.trim(Range.of(0, 249))
+											.build();
+		//the end of the alignment is 50 diagonals away
+		//from the expected diagonal so the band must be widened
+		NucleotidePairwiseSequenceAlignment actual = builder(query, subject).useGlobalAlignment().band(0, 5).build();
+		
+		assertEquals(builder(query, subject).useGlobalAlignment().build(), actual);
+		assertEquals(Range.of(0, 299), actual.getSubjectRange().asRange());
+	}
+	
+	@Test
+	public void alignmentOutsideOfBandNotFound(){
+		NucleotideSequence subject = randomSequence(1_000);
+		NucleotideSequence query = subject.toBuilder()
+											.trim(Range.of(700, 799))
+											.build();
+		
+		NucleotidePairwiseSequenceAlignment actual = builder(query, subject).useLocalAlignment().band(100, 10).build();
+		//alignment is still restricted to the band
+		long diagonal = actual.getSubjectRange().getBegin() - actual.getQueryRange().getBegin();
+		assertEquals(100, diagonal, 10);
+	}
+	
+	@Test
+	public void findMultipleUsesBandRelativeToWholeSubject(){
+		NucleotideSequence query = randomSequence(50);
+		NucleotideSequence subject = new NucleotideSequenceBuilder(randomSequence(200))
+											.append(query)
+											.append(randomSequence(200))
+											.append(query)
+											.append(randomSequence(200))
+											.build();
+		
+		List<Range> ranges = builder(query, subject).useLocalAlignment()
+								.band(450, 5)
+								.findMultiple()
+								.filter(a -> a.getScore() >= 100)
+								.map(a -> a.getSubjectRange().asRange())
+								.collect(Collectors.toList());
+		
+		assertEquals(1, ranges.size());
+		assertEquals(Range.of(450, 499), ranges.get(0));
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.junit.Test;
+
+public class TestBatchPairwiseAligner extends AbstractTestNucleotideAligner{
+
+	private final Random random = new Random(2468);
+	
+	private final NucleotideSequence query = new NucleotideSequenceBuilder("ACGTTGCAAGCTTAGCCGATAGGCTA").build();
+	
+	private String randomBases(int length){
+		char[] bases = new char[length];
+		for(int i=0; i< length; i++){
+			bases[i] = "ACGT".charAt(random.nextInt(4));
+		}
+		return new String(bases);
+	}
+	
+	private Map<String, NucleotideSequence> createSubjects(int numberOfSubjects){
+		Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+		String queryBases = query.toString();
+		for(int i=0; i< numberOfSubjects; i++){
+			//every 10th subject contains part of the query
+			String middle = i % 10 ==0 ? queryBases.substring(0, 10 + i % 16) : "";
+			map.put("read"+i, new NucleotideSequenceBuilder(randomBases(50) + middle + randomBases(50)).build());
+		}
+		return map;
+	}
+	
+	private List<DataStoreEntry<NucleotideSequence>> expectedTopHits(Map<String, NucleotideSequence> subjects, int n){
+		Map<String, Float> scores = new LinkedHashMap<>();
+		for(Map.Entry<String, NucleotideSequence> entry : subjects.entrySet()){
+			scores.put(entry.getKey(), PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, entry.getValue(), matrix)
+															.gapPenalty(-3, -3)
+															.build()
+															.getScore());
+		}
+		return scores.entrySet().stream()
+						.sorted(Comparator.<Map.Entry<String,Float>>comparingDouble(e-> -e.getValue())
+									.thenComparing(Map.Entry::getKey))
+						.limit(n)
+						.map(e-> new DataStoreEntry<>(e.getKey(), subjects.get(e.getKey())))
+						.collect(Collectors.toList());
+	}
+	
+	@Test
+	public void topHitsFromDataStore() throws DataStoreException{
+		Map<String, NucleotideSequence> subjects = createSubjects(200);
+		
+		BatchPairwiseAligner<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> sut =
+				BatchPairwiseAligner.createNucleotideBatchAlignerBuilder(query, matrix)
+								.gapPenalty(-3, -3)
+								.maxNumberOfHits(5)
+								.build();
+		List<BatchPairwiseAligner.Hit<NucleotidePairwiseSequenceAlignment>> hits;
+		try(NucleotideSequenceDataStore datastore = DataStore.of(subjects, NucleotideSequenceDataStore.class)){
+			hits = sut.align(datastore);
+		}catch(Exception e){
+			throw new DataStoreException("error closing datastore", e);
+		}
+		List<DataStoreEntry<NucleotideSequence>> expected = expectedTopHits(subjects, 5);
+		assertEquals(5, hits.size());
+		for(int i=0; i< 5; i++){
+			BatchPairwiseAligner.Hit<NucleotidePairwiseSequenceAlignment> hit = hits.get(i);
+			assertEquals(expected.get(i).getKey(), hit.getId());
+			NucleotidePairwiseSequenceAlignment expectedAlignment = PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, expected.get(i).getValue(), matrix)
+																		.gapPenalty(-3, -3)
+																		.build();
+			assertEquals(expectedAlignment, hit.getAlignment());
+			assertEquals(expectedAlignment.getScore(), hit.getScore(), 0F);
+		}
+	}
+	
+	@Test
+	public void streamWithCustomPool(){
+		Map<String, NucleotideSequence> subjects = createSubjects(100);
+		List<DataStoreEntry<NucleotideSequence>> entries = new ArrayList<>();
+		subjects.forEach((k,v)-> entries.add(new DataStoreEntry<>(k, v)));
+		
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try{
+			List<BatchPairwiseAligner.Hit<NucleotidePairwiseSequenceAlignment>> hits =
+					BatchPairwiseAligner.createNucleotideBatchAlignerBuilder(query, matrix)
+								.gapPenalty(-3, -3)
+								.maxNumberOfHits(20)
+								.pool(pool)
+								.build()
+								.align(entries.stream());
+			
+			assertEquals(expectedTopHits(subjects, 20).stream().map(DataStoreEntry::getKey).collect(Collectors.toList()),
+					hits.stream().map(BatchPairwiseAligner.Hit::getId).collect(Collectors.toList()));
+		}finally{
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void minScoreFiltersHits(){
+		Map<String, NucleotideSequence> subjects = createSubjects(100);
+		
+		List<BatchPairwiseAligner.Hit<NucleotidePairwiseSequenceAlignment>> hits =
+				BatchPairwiseAligner.createNucleotideBatchAlignerBuilder(query, matrix)
+							.gapPenalty(-3, -3)
+							.maxNumberOfHits(100)
+							.minScore(30)
+							.build()
+							.align(subjects.entrySet().stream().map(e-> new DataStoreEntry<>(e.getKey(), e.getValue())));
+		
+		//only the 10 subjects containing at least 15 bases of the query
+		assertTrue(hits.size() <= 10);
+		assertTrue(hits.size() >= 6);
+		for(BatchPairwiseAligner.Hit<NucleotidePairwiseSequenceAlignment> hit : hits){
+			assertTrue(hit.getScore() >= 30);
+		}
+	}
+	
+	@Test
+	public void protein(){
+		ProteinSequence query = new ProteinSequenceBuilder("ACDEFGHIKLMNPQRSTVWY").build();
+		Map<String, ProteinSequence> subjects = new LinkedHashMap<>();
+		subjects.put("good", new ProteinSequenceBuilder("MMACDEFGHIKLNPQRSTVWYMM").build());
+		subjects.put("bad", new ProteinSequenceBuilder("PPPPPPPPPPPPPPP").build());
+		
+		List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> hits =
+				BatchPairwiseAligner.createProteinBatchAlignerBuilder(query, BlosumMatrices.blosum62())
+									.gapPenalty(-4, -4)
+									.maxNumberOfHits(1)
+									.build()
+									.align(subjects.entrySet().stream().map(e-> new DataStoreEntry<>(e.getKey(), e.getValue())));
+		assertEquals(1, hits.size());
+		assertEquals("good", hits.get(0).getId());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void maxNumberOfHitsLessThanOneShouldThrowException(){
+		BatchPairwiseAligner.createNucleotideBatchAlignerBuilder(query, matrix).maxNumberOfHits(0);
+	}
+}
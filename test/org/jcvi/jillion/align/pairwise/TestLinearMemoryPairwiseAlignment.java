@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestLinearMemoryPairwiseAlignment extends AbstractTestNucleotideAligner{
+
+	private final Random random = new Random(12345);
+	
+	private NucleotideSequence randomSequence(int length){
+		char[] bases = new char[length];
+		for(int i=0; i< length; i++){
+			bases[i] = "ACGT".charAt(random.nextInt(4));
+		}
+		return new NucleotideSequenceBuilder(new String(bases)).build();
+	}
+	/**
+	 * Make a copy of the given sequence
+	 * with a few random substitutions, insertions and deletions.
+	 */
+	private NucleotideSequence mutate(NucleotideSequence seq, int numberOfMutations){
+		NucleotideSequenceBuilder builder = seq.toBuilder();
+		for(int i=0; i< numberOfMutations; i++){
+			int offset = random.nextInt((int)builder.getLength());
+			switch(random.nextInt(3)){
+				case 0 : builder.replace(offset, Nucleotide.parse("ACGT".charAt(random.nextInt(4))));
+						break;
+				case 1 : builder.insert(offset, "GT");
+						break;
+				default : builder.delete(new Range.Builder(2).shift(Math.min(offset, builder.getLength()-2)).build());
+						break;
+			}
+		}
+		return builder.build();
+	}
+	
+	private NucleotidePairwiseSequenceAlignment align(NucleotideSequence query, NucleotideSequence subject,
+			float open, float extension, boolean local, boolean linearMemory){
+		return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+						.gapPenalty(open, extension)
+						.useLocalAlignment(local)
+						.useLinearMemory(linearMemory)
+						.build();
+	}
+	
+	@Test
+	public void exactMatchGlobal(){
+		NucleotideSequence seq = new NucleotideSequenceBuilder("ACGTACGT").build();
+		
+		assertEquals(createExpectedAlignment("ACGTACGT", "ACGTACGT", 16),
+				align(seq, seq, -2, 0, false, true));
+	}
+	
+	@Test
+	public void oneSequenceLongerThanOtherAddGapsToShorterSeq(){
+		NucleotideSequence seq1 = new NucleotideSequenceBuilder("ACGTACGT").build();
+		NucleotideSequence seq2 = new NucleotideSequenceBuilder("ACGTACGTNNNN").build();
+		
+		assertEquals(createExpectedAlignment("ACGTACGT----", "ACGTACGTNNNN",14),
+				align(seq1, seq2, -2, 0, false, true));
+	}
+	
+	@Test
+	public void wikipediaExample(){
+		NucleotideSequence seq1 = new NucleotideSequenceBuilder("GCATGCT").build();
+		NucleotideSequence seq2 = new NucleotideSequenceBuilder("GATTACA").build();
+		
+		NucleotidePairwiseSequenceAlignment expected = align(seq1, seq2, -1,-1, false, false);
+		NucleotidePairwiseSequenceAlignment actual = align(seq1, seq2, -1,-1, false, true);
+		assertEquals(expected.getScore(), actual.getScore(), 0F);
+		assertEquals(seq1, actual.getGappedQueryAlignment().toBuilder().ungap().build());
+		assertEquals(seq2, actual.getGappedSubjectAlignment().toBuilder().ungap().build());
+	}
+	
+	@Test
+	public void leadingQueryResiduesScoredSameAsTracebackMatrix(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("TTTTACGTACGT").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("ACGTACGT").build();
+		
+		assertEquals(align(query, subject, -3, -3, false, false),
+				align(query, subject, -3, -3, false, true));
+	}
+	
+	@Test
+	public void exactMatchLocal(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("ACGTACGT").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("TTTTTACGTACGTTTTT").build();
+		
+		NucleotidePairwiseSequenceAlignment expected = align(query, subject, -2, -1, true, false);
+		NucleotidePairwiseSequenceAlignment actual = align(query, subject, -2, -1, true, true);
+		assertEquals(expected, actual);
+		assertEquals(Range.of(5,12), actual.getSubjectRange().asRange());
+	}
+	
+	@Test
+	public void noPositiveLocalAlignmentSameAsTracebackMatrix(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("AAAA").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("CCCC").build();
+		
+		assertEquals(align(query, subject, -2, -1, true, false),
+				align(query, subject, -2, -1, true, true));
+	}
+	
+	@Test
+	public void randomGlobalAlignmentsHaveSameScoreAsTracebackMatrix(){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence subject = randomSequence(200 + random.nextInt(100));
+			NucleotideSequence query = mutate(subject, 10);
+			
+			NucleotidePairwiseSequenceAlignment expected = align(query, subject, -2, -2, false, false);
+			NucleotidePairwiseSequenceAlignment actual = align(query, subject, -2, -2, false, true);
+			assertEquals(expected.getScore(), actual.getScore(), 0F);
+			assertEquals(query, actual.getGappedQueryAlignment().toBuilder().ungap().build());
+			assertEquals(subject, actual.getGappedSubjectAlignment().toBuilder().ungap().build());
+		}
+	}
+	
+	@Test
+	public void randomLocalAlignmentsHaveSameScoreAsTracebackMatrix(){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence subject = randomSequence(300);
+			NucleotideSequence query = mutate(subject.toBuilder().trim(Range.of(50, 199)).build(), 5);
+			
+			NucleotidePairwiseSequenceAlignment expected = align(query, subject, -2, -2, true, false);
+			NucleotidePairwiseSequenceAlignment actual = align(query, subject, -2, -2, true, true);
+			assertEquals(expected.getScore(), actual.getScore(), 0F);
+			assertEquals(expected.getSubjectRange(), actual.getSubjectRange());
+			assertEquals(expected.getQueryRange(), actual.getQueryRange());
+		}
+	}
+	
+	@Test
+	public void affineGapScoreAtLeastAsGoodAsTracebackMatrix(){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence subject = randomSequence(200);
+			NucleotideSequence query = mutate(subject, 10);
+			
+			NucleotidePairwiseSequenceAlignment expected = align(query, subject, -5, -1, false, false);
+			NucleotidePairwiseSequenceAlignment actual = align(query, subject, -5, -1, false, true);
+			assertTrue(actual.getScore() >= expected.getScore());
+		}
+	}
+	
+	@Test
+	public void longSequences(){
+		NucleotideSequence subject = randomSequence(4_000);
+		NucleotideSequence query = mutate(subject.toBuilder().trim(Range.of(1_000, 2_999)).build(), 20);
+		
+		NucleotidePairwiseSequenceAlignment actual = align(query, subject, -2, -2, true, true);
+		
+		assertEquals(query, actual.getGappedQueryAlignment().toBuilder().ungap().build());
+		assertTrue(actual.getSubjectRange().asRange().intersects(Range.of(1_000, 2_999)));
+	}
+	
+	@Test
+	public void protein(){
+		AminoAcidSubstitutionMatrix blosum62 = BlosumMatrices.blosum62();
+		ProteinSequence query = new ProteinSequenceBuilder("ACDEFGHIKLMNPQRSTVWY").build();
+		ProteinSequence subject = new ProteinSequenceBuilder("MMACDEFGHIKLNPQRSTVWYMM").build();
+		
+		ProteinPairwiseSequenceAlignment expected = PairwiseAlignmentBuilder.createProtienAlignmentBuilder(query, subject, blosum62)
+																	.gapPenalty(-4, -4)
+																	.build();
+		ProteinPairwiseSequenceAlignment actual = PairwiseAlignmentBuilder.createProtienAlignmentBuilder(query, subject, blosum62)
+																	.gapPenalty(-4, -4)
+																	.useLinearMemory()
+																	.build();
+		assertEquals(expected, actual);
+	}
+}
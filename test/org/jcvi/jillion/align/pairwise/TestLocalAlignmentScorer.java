@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.Random;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrixBuilder;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestLocalAlignmentScorer extends AbstractTestNucleotideAligner{
+
+	private final Random random = new Random(5678);
+	
+	private NucleotideSequence randomSequence(int length){
+		char[] bases = new char[length];
+		for(int i=0; i< length; i++){
+			bases[i] = "ACGT".charAt(random.nextInt(4));
+		}
+		return new NucleotideSequenceBuilder(new String(bases)).build();
+	}
+	
+	private NucleotideSequence mutate(NucleotideSequence seq, int numberOfMutations){
+		NucleotideSequenceBuilder builder = seq.toBuilder();
+		for(int i=0; i< numberOfMutations; i++){
+			int offset = random.nextInt((int)builder.getLength());
+			switch(random.nextInt(3)){
+				case 0 : builder.replace(offset, Nucleotide.parse("ACGT".charAt(random.nextInt(4))));
+						break;
+				case 1 : builder.insert(offset, "GTC");
+						break;
+				default : builder.delete(new Range.Builder(2).shift(Math.min(offset, builder.getLength()-2)).build());
+						break;
+			}
+		}
+		return builder.build();
+	}
+	/**
+	 * The linear memory aligner uses the same affine gap model
+	 * so its local scores should always match.
+	 */
+	private float expectedScore(NucleotideSequence query, NucleotideSequence subject, NucleotideSubstitutionMatrix matrix,
+			float open, float extension){
+		return PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+								.gapPenalty(open, extension)
+								.useLocalAlignment()
+								.useLinearMemory()
+								.build()
+								.getScore();
+	}
+	
+	private void assertScoresMatch(NucleotideSubstitutionMatrix matrix, float open, float extension){
+		for(int i=0; i< 20; i++){
+			NucleotideSequence subject = randomSequence(150 + random.nextInt(100));
+			//query lengths not a multiple of the number of lanes
+			NucleotideSequence query = mutate(subject.toBuilder().trim(Range.of(20, 20 + random.nextInt(90))).build(), 4);
+			
+			LocalAlignmentScorer<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> sut =
+					LocalAlignmentScorer.createNucleotideScorer(query, matrix, open, extension);
+			
+			assertEquals(expectedScore(query, subject, matrix, open, extension), sut.score(subject), 0.001F);
+			//unrelated sequence
+			NucleotideSequence other = randomSequence(200);
+			assertEquals(expectedScore(query, other, matrix, open, extension), sut.score(other), 0.001F);
+		}
+	}
+	
+	@Test
+	public void exactMatch(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("ACGTACGT").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("TTTTTACGTACGTTTTT").build();
+		
+		assertEquals(16F, LocalAlignmentScorer.createNucleotideScorer(query, matrix, -2, -1).score(subject), 0F);
+	}
+	
+	@Test
+	public void noPositiveScoringAlignmentScoresZero(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("AAAA").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("CCCC").build();
+		
+		assertEquals(0F, LocalAlignmentScorer.createNucleotideScorer(query, matrix, -2, -1).score(subject), 0F);
+	}
+	
+	@Test
+	public void gapsInSequencesAreIgnored(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("AC-GT-ACGT").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("TT-ACGTAC--GTTT").build();
+		
+		assertEquals(16F, LocalAlignmentScorer.createNucleotideScorer(query, matrix, -2, -1).score(subject), 0F);
+	}
+	
+	@Test
+	public void linearGapScoresMatchAligner(){
+		assertScoresMatch(matrix, -2, -2);
+	}
+	
+	@Test
+	public void affineGapScoresMatchAligner(){
+		assertScoresMatch(matrix, -5, -1);
+	}
+	
+	@Test
+	public void nonIntegerScoresUseScalarScores(){
+		NucleotideSubstitutionMatrix fractional = new NucleotideSubstitutionMatrixBuilder(-1.5F)
+															.setMatch(2.25F)
+															.build();
+		assertScoresMatch(fractional, -3.5F, -0.75F);
+	}
+	
+	@Test
+	public void scoresTooLargeForShortsFallBackToScalarScores(){
+		NucleotideSubstitutionMatrix bigMatch = new NucleotideSubstitutionMatrixBuilder(-100)
+															.setMatch(1000)
+															.build();
+		NucleotideSequence seq = randomSequence(100);
+		
+		assertEquals(100_000F, LocalAlignmentScorer.createNucleotideScorer(seq, bigMatch, -100, -100).score(seq), 0F);
+	}
+	
+	@Test
+	public void alignIfScoreAtLeastOnlyAlignsHighScoringSubjects(){
+		NucleotideSequence query = new NucleotideSequenceBuilder("ACGTACGT").build();
+		NucleotideSequence subject = new NucleotideSequenceBuilder("TTTTTACGTACGTTTTT").build();
+		LocalAlignmentScorer<Nucleotide, NucleotideSequence, NucleotidePairwiseSequenceAlignment> sut =
+				LocalAlignmentScorer.createNucleotideScorer(query, matrix, -2, -1);
+		
+		assertFalse(sut.alignIfScoreAtLeast(subject, 17).isPresent());
+		
+		Optional<NucleotidePairwiseSequenceAlignment> actual = sut.alignIfScoreAtLeast(subject, 16);
+		assertTrue(actual.isPresent());
+		assertEquals(PairwiseAlignmentBuilder.createNucleotideAlignmentBuilder(query, subject, matrix)
+											.gapPenalty(-2, -1)
+											.useLocalAlignment()
+											.build(),
+					actual.get());
+	}
+	
+	@Test
+	public void protein(){
+		AminoAcidSubstitutionMatrix blosum62 = BlosumMatrices.blosum62();
+		ProteinSequence query = new ProteinSequenceBuilder("ACDEFGHIKLMNPQRSTVWY").build();
+		ProteinSequence subject = new ProteinSequenceBuilder("MMACDEFGHIKLNPQRSTVWYMM").build();
+		
+		float expected = PairwiseAlignmentBuilder.createProtienAlignmentBuilder(query, subject, blosum62)
+														.gapPenalty(-11, -1)
+														.useLocalAlignment()
+														.useLinearMemory()
+														.build()
+														.getScore();
+		assertEquals(expected, LocalAlignmentScorer.createProteinScorer(query, blosum62, -11, -1).score(subject), 0F);
+	}
+}
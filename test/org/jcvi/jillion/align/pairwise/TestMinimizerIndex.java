@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrix;
+import org.jcvi.jillion.align.NucleotideSubstitutionMatrixBuilder;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.residue.nt.NucleotideKmers;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestMinimizerIndex {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private final NucleotideSubstitutionMatrix matrix = new NucleotideSubstitutionMatrixBuilder(-3)
+                                                                .setMatch(2)
+                                                                .build();
+
+    private NucleotideSequence ref1, ref2;
+    private NucleotideSequenceDataStore datastore;
+    private MinimizerIndex sut;
+
+    private static NucleotideSequence randomSequence(int length, long seed){
+        Random random = new Random(seed);
+        char[] bases = new char[]{'A','C','G','T'};
+        StringBuilder builder = new StringBuilder(length);
+        for(int i=0; i< length; i++){
+            builder.append(bases[random.nextInt(4)]);
+        }
+        return new NucleotideSequenceBuilder(builder.toString()).build();
+    }
+
+    @Before
+    public void setup() throws Exception{
+        ref1 = randomSequence(5000, 1);
+        ref2 = randomSequence(3000, 2);
+        Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+        map.put("ref1", ref1);
+        map.put("ref2", ref2);
+        datastore = DataStore.of(map, NucleotideSequenceDataStore.class);
+        sut = new MinimizerIndex.Builder(datastore)
+                            .kmerSize(15)
+                            .windowSize(10)
+                            .build();
+    }
+
+    @Test
+    public void indexProperties(){
+        assertEquals(15, sut.getKmerSize());
+        assertEquals(10, sut.getWindowSize());
+        assertEquals(2, sut.getNumberOfSubjects());
+        //expected density of minimizers is 2/(w+1)
+        int numberOfMinimizers = sut.getNumberOfMinimizers();
+        assertTrue(Integer.toString(numberOfMinimizers), numberOfMinimizers > 8000*2/11/2 && numberOfMinimizers < 8000*2/11*2);
+    }
+
+    @Test
+    public void forwardSeedsHaveSameDiagonal(){
+        NucleotideSequence query = new NucleotideSequenceBuilder(ref2, Range.of(1000, 1199)).build();
+        List<MinimizerIndex.SeedHit> seeds = sut.findSeeds(query);
+        assertFalse(seeds.isEmpty());
+        for(MinimizerIndex.SeedHit seed : seeds){
+            if("ref2".equals(seed.getSubjectId()) && seed.getSubjectOffset() - seed.getQueryOffset() ==1000){
+                assertFalse(seed.isReverseComplement());
+            }
+        }
+        List<MinimizerIndex.CandidateRegion> candidates = sut.findCandidates(query, 3);
+        MinimizerIndex.CandidateRegion best = candidates.get(0);
+        assertEquals("ref2", best.getSubjectId());
+        assertFalse(best.isReverseComplement());
+        assertTrue(Range.of(1000, 1199).isSubRangeOf(best.getSubjectRange()));
+        assertTrue(best.getNumberOfSeeds() >= 3);
+    }
+
+    @Test
+    public void reverseComplementQueryFoundOnReverseStrand() throws Exception{
+        NucleotideSequence query = new NucleotideSequenceBuilder(ref1, Range.of(2000, 2299))
+                                            .reverseComplement()
+                                            .build();
+        MinimizerIndex.CandidateRegion best = sut.findCandidates(query, 3).get(0);
+        assertEquals("ref1", best.getSubjectId());
+        assertTrue(best.isReverseComplement());
+        assertEquals(Direction.REVERSE, best.getDirectedSubjectRange().getDirection());
+        assertTrue(Range.of(2000, 2299).isSubRangeOf(best.getSubjectRange()));
+
+        NucleotidePairwiseSequenceAlignment alignment = sut.align(query, best, datastore, matrix, -5, -2);
+        assertEquals(Range.of(2000, 2299), alignment.getSubjectRange().asRange());
+        assertEquals(1D, alignment.getPercentIdentity(), 0.0001D);
+    }
+
+    @Test
+    public void alignToCandidateWindowReportsFullSubjectCoordinates() throws Exception{
+        //query with a mismatch and a deletion
+        NucleotideSequence query = new NucleotideSequenceBuilder(ref1, Range.of(3000, 3149))
+                                        .replace(40, ref1.get(3040).complement())
+                                        .delete(Range.of(100, 101))
+                                        .build();
+        MinimizerIndex.CandidateRegion best = sut.findCandidates(query, 2).get(0);
+        assertEquals("ref1", best.getSubjectId());
+        assertFalse(best.isReverseComplement());
+
+        NucleotidePairwiseSequenceAlignment actual = sut.align(query, best, datastore, matrix, -5, -2);
+        NucleotidePairwiseSequenceAlignment expected = NucleotideSmithWatermanAligner.align(query, ref1, matrix, -5, -2);
+
+        assertEquals(expected.getSubjectRange(), actual.getSubjectRange());
+        assertEquals(expected.getQueryRange(), actual.getQueryRange());
+        assertEquals(expected.getScore(), actual.getScore(), 0.0001F);
+    }
+
+    @Test
+    public void unrelatedQueryHasNoCandidates(){
+        NucleotideSequence query = randomSequence(200, 99);
+        assertTrue(sut.findCandidates(query, 3).isEmpty());
+    }
+
+    @Test
+    public void queryOfSingleWindowStillGetsSeed(){
+        //k + w -1 bases is exactly one minimizer window
+        NucleotideSequence primer = new NucleotideSequenceBuilder(ref1, Range.of(500, 523)).build();
+        List<MinimizerIndex.CandidateRegion> candidates = sut.findCandidates(primer, 1);
+        assertFalse(candidates.isEmpty());
+    }
+
+    @Test
+    public void maxOccurrencesMasksRepeats() throws Exception{
+        NucleotideSequence repeat = new NucleotideSequenceBuilder(ref1, Range.of(0, 99)).build();
+        Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+        for(int i=0; i< 5; i++){
+            map.put("copy"+i, repeat);
+        }
+        NucleotideSequenceDataStore repeats = DataStore.of(map, NucleotideSequenceDataStore.class);
+
+        assertFalse(new MinimizerIndex.Builder(repeats).build().findSeeds(repeat).isEmpty());
+        assertTrue(new MinimizerIndex.Builder(repeats)
+                            .maxOccurrences(4)
+                            .build()
+                            .findSeeds(repeat)
+                            .isEmpty());
+    }
+
+    @Test
+    public void writeAndMap() throws Exception{
+        File indexFile = tmpDir.newFile("index.mmi");
+        sut.write(indexFile);
+        MinimizerIndex mapped = MinimizerIndex.map(indexFile);
+
+        assertEquals(sut.getKmerSize(), mapped.getKmerSize());
+        assertEquals(sut.getWindowSize(), mapped.getWindowSize());
+        assertEquals(sut.getNumberOfMinimizers(), mapped.getNumberOfMinimizers());
+
+        NucleotideSequence query = new NucleotideSequenceBuilder(ref2, Range.of(100, 399)).build();
+        assertEquals(sut.findCandidates(query, 3).toString(), mapped.findCandidates(query, 3).toString());
+    }
+
+    @Test
+    public void chainedSeedsMustIncreaseInBothQueryAndSubject(){
+        List<MinimizerIndex.SeedHit> seeds = Arrays.asList(
+                new MinimizerIndex.SeedHit(0, "ref1", 100, 10, false),
+                //diagonal is within the bandwidth but the query goes backwards
+                new MinimizerIndex.SeedHit(0, "ref1", 101, 5, false),
+                new MinimizerIndex.SeedHit(0, "ref1", 120, 30, false));
+
+        assertTrue(sut.chain(seeds, 200, 3, 10).isEmpty());
+        List<MinimizerIndex.CandidateRegion> candidates = sut.chain(seeds, 200, 2, 10);
+        assertEquals(2, candidates.get(0).getNumberOfSeeds());
+    }
+
+    @Test
+    public void seedsAtSameSubjectOffsetAreNotChained(){
+        List<MinimizerIndex.SeedHit> seeds = Arrays.asList(
+                new MinimizerIndex.SeedHit(0, "ref1", 100, 10, false),
+                new MinimizerIndex.SeedHit(0, "ref1", 100, 12, false));
+
+        assertTrue(sut.chain(seeds, 200, 2, 10).isEmpty());
+        assertEquals(2, sut.chain(seeds, 200, 1, 10).size());
+    }
+
+    @Test
+    public void minimizersMatchBruteForceAcrossNs(){
+        NucleotideSequence seq = new NucleotideSequenceBuilder(ref1, Range.of(0, 299))
+                                        .append("NNN")
+                                        .append(ref2.toBuilder(Range.of(0, 19)).build())
+                                        .append("N")
+                                        .append(ref2.toBuilder(Range.of(500, 799)).build())
+                                        .build();
+        int k=15, w=10;
+        List<Integer> actual = new ArrayList<>();
+        new MinimizerScanner(k, w).scan(seq, (kmer, offset, reverse) -> actual.add(offset));
+
+        assertEquals(bruteForceMinimizerOffsets(seq, k, w), actual);
+    }
+
+    private static List<Integer> bruteForceMinimizerOffsets(NucleotideSequence seq, int k, int w){
+        List<Integer> offsets = new ArrayList<>();
+        String bases = seq.toString();
+        int runStart =0;
+        for(int i=0; i<= bases.length(); i++){
+            if(i == bases.length() || bases.charAt(i) == 'N'){
+                addMinimizersOfRun(bases, runStart, i, k, w, offsets);
+                runStart = i+1;
+            }
+        }
+        return offsets;
+    }
+
+    private static void addMinimizersOfRun(String bases, int begin, int end, int k, int w, List<Integer> offsets){
+        int numberOfKmers = end - begin - k +1;
+        if(numberOfKmers <1){
+            return;
+        }
+        long[] hashes = new long[numberOfKmers];
+        for(int i=0; i< numberOfKmers; i++){
+            NucleotideSequence kmer = new NucleotideSequenceBuilder(bases.substring(begin +i, begin +i +k)).build();
+            hashes[i] = MinimizerScanner.hash(NucleotideKmers.canonicalValueOf(kmer));
+        }
+        int lastOffset =-1;
+        for(int windowStart=0; windowStart + Math.min(w, numberOfKmers) <= numberOfKmers; windowStart++){
+            int best = windowStart;
+            for(int i= windowStart+1; i< windowStart + Math.min(w, numberOfKmers); i++){
+                if(Long.compareUnsigned(hashes[i], hashes[best]) <0){
+                    best =i;
+                }
+            }
+            if(best + begin != lastOffset){
+                lastOffset = best + begin;
+                offsets.add(lastOffset);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void kmerSizeTooLargeShouldThrowIllegalArgumentException(){
+        new MinimizerIndex.Builder(datastore).kmerSize(33);
+    }
+}
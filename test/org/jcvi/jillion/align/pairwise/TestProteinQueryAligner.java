@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.align.pairwise;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jcvi.jillion.align.AminoAcidSubstitutionMatrix;
+import org.jcvi.jillion.align.BlosumMatrices;
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
+import org.jcvi.jillion.core.residue.aa.ProteinSequence;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.junit.Test;
+
+public class TestProteinQueryAligner {
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+	
+	private final AminoAcidSubstitutionMatrix blosum62 = BlosumMatrices.blosum62();
+	private final Random random = new Random(1357);
+	
+	private String randomProtein(int length){
+		char[] aas = new char[length];
+		for(int i=0; i< length; i++){
+			aas[i] = AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length()));
+		}
+		return new String(aas);
+	}
+	
+	private ProteinSequence protein(String seq){
+		return new ProteinSequenceBuilder(seq).build();
+	}
+	
+	@Test
+	public void scoresMatchLocalAlignmentScorer(){
+		for(int i=0; i< 20; i++){
+			String queryString = randomProtein(30 + random.nextInt(40));
+			ProteinSequence query = protein(queryString);
+			ProteinSequence related = protein(randomProtein(20) + queryString.substring(5, 25) + "W" + queryString.substring(25) + randomProtein(20));
+			ProteinSequence unrelated = protein(randomProtein(80));
+			
+			ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+			LocalAlignmentScorer<?, ProteinSequence, ?> expected = LocalAlignmentScorer.createProteinScorer(query, blosum62, -11, -1);
+			
+			assertEquals(expected.score(related), sut.score(related), 0F);
+			assertEquals(expected.score(unrelated), sut.score(unrelated), 0F);
+		}
+	}
+	
+	@Test
+	public void alignIsSameAsPairwiseAlignmentBuilder(){
+		ProteinSequence query = protein("ACDEFGHIKLMNPQRSTVWY");
+		ProteinSequence subject = protein("MMACDEFGHIKLNPQRSTVWYMM");
+		
+		assertEquals(PairwiseAlignmentBuilder.createProtienAlignmentBuilder(query, subject, blosum62)
+											.gapPenalty(-4, -4)
+											.build(),
+					ProteinQueryAligner.create(query, blosum62, -4, -4).align(subject));
+	}
+	
+	@Test
+	public void extendExactMatchCoversWholeQuery(){
+		String queryString = randomProtein(40);
+		ProteinSequence query = protein(queryString);
+		ProteinSequence subject = protein(randomProtein(30) + queryString + randomProtein(30));
+		
+		ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+		ProteinQueryAligner.XDropExtension extension = sut.extend(subject, 20, 50, 30);
+		
+		assertEquals(Range.of(0, 39), extension.getQueryRange());
+		assertEquals(Range.of(30, 69), extension.getSubjectRange());
+		assertEquals(sut.score(subject), extension.getScore());
+	}
+	
+	@Test
+	public void extendWithGap(){
+		String queryString = randomProtein(40);
+		ProteinSequence query = protein(queryString);
+		ProteinSequence subject = protein(queryString.substring(0, 20) + "WWW" + queryString.substring(20));
+		
+		ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+		ProteinQueryAligner.XDropExtension extension = sut.extend(subject, 5, 5, 30);
+		
+		assertEquals(Range.of(0, 39), extension.getQueryRange());
+		assertEquals(Range.of(0, 42), extension.getSubjectRange());
+		assertEquals(sut.score(subject), extension.getScore());
+	}
+	
+	@Test
+	public void extendStopsWhenScoreDropsTooFar(){
+		String left = "ACDEFGHIKL";
+		String right = "MNPQRSTVWY";
+		ProteinSequence query = protein(left + "WWWWWWWWWW" + right);
+		ProteinSequence subject = protein(left + "PPPPPPPPPP" + right);
+		
+		ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+		ProteinQueryAligner.XDropExtension extension = sut.extend(subject, 2, 2, 10);
+		
+		assertEquals(Range.of(0, 9), extension.getQueryRange());
+		assertEquals(Range.of(0, 9), extension.getSubjectRange());
+		
+		assertTrue(sut.extend(subject, 2, 2, 1000).getScore() > extension.getScore());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeXDropShouldThrowException(){
+		ProteinSequence query = protein("ACDEFGHIKL");
+		ProteinQueryAligner.create(query, blosum62, -11, -1).extend(query, 0, 0, -1);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void seedOutsideSubjectShouldThrowException(){
+		ProteinSequence query = protein("ACDEFGHIKL");
+		ProteinQueryAligner.create(query, blosum62, -11, -1).extend(query, 0, 10, 10);
+	}
+	
+	@Test
+	public void scanReturnsHitsAboveMinScoreBestFirst(){
+		String queryString = randomProtein(50);
+		ProteinSequence query = protein(queryString);
+		List<DataStoreEntry<ProteinSequence>> subjects = new ArrayList<>();
+		for(int i=0; i< 50; i++){
+			String middle = i % 5 ==0 ? queryString.substring(0, 20 + i/5 *3) : "";
+			subjects.add(new DataStoreEntry<>("protein"+i, protein(randomProtein(30) + middle + randomProtein(30))));
+		}
+		ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+		List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> hits = sut.scan(subjects.stream(), 80);
+		
+		assertEquals(10, hits.size());
+		assertEquals("protein45", hits.get(0).getId());
+		float previous = Float.MAX_VALUE;
+		for(BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment> hit : hits){
+			assertTrue(hit.getScore() >= 80);
+			assertTrue(hit.getScore() <= previous);
+			previous = hit.getScore();
+			assertTrue(hit.getAlignment().getAlignmentLength() >= 20);
+		}
+	}
+	
+	@Test
+	public void scanInGivenPoolIsSameAsCommonPool(){
+		String queryString = randomProtein(50);
+		ProteinSequence query = protein(queryString);
+		List<DataStoreEntry<ProteinSequence>> subjects = new ArrayList<>();
+		for(int i=0; i< 30; i++){
+			String middle = i % 3 ==0 ? queryString.substring(i/3, 30) : "";
+			subjects.add(new DataStoreEntry<>("protein"+i, protein(randomProtein(20) + middle + randomProtein(20))));
+		}
+		ProteinQueryAligner sut = ProteinQueryAligner.create(query, blosum62, -11, -1);
+		List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> expected = sut.scan(subjects.stream(), 40);
+		
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try{
+			List<BatchPairwiseAligner.Hit<ProteinPairwiseSequenceAlignment>> actual = sut.scan(subjects.stream(), 40, pool);
+			assertEquals(expected.size(), actual.size());
+			for(int i=0; i< expected.size(); i++){
+				assertEquals(expected.get(i).getId(), actual.get(i).getId());
+				assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 0F);
+				assertEquals(expected.get(i).getAlignment(), actual.get(i).getAlignment());
+			}
+		}finally{
+			pool.shutdown();
+		}
+	}
+}
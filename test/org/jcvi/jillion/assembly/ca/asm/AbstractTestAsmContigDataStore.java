@@ -25,6 +25,7 @@ import static org.junit.Assert.assertFalse;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Map;
 
 import org.jcvi.jillion.assembly.AssemblyUtil;
 import org.jcvi.jillion.assembly.ca.asm.AsmAssembledRead;
@@ -40,10 +41,32 @@ import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.junit.Test;
 
 public abstract class AbstractTestAsmContigDataStore extends AbstractTestAsmDataStore<AsmContigDataStore>{
 	
+	@Test
+	public void getAllMatchesGet() throws Exception{
+		File asmFile = resources.getFile("files/giv_15048.asm");
+		File frgFile = resources.getFile("files/giv_15048.frg");
+		FragmentDataStore frgDataStore = IndexedFragmentDataStore.create(frgFile);
+		AsmContigDataStore datastore = createDataStore(asmFile, frgDataStore);
+		
+		Map<String, AsmContig> actual = datastore.getAll(Arrays.asList("not in datastore", "7180000000001"));
+		assertEquals(1, actual.size());
+		AsmContig expected = datastore.get("7180000000001");
+		AsmContig contig = actual.get("7180000000001");
+		assertEquals(expected.getConsensusSequence(), contig.getConsensusSequence());
+		assertEquals(expected.getNumberOfReads(), contig.getNumberOfReads());
+		try(StreamingIterator<AsmAssembledRead> iter = expected.getReadIterator()){
+			while(iter.hasNext()){
+				AsmAssembledRead read = iter.next();
+				assertEquals(read, contig.getRead(read.getId()));
+			}
+		}
+	}
+	
 	@Test
 	public void parseFluAssembly() throws Exception{
 		File asmFile = resources.getFile("files/giv_15048.asm");
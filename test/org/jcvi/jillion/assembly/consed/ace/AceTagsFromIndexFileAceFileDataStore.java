@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.consed.ace;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+/**
+ * Tags are lazily parsed when the datastore
+ * is created from an existing index file.
+ * @author dkatzel
+ *
+ */
+public class AceTagsFromIndexFileAceFileDataStore extends AbstractAceTagsFromAceFileDataStore{
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	@Override
+	protected AceFileDataStore createDataStoreFor(File aceFile) throws IOException {
+		File indexFile = new File(tmpDir.getRoot(), "sample.ace.idx");
+		//first call writes the index
+		new AceFileDataStoreBuilder(aceFile)
+					.indexFile(indexFile)
+					.build()
+					.close();
+		
+		return new AceFileDataStoreBuilder(aceFile)
+						.indexFile(indexFile)
+						.build();
+	}
+
+}
@@ -69,18 +69,22 @@ import org.junit.runners.Suite.SuiteClasses;
        TestFilteredDefaultAceFileDataStore.class,
        TestFilteredIndexedAceFileDataStore.class,
        TestFilteredLargeIndexedAceFileDataStore.class,
+       TestFilteredIndexFileAceFileDataStore.class,
+       TestAceFileIndex.class,
        
        TestAceFileParserWithInvalidGapChar.class,
        
        AceTagsFromDefaultAceFileDataStore.class,
        AceTagsFromIndexedAceFileDataStore.class,
        AceTagsFromLargeAceFileDataStore.class,
+       AceTagsFromIndexFileAceFileDataStore.class,
        
        AceTagsFromAceFileDataStoreConsensusTagNoTimeInfo.class,
        
        TestDefaultAceFileDataStore2.class,
        TestIndexedAceFileDataStore2.class,
        TestLargeAceFileDataStore2.class,
+       TestIndexFileAceFileDataStore.class,
        
        TestAceTestUtil.class,
        TestAceContigVisitorAdapter.class,
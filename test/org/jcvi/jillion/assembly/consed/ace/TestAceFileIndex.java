@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.consed.ace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jcvi.jillion.core.datastore.DataStoreFilters;
+import org.jcvi.jillion.core.io.IOUtil;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestAceFileIndex {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private File aceFile;
+	private File indexFile;
+	
+	@Before
+	public void copyAceFile() throws IOException{
+		ResourceHelper resources = new ResourceHelper(TestAceFileIndex.class);
+		aceFile = new File(tmpDir.getRoot(), "fluSample.ace");
+		Files.copy(resources.getFile("files/fluSample.ace").toPath(), aceFile.toPath());
+		indexFile = new File(tmpDir.getRoot(), "fluSample.ace.idx");
+	}
+	
+	@Test
+	public void writeAndReadRoundTrip() throws IOException{
+		AceFileIndex.ContigEntry contig1 = new AceFileIndex.ContigEntry("contig1", 10, 5);
+		AceFileIndex.ContigEntry contig2 = new AceFileIndex.ContigEntry("contig2", 1234567890123L, 42);
+		
+		new AceFileIndex(aceFile, Arrays.asList(contig1, contig2), 99).write(indexFile);
+		
+		AceFileIndex actual = AceFileIndex.read(indexFile);
+		assertTrue(actual.isUpToDate(aceFile));
+		assertEquals(99, actual.getTagSectionOffset());
+		List<AceFileIndex.ContigEntry> contigs = actual.getContigs();
+		assertEquals(2, contigs.size());
+		assertEquals("contig2", contigs.get(1).getId());
+		assertEquals(1234567890123L, contigs.get(1).getOffset());
+		assertEquals(42, contigs.get(1).getNumberOfReads());
+	}
+	
+	@Test(expected = IOException.class)
+	public void readingNonIndexFileShouldThrowIOException() throws IOException{
+		AceFileIndex.read(aceFile);
+	}
+	
+	@Test
+	public void createWritesIndexOfAllContigsInFileOrder() throws IOException{
+		assertFalse(indexFile.exists());
+		IndexedAceFileDataStore.create(aceFile, indexFile, DataStoreFilters.alwaysAccept()).close();
+		
+		AceFileIndex index = AceFileIndex.read(indexFile);
+		assertTrue(index.isUpToDate(aceFile));
+		
+		AceFileDataStore expected = LargeAceFileDataStore.create(aceFile);
+		try(StreamingIterator<String> ids = expected.idIterator()){
+			for(AceFileIndex.ContigEntry contig : index.getContigs()){
+				assertEquals(ids.next(), contig.getId());
+			}
+			assertFalse(ids.hasNext());
+		}finally{
+			expected.close();
+		}
+	}
+	
+	@Test
+	public void staleIndexIsRebuilt() throws IOException{
+		IndexedAceFileDataStore.create(aceFile, indexFile, DataStoreFilters.alwaysAccept()).close();
+		assertTrue(aceFile.setLastModified(aceFile.lastModified() - 60_000));
+		assertFalse(AceFileIndex.read(indexFile).isUpToDate(aceFile));
+		
+		assertContigsMatch(IndexedAceFileDataStore.create(aceFile, indexFile, DataStoreFilters.alwaysAccept()));
+		assertTrue(AceFileIndex.read(indexFile).isUpToDate(aceFile));
+	}
+	
+	@Test
+	public void invalidIndexIsRebuilt() throws IOException{
+		Files.write(indexFile.toPath(), "not an index".getBytes(IOUtil.UTF_8));
+		
+		assertContigsMatch(IndexedAceFileDataStore.create(aceFile, indexFile, DataStoreFilters.alwaysAccept()));
+		assertTrue(AceFileIndex.read(indexFile).isUpToDate(aceFile));
+	}
+	
+	private void assertContigsMatch(AceFileDataStore actual) throws IOException{
+		AceFileDataStore expected = DefaultAceFileDataStore.create(aceFile, DataStoreFilters.alwaysAccept());
+		try(StreamingIterator<AceContig> iter = expected.iterator()){
+			assertEquals(expected.getNumberOfRecords(), actual.getNumberOfRecords());
+			assertEquals(expected.getNumberOfTotalReads(), actual.getNumberOfTotalReads());
+			while(iter.hasNext()){
+				AceContig contig = iter.next();
+				assertEquals(contig, actual.get(contig.getId()));
+			}
+		}finally{
+			expected.close();
+			actual.close();
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.consed.ace;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jcvi.jillion.core.datastore.DataStoreFilter;
+import org.jcvi.jillion.core.datastore.DataStoreFilters;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+/**
+ * The index file contains all the contigs
+ * so it can be reused with a different filter.
+ * @author dkatzel
+ *
+ */
+public class TestFilteredIndexFileAceFileDataStore extends AbstractTestFilteredAceDataStore{
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	@Override
+	protected AceFileDataStore create(File aceFile, DataStoreFilter filter) throws IOException {
+		File indexFile = new File(tmpDir.getRoot(), "fluSample.ace.idx");
+		IndexedAceFileDataStore.create(aceFile, indexFile, DataStoreFilters.alwaysAccept()).close();
+		
+		return IndexedAceFileDataStore.create(aceFile, indexFile, filter);
+	}
+
+}
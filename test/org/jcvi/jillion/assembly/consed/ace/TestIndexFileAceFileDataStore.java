@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.consed.ace;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jcvi.jillion.core.datastore.DataStoreFilters;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+public class TestIndexFileAceFileDataStore extends TestAbstractAceParserMatchesAce2ContigMultipleContigs{
+
+	private static File indexFile;
+	
+	@BeforeClass
+	public static void createAceDataStoreFor()
+			throws IOException {
+		indexFile = File.createTempFile("aceIndex", ".idx");
+		//make sure we parse the ace file the first time
+		indexFile.delete();
+		IndexedAceFileDataStore.create(ACE_FILE, indexFile, DataStoreFilters.alwaysAccept()).close();
+		
+		sut= IndexedAceFileDataStore.create(ACE_FILE, indexFile, DataStoreFilters.alwaysAccept());
+	}
+	
+	@AfterClass
+	public static void deleteIndexFile(){
+		indexFile.delete();
+	}
+
+}
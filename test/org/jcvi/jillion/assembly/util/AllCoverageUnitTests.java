@@ -42,7 +42,9 @@ import org.junit.runners.Suite.SuiteClasses;
         TestCoverageMapCollectorMaxCoverage.class,
         
         TestCoverageMapBuilderMinCoverage.class,
-        TestCoverageMapCollectorMinCoverage.class
+        TestCoverageMapCollectorMinCoverage.class,
+        TestCoverageDepthArray.class,
+        TestMutableCoverageMap.class
         
     }
     )
@@ -43,6 +43,7 @@ import org.junit.runners.Suite.SuiteClasses;
         
         TestDefaultSliceMap.class,
         TestCompactedSliceMap.class,
+        TestReadIndexedSliceMap.class,
         TestSliceMapBuilderUsingQualityDataStore.class,
         TestSliceMapBuilderUsingDefaultQualities.class,
         
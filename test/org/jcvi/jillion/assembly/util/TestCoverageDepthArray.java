@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.sam.SamParserFactory;
+import org.junit.Test;
+
+public class TestCoverageDepthArray {
+
+	private final Range region = Range.of(0, 129);
+	
+	private List<Range> randomReads(int numberOfReads){
+		Random random = new Random(42);
+		List<Range> reads = new ArrayList<>(numberOfReads);
+		for(int i=0; i< numberOfReads; i++){
+			int start = random.nextInt(90);
+			reads.add(new Range.Builder(1 + random.nextInt(30)).shift(start).build());
+		}
+		return reads;
+	}
+	
+	@Test
+	public void noReadsAllZero(){
+		CoverageDepthArray sut = CoverageDepthArray.create(Collections.<Range>emptyList().stream(), region);
+		
+		assertEquals(new CoverageMapStats(0, 0, 0D), sut.getStats());
+		assertEquals(Arrays.asList(region), sut.getLowCoverageRanges(1));
+		assertArrayEquals(new long[]{130}, sut.getHistogram());
+	}
+	
+	@Test
+	public void depthsMatchCoverageMap(){
+		List<Range> reads = randomReads(500);
+		CoverageMap<Range> coverageMap = new CoverageMapBuilder<>(reads).build();
+		
+		CoverageDepthArray sut = CoverageDepthArray.create(reads.stream(), region);
+		for(CoverageRegion<Range> coverageRegion : coverageMap){
+			for(long i = coverageRegion.asRange().getBegin(); i<= coverageRegion.asRange().getEnd(); i++){
+				assertEquals(coverageRegion.getCoverageDepth(), sut.getDepth(i));
+			}
+		}
+	}
+	
+	@Test
+	public void parallelStreamSameAsSerial(){
+		List<Range> reads = randomReads(5000);
+		
+		assertArrayEquals(CoverageDepthArray.create(reads.stream(), region).toArray(),
+				CoverageDepthArray.create(reads.parallelStream(), region).toArray());
+	}
+	
+	@Test
+	public void readsOutsideRegionAreClipped(){
+		CoverageDepthArray sut = CoverageDepthArray.create(
+				Arrays.asList(Range.of(-10, 5), Range.of(3, 8), Range.of(9, 20), Range.of(50, 60)).stream(),
+				Range.of(0, 9));
+		
+		assertArrayEquals(new int[]{1,1,1,2,2,2,1,1,1,1}, sut.toArray());
+		assertEquals(new CoverageMapStats(1, 2, 1.3D), sut.getStats());
+		assertArrayEquals(new long[]{0,7,3}, sut.getHistogram());
+		assertEquals(Arrays.asList(Range.of(0,2), Range.of(6,9)), sut.getLowCoverageRanges(2));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void depthOutsideRegionShouldThrowException(){
+		CoverageDepthArray.create(randomReads(10).stream(), region).getDepth(130);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void mergeDifferentRegionsShouldThrowException(){
+		new CoverageDepthArray.Builder(region).merge(new CoverageDepthArray.Builder(Range.of(0, 10)));
+	}
+	
+	@Test
+	public void fromSamFile() throws IOException{
+		ResourceHelper resources = new ResourceHelper(org.jcvi.jillion.sam.TestBamDataStore.class);
+		CoverageDepthArray sut = CoverageDepthArray.create(SamParserFactory.create(resources.getFile("example.sam")),
+				"ref", Range.of(0, 44));
+		//r001 [6,21], r002 [8,17], r003 [8,13], r004 [15,39], r003 [28,32], r001 [36,44]
+		assertEquals(0, sut.getDepth(5));
+		assertEquals(3, sut.getDepth(8));
+		assertEquals(3, sut.getDepth(16));
+		assertEquals(2, sut.getDepth(30));
+		assertEquals(1, sut.getDepth(44));
+		assertEquals(Arrays.asList(Range.of(0,5)), sut.getLowCoverageRanges(1));
+	}
+}
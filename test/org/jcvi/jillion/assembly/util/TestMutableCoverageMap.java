@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestMutableCoverageMap {
+
+	private final Random random = new Random(97);
+	
+	private final MutableCoverageMap<Range> sut = new MutableCoverageMap<>();
+	private final List<Range> elements = new ArrayList<>();
+	
+	private Range randomRange(){
+		return new Range.Builder(1 + random.nextInt(40)).shift(random.nextInt(200) - 20).build();
+	}
+	
+	private int expectedDepth(long offset){
+		int depth =0;
+		for(Range r : elements){
+			if(r.getBegin() <= offset && r.getEnd() >= offset){
+				depth++;
+			}
+		}
+		return depth;
+	}
+	
+	private void assertMatchesBruteForce(){
+		assertEquals(elements.size(), sut.getNumberOfElements());
+		for(long i=-30; i< 230; i++){
+			assertEquals(expectedDepth(i), sut.getDepth(i));
+		}
+		for(int i=0; i< 20; i++){
+			Range query = randomRange();
+			int max = 0;
+			int min = Integer.MAX_VALUE;
+			for(long j= query.getBegin(); j<= query.getEnd(); j++){
+				max = Math.max(max, expectedDepth(j));
+				min = Math.min(min, expectedDepth(j));
+			}
+			assertEquals(query.toString(), max, sut.getMaxDepth(query));
+			assertEquals(query.toString(), min, sut.getMinDepth(query));
+			
+			List<Range> expectedIntersecting = elements.stream()
+													.filter(r -> r.intersects(query))
+													.sorted(Range.Comparators.ARRIVAL)
+													.collect(Collectors.toList());
+			List<Range> actualIntersecting = sut.getElementsWhichIntersect(query);
+			actualIntersecting.sort(Range.Comparators.ARRIVAL);
+			assertEquals(expectedIntersecting, actualIntersecting);
+		}
+		
+		CoverageMap<Range> expected = new CoverageMapBuilder<>(elements).build();
+		assertEquals(expected.getNumberOfRegions(), sut.getNumberOfRegions());
+		for(int i=0; i< expected.getNumberOfRegions(); i++){
+			assertEquals(expected.getRegion(i).asRange(), sut.getRegion(i).asRange());
+			assertEquals(expected.getRegion(i).getCoverageDepth(), sut.getRegion(i).getCoverageDepth());
+		}
+		assertEquals(expected.getStats(), sut.getStats());
+		for(long i=-30; i< 230; i++){
+			assertEquals(expected.getRegionWhichCovers(i), sut.getRegionWhichCovers(i));
+		}
+		for(int i=0; i< 20; i++){
+			Range query = randomRange();
+			assertEquals(query.toString(), expected.getRegionsWhichIntersect(query), sut.getRegionsWhichIntersect(query));
+			assertEquals(query.toString(), expected.regions(query).collect(Collectors.toList()),
+											sut.regions(query).collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	public void empty(){
+		assertTrue(sut.isEmpty());
+		assertEquals(0, sut.getDepth(5));
+		assertEquals(0, sut.getMaxDepth(Range.of(0, 10)));
+		assertEquals(0, sut.getNumberOfRegions());
+		assertTrue(sut.getElementsWhichIntersect(Range.of(0, 10)).isEmpty());
+	}
+	
+	@Test
+	public void emptyRangesAreIgnored(){
+		assertFalse(sut.add(new Range.Builder(0).shift(5).build()));
+		assertTrue(sut.isEmpty());
+	}
+	
+	@Test
+	public void addOnly(){
+		for(int i=0; i< 200; i++){
+			Range r = randomRange();
+			elements.add(r);
+			assertTrue(sut.add(r));
+		}
+		assertMatchesBruteForce();
+	}
+	
+	@Test
+	public void addAndRemove(){
+		for(int round=0; round< 10; round++){
+			for(int i=0; i< 50; i++){
+				Range r = randomRange();
+				elements.add(r);
+				sut.add(r);
+			}
+			for(int i=0; i< 30; i++){
+				Range r = elements.remove(random.nextInt(elements.size()));
+				assertTrue(sut.remove(r));
+			}
+			assertMatchesBruteForce();
+		}
+	}
+	
+	@Test
+	public void duplicateElements(){
+		Range r = Range.of(10, 20);
+		sut.add(r);
+		sut.add(r);
+		assertEquals(2, sut.getDepth(15));
+		assertTrue(sut.remove(r));
+		assertEquals(1, sut.getDepth(15));
+		assertTrue(sut.remove(r));
+		assertEquals(0, sut.getDepth(15));
+		assertFalse(sut.remove(r));
+	}
+	
+	@Test
+	public void snapshotNotAffectedByLaterChanges(){
+		MutableCoverageMap<Range> map = new MutableCoverageMap<>(Arrays.asList(Range.of(0, 9), Range.of(5, 14)));
+		CoverageMap<Range> snapshot = map.snapshot();
+		assertEquals(3, snapshot.getNumberOfRegions());
+		
+		map.add(Range.of(20, 29));
+		assertEquals(3, snapshot.getNumberOfRegions());
+		assertEquals(5, map.getNumberOfRegions());
+		assertEquals(Range.of(15, 19), map.getRegionWhichCovers(17).asRange());
+	}
+	
+	@Test
+	public void abuttingElementsAreSeparateRegions(){
+		MutableCoverageMap<Range> map = new MutableCoverageMap<>(Arrays.asList(Range.of(0, 9), Range.of(10, 19)));
+		assertEquals(1, map.getDepth(9));
+		assertEquals(1, map.getDepth(10));
+		assertEquals(Range.of(0, 9), map.getRegionWhichCovers(5).asRange());
+		assertEquals(Range.of(10, 19), map.getRegionWhichCovers(10).asRange());
+		assertEquals(2, map.getRegionsWhichIntersect(Range.of(0, 100)).size());
+		
+		map.remove(Range.of(10, 19));
+		assertEquals(Range.of(0, 9), map.getRegionWhichCovers(5).asRange());
+		assertEquals(null, map.getRegionWhichCovers(10));
+		assertEquals(1, map.getRegionsWhichIntersect(Range.of(0, 100)).size());
+	}
+}
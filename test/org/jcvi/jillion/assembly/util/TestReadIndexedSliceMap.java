@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.jcvi.jillion.assembly.AssembledRead;
+import org.jcvi.jillion.assembly.Contig;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.internal.assembly.DefaultContig;
+import org.jcvi.jillion.internal.assembly.util.CompactedSliceMap;
+import org.jcvi.jillion.internal.assembly.util.ReadIndexedSliceMap;
+import org.junit.Test;
+/**
+ * @author dkatzel
+ *
+ *
+ */
+public class TestReadIndexedSliceMap extends AbstractTestSliceMap{
+
+    @Override
+    protected SliceMap createSliceMapFor(Contig<AssembledRead> contig,
+            QualitySequenceDataStore qualityDatastore,
+            GapQualityValueStrategy qualityValueStrategy) {
+
+        try {
+            return ReadIndexedSliceMap.create(contig.getReadIterator(), contig.getConsensusSequence(),
+            		qualityDatastore, qualityValueStrategy);
+        } catch (DataStoreException e) {
+            throw new IllegalStateException("error creating sliceMap",e);
+        }
+    }
+    
+    @Test
+    public void sameSlicesAsCompactedSliceMap() throws DataStoreException{
+    	Random random = new Random(1234);
+    	String consensus = randomBases(random, 300);
+    	DefaultContig.Builder builder = new DefaultContig.Builder("contigId", consensus);
+    	for(int i=0; i< 200; i++){
+    		int start = random.nextInt(250);
+    		int length = 1 + random.nextInt(Math.min(80, consensus.length() - start));
+    		String bases = consensus.substring(start, start + length);
+    		if(random.nextInt(10) ==0){
+    			//add a SNP so not all elements match the consensus
+    			bases = "N" + bases.substring(1);
+    		}
+    		builder.addRead("read_"+i, start, bases, 
+    				random.nextBoolean()? Direction.FORWARD : Direction.REVERSE);
+    	}
+    	Contig<AssembledRead> contig = builder.build();
+    	PhredQuality quality = PhredQuality.valueOf(25);
+    	
+    	SliceMap expected = CompactedSliceMap.create(contig.getReadIterator(), 
+    			contig.getConsensusSequence(), quality, GapQualityValueStrategy.LOWEST_FLANKING);
+    	SliceMap actual = ReadIndexedSliceMap.create(contig.getReadIterator(), 
+    			contig.getConsensusSequence(), quality);
+    	
+    	assertEquals(expected.getSize(), actual.getSize());
+    	for(int i=0; i< expected.getSize(); i++){
+    		assertEquals(expected.getSlice(i), actual.getSlice(i));
+    		assertEquals(expected.getSlice(i).hashCode(), actual.getSlice(i).hashCode());
+    	}
+    	assertEquals(expected, actual);
+    	assertEquals(actual, expected);
+    	assertEquals(expected.hashCode(), actual.hashCode());
+    }
+    
+    @Test
+    public void longReadsAmongShortReads() throws DataStoreException{
+    	Random random = new Random(5678);
+    	String consensus = randomBases(random, 2000);
+    	DefaultContig.Builder builder = new DefaultContig.Builder("contigId", consensus);
+    	//scaffold length read first so it sorts before every short read
+    	builder.addRead("long_0", 0, consensus, Direction.FORWARD);
+    	builder.addRead("long_1", 500, consensus.substring(500, 1900), Direction.REVERSE);
+    	for(int i=0; i< 300; i++){
+    		int start = random.nextInt(1950);
+    		int length = 1 + random.nextInt(Math.min(50, consensus.length() - start));
+    		builder.addRead("read_"+i, start, consensus.substring(start, start + length), 
+    				random.nextBoolean()? Direction.FORWARD : Direction.REVERSE);
+    	}
+    	Contig<AssembledRead> contig = builder.build();
+    	PhredQuality quality = PhredQuality.valueOf(30);
+    	
+    	SliceMap expected = CompactedSliceMap.create(contig.getReadIterator(), 
+    			contig.getConsensusSequence(), quality, GapQualityValueStrategy.LOWEST_FLANKING);
+    	SliceMap actual = ReadIndexedSliceMap.create(contig.getReadIterator(), 
+    			contig.getConsensusSequence(), quality);
+    	for(int i=0; i< expected.getSize(); i++){
+    		assertEquals(expected.getSlice(i), actual.getSlice(i));
+    	}
+    	SliceMap sameReads = ReadIndexedSliceMap.create(contig.getReadIterator(), 
+    			contig.getConsensusSequence(), quality);
+    	assertEquals(actual, sameReads);
+    	assertEquals(actual.hashCode(), sameReads.hashCode());
+    	assertEquals(expected.hashCode(), actual.hashCode());
+    }
+    
+    @Test
+    public void emptyContigHasEmptySlices(){
+    	NucleotideSequence consensus = new DefaultContig.Builder("contigId", "ACGT").build().getConsensusSequence();
+    	SliceMap sliceMap = ReadIndexedSliceMap.create(
+    			new DefaultContig.Builder("contigId", "ACGT").build().getReadIterator(), 
+    			consensus, PhredQuality.valueOf(20));
+    	assertEquals(4, sliceMap.getSize());
+    	for(Slice slice : sliceMap){
+    		assertEquals(0, slice.getCoverageDepth());
+    	}
+    }
+    
+    private static String randomBases(Random random, int length){
+    	char[] bases = "ACGT".toCharArray();
+    	StringBuilder builder = new StringBuilder(length);
+    	for(int i=0; i< length; i++){
+    		builder.append(bases[random.nextInt(4)]);
+    	}
+    	return builder.toString();
+    }
+}
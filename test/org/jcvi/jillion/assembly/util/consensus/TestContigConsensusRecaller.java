@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.assembly.util.consensus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.assembly.AssembledRead;
+import org.jcvi.jillion.assembly.Contig;
+import org.jcvi.jillion.assembly.util.GapQualityValueStrategy;
+import org.jcvi.jillion.assembly.util.Slice;
+import org.jcvi.jillion.assembly.util.SliceElement;
+import org.jcvi.jillion.assembly.util.SliceMap;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreException;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.core.qual.QualitySequenceDataStore;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.internal.assembly.DefaultContig;
+import org.jcvi.jillion.internal.assembly.util.ReadIndexedSliceMap;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestContigConsensusRecaller {
+
+	private static final PhredQuality HIGH_QUALITY = PhredQuality.valueOf(30);
+	
+	private final List<ConsensusCaller> callers = Arrays.asList(
+			new ChurchillWatermanConsensusCaller(HIGH_QUALITY),
+			new NoAmbiguityConsensusCaller(HIGH_QUALITY),
+			new AcgtnConsensusCaller(HIGH_QUALITY),
+			new ConicConsensusCaller(HIGH_QUALITY),
+			MostFrequentBasecallConsensusCaller.INSTANCE,
+			//doesn't support primitive columns so uses Slices
+			new TigrAnnotationConsensusCaller(HIGH_QUALITY));
+	
+	private Contig<AssembledRead> contig;
+	private QualitySequenceDataStore qualities;
+	
+	@Before
+	public void createRandomContig(){
+		Random random = new Random(12345);
+		char[] bases = "ACGT".toCharArray();
+		char[] errors = "ACGT-NRY".toCharArray();
+		StringBuilder consensus = new StringBuilder();
+		for(int i=0; i< 500; i++){
+			consensus.append(bases[random.nextInt(bases.length)]);
+		}
+		DefaultContig.Builder builder = new DefaultContig.Builder("contig", consensus.toString());
+		Map<String, QualitySequence> qualityMap = new HashMap<>();
+		for(int i=0; i< 300; i++){
+			int length = 20 + random.nextInt(80);
+			int start = random.nextInt(consensus.length() - length);
+			char[] read = consensus.substring(start, start + length).toCharArray();
+			//don't put gaps on the ends
+			for(int j=1; j< read.length-1; j++){
+				if(random.nextInt(100) < 15){
+					read[j] = errors[random.nextInt(errors.length)];
+				}
+			}
+			String id = "read_"+i;
+			String basecalls = new String(read);
+			builder.addRead(id, start, basecalls, random.nextBoolean()? Direction.FORWARD : Direction.REVERSE);
+			
+			byte[] quals = new byte[basecalls.replace("-", "").length()];
+			for(int j=0; j< quals.length; j++){
+				quals[j] = (byte)(1 + random.nextInt(60));
+			}
+			qualityMap.put(id, new QualitySequenceBuilder(quals).build());
+		}
+		contig = builder.build();
+		qualities = DataStore.of(qualityMap, QualitySequenceDataStore.class);
+	}
+	
+	private SliceMap createSliceMap() throws DataStoreException{
+		return ReadIndexedSliceMap.create(contig.getReadIterator(), contig.getConsensusSequence(), 
+				qualities, GapQualityValueStrategy.LOWEST_FLANKING);
+	}
+	
+	private NucleotideSequence callEachSlice(SliceMap sliceMap, ConsensusCaller caller){
+		NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder();
+		for(Slice slice : sliceMap){
+			builder.append(caller.callConsensus(slice).getConsensus());
+		}
+		return builder.build();
+	}
+	
+	@Test
+	public void primitiveColumnsGiveSameResultAsSlices() throws DataStoreException{
+		int numberOfNucleotides = Nucleotide.values().length;
+		for(Slice slice : createSliceMap()){
+			int[] counts = new int[numberOfNucleotides];
+			int[] qualitySums = new int[numberOfNucleotides];
+			for(SliceElement element : slice){
+				counts[element.getBase().ordinal()]++;
+				qualitySums[element.getBase().ordinal()] += element.getQuality().getQualityScore();
+			}
+			for(ConsensusCaller caller : callers){
+				ConsensusResult expected = caller.callConsensus(slice);
+				ConsensusResult actual;
+				if(caller instanceof MostFrequentBasecallConsensusCaller){
+					actual = ((MostFrequentBasecallConsensusCaller)caller).callConsensus(counts, qualitySums, 0);
+				}else if(caller instanceof TigrAnnotationConsensusCaller){
+					continue;
+				}else{
+					actual = ((AbstractChurchillWatermanConsensusCaller)caller).callConsensus(counts, qualitySums, 0);
+				}
+				assertEquals(caller.getClass().getSimpleName(), expected, actual);
+			}
+		}
+	}
+	
+	@Test
+	public void recallWithQualitiesSameAsSlices() throws DataStoreException{
+		SliceMap sliceMap = createSliceMap();
+		for(ConsensusCaller caller : callers){
+			//small chunks so reads span many chunks
+			ContigConsensusRecaller recaller = new ContigConsensusRecaller.Builder(caller)
+														.qualities(qualities, GapQualityValueStrategy.LOWEST_FLANKING)
+														.chunkSize(37)
+														.build();
+			assertEquals(caller.getClass().getSimpleName(), 
+					callEachSlice(sliceMap, caller), recaller.recallConsensus(contig));
+		}
+	}
+	
+	@Test
+	public void recallWithDefaultQualitySameAsSlices(){
+		PhredQuality quality = PhredQuality.valueOf(20);
+		SliceMap sliceMap = ReadIndexedSliceMap.create(contig.getReadIterator(), contig.getConsensusSequence(), quality);
+		for(ConsensusCaller caller : callers){
+			ContigConsensusRecaller recaller = new ContigConsensusRecaller.Builder(caller)
+														.defaultQuality(quality)
+														.build();
+			assertEquals(caller.getClass().getSimpleName(), 
+					callEachSlice(sliceMap, caller), recaller.recallConsensus(contig));
+		}
+	}
+	
+	@Test
+	public void recallMultipleContigs(){
+		Contig<AssembledRead> other = new DefaultContig.Builder("other", "ACGTACGT")
+												.addRead("read_a", 0, "ACGTACGT")
+												.addRead("read_b", 2,   "GAAC")
+												.addRead("read_c", 2,   "GAAC")
+												.build();
+		ContigConsensusRecaller recaller = new ContigConsensusRecaller.Builder(MostFrequentBasecallConsensusCaller.INSTANCE)
+													.chunkSize(3)
+													.build();
+		Map<String, NucleotideSequence> actual = recaller.recallConsensus(Stream.of(contig, other));
+		
+		assertEquals(2, actual.size());
+		assertEquals(recaller.recallConsensus(contig), actual.get("contig"));
+		assertEquals("ACGAACGT", actual.get("other").toString());
+	}
+	
+	/**
+	 * Only changes how a Slice is called so
+	 * it must be given Slices.
+	 */
+	private static final class SliceOnlyConicCaller extends ConicConsensusCaller{
+		SliceOnlyConicCaller(PhredQuality highQualityThreshold) {
+			super(highQualityThreshold);
+		}
+		@Override
+		protected Nucleotide getConsensus(ConsensusProbabilities normalizedConsensusProbabilities, Slice slice) {
+			Nucleotide consensus = super.getConsensus(normalizedConsensusProbabilities, slice);
+			return consensus.isAmbiguity() ? Nucleotide.Unknown : consensus;
+		}
+	}
+	/**
+	 * Changes both the Slice and count based consensus.
+	 */
+	private static final class CountsAndSliceConicCaller extends ConicConsensusCaller{
+		CountsAndSliceConicCaller(PhredQuality highQualityThreshold) {
+			super(highQualityThreshold);
+		}
+		@Override
+		protected Nucleotide getConsensus(ConsensusProbabilities normalizedConsensusProbabilities, Slice slice) {
+			Nucleotide consensus = super.getConsensus(normalizedConsensusProbabilities, slice);
+			return consensus.isAmbiguity() ? Nucleotide.Unknown : consensus;
+		}
+		@Override
+		protected Nucleotide getConsensus(double[] normalizedErrorProbabilities, int[] counts, int[] qualitySums, int offset) {
+			Nucleotide consensus = super.getConsensus(normalizedErrorProbabilities, counts, qualitySums, offset);
+			return consensus.isAmbiguity() ? Nucleotide.Unknown : consensus;
+		}
+	}
+	
+	@Test
+	public void onlyCallersThatImplementCountsCanCallFromCounts(){
+		assertTrue(new ChurchillWatermanConsensusCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		assertTrue(new NoAmbiguityConsensusCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		assertTrue(new AcgtnConsensusCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		assertTrue(new ConicConsensusCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		assertTrue(new CountsAndSliceConicCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		
+		assertFalse(new TigrAnnotationConsensusCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+		assertFalse(new SliceOnlyConicCaller(HIGH_QUALITY).canCallConsensusFromCounts());
+	}
+	
+	@Test
+	public void subclassesSameAsSlices() throws DataStoreException{
+		SliceMap sliceMap = createSliceMap();
+		for(ConsensusCaller caller : Arrays.asList(new SliceOnlyConicCaller(HIGH_QUALITY), 
+													new CountsAndSliceConicCaller(HIGH_QUALITY))){
+			ContigConsensusRecaller recaller = new ContigConsensusRecaller.Builder(caller)
+														.qualities(qualities, GapQualityValueStrategy.LOWEST_FLANKING)
+														.chunkSize(37)
+														.build();
+			NucleotideSequence expected = callEachSlice(sliceMap, caller);
+			assertEquals(caller.getClass().getSimpleName(), expected, recaller.recallConsensus(contig));
+			for(Nucleotide n : expected){
+				assertTrue(n == Nucleotide.Unknown || !n.isAmbiguity());
+			}
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void chunkSizeMustBePositive(){
+		new ContigConsensusRecaller.Builder(MostFrequentBasecallConsensusCaller.INSTANCE).chunkSize(0);
+	}
+}
@@ -41,6 +41,9 @@ import org.junit.runners.Suite.SuiteClasses;
         TestDataStoreIterator.class,
     
      TestCachedDataStore.class,
+     TestConcurrentCachedDataStore.class,
+     TestDataStoreGetAll.class,
+     TestIndexedDataStoreSpliterator.class,
      TestMapDataStoreAdapter.class,
      TestMapDataStoreAdapterProxy.class,
      TestChainedDataStore.class
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestConcurrentCachedDataStore {
+
+    DataStoreSubInterface delegate;
+    DataStoreSubInterface cache;
+    Long value1 = Long.valueOf(1);
+    Long value2 = Long.valueOf(2);
+    Long value3 = Long.valueOf(3);
+
+    String id_1 = "id_1";
+    String id_2 = "id_2";
+    String id_3 = "id_3";
+    @Before
+    public void setup(){
+        delegate = createMock(DataStoreSubInterface.class);
+        cache = DataStore.concurrentCache(DataStoreSubInterface.class, delegate, 2);
+    }
+    
+    @Test
+    public void getInCacheShouldGetFromCached() throws DataStoreException{        
+        expect(delegate.get(id_1)).andReturn(value1);
+        replay(delegate);
+        assertEquals(value1,cache.get(id_1));
+        assertEquals(value1,cache.get(id_1));
+        verify(delegate);
+    }
+    
+    @Test
+    public void tooManyGetsCausesUnreferencedToBeEvicted() throws DataStoreException{        
+        expect(delegate.get(id_1)).andReturn(value1).times(2);
+        expect(delegate.get(id_2)).andReturn(value2);
+        expect(delegate.get(id_3)).andReturn(value3);
+        replay(delegate);
+        assertEquals(value1,cache.get(id_1));
+        assertEquals(value2,cache.get(id_2));
+        assertEquals(value3,cache.get(id_3));
+        assertEquals(value1,cache.get(id_1));
+        verify(delegate);
+        
+        DataStoreCacheStatistics stats = DataStoreUtil.getCacheStatisticsFrom(cache).get();
+        assertEquals(0, stats.getHitCount());
+        assertEquals(4, stats.getMissCount());
+        assertEquals(4, stats.getLoadCount());
+        assertEquals(2, stats.getEvictionCount());
+        assertEquals(2, stats.getSize());
+        assertEquals(2, stats.getMaxWeight());
+    }
+    
+    @Test
+    public void notInDelegateIsNotCached() throws DataStoreException{
+        expect(delegate.get(id_1)).andReturn(null).times(2);
+        replay(delegate);
+        assertNull(cache.get(id_1));
+        assertNull(cache.get(id_1));
+        verify(delegate);
+    }
+    
+    @Test
+    public void closeShouldCloseDelegateAndClearCache() throws DataStoreException, IOException{
+        expect(delegate.get(id_1)).andReturn(value1).times(2);
+        delegate.close();
+        replay(delegate);
+        assertEquals(value1,cache.get(id_1));
+        cache.close();
+        assertEquals(value1,cache.get(id_1));
+        verify(delegate);
+    }
+    
+    @Test
+    public void clearCacheEarly() throws DataStoreException{
+        assertTrue(DataStoreUtil.isACachedDataStore(cache));
+        expect(delegate.get(id_1)).andReturn(value1).times(2);
+        replay(delegate);
+        assertEquals(value1,cache.get(id_1));
+        assertEquals(value1,cache.get(id_1));
+        DataStoreUtil.clearCacheFrom(cache);
+        assertEquals(value1,cache.get(id_1));
+        verify(delegate);
+    }
+    
+    @Test
+    public void otherMethodsAreDelegated() throws DataStoreException{
+        expect(delegate.getNumberOfRecords()).andReturn(3L);
+        expect(delegate.contains(id_2)).andReturn(true);
+        replay(delegate);
+        assertEquals(3L, cache.getNumberOfRecords());
+        assertTrue(cache.contains(id_2));
+        verify(delegate);
+    }
+    
+    @Test
+    public void delegateExceptionIsThrown() throws DataStoreException{
+        DataStoreException expected = new DataStoreException("expected");
+        expect(delegate.get(id_1)).andThrow(expected);
+        replay(delegate);
+        try{
+            cache.get(id_1);
+            fail("should throw DataStoreException");
+        }catch(DataStoreException e){
+            assertEquals(expected, e);
+        }
+        verify(delegate);
+    }
+    
+    @Test
+    public void coalescedConcurrentMissesOnlyGetFromDelegateOnce() throws Exception{
+        makeThreadSafe(delegate, true);
+        expect(delegate.get(id_1)).andAnswer(() -> {
+            Thread.sleep(200);
+            return value1;
+        });
+        replay(delegate);
+        DataStoreSubInterface sut = new ConcurrentCachedDataStoreBuilder<>(DataStoreSubInterface.class, delegate)
+                                        .maxSize(10)
+                                        .coalesceLoads(true)
+                                        .build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Long>> futures = new ArrayList<>();
+            for(int i=0; i<4; i++){
+                futures.add(executor.submit(() -> sut.get(id_1)));
+            }
+            for(Future<Long> f : futures){
+                assertEquals(value1, f.get(10, TimeUnit.SECONDS));
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+        verify(delegate);
+        assertEquals(1, DataStoreUtil.getCacheStatisticsFrom(sut).get().getLoadCount());
+    }
+    
+    @Test
+    public void maxWeight() throws DataStoreException{
+        expect(delegate.get(id_1)).andReturn(value1);
+        expect(delegate.get(id_3)).andReturn(value3);
+        replay(delegate);
+        DataStoreSubInterface sut = new ConcurrentCachedDataStoreBuilder<>(DataStoreSubInterface.class, delegate)
+                                        .maxWeight(4, Long::longValue)
+                                        .build();
+        sut.get(id_1);
+        sut.get(id_3);
+        DataStoreCacheStatistics stats = DataStoreUtil.getCacheStatisticsFrom(sut).get();
+        assertEquals(4, stats.getWeight());
+        assertEquals(2, stats.getSize());
+        verify(delegate);
+    }
+    
+    @Test
+    public void oldCacheHasNoStatistics(){
+        assertFalse(DataStoreUtil.getCacheStatisticsFrom(DataStore.cache(DataStoreSubInterface.class, delegate, 2)).isPresent());
+    }
+    
+    interface DataStoreSubInterface extends DataStore<Long>{
+        
+    }
+    
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.BatchedLookups;
+import org.jcvi.jillion.internal.core.datastore.FileOffsetMemento;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDataStoreGetAll {
+
+    private final Map<String, Long> map = new LinkedHashMap<>();
+    private DataStore<Long> sut;
+    private ExecutorService executor;
+    
+    @Before
+    public void setup(){
+        map.put("id_1", 1L);
+        map.put("id_2", 2L);
+        map.put("id_3", 3L);
+        sut = DataStore.of(map);
+        executor = Executors.newSingleThreadExecutor();
+    }
+    @After
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void getAllReturnsRequestedOrderAndSkipsMissingAndDuplicates() throws DataStoreException{
+        Map<String, Long> actual = sut.getAll(Arrays.asList("id_3", "missing", "id_1", "id_3"));
+        
+        assertEquals(Arrays.asList("id_3", "id_1"), new ArrayList<>(actual.keySet()));
+        assertEquals(Long.valueOf(3), actual.get("id_3"));
+        assertEquals(Long.valueOf(1), actual.get("id_1"));
+    }
+    
+    @Test
+    public void getAllOfEmptyCollectionIsEmpty() throws DataStoreException{
+        assertTrue(sut.getAll(Collections.emptyList()).isEmpty());
+    }
+    
+    @Test
+    public void getAsyncWithExecutor() throws InterruptedException, ExecutionException{
+        assertEquals(Long.valueOf(2), sut.getAsync("id_2", executor).get());
+        assertNull(sut.getAsync("missing", executor).get());
+    }
+    
+    @Test
+    public void getAllAsync() throws InterruptedException, ExecutionException{
+        Map<String, Long> actual = sut.getAllAsync(Arrays.asList("id_2", "id_1")).get();
+        assertEquals(Arrays.asList("id_2", "id_1"), new ArrayList<>(actual.keySet()));
+    }
+    
+    @Test
+    public void getAsyncExceptionIsWrapped() throws InterruptedException{
+        DataStoreException expected = new DataStoreException("expected");
+        DataStore<Long> datastore = new DataStore<Long>() {
+            //only get() is called by getAsync
+            @Override
+            public Long get(String id) throws DataStoreException {
+                throw expected;
+            }
+            @Override
+            public StreamingIterator<String> idIterator() throws DataStoreException { throw new UnsupportedOperationException(); }
+            @Override
+            public boolean contains(String id) throws DataStoreException { throw new UnsupportedOperationException(); }
+            @Override
+            public long getNumberOfRecords() throws DataStoreException { throw new UnsupportedOperationException(); }
+            @Override
+            public boolean isClosed() { return false; }
+            @Override
+            public StreamingIterator<Long> iterator() throws DataStoreException { throw new UnsupportedOperationException(); }
+            @Override
+            public StreamingIterator<DataStoreEntry<Long>> entryIterator() throws DataStoreException { throw new UnsupportedOperationException(); }
+            @Override
+            public void close() { }
+        };
+        try{
+            datastore.getAsync("id_1", executor).get();
+            fail("should throw exception");
+        }catch(ExecutionException e){
+            assertSame(expected, e.getCause());
+        }
+    }
+    
+    @Test
+    public void concurrentCacheGetAllOnlyLoadsMissing() throws DataStoreException{
+        DataStore<Long> cache = DataStore.concurrentCache(DataStore.class, sut, 10);
+        assertEquals(Long.valueOf(1), cache.get("id_1"));
+        
+        Map<String, Long> actual = cache.getAll(Arrays.asList("id_2", "id_1", "missing"));
+        assertEquals(Arrays.asList("id_2", "id_1"), new ArrayList<>(actual.keySet()));
+        
+        DataStoreCacheStatistics stats = DataStoreUtil.getCacheStatisticsFrom(cache).get();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+    }
+    
+    @Test
+    public void sortByFileOffset(){
+        Map<String, FileOffsetMemento> mementos = new LinkedHashMap<>();
+        mementos.put("a", ()-> 500);
+        mementos.put("b", ()-> 100);
+        mementos.put("c", ()-> 300);
+        
+        List<Entry<String, FileOffsetMemento>> sorted = BatchedLookups.sortByFileOffset(
+                Arrays.asList("a", "missing", "c", "b", "a"), mementos);
+        assertEquals(Arrays.asList("b", "c", "a"), keys(sorted));
+    }
+    
+    @Test
+    public void mementosWithoutOffsetsKeepRequestedOrder(){
+        Map<String, Object> mementos = new LinkedHashMap<>();
+        mementos.put("a", "x");
+        mementos.put("b", "y");
+        
+        List<Entry<String, Object>> sorted = BatchedLookups.sortByFileOffset(Arrays.asList("b", "a"), mementos);
+        assertEquals(Arrays.asList("b", "a"), keys(sorted));
+        assertEquals(2, BatchedLookups.groupBySequentialReads(sorted, Long.MAX_VALUE).size());
+    }
+    
+    @Test
+    public void groupBySequentialReads(){
+        Map<String, FileOffsetMemento> mementos = new LinkedHashMap<>();
+        mementos.put("a", ()-> 0);
+        mementos.put("b", ()-> 10);
+        mementos.put("c", ()-> 20);
+        mementos.put("d", ()-> 1000);
+        mementos.put("e", ()-> 1005);
+        
+        List<Entry<String, FileOffsetMemento>> sorted = BatchedLookups.sortByFileOffset(mementos.keySet(), mementos);
+        List<List<Entry<String, FileOffsetMemento>>> groups = BatchedLookups.groupBySequentialReads(sorted, 100);
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList("a", "b", "c"), keys(groups.get(0)));
+        assertEquals(Arrays.asList("d", "e"), keys(groups.get(1)));
+    }
+    
+    private static <M> List<String> keys(List<Entry<String, M>> entries){
+        List<String> keys = new ArrayList<>(entries.size());
+        for(Entry<String, M> e : entries){
+            keys.add(e.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.datastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.util.ThrowingStream;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.core.datastore.IndexedDataStoreSpliterator;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestIndexedDataStoreSpliterator {
+
+    private final Map<String, Integer> map = new LinkedHashMap<>();
+    private final AtomicInteger numberOfGetAllCalls = new AtomicInteger();
+    private DataStore<Integer> datastore;
+    private List<String> ids;
+    
+    @Before
+    public void setup(){
+        for(int i=0; i< 1000; i++){
+            map.put("id_"+i, i);
+        }
+        ids = new ArrayList<>(map.keySet());
+        DataStore<Integer> delegate = DataStore.of(map);
+        datastore = new ForwardingDataStore(delegate);
+    }
+    
+    private class ForwardingDataStore implements DataStore<Integer>{
+        private final DataStore<Integer> delegate;
+        
+        ForwardingDataStore(DataStore<Integer> delegate){
+            this.delegate = delegate;
+        }
+        @Override
+        public Map<String, Integer> getAll(Collection<String> ids) throws DataStoreException {
+            numberOfGetAllCalls.incrementAndGet();
+            return delegate.getAll(ids);
+        }
+        @Override
+        public StreamingIterator<String> idIterator() throws DataStoreException {
+            return delegate.idIterator();
+        }
+        @Override
+        public Integer get(String id) throws DataStoreException {
+            return delegate.get(id);
+        }
+        @Override
+        public boolean contains(String id) throws DataStoreException {
+            return delegate.contains(id);
+        }
+        @Override
+        public long getNumberOfRecords() throws DataStoreException {
+            return delegate.getNumberOfRecords();
+        }
+        @Override
+        public boolean isClosed() {
+            return delegate.isClosed();
+        }
+        @Override
+        public StreamingIterator<Integer> iterator() throws DataStoreException {
+            return delegate.iterator();
+        }
+        @Override
+        public StreamingIterator<DataStoreEntry<Integer>> entryIterator() throws DataStoreException {
+            return delegate.entryIterator();
+        }
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+    
+    @Test
+    public void sequentialStreamFetchesOneChunkAtATime(){
+        try(ThrowingStream<Integer> stream = IndexedDataStoreSpliterator.records(datastore, ids)){
+            assertEquals(new ArrayList<>(map.values()), stream.collect(Collectors.toList()));
+        }
+        int expectedChunks = (1000 + IndexedDataStoreSpliterator.DEFAULT_CHUNK_SIZE -1)/IndexedDataStoreSpliterator.DEFAULT_CHUNK_SIZE;
+        assertEquals(expectedChunks, numberOfGetAllCalls.get());
+    }
+    
+    @Test
+    public void parallelStreamKeepsEncounterOrder(){
+        try(ThrowingStream<Integer> stream = IndexedDataStoreSpliterator.records(datastore, ids)){
+            assertEquals(new ArrayList<>(map.values()), stream.parallel().collect(Collectors.toList()));
+        }
+    }
+    
+    @Test
+    public void entries(){
+        try(ThrowingStream<DataStoreEntry<Integer>> stream = IndexedDataStoreSpliterator.entries(datastore, ids)){
+            List<DataStoreEntry<Integer>> list = stream.parallel().collect(Collectors.toList());
+            assertEquals(1000, list.size());
+            for(int i=0; i< list.size(); i++){
+                assertEquals("id_"+i, list.get(i).getKey());
+                assertEquals(Integer.valueOf(i), list.get(i).getValue());
+            }
+        }
+    }
+    
+    @Test
+    public void splitsInHalfOnIds(){
+        Spliterator<Integer> sut = new IndexedDataStoreSpliterator<Integer, Integer>(datastore, ids, (id, v)-> v, 10);
+        assertTrue(sut.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        Spliterator<Integer> prefix = sut.trySplit();
+        assertNotNull(prefix);
+        assertEquals(500, prefix.getExactSizeIfKnown());
+        assertEquals(500, sut.getExactSizeIfKnown());
+        
+        List<Integer> firstHalf = new ArrayList<>();
+        prefix.forEachRemaining(firstHalf::add);
+        assertEquals(new ArrayList<>(map.values()).subList(0, 500), firstHalf);
+        assertEquals(0, prefix.estimateSize());
+    }
+    
+    @Test
+    public void doesNotSplitSmallerThanChunk(){
+        Spliterator<Integer> sut = new IndexedDataStoreSpliterator<Integer, Integer>(datastore, ids.subList(0, 15), (id, v)-> v, 10);
+        assertNull(sut.trySplit());
+    }
+    
+    @Test
+    public void doesNotSplitInMiddleOfChunk(){
+        Spliterator<Integer> sut = new IndexedDataStoreSpliterator<Integer, Integer>(datastore, ids, (id, v)-> v, 10);
+        assertTrue(sut.tryAdvance(v-> {}));
+        assertEquals(999, sut.estimateSize());
+        assertNull(sut.trySplit());
+    }
+    
+    @Test
+    public void closedDataStoreShouldThrowException() throws IOException{
+        try(ThrowingStream<Integer> stream = IndexedDataStoreSpliterator.records(datastore, ids)){
+            datastore.close();
+            stream.forEach(v-> {});
+            fail("should throw exception");
+        }catch(DataStoreClosedException expected){
+            //expected
+        }
+    }
+    
+    @Test
+    public void dataStoreExceptionIsWrappedInUncheckedIOException(){
+        DataStoreException expected = new DataStoreException("expected");
+        DataStore<Integer> throwing = new ForwardingDataStore(datastore){
+            @Override
+            public Map<String, Integer> getAll(Collection<String> ids) throws DataStoreException {
+                throw expected;
+            }
+        };
+        try(ThrowingStream<Integer> stream = IndexedDataStoreSpliterator.records(throwing, ids)){
+            stream.forEach(v-> {});
+            fail("should throw exception");
+        }catch(UncheckedIOException e){
+            assertEquals(expected, e.getCause());
+        }
+    }
+    
+    @Test
+    public void missingRecordThrowsExceptionInsteadOfReturningFewerThanSize(){
+        List<String> idsWithMissing = new ArrayList<>(ids);
+        idsWithMissing.add(500, "not_in_datastore");
+        Spliterator<Integer> sut = new IndexedDataStoreSpliterator<Integer, Integer>(datastore, idsWithMissing, (id, v)-> v, 10);
+        assertEquals(1001, sut.getExactSizeIfKnown());
+        try{
+            sut.forEachRemaining(v-> {});
+            fail("should throw exception");
+        }catch(UncheckedIOException e){
+            assertTrue(e.getCause() instanceof DataStoreException);
+            assertTrue(e.getCause().getMessage().contains("not_in_datastore"));
+        }
+    }
+}
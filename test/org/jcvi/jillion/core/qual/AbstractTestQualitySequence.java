@@ -136,4 +136,40 @@ public abstract class AbstractTestQualitySequence {
 	public void avgQualityOnEmptySequenceShouldReturnEmpty(){
 		assertFalse(createEmtpySequence().getAvgQuality().isPresent());
 	}
+
+	@Test
+	public void primitiveStats(){
+		assertEquals(290, sut.getQualitySum());
+		assertEquals(20, sut.getMinQualityValue().getAsInt());
+		assertEquals(60, sut.getMaxQualityValue().getAsInt());
+	}
+
+	@Test
+	public void qualityHistogram(){
+		long[] expected = new long[QualityArrays.HISTOGRAM_LENGTH];
+		expected[20]=4;
+		expected[30]=2;
+		expected[40]=1;
+		expected[50]=1;
+		expected[60]=1;
+		assertArrayEquals(expected, sut.getQualityHistogram());
+	}
+
+	@Test
+	public void windowedMeanQualities(){
+		double[] actual = sut.getWindowedMeanQualities(3);
+		assertEquals(7, actual.length);
+		assertEquals(20D, actual[0], 0.0001D);
+		assertEquals(70/3D, actual[2], 0.0001D);
+		assertEquals(50D, actual[6], 0.0001D);
+	}
+
+	@Test
+	public void primitiveStatsOnEmptySequence(){
+		QualitySequence empty = createEmtpySequence();
+		assertEquals(0, empty.getQualitySum());
+		assertFalse(empty.getMinQualityValue().isPresent());
+		assertFalse(empty.getMaxQualityValue().isPresent());
+		assertEquals(0, empty.getWindowedMeanQualities(3).length);
+	}
 }
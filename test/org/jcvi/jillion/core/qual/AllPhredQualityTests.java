@@ -41,7 +41,8 @@ import org.junit.runners.Suite.SuiteClasses;
         TestQualitySequenceBuilder.class,
         TestReallyLongRunLength.class,
         
-        TestQualityStatisticsSummary.class
+        TestQualityStatisticsSummary.class,
+        TestQualityArrays.class
     }
     )
 public class AllPhredQualityTests {
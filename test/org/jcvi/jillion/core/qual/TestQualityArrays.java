@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.qual;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestQualityArrays {
+
+	private final byte[] qualities = new byte[]{20,20,20,20,30,30,40,50,60};
+	
+	@Test
+	public void decodeSanger(){
+		assertArrayEquals(new byte[]{0, 20, 40, 93}, QualityArrays.decode("!5I~", 33));
+	}
+	
+	@Test
+	public void decodeIntoOffsetOfDestination(){
+		byte[] ascii = "xx!5Ixx".getBytes();
+		byte[] dest = new byte[5];
+		QualityArrays.decode(ascii, 2, 3, 33, dest, 1);
+		assertArrayEquals(new byte[]{0,0,20,40,0}, dest);
+	}
+	
+	@Test
+	public void encodeIsInverseOfDecode(){
+		byte[] encoded = QualityArrays.encode(qualities, 33);
+		assertArrayEquals(qualities, QualityArrays.decode(new String(encoded), 33));
+	}
+	
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void decodeBeyondDestinationShouldThrowException(){
+		QualityArrays.decode("!!!".getBytes(), 0, 3, 33, new byte[2], 0);
+	}
+	
+	@Test
+	public void sum(){
+		assertEquals(290, QualityArrays.sum(qualities));
+		assertEquals(100, QualityArrays.sum(qualities, 4, 7));
+		assertEquals(0, QualityArrays.sum(qualities, 3, 3));
+	}
+	
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void sumBeyondArrayShouldThrowException(){
+		QualityArrays.sum(qualities, 5, 10);
+	}
+	
+	@Test
+	public void sumOfRandomValuesMatchesSimpleLoop(){
+		Random random = new Random(1234);
+		byte[] values = new byte[10_001];
+		long expected =0;
+		for(int i=0; i< values.length; i++){
+			values[i] = (byte) random.nextInt(PhredQuality.MAX_VALUE +1);
+			expected += values[i];
+		}
+		assertEquals(expected, QualityArrays.sum(values));
+	}
+	
+	@Test
+	public void mean(){
+		assertEquals(290/9D, QualityArrays.mean(qualities), 0.0001D);
+		assertEquals(50D, QualityArrays.mean(qualities, 6, 9), 0.0001D);
+		assertTrue(Double.isNaN(QualityArrays.mean(new byte[0])));
+	}
+	
+	@Test
+	public void minAndMax(){
+		assertEquals(20, QualityArrays.min(qualities));
+		assertEquals(60, QualityArrays.max(qualities));
+		assertEquals(30, QualityArrays.min(qualities, 4, 6));
+		assertEquals(40, QualityArrays.max(qualities, 0, 7));
+	}
+	
+	@Test
+	public void minAndMaxOfEmptyShouldReturnNegativeOne(){
+		assertEquals(-1, QualityArrays.min(new byte[0]));
+		assertEquals(-1, QualityArrays.max(new byte[0]));
+	}
+	
+	@Test
+	public void countAtLeast(){
+		assertEquals(5, QualityArrays.countAtLeast(qualities, 30));
+		assertEquals(9, QualityArrays.countAtLeast(qualities, 0));
+		assertEquals(0, QualityArrays.countAtLeast(qualities, 61));
+	}
+	
+	@Test
+	public void histogram(){
+		long[] counts = QualityArrays.histogram(qualities);
+		assertEquals(QualityArrays.HISTOGRAM_LENGTH, counts.length);
+		assertEquals(4, counts[20]);
+		assertEquals(2, counts[30]);
+		assertEquals(1, counts[60]);
+		assertEquals(0, counts[21]);
+	}
+	
+	@Test
+	public void addToHistogramAccumulates(){
+		long[] counts = new long[QualityArrays.HISTOGRAM_LENGTH];
+		QualityArrays.addToHistogram(qualities, 0, 4, counts);
+		QualityArrays.addToHistogram(qualities, 0, qualities.length, counts);
+		assertEquals(8, counts[20]);
+		assertEquals(2, counts[30]);
+	}
+	
+	@Test
+	public void windowedMeans(){
+		double[] means = QualityArrays.windowedMeans(qualities, 3);
+		assertEquals(7, means.length);
+		for(int i=0; i< means.length; i++){
+			assertEquals(QualityArrays.mean(qualities, i, i+3), means[i], 0.0001D);
+		}
+	}
+	
+	@Test
+	public void windowLargerThanArrayShouldReturnEmpty(){
+		assertEquals(0, QualityArrays.windowedMeans(qualities, 10).length);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void windowSizeLessThanOneShouldThrowException(){
+		QualityArrays.windowedMeans(qualities, 0);
+	}
+}
@@ -21,6 +21,7 @@
 package org.jcvi.jillion.core.residue.aa;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
 import org.junit.Test;
@@ -214,5 +216,52 @@ public class TestIupacTranslationTables {
 		Map<Frame,List<Long>> actual = table1.findStops(seq);
 		assertEquals(expected,actual);	    
 	}
+		@Test
+	public void translateAllFrames(){
+		NucleotideSequence seq = new NucleotideSequenceBuilder(dnaString).build();
+		Map<Frame, ProteinSequence> actual = table.translateAllFrames(seq, true);
+		
+		assertEquals(Arrays.asList(Frame.values()), new ArrayList<>(actual.keySet()));
+		assertEquals(expectedAa, actual.get(Frame.ONE));
+		for(Frame frame : Frame.values()){
+			assertEquals(frame.toString(), table.translate(seq, frame, true), actual.get(frame));
+		}
+	}
+	
+	@Test
+	public void translateAllFramesReverseStrand(){
+		NucleotideSequence seq = new NucleotideSequenceBuilder(dnaString)
+										.reverseComplement()
+										.build();
+		assertEquals(expectedAa, table.translateAllFrames(seq, true).get(Frame.NEGATIVE_ONE));
+		assertEquals(expectedAa, table.translate(seq, Frame.NEGATIVE_ONE));
+	}
 	
+	@Test
+	public void translateAllFramesWithoutSubstitutingStartMatchesEachFrame(){
+		NucleotideSequence seq = new NucleotideSequenceBuilder("nr-"+dnaString+"y").build();
+		Map<Frame, ProteinSequence> actual = table.translateAllFrames(seq, false);
+		for(Frame frame : Frame.values()){
+			assertEquals(frame.toString(), table.translate(seq, frame, false), actual.get(frame));
+		}
+	}
+	
+	@Test
+	public void rnaTranslatesSameAsDna(){
+		NucleotideSequence rna = new NucleotideSequenceBuilder(dnaString.replace('T', 'U').replace('t', 'u')).build();
+		assertEquals(expectedAa, table.translate(rna));
+	}
+	
+	@Test
+	public void packedCodonLookupMatchesNucleotideLookup(){
+		for(Nucleotide first : Nucleotide.getDnaValues()){
+			for(Nucleotide second : Nucleotide.getDnaValues()){
+				for(Nucleotide third : Nucleotide.getDnaValues()){
+					int packed = IupacTranslationTables.packTriplet(first.ordinal(), second.ordinal(), third.ordinal());
+					assertSame(table.getCodon(first, second, third), table.getCodon(packed));
+				}
+			}
+		}
+	}
+
 }
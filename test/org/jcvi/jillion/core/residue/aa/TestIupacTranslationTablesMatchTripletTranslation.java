@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.aa;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.Triplet;
+import org.junit.Test;
+/**
+ * Compares the table driven translation in {@link IupacTranslationTables}
+ * to a simple reference translation that walks {@link Frame#asTriplets(NucleotideSequence)}
+ * and looks up one {@link Codon} at a time in the {@link Triplet} Map
+ * the packed table is built from.
+ * 
+ * @author dkatzel
+ *
+ */
+public class TestIupacTranslationTablesMatchTripletTranslation {
+
+	private static final String BASES = "ACGTACGTACGTACGTRYKMSWBDHVN-";
+	
+	private static ProteinSequence translateByTriplet(IupacTranslationTables table, NucleotideSequence sequence, 
+			Frame frame, int length, boolean substituteStart){
+		ProteinSequenceBuilder builder = new ProteinSequenceBuilder();
+		Iterator<Triplet> iter = frame.asTriplets(sequence);
+		boolean seenStart = !substituteStart;
+		long currentOffset=0;
+		while(iter.hasNext() && currentOffset < length){
+			Triplet triplet = iter.next();
+			currentOffset +=3;
+			if(triplet !=null){
+				Codon codon = table.translate(triplet);
+				if(codon.isStart() && !seenStart){
+					seenStart = true;
+					builder.append(AminoAcid.Methionine);
+				}else{
+					builder.append(codon.getAminoAcid());
+				}
+			}
+		}
+		return builder.build();
+	}
+	
+	private static NucleotideSequence randomSequence(Random random, String alphabet, int length){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return new NucleotideSequenceBuilder(builder.toString()).build();
+	}
+	
+	@Test
+	public void ambiguousCodonsInStandardTable(){
+		NucleotideSequence sequence = new NucleotideSequenceBuilder("TTYTTRGCNAGYAGRGGNATHTARNNN---").build();
+		ProteinSequence expected = new ProteinSequenceBuilder("FLASRGI*X-").build();
+		
+		assertEquals(expected, IupacTranslationTables.STANDARD.translate(sequence, Frame.ONE, false));
+		assertEquals(expected, IupacTranslationTables.STANDARD.translateAllFrames(sequence, false).get(Frame.ONE));
+	}
+	
+	@Test
+	public void onlyFirstStartIsSubstituted(){
+		NucleotideSequence sequence = new NucleotideSequenceBuilder("TTGCTGATG").build();
+		
+		assertEquals(new ProteinSequenceBuilder("MLM").build(), IupacTranslationTables.STANDARD.translate(sequence, Frame.ONE, true));
+		assertEquals(new ProteinSequenceBuilder("LLM").build(), IupacTranslationTables.STANDARD.translate(sequence, Frame.ONE, false));
+	}
+	
+	@Test
+	public void randomSequencesWithAmbiguitiesAndGaps(){
+		Random random = new Random(1);
+		for(int i=0; i< 100; i++){
+			int length = random.nextInt(300);
+			NucleotideSequence sequence = randomSequence(random, BASES, length);
+			for(IupacTranslationTables table : IupacTranslationTables.values()){
+				for(boolean substituteStart : new boolean[]{true, false}){
+					Map<Frame, ProteinSequence> allFrames = table.translateAllFrames(sequence, substituteStart);
+					for(Frame frame : Frame.values()){
+						ProteinSequence expected = translateByTriplet(table, sequence, frame, length, substituteStart);
+						String message = table + " " + frame + " " + substituteStart + " " + sequence;
+						
+						assertEquals(message, expected, table.translate(sequence, frame, substituteStart));
+						assertEquals(message, expected, allFrames.get(frame));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void lengthLimits(){
+		Random random = new Random(2);
+		for(int i=0; i< 200; i++){
+			int length = random.nextInt(300);
+			NucleotideSequence sequence = randomSequence(random, BASES, length);
+			for(IupacTranslationTables table : IupacTranslationTables.values()){
+				for(Frame frame : Frame.values()){
+					//includes negative limits and limits past the end
+					int limit = random.nextInt(length +5) -2;
+					boolean substituteStart = random.nextBoolean();
+					assertEquals(table + " " + frame + " " + limit + " " + sequence,
+							translateByTriplet(table, sequence, frame, limit, substituteStart),
+							table.translate(sequence, frame, limit, substituteStart));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void uracilTranslatesAsThymine(){
+		Random random = new Random(3);
+		for(int i=0; i< 50; i++){
+			NucleotideSequence sequence = randomSequence(random, "ACGTACGTN", random.nextInt(300));
+			NucleotideSequence rna = new NucleotideSequenceBuilder(sequence.toString().replace('T', 'U')).build();
+			for(IupacTranslationTables table : IupacTranslationTables.values()){
+				assertEquals(table.translateAllFrames(sequence, true), table.translateAllFrames(rna, true));
+			}
+		}
+	}
+}
@@ -25,6 +25,7 @@
  */
 package org.jcvi.jillion.core.residue.nt;
 
+import org.jcvi.jillion.internal.core.residue.TestNucleotideCodes;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -66,7 +67,13 @@ import org.junit.runners.Suite.SuiteClasses;
         TestNucleotideKmers.class,
         TestNucleotideRangesOfNs.class,
         TestNucleotideSequenceMatches.class,
-        TestNucleotideForEach.class
+        TestNucleotideForEach.class,
+        TestPackedNucleotideSequence.class,
+        TestNucleotidePackedKmers.class,
+        TestKmerCountTable.class,
+        TestNucleotideMotif.class,
+        TestNucleotideMotifSet.class,
+        TestNucleotideCodes.class
     }
 )
 public class AllNucleotideUnitTests {
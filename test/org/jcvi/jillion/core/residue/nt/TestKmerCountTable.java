@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.junit.Test;
+
+public class TestKmerCountTable {
+
+    private static NucleotideSequence seq(String s){
+        return new NucleotideSequenceBuilder(s).build();
+    }
+
+    @Test
+    public void countKmersAndReverseComplementsTogether(){
+        KmerCountTable table = new KmerCountTable(3, 10);
+        table.add(seq("AACGTT"));
+        //AAC GTT are rev comps, ACG CGT are rev comps
+        assertEquals(2, table.getNumberOfDistinctKmers());
+        assertEquals(4, table.getTotalNumberOfKmers());
+        assertEquals(2, table.getCount(seq("AAC")));
+        assertEquals(2, table.getCount(seq("GTT")));
+        assertEquals(2, table.getCount(seq("ACG")));
+        assertEquals(0, table.getCount(seq("AAA")));
+    }
+
+    @Test
+    public void sameCountsAsObjectKmers(){
+        NucleotideSequence s = TestNucleotidePackedKmers.randomSequence(20_000, 7);
+        KmerCountTable table = new KmerCountTable(5, 0);
+        table.add(s);
+
+        Map<Long, Integer> expected = new HashMap<>();
+        s.canonicalPackedKmers(5).forEach(kmer -> expected.merge(kmer, 1, Integer::sum));
+
+        assertEquals(expected.size(), table.getNumberOfDistinctKmers());
+        expected.forEach((kmer, count) -> assertEquals(count.intValue(), table.getCount(kmer)));
+    }
+
+    @Test
+    public void spectrum(){
+        KmerCountTable table = new KmerCountTable(2, 10);
+        table.add(seq("AAAAC"));
+        //AA x3, AC x1 (GT is rev comp of AC)
+        assertArrayEquals(new long[]{0,1,0,1}, table.getSpectrum(3));
+        assertArrayEquals(new long[]{0,1,1}, table.getSpectrum(2));
+    }
+
+    @Test
+    public void largeKUsesHashes(){
+        NucleotideSequence s = TestNucleotidePackedKmers.randomSequence(500, 8);
+        KmerCountTable table = new KmerCountTable(40, 100);
+        table.add(s);
+        table.add(s.toBuilder().reverseComplement().build());
+        assertEquals(461, table.getNumberOfDistinctKmers());
+        assertEquals(922, table.getTotalNumberOfKmers());
+    }
+
+    @Test
+    public void parallelAddsAreThreadSafe(){
+        NucleotideSequence s = TestNucleotidePackedKmers.randomSequence(5_000, 9);
+        KmerCountTable table = new KmerCountTable(11, 100);
+        table.addAll(IntStream.range(0, 20).parallel().mapToObj(i -> s));
+
+        KmerCountTable expected = new KmerCountTable(11, 100);
+        expected.add(s);
+        assertEquals(expected.getNumberOfDistinctKmers(), table.getNumberOfDistinctKmers());
+        assertEquals(20 * expected.getTotalNumberOfKmers(), table.getTotalNumberOfKmers());
+        expected.forEach((kmer, count) -> assertEquals(20 * count, table.getCount(kmer)));
+    }
+
+    @Test
+    public void addDataStore() throws Exception{
+        Map<String, NucleotideSequence> map = new HashMap<>();
+        map.put("read1", seq("ACGTAC"));
+        map.put("read2", seq("ACGNAC"));
+        NucleotideSequenceDataStore datastore = DataStore.of(map, NucleotideSequenceDataStore.class);
+
+        KmerCountTable table = new KmerCountTable(2, 10);
+        table.addAll(datastore);
+        assertEquals(5 + 3, table.getTotalNumberOfKmers());
+    }
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.DirectedRange;
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestNucleotideMotif {
+
+    private static NucleotideSequence seq(String s){
+        return new NucleotideSequenceBuilder(s).build();
+    }
+
+    private static List<Range> toList(java.util.stream.Stream<Range> stream){
+        return stream.collect(Collectors.toList());
+    }
+    /**
+     * Brute force mismatch counting to compare against.
+     */
+    private static List<Range> bruteForce(NucleotideSequence seq, NucleotideSequence motif, int maxMismatches){
+        List<Range> expected = new ArrayList<>();
+        int m = (int) motif.getLength();
+        for(int start=0; start + m <= seq.getLength(); start++){
+            int mismatches=0;
+            for(int i=0; i< m; i++){
+                Nucleotide base = seq.get(start +i);
+                boolean match = !base.isGap() && !base.isAmbiguity() && motif.get(i).getBasesFor().contains(base);
+                if(!match){
+                    mismatches++;
+                }
+            }
+            if(mismatches <= maxMismatches){
+                expected.add(Range.of(start, start + m -1));
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void exactMatchesOverlap(){
+        NucleotideSequence seq = seq("AAAAA");
+        assertEquals(Arrays.asList(Range.of(0,2), Range.of(1,3), Range.of(2,4)),
+                toList(NucleotideMotif.compile("AAA").findMatches(seq)));
+    }
+
+    @Test
+    public void iupacCodesInMotif(){
+        NucleotideSequence seq = seq("GTCAACGTTGACGTAAAC");
+        //HincII GTYRAC
+        assertEquals(Arrays.asList(Range.of(0,5), Range.of(6,11)),
+                toList(NucleotideMotif.compile("GTYRAC").findMatches(seq)));
+    }
+
+    @Test
+    public void ambiguousBasesAndGapsInSequenceNeverMatch(){
+        NucleotideSequence seq = seq("ACGNACG-TACGT");
+        assertEquals(Arrays.asList(Range.of(9,12)),
+                toList(NucleotideMotif.compile("NCGT").findMatches(seq)));
+    }
+
+    @Test
+    public void mismatchesMatchBruteForce(){
+        NucleotideSequence seq = TestNucleotidePackedKmers.randomSequence(2000, 7);
+        NucleotideSequence motif = seq("ACGTRYNAC");
+        for(int k=0; k<=3; k++){
+            assertEquals(bruteForce(seq, motif, k),
+                    toList(new NucleotideMotif.Builder(motif).maxMismatches(k).build().findMatches(seq)));
+        }
+    }
+
+    @Test
+    public void longMotifUsesSameSemantics(){
+        NucleotideSequence seq = TestNucleotidePackedKmers.randomSequence(3000, 11);
+        NucleotideSequence motif = new NucleotideSequenceBuilder(seq, Range.of(1000, 1099))
+                                        .replace(50, Nucleotide.Unknown)
+                                        .build();
+        for(int k=0; k<=2; k++){
+            assertEquals(bruteForce(seq, motif, k),
+                    toList(new NucleotideMotif.Builder(motif).maxMismatches(k).build().findMatches(seq)));
+        }
+    }
+
+    @Test
+    public void subSequenceRangeReturnsFullSequenceCoordinates(){
+        NucleotideSequence seq = seq("GAATTCAAAGAATTCAAAGAATTC");
+        assertEquals(Arrays.asList(Range.of(9,14)),
+                toList(NucleotideMotif.compile("GAATTC").findMatches(seq, Range.of(3, 20))));
+    }
+
+    @Test
+    public void bothStrands(){
+        NucleotideSequence seq = seq("AACCGTTTACGGTTGAATTC");
+        NucleotideMotif motif = new NucleotideMotif.Builder("ACCG")
+                                        .searchBothStrands(true)
+                                        .build();
+        assertEquals(Arrays.asList(
+                        DirectedRange.create(Range.of(1,4), Direction.FORWARD),
+                        DirectedRange.create(Range.of(9,12), Direction.REVERSE)),
+                motif.findDirectedMatches(seq).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void palindromeOnBothStrandsOnlyReturnedOnceAsRange(){
+        NucleotideSequence seq = seq("AAGAATTCAA");
+        NucleotideMotif motif = new NucleotideMotif.Builder("GAATTC")
+                                        .searchBothStrands(true)
+                                        .build();
+        assertEquals(Collections.singletonList(Range.of(2,7)), toList(motif.findMatches(seq)));
+        assertEquals(2, motif.findDirectedMatches(seq).count());
+    }
+
+    @Test
+    public void literalRegexSameAsJavaRegex(){
+        NucleotideSequence seq = seq("AAAAAAACGTACGTTTAAAAAA");
+        for(String literal : new String[]{"AAA", "ACGT", "TT", "GGGG"}){
+            List<Range> expected = new ArrayList<>();
+            java.util.regex.Matcher matcher = Pattern.compile(literal).matcher(seq.toString());
+            while(matcher.find()){
+                expected.add(Range.of(matcher.start(), matcher.end()-1));
+            }
+            assertEquals(literal, expected, toList(seq.findMatches(literal)));
+        }
+    }
+
+    @Test
+    public void findMatchesWithMotifOnSequence(){
+        NucleotideSequence seq = seq("ACGTTTACGT");
+        assertEquals(Arrays.asList(Range.of(0,3), Range.of(6,9)), toList(seq.findMatches(NucleotideMotif.compile("ACGW", 1))));
+    }
+
+    @Test
+    public void isAcgtLiteral(){
+        assertTrue(NucleotideMotif.isAcgtLiteral("ACGT"));
+        assertEquals(false, NucleotideMotif.isAcgtLiteral("AC.T"));
+        assertEquals(false, NucleotideMotif.isAcgtLiteral("acgt"));
+        assertEquals(false, NucleotideMotif.isAcgtLiteral(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gappedMotifShouldThrowIllegalArgumentException(){
+        NucleotideMotif.compile("AC-GT");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMismatchesShouldThrowIllegalArgumentException(){
+        NucleotideMotif.compile("ACGT", -1);
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Direction;
+import org.jcvi.jillion.core.Range;
+import org.junit.Test;
+
+public class TestNucleotideMotifSet {
+
+    private static NucleotideSequence seq(String s){
+        return new NucleotideSequenceBuilder(s).build();
+    }
+
+    private static NucleotideMotifSet.Match match(String name, Range range, Direction dir){
+        return new NucleotideMotifSet.Match(name, range, dir);
+    }
+
+    @Test
+    public void overlappingMotifsAllFound(){
+        NucleotideMotifSet sut = new NucleotideMotifSet.Builder()
+                                        .add("he", "ACG")
+                                        .add("she", "TACG")
+                                        .add("his", "CGT")
+                                        .build();
+        List<NucleotideMotifSet.Match> actual = sut.findMatches(seq("TACGT")).collect(Collectors.toList());
+        assertEquals(Arrays.asList(
+                match("she", Range.of(0,3), Direction.FORWARD),
+                match("he", Range.of(1,3), Direction.FORWARD),
+                match("his", Range.of(2,4), Direction.FORWARD)),
+                actual);
+    }
+
+    @Test
+    public void ambiguousMotifsAreExpanded(){
+        NucleotideMotifSet sut = new NucleotideMotifSet.Builder()
+                                        .add("HincII", "GTYRAC")
+                                        .build();
+        //GTCAAC, GTTGAC, GTCGAC and GTTAAC
+        assertEquals(Arrays.asList(Range.of(0,5), Range.of(6,11), Range.of(12,17), Range.of(18,23)),
+                sut.findMatches(seq("GTCAACGTTGACGTCGACGTTAAC"))
+                    .map(NucleotideMotifSet.Match::getRange)
+                    .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void sameResultsAsIndividualMotifs(){
+        NucleotideSequence seq = TestNucleotidePackedKmers.randomSequence(5000, 3);
+        String[] motifs = new String[]{"ACGT", "GGATCC", "TTNAA", "RGCGCY", "AAAAC"};
+        NucleotideMotifSet.Builder builder = new NucleotideMotifSet.Builder().searchBothStrands(true);
+        long expected=0;
+        for(String m : motifs){
+            builder.add(m, m);
+            expected += new NucleotideMotif.Builder(m)
+                                .searchBothStrands(true)
+                                .build()
+                                .findDirectedMatches(seq)
+                                .count();
+        }
+        assertEquals(expected, builder.build().findMatches(seq).count());
+    }
+
+    @Test
+    public void reverseStrand(){
+        NucleotideMotifSet sut = new NucleotideMotifSet.Builder()
+                                        .add("primer", "ACCG")
+                                        .searchBothStrands(true)
+                                        .build();
+        assertEquals(Arrays.asList(
+                match("primer", Range.of(1,4), Direction.FORWARD),
+                match("primer", Range.of(9,12), Direction.REVERSE)),
+                sut.findMatches(seq("AACCGTTTACGGTT")).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void ambiguousSequenceBasesResetAutomaton(){
+        NucleotideMotifSet sut = new NucleotideMotifSet.Builder()
+                                        .add("m", "ACGT")
+                                        .build();
+        assertEquals(Collections.singletonList(match("m", Range.of(9,12), Direction.FORWARD)),
+                sut.findMatches(seq("ACNGTAC-GACGT")).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void subSequenceRange(){
+        NucleotideMotifSet sut = new NucleotideMotifSet.Builder()
+                                        .add("m", "ACGT")
+                                        .build();
+        assertEquals(Collections.singletonList(match("m", Range.of(4,7), Direction.FORWARD)),
+                sut.findMatches(seq("ACGTACGTACGT"), Range.of(2, 10)).collect(Collectors.toList()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateNameShouldThrowIllegalArgumentException(){
+        new NucleotideMotifSet.Builder().add("m", "ACGT").add("m", "GGGG");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooAmbiguousShouldThrowIllegalArgumentException(){
+        new NucleotideMotifSet.Builder().add("m", "NNNNNNNNNNNN");
+    }
+}
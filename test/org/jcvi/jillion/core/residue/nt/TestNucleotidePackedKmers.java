@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class TestNucleotidePackedKmers {
+
+    private static NucleotideSequence seq(String s){
+        return new NucleotideSequenceBuilder(s).build();
+    }
+
+    private static long[] expectedPackedKmers(NucleotideSequence s, int k, boolean canonical){
+        return s.kmers(k)
+                .map(kmer -> kmer.getValue().toString())
+                .filter(str -> str.matches("[ACGT]+"))
+                .mapToLong(str -> {
+                    long forward = NucleotideKmers.pack(seq(str));
+                    if(!canonical){
+                        return forward;
+                    }
+                    long reverse = NucleotideKmers.reverseComplement(forward, k);
+                    return Long.compareUnsigned(forward, reverse) <=0 ? forward : reverse;
+                })
+                .toArray();
+    }
+
+    @Test
+    public void packAndUnpack(){
+        NucleotideSequence kmer = seq("ACGTTGCA");
+        assertEquals(kmer, NucleotideKmers.unpack(NucleotideKmers.pack(kmer), 8));
+    }
+
+    @Test
+    public void reverseComplement(){
+        long packed = NucleotideKmers.pack(seq("AACG"));
+        assertEquals(seq("CGTT"), NucleotideKmers.unpack(NucleotideKmers.reverseComplement(packed, 4), 4));
+    }
+
+    @Test
+    public void forwardKmers(){
+        NucleotideSequence s = seq("ACGTTGCAAGT");
+        assertArrayEquals(expectedPackedKmers(s, 3, false), NucleotideKmers.packedKmers(s, 3).toArray());
+    }
+
+    @Test
+    public void canonicalKmers(){
+        NucleotideSequence s = seq("ACGTTGCAAGT");
+        assertArrayEquals(expectedPackedKmers(s, 4, true), s.canonicalPackedKmers(4).toArray());
+    }
+
+    @Test
+    public void kmerAndReverseComplementHaveSameCanonicalValue(){
+        assertEquals(NucleotideKmers.canonicalValueOf(seq("AACGT")),
+                NucleotideKmers.canonicalValueOf(seq("ACGTT")));
+    }
+
+    @Test
+    public void ambiguousBasesAndGapsAreSkipped(){
+        NucleotideSequence s = seq("ACGTNACG-TAACGRT");
+        assertArrayEquals(expectedPackedKmers(s, 3, false), NucleotideKmers.packedKmers(s, 3).toArray());
+        assertEquals(6, NucleotideKmers.packedKmers(s, 3).count());
+    }
+
+    @Test
+    public void sequenceShorterThanKHasNoKmers(){
+        assertEquals(0, NucleotideKmers.packedKmers(seq("ACG"), 4).count());
+    }
+
+    @Test
+    public void k32UsesAllBits(){
+        NucleotideSequence s = seq("TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTG");
+        assertArrayEquals(expectedPackedKmers(s, 32, false), NucleotideKmers.packedKmers(s, 32).toArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedKmerLargerThan32ShouldThrowException(){
+        NucleotideKmers.packedKmers(seq("ACGT"), 33);
+    }
+
+    @Test
+    public void forEachReportsOffsets(){
+        List<Integer> offsets = new ArrayList<>();
+        NucleotideKmers.forEachCanonicalKmer(seq("ACGNACGTA"), 3, (i, kmer) -> offsets.add(i));
+        List<Integer> expected = new ArrayList<>();
+        expected.add(0);
+        expected.add(4);
+        expected.add(5);
+        expected.add(6);
+        assertEquals(expected, offsets);
+    }
+
+    @Test
+    public void rollingHashMatchesHashOfEachWindow(){
+        NucleotideSequence s = randomSequence(200, 1);
+        int k = 40;
+        long[] rolled = s.canonicalKmerHashes(k).toArray();
+        assertEquals(s.getLength() - k +1, rolled.length);
+        for(int i=0; i< rolled.length; i++){
+            NucleotideSequence window = s.toBuilder(org.jcvi.jillion.core.Range.ofLength(k).toBuilder().shift(i).build()).build();
+            assertEquals(NucleotideKmers.canonicalValueOf(window), rolled[i]);
+        }
+    }
+
+    @Test
+    public void rollingHashSameForReverseComplement(){
+        NucleotideSequence s = randomSequence(50, 2);
+        NucleotideSequence rc = s.toBuilder().reverseComplement().build();
+        assertEquals(NucleotideKmers.canonicalValueOf(s), NucleotideKmers.canonicalValueOf(rc));
+        assertNotEquals(NucleotideKmers.canonicalValueOf(s), NucleotideKmers.canonicalValueOf(randomSequence(50, 3)));
+    }
+
+    @Test
+    public void parallelStreamSameAsSequential(){
+        NucleotideSequence s = randomSequence(200_000, 4);
+        assertArrayEquals(s.canonicalPackedKmers(21).toArray(),
+                s.canonicalPackedKmers(21).parallel().toArray());
+        assertEquals(s.canonicalKmerHashes(50).boxed().collect(Collectors.toList()),
+                s.canonicalKmerHashes(50).parallel().boxed().collect(Collectors.toList()));
+    }
+
+    static NucleotideSequence randomSequence(int length, long seed){
+        Random random = new Random(seed);
+        char[] bases = new char[]{'A','C','G','T'};
+        StringBuilder builder = new StringBuilder(length);
+        for(int i=0; i< length; i++){
+            builder.append(bases[random.nextInt(4)]);
+        }
+        return seq(builder.toString());
+    }
+}
@@ -200,4 +200,38 @@ public class TestNucleotideSequenceMatches {
     }
     
     
+
+    private static List<Range> matches(NucleotideSequence seq, Pattern pattern, Range range){
+        return seq.findMatches(pattern, range).collect(Collectors.toList());
+    }
+    
+    private static List<Range> matches(NucleotideSequence seq, String regex){
+        return seq.findMatches(regex).collect(Collectors.toList());
+    }
+    
+    @Test
+    public void literalSearchIsSameAsRegexSearchWithAndWithoutUracils(){
+        List<NucleotideSequence> seqs = Arrays.asList(
+                NucleotideSequence.of("ACGTACGTTTACGT"),
+                NucleotideSequence.of("ACGUACGUUUACGT"),
+                NucleotideSequence.of("ACGTTU"),
+                NucleotideSequence.of("UUUU"),
+                NucleotideSequence.of("AUGUUUAUGNNACGT"),
+                PackedNucleotideSequences.of(NucleotideSequence.of("ACGTACGTTTACGT")),
+                PackedNucleotideSequences.of(NucleotideSequence.of("ACGUACGUUUACGT")));
+        
+        for(NucleotideSequence seq : seqs){
+            Range subRange = Range.of(2, seq.getLength() -1);
+            for(String literal : Arrays.asList("T", "TT", "ACG", "ACGT", "GTA")){
+                String message = seq + " " + literal;
+                //a non-capturing group isn't a plain literal so it always uses the regex engine
+                Pattern regex = Pattern.compile("(?:" + literal + ")");
+                
+                assertEquals(message, seq.findMatches(regex).collect(Collectors.toList()), matches(seq, literal));
+                assertEquals(message, matches(seq, Pattern.compile(literal), Range.ofLength(seq.getLength())), matches(seq, literal));
+                assertEquals(message, matches(seq, regex, subRange), seq.findMatches(literal, subRange).collect(Collectors.toList()));
+                assertEquals(message, matches(seq, regex, subRange), matches(seq, Pattern.compile(literal), subRange));
+            }
+        }
+    }
 }
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.residue.nt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPackedNucleotideSequence {
+
+    private static final String BASES = "ACGT-NNNNACRYGT--ACGTTGCAN";
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final NucleotideSequence expected = new NucleotideSequenceBuilder(BASES).build();
+    private final NucleotideSequence sut = PackedNucleotideSequences.of(expected);
+
+    @Test
+    public void sameBases(){
+        assertEquals(BASES, sut.toString());
+        assertEquals(expected.getLength(), sut.getLength());
+        for(int i=0; i< BASES.length(); i++){
+            assertEquals(expected.get(i), sut.get(i));
+        }
+    }
+
+    @Test
+    public void equalsAndHashCodeSameAsDefaultImplementation(){
+        assertEquals(expected, sut);
+        assertEquals(sut, expected);
+        assertEquals(expected.hashCode(), sut.hashCode());
+    }
+
+    @Test
+    public void gaps(){
+        assertEquals(expected.getGapOffsets(), sut.getGapOffsets());
+        assertEquals(expected.getNumberOfGaps(), sut.getNumberOfGaps());
+        assertEquals(expected.getUngappedLength(), sut.getUngappedLength());
+        for(int i=0; i< BASES.length(); i++){
+            assertEquals(expected.isGap(i), sut.isGap(i));
+            assertEquals(expected.getNumberOfGapsUntil(i), sut.getNumberOfGapsUntil(i));
+            assertEquals(expected.getUngappedOffsetFor(i), sut.getUngappedOffsetFor(i));
+        }
+        for(int i=0; i< expected.getUngappedLength(); i++){
+            assertEquals(expected.getGappedOffsetFor(i), sut.getGappedOffsetFor(i));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getBeyondLengthShouldThrowException(){
+        sut.get(BASES.length());
+    }
+
+    @Test
+    public void rangesOfNs(){
+        assertEquals(expected.getRangesOfNs(), sut.getRangesOfNs());
+    }
+
+    @Test
+    public void subRangeIterator(){
+        Range range = Range.of(3, 20);
+        Iterator<Nucleotide> expectedIter = expected.iterator(range);
+        Iterator<Nucleotide> actualIter = sut.iterator(range);
+        while(expectedIter.hasNext()){
+            assertEquals(expectedIter.next(), actualIter.next());
+        }
+        assertFalse(actualIter.hasNext());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void subRangeIteratorBeyondLengthShouldThrowException(){
+        sut.iterator(Range.of(3, BASES.length()));
+    }
+
+    @Test
+    public void findMatches(){
+        assertEquals(expected.findMatches("ACG").collect(Collectors.toList()),
+                sut.findMatches("ACG").collect(Collectors.toList()));
+    }
+
+    @Test
+    public void findMatchesInSubRange(){
+        List<Range> actual = sut.findMatches("ACG", Range.of(2, 25)).collect(Collectors.toList());
+        assertEquals(Arrays.asList(Range.of(17,19)), actual);
+    }
+
+    @Test
+    public void rna(){
+        NucleotideSequence rna = new NucleotideSequenceBuilder("ACGUUN").build();
+        NucleotideSequence packed = PackedNucleotideSequences.of(rna);
+        assertTrue(packed.isRna());
+        assertEquals("ACGUUN", packed.toString());
+    }
+
+    @Test
+    public void emptySequence(){
+        NucleotideSequence packed = PackedNucleotideSequences.of(new NucleotideSequenceBuilder().build());
+        assertEquals(0, packed.getLength());
+        assertFalse(packed.iterator().hasNext());
+    }
+
+    @Test
+    public void writeThenMap() throws IOException{
+        File f = tmp.newFile("seq.packed");
+        PackedNucleotideSequences.write(expected, f);
+
+        NucleotideSequence mapped = PackedNucleotideSequences.map(f);
+        assertEquals(expected, mapped);
+        assertEquals(expected.getGapOffsets(), mapped.getGapOffsets());
+        assertEquals(expected.getRangesOfNs(), mapped.getRangesOfNs());
+    }
+
+    @Test
+    public void writeLongSequenceThenMap() throws IOException{
+        NucleotideSequenceBuilder builder = new NucleotideSequenceBuilder();
+        for(int i=0; i< 5000; i++){
+            builder.append(BASES);
+        }
+        NucleotideSequence longSeq = builder.build();
+        File f = tmp.newFile("long.packed");
+        PackedNucleotideSequences.write(longSeq, f);
+
+        assertEquals(longSeq, PackedNucleotideSequences.map(f));
+    }
+
+    @Test
+    public void builtSequenceIsEqual(){
+        assertEquals(expected, sut.toBuilder().build());
+        assertEquals(expected.toBuilder(Range.of(2,10)).build(), sut.toBuilder(Range.of(2,10)).build());
+    }
+
+    @Test
+    public void serialize() throws Exception{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)){
+            out.writeObject(sut);
+        }
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        NucleotideSequence deserialized = (NucleotideSequence) in.readObject();
+        assertEquals(expected, deserialized);
+    }
+
+    @Test(expected = IOException.class)
+    public void wrapInvalidBufferShouldThrowIOException() throws IOException{
+        PackedNucleotideSequences.wrap(ByteBuffer.wrap(new byte[20]));
+    }
+}
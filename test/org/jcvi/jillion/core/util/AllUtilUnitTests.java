@@ -21,6 +21,7 @@
 package org.jcvi.jillion.core.util;
 
 import org.jcvi.jillion.core.util.iter.TestAbstractBlockingClosableIteratorExceptions;
+import org.jcvi.jillion.core.util.iter.TestBatchingSpliterator;
 import org.jcvi.jillion.core.util.iter.TestArrayIterator;
 import org.jcvi.jillion.core.util.iter.TestByteArrayIterator;
 import org.jcvi.jillion.core.util.iter.TestChainedIterator;
@@ -35,6 +36,7 @@ import org.jcvi.jillion.core.util.iter.TestShortArrayIterator;
 import org.jcvi.jillion.core.util.iter.TestSingleElementIterator;
 import org.jcvi.jillion.core.util.iter.TestStreamingIterator;
 import org.jcvi.jillion.internal.core.util.TestBoundedPriorityQueue;
+import org.jcvi.jillion.internal.core.util.TestConcurrentClockCache;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -65,6 +67,7 @@ import org.junit.runners.Suite.SuiteClasses;
         TestPeekableStreamingIterator.class,
         
         TestAbstractBlockingClosableIteratorExceptions.class,
+        TestBatchingSpliterator.class,
         TestDateUtilElapsedTime.class,
         TestGrowableByteArray.class,
         TestGrowableShortArray.class,
@@ -90,6 +93,7 @@ import org.junit.runners.Suite.SuiteClasses;
         TestChainedIteratorSupplier.class,
         
         TestGenomeStatistics.class,
+        TestLengthHistogram.class,
         
         TestN50Computations.class,
         TestN75Computations.class,
@@ -101,7 +105,8 @@ import org.junit.runners.Suite.SuiteClasses;
         
         TestThrowingStream.class,
         
-        TestBoundedPriorityQueue.class
+        TestBoundedPriorityQueue.class,
+        TestConcurrentClockCache.class
         
     }
     )
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+public class TestLengthHistogram {
+
+	private static final double[] PERCENTAGES = {0.1, 0.25, 0.5, 0.75, 0.9, 0.99};
+	
+	@Test
+	public void empty(){
+		LengthHistogram sut = new LengthHistogram();
+		assertEquals(0, sut.getNumberOfLengths());
+		assertEquals(0, sut.getTotalLength());
+		assertFalse(sut.getMin().isPresent());
+		assertFalse(sut.getMax().isPresent());
+		assertTrue(Double.isNaN(sut.getMean()));
+		assertTrue(Double.isNaN(sut.getMedian()));
+		assertFalse(sut.nX(.5D).isPresent());
+		assertFalse(sut.ngX(100, .5D).isPresent());
+	}
+	
+	@Test
+	public void summaryStatistics(){
+		LengthHistogram sut = LengthHistogram.of(IntStream.of(5, 1, 100_000, 3, 7, 3));
+		assertEquals(6, sut.getNumberOfLengths());
+		assertEquals(100_019, sut.getTotalLength());
+		assertEquals(OptionalInt.of(1), sut.getMin());
+		assertEquals(OptionalInt.of(100_000), sut.getMax());
+		assertEquals(100_019/6D, sut.getMean(), 0.0001D);
+		//sorted 1 3 3 5 7 100000
+		assertEquals(4D, sut.getMedian(), 0D);
+		
+		sut.add(2);
+		assertEquals(3D, sut.getMedian(), 0D);
+	}
+	
+	@Test
+	public void n50ExampleFromWikipedia(){
+		LengthHistogram sut = LengthHistogram.of(IntStream.of(2, 3, 4, 5, 6, 7, 8, 9, 10));
+		assertEquals(OptionalInt.of(8), sut.nX(.5D));
+		assertEquals(OptionalInt.of(8), GenomeStatistics.n50(IntStream.of(2, 3, 4, 5, 6, 7, 8, 9, 10)));
+	}
+	
+	@Test
+	public void notEnoughLengthsToCoverGenomeShouldBeEmpty(){
+		assertFalse(LengthHistogram.of(IntStream.of(1, 2, 3)).ngX(100, .5D).isPresent());
+	}
+	
+	@Test
+	public void randomLengthsMatchSortedComputation(){
+		Random rand = new Random(12345);
+		for(int exactThreshold : new int[]{1, 50, 1000, LengthHistogram.DEFAULT_EXACT_THRESHOLD}){
+			int[] lengths = randomLengths(rand, 20_000);
+			LengthHistogram sut = new LengthHistogram(exactThreshold);
+			for(int length : lengths){
+				sut.add(length);
+			}
+			assertMatchesSorted(lengths, sut);
+		}
+	}
+	
+	@Test
+	public void mergeHistogramsWithDifferentThresholds(){
+		Random rand = new Random(999);
+		int[] first = randomLengths(rand, 10_000);
+		int[] second = randomLengths(rand, 7_000);
+		
+		LengthHistogram a = new LengthHistogram(10);
+		Arrays.stream(first).forEach(a::add);
+		LengthHistogram b = new LengthHistogram(5_000);
+		Arrays.stream(second).forEach(b::add);
+		
+		long secondTotal = b.getTotalLength();
+		
+		int[] all = IntStream.concat(Arrays.stream(first), Arrays.stream(second)).toArray();
+		assertMatchesSorted(all, a.merge(b));
+		//other histogram isn't changed
+		assertMatchesSorted(second, b);
+		assertEquals(secondTotal, b.getTotalLength());
+		
+		LengthHistogram c = new LengthHistogram(5_000);
+		Arrays.stream(second).forEach(c::add);
+		LengthHistogram d = new LengthHistogram(10);
+		Arrays.stream(first).forEach(d::add);
+		assertMatchesSorted(all, c.merge(d));
+	}
+	
+	@Test
+	public void parallelCollectorMatchesSequential(){
+		Random rand = new Random(42);
+		List<Integer> lengths = Arrays.stream(randomLengths(rand, 100_000))
+										.boxed()
+										.collect(Collectors.toList());
+		
+		LengthHistogram sequential = lengths.stream().collect(LengthHistogram.collector(100));
+		LengthHistogram parallel = lengths.parallelStream().collect(LengthHistogram.collector(100));
+		
+		assertEquals(sequential.getNumberOfLengths(), parallel.getNumberOfLengths());
+		assertEquals(sequential.getTotalLength(), parallel.getTotalLength());
+		assertEquals(sequential.getMedian(), parallel.getMedian(), 0D);
+		for(double percentage : PERCENTAGES){
+			assertEquals(sequential.nX(percentage), parallel.nX(percentage));
+			assertEquals(sequential.ngX(10_000_000, percentage), parallel.ngX(10_000_000, percentage));
+		}
+		assertMatchesSorted(lengths.stream().mapToInt(Integer::intValue).toArray(), parallel);
+	}
+	
+	@Test
+	public void sameAsGenomeStatistics(){
+		Random rand = new Random(7);
+		int[] lengths = randomLengths(rand, 5_000);
+		LengthHistogram sut = LengthHistogram.of(LongStream.of(Arrays.stream(lengths).asLongStream().toArray()));
+		for(double percentage : PERCENTAGES){
+			assertEquals(GenomeStatistics.nX(IntStream.of(lengths), percentage), sut.nX(percentage));
+			assertEquals(GenomeStatistics.ngX(IntStream.of(lengths), percentage, 3_000_000), sut.ngX(3_000_000, percentage));
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroLengthShouldThrowIllegalArgumentException(){
+		new LengthHistogram().add(0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void lengthTooBigShouldThrowIllegalArgumentException(){
+		new LengthHistogram().add(Integer.MAX_VALUE + 1L);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidThresholdShouldThrowIllegalArgumentException(){
+		new LengthHistogram(0);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidPercentageShouldThrowIllegalArgumentException(){
+		new LengthHistogram().nX(1D);
+	}
+	
+	private static int[] randomLengths(Random rand, int count){
+		int[] lengths = new int[count];
+		for(int i=0; i< count; i++){
+			//mostly short reads with a long tail
+			lengths[i] = rand.nextInt(10) ==0 ? 1 + rand.nextInt(200_000) : 1 + rand.nextInt(300);
+		}
+		return lengths;
+	}
+	
+	private static void assertMatchesSorted(int[] lengths, LengthHistogram actual){
+		int[] sorted = lengths.clone();
+		Arrays.sort(sorted);
+		long total = 0;
+		for(int length : sorted){
+			total += length;
+		}
+		assertEquals(sorted.length, actual.getNumberOfLengths());
+		assertEquals(total, actual.getTotalLength());
+		assertEquals(OptionalInt.of(sorted[0]), actual.getMin());
+		assertEquals(OptionalInt.of(sorted[sorted.length -1]), actual.getMax());
+		int middle = (sorted.length -1)/2;
+		double expectedMedian = sorted.length %2 ==1 ? sorted[middle] : (sorted[middle] + (double) sorted[middle +1])/2;
+		assertEquals(expectedMedian, actual.getMedian(), 0D);
+		for(double percentage : PERCENTAGES){
+			assertEquals(expectedX(sorted, total, percentage), actual.nX(percentage));
+			assertEquals(expectedX(sorted, 2 * total, percentage), actual.ngX(2 * total, percentage));
+			assertEquals(expectedX(sorted, total /3, percentage), actual.ngX(total /3, percentage));
+		}
+	}
+	
+	private static OptionalInt expectedX(int[] sorted, double divisor, double percentage){
+		long valueSoFar=0;
+		for(int i= sorted.length-1; i>=0; i--){
+			valueSoFar += sorted[i];
+			if( (valueSoFar/divisor) >= percentage){
+				return OptionalInt.of(sorted[i]);
+			}
+		}
+		return OptionalInt.empty();
+	}
+}
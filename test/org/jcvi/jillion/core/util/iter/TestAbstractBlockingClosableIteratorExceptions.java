@@ -29,6 +29,8 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.jcvi.jillion.core.io.IOUtil;
 import org.jcvi.jillion.internal.core.util.iter.AbstractBlockingStreamingIterator;
@@ -152,4 +154,137 @@ public class TestAbstractBlockingClosableIteratorExceptions {
 	        assertFalse(iter.hasNext());
         }
     }
+    
+    private static class CountingIterator extends AbstractBlockingStreamingIterator<Integer>{
+    	private final int numberOfRecords;
+    	private final CountDownLatch finished = new CountDownLatch(1);
+    	private volatile boolean isDaemon;
+    	
+    	CountingIterator(int numberOfRecords, int batchSize, int maxPendingBatches){
+    		super(batchSize, maxPendingBatches);
+    		this.numberOfRecords = numberOfRecords;
+    	}
+    	
+		@Override
+		protected void backgroundThreadRunMethod() {
+			isDaemon = Thread.currentThread().isDaemon();
+			try{
+				for(int i=0; i< numberOfRecords && !isClosed(); i++){
+					blockingPut(Integer.valueOf(i));
+				}
+			}finally{
+				finished.countDown();
+			}
+		}
+    }
+    
+    private void assertIteratesInOrder(int numberOfRecords, int batchSize, int maxPendingBatches){
+    	try(CountingIterator iter = new CountingIterator(numberOfRecords, batchSize, maxPendingBatches)){
+    		iter.start();
+    		for(int i=0; i< numberOfRecords; i++){
+    			assertTrue(iter.hasNext());
+    			assertEquals(i, iter.next().intValue());
+    		}
+    		assertFalse(iter.hasNext());
+    	}
+    }
+    
+    @Test
+    public void partialLastBatch(){
+    	assertIteratesInOrder(1000, 64, 4);
+    }
+    
+    @Test
+    public void exactMultipleOfBatchSize(){
+    	assertIteratesInOrder(256, 64, 2);
+    }
+    
+    @Test
+    public void batchSizeOfOne(){
+    	assertIteratesInOrder(100, 1, 1);
+    }
+    
+    @Test
+    public void noRecords(){
+    	assertIteratesInOrder(0, 64, 4);
+    }
+    
+    @Test
+    public void recordsPutBeforeExceptionAreIteratedBeforeExceptionIsThrown(){
+    	try(TestDouble iter = new TestDouble(names, 4)){
+    		iter.start();
+    		for(int i=0; i< 4; i++){
+    			assertEquals(names.get(i), iter.next());
+    		}
+    		try{
+    			iter.hasNext();
+    			fail("should throw exception");
+    		}catch(ExpectedException e){
+    			assertEquals(names.get(4), e.getMessage());
+    		}
+    	}
+    }
+    
+    @Test
+    public void closeUnblocksBackgroundThread() throws InterruptedException{
+    	CountingIterator iter = new CountingIterator(Integer.MAX_VALUE, 8, 1);
+    	iter.start();
+    	iter.next();
+    	iter.close();
+    	assertTrue(iter.finished.await(5, TimeUnit.SECONDS));
+    	assertFalse(iter.hasNext());
+    }
+    
+    @Test
+    public void backgroundThreadIsDaemon() throws InterruptedException{
+    	try(CountingIterator iter = new CountingIterator(10, 64, 4)){
+    		iter.start();
+    		assertTrue(iter.finished.await(5, TimeUnit.SECONDS));
+    		assertTrue(iter.isDaemon);
+    	}
+    }
+    
+    private static class SlowProducerIterator extends AbstractBlockingStreamingIterator<String>{
+    	private final CountDownLatch firstRecordSeen = new CountDownLatch(1);
+    	private volatile boolean releasedInTime;
+    	
+		@Override
+		protected void backgroundThreadRunMethod() {
+			blockingPut("first");
+			try {
+				releasedInTime = firstRecordSeen.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			blockingPut("second");
+		}
+    }
+    
+    @Test
+    public void slowProducerHandsOffPartialBatchWithoutWaitingForBatchToFill(){
+    	try(SlowProducerIterator iter = new SlowProducerIterator()){
+    		iter.start();
+    		assertTrue(iter.hasNext());
+    		iter.firstRecordSeen.countDown();
+    		assertEquals("first", iter.next());
+    		assertEquals("second", iter.next());
+    		assertFalse(iter.hasNext());
+    		assertTrue(iter.releasedInTime);
+    	}
+    }
+    
+    @Test
+    public void manyRecordsWithSmallQueue(){
+    	assertIteratesInOrder(100_000, 64, 1);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeLessThanOneShouldThrowException(){
+    	new CountingIterator(10, 0, 4);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void maxPendingBatchesLessThanOneShouldThrowException(){
+    	new CountingIterator(10, 64, 0);
+    }
 }
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.core.util.iter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.jcvi.jillion.internal.core.util.iter.BatchingSpliterator;
+import org.junit.Test;
+
+public class TestBatchingSpliterator {
+
+	private static List<Integer> range(int n){
+		return IntStream.range(0, n).boxed().collect(Collectors.toList());
+	}
+	
+	@Test
+	public void knownSizeIsSizedAndSubSized(){
+		BatchingSpliterator<Integer> sut = new BatchingSpliterator<>(range(100).iterator(), 100, Spliterator.ORDERED);
+		assertTrue(sut.hasCharacteristics(Spliterator.SIZED));
+		assertTrue(sut.hasCharacteristics(Spliterator.SUBSIZED));
+		assertEquals(100, sut.estimateSize());
+		
+		Spliterator<Integer> prefix = sut.trySplit();
+		assertNotNull(prefix);
+		assertTrue(prefix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+		assertEquals(BatchingSpliterator.DEFAULT_INITIAL_BATCH_SIZE, prefix.estimateSize());
+		assertEquals(100 - BatchingSpliterator.DEFAULT_INITIAL_BATCH_SIZE, sut.getExactSizeIfKnown());
+	}
+	
+	@Test
+	public void unknownSizeIsNotSized(){
+		BatchingSpliterator<Integer> sut = new BatchingSpliterator<>(range(100).iterator(), Spliterator.ORDERED);
+		assertFalse(sut.hasCharacteristics(Spliterator.SIZED));
+		assertEquals(Long.MAX_VALUE, sut.estimateSize());
+	}
+	
+	@Test
+	public void batchesGrowUntilMax(){
+		BatchingSpliterator<Integer> sut = new BatchingSpliterator<>(range(100).iterator(), -1, Spliterator.ORDERED, 2, 8);
+		assertEquals(2, sut.trySplit().estimateSize());
+		assertEquals(4, sut.trySplit().estimateSize());
+		assertEquals(8, sut.trySplit().estimateSize());
+		assertEquals(8, sut.trySplit().estimateSize());
+	}
+	
+	@Test
+	public void splitsPreserveEncounterOrder(){
+		BatchingSpliterator<Integer> sut = new BatchingSpliterator<>(range(50).iterator(), 50, Spliterator.ORDERED);
+		List<Integer> actual = new ArrayList<>();
+		Spliterator<Integer> prefix;
+		while((prefix = sut.trySplit()) !=null){
+			prefix.forEachRemaining(actual::add);
+		}
+		sut.forEachRemaining(actual::add);
+		assertEquals(range(50), actual);
+	}
+	
+	@Test
+	public void emptyIteratorDoesNotSplit(){
+		BatchingSpliterator<Integer> sut = new BatchingSpliterator<>(range(0).iterator(), 0, Spliterator.ORDERED);
+		assertNull(sut.trySplit());
+		assertFalse(sut.tryAdvance(i-> {}));
+	}
+	
+	@Test
+	public void parallelStreamOfStreamingIteratorUsesMultipleThreads(){
+		List<Integer> expected = range(200);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		try(Stream<Integer> stream = IteratorUtil.createStreamingIterator(expected.iterator()).toStream()){
+			List<Integer> actual = stream.parallel()
+								.peek(i-> {
+									threads.add(Thread.currentThread());
+									//simulate expensive per record work
+									//so other threads get a chance to steal splits
+									try {
+										Thread.sleep(1);
+									} catch (InterruptedException e) {
+										Thread.currentThread().interrupt();
+									}
+								})
+								.collect(Collectors.toList());
+			assertEquals(expected, actual);
+		}
+		if(Runtime.getRuntime().availableProcessors() > 1){
+			assertTrue(threads.size() > 1);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidInitialBatchSizeShouldThrowIllegalArgumentException(){
+		new BatchingSpliterator<>(range(10).iterator(), -1, Spliterator.ORDERED, 0, 8);
+	}
+}
@@ -29,7 +29,12 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.jcvi.jillion.core.Range;
 import org.jcvi.jillion.core.datastore.DataStore;
@@ -38,6 +43,7 @@ import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.residue.nt.Nucleotide;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.ResourceHelper;
 import org.junit.Rule;
@@ -178,6 +184,34 @@ public abstract class AbstractTestSequenceFastaDataStore {
         assertNull(sut.get("not in datastore"));
     }
     
+    @Test
+    public void getAllReturnsRecordsInRequestedOrder() throws IOException, DataStoreException{
+        
+        DataStore<NucleotideFastaRecord> sut = parseFile(getFile());
+        Map<String, NucleotideFastaRecord> actual = sut.getAll(Arrays.asList("9", "not in datastore", "1", "5"));
+        
+        assertEquals(Arrays.asList("9", "1", "5"), new ArrayList<>(actual.keySet()));
+        assertEquals(contig_9, actual.get("9"));
+        assertEquals(contig_1, actual.get("1"));
+        assertEquals(contig_5, actual.get("5"));
+    }
+    
+    @Test
+    public void parallelRecordsKeepsFileOrder() throws IOException, DataStoreException{
+        
+        DataStore<NucleotideFastaRecord> sut = parseFile(getFile());
+        try(ThrowingStream<NucleotideFastaRecord> stream = sut.records()){
+            List<NucleotideFastaRecord> actual = stream.parallel().collect(Collectors.toList());
+            assertEquals(9, actual.size());
+            for(int i=0; i< 9; i++){
+                assertEquals(Integer.toString(i+1), actual.get(i).getId());
+            }
+            assertEquals(contig_1, actual.get(0));
+            assertEquals(contig_5, actual.get(4));
+            assertEquals(contig_9, actual.get(8));
+        }
+    }
+    
     @Test
     public void parseIdIterator() throws IOException, DataStoreException{
         
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.residue;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.jcvi.jillion.core.residue.nt.Nucleotide;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestNucleotideCodes {
+
+	@Test
+	public void twoBitValues(){
+		assertEquals(0, NucleotideCodes.toTwoBitValue(Nucleotide.Adenine));
+		assertEquals(1, NucleotideCodes.toTwoBitValue(Nucleotide.Cytosine));
+		assertEquals(2, NucleotideCodes.toTwoBitValue(Nucleotide.Guanine));
+		assertEquals(3, NucleotideCodes.toTwoBitValue(Nucleotide.Thymine));
+		assertEquals(3, NucleotideCodes.toTwoBitValue(Nucleotide.Uracil));
+	}
+	
+	@Test
+	public void gapsAndAmbiguitiesAreNotTwoBit(){
+		for(Nucleotide n : Nucleotide.values()){
+			if(n != Nucleotide.Uracil && (n.isGap() || n.isAmbiguity())){
+				assertEquals(n.toString(), NucleotideCodes.NOT_TWO_BIT, NucleotideCodes.toTwoBitValue(n));
+			}
+		}
+	}
+	
+	@Test
+	public void fromTwoBitValueRoundTrips(){
+		for(Nucleotide n : new Nucleotide[]{Nucleotide.Adenine, Nucleotide.Cytosine, Nucleotide.Guanine, Nucleotide.Thymine}){
+			assertEquals(n, NucleotideCodes.fromTwoBitValue(NucleotideCodes.toTwoBitValue(n)));
+		}
+	}
+	
+	@Test
+	public void complementOfTwoBitValueIsThreeMinusValue(){
+		for(int i=0; i<4; i++){
+			assertEquals(NucleotideCodes.fromTwoBitValue(i).complement(), NucleotideCodes.fromTwoBitValue(3-i));
+		}
+	}
+	
+	@Test
+	public void uracilDnaOrdinalIsThymine(){
+		assertEquals(Nucleotide.Thymine.ordinal(), NucleotideCodes.toDnaOrdinal(Nucleotide.Uracil));
+	}
+	
+	@Test
+	public void complementDnaOrdinals(){
+		for(Nucleotide n : Nucleotide.getDnaValues()){
+			assertEquals(n.toString(), n.complement().ordinal(), NucleotideCodes.complementDnaOrdinal(NucleotideCodes.toDnaOrdinal(n)));
+		}
+	}
+	
+	@Test
+	public void encodeSequenceAsDnaOrdinals(){
+		byte[] expected = new byte[]{
+				(byte) Nucleotide.Adenine.ordinal(),
+				(byte) Nucleotide.Thymine.ordinal(),
+				(byte) Nucleotide.Gap.ordinal(),
+				(byte) Nucleotide.Unknown.ordinal(),
+		};
+		assertArrayEquals(expected, NucleotideCodes.toDnaOrdinals(new NucleotideSequenceBuilder("AU-NC").build(), 4));
+	}
+}
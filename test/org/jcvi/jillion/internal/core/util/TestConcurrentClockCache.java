@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.internal.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestConcurrentClockCache {
+
+	private static ConcurrentClockCache<String, String> createCache(long maxSize, boolean coalesce){
+		return new ConcurrentClockCache<>(maxSize, s -> 1L, 1, coalesce);
+	}
+	
+	@Test
+	public void missThenHit(){
+		ConcurrentClockCache<String, String> sut = createCache(10, false);
+		assertNull(sut.getIfPresent("a"));
+		sut.put("a", "A");
+		assertEquals("A", sut.getIfPresent("a"));
+		
+		assertEquals(1, sut.getHitCount());
+		assertEquals(1, sut.getMissCount());
+		assertEquals(1, sut.size());
+	}
+	
+	@Test
+	public void getLoadsOnlyOnMiss(){
+		ConcurrentClockCache<String, String> sut = createCache(10, false);
+		AtomicInteger loads = new AtomicInteger();
+		for(int i=0; i<3; i++){
+			assertEquals("A", sut.get("a", k -> { loads.incrementAndGet(); return k.toUpperCase(); }));
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, sut.getLoadCount());
+		assertEquals(2, sut.getHitCount());
+	}
+	
+	@Test
+	public void getAllLoadsDuplicateKeysOnce(){
+		ConcurrentClockCache<String, String> sut = createCache(10, false);
+		sut.put("a", "A");
+		List<List<String>> loadedKeys = new ArrayList<>();
+		Map<String, String> actual = sut.getAll(Arrays.asList("b", "a", "b", "c", "a", "c"), keys ->{
+			loadedKeys.add(keys);
+			Map<String, String> map = new HashMap<>();
+			for(String key : keys){
+				map.put(key, key.toUpperCase());
+			}
+			return map;
+		});
+		
+		assertEquals(Collections.singletonList(Arrays.asList("b", "c")), loadedKeys);
+		assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<>(actual.keySet()));
+		assertEquals(Arrays.asList("B", "A", "C"), new ArrayList<>(actual.values()));
+		assertEquals(2, sut.getMissCount());
+		assertEquals(2, sut.getLoadCount());
+	}
+	
+	@Test
+	public void nullLoadsAreNotCached(){
+		ConcurrentClockCache<String, String> sut = createCache(10, false);
+		assertNull(sut.get("a", k -> null));
+		assertNull(sut.get("a", k -> null));
+		assertEquals(2, sut.getLoadCount());
+		assertEquals(0, sut.size());
+	}
+	
+	@Test
+	public void unreferencedEntriesAreEvictedFirst(){
+		ConcurrentClockCache<String, String> sut = createCache(3, false);
+		sut.put("a", "A");
+		sut.put("b", "B");
+		sut.put("c", "C");
+		//a gets a second chance
+		sut.getIfPresent("a");
+		sut.put("d", "D");
+		
+		assertEquals("A", sut.getIfPresent("a"));
+		assertNull(sut.getIfPresent("b"));
+		assertEquals("C", sut.getIfPresent("c"));
+		assertEquals("D", sut.getIfPresent("d"));
+		assertEquals(1, sut.getEvictionCount());
+		assertEquals(3, sut.size());
+	}
+	
+	@Test
+	public void boundedByWeight(){
+		ConcurrentClockCache<String, String> sut = new ConcurrentClockCache<>(10, s -> s.length(), 1, false);
+		sut.put("a", "1234");
+		sut.put("b", "1234");
+		sut.put("c", "1234");
+		assertEquals(8, sut.weight());
+		assertEquals(2, sut.size());
+		assertNull(sut.getIfPresent("a"));
+	}
+	
+	@Test
+	public void valueHeavierThanMaxIsNotCached(){
+		ConcurrentClockCache<String, String> sut = new ConcurrentClockCache<>(3, s -> s.length(), 1, false);
+		sut.put("a", "1234");
+		assertEquals(0, sut.size());
+		assertEquals(0, sut.weight());
+	}
+	
+	@Test
+	public void replacingValueUpdatesWeight(){
+		ConcurrentClockCache<String, String> sut = new ConcurrentClockCache<>(10, s -> s.length(), 1, false);
+		sut.put("a", "1234");
+		sut.put("a", "12");
+		assertEquals(2, sut.weight());
+		assertEquals("12", sut.getIfPresent("a"));
+	}
+	
+	@Test
+	public void heavierValueRemovesExistingValueForSameKey(){
+		ConcurrentClockCache<String, String> sut = new ConcurrentClockCache<>(3, s -> s.length(), 1, false);
+		sut.put("a", "12");
+		sut.put("a", "1234");
+		assertNull(sut.getIfPresent("a"));
+		assertEquals(0, sut.size());
+		assertEquals(0, sut.weight());
+	}
+	
+	@Test
+	public void replacingSameKeyDoesNotGrowClock(){
+		ConcurrentClockCache<String, String> sut = new ConcurrentClockCache<>(1_000, s -> s.length(), 1, false);
+		for(int i=0; i< 10_000; i++){
+			sut.put("a", Integer.toString(i));
+		}
+		assertEquals(1, sut.size());
+		assertTrue(Integer.toString(sut.getNumberOfClockNodes()), sut.getNumberOfClockNodes() < 100);
+	}
+	
+	@Test
+	public void zeroWeightValuesAreBoundedBySize(){
+		ConcurrentClockCache<Integer, String> sut = new ConcurrentClockCache<>(10, 5, s -> 0L, 1, false);
+		for(int i=0; i< 100; i++){
+			sut.put(i, "zero");
+		}
+		assertEquals(5, sut.size());
+		assertEquals(95, sut.getEvictionCount());
+		assertEquals(0, sut.weight());
+	}
+	
+	@Test
+	public void defaultMaxSizeIsMaxWeight(){
+		ConcurrentClockCache<Integer, String> sut = new ConcurrentClockCache<>(10, s -> 0L, 1, false);
+		assertEquals(10, sut.getMaxSize());
+		for(int i=0; i< 100; i++){
+			sut.put(i, "zero");
+		}
+		assertEquals(10, sut.size());
+	}
+	
+	@Test
+	public void invalidateAll(){
+		ConcurrentClockCache<String, String> sut = createCache(10, false);
+		sut.put("a", "A");
+		sut.put("b", "B");
+		sut.invalidateAll();
+		assertEquals(0, sut.size());
+		assertEquals(0, sut.weight());
+		assertNull(sut.getIfPresent("a"));
+		
+		sut.put("a", "A2");
+		assertEquals("A2", sut.getIfPresent("a"));
+	}
+	
+	@Test
+	public void smallCacheWithHighConcurrencyLevelStillHoldsMaxSize(){
+		ConcurrentClockCache<Integer, Integer> sut = new ConcurrentClockCache<>(2, i -> 1L, 64, false);
+		sut.put(1, 1);
+		sut.put(2, 2);
+		assertEquals(2, sut.size());
+	}
+	
+	@Test
+	public void sizeNeverExceedsMaxUnderConcurrentLoad() throws Exception{
+		ConcurrentClockCache<Integer, Integer> sut = new ConcurrentClockCache<>(500, i -> 1L, 8, false);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try{
+			List<Future<?>> futures = new ArrayList<>();
+			for(int t=0; t<8; t++){
+				int seed = t;
+				futures.add(executor.submit(() -> {
+					for(int i=0; i< 20_000; i++){
+						Integer key = (i * 31 + seed) % 2_000;
+						assertEquals(key, sut.get(key, k -> k));
+					}
+				}));
+			}
+			for(Future<?> f : futures){
+				f.get(30, TimeUnit.SECONDS);
+			}
+		}finally{
+			executor.shutdownNow();
+		}
+		assertTrue(sut.size() <= 500);
+		assertEquals(sut.size(), sut.weight());
+		assertEquals(8 * 20_000, sut.getHitCount() + sut.getMissCount());
+	}
+	
+	@Test
+	public void coalescedLoadsOnlyLoadOnce() throws Exception{
+		ConcurrentClockCache<String, String> sut = createCache(10, true);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		int numberOfThreads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try{
+			List<Future<String>> futures = new ArrayList<>();
+			for(int t=0; t< numberOfThreads; t++){
+				futures.add(executor.submit(() -> sut.get("a", k -> {
+					loads.incrementAndGet();
+					release.await();
+					return "A";
+				})));
+			}
+			//give all the threads time to miss
+			Thread.sleep(200);
+			release.countDown();
+			for(Future<String> f : futures){
+				assertEquals("A", f.get(10, TimeUnit.SECONDS));
+			}
+		}finally{
+			executor.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, sut.getLoadCount());
+	}
+	
+	@Test
+	public void coalescedLoadExceptionIsThrownToCaller(){
+		ConcurrentClockCache<String, String> sut = createCache(10, true);
+		IOException expected = new IOException("expected");
+		try{
+			sut.get("a", k -> { throw expected;});
+			fail("should throw IOException");
+		}catch(IOException e){
+			assertSame(expected, e);
+		}
+		//failures aren't cached
+		assertEquals("A", sut.get("a", k -> "A"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void maxWeightLessThanOneShouldThrowException(){
+		createCache(0, false);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void maxSizeLessThanOneShouldThrowException(){
+		new ConcurrentClockCache<String, String>(10, 0, s -> 1L, 1, false);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void nullValueShouldThrowNPE(){
+		createCache(10, false).put("a", null);
+	}
+}
@@ -26,7 +26,8 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
-    TestBasicOrfFinder.class
+    TestBasicOrfFinder.class,
+    TestOrfScanner.class
 })
 public class AllOrfTests {
 
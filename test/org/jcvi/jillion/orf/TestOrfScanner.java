@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.orf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.stream.Collectors;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.residue.Frame;
+import org.jcvi.jillion.core.residue.aa.AminoAcid;
+import org.jcvi.jillion.core.residue.aa.Codon;
+import org.jcvi.jillion.core.residue.aa.IupacTranslationTables;
+import org.jcvi.jillion.core.residue.aa.ProteinSequenceBuilder;
+import org.jcvi.jillion.core.residue.aa.TranslationVisitor;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaDataStore;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecord;
+import org.jcvi.jillion.fasta.nt.NucleotideFastaRecordBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+public class TestOrfScanner {
+
+    private final OrfScanner sut = new OrfScanner.Builder().build();
+    
+    @Test
+    public void wikipediaExampleFirstOrfInEachFrameMatchesOrfFinder(){
+        NucleotideSequence seq = NucleotideSequence.of("ATGCAATGGGGAAATGTTACCAGGTCCGAACTTATTGAGGTAAGACAGATTTAA");
+        assertFirstOrfsMatchOrfFinder(seq);
+    }
+    
+    @Test
+    public void multipleOrfsInSameFrame(){
+        NucleotideSequence seq = NucleotideSequence.of("ATGAAATAGCCCATGATGTGA");
+        List<Orf> actual = new OrfScanner.Builder()
+                                .options(OrfFinder.FinderOptions.SEARCH_FORWARD)
+                                .build()
+                                .scan(seq)
+                                .collect(Collectors.toList());
+        
+        List<Orf> expected = Arrays.asList(
+                new Orf(Frame.ONE, IupacTranslationTables.STANDARD.translate(seq.toBuilder(Range.of(0, 8)).build()), Range.of(0, 8)),
+                new Orf(Frame.ONE, IupacTranslationTables.STANDARD.translate(seq.toBuilder(Range.of(12, 20)).build()), Range.of(12, 20))
+                );
+        assertEquals(expected, actual);
+        assertEquals("MK*", actual.get(0).getSequence().toString());
+        assertEquals("MM*", actual.get(1).getSequence().toString());
+    }
+    
+    @Test
+    public void orfWithoutStopIsNotReported(){
+        assertEquals(0, sut.scan(NucleotideSequence.of("ATGAAACCCGGG")).count());
+    }
+    
+    @Test
+    public void emptySequence(){
+        assertEquals(0, sut.scan(NucleotideSequence.of("")).count());
+    }
+    
+    @Test
+    public void minLengthFiltersShortOrfs(){
+        NucleotideSequence seq = NucleotideSequence.of("ATGTAGCCATGAAACCCGGGTAA");
+        List<Orf> actual = new OrfScanner.Builder()
+                                .minLength(10)
+                                .options(OrfFinder.FinderOptions.SEARCH_FORWARD)
+                                .build()
+                                .scan(seq)
+                                .collect(Collectors.toList());
+        assertEquals(1, actual.size());
+        assertEquals(Range.of(8, 22), actual.get(0).getRange());
+        assertEquals(Frame.THREE, actual.get(0).getFrame());
+    }
+    
+    @Test
+    public void reverseStrandUsesReverseComplementCoordinates(){
+        NucleotideSequence forward = NucleotideSequence.of("GGATGAAATAGCCCATGTTTTGAC");
+        NucleotideSequence seq = forward.toBuilder().reverseComplement().build();
+        
+        List<Orf> actual = new OrfScanner.Builder()
+                            .options(OrfFinder.FinderOptions.SEARCH_REVERSE)
+                            .build()
+                            .scan(seq)
+                            .collect(Collectors.toList());
+        
+        List<Orf> expected = new ArrayList<>();
+        for(Orf orf : new OrfScanner.Builder()
+                            .options(OrfFinder.FinderOptions.SEARCH_FORWARD)
+                            .build()
+                            .scan(forward)
+                            .collect(Collectors.toList())){
+            Frame reverseFrame = orf.getFrame().getOppositeFrame();
+            expected.add(new Orf(reverseFrame, orf.getSequence(), orf.getRange()));
+        }
+        assertEquals(2, expected.size());
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void randomSequencesMatchVisitorBasedTranslation(){
+        Random rand = new Random(1234);
+        for(int i=0; i< 50; i++){
+            NucleotideSequence seq = randomSequence(rand, 50 + rand.nextInt(2000), i %5 ==0);
+            assertEquals(findAllOrfsUsingVisitor(seq, IupacTranslationTables.STANDARD),
+                    sut.scan(seq).collect(Collectors.toList()));
+            assertFirstOrfsMatchOrfFinder(seq);
+        }
+    }
+    
+    @Test
+    public void otherTranslationTable(){
+        Random rand = new Random(5678);
+        OrfScanner scanner = new OrfScanner.Builder()
+                                    .translationTable(IupacTranslationTables.VERTEBRATE_MITOCHONDRIAL)
+                                    .build();
+        for(int i=0; i< 20; i++){
+            NucleotideSequence seq = randomSequence(rand, 500, false);
+            assertEquals(findAllOrfsUsingVisitor(seq, IupacTranslationTables.VERTEBRATE_MITOCHONDRIAL),
+                    scanner.scan(seq).collect(Collectors.toList()));
+        }
+    }
+    
+    @Test
+    public void scanDataStore() throws Exception{
+        Random rand = new Random(42);
+        Map<String, NucleotideFastaRecord> records = new LinkedHashMap<>();
+        Map<String, List<Orf>> expected = new LinkedHashMap<>();
+        for(int i=0; i< 30; i++){
+            String id = "contig"+i;
+            NucleotideSequence seq = randomSequence(rand, 3000, false);
+            records.put(id, new NucleotideFastaRecordBuilder(id, seq).build());
+            expected.put(id, sut.scan(seq).collect(Collectors.toList()));
+        }
+        Map<String, List<Orf>> actual = new ConcurrentHashMap<>();
+        try(NucleotideFastaDataStore datastore = DataStore.of(records, NucleotideFastaDataStore.class)){
+            sut.scan(datastore, actual::put);
+        }
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    public void scanDataStoreRunsInGivenPool() throws Exception{
+        Random rand = new Random(7);
+        Map<String, NucleotideFastaRecord> records = new LinkedHashMap<>();
+        for(int i=0; i< 30; i++){
+            String id = "contig"+i;
+            records.put(id, new NucleotideFastaRecordBuilder(id, randomSequence(rand, 1000, false)).build());
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try{
+            OrfScanner scanner = new OrfScanner.Builder().pool(pool).build();
+            Set<ForkJoinPool> poolsUsed = ConcurrentHashMap.newKeySet();
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            try(NucleotideFastaDataStore datastore = DataStore.of(records, NucleotideFastaDataStore.class)){
+                scanner.scan(datastore, (id, orfs) -> {
+                    ids.add(id);
+                    Thread thread = Thread.currentThread();
+                    poolsUsed.add(thread instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) thread).getPool() : null);
+                });
+            }
+            assertEquals(records.keySet(), ids);
+            assertEquals(Collections.singleton(pool), poolsUsed);
+        }finally{
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void scanEmptyDataStore() throws Exception{
+        List<String> ids = new ArrayList<>();
+        try(NucleotideFastaDataStore datastore = DataStore.of(Collections.<String,NucleotideFastaRecord>emptyMap(), NucleotideFastaDataStore.class)){
+            sut.scan(datastore, (id, orfs) -> ids.add(id));
+        }
+        assertTrue(ids.isEmpty());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMinLengthShouldThrowIllegalArgumentException(){
+        new OrfScanner.Builder().minLength(-1);
+    }
+    
+    @Test(expected = NullPointerException.class)
+    public void nullSequenceShouldThrowNPE(){
+        sut.scan((NucleotideSequence) null);
+    }
+    
+    private void assertFirstOrfsMatchOrfFinder(NucleotideSequence seq){
+        List<Orf> all = sut.scan(seq).collect(Collectors.toList());
+        List<Orf> firstPerFrame = new ArrayList<>();
+        Frame previous = null;
+        for(Orf orf : all){
+            if(orf.getFrame() != previous){
+                firstPerFrame.add(orf);
+                previous = orf.getFrame();
+            }
+        }
+        assertEquals(new OrfFinder().find(seq), firstPerFrame);
+    }
+    
+    private static NucleotideSequence randomSequence(Random rand, int length, boolean includeAmbiguities){
+        String bases = includeAmbiguities ? "ACGTACGTACGTACGTRYN" : "ACGT";
+        StringBuilder builder = new StringBuilder(length);
+        for(int i=0; i< length; i++){
+            builder.append(bases.charAt(rand.nextInt(bases.length())));
+        }
+        return new NucleotideSequenceBuilder(builder.toString()).build();
+    }
+    
+    private static List<Orf> findAllOrfsUsingVisitor(NucleotideSequence seq, IupacTranslationTables table){
+        List<Orf> orfs = new ArrayList<>();
+        for(Frame f : Frame.forwardFrames()){
+            table.translate(seq, f, new AllOrfsVisitor(f, orfs));
+        }
+        NucleotideSequence reverseSeq = seq.toBuilder().reverseComplement().build();
+        for(Frame f : Frame.reverseFrames()){
+            table.translate(reverseSeq, f.getOppositeFrame(), new AllOrfsVisitor(f, orfs));
+        }
+        return orfs;
+    }
+    
+    private static final class AllOrfsVisitor implements TranslationVisitor{
+        private final Frame frame;
+        private final List<Orf> orfs;
+        private ProteinSequenceBuilder builder;
+        private long start;
+        
+        AllOrfsVisitor(Frame frame, List<Orf> orfs){
+            this.frame = frame;
+            this.orfs = orfs;
+        }
+        
+        @Override
+        public void visitCodon(long nucleotideCoordinate, Codon codon) {
+            if(builder !=null){
+                builder.append(codon.getAminoAcid());
+            }
+        }
+
+        @Override
+        public FoundStartResult foundStart(long nucleotideCoordinate, Codon codon) {
+            if(builder ==null){
+                builder = new ProteinSequenceBuilder().append(AminoAcid.Methionine);
+                start = nucleotideCoordinate;
+            }else{
+                builder.append(codon.getAminoAcid());
+            }
+            return FoundStartResult.CONTINUE;
+        }
+
+        @Override
+        public FoundStopResult foundStop(long nucleotideCoordinate, Codon codon) {
+            if(builder !=null){
+                builder.append(codon.getAminoAcid());
+                orfs.add(new Orf(frame, builder.build(), Range.of(start, nucleotideCoordinate +2)));
+                builder = null;
+            }
+            return FoundStopResult.READ_THROUGH;
+        }
+
+        @Override
+        public void end() {
+            //no-op
+        }
+    }
+}
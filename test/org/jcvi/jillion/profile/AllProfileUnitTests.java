@@ -34,7 +34,8 @@ import org.junit.runners.Suite.SuiteClasses;
     {
         
         
-    	TestProfileWriterBuilder.class
+    	TestProfileWriterBuilder.class,
+    	TestSamProfiler.class
     }
 )
 public class AllProfileUnitTests {
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.profile;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceDataStore;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.sam.SamParser;
+import org.jcvi.jillion.sam.SamParserFactory;
+import org.jcvi.jillion.sam.transform.TestSamTransformationService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestSamProfiler {
+
+	@Rule
+	public TemporaryFolder tmpDir = new TemporaryFolder();
+	
+	private static NucleotideSequenceDataStore references(Map<String, NucleotideSequence> map){
+		return DataStore.of(map, NucleotideSequenceDataStore.class);
+	}
+	
+	@Test
+	public void samSpecExample() throws IOException{
+		ResourceHelper helper = new ResourceHelper(TestSamTransformationService.class);
+		SamParser parser = SamParserFactory.create(helper.getFile("example.sam"));
+		Map<String, NucleotideSequence> map = new LinkedHashMap<>();
+		map.put("ref", NucleotideSequence.of("AGCATGTTAGATAAGATAGCTGTGCTAGTAGGCAGTCAGCGCCAT"));
+		
+		SamProfiler sut = new SamProfiler.Builder(parser, references(map))
+										.include0xEdges(false)
+										.build();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		sut.writeProfile("ref", out);
+		
+		//insertions, soft clips and padding aren't counted
+		//and the 14N skip of r004 has no coverage.
+		String expected = String.format("#Major\t-\tA\tC\tG\tT%n"+
+				"T\t0\t0\t0\t0\t1%n"+ //7
+				"T\t0\t0\t0\t0\t1%n"+
+				"A\t0\t3\t0\t0\t0%n"+
+				"G\t0\t0\t0\t3\t0%n"+ //10
+				"A\t0\t2\t1\t0\t0%n"+
+				"T\t0\t0\t0\t0\t3%n"+
+				"A\t0\t3\t0\t0\t0%n"+
+				"A\t0\t3\t0\t0\t0%n"+
+				"G\t0\t0\t0\t2\t0%n"+ //15
+				"A\t0\t3\t0\t0\t0%n"+
+				"T\t0\t0\t0\t0\t3%n"+
+				"A\t0\t3\t0\t0\t0%n"+
+				//deletion in r001
+				"G\t1\t0\t0\t1\t0%n"+
+				"C\t0\t0\t2\t0\t0%n"+ //20
+				"T\t0\t0\t0\t0\t2%n"+
+				"G\t0\t0\t0\t1\t0%n"+
+				//r004 skips 22-35 and supplementary r003 is ignored
+				"T\t0\t0\t0\t0\t0%n"+
+				"G\t0\t0\t0\t0\t0%n"+
+				"C\t0\t0\t0\t0\t0%n"+ //25
+				"T\t0\t0\t0\t0\t0%n"+
+				"A\t0\t0\t0\t0\t0%n"+
+				"G\t0\t0\t0\t0\t0%n"+
+				"T\t0\t0\t0\t0\t0%n"+
+				"A\t0\t0\t0\t0\t0%n"+ //30
+				"G\t0\t0\t0\t0\t0%n"+
+				"G\t0\t0\t0\t0\t0%n"+
+				"C\t0\t0\t0\t0\t0%n"+
+				"A\t0\t0\t0\t0\t0%n"+
+				"G\t0\t0\t0\t0\t0%n"+ //35
+				"T\t0\t0\t0\t0\t1%n"+
+				"C\t0\t0\t2\t0\t0%n"+
+				"A\t0\t2\t0\t0\t0%n"+
+				"G\t0\t0\t0\t2\t0%n"+
+				"C\t0\t0\t2\t0\t0%n"+ //40
+				"G\t0\t0\t0\t1\t0%n"+
+				"G\t0\t0\t0\t1\t0%n"+
+				"C\t0\t0\t1\t0\t0%n"+
+				"A\t0\t1\t0\t0\t0%n"+
+				"T\t0\t0\t0\t0\t1%n"); //45
+		assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void sameAsProfileWriterOnRandomReads() throws IOException{
+		Random random = new Random(42);
+		Map<String, NucleotideSequence> refs = new LinkedHashMap<>();
+		refs.put("ref1", randomSequence(random, 3000));
+		refs.put("ref2", randomSequence(random, 500));
+		refs.put("ref3", randomSequence(random, 100));
+		
+		File sam = tmpDir.newFile("random.sam");
+		Map<String, ByteArrayOutputStream> expectedOutputs = new LinkedHashMap<>();
+		try(PrintWriter writer = new PrintWriter(sam, "UTF-8")){
+			writer.println("@HD\tVN:1.5\tSO:coordinate");
+			for(Map.Entry<String, NucleotideSequence> entry : refs.entrySet()){
+				writer.printf("@SQ\tSN:%s\tLN:%d%n", entry.getKey(), entry.getValue().getLength());
+			}
+			for(Map.Entry<String, NucleotideSequence> entry : refs.entrySet()){
+				String refName = entry.getKey();
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				expectedOutputs.put(refName, out);
+				if("ref3".equals(refName)){
+					//no reads
+					new ProfileWriterBuilder(out, entry.getValue()).build().close();
+					continue;
+				}
+				writeRandomReads(random, refName, entry.getValue(), writer, out);
+			}
+		}
+		SamProfiler sut = new SamProfiler.Builder(SamParserFactory.create(sam), references(refs))
+										.build();
+		for(Map.Entry<String, ByteArrayOutputStream> entry : expectedOutputs.entrySet()){
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			sut.writeProfile(entry.getKey(), actual);
+			assertEquals(entry.getKey(), new String(entry.getValue().toByteArray(), StandardCharsets.UTF_8),
+					new String(actual.toByteArray(), StandardCharsets.UTF_8));
+		}
+		
+		File outputDir = new File(tmpDir.getRoot(), "profiles");
+		sut.writeProfiles(outputDir);
+		for(Map.Entry<String, ByteArrayOutputStream> entry : expectedOutputs.entrySet()){
+			assertEquals(entry.getKey(), new String(entry.getValue().toByteArray(), StandardCharsets.UTF_8),
+					new String(Files.readAllBytes(new File(outputDir, entry.getKey() + ".profile").toPath()), StandardCharsets.UTF_8));
+		}
+	}
+	/**
+	 * Write sorted random reads of up to 1500bp (longer than the initial window)
+	 * with mismatches, ambiguities, soft clips, insertions, deletions and skips
+	 * and add the same bases to a {@link ProfileWriter}.
+	 */
+	private void writeRandomReads(Random random, String refName, NucleotideSequence ref, PrintWriter sam, ByteArrayOutputStream expectedOut) throws IOException{
+		int refLength = (int) ref.getLength();
+		String refString = ref.toString();
+		try(ProfileWriter expected = new ProfileWriterBuilder(expectedOut, ref).build()){
+			int start = 0;
+			for(int i=0; i< 60; i++){
+				start += random.nextInt(40);
+				if(start >= refLength - 20){
+					break;
+				}
+				StringBuilder cigar = new StringBuilder();
+				StringBuilder seq = new StringBuilder();
+				int refOffset = start;
+				if(random.nextBoolean()){
+					cigar.append("3S");
+					seq.append("GGG");
+				}
+				int maxLength = random.nextInt(10) ==0 ? 1500 : 100;
+				boolean lastWasMatch=false;
+				while(refOffset < refLength && refOffset - start < maxLength){
+					int length = Math.min(1+random.nextInt(30), refLength - refOffset);
+					int op = lastWasMatch ? random.nextInt(10) : 0;
+					if(op < 7){
+						char[] bases = refString.substring(refOffset, refOffset + length).toCharArray();
+						for(int j=0; j< bases.length; j++){
+							if(random.nextInt(20)==0){
+								bases[j] = "ACGTNRWK".charAt(random.nextInt(8));
+							}
+						}
+						String basecalls = new String(bases);
+						expected.addSequence(refOffset, NucleotideSequence.of(basecalls));
+						cigar.append(length).append('M');
+						seq.append(basecalls);
+						refOffset += length;
+						lastWasMatch=true;
+					}else if(op ==7){
+						cigar.append(length).append('I');
+						seq.append(refString, refOffset, refOffset+length);
+						lastWasMatch=false;
+					}else if(op ==8){
+						expected.addSequence(refOffset, new NucleotideSequenceBuilder(length).append(gaps(length)).build());
+						cigar.append(length).append('D');
+						refOffset += length;
+						lastWasMatch=false;
+					}else{
+						cigar.append(length).append('N');
+						refOffset += length;
+						lastWasMatch=false;
+					}
+				}
+				if(!lastWasMatch){
+					//cigar can't end in a deletion or skip
+					cigar.append("1S");
+					seq.append('A');
+				}
+				sam.printf("read_%s_%d\t0\t%s\t%d\t30\t%s\t*\t0\t0\t%s\t*%n", refName, i, refName, start+1, cigar, seq);
+			}
+		}
+	}
+	
+	private static String gaps(int length){
+		char[] gaps = new char[length];
+		java.util.Arrays.fill(gaps, '-');
+		return new String(gaps);
+	}
+	
+	private static NucleotideSequence randomSequence(Random random, int length){
+		StringBuilder builder = new StringBuilder(length);
+		for(int i=0; i< length; i++){
+			builder.append("ACGT".charAt(random.nextInt(4)));
+		}
+		return NucleotideSequence.of(builder.toString());
+	}
+}
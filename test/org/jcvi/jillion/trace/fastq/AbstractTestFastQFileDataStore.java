@@ -29,16 +29,21 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 import org.jcvi.jillion.core.datastore.DataStore;
+import org.jcvi.jillion.core.datastore.DataStoreEntry;
 import org.jcvi.jillion.core.datastore.DataStoreException;
 import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.ThrowingStream;
 import org.jcvi.jillion.core.util.ObjectsUtil;
 import org.jcvi.jillion.core.util.iter.StreamingIterator;
 import org.jcvi.jillion.internal.ResourceHelper;
@@ -92,6 +97,47 @@ public abstract class AbstractTestFastQFileDataStore {
         assertFastQRecordsEqual(solexa_1692, sut.get(solexa_1692.getId()));
     }
     @Test
+    public void getAllReturnsRecordsInRequestedOrder() throws DataStoreException{
+        Map<String, FastqRecord> actual = sut.getAll(Arrays.asList(
+                solexa_1692.getId(), "notInDataStore", solexa_1489.getId(), solexa_1692.getId()));
+        
+        assertEquals(Arrays.asList(solexa_1692.getId(), solexa_1489.getId()), 
+                        new ArrayList<>(actual.keySet()));
+        assertFastQRecordsEqual(solexa_1692, actual.get(solexa_1692.getId()));
+        assertFastQRecordsEqual(solexa_1489, actual.get(solexa_1489.getId()));
+    }
+    @Test
+    public void getAsync() throws InterruptedException, ExecutionException{
+        assertFastQRecordsEqual(solexa_1489, sut.getAsync(solexa_1489.getId()).get());
+        assertNull(sut.getAsync("notInDataStore").get());
+    }
+    @Test
+    public void getAllAsync() throws InterruptedException, ExecutionException{
+        Map<String, FastqRecord> actual = sut.getAllAsync(Arrays.asList(
+                solexa_1489.getId(), solexa_1692.getId())).get();
+        assertEquals(2, actual.size());
+        assertFastQRecordsEqual(solexa_1489, actual.get(solexa_1489.getId()));
+        assertFastQRecordsEqual(solexa_1692, actual.get(solexa_1692.getId()));
+    }
+    @Test
+    public void parallelRecordsKeepsFileOrder() throws DataStoreException{
+        try(ThrowingStream<FastqRecord> stream = sut.records()){
+            List<FastqRecord> actual = stream.parallel().collect(Collectors.toList());
+            assertEquals(2, actual.size());
+            assertFastQRecordsEqual(solexa_1489, actual.get(0));
+            assertFastQRecordsEqual(solexa_1692, actual.get(1));
+        }
+    }
+    @Test
+    public void parallelEntries() throws DataStoreException{
+        try(ThrowingStream<DataStoreEntry<FastqRecord>> stream = sut.entries()){
+            List<DataStoreEntry<FastqRecord>> actual = stream.parallel().collect(Collectors.toList());
+            assertEquals(2, actual.size());
+            assertEquals(solexa_1489.getId(), actual.get(0).getKey());
+            assertFastQRecordsEqual(solexa_1692, actual.get(1).getValue());
+        }
+    }
+    @Test
     public void shouldThrowExceptionIfTryToGetAfterClose() throws IOException, DataStoreException{
         sut.close();
         try{
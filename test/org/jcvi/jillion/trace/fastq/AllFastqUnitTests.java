@@ -36,6 +36,7 @@ import org.junit.runners.Suite.SuiteClasses;
     	TestFastqRecordBuilder.class,
     	
     	TestFastqQualityCodecOffsets.class,
+    	TestFastqQualityCodecToQualityValueArray.class,
     	
         TestSangerFastQQualityCodec.class,
         TestIlluminaFastQQualityCodec.class,
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trace.fastq;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+public class TestFastqQualityCodecToQualityValueArray {
+
+	@Test
+	public void sanger(){
+		assertArrayEquals(new byte[]{0, 20, 40}, FastqQualityCodec.SANGER.toQualityValueArray("!5I"));
+	}
+	
+	@Test
+	public void illumina(){
+		assertArrayEquals(new byte[]{2, 20, 40}, FastqQualityCodec.ILLUMINA.toQualityValueArray("BTh"));
+	}
+	
+	@Test
+	public void regionOfBufferIntoDestination(){
+		byte[] ascii = "@@!5I@@".getBytes();
+		byte[] dest = new byte[4];
+		FastqQualityCodec.SANGER.toQualityValueArray(ascii, 2, 3, dest, 1);
+		assertArrayEquals(new byte[]{0, 0, 20, 40}, dest);
+	}
+	
+	@Test
+	public void solexaConvertsEachValueToPhred(){
+		String encoded = ";@DHLPTX\\`dh";
+		byte[] expected = new byte[encoded.length()];
+		for(int i=0; i< expected.length; i++){
+			expected[i] = SolexaUtil.convertSolexaQualityToPhredQuality(encoded.charAt(i) - 64).getQualityScore();
+		}
+		assertArrayEquals(expected, FastqQualityCodec.SOLEXA.toQualityValueArray(encoded));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void solexaInvalidCharacterShouldThrowException(){
+		FastqQualityCodec.SOLEXA.toQualityValueArray("!");
+	}
+}
@@ -35,7 +35,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	
 	AllLucyUnitTests.class,
 	
-	TestTrimmerPipeline.class
+	TestTrimmerPipeline.class,
+	TestTrimmerPipelineRunner.class,
+	TestQualityTrimContext.class,
+	TestAdaptorTrimmer.class
 })
 public class AllTrimmerUnitTests {
 
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequence;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.junit.Test;
+
+public class TestAdaptorTrimmer {
+
+    private static final String ADAPTOR = "AGATCGGAAGAGCACACGTCTGAACTCCAGTCA";
+    private static final String UPSTREAM = "GTTGTAAAACGACGGCCAGT";
+    
+    private final Random random = new Random(42);
+    
+    private String randomBases(int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i=0; i< length; i++){
+            builder.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return builder.toString();
+    }
+    
+    private static NucleotideSequence seq(String s){
+        return new NucleotideSequenceBuilder(s).build();
+    }
+    
+    private String mutate(String s, int... offsets){
+        char[] array = s.toCharArray();
+        for(int offset : offsets){
+            char c = array[offset];
+            char replacement;
+            do{
+                replacement = "ACGT".charAt(random.nextInt(4));
+            }while(replacement == c);
+            array[offset] = replacement;
+        }
+        return new String(array);
+    }
+    
+    private static NucleotideTrimmer threePrimeTrimmer(){
+        return new AdaptorTrimmerBuilder()
+                        .addThreePrimeAdaptor(seq(ADAPTOR))
+                        .build();
+    }
+    
+    @Test
+    public void noAdaptorKeepsEverything(){
+        String read = randomBases(100);
+        assertEquals(Range.ofLength(100), threePrimeTrimmer().trim(seq(read)));
+    }
+    
+    @Test
+    public void exactThreePrimeAdaptorReadThrough(){
+        String insert = randomBases(60);
+        String read = insert + ADAPTOR + randomBases(20);
+        assertEquals(Range.ofLength(60), threePrimeTrimmer().trim(seq(read)));
+    }
+    
+    @Test
+    public void threePrimeAdaptorWithMismatches(){
+        String insert = randomBases(70);
+        String read = insert + mutate(ADAPTOR, 3, 17, 30);
+        assertEquals(Range.ofLength(70), threePrimeTrimmer().trim(seq(read)));
+    }
+    
+    @Test
+    public void tooManyMismatchesNotTrimmed(){
+        String insert = randomBases(70);
+        String read = insert + mutate(ADAPTOR, 1, 5, 9, 13, 17, 21, 25, 29);
+        assertEquals(Range.ofLength(read.length()), 
+                new AdaptorTrimmerBuilder()
+                    .addThreePrimeAdaptor(seq(ADAPTOR))
+                    .noAlignmentFallback()
+                    .build()
+                    .trim(seq(read)));
+    }
+    
+    @Test
+    public void partialAdaptorAtEndOfRead(){
+        String read = "CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC" + ADAPTOR.substring(0, 5);
+        assertEquals(Range.ofLength(read.length() -5), threePrimeTrimmer().trim(seq(read)));
+    }
+    
+    @Test
+    public void partialAdaptorShorterThanMinOverlapNotTrimmed(){
+        String read = "CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC" + ADAPTOR.substring(0, 2);
+        assertEquals(Range.ofLength(read.length()), threePrimeTrimmer().trim(seq(read)));
+    }
+    
+    @Test
+    public void fivePrimeAdaptor(){
+        String insert = randomBases(80);
+        String read = randomBases(10) + UPSTREAM + insert;
+        NucleotideTrimmer trimmer = new AdaptorTrimmerBuilder()
+                                            .addFivePrimeAdaptor(seq(UPSTREAM))
+                                            .build();
+        assertEquals(Range.of(30, 109), trimmer.trim(seq(read)));
+    }
+    
+    @Test
+    public void partialFivePrimeAdaptorAtStartOfRead(){
+        String read = UPSTREAM.substring(UPSTREAM.length() - 6) + "CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCC";
+        NucleotideTrimmer trimmer = new AdaptorTrimmerBuilder()
+                                            .addFivePrimeAdaptor(seq(UPSTREAM))
+                                            .build();
+        assertEquals(Range.of(6, read.length() -1), trimmer.trim(seq(read)));
+    }
+    
+    @Test
+    public void vectorSplice(){
+        String insert = randomBases(100);
+        String read = UPSTREAM + insert + ADAPTOR;
+        NucleotideTrimmer trimmer = new AdaptorTrimmerBuilder()
+                                            .addVectorSplice(seq(UPSTREAM), seq(ADAPTOR))
+                                            .build();
+        assertEquals(Range.of(20, 119), trimmer.trim(seq(read)));
+    }
+    
+    @Test
+    public void reverseComplementedAdaptor(){
+        String insert = randomBases(100);
+        String read = seq(ADAPTOR).toBuilder().reverseComplement().build().toString() + insert;
+        NucleotideTrimmer trimmer = new AdaptorTrimmerBuilder()
+                                            .addThreePrimeAdaptor(seq(ADAPTOR))
+                                            .includeReverseComplements()
+                                            .build();
+        assertEquals(Range.of(ADAPTOR.length(), read.length() -1), trimmer.trim(seq(read)));
+    }
+    
+    @Test
+    public void adaptorWithIndelFoundByAlignment(){
+        String insert = randomBases(60);
+        //delete a base from the middle of the adaptor
+        String adaptorWithDeletion = ADAPTOR.substring(0, 16) + ADAPTOR.substring(17);
+        String read = insert + adaptorWithDeletion + randomBases(10);
+        
+        assertEquals(Range.ofLength(60), threePrimeTrimmer().trim(seq(read)));
+        
+        assertEquals(Range.ofLength(read.length()), new AdaptorTrimmerBuilder()
+                                                        .addThreePrimeAdaptor(seq(ADAPTOR))
+                                                        .noAlignmentFallback()
+                                                        .build()
+                                                        .trim(seq(read)));
+    }
+    
+    @Test
+    public void matchesBruteForceSearch(){
+        AdaptorTrimmerBuilder builder = new AdaptorTrimmerBuilder()
+                                            .noAlignmentFallback();
+        String[] adaptors = new String[]{ADAPTOR, "CTGTCTCTTATACACATCT", randomBases(50)};
+        for(String adaptor : adaptors){
+            builder.addThreePrimeAdaptor(seq(adaptor));
+        }
+        NucleotideTrimmer trimmer = builder.build();
+        
+        for(int i=0; i< 2000; i++){
+            String adaptor = adaptors[random.nextInt(adaptors.length)];
+            int insertLength = random.nextInt(150);
+            String read = randomBases(insertLength) + adaptor + randomBases(random.nextInt(20));
+            read = read.substring(0, Math.min(read.length(), 20 + random.nextInt(150)));
+            //sprinkle in errors
+            int numberOfErrors = random.nextInt(5);
+            int[] offsets = new int[numberOfErrors];
+            for(int j=0; j< numberOfErrors && read.length() >0; j++){
+                offsets[j] = random.nextInt(read.length());
+            }
+            read = mutate(read, offsets);
+            
+            int expectedEnd = read.length();
+            for(String a : adaptors){
+                expectedEnd = Math.min(expectedEnd, bruteForceThreePrimeStart(read, a));
+            }
+            assertEquals(read, Range.ofLength(expectedEnd), trimmer.trim(seq(read)));
+        }
+    }
+    
+    private static int bruteForceThreePrimeStart(String read, String adaptor){
+        for(int start=0; start <= read.length() - AdaptorTrimmerBuilder.DEFAULT_MIN_OVERLAP; start++){
+            int overlap = Math.min(adaptor.length(), read.length() - start);
+            int mismatches=0;
+            for(int i=0; i< overlap; i++){
+                if(read.charAt(start +i) != adaptor.charAt(i)){
+                    mismatches++;
+                }
+            }
+            if(mismatches <= (int)(overlap * AdaptorTrimmerBuilder.DEFAULT_MAX_ERROR_RATE)){
+                return start;
+            }
+        }
+        return read.length();
+    }
+    
+    @Test
+    public void worksInPipeline(){
+        String insert = randomBases(60);
+        String read = insert + ADAPTOR;
+        TrimmerPipeline pipeline = new TrimmerPipelineBuilder()
+                                        .add(threePrimeTrimmer())
+                                        .minLength(50)
+                                        .build();
+        assertEquals(Range.ofLength(60), pipeline.trim(seq(read)));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void noAdaptorsShouldThrowIllegalStateException(){
+        new AdaptorTrimmerBuilder().build();
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequence;
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.trim.lucy.LucyQualityTrimmerBuilder;
+import org.jcvi.jillion.trim.trimmomatic.LeadingQualityTrimmer;
+import org.jcvi.jillion.trim.trimmomatic.MaxInfoTrimmer;
+import org.jcvi.jillion.trim.trimmomatic.SlidingWindowQualityTrimmer;
+import org.jcvi.jillion.trim.trimmomatic.TrailingQualityTrimmer;
+import org.junit.Test;
+
+public class TestQualityTrimContext {
+
+    private final Random random = new Random(98765);
+    
+    private final QualityTrimContext context = new QualityTrimContext();
+    
+    private byte[] randomQualities(int length){
+        byte[] quals = new byte[length];
+        for(int i=0; i< length; i++){
+            //low quality edges with a better middle
+            boolean edge = i < 8 || i > length - 20;
+            quals[i] = (byte) (edge ? random.nextInt(30) : 10 + random.nextInt(31));
+        }
+        return quals;
+    }
+    
+    private static void assertSameTrim(Range expected, QualityTrimContext context){
+        if(expected.getLength() ==0){
+            assertTrue(context.isEmpty());
+        }else{
+            assertEquals(expected, context.toRange());
+        }
+    }
+    
+    private void assertPrimitiveTrimMatches(QualityTrimmer trimmer){
+        for(int i=0; i< 500; i++){
+            byte[] quals = randomQualities(random.nextInt(300));
+            //embed the qualities in a bigger buffer to make sure offsets are honored
+            int offset = random.nextInt(10);
+            byte[] buffer = new byte[offset + quals.length + random.nextInt(10)];
+            Arrays.fill(buffer, (byte) 40);
+            System.arraycopy(quals, 0, buffer, offset, quals.length);
+            
+            QualitySequence seq = new QualitySequenceBuilder(quals).build();
+            trimmer.trim(buffer, offset, quals.length, context);
+            assertSameTrim(trimmer.trim(seq), context);
+        }
+    }
+    
+    @Test
+    public void leading(){
+        assertPrimitiveTrimMatches(new LeadingQualityTrimmer(PhredQuality.valueOf(20)));
+    }
+    @Test
+    public void trailing(){
+        assertPrimitiveTrimMatches(new TrailingQualityTrimmer(PhredQuality.valueOf(20)));
+    }
+    @Test
+    public void slidingWindow(){
+        assertPrimitiveTrimMatches(new SlidingWindowQualityTrimmer(4, PhredQuality.valueOf(20)));
+    }
+    @Test
+    public void maxInfo(){
+        assertPrimitiveTrimMatches(new MaxInfoTrimmer(40, 0.5));
+    }
+    @Test
+    public void bwa(){
+        assertPrimitiveTrimMatches(new BwaQualityTrimmer(PhredQuality.valueOf(20)));
+    }
+    @Test
+    public void lucyUsesDefaultImplementation(){
+        assertPrimitiveTrimMatches(new LucyQualityTrimmerBuilder(30).build());
+    }
+    
+    @Test
+    public void chainMatchesPipeline(){
+        List<QualityTrimmer> trimmers = Arrays.asList(
+                new LeadingQualityTrimmer(PhredQuality.valueOf(15)),
+                new SlidingWindowQualityTrimmer(4, PhredQuality.valueOf(20)),
+                new TrailingQualityTrimmer(PhredQuality.valueOf(15)));
+        TrimmerPipelineBuilder builder = new TrimmerPipelineBuilder();
+        trimmers.forEach(builder::add);
+        TrimmerPipeline pipeline = builder.build();
+        
+        for(int i=0; i< 500; i++){
+            byte[] quals = randomQualities(random.nextInt(200));
+            context.trim(quals, 0, quals.length, trimmers);
+            assertSameTrim(pipeline.trim(new QualitySequenceBuilder(quals).build()), context);
+        }
+    }
+    
+    @Test
+    public void bufferIsReusedUntilItNeedsToGrow(){
+        byte[] buffer = context.getBuffer(100);
+        assertTrue(buffer.length >= 100);
+        assertSame(buffer, context.getBuffer(50));
+        assertTrue(context.getBuffer(1000).length >= 1000);
+    }
+    
+    @Test
+    public void threadContextIsReused(){
+        assertSame(QualityTrimContext.get(), QualityTrimContext.get());
+    }
+    
+    @Test
+    public void setTrimRange(){
+        context.setTrimRange(Range.of(5, 9));
+        assertEquals(5, context.getBegin());
+        assertEquals(10, context.getEnd());
+        assertEquals(5, context.getLength());
+        
+        context.setTrimRange(7, 3);
+        assertTrue(context.isEmpty());
+        assertEquals(0, context.getLength());
+    }
+    
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void regionBeyondArrayShouldThrowException(){
+        new BwaQualityTrimmer(PhredQuality.valueOf(20)).trim(new byte[10], 5, 6, context);
+    }
+}
@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Jillion development code
+ * 
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public License.  This should
+ * be distributed with the code.  If you do not have a copy,
+ *  see:
+ * 
+ *          http://www.gnu.org/copyleft/lesser.html
+ * 
+ * 
+ * Copyright for this code is held jointly by the individual authors.  These should be listed in the @author doc comments.
+ * 
+ * Information about Jillion can be found on its homepage
+ * 
+ *         http://jillion.sourceforge.net
+ * 
+ * Contributors:
+ *     Danny Katzel - initial API and implementation
+ ******************************************************************************/
+package org.jcvi.jillion.trim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jcvi.jillion.core.Range;
+import org.jcvi.jillion.core.qual.PhredQuality;
+import org.jcvi.jillion.core.qual.QualitySequenceBuilder;
+import org.jcvi.jillion.core.residue.nt.NucleotideSequenceBuilder;
+import org.jcvi.jillion.core.util.iter.StreamingIterator;
+import org.jcvi.jillion.internal.ResourceHelper;
+import org.jcvi.jillion.trace.fastq.FastqFileParser;
+import org.jcvi.jillion.trace.fastq.FastqQualityCodec;
+import org.jcvi.jillion.trace.fastq.FastqRecord;
+import org.jcvi.jillion.trace.fastq.FastqRecordBuilder;
+import org.jcvi.jillion.trace.fastq.FastqWriter;
+import org.jcvi.jillion.trace.fastq.FastqWriterBuilder;
+import org.jcvi.jillion.trace.sff.SffFileDataStore;
+import org.jcvi.jillion.trace.sff.SffFileDataStoreBuilder;
+import org.jcvi.jillion.trace.sff.SffFileParser;
+import org.jcvi.jillion.trace.sff.SffFlowgram;
+import org.jcvi.jillion.trace.sff.SffUtil;
+import org.jcvi.jillion.trim.TrimmerPipelineReport.DropReason;
+import org.jcvi.jillion.trim.trimmomatic.SlidingWindowQualityTrimmer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestTrimmerPipelineRunner {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    
+    private final Random random = new Random(12345);
+    
+    private TrimmerPipeline pipeline;
+    
+    @Before
+    public void setup(){
+        pipeline = new TrimmerPipelineBuilder()
+                            .add(new SlidingWindowQualityTrimmer(4, PhredQuality.valueOf(20)))
+                            .add(new BwaQualityTrimmer(PhredQuality.valueOf(15)))
+                            .minLength(30)
+                            .build();
+    }
+    
+    private List<FastqRecord> randomRecords(String prefix, int numberOfRecords){
+        List<FastqRecord> list = new ArrayList<>(numberOfRecords);
+        for(int i=0; i< numberOfRecords; i++){
+            int length = 20 + random.nextInt(100);
+            StringBuilder bases = new StringBuilder(length);
+            byte[] quals = new byte[length];
+            for(int j=0; j< length; j++){
+                bases.append("ACGT".charAt(random.nextInt(4)));
+                //mostly good qualities with bad ends
+                boolean end = j < 5 || j > length - 15;
+                quals[j] = (byte) (end ? random.nextInt(25) : 15 + random.nextInt(25));
+            }
+            list.add(FastqRecordBuilder.create(prefix + i, 
+                    new NucleotideSequenceBuilder(bases.toString()).build(), 
+                    new QualitySequenceBuilder(quals).build())
+                    .build());
+        }
+        return list;
+    }
+    
+    private File writeFastq(List<FastqRecord> records) throws IOException{
+        File f = tmpDir.newFile();
+        try(FastqWriter writer = new FastqWriterBuilder(f)
+                                        .qualityCodec(FastqQualityCodec.SANGER)
+                                        .build()){
+            for(FastqRecord record : records){
+                writer.write(record);
+            }
+        }
+        return f;
+    }
+    
+    private FastqRecord expectedTrim(FastqRecord record){
+        Range range = pipeline.trim(record);
+        if(range.getLength() ==0){
+            return null;
+        }
+        return record.toBuilder().trim(range).build();
+    }
+    
+    private TrimmerPipelineRunner createRunner(int batchSize){
+        return new TrimmerPipelineRunner.Builder(pipeline)
+                        .batchSize(batchSize)
+                        .qualityCodec(FastqQualityCodec.SANGER)
+                        .build();
+    }
+    
+    private static void assertCountsAddUp(TrimmerPipelineReport report){
+        long dropped =0;
+        for(Long count : report.getDropCounts().values()){
+            dropped += count;
+        }
+        assertEquals(report.getTotalNumberDropped(), dropped);
+    }
+    
+    @Test
+    public void singleEndMatchesSequentialTrimInOrder() throws IOException{
+        List<FastqRecord> records = randomRecords("read", 500);
+        List<FastqRecord> expected = new ArrayList<>();
+        for(FastqRecord record : records){
+            FastqRecord trimmed = expectedTrim(record);
+            if(trimmed !=null){
+                expected.add(trimmed);
+            }
+        }
+        ListFastqWriter out = new ListFastqWriter();
+        TrimmerPipelineReport report = createRunner(7)
+                                            .run(FastqFileParser.create(writeFastq(records)), out);
+        
+        assertEquals(expected, out.records);
+        assertEquals(records.size(), report.getNumberOfRecordsRead());
+        assertEquals(expected.size(), report.getNumberOfRecordsWritten());
+        assertTrue(report.getNumberDropped(DropReason.MIN_LENGTH) > 0);
+        assertEquals(0, report.getNumberDropped(DropReason.MATE_DROPPED));
+        assertCountsAddUp(report);
+        
+        List<TrimmerPipelineReport.TrimmerTiming> timings = report.getTrimmerTimings();
+        assertEquals(2, timings.size());
+        assertTrue(timings.get(0).getTrimmer() instanceof SlidingWindowQualityTrimmer);
+        assertTrue(timings.get(1).getTrimmer() instanceof BwaQualityTrimmer);
+        assertTrue(timings.get(0).getNumberOfCalls() > 0);
+        assertTrue(timings.get(1).getNumberOfCalls() <= timings.get(0).getNumberOfCalls());
+    }
+    
+    @Test
+    public void filterDropsAreCounted() throws IOException{
+        pipeline = new TrimmerPipelineBuilder()
+                            .add(new BwaQualityTrimmer(PhredQuality.valueOf(15)))
+                            .filterRange(r -> r.asRange().getLength() < 50)
+                            .build();
+        List<FastqRecord> records = randomRecords("read", 200);
+        long expectedWritten = records.stream().filter(r -> expectedTrim(r) !=null).count();
+        
+        ListFastqWriter out = new ListFastqWriter();
+        TrimmerPipelineReport report = createRunner(1000)
+                                            .run(FastqFileParser.create(writeFastq(records)), out);
+        assertEquals(expectedWritten, out.records.size());
+        assertTrue(report.getNumberDropped(DropReason.RANGE_FILTER) > 0);
+        assertEquals(0, report.getNumberDropped(DropReason.MIN_LENGTH));
+        assertCountsAddUp(report);
+    }
+    
+    @Test
+    public void pairsOnlyWrittenIfBothMatesPass() throws IOException{
+        List<FastqRecord> mates1 = randomRecords("mate1_", 300);
+        List<FastqRecord> mates2 = randomRecords("mate2_", 300);
+        List<FastqRecord> expected1 = new ArrayList<>();
+        List<FastqRecord> expected2 = new ArrayList<>();
+        int expectedMateDropped=0;
+        for(int i=0; i< mates1.size(); i++){
+            FastqRecord trimmed1 = expectedTrim(mates1.get(i));
+            FastqRecord trimmed2 = expectedTrim(mates2.get(i));
+            if(trimmed1 !=null && trimmed2 !=null){
+                expected1.add(trimmed1);
+                expected2.add(trimmed2);
+            }else if(trimmed1 !=null || trimmed2 !=null){
+                expectedMateDropped++;
+            }
+        }
+        ListFastqWriter out1 = new ListFastqWriter();
+        ListFastqWriter out2 = new ListFastqWriter();
+        TrimmerPipelineReport report = createRunner(13)
+                                            .runPaired(FastqFileParser.create(writeFastq(mates1)), 
+                                                    FastqFileParser.create(writeFastq(mates2)), 
+                                                    out1, out2);
+        assertEquals(expected1, out1.records);
+        assertEquals(expected2, out2.records);
+        assertEquals(600, report.getNumberOfRecordsRead());
+        assertEquals(expected1.size() *2, report.getNumberOfRecordsWritten());
+        assertEquals(expectedMateDropped, report.getNumberDropped(DropReason.MATE_DROPPED));
+        assertCountsAddUp(report);
+    }
+    
+    @Test(expected = IOException.class)
+    public void pairsWithDifferentNumberOfRecordsShouldThrowIOException() throws IOException{
+        createRunner(10).runPaired(FastqFileParser.create(writeFastq(randomRecords("mate1_", 10))), 
+                FastqFileParser.create(writeFastq(randomRecords("mate2_", 9))), 
+                new ListFastqWriter(), new ListFastqWriter());
+    }
+    
+    @Test
+    public void sffReadsAreClippedBeforeTrimming() throws IOException{
+        pipeline = new TrimmerPipelineBuilder()
+                            .add(new BwaQualityTrimmer(PhredQuality.valueOf(20)))
+                            .build();
+        File sffFile = new ResourceHelper(TestTrimmerPipelineRunner.class)
+                            .getFile("../trace/sff/files/5readExample.sff");
+        List<FastqRecord> expected = new ArrayList<>();
+        try(SffFileDataStore datastore = new SffFileDataStoreBuilder(sffFile).build();
+            StreamingIterator<SffFlowgram> iter = datastore.iterator()){
+            while(iter.hasNext()){
+                SffFlowgram flowgram = iter.next();
+                FastqRecord clipped = FastqRecordBuilder.create(flowgram.getId(), 
+                                                flowgram.getNucleotideSequence(), 
+                                                flowgram.getQualitySequence())
+                                            .trim(SffUtil.computeTrimRangeFor(flowgram))
+                                            .build();
+                FastqRecord trimmed = expectedTrim(clipped);
+                if(trimmed !=null){
+                    expected.add(trimmed);
+                }
+            }
+        }
+        ListFastqWriter out = new ListFastqWriter();
+        TrimmerPipelineReport report = createRunner(2).run(SffFileParser.create(sffFile), out);
+        
+        assertEquals(5, report.getNumberOfRecordsRead());
+        assertEquals(expected, out.records);
+        assertCountsAddUp(report);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void batchSizeLessThanOneShouldThrowIllegalArgumentException(){
+        new TrimmerPipelineRunner.Builder(pipeline).batchSize(0);
+    }
+    
+    private static final class ListFastqWriter implements FastqWriter{
+        private final List<FastqRecord> records = new ArrayList<>();
+        
+        @Override
+        public void write(FastqRecord record) throws IOException {
+            records.add(record);
+        }
+
+        @Override
+        public void close() throws IOException {
+            //no-op
+        }
+    }
+}